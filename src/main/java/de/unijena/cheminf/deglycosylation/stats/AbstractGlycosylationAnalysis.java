@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Base class of the analyses that takes care of the output folder and of writing results both to console and to the
+ * "Output.txt" file, like the test methods in GlycosylationStatisticsTest do. ID lists created via createIDList() are
+ * spilled to the output folder under high memory pressure and dropped under critical memory pressure.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public abstract class AbstractGlycosylationAnalysis implements GlycosylationAnalysis {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Separator for created CSV output files
+     */
+    public static final String OUTPUT_FILE_SEPARATOR = ";";
+
+    /**
+     * Name of the file that all analyses write their statistics to
+     */
+    public static final String OUTPUT_FILE_NAME = "Output.txt";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Buffer size of the output file writers in characters
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * ID lists created by the analysis, reduced under memory pressure
+     */
+    private final List<SpillableIDList> idLists = new ArrayList<>(10);
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Path of the analysis-specific output folder, ending with a file separator
+     */
+    private String outputFolderPath;
+
+    /**
+     * Writer of the "Output.txt" file, opened when the results are written
+     */
+    private PrintWriter outputWriter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize(String anOutputFolderPath) throws IOException {
+        Objects.requireNonNull(anOutputFolderPath, "Given output folder path is 'null'.");
+        File tmpOutputFolderFile = new File(anOutputFolderPath);
+        if (!tmpOutputFolderFile.exists()) {
+            tmpOutputFolderFile.mkdirs();
+        }
+        this.outputFolderPath = anOutputFolderPath;
+    }
+
+    /**
+     * Spills all ID lists created via createIDList() to the output folder under high pressure and drops them under
+     * critical pressure.
+     *
+     * @param aPressure the current memory pressure, HIGH or CRITICAL
+     * @throws IOException if an ID list cannot be spilled
+     */
+    @Override
+    public void reduceMemoryFootprint(HeapMemoryMonitor.Pressure aPressure) throws IOException {
+        for (SpillableIDList tmpIDList : this.idLists) {
+            if (aPressure == HeapMemoryMonitor.Pressure.CRITICAL) {
+                tmpIDList.drop();
+            } else if (aPressure == HeapMemoryMonitor.Pressure.HIGH) {
+                tmpIDList.spill(new File(this.getOutputFolderPath()));
+            }
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Protected methods">
+    /**
+     * Returns the path of the analysis-specific output folder, ending with a file separator.
+     *
+     * @return output folder path
+     * @throws IllegalStateException if the analysis has not been initialized
+     */
+    protected String getOutputFolderPath() throws IllegalStateException {
+        if (Objects.isNull(this.outputFolderPath)) {
+            throw new IllegalStateException("Analysis " + this.getName() + " has not been initialized.");
+        }
+        return this.outputFolderPath;
+    }
+
+    /**
+     * Creates and returns a PrintWriter instance that can be used to send output to a file with the given name in the
+     * output folder of this analysis. The writer is buffered and not flushed per line, so that writing per molecule
+     * does not block the analysis on the disk; it has to be flushed and closed when the results are written.
+     *
+     * @param anOutputFileName name of the file
+     * @return writer of the file
+     * @throws IOException if the file cannot be created
+     */
+    protected PrintWriter initializeOutputFile(String anOutputFileName) throws IOException {
+        File tmpOutputFile = new File(this.getOutputFolderPath() + anOutputFileName);
+        FileWriter tmpOutputFileWriter = new FileWriter(tmpOutputFile);
+        return new PrintWriter(new BufferedWriter(tmpOutputFileWriter, AbstractGlycosylationAnalysis.OUTPUT_BUFFER_SIZE),
+                false);
+    }
+
+    /**
+     * Prints the given line to console and writes it to the "Output.txt" file of this analysis.
+     *
+     * @param aLine the line to print
+     * @throws IOException if the output file cannot be created
+     */
+    protected void printAndWrite(String aLine) throws IOException {
+        System.out.println(aLine);
+        this.writeToOutputFile(aLine);
+    }
+
+    /**
+     * Writes the given line only to the "Output.txt" file of this analysis, not to console. This is used for the long
+     * lists of IDs.
+     *
+     * @param aLine the line to write
+     * @throws IOException if the output file cannot be created
+     */
+    protected void writeToOutputFile(String aLine) throws IOException {
+        if (Objects.isNull(this.outputWriter)) {
+            this.outputWriter = this.initializeOutputFile(AbstractGlycosylationAnalysis.OUTPUT_FILE_NAME);
+        }
+        this.outputWriter.println(aLine);
+    }
+
+    /**
+     * Writes the given label and the given ID list as one line only to the "Output.txt" file of this analysis, without
+     * keeping the whole line in memory.
+     *
+     * @param aLabel text written before the list
+     * @param anIDList the list
+     * @throws IOException if the output file cannot be created or the spilled IDs cannot be read
+     */
+    protected void writeToOutputFile(String aLabel, SpillableIDList anIDList) throws IOException {
+        if (Objects.isNull(this.outputWriter)) {
+            this.outputWriter = this.initializeOutputFile(AbstractGlycosylationAnalysis.OUTPUT_FILE_NAME);
+        }
+        this.outputWriter.print(aLabel);
+        anIDList.print(this.outputWriter);
+        this.outputWriter.println();
+    }
+
+    /**
+     * Creates an ID list that is spilled or dropped when the memory footprint of this analysis is reduced.
+     *
+     * @param aName name of the list, used as prefix of its spill file
+     * @return new empty ID list
+     */
+    protected SpillableIDList createIDList(String aName) {
+        SpillableIDList tmpIDList = new SpillableIDList(aName);
+        this.idLists.add(tmpIDList);
+        return tmpIDList;
+    }
+
+    /**
+     * Flushes and closes the "Output.txt" file of this analysis if it has been opened.
+     */
+    protected void closeOutputFile() {
+        if (!Objects.isNull(this.outputWriter)) {
+            this.outputWriter.flush();
+            this.outputWriter.close();
+            this.outputWriter = null;
+        }
+    }
+
+    /**
+     * Returns the given count as percentage of the given total.
+     *
+     * @param aCount the count
+     * @param aTotal the total
+     * @return percentage
+     */
+    protected static double getPercentage(int aCount, int aTotal) {
+        return ((double) aCount / (double) aTotal) * 100;
+    }
+    //</editor-fold>
+}
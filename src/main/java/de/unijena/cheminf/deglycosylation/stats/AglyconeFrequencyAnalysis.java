@@ -0,0 +1,295 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Counts the distinct aglycones of the glycosides of a dataset, i.e. of the molecules that terminal sugar moieties
+ * are removed from with all SRU settings in default, and lists the aglycones shared by several glycosides. The
+ * aglycones are counted by an {@link AglyconeFrequencyCollector} keyed by a {@link StructureKeyGenerator}, by default
+ * the hashes of their unique SMILES codes. In exact mode, all distinct aglycones are written to
+ * "aglycone_frequencies.csv" in descending order of their counts; the unique SMILES code of an aglycone is only
+ * generated when its key is new. In HyperLogLog mode (command line name "aglycones-estimate"), only the estimated
+ * number of distinct aglycones is reported, with fixed memory for arbitrarily large datasets; no SMILES codes are
+ * needed, so the fast {@link GraphHashKeyGenerator} is used on the command line. All statistics are printed to console
+ * and compiled in the "Output.txt" file.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class AglyconeFrequencyAnalysis extends AbstractGlycosylationAnalysis {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this analysis on the command line, counting exactly
+     */
+    public static final String NAME = "aglycones";
+
+    /**
+     * Name of this analysis on the command line, estimating the number of distinct aglycones via HyperLogLog
+     */
+    public static final String ESTIMATE_NAME = "aglycones-estimate";
+
+    /**
+     * Name of the CSV file all distinct aglycones are written to in exact mode
+     */
+    public static final String FREQUENCIES_FILE_NAME = "aglycone_frequencies.csv";
+
+    /**
+     * Number of most frequent aglycones printed to console
+     */
+    public static final int NUMBER_OF_PRINTED_AGLYCONES = 10;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Sugar Removal Utility instance of every thread running detect(), with all settings in default
+     */
+    private final ThreadLocal<RecordingSugarRemovalUtility> sugarRemovalUtil;
+
+    /**
+     * Generator of the structure keys of the aglycones
+     */
+    private final StructureKeyGenerator keyGenerator;
+
+    /**
+     * Generator of the unique SMILES codes of new aglycones, for output
+     */
+    private final UniqueSmilesKeyGenerator smilesGenerator;
+
+    /**
+     * Counts of the aglycones
+     */
+    private final AglyconeFrequencyCollector collector;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    //counters of the compiled statistics, see writeResults()
+    private int moleculesCounter;
+
+    private int glycosidesCounter;
+
+    private int basicallyASugarCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates an analysis counting the aglycones exactly.
+     */
+    public AglyconeFrequencyAnalysis() {
+        this(AglyconeFrequencyCollector.Mode.EXACT);
+    }
+
+    /**
+     * Creates an analysis counting the aglycones in the given mode, keyed by the hashes of their unique SMILES codes.
+     * All SRU settings are in default.
+     *
+     * @param aMode counting mode
+     * @throws NullPointerException if the given mode is null
+     */
+    public AglyconeFrequencyAnalysis(AglyconeFrequencyCollector.Mode aMode) throws NullPointerException {
+        this(aMode, new UniqueSmilesKeyGenerator());
+    }
+
+    /**
+     * Creates an analysis counting the aglycones in the given mode, keyed by the given strategy. All SRU settings are
+     * in default.
+     *
+     * @param aMode counting mode
+     * @param aKeyGenerator strategy creating the structure keys of the aglycones
+     * @throws NullPointerException if a given parameter is null
+     */
+    public AglyconeFrequencyAnalysis(AglyconeFrequencyCollector.Mode aMode, StructureKeyGenerator aKeyGenerator)
+            throws NullPointerException {
+        Objects.requireNonNull(aKeyGenerator, "Given key generator is 'null'.");
+        this.collector = new AglyconeFrequencyCollector(aMode);
+        this.keyGenerator = aKeyGenerator;
+        this.smilesGenerator = aKeyGenerator instanceof UniqueSmilesKeyGenerator
+                ? (UniqueSmilesKeyGenerator) aKeyGenerator : new UniqueSmilesKeyGenerator();
+        this.sugarRemovalUtil = ThreadLocal.withInitial(
+                () -> new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance()));
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return this.collector.getMode() == AglyconeFrequencyCollector.Mode.EXACT ? AglyconeFrequencyAnalysis.NAME
+                : AglyconeFrequencyAnalysis.ESTIMATE_NAME;
+    }
+
+    /**
+     * Returns a normaliser selecting the biggest fragment of disconnected molecules, as done in the tests.
+     *
+     * @return normaliser selecting the biggest fragment
+     */
+    @Override
+    public MoleculeNormalizer getRequiredNormalizer() {
+        return MoleculeNormalizer.BIGGEST_FRAGMENT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void analyse(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        this.detect(aRecord, aMolecule).apply();
+    }
+
+    /**
+     * Removes the terminal sugar moieties and creates the key of the aglycone; its unique SMILES code is created in
+     * the update if the key turns out to be new, or here if it is the key.
+     *
+     * @param aRecord the record the molecule was read from
+     * @param aMolecule the molecule with only its biggest fragment
+     * @return the update counting the aglycone
+     * @throws Exception if anything goes wrong with this molecule
+     */
+    @Override
+    public StatisticsUpdate detect(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        IAtomContainer tmpDeglycosylatedClone = this.sugarRemovalUtil.get().removeCircularAndLinearSugars(aMolecule,
+                true);
+        //counted after the detection, see GlycosylationAnalysis.analyse()
+        if (tmpDeglycosylatedClone.getAtomCount() == aMolecule.getAtomCount()) {
+            //no terminal sugar moiety was removed
+            return () -> {
+                this.moleculesCounter++;
+            };
+        }
+        if (tmpDeglycosylatedClone.isEmpty()) {
+            return () -> {
+                this.moleculesCounter++;
+                this.glycosidesCounter++;
+                this.basicallyASugarCounter++;
+            };
+        }
+        if (this.keyGenerator == this.smilesGenerator) {
+            String tmpUniqueSmilesCode = this.smilesGenerator.createUniqueSmilesCode(tmpDeglycosylatedClone);
+            return () -> {
+                this.moleculesCounter++;
+                this.glycosidesCounter++;
+                this.collector.add(tmpUniqueSmilesCode);
+            };
+        }
+        long tmpKey = this.keyGenerator.createKey(tmpDeglycosylatedClone);
+        return () -> {
+            this.moleculesCounter++;
+            this.glycosidesCounter++;
+            String tmpSmilesCode = null;
+            if (this.collector.getMode() == AglyconeFrequencyCollector.Mode.EXACT && this.collector.getCount(tmpKey) == 0) {
+                tmpSmilesCode = this.smilesGenerator.createUniqueSmilesCode(tmpDeglycosylatedClone);
+            }
+            this.collector.add(tmpKey, tmpSmilesCode);
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeResults() throws IOException {
+        this.printAndWrite("Molecules counter: " + this.moleculesCounter);
+        this.printAndWrite("Glycosides counter: " + this.glycosidesCounter);
+        this.printAndWrite("Basically a sugar counter: " + this.basicallyASugarCounter);
+        this.printAndWrite("Aglycones counter: " + this.collector.getTotalCount());
+        if (this.collector.getMode() == AglyconeFrequencyCollector.Mode.HYPER_LOG_LOG) {
+            this.printAndWrite(String.format(Locale.US, "Estimated distinct aglycones counter: %d (relative standard "
+                    + "error %.2f%%)", this.collector.getDistinctCount(), this.collector.getRelativeStandardError() * 100));
+            this.closeOutputFile();
+            return;
+        }
+        this.printAndWrite("Distinct aglycones counter: " + this.collector.getDistinctCount());
+        List<AglyconeFrequencyCollector.Frequency> tmpFrequencies = this.collector.getMostFrequent(Integer.MAX_VALUE);
+        int tmpSharedAglyconesCounter = 0;
+        for (AglyconeFrequencyCollector.Frequency tmpFrequency : tmpFrequencies) {
+            if (tmpFrequency.getCount() > 1) {
+                tmpSharedAglyconesCounter++;
+            }
+        }
+        this.printAndWrite("Aglycones shared by several glycosides counter: " + tmpSharedAglyconesCounter);
+        this.printAndWrite("Most frequent aglycones:");
+        for (int i = 0; i < Math.min(AglyconeFrequencyAnalysis.NUMBER_OF_PRINTED_AGLYCONES, tmpFrequencies.size()); i++) {
+            this.printAndWrite(tmpFrequencies.get(i).getCount() + " " + tmpFrequencies.get(i).getSmilesCode());
+        }
+        String tmpSeparator = AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR;
+        PrintWriter tmpWriter = this.initializeOutputFile(AglyconeFrequencyAnalysis.FREQUENCIES_FILE_NAME);
+        tmpWriter.println(String.join(tmpSeparator, "Count", "Structure hash", "Aglycone SMILES"));
+        for (AglyconeFrequencyCollector.Frequency tmpFrequency : tmpFrequencies) {
+            tmpWriter.println(tmpFrequency.getCount() + tmpSeparator + Long.toHexString(tmpFrequency.getStructureHash())
+                    + tmpSeparator + tmpFrequency.getSmilesCode());
+        }
+        tmpWriter.flush();
+        tmpWriter.close();
+        this.closeOutputFile();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of analysed molecules.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the number of molecules that terminal sugar moieties were removed from.
+     *
+     * @return glycosides counter
+     */
+    public int getGlycosidesCounter() {
+        return this.glycosidesCounter;
+    }
+
+    /**
+     * Returns the strategy creating the structure keys of the aglycones.
+     *
+     * @return structure key generator
+     */
+    public StructureKeyGenerator getKeyGenerator() {
+        return this.keyGenerator;
+    }
+
+    /**
+     * Returns the collector of the aglycone counts.
+     *
+     * @return aglycone frequency collector
+     */
+    public AglyconeFrequencyCollector getCollector() {
+        return this.collector;
+    }
+    //</editor-fold>
+}
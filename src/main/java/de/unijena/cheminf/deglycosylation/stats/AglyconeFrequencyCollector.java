@@ -0,0 +1,464 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Counts how often distinct aglycones, i.e. the structures remaining after sugar removal, occur in a dataset. The
+ * aglycones are keyed by a 64-bit hash of their canonical (unique) SMILES code instead of the code itself, so the
+ * collector holds no string per molecule:
+ * <br>- In exact mode, the hashes are counted in an open-addressing table of primitive arrays that keeps the SMILES
+ * code of the first occurrence of every distinct aglycone, so the most frequent aglycones can be listed.
+ * <br>- In HyperLogLog mode, only the number of distinct aglycones is estimated, in a fixed array of 2^precision
+ * one-byte registers; the relative standard error is 1.04 / sqrt(2^precision), i.e. 0.8% for the default precision of
+ * 14 in 16 KB, independent of the dataset size.
+ * <br>Distinct aglycones whose hashes collide are counted as one; for 64-bit hashes, this is negligible up to hundreds
+ * of millions of distinct aglycones. Partial counts of parts of a dataset are combined via merge(). Instances are not
+ * thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class AglyconeFrequencyCollector {
+    //<editor-fold desc="Enum Mode">
+    /**
+     * Counting modes of the collector
+     */
+    public enum Mode {
+        /**
+         * Exact counts of every distinct aglycone
+         */
+        EXACT,
+
+        /**
+         * HyperLogLog estimate of the number of distinct aglycones
+         */
+        HYPER_LOG_LOG;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default HyperLogLog precision, i.e. the binary logarithm of the number of registers
+     */
+    public static final int DEFAULT_PRECISION = 14;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Initial capacity of the exact counting table, a power of two
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * FNV-1a 64-bit offset basis
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64-bit prime
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Counting mode
+     */
+    private final Mode mode;
+
+    /**
+     * HyperLogLog precision, 0 in exact mode
+     */
+    private final int precision;
+
+    /**
+     * HyperLogLog registers, null in exact mode
+     */
+    private final byte[] registers;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    //exact counting table; a slot is occupied if its count is greater than 0
+    private long[] hashes;
+
+    private int[] counts;
+
+    private String[] smilesCodes;
+
+    /**
+     * Number of occupied slots of the exact counting table
+     */
+    private int distinctCounter;
+
+    /**
+     * Number of added aglycones
+     */
+    private long totalCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates an empty collector in the given mode with the default HyperLogLog precision.
+     *
+     * @param aMode counting mode
+     * @throws NullPointerException if the given mode is null
+     */
+    public AglyconeFrequencyCollector(Mode aMode) throws NullPointerException {
+        this(aMode, AglyconeFrequencyCollector.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates an empty collector in the given mode.
+     *
+     * @param aMode counting mode
+     * @param aPrecision HyperLogLog precision between 4 and 18, ignored in exact mode
+     * @throws NullPointerException if the given mode is null
+     * @throws IllegalArgumentException if the precision is out of range in HyperLogLog mode
+     */
+    public AglyconeFrequencyCollector(Mode aMode, int aPrecision) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aMode, "Given mode is 'null'.");
+        this.mode = aMode;
+        if (aMode == Mode.HYPER_LOG_LOG) {
+            if (aPrecision < 4 || aPrecision > 18) {
+                throw new IllegalArgumentException("Given precision must be between 4 and 18 but is " + aPrecision + ".");
+            }
+            this.precision = aPrecision;
+            this.registers = new byte[1 << aPrecision];
+        } else {
+            this.precision = 0;
+            this.registers = null;
+            this.hashes = new long[AglyconeFrequencyCollector.INITIAL_CAPACITY];
+            this.counts = new int[AglyconeFrequencyCollector.INITIAL_CAPACITY];
+            this.smilesCodes = new String[AglyconeFrequencyCollector.INITIAL_CAPACITY];
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Returns the 64-bit structure hash of the given canonical SMILES code, the FNV-1a hash of its characters with a
+     * final avalanche step, so that all bits are usable as HyperLogLog and table index bits.
+     *
+     * @param aCanonicalSmilesCode canonical (unique) SMILES code of the structure
+     * @return structure hash
+     * @throws NullPointerException if the given SMILES code is null
+     */
+    public static long computeStructureHash(String aCanonicalSmilesCode) throws NullPointerException {
+        Objects.requireNonNull(aCanonicalSmilesCode, "Given SMILES code is 'null'.");
+        long tmpHash = AglyconeFrequencyCollector.FNV_OFFSET_BASIS;
+        for (int i = 0; i < aCanonicalSmilesCode.length(); i++) {
+            tmpHash ^= aCanonicalSmilesCode.charAt(i);
+            tmpHash *= AglyconeFrequencyCollector.FNV_PRIME;
+        }
+        //finalisation step of MurmurHash3
+        tmpHash ^= tmpHash >>> 33;
+        tmpHash *= 0xff51afd7ed558ccdL;
+        tmpHash ^= tmpHash >>> 33;
+        tmpHash *= 0xc4ceb9fe1a85ec53L;
+        tmpHash ^= tmpHash >>> 33;
+        return tmpHash;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds an aglycone given as canonical SMILES code.
+     *
+     * @param aCanonicalSmilesCode canonical (unique) SMILES code of the aglycone
+     * @throws NullPointerException if the given SMILES code is null
+     */
+    public void add(String aCanonicalSmilesCode) throws NullPointerException {
+        this.add(AglyconeFrequencyCollector.computeStructureHash(aCanonicalSmilesCode), 1, aCanonicalSmilesCode);
+    }
+
+    /**
+     * Adds an aglycone given by its structure hash.
+     *
+     * @param aStructureHash structure hash of the aglycone, see computeStructureHash()
+     * @param aCanonicalSmilesCode SMILES code kept for the aglycone if it is new, may be null
+     */
+    public void add(long aStructureHash, String aCanonicalSmilesCode) {
+        this.add(aStructureHash, 1, aCanonicalSmilesCode);
+    }
+
+    /**
+     * Adds the counts of another collector of the same mode and precision to this one. The given collector is not
+     * altered.
+     *
+     * @param anOther collector to add
+     * @throws NullPointerException if the given collector is null
+     * @throws IllegalArgumentException if the mode or precision of the given collector differs
+     */
+    public void merge(AglyconeFrequencyCollector anOther) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(anOther, "Given collector is 'null'.");
+        if (anOther.mode != this.mode || anOther.precision != this.precision) {
+            throw new IllegalArgumentException("Given collector has a different mode or precision.");
+        }
+        if (this.mode == Mode.HYPER_LOG_LOG) {
+            for (int i = 0; i < this.registers.length; i++) {
+                this.registers[i] = (byte) Math.max(this.registers[i], anOther.registers[i]);
+            }
+            this.totalCounter += anOther.totalCounter;
+        } else {
+            for (int i = 0; i < anOther.counts.length; i++) {
+                if (anOther.counts[i] > 0) {
+                    this.add(anOther.hashes[i], anOther.counts[i], anOther.smilesCodes[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct aglycones, estimated in HyperLogLog mode.
+     *
+     * @return distinct aglycones count
+     */
+    public long getDistinctCount() {
+        if (this.mode == Mode.EXACT) {
+            return this.distinctCounter;
+        }
+        int tmpNumberOfRegisters = this.registers.length;
+        double tmpSum = 0.0;
+        int tmpZeroRegistersCount = 0;
+        for (byte tmpRegister : this.registers) {
+            tmpSum += 1.0 / (1L << tmpRegister);
+            if (tmpRegister == 0) {
+                tmpZeroRegistersCount++;
+            }
+        }
+        double tmpAlpha = 0.7213 / (1.0 + 1.079 / tmpNumberOfRegisters);
+        double tmpEstimate = tmpAlpha * tmpNumberOfRegisters * tmpNumberOfRegisters / tmpSum;
+        //linear counting for small cardinalities; with 64-bit hashes, no correction is needed for large ones
+        if (tmpEstimate <= 2.5 * tmpNumberOfRegisters && tmpZeroRegistersCount > 0) {
+            tmpEstimate = tmpNumberOfRegisters * Math.log((double) tmpNumberOfRegisters / tmpZeroRegistersCount);
+        }
+        return Math.round(tmpEstimate);
+    }
+
+    /**
+     * Returns the relative standard error of the distinct count, 0 in exact mode.
+     *
+     * @return relative standard error
+     */
+    public double getRelativeStandardError() {
+        return this.mode == Mode.EXACT ? 0.0 : 1.04 / Math.sqrt(this.registers.length);
+    }
+
+    /**
+     * Returns how often the aglycone with the given structure hash was added.
+     *
+     * @param aStructureHash structure hash of the aglycone
+     * @return count, 0 if the aglycone was not added
+     * @throws IllegalStateException if the collector is in HyperLogLog mode
+     */
+    public int getCount(long aStructureHash) throws IllegalStateException {
+        this.checkExactMode();
+        return this.counts[this.findSlot(aStructureHash)];
+    }
+
+    /**
+     * Returns the most frequent aglycones in descending order of their counts; aglycones with equal counts are ordered
+     * by their structure hashes.
+     *
+     * @param aNumberOfAglycones maximum number of returned aglycones
+     * @return list of aglycone frequencies
+     * @throws IllegalStateException if the collector is in HyperLogLog mode
+     */
+    public List<Frequency> getMostFrequent(int aNumberOfAglycones) throws IllegalStateException {
+        this.checkExactMode();
+        List<Frequency> tmpFrequencies = new ArrayList<>(this.distinctCounter);
+        for (int i = 0; i < this.counts.length; i++) {
+            if (this.counts[i] > 0) {
+                tmpFrequencies.add(new Frequency(this.hashes[i], this.counts[i], this.smilesCodes[i]));
+            }
+        }
+        tmpFrequencies.sort(Comparator.comparingInt(Frequency::getCount).reversed()
+                .thenComparingLong(Frequency::getStructureHash));
+        return tmpFrequencies.size() > aNumberOfAglycones
+                ? new ArrayList<>(tmpFrequencies.subList(0, Math.max(aNumberOfAglycones, 0))) : tmpFrequencies;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the counting mode.
+     *
+     * @return mode
+     */
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Returns the number of added aglycones, including repeated ones.
+     *
+     * @return total aglycones count
+     */
+    public long getTotalCount() {
+        return this.totalCounter;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Adds the given count of the aglycone with the given hash.
+     */
+    private void add(long aStructureHash, int aCount, String aCanonicalSmilesCode) {
+        this.totalCounter += aCount;
+        if (this.mode == Mode.HYPER_LOG_LOG) {
+            //the first bits select the register, the position of the first set bit of the rest is the rank
+            int tmpRegisterIndex = (int) (aStructureHash >>> (64 - this.precision));
+            long tmpRemainingBits = aStructureHash << this.precision;
+            int tmpRank = tmpRemainingBits == 0L ? 64 - this.precision + 1
+                    : Long.numberOfLeadingZeros(tmpRemainingBits) + 1;
+            if (tmpRank > this.registers[tmpRegisterIndex]) {
+                this.registers[tmpRegisterIndex] = (byte) tmpRank;
+            }
+            return;
+        }
+        int tmpSlot = this.findSlot(aStructureHash);
+        if (this.counts[tmpSlot] > 0) {
+            this.counts[tmpSlot] += aCount;
+            return;
+        }
+        this.hashes[tmpSlot] = aStructureHash;
+        this.counts[tmpSlot] = aCount;
+        this.smilesCodes[tmpSlot] = aCanonicalSmilesCode;
+        this.distinctCounter++;
+        //keeps the load factor at most 1/2
+        if (this.distinctCounter * 2 > this.counts.length) {
+            this.resize();
+        }
+    }
+
+    /**
+     * Returns the slot of the given hash in the exact counting table or the empty slot it would be put in (linear
+     * probing).
+     */
+    private int findSlot(long aStructureHash) {
+        int tmpMask = this.counts.length - 1;
+        int tmpSlot = (int) aStructureHash & tmpMask;
+        while (this.counts[tmpSlot] > 0 && this.hashes[tmpSlot] != aStructureHash) {
+            tmpSlot = (tmpSlot + 1) & tmpMask;
+        }
+        return tmpSlot;
+    }
+
+    /**
+     * Doubles the capacity of the exact counting table.
+     */
+    private void resize() {
+        long[] tmpHashes = this.hashes;
+        int[] tmpCounts = this.counts;
+        String[] tmpSmilesCodes = this.smilesCodes;
+        this.hashes = new long[tmpCounts.length * 2];
+        this.counts = new int[tmpCounts.length * 2];
+        this.smilesCodes = new String[tmpCounts.length * 2];
+        for (int i = 0; i < tmpCounts.length; i++) {
+            if (tmpCounts[i] > 0) {
+                int tmpSlot = this.findSlot(tmpHashes[i]);
+                this.hashes[tmpSlot] = tmpHashes[i];
+                this.counts[tmpSlot] = tmpCounts[i];
+                this.smilesCodes[tmpSlot] = tmpSmilesCodes[i];
+            }
+        }
+    }
+
+    /**
+     * Throws an IllegalStateException if the collector is not in exact mode.
+     */
+    private void checkExactMode() throws IllegalStateException {
+        if (this.mode != Mode.EXACT) {
+            throw new IllegalStateException("Counts of single aglycones are only available in exact mode.");
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner class Frequency">
+    /**
+     * Count of one distinct aglycone
+     */
+    public static final class Frequency {
+        /**
+         * Structure hash of the aglycone
+         */
+        private final long structureHash;
+
+        /**
+         * Number of occurrences
+         */
+        private final int count;
+
+        /**
+         * SMILES code of the first occurrence, may be null
+         */
+        private final String smilesCode;
+
+        /**
+         * Creates a frequency.
+         *
+         * @param aStructureHash structure hash of the aglycone
+         * @param aCount number of occurrences
+         * @param aSmilesCode SMILES code of the aglycone, may be null
+         */
+        public Frequency(long aStructureHash, int aCount, String aSmilesCode) {
+            this.structureHash = aStructureHash;
+            this.count = aCount;
+            this.smilesCode = aSmilesCode;
+        }
+
+        /**
+         * Returns the structure hash of the aglycone.
+         *
+         * @return structure hash
+         */
+        public long getStructureHash() {
+            return this.structureHash;
+        }
+
+        /**
+         * Returns the number of occurrences of the aglycone.
+         *
+         * @return count
+         */
+        public int getCount() {
+            return this.count;
+        }
+
+        /**
+         * Returns the SMILES code of the aglycone.
+         *
+         * @return SMILES code or null if none was given
+         */
+        public String getSmilesCode() {
+            return this.smilesCode;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,457 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.fingerprint.CircularFingerprinter;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Nearest-neighbour index over the aglycone fingerprints of several datasets, e.g. the deglycosylated cores of
+ * COCONUT, ChEMBL, and DrugBank molecules, answering which aglycones of the datasets are most similar to a query
+ * aglycone in terms of Tanimoto similarity. The fingerprints are packed into one long array and sorted by their
+ * number of set bits. Since the Tanimoto similarity of fingerprints with a and b set bits is at most
+ * min(a, b) / max(a, b), a search visits the bit count buckets in the order of this bound, starting at the bit count
+ * of the query, and stops as soon as the bound drops below the k-th best similarity found, so that mostly only
+ * fingerprints of similar size are compared. The results are exact; ties are resolved in favour of the entry added
+ * first.
+ * <br>The index is built with an AglyconeSimilarityIndex.Builder, e.g. from aglycone fingerprint stores or during a
+ * MultiDatasetComparisonJob, and is immutable and thread-safe afterwards.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class AglyconeSimilarityIndex {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default number of hits returned by a search
+     */
+    public static final int DEFAULT_NUMBER_OF_HITS = 5;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Names of the indexed datasets
+     */
+    private final String[] datasetNames;
+
+    /**
+     * Number of bits of a fingerprint
+     */
+    private final int numberOfBits;
+
+    /**
+     * Number of long words of a fingerprint
+     */
+    private final int wordsPerFingerprint;
+
+    /**
+     * Packed fingerprints, sorted by bit count
+     */
+    private final long[] words;
+
+    /**
+     * Start index of every bit count bucket, the bucket of bit count c ends at the start of bucket c + 1
+     */
+    private final int[] bucketStarts;
+
+    /**
+     * IDs of the entries, same order as the fingerprints
+     */
+    private final String[] ids;
+
+    /**
+     * Dataset index of the entries, same order as the fingerprints
+     */
+    private final int[] datasetIndices;
+
+    /**
+     * Insertion rank of the entries for resolving ties, same order as the fingerprints
+     */
+    private final int[] insertionRanks;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Packs the entries of the given builder, sorted by bit count with a stable counting sort.
+     */
+    private AglyconeSimilarityIndex(Builder aBuilder) {
+        this.datasetNames = aBuilder.datasetIndexMap.keySet().toArray(new String[0]);
+        this.numberOfBits = aBuilder.fingerprints.getNumberOfBits();
+        this.wordsPerFingerprint = this.numberOfBits / Long.SIZE;
+        int tmpSize = aBuilder.fingerprints.size();
+        this.bucketStarts = new int[this.numberOfBits + 2];
+        for (int i = 0; i < tmpSize; i++) {
+            this.bucketStarts[aBuilder.fingerprints.getCardinality(i) + 1]++;
+        }
+        for (int c = 1; c < this.bucketStarts.length; c++) {
+            this.bucketStarts[c] += this.bucketStarts[c - 1];
+        }
+        int[] tmpNextPositions = Arrays.copyOf(this.bucketStarts, this.bucketStarts.length);
+        this.words = new long[Math.multiplyExact(tmpSize, this.wordsPerFingerprint)];
+        this.ids = new String[tmpSize];
+        this.datasetIndices = new int[tmpSize];
+        this.insertionRanks = new int[tmpSize];
+        for (int i = 0; i < tmpSize; i++) {
+            int tmpPosition = tmpNextPositions[aBuilder.fingerprints.getCardinality(i)]++;
+            for (int w = 0; w < this.wordsPerFingerprint; w++) {
+                this.words[tmpPosition * this.wordsPerFingerprint + w] = aBuilder.fingerprints.getWord(i, w);
+            }
+            this.ids[tmpPosition] = aBuilder.ids.get(i);
+            this.datasetIndices[tmpPosition] = aBuilder.datasetIndices[i];
+            this.insertionRanks[tmpPosition] = i;
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Computes the ECFP6 fingerprint of the aglycone of the given molecule, i.e. of its biggest fragment after removal
+     * of circular and linear sugars. Molecules without sugars are their own aglycone.
+     *
+     * @param aMolecule the molecule; it is not altered
+     * @param aSugarRemovalUtil SRU used for the deglycosylation
+     * @param aFingerprinter ECFP6 fingerprinter with the number of bits of the index
+     * @return the fingerprint or null if the molecule is completely removed as sugar
+     * @throws NullPointerException if a parameter is null
+     * @throws CloneNotSupportedException if the molecule cannot be cloned
+     * @throws CDKException if the fingerprint cannot be computed
+     */
+    public static BitSet computeAglyconeFingerprint(IAtomContainer aMolecule, SugarRemovalUtility aSugarRemovalUtil,
+                                                    CircularFingerprinter aFingerprinter)
+            throws NullPointerException, CloneNotSupportedException, CDKException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        Objects.requireNonNull(aSugarRemovalUtil, "Given Sugar Removal Utility is 'null'.");
+        Objects.requireNonNull(aFingerprinter, "Given fingerprinter is 'null'.");
+        IAtomContainer tmpMolecule = aMolecule;
+        if (!ConnectivityChecker.isConnected(tmpMolecule)) {
+            tmpMolecule = SugarRemovalUtility.selectBiggestUnconnectedFragment(tmpMolecule);
+        }
+        IAtomContainer tmpAglycone = aSugarRemovalUtil.removeCircularAndLinearSugars(tmpMolecule, true);
+        if (tmpAglycone.isEmpty()) {
+            return null;
+        }
+        return aFingerprinter.getBitFingerprint(tmpAglycone).asBitSet();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns the indexed aglycones most similar to the given query fingerprint.
+     *
+     * @param aQueryFingerprint fingerprint of the query aglycone
+     * @param aNumberOfHits maximum number of hits to return
+     * @param anExcludedDatasetName name of a dataset whose aglycones are not returned, e.g. the dataset of the query,
+     *                              or null to search all datasets
+     * @return hits in descending order of similarity; empty if the query fingerprint is empty
+     * @throws NullPointerException if the query fingerprint is null
+     * @throws IllegalArgumentException if the number of hits is smaller than 1 or the query has bits set beyond the
+     * fingerprint width of the index
+     */
+    public List<Hit> search(BitSet aQueryFingerprint, int aNumberOfHits, String anExcludedDatasetName)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aQueryFingerprint, "Given query fingerprint is 'null'.");
+        if (aNumberOfHits < 1) {
+            throw new IllegalArgumentException("Given number of hits is smaller than 1.");
+        }
+        if (aQueryFingerprint.length() > this.numberOfBits) {
+            throw new IllegalArgumentException("Given query fingerprint has set bits beyond " + this.numberOfBits + " bits.");
+        }
+        int tmpQueryCardinality = aQueryFingerprint.cardinality();
+        if (tmpQueryCardinality == 0) {
+            return Collections.emptyList();
+        }
+        int tmpExcludedDatasetIndex = Arrays.asList(this.datasetNames).indexOf(anExcludedDatasetName);
+        long[] tmpQueryWords = Arrays.copyOf(aQueryFingerprint.toLongArray(), this.wordsPerFingerprint);
+        //head is the worst of the best hits found so far
+        PriorityQueue<int[]> tmpBestEntries = new PriorityQueue<>(aNumberOfHits + 1, (anEntry, anotherEntry) -> {
+            int tmpComparison = Integer.compare(anEntry[1] * anotherEntry[2], anotherEntry[1] * anEntry[2]);
+            return tmpComparison != 0 ? tmpComparison
+                    : Integer.compare(this.insertionRanks[anotherEntry[0]], this.insertionRanks[anEntry[0]]);
+        });
+        int tmpLower = tmpQueryCardinality;
+        int tmpUpper = tmpQueryCardinality + 1;
+        while (tmpLower >= 0 || tmpUpper <= this.numberOfBits) {
+            //bounds of the next buckets below and above the query bit count, as fractions
+            boolean tmpTakeLower = tmpUpper > this.numberOfBits
+                    || (tmpLower >= 0 && (long) tmpLower * tmpUpper >= (long) tmpQueryCardinality * tmpQueryCardinality);
+            int tmpCardinality = tmpTakeLower ? tmpLower-- : tmpUpper++;
+            int tmpBoundNumerator = Math.min(tmpCardinality, tmpQueryCardinality);
+            int tmpBoundDenominator = Math.max(tmpCardinality, tmpQueryCardinality);
+            if (tmpBestEntries.size() == aNumberOfHits) {
+                int[] tmpWorst = tmpBestEntries.peek();
+                if ((long) tmpBoundNumerator * tmpWorst[2] < (long) tmpWorst[1] * tmpBoundDenominator) {
+                    break;
+                }
+            }
+            for (int i = this.bucketStarts[tmpCardinality]; i < this.bucketStarts[tmpCardinality + 1]; i++) {
+                if (this.datasetIndices[i] == tmpExcludedDatasetIndex) {
+                    continue;
+                }
+                int tmpIntersection = 0;
+                int tmpOffset = i * this.wordsPerFingerprint;
+                for (int w = 0; w < this.wordsPerFingerprint; w++) {
+                    tmpIntersection += Long.bitCount(this.words[tmpOffset + w] & tmpQueryWords[w]);
+                }
+                //similarity as exact fraction: intersection / union
+                int[] tmpEntry = {i, tmpIntersection, tmpCardinality + tmpQueryCardinality - tmpIntersection};
+                tmpBestEntries.add(tmpEntry);
+                if (tmpBestEntries.size() > aNumberOfHits) {
+                    tmpBestEntries.poll();
+                }
+            }
+        }
+        List<Hit> tmpHits = new ArrayList<>(tmpBestEntries.size());
+        while (!tmpBestEntries.isEmpty()) {
+            int[] tmpEntry = tmpBestEntries.poll();
+            tmpHits.add(new Hit(this.datasetNames[this.datasetIndices[tmpEntry[0]]], this.ids[tmpEntry[0]],
+                    (double) tmpEntry[1] / tmpEntry[2]));
+        }
+        Collections.reverse(tmpHits);
+        return tmpHits;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of indexed aglycones.
+     *
+     * @return size
+     */
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * Returns the names of the indexed datasets.
+     *
+     * @return dataset names, in the order they were added
+     */
+    public List<String> getDatasetNames() {
+        return List.of(this.datasetNames);
+    }
+
+    /**
+     * Returns the number of bits of a fingerprint.
+     *
+     * @return number of bits
+     */
+    public int getNumberOfBits() {
+        return this.numberOfBits;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public classes">
+    /**
+     * Aglycone found by a search. Instances are immutable.
+     */
+    public static final class Hit {
+        /**
+         * Name of the dataset of the aglycone
+         */
+        private final String datasetName;
+
+        /**
+         * ID of the molecule the aglycone belongs to
+         */
+        private final String id;
+
+        /**
+         * Tanimoto similarity to the query
+         */
+        private final double similarity;
+
+        /**
+         * Constructor.
+         *
+         * @param aDatasetName name of the dataset of the aglycone
+         * @param anID ID of the molecule the aglycone belongs to
+         * @param aSimilarity Tanimoto similarity to the query
+         */
+        public Hit(String aDatasetName, String anID, double aSimilarity) {
+            this.datasetName = aDatasetName;
+            this.id = anID;
+            this.similarity = aSimilarity;
+        }
+
+        /**
+         * Returns the name of the dataset of the aglycone.
+         *
+         * @return dataset name
+         */
+        public String getDatasetName() {
+            return this.datasetName;
+        }
+
+        /**
+         * Returns the ID of the molecule the aglycone belongs to.
+         *
+         * @return ID
+         */
+        public String getID() {
+            return this.id;
+        }
+
+        /**
+         * Returns the Tanimoto similarity to the query.
+         *
+         * @return similarity between 0 and 1
+         */
+        public double getSimilarity() {
+            return this.similarity;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s %s %.4f", this.datasetName, this.id, this.similarity);
+        }
+    }
+
+    /**
+     * Collects the aglycone fingerprints of the datasets for building an index. All methods are synchronized, so
+     * several datasets can be added concurrently; to get a reproducible order of the entries, the fingerprints of one
+     * dataset should be added in a fixed order.
+     */
+    public static final class Builder {
+        /**
+         * Indices of the datasets by their names
+         */
+        private final Map<String, Integer> datasetIndexMap;
+
+        /**
+         * Collected fingerprints
+         */
+        private final PackedFingerprints fingerprints;
+
+        /**
+         * IDs of the collected fingerprints
+         */
+        private final List<String> ids;
+
+        /**
+         * Dataset indices of the collected fingerprints
+         */
+        private int[] datasetIndices;
+
+        /**
+         * Creates an empty builder.
+         *
+         * @param aNumberOfBits number of bits of the fingerprints, rounded up to a multiple of 64
+         * @throws IllegalArgumentException if the number of bits is smaller than 1
+         */
+        public Builder(int aNumberOfBits) throws IllegalArgumentException {
+            this.datasetIndexMap = new LinkedHashMap<>(8, 1.0f);
+            this.fingerprints = new PackedFingerprints(aNumberOfBits, 1024);
+            this.ids = new ArrayList<>(1024);
+            this.datasetIndices = new int[1024];
+        }
+
+        /**
+         * Adds the given aglycone fingerprints of a dataset.
+         *
+         * @param aDatasetName name of the dataset
+         * @param anIDsList IDs of the molecules the aglycones belong to
+         * @param aFingerprintsList aglycone fingerprints, same order as the IDs
+         * @throws NullPointerException if a parameter or a fingerprint is null
+         * @throws IllegalArgumentException if the lists differ in size or a fingerprint has bits set beyond the
+         * fingerprint width
+         */
+        public synchronized void add(String aDatasetName, List<String> anIDsList, List<BitSet> aFingerprintsList)
+                throws NullPointerException, IllegalArgumentException {
+            Objects.requireNonNull(aDatasetName, "Given dataset name is 'null'.");
+            Objects.requireNonNull(anIDsList, "Given IDs list is 'null'.");
+            Objects.requireNonNull(aFingerprintsList, "Given fingerprints list is 'null'.");
+            if (anIDsList.size() != aFingerprintsList.size()) {
+                throw new IllegalArgumentException("Given lists differ in size.");
+            }
+            int tmpDatasetIndex = this.datasetIndexMap.computeIfAbsent(aDatasetName, aName -> this.datasetIndexMap.size());
+            for (int i = 0; i < anIDsList.size(); i++) {
+                int tmpIndex = this.fingerprints.add(aFingerprintsList.get(i));
+                if (tmpIndex == this.datasetIndices.length) {
+                    this.datasetIndices = Arrays.copyOf(this.datasetIndices, this.datasetIndices.length * 2);
+                }
+                this.datasetIndices[tmpIndex] = tmpDatasetIndex;
+                this.ids.add(anIDsList.get(i));
+            }
+        }
+
+        /**
+         * Adds all fingerprints of the given aglycone store as dataset.
+         *
+         * @param aDatasetName name of the dataset
+         * @param anAglyconeStore store of the aglycone fingerprints of the dataset
+         * @throws NullPointerException if a parameter is null
+         * @throws IllegalArgumentException if the store has a different fingerprint width
+         */
+        public synchronized void addAll(String aDatasetName, FingerprintStore anAglyconeStore)
+                throws NullPointerException, IllegalArgumentException {
+            Objects.requireNonNull(anAglyconeStore, "Given store is 'null'.");
+            if (anAglyconeStore.getNumberOfBits() != this.fingerprints.getNumberOfBits()) {
+                throw new IllegalArgumentException("Given store has a different fingerprint width.");
+            }
+            List<String> tmpIDs = new ArrayList<>(anAglyconeStore.size());
+            List<BitSet> tmpFingerprints = new ArrayList<>(anAglyconeStore.size());
+            for (int i = 0; i < anAglyconeStore.size(); i++) {
+                tmpIDs.add(anAglyconeStore.getID(i));
+                tmpFingerprints.add(anAglyconeStore.get(i));
+            }
+            this.add(aDatasetName, tmpIDs, tmpFingerprints);
+        }
+
+        /**
+         * Builds the index of all fingerprints added so far.
+         *
+         * @return new index
+         */
+        public synchronized AglyconeSimilarityIndex build() {
+            return new AglyconeSimilarityIndex(this);
+        }
+
+        /**
+         * Returns the number of bits of the fingerprints.
+         *
+         * @return number of bits, a multiple of 64
+         */
+        public int getNumberOfBits() {
+            return this.fingerprints.getNumberOfBits();
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,329 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps account of the molecules that failed during a run. Instead of logging a full stack trace for every failure,
+ * failures are counted per processing stage and exception type, only the first few stack traces are kept (and
+ * logged), and the ID and input of every failed molecule are written to a reject file. The reject file is a SMILES file
+ * in the format read by SmilesFileMoleculeSource (SMILES code, ID, stage, and exception type, separated by spaces), so
+ * the failed molecules can be replayed with the runner. All recording methods are thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class AnalysisErrorAccountant {
+    //<editor-fold desc="Enum Stage">
+    /**
+     * Processing stages in which a molecule can fail.
+     */
+    public enum Stage {
+        /**
+         * Reading the entry from the molecule source
+         */
+        READ,
+
+        /**
+         * Parsing the SMILES code into a molecule
+         */
+        PARSE,
+
+        /**
+         * Normalising the parsed molecule
+         */
+        NORMALISE,
+
+        /**
+         * Running an analysis on the molecule
+         */
+        ANALYSE,
+
+        /**
+         * Writing the results of an analysis
+         */
+        WRITE;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default number of full stack traces that are kept and logged
+     */
+    public static final int DEFAULT_MAX_NUMBER_OF_SAMPLED_TRACES = 20;
+
+    /**
+     * Name of the reject file
+     */
+    public static final String REJECT_FILE_NAME = "Rejects.txt";
+
+    /**
+     * Name of the file the error summary is written to
+     */
+    public static final String SUMMARY_FILE_NAME = "Errors.txt";
+
+    /**
+     * Placeholder written to the reject file if the input of a failed molecule is unknown
+     */
+    public static final String UNKNOWN_INPUT = "*";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(AnalysisErrorAccountant.class.getName());
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Failure counts per stage and exception class name
+     */
+    private final EnumMap<Stage, TreeMap<String, Integer>> counters;
+
+    /**
+     * Formatted stack traces of the first failures
+     */
+    private final List<String> sampledTraces;
+
+    /**
+     * Maximum number of stack traces that are kept
+     */
+    private final int maxNumberOfSampledTraces;
+
+    /**
+     * Folder the reject file and summary are written to, ending with a file separator; null if nothing is written
+     */
+    private final String outputFolderPath;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Writer of the reject file, opened with the first failure
+     */
+    private PrintWriter rejectWriter;
+
+    /**
+     * Total number of recorded failures
+     */
+    private int totalCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates an accountant that writes the reject file and the summary into the given folder.
+     *
+     * @param anOutputFolderPath folder for the reject file and summary, ending with a file separator; may be null if
+     *                           nothing should be written
+     * @param aMaxNumberOfSampledTraces number of full stack traces to keep and log
+     * @throws IllegalArgumentException if the number of sampled traces is negative
+     */
+    public AnalysisErrorAccountant(String anOutputFolderPath, int aMaxNumberOfSampledTraces) throws IllegalArgumentException {
+        if (aMaxNumberOfSampledTraces < 0) {
+            throw new IllegalArgumentException("Given maximum number of sampled traces is negative.");
+        }
+        this.outputFolderPath = anOutputFolderPath;
+        this.maxNumberOfSampledTraces = aMaxNumberOfSampledTraces;
+        this.counters = new EnumMap<>(Stage.class);
+        this.sampledTraces = new ArrayList<>(aMaxNumberOfSampledTraces);
+        this.totalCounter = 0;
+    }
+
+    /**
+     * Creates an accountant that writes the reject file and the summary into the given folder and keeps the default
+     * number of stack traces.
+     *
+     * @param anOutputFolderPath folder for the reject file and summary, ending with a file separator; may be null if
+     *                           nothing should be written
+     */
+    public AnalysisErrorAccountant(String anOutputFolderPath) {
+        this(anOutputFolderPath, AnalysisErrorAccountant.DEFAULT_MAX_NUMBER_OF_SAMPLED_TRACES);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Records a failure of the given molecule in the given stage. The stack trace is only formatted and logged if
+     * the sample is not full yet.
+     *
+     * @param aStage stage in which the failure occurred
+     * @param aRecord the molecule that failed, may be null if the entry could not be read
+     * @param anException the cause of the failure
+     */
+    public synchronized void record(Stage aStage, MoleculeRecord aRecord, Exception anException) {
+        Objects.requireNonNull(aStage, "Given stage is 'null'.");
+        Objects.requireNonNull(anException, "Given exception is 'null'.");
+        String tmpExceptionType = anException.getClass().getName();
+        this.counters.computeIfAbsent(aStage, key -> new TreeMap<>()).merge(tmpExceptionType, 1, Integer::sum);
+        this.totalCounter++;
+        String tmpID = Objects.isNull(aRecord) ? AnalysisErrorAccountant.UNKNOWN_INPUT : aRecord.getID();
+        if (this.sampledTraces.size() < this.maxNumberOfSampledTraces) {
+            StringWriter tmpStringWriter = new StringWriter();
+            anException.printStackTrace(new PrintWriter(tmpStringWriter));
+            this.sampledTraces.add(aStage + " " + tmpID + ": " + tmpStringWriter);
+            AnalysisErrorAccountant.LOGGER.log(Level.SEVERE, aStage + " failed for " + tmpID, anException);
+        }
+        if (Objects.isNull(this.outputFolderPath) || Objects.isNull(aRecord)) {
+            return;
+        }
+        try {
+            if (Objects.isNull(this.rejectWriter)) {
+                this.rejectWriter = new PrintWriter(new BufferedWriter(new FileWriter(
+                        this.outputFolderPath + AnalysisErrorAccountant.REJECT_FILE_NAME)));
+                this.rejectWriter.println("SMILES ID STAGE EXCEPTION");
+            }
+            this.rejectWriter.println(AnalysisErrorAccountant.getInput(aRecord) + " " + tmpID.replace(' ', '_') + " "
+                    + aStage + " " + anException.getClass().getSimpleName());
+        } catch (IOException anIOException) {
+            AnalysisErrorAccountant.LOGGER.log(Level.WARNING, "Reject file could not be written: " + anIOException);
+        }
+    }
+
+    /**
+     * Returns the number of failures recorded in the given stage.
+     *
+     * @param aStage the stage
+     * @return failure count
+     */
+    public synchronized int getCount(Stage aStage) {
+        TreeMap<String, Integer> tmpCountsByType = this.counters.get(aStage);
+        if (Objects.isNull(tmpCountsByType)) {
+            return 0;
+        }
+        int tmpCount = 0;
+        for (int tmpTypeCount : tmpCountsByType.values()) {
+            tmpCount += tmpTypeCount;
+        }
+        return tmpCount;
+    }
+
+    /**
+     * Returns the number of failures recorded in the given stage with the given exception type.
+     *
+     * @param aStage the stage
+     * @param anExceptionClass the exception type
+     * @return failure count
+     */
+    public synchronized int getCount(Stage aStage, Class<? extends Exception> anExceptionClass) {
+        TreeMap<String, Integer> tmpCountsByType = this.counters.get(aStage);
+        if (Objects.isNull(tmpCountsByType)) {
+            return 0;
+        }
+        return tmpCountsByType.getOrDefault(anExceptionClass.getName(), 0);
+    }
+
+    /**
+     * Returns the total number of recorded failures.
+     *
+     * @return failure count
+     */
+    public synchronized int getTotalCount() {
+        return this.totalCounter;
+    }
+
+    /**
+     * Returns a copy of the formatted stack traces that were kept.
+     *
+     * @return sampled traces
+     */
+    public synchronized List<String> getSampledTraces() {
+        return new ArrayList<>(this.sampledTraces);
+    }
+
+    /**
+     * Prints the failure counts to console, writes them and the sampled stack traces to the summary file (if an
+     * output folder was given), and closes the reject file.
+     *
+     * @throws IOException if the summary file cannot be written
+     */
+    public synchronized void writeSummaryAndClose() throws IOException {
+        System.out.println("Failures counter: " + this.totalCounter);
+        List<String> tmpLines = new ArrayList<>(this.counters.size() * 2 + 1);
+        tmpLines.add("Stage" + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR + "Exception"
+                + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR + "Count");
+        for (Map.Entry<Stage, TreeMap<String, Integer>> tmpStageEntry : this.counters.entrySet()) {
+            for (Map.Entry<String, Integer> tmpTypeEntry : tmpStageEntry.getValue().entrySet()) {
+                String tmpLine = tmpStageEntry.getKey() + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR
+                        + tmpTypeEntry.getKey() + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR + tmpTypeEntry.getValue();
+                System.out.println(tmpLine);
+                tmpLines.add(tmpLine);
+            }
+        }
+        if (!Objects.isNull(this.rejectWriter)) {
+            this.rejectWriter.flush();
+            this.rejectWriter.close();
+            this.rejectWriter = null;
+        }
+        if (Objects.isNull(this.outputFolderPath)) {
+            return;
+        }
+        try (PrintWriter tmpSummaryWriter = new PrintWriter(new FileWriter(
+                new File(this.outputFolderPath + AnalysisErrorAccountant.SUMMARY_FILE_NAME)))) {
+            for (String tmpLine : tmpLines) {
+                tmpSummaryWriter.println(tmpLine);
+            }
+            tmpSummaryWriter.println();
+            tmpSummaryWriter.println("Sampled stack traces (" + this.sampledTraces.size() + " of " + this.totalCounter + "):");
+            for (String tmpTrace : this.sampledTraces) {
+                tmpSummaryWriter.println(tmpTrace);
+            }
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Returns the SMILES code of the given record for the reject file, generating it if the record was given as atom
+     * container.
+     */
+    private static String getInput(MoleculeRecord aRecord) {
+        if (aRecord.isGivenAsSmilesCode()) {
+            return aRecord.getSmilesCode();
+        }
+        try {
+            return new SmilesGenerator(SmiFlavor.Isomeric).create(aRecord.getAtomContainer());
+        } catch (Exception anException) {
+            return AnalysisErrorAccountant.UNKNOWN_INPUT;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.util.Objects;
+
+/**
+ * Molecule source iterating an in-memory array of ID and SMILES code pairs, e.g. for warm-up runs and small requests.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class ArrayMoleculeSource implements MoleculeSource {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Name of this source
+     */
+    private final String name;
+
+    /**
+     * Pairs of ID and SMILES code
+     */
+    private final String[][] idAndSmilesCodePairs;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Index of the next pair to return
+     */
+    private int nextIndex;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a source iterating the given pairs of ID and SMILES code. The array is not copied.
+     *
+     * @param aName name of the source
+     * @param anIDAndSmilesCodeArray array of pairs, ID at index 0 and SMILES code at index 1
+     * @throws NullPointerException if a parameter is null
+     */
+    public ArrayMoleculeSource(String aName, String[][] anIDAndSmilesCodeArray) throws NullPointerException {
+        Objects.requireNonNull(aName, "Given name is 'null'.");
+        Objects.requireNonNull(anIDAndSmilesCodeArray, "Given array is 'null'.");
+        this.name = aName;
+        this.idAndSmilesCodePairs = anIDAndSmilesCodeArray;
+        this.nextIndex = 0;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        return this.nextIndex < this.idAndSmilesCodePairs.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MoleculeRecord next() throws IllegalArgumentException {
+        if (!this.hasNext()) {
+            throw new IllegalStateException("No more molecules in " + this.name);
+        }
+        String[] tmpPair = this.idAndSmilesCodePairs[this.nextIndex++];
+        if (Objects.isNull(tmpPair) || tmpPair.length < 2 || Objects.isNull(tmpPair[0]) || Objects.isNull(tmpPair[1])) {
+            throw new IllegalArgumentException("Entry " + (this.nextIndex - 1) + " does not contain ID and SMILES code.");
+        }
+        return new MoleculeRecord(tmpPair[0], tmpPair[1], 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        //nothing to release
+    }
+    //</editor-fold>
+}
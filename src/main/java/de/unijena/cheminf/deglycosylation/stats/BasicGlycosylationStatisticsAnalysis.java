@@ -0,0 +1,410 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * General glycosylation statistics, as calculated for the ZINC, ChEMBL, and DrugBank datasets in
+ * GlycosylationStatisticsTest: How many molecules contain (terminal/non-terminal)(circular/linear/both) sugars and how
+ * many molecules consist only of sugar units. All SRU settings are left in default. All statistics are printed to
+ * console and compiled in the "Output.txt" file; the sugar-containing molecules are additionally written to
+ * "sugar-containing_molecules.txt" as SMILES codes.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class BasicGlycosylationStatisticsAnalysis extends AbstractGlycosylationAnalysis {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this analysis on the command line
+     */
+    public static final String NAME = "basics";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Sugar Removal Utility instance of every thread running detect(), with all settings in default
+     */
+    private final ThreadLocal<RecordingSugarRemovalUtility> sugarRemovalUtil;
+
+    /**
+     * Generator of the SMILES codes of sugar-containing molecules, stateless
+     */
+    private final SmilesGenerator smiGen;
+
+    /**
+     * IDs of all sugar-containing molecules
+     */
+    private final SpillableIDList hasAnyTypeOfSugarsIDs;
+
+    /**
+     * IDs of all circular-sugar-containing molecules
+     */
+    private final SpillableIDList hasCircularSugarsIDs;
+
+    /**
+     * IDs of all molecules containing terminal circular sugars
+     */
+    private final SpillableIDList hasTerminalCircularSugarsIDs;
+
+    /**
+     * IDs of all molecules containing non-terminal circular sugars
+     */
+    private final SpillableIDList hasNonTerminalCircularSugarsIDs;
+
+    /**
+     * IDs of all linear-sugar-containing molecules
+     */
+    private final SpillableIDList hasLinearSugarsIDs;
+
+    /**
+     * IDs of all molecules containing terminal linear sugars
+     */
+    private final SpillableIDList hasTerminalLinearSugarsIDs;
+
+    /**
+     * IDs of all molecules containing non-terminal linear sugars
+     */
+    private final SpillableIDList hasNonTerminalLinearSugarsIDs;
+
+    /**
+     * IDs of all molecules containing circular and linear sugars
+     */
+    private final SpillableIDList hasCircularAndLinearSugarsIDs;
+
+    /**
+     * IDs of all molecules that are basically sugars, i.e. are empty after sugar removal
+     */
+    private final SpillableIDList basicallyASugarIDs;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Writer of the sugar-containing molecules file
+     */
+    private PrintWriter sugarContainingMoleculesWriter;
+
+    //counters of the compiled statistics, see writeResults()
+    private int moleculesCounter;
+
+    private int hasAnyTypeOfSugarsCounter;
+
+    private int hasNoSugarsCounter;
+
+    private int hasCircularSugarsCounter;
+
+    private int hasTerminalCircularSugarsCounter;
+
+    private int hasNonTerminalCircularSugarsCounter;
+
+    private int hasTerminalAndNonTerminalCircularSugarsCounter;
+
+    private int hasLinearSugarsCounter;
+
+    private int hasTerminalLinearSugarsCounter;
+
+    private int hasNonTerminalLinearSugarsCounter;
+
+    private int hasTerminalAndNonTerminalLinearSugarsCounter;
+
+    private int hasCircularAndLinearSugarsCounter;
+
+    private int basicallyASugarCounter;
+
+    private int totalNrOfStereoIsomersSRUPos;
+
+    private int totalNrOfStereoIsomersSRUNeg;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Sole constructor of this class. All SRU settings are in default.
+     */
+    public BasicGlycosylationStatisticsAnalysis() {
+        this.sugarRemovalUtil = ThreadLocal.withInitial(() -> {
+            RecordingSugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(
+                    DefaultChemObjectBuilder.getInstance());
+            tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
+            return tmpSugarRemovalUtil;
+        });
+        this.smiGen = new SmilesGenerator(SmiFlavor.Unique);
+        this.hasAnyTypeOfSugarsIDs = this.createIDList("hasAnyTypeOfSugarsIDs");
+        this.hasCircularSugarsIDs = this.createIDList("hasCircularSugarsIDs");
+        this.hasTerminalCircularSugarsIDs = this.createIDList("hasTerminalCircularSugarsIDs");
+        this.hasNonTerminalCircularSugarsIDs = this.createIDList("hasNonTerminalCircularSugarsIDs");
+        this.hasLinearSugarsIDs = this.createIDList("hasLinearSugarsIDs");
+        this.hasTerminalLinearSugarsIDs = this.createIDList("hasTerminalLinearSugarsIDs");
+        this.hasNonTerminalLinearSugarsIDs = this.createIDList("hasNonTerminalLinearSugarsIDs");
+        this.hasCircularAndLinearSugarsIDs = this.createIDList("hasCircularAndLinearSugarsIDs");
+        this.basicallyASugarIDs = this.createIDList("basicallyASugarIDs");
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return BasicGlycosylationStatisticsAnalysis.NAME;
+    }
+
+    /**
+     * Returns a normaliser selecting the biggest fragment of disconnected molecules, as done in the tests.
+     *
+     * @return normaliser selecting the biggest fragment
+     */
+    @Override
+    public MoleculeNormalizer getRequiredNormalizer() {
+        return MoleculeNormalizer.BIGGEST_FRAGMENT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize(String anOutputFolderPath) throws IOException {
+        super.initialize(anOutputFolderPath);
+        this.sugarContainingMoleculesWriter = this.initializeOutputFile("sugar-containing_molecules.txt");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void analyse(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        this.detect(aRecord, aMolecule).apply();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StatisticsUpdate detect(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = this.sugarRemovalUtil.get();
+        String tmpID = aRecord.getID();
+        int tmpNrOfStereoIsomers = aRecord.getNrOfStereoIsomers();
+        //the biggest fragment was already selected by the normaliser
+        IAtomContainer tmpMolecule = aMolecule;
+        //note: per default, circular sugars having too few exocyclic oxygen atoms attached are not detected/removed/counted!
+        // note also: per default, linear sugars in rings, those too small or too big, and acidic linear sugars are not detected/removed/counted!
+        IAtomContainer tmpDeglycosylatedClone = tmpSugarRemovalUtil.removeCircularAndLinearSugars(tmpMolecule, true);
+        boolean tmpHasAnyTypeOfSugar = tmpDeglycosylatedClone.getProperty(SugarRemovalUtility.CONTAINS_SUGAR_PROPERTY_KEY);
+        boolean tmpHasAnyCircularSugar = tmpDeglycosylatedClone.getProperty(SugarRemovalUtility.CONTAINS_CIRCULAR_SUGAR_PROPERTY_KEY);
+        boolean tmpHasAnyLinearSugar = tmpDeglycosylatedClone.getProperty(SugarRemovalUtility.CONTAINS_LINEAR_SUGAR_PROPERTY_KEY);
+        //all detections run before any statistic is updated, see GlycosylationAnalysis.analyse()
+        //terminal and non-terminal
+        int tmpNumberOfCircularSugarMoieties = tmpHasAnyCircularSugar
+                ? tmpSugarRemovalUtil.getCircularSugarCandidates(tmpMolecule.clone()).size() : 0;
+        //note: circular moieties that become terminal after removal of a linear moiety are not counted here!
+        // -1 for the deglycosylated core at the beginning of the list
+        int tmpNumberOfTerminalCircularSugarMoieties = tmpHasAnyCircularSugar
+                ? tmpSugarRemovalUtil.removeAndReturnCircularSugars(tmpMolecule, true).size() - 1 : 0;
+        //terminal and non-terminal
+        int tmpNumberOfLinearSugarMoieties = tmpHasAnyLinearSugar
+                ? tmpSugarRemovalUtil.getLinearSugarCandidates(tmpMolecule.clone()).size() : 0;
+        //note:linear moieties that become terminal after removal of a circular moiety are not counted here!
+        // -1 for the deglycosylated core at the beginning of the list
+        int tmpNumberOfTerminalLinearSugarMoieties = tmpHasAnyLinearSugar
+                ? tmpSugarRemovalUtil.removeAndReturnLinearSugars(tmpMolecule, true).size() - 1 : 0;
+        if (!tmpHasAnyTypeOfSugar) {
+            return () -> {
+                this.moleculesCounter++;
+                this.hasNoSugarsCounter++;
+                this.totalNrOfStereoIsomersSRUNeg += tmpNrOfStereoIsomers;
+            };
+        }
+        String tmpSmilesCode = this.smiGen.create(tmpMolecule);
+        return () -> {
+            this.moleculesCounter++;
+            this.hasAnyTypeOfSugarsCounter++;
+            this.hasAnyTypeOfSugarsIDs.add(tmpID);
+            this.totalNrOfStereoIsomersSRUPos += tmpNrOfStereoIsomers;
+            if (tmpHasAnyCircularSugar) {
+                this.hasCircularSugarsCounter++;
+                this.hasCircularSugarsIDs.add(tmpID);
+                int tmpNumberOfNonTerminalCircularSugarMoieties = tmpNumberOfCircularSugarMoieties - tmpNumberOfTerminalCircularSugarMoieties;
+                if (tmpNumberOfTerminalCircularSugarMoieties > 0) {
+                    this.hasTerminalCircularSugarsCounter++;
+                    this.hasTerminalCircularSugarsIDs.add(tmpID);
+                }
+                if (tmpNumberOfNonTerminalCircularSugarMoieties > 0) {
+                    this.hasNonTerminalCircularSugarsCounter++;
+                    this.hasNonTerminalCircularSugarsIDs.add(tmpID);
+                }
+                if (tmpNumberOfTerminalCircularSugarMoieties > 0 && tmpNumberOfNonTerminalCircularSugarMoieties > 0) {
+                    this.hasTerminalAndNonTerminalCircularSugarsCounter++;
+                }
+            }
+            if (tmpHasAnyLinearSugar) {
+                this.hasLinearSugarsCounter++;
+                this.hasLinearSugarsIDs.add(tmpID);
+                int tmpNumberOfNonTerminalLinearSugarMoieties = tmpNumberOfLinearSugarMoieties - tmpNumberOfTerminalLinearSugarMoieties;
+                if (tmpNumberOfTerminalLinearSugarMoieties > 0) {
+                    this.hasTerminalLinearSugarsCounter++;
+                    this.hasTerminalLinearSugarsIDs.add(tmpID);
+                }
+                if (tmpNumberOfNonTerminalLinearSugarMoieties > 0) {
+                    this.hasNonTerminalLinearSugarsCounter++;
+                    this.hasNonTerminalLinearSugarsIDs.add(tmpID);
+                }
+                if (tmpNumberOfTerminalLinearSugarMoieties > 0 && tmpNumberOfNonTerminalLinearSugarMoieties > 0) {
+                    this.hasTerminalAndNonTerminalLinearSugarsCounter++;
+                }
+            }
+            if (tmpHasAnyCircularSugar && tmpHasAnyLinearSugar) {
+                this.hasCircularAndLinearSugarsCounter++;
+                this.hasCircularAndLinearSugarsIDs.add(tmpID);
+            }
+            if (tmpDeglycosylatedClone.isEmpty()) {
+                this.basicallyASugarCounter++;
+                this.basicallyASugarIDs.add(tmpID);
+            }
+            this.sugarContainingMoleculesWriter.println(tmpSmilesCode + " " + tmpID);
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeResults() throws IOException {
+        this.printAndWrite("Molecules counter: " + this.moleculesCounter);
+        this.printAndWrite("Sugar-containing molecules counter: " + this.hasAnyTypeOfSugarsCounter);
+        this.printAndWrite(AbstractGlycosylationAnalysis.getPercentage(this.hasAnyTypeOfSugarsCounter, this.moleculesCounter)
+                + " % of molecules contain sugars.");
+        this.printAndWrite("No sugar containing molecules counter: " + this.hasNoSugarsCounter);
+        this.printAndWrite("Circular-sugar-containing molecules counter: " + this.hasCircularSugarsCounter);
+        this.printAndWrite(AbstractGlycosylationAnalysis.getPercentage(this.hasCircularSugarsCounter, this.moleculesCounter)
+                + " % of molecules contain circular sugars.");
+        this.printAndWrite("Terminal circular sugars containing molecules counter: " + this.hasTerminalCircularSugarsCounter);
+        this.printAndWrite("Non-terminal circular sugar containing molecules counter: " + this.hasNonTerminalCircularSugarsCounter);
+        this.printAndWrite("Terminal and non-terminal circular sugar containing molecules counter: "
+                + this.hasTerminalAndNonTerminalCircularSugarsCounter);
+        this.printAndWrite("Linear-sugar-containing molecules counter: " + this.hasLinearSugarsCounter);
+        this.printAndWrite(AbstractGlycosylationAnalysis.getPercentage(this.hasLinearSugarsCounter, this.moleculesCounter)
+                + " % of molecules contain linear sugars.");
+        this.printAndWrite("Terminal linear sugars containing molecules counter: " + this.hasTerminalLinearSugarsCounter);
+        this.printAndWrite("Non-terminal linear sugar containing molecules counter: " + this.hasNonTerminalLinearSugarsCounter);
+        this.printAndWrite("Terminal and non-terminal linear sugar containing molecules counter: "
+                + this.hasTerminalAndNonTerminalLinearSugarsCounter);
+        this.printAndWrite("Molecules containing both circular and linear sugars counter: " + this.hasCircularAndLinearSugarsCounter);
+        this.printAndWrite("Basically a sugar counter: " + this.basicallyASugarCounter);
+        this.printAndWrite("Total number of stereo isomers of molecules without sugars in the original dataset: "
+                + this.totalNrOfStereoIsomersSRUNeg);
+        this.printAndWrite("Stereo isomers per molecule on average: "
+                + ((double) this.totalNrOfStereoIsomersSRUNeg / (double) this.hasNoSugarsCounter));
+        this.printAndWrite("Total number of stereo isomers of molecules with sugars in the original dataset: "
+                + this.totalNrOfStereoIsomersSRUPos);
+        this.printAndWrite("Stereo isomers per molecule on average: "
+                + ((double) this.totalNrOfStereoIsomersSRUPos / (double) this.hasAnyTypeOfSugarsCounter));
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Sugar-containing molecules: ", this.hasAnyTypeOfSugarsIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Circular-sugar-containing molecules: ", this.hasCircularSugarsIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Terminal circular sugar containing molecules: ", this.hasTerminalCircularSugarsIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Non-terminal circular sugar containing molecules: ", this.hasNonTerminalCircularSugarsIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Linear-sugar-containing molecules: ", this.hasLinearSugarsIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Terminal linear sugars containing molecules: ", this.hasTerminalLinearSugarsIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Non-terminal linear sugar containing molecules: ", this.hasNonTerminalLinearSugarsIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Molecules containing both circular and linear sugars: ", this.hasCircularAndLinearSugarsIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Basically a sugar: ", this.basicallyASugarIDs);
+        this.closeOutputFile();
+        this.sugarContainingMoleculesWriter.flush();
+        this.sugarContainingMoleculesWriter.close();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of analysed molecules.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the number of molecules that contain any type of sugar.
+     *
+     * @return sugar-containing molecules counter
+     */
+    public int getHasAnyTypeOfSugarsCounter() {
+        return this.hasAnyTypeOfSugarsCounter;
+    }
+
+    /**
+     * Returns the number of molecules that contain no sugars.
+     *
+     * @return no sugar containing molecules counter
+     */
+    public int getHasNoSugarsCounter() {
+        return this.hasNoSugarsCounter;
+    }
+
+    /**
+     * Returns the number of molecules that contain circular sugars.
+     *
+     * @return circular-sugar-containing molecules counter
+     */
+    public int getHasCircularSugarsCounter() {
+        return this.hasCircularSugarsCounter;
+    }
+
+    /**
+     * Returns the number of molecules that contain linear sugars.
+     *
+     * @return linear-sugar-containing molecules counter
+     */
+    public int getHasLinearSugarsCounter() {
+        return this.hasLinearSugarsCounter;
+    }
+
+    /**
+     * Returns the number of molecules that are basically sugars, i.e. are empty after sugar removal.
+     *
+     * @return basically a sugar counter
+     */
+    public int getBasicallyASugarCounter() {
+        return this.basicallyASugarCounter;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,266 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.ringsearch.RingSearch;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sugar Removal Utility that analyses arrays of molecules at once and returns the results as a
+ * {@link SugarDetectionBatch}, i.e. as arrays of flags and counts instead of one result object per molecule. Every
+ * molecule is analysed like in MoleculeGlycosylationResult.compute(), i.e. only its biggest fragment, but the
+ * O-glycosidic bond setting is switched only twice per batch instead of twice per sugar-containing molecule, since
+ * the circular sugars with glycosidic bond are counted in a second pass over the batch. The circular sugar candidates
+ * are additionally annotated with their exocyclic oxygen atom count and whether they have a glycosidic bond, both
+ * taken from the same detection run that counts them. Molecules with a spiro atom are flagged, whether or not it is
+ * part of a sugar.
+ * <br>Like every SRU, instances are not thread-safe. To analyse a batch in parallel, split it into ranges and analyse
+ * every range with its own instance; the results of the ranges are independent of each other.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class BatchSugarRemovalUtility extends SugarRemovalUtility {
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(BatchSugarRemovalUtility.class.getName());
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Sole constructor of this class. All settings are in default.
+     *
+     * @param aBuilder IChemObjectBuilder for i.a. parsing SMILES strings of sugar patterns into atom containers
+     * @throws NullPointerException if the given builder is null
+     */
+    public BatchSugarRemovalUtility(IChemObjectBuilder aBuilder) throws NullPointerException {
+        super(aBuilder);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Analyses all given molecules, see detect(IAtomContainer[], int, int).
+     *
+     * @param aMolecules molecules to analyse, may contain null elements
+     * @return results of the batch, in the order of the given array
+     * @throws NullPointerException if the given array is null
+     */
+    public SugarDetectionBatch detect(IAtomContainer[] aMolecules) throws NullPointerException {
+        Objects.requireNonNull(aMolecules, "Given molecules array is 'null'.");
+        return this.detect(aMolecules, 0, aMolecules.length);
+    }
+
+    /**
+     * Analyses the molecules in the given range of the array in the current settings of this instance. The
+     * circular sugars with glycosidic bond are counted with the O-glycosidic bond setting enabled, which is reset to
+     * its previous value afterwards. Molecules that are null or cannot be analysed are flagged as failed with all
+     * counts zero. The given molecules are not altered apart from the atom index properties the SRU sets.
+     *
+     * @param aMolecules molecules to analyse, may contain null elements
+     * @param aFrom index of the first molecule to analyse (inclusive)
+     * @param aTo index of the last molecule to analyse (exclusive)
+     * @return results of the range, with index 0 for the molecule at aFrom
+     * @throws NullPointerException if the given array is null
+     * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+     */
+    public SugarDetectionBatch detect(IAtomContainer[] aMolecules, int aFrom, int aTo)
+            throws NullPointerException, IndexOutOfBoundsException {
+        Objects.requireNonNull(aMolecules, "Given molecules array is 'null'.");
+        Objects.checkFromToIndex(aFrom, aTo, aMolecules.length);
+        int tmpSize = aTo - aFrom;
+        byte[] tmpFlags = new byte[tmpSize];
+        int[] tmpCircularSugarCounts = new int[tmpSize];
+        int[] tmpTerminalCircularSugarCounts = new int[tmpSize];
+        int[] tmpLinearSugarCounts = new int[tmpSize];
+        int[] tmpTerminalLinearSugarCounts = new int[tmpSize];
+        int[] tmpCircularSugarsWithGlycosidicBondCounts = new int[tmpSize];
+        int[] tmpHeavyAtomCounts = new int[tmpSize];
+        int[] tmpDeglycosylatedHeavyAtomCounts = new int[tmpSize];
+        int[] tmpCandidatesOffsets = new int[tmpSize + 1];
+        int tmpCandidatesCapacity = Math.max(16, tmpSize * 2);
+        byte[] tmpCandidateFlags = new byte[tmpCandidatesCapacity];
+        int[] tmpCandidateAtomCounts = new int[tmpCandidatesCapacity];
+        int[] tmpCandidateExocyclicOxygenCounts = new int[tmpCandidatesCapacity];
+        int tmpCandidatesCount = 0;
+        //analysed fragments of the molecules with circular sugars, for the second pass
+        IAtomContainer[] tmpCircularSugarMolecules = new IAtomContainer[tmpSize];
+        //first pass: candidates, terminal moieties, and deglycosylation in the current settings
+        for (int i = 0; i < tmpSize; i++) {
+            tmpCandidatesOffsets[i] = tmpCandidatesCount;
+            IAtomContainer tmpMolecule = aMolecules[aFrom + i];
+            if (Objects.isNull(tmpMolecule)) {
+                tmpFlags[i] = SugarDetectionBatch.FAILED_FLAG;
+                continue;
+            }
+            try {
+                if (!ConnectivityChecker.isConnected(tmpMolecule)) {
+                    tmpMolecule = SugarRemovalUtility.selectBiggestUnconnectedFragment(tmpMolecule);
+                }
+                tmpHeavyAtomCounts[i] = AtomContainerManipulator.getHeavyAtoms(tmpMolecule).size();
+                byte tmpMoleculeFlags = BatchSugarRemovalUtility.hasSpiroAtom(tmpMolecule)
+                        ? SugarDetectionBatch.CONTAINS_SPIRO_ATOM_FLAG : 0;
+                IAtomContainer tmpCircularClone = tmpMolecule.clone();
+                List<IAtomContainer> tmpCircularCandidates = this.getCircularSugarCandidates(tmpCircularClone);
+                List<IAtomContainer> tmpLinearCandidates = this.getLinearSugarCandidates(tmpMolecule.clone());
+                int tmpNewCandidatesCount = tmpCandidatesCount + tmpCircularCandidates.size() + tmpLinearCandidates.size();
+                if (tmpNewCandidatesCount > tmpCandidatesCapacity) {
+                    tmpCandidatesCapacity = Math.max(tmpNewCandidatesCount, tmpCandidatesCapacity * 2);
+                    tmpCandidateFlags = Arrays.copyOf(tmpCandidateFlags, tmpCandidatesCapacity);
+                    tmpCandidateAtomCounts = Arrays.copyOf(tmpCandidateAtomCounts, tmpCandidatesCapacity);
+                    tmpCandidateExocyclicOxygenCounts = Arrays.copyOf(tmpCandidateExocyclicOxygenCounts,
+                            tmpCandidatesCapacity);
+                }
+                for (IAtomContainer tmpCandidate : tmpCircularCandidates) {
+                    tmpCandidateFlags[tmpCandidatesCount] = this.hasGlycosidicBond(tmpCandidate, tmpCircularClone)
+                            ? SugarDetectionBatch.CIRCULAR_CANDIDATE_FLAG | SugarDetectionBatch.GLYCOSIDIC_BOND_CANDIDATE_FLAG
+                            : SugarDetectionBatch.CIRCULAR_CANDIDATE_FLAG;
+                    tmpCandidateAtomCounts[tmpCandidatesCount] = tmpCandidate.getAtomCount();
+                    tmpCandidateExocyclicOxygenCounts[tmpCandidatesCount] = this.getExocyclicOxygenAtomCount(
+                            tmpCandidate, tmpCircularClone);
+                    tmpCandidatesCount++;
+                }
+                for (IAtomContainer tmpCandidate : tmpLinearCandidates) {
+                    tmpCandidateFlags[tmpCandidatesCount] = 0;
+                    tmpCandidateAtomCounts[tmpCandidatesCount] = tmpCandidate.getAtomCount();
+                    tmpCandidateExocyclicOxygenCounts[tmpCandidatesCount] = -1;
+                    tmpCandidatesCount++;
+                }
+                tmpCircularSugarCounts[i] = tmpCircularCandidates.size();
+                tmpLinearSugarCounts[i] = tmpLinearCandidates.size();
+                if (tmpCircularCandidates.isEmpty() && tmpLinearCandidates.isEmpty()) {
+                    tmpDeglycosylatedHeavyAtomCounts[i] = tmpHeavyAtomCounts[i];
+                    tmpFlags[i] = tmpMoleculeFlags;
+                    continue;
+                }
+                if (!tmpCircularCandidates.isEmpty()) {
+                    tmpMoleculeFlags |= SugarDetectionBatch.CONTAINS_CIRCULAR_SUGARS_FLAG;
+                    //note: circular moieties that become terminal after removal of a linear moiety are not counted here!
+                    //-1 for the deglycosylated core at the beginning of the list
+                    tmpTerminalCircularSugarCounts[i] = this.removeAndReturnCircularSugars(tmpMolecule, true).size() - 1;
+                    tmpCircularSugarMolecules[i] = tmpMolecule;
+                }
+                if (!tmpLinearCandidates.isEmpty()) {
+                    tmpMoleculeFlags |= SugarDetectionBatch.CONTAINS_LINEAR_SUGARS_FLAG;
+                    tmpTerminalLinearSugarCounts[i] = this.removeAndReturnLinearSugars(tmpMolecule, true).size() - 1;
+                }
+                IAtomContainer tmpDeglycosylatedClone = this.removeCircularAndLinearSugars(tmpMolecule, true);
+                if (tmpDeglycosylatedClone.isEmpty()) {
+                    tmpMoleculeFlags |= SugarDetectionBatch.BASICALLY_A_SUGAR_FLAG;
+                }
+                tmpDeglycosylatedHeavyAtomCounts[i] = AtomContainerManipulator.getHeavyAtoms(tmpDeglycosylatedClone).size();
+                tmpFlags[i] = tmpMoleculeFlags;
+            } catch (Exception anException) {
+                BatchSugarRemovalUtility.LOGGER.log(Level.WARNING, anException + " Batch index: " + i, anException);
+                tmpCandidatesCount = tmpCandidatesOffsets[i];
+                tmpCircularSugarMolecules[i] = null;
+                BatchSugarRemovalUtility.clearRow(i, tmpFlags, tmpCircularSugarCounts, tmpTerminalCircularSugarCounts,
+                        tmpLinearSugarCounts, tmpTerminalLinearSugarCounts, tmpHeavyAtomCounts,
+                        tmpDeglycosylatedHeavyAtomCounts);
+            }
+        }
+        tmpCandidatesOffsets[tmpSize] = tmpCandidatesCount;
+        //second pass: only circular sugars having glycosidic bonds are in the candidates now
+        boolean tmpWasSettingEnabled = this.areOnlyCircularSugarsWithOGlycosidicBondDetected();
+        this.setDetectCircularSugarsOnlyWithOGlycosidicBondSetting(true);
+        try {
+            for (int i = 0; i < tmpSize; i++) {
+                IAtomContainer tmpMolecule = tmpCircularSugarMolecules[i];
+                if (Objects.isNull(tmpMolecule)) {
+                    continue;
+                }
+                try {
+                    if (this.isQualifiedForGlycosidicBondExemption(tmpMolecule.clone())) {
+                        tmpFlags[i] |= SugarDetectionBatch.QUALIFIED_FOR_GLYCOSIDIC_BOND_EXEMPTION_FLAG;
+                    } else {
+                        tmpCircularSugarsWithGlycosidicBondCounts[i] = this.getCircularSugarCandidates(
+                                tmpMolecule.clone()).size();
+                    }
+                } catch (Exception anException) {
+                    BatchSugarRemovalUtility.LOGGER.log(Level.WARNING, anException + " Batch index: " + i, anException);
+                    tmpCircularSugarsWithGlycosidicBondCounts[i] = 0;
+                    BatchSugarRemovalUtility.clearRow(i, tmpFlags, tmpCircularSugarCounts,
+                            tmpTerminalCircularSugarCounts, tmpLinearSugarCounts, tmpTerminalLinearSugarCounts,
+                            tmpHeavyAtomCounts, tmpDeglycosylatedHeavyAtomCounts);
+                }
+            }
+        } finally {
+            this.setDetectCircularSugarsOnlyWithOGlycosidicBondSetting(tmpWasSettingEnabled);
+        }
+        return new SugarDetectionBatch(tmpFlags, tmpCircularSugarCounts, tmpTerminalCircularSugarCounts,
+                tmpLinearSugarCounts, tmpTerminalLinearSugarCounts, tmpCircularSugarsWithGlycosidicBondCounts,
+                tmpHeavyAtomCounts, tmpDeglycosylatedHeavyAtomCounts, tmpCandidatesOffsets,
+                Arrays.copyOf(tmpCandidateFlags, tmpCandidatesCount),
+                Arrays.copyOf(tmpCandidateAtomCounts, tmpCandidatesCount),
+                Arrays.copyOf(tmpCandidateExocyclicOxygenCounts, tmpCandidatesCount));
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Checks whether an atom of the given molecule is part of two ring systems, i.e. of two isolated or fused ring
+     * fragments found by a ring search.
+     */
+    private static boolean hasSpiroAtom(IAtomContainer aMolecule) {
+        RingSearch tmpRingSearch = new RingSearch(aMolecule);
+        if (tmpRingSearch.numRings() < 2) {
+            return false;
+        }
+        boolean[] tmpIsInRingSystem = new boolean[aMolecule.getAtomCount()];
+        for (int[][] tmpFragments : new int[][][] {tmpRingSearch.isolated(), tmpRingSearch.fused()}) {
+            for (int[] tmpFragment : tmpFragments) {
+                for (int tmpAtomIndex : tmpFragment) {
+                    if (tmpIsInRingSystem[tmpAtomIndex]) {
+                        return true;
+                    }
+                    tmpIsInRingSystem[tmpAtomIndex] = true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flags the molecule at the given index as failed and sets its counts to zero.
+     */
+    private static void clearRow(int anIndex, byte[] aFlags, int[]... aCountColumns) {
+        aFlags[anIndex] = SugarDetectionBatch.FAILED_FLAG;
+        for (int[] tmpColumn : aCountColumns) {
+            tmpColumn[anIndex] = 0;
+        }
+    }
+    //</editor-fold>
+}
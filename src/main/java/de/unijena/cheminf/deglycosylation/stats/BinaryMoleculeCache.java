@@ -0,0 +1,258 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.config.Elements;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomType;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IPseudoAtom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Compact binary encoding of normalised molecules for the molecule cache written by BinaryMoleculeCacheWriter and read
+ * by BinaryMoleculeCacheSource. Decoding is considerably faster than parsing SMILES codes and repeating the
+ * normalisation. Per atom, the atomic number, formal charge, implicit hydrogen count, mass number, aromaticity,
+ * hybridisation, atom type name, and pseudo atom label are stored; per bond, the atom indices, order, and aromaticity.
+ * Stereo elements, coordinates, atom type properties other than name and hybridisation, and all other properties are
+ * not stored.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class BinaryMoleculeCache {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Magic number at the beginning of every cache file ("GSMC")
+     */
+    public static final int MAGIC_NUMBER = 0x47534D43;
+
+    /**
+     * Version of the file format
+     */
+    public static final int FORMAT_VERSION = 1;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    private static final int AROMATIC_FLAG = 1;
+
+    private static final int PSEUDO_ATOM_FLAG = 1 << 1;
+
+    private static final int ATOM_TYPE_NAME_FLAG = 1 << 2;
+
+    private static final int IMPLICIT_HYDROGEN_COUNT_FLAG = 1 << 3;
+
+    private static final int HYBRIDIZATION_FLAG = 1 << 4;
+
+    private static final int MASS_NUMBER_FLAG = 1 << 5;
+
+    /**
+     * Cached values of the enums, to avoid copying them on every call of values()
+     */
+    private static final IBond.Order[] BOND_ORDERS = IBond.Order.values();
+
+    private static final IAtomType.Hybridization[] HYBRIDIZATIONS = IAtomType.Hybridization.values();
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Private constructor, only static methods.
+     */
+    private BinaryMoleculeCache() {
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Writes the given molecule to the given output.
+     *
+     * @param anOutput the output
+     * @param aMolecule the molecule
+     * @throws IOException if the output cannot be written
+     */
+    public static void writeMolecule(DataOutput anOutput, IAtomContainer aMolecule) throws IOException {
+        anOutput.writeInt(aMolecule.getAtomCount());
+        for (IAtom tmpAtom : aMolecule.atoms()) {
+            int tmpFlags = 0;
+            if (tmpAtom.isAromatic()) {
+                tmpFlags |= BinaryMoleculeCache.AROMATIC_FLAG;
+            }
+            if (tmpAtom instanceof IPseudoAtom) {
+                tmpFlags |= BinaryMoleculeCache.PSEUDO_ATOM_FLAG;
+            }
+            if (!Objects.isNull(tmpAtom.getAtomTypeName())) {
+                tmpFlags |= BinaryMoleculeCache.ATOM_TYPE_NAME_FLAG;
+            }
+            if (!Objects.isNull(tmpAtom.getImplicitHydrogenCount())) {
+                tmpFlags |= BinaryMoleculeCache.IMPLICIT_HYDROGEN_COUNT_FLAG;
+            }
+            if (!Objects.isNull(tmpAtom.getHybridization())) {
+                tmpFlags |= BinaryMoleculeCache.HYBRIDIZATION_FLAG;
+            }
+            if (!Objects.isNull(tmpAtom.getMassNumber())) {
+                tmpFlags |= BinaryMoleculeCache.MASS_NUMBER_FLAG;
+            }
+            anOutput.writeByte(tmpFlags);
+            Integer tmpAtomicNumber = tmpAtom.getAtomicNumber();
+            anOutput.writeByte(Objects.isNull(tmpAtomicNumber) ? 0 : tmpAtomicNumber);
+            Integer tmpFormalCharge = tmpAtom.getFormalCharge();
+            anOutput.writeByte(Objects.isNull(tmpFormalCharge) ? 0 : tmpFormalCharge);
+            if ((tmpFlags & BinaryMoleculeCache.IMPLICIT_HYDROGEN_COUNT_FLAG) != 0) {
+                anOutput.writeByte(tmpAtom.getImplicitHydrogenCount());
+            }
+            if ((tmpFlags & BinaryMoleculeCache.MASS_NUMBER_FLAG) != 0) {
+                anOutput.writeShort(tmpAtom.getMassNumber());
+            }
+            if ((tmpFlags & BinaryMoleculeCache.HYBRIDIZATION_FLAG) != 0) {
+                anOutput.writeByte(tmpAtom.getHybridization().ordinal());
+            }
+            if ((tmpFlags & BinaryMoleculeCache.ATOM_TYPE_NAME_FLAG) != 0) {
+                anOutput.writeUTF(tmpAtom.getAtomTypeName());
+            }
+            if ((tmpFlags & BinaryMoleculeCache.PSEUDO_ATOM_FLAG) != 0) {
+                String tmpLabel = ((IPseudoAtom) tmpAtom).getLabel();
+                anOutput.writeUTF(Objects.isNull(tmpLabel) ? "*" : tmpLabel);
+            }
+        }
+        anOutput.writeInt(aMolecule.getBondCount());
+        for (IBond tmpBond : aMolecule.bonds()) {
+            anOutput.writeInt(aMolecule.indexOf(tmpBond.getBegin()));
+            anOutput.writeInt(aMolecule.indexOf(tmpBond.getEnd()));
+            IBond.Order tmpOrder = tmpBond.getOrder();
+            anOutput.writeByte(Objects.isNull(tmpOrder) ? -1 : tmpOrder.ordinal());
+            anOutput.writeBoolean(tmpBond.isAromatic());
+        }
+    }
+
+    /**
+     * Reads a molecule written by writeMolecule() from the given input.
+     *
+     * @param anInput the input
+     * @param aBuilder builder for the atom container, atoms, and bonds
+     * @return the molecule
+     * @throws IOException if the input cannot be read or is corrupt
+     */
+    public static IAtomContainer readMolecule(DataInput anInput, IChemObjectBuilder aBuilder) throws IOException {
+        IAtomContainer tmpMolecule = aBuilder.newAtomContainer();
+        int tmpAtomCount = anInput.readInt();
+        if (tmpAtomCount < 0) {
+            throw new IOException("Corrupt molecule cache, negative atom count.");
+        }
+        IAtom[] tmpAtoms = new IAtom[tmpAtomCount];
+        for (int i = 0; i < tmpAtomCount; i++) {
+            int tmpFlags = anInput.readUnsignedByte();
+            int tmpAtomicNumber = anInput.readUnsignedByte();
+            int tmpFormalCharge = anInput.readByte();
+            IAtom tmpAtom;
+            if ((tmpFlags & BinaryMoleculeCache.PSEUDO_ATOM_FLAG) != 0) {
+                tmpAtom = aBuilder.newInstance(IPseudoAtom.class);
+            } else {
+                tmpAtom = aBuilder.newAtom();
+                tmpAtom.setSymbol(Elements.ofNumber(tmpAtomicNumber).symbol());
+            }
+            tmpAtom.setAtomicNumber(tmpAtomicNumber);
+            tmpAtom.setFormalCharge(tmpFormalCharge);
+            tmpAtom.setIsAromatic((tmpFlags & BinaryMoleculeCache.AROMATIC_FLAG) != 0);
+            if ((tmpFlags & BinaryMoleculeCache.IMPLICIT_HYDROGEN_COUNT_FLAG) != 0) {
+                tmpAtom.setImplicitHydrogenCount(anInput.readUnsignedByte());
+            }
+            if ((tmpFlags & BinaryMoleculeCache.MASS_NUMBER_FLAG) != 0) {
+                tmpAtom.setMassNumber((int) anInput.readShort());
+            }
+            if ((tmpFlags & BinaryMoleculeCache.HYBRIDIZATION_FLAG) != 0) {
+                tmpAtom.setHybridization(BinaryMoleculeCache.HYBRIDIZATIONS[anInput.readUnsignedByte()]);
+            }
+            if ((tmpFlags & BinaryMoleculeCache.ATOM_TYPE_NAME_FLAG) != 0) {
+                tmpAtom.setAtomTypeName(anInput.readUTF());
+            }
+            if ((tmpFlags & BinaryMoleculeCache.PSEUDO_ATOM_FLAG) != 0) {
+                String tmpLabel = anInput.readUTF();
+                ((IPseudoAtom) tmpAtom).setLabel(tmpLabel);
+                tmpAtom.setSymbol(tmpLabel);
+            }
+            tmpMolecule.addAtom(tmpAtom);
+            //atom containers wrap the added atoms, the wrappers are needed for the bonds
+            tmpAtoms[i] = tmpMolecule.getAtom(i);
+        }
+        int tmpBondCount = anInput.readInt();
+        if (tmpBondCount < 0) {
+            throw new IOException("Corrupt molecule cache, negative bond count.");
+        }
+        for (int i = 0; i < tmpBondCount; i++) {
+            int tmpBeginIndex = anInput.readInt();
+            int tmpEndIndex = anInput.readInt();
+            int tmpOrderOrdinal = anInput.readByte();
+            boolean tmpIsAromatic = anInput.readBoolean();
+            if (tmpBeginIndex < 0 || tmpBeginIndex >= tmpAtomCount || tmpEndIndex < 0 || tmpEndIndex >= tmpAtomCount) {
+                throw new IOException("Corrupt molecule cache, bond atom index out of range.");
+            }
+            IBond tmpBond = aBuilder.newBond();
+            tmpBond.setAtoms(new IAtom[]{tmpAtoms[tmpBeginIndex], tmpAtoms[tmpEndIndex]});
+            tmpBond.setOrder(tmpOrderOrdinal < 0 ? null : BinaryMoleculeCache.BOND_ORDERS[tmpOrderOrdinal]);
+            tmpBond.setIsAromatic(tmpIsAromatic);
+            tmpMolecule.addBond(tmpBond);
+        }
+        return tmpMolecule;
+    }
+
+    /**
+     * Writes a string of arbitrary length as UTF-8 bytes preceded by their number; in contrast to
+     * DataOutput.writeUTF(), it is not limited to 65535 bytes, which long SMILES codes can exceed.
+     *
+     * @param anOutput the output
+     * @param aString the string
+     * @throws IOException if the output cannot be written
+     */
+    public static void writeString(DataOutput anOutput, String aString) throws IOException {
+        byte[] tmpBytes = aString.getBytes(StandardCharsets.UTF_8);
+        anOutput.writeInt(tmpBytes.length);
+        anOutput.write(tmpBytes);
+    }
+
+    /**
+     * Reads a string written by writeString().
+     *
+     * @param anInput the input
+     * @return the string
+     * @throws IOException if the input cannot be read or is corrupt
+     */
+    public static String readString(DataInput anInput) throws IOException {
+        int tmpLength = anInput.readInt();
+        if (tmpLength < 0) {
+            throw new IOException("Corrupt molecule cache, negative string length.");
+        }
+        byte[] tmpBytes = new byte[tmpLength];
+        anInput.readFully(tmpBytes);
+        return new String(tmpBytes, StandardCharsets.UTF_8);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Molecule source reading a binary molecule cache written by BinaryMoleculeCacheWriter. The records carry the stored
+ * normalised forms, so the runner neither parses nor normalises them again for analyses requiring one of these forms.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class BinaryMoleculeCacheSource implements MoleculeSource {
+    //<editor-fold desc="Private final variables">
+    /**
+     * The cache file
+     */
+    private final File cacheFile;
+
+    /**
+     * Input stream of the cache file
+     */
+    private final DataInputStream inputStream;
+
+    /**
+     * Keys of the stored normalised forms, in record order
+     */
+    private final List<String> normalizerKeys;
+
+    /**
+     * Builder for the decoded molecules
+     */
+    private final IChemObjectBuilder builder;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Whether the end marker has been read
+     */
+    private boolean isAtEnd;
+
+    /**
+     * Whether the marker of the next record has been read but the record not yet
+     */
+    private boolean isNextRecordPending;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Opens the given cache file and reads its header.
+     *
+     * @param aCacheFile the cache file
+     * @throws NullPointerException if the file is null
+     * @throws IOException if the file cannot be read or is not a molecule cache of the supported version
+     */
+    public BinaryMoleculeCacheSource(File aCacheFile) throws NullPointerException, IOException {
+        Objects.requireNonNull(aCacheFile, "Given file is 'null'.");
+        this.cacheFile = aCacheFile;
+        this.builder = DefaultChemObjectBuilder.getInstance();
+        this.inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(aCacheFile), 1 << 16));
+        try {
+            if (this.inputStream.readInt() != BinaryMoleculeCache.MAGIC_NUMBER) {
+                throw new IOException(aCacheFile.getName() + " is not a molecule cache file.");
+            }
+            int tmpVersion = this.inputStream.readInt();
+            if (tmpVersion != BinaryMoleculeCache.FORMAT_VERSION) {
+                throw new IOException("Unsupported molecule cache version " + tmpVersion + ".");
+            }
+            int tmpNumberOfKeys = this.inputStream.readInt();
+            this.normalizerKeys = new ArrayList<>(tmpNumberOfKeys);
+            for (int i = 0; i < tmpNumberOfKeys; i++) {
+                this.normalizerKeys.add(this.inputStream.readUTF());
+            }
+        } catch (IOException anIOException) {
+            this.inputStream.close();
+            throw anIOException;
+        }
+        this.isAtEnd = false;
+        this.isNextRecordPending = false;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return this.cacheFile.getName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() throws IOException {
+        if (this.isNextRecordPending) {
+            return true;
+        }
+        if (this.isAtEnd) {
+            return false;
+        }
+        if (this.inputStream.readBoolean()) {
+            this.isNextRecordPending = true;
+        } else {
+            this.isAtEnd = true;
+        }
+        return this.isNextRecordPending;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MoleculeRecord next() throws IOException {
+        if (!this.hasNext()) {
+            throw new IllegalStateException("No more records in " + this.getName());
+        }
+        this.isNextRecordPending = false;
+        String tmpID = BinaryMoleculeCache.readString(this.inputStream);
+        String tmpSmilesCode = this.inputStream.readBoolean() ? BinaryMoleculeCache.readString(this.inputStream) : null;
+        int tmpNrOfStereoIsomers = this.inputStream.readInt();
+        Map<String, IAtomContainer> tmpNormalizedForms = new HashMap<>(this.normalizerKeys.size() * 2);
+        for (String tmpKey : this.normalizerKeys) {
+            if (!this.inputStream.readBoolean()) {
+                continue;
+            }
+            IAtomContainer tmpMolecule = BinaryMoleculeCache.readMolecule(this.inputStream, this.builder);
+            tmpMolecule.setTitle(tmpID);
+            tmpNormalizedForms.put(tmpKey, tmpMolecule);
+        }
+        return new MoleculeRecord(tmpID, tmpSmilesCode, tmpNrOfStereoIsomers, tmpNormalizedForms);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.inputStream.close();
+    }
+
+    /**
+     * Returns the keys of the normalised forms stored in the cache.
+     *
+     * @return normaliser keys
+     */
+    public List<String> getNormalizerKeys() {
+        return new ArrayList<>(this.normalizerKeys);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes normalised molecules to a binary molecule cache file that can be read again by BinaryMoleculeCacheSource, so
+ * that repeated runs on the same dataset skip SMILES parsing and normalisation. The file starts with a header listing
+ * the keys of the stored normalised forms; every record holds ID, SMILES code, number of stereo-isomers, and one
+ * encoded molecule per key (see BinaryMoleculeCache for what is stored). Molecules that failed to be parsed or
+ * normalised are written without forms, so that a run on the cache counts them like the original run.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class BinaryMoleculeCacheWriter implements Closeable {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Output stream of the cache file
+     */
+    private final DataOutputStream outputStream;
+
+    /**
+     * Keys of the normalisers whose forms are stored, in record order
+     */
+    private final List<String> normalizerKeys;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates the cache file and writes its header.
+     *
+     * @param aCacheFile the file to create
+     * @param aNormalizerList normalisers whose forms are stored in every record
+     * @throws NullPointerException if a parameter is null
+     * @throws IOException if the file cannot be created
+     */
+    public BinaryMoleculeCacheWriter(File aCacheFile, List<MoleculeNormalizer> aNormalizerList)
+            throws NullPointerException, IOException {
+        Objects.requireNonNull(aCacheFile, "Given file is 'null'.");
+        Objects.requireNonNull(aNormalizerList, "Given normaliser list is 'null'.");
+        this.normalizerKeys = new ArrayList<>(aNormalizerList.size());
+        for (MoleculeNormalizer tmpNormalizer : aNormalizerList) {
+            this.normalizerKeys.add(tmpNormalizer.getKey());
+        }
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(aCacheFile), 1 << 16));
+        this.outputStream.writeInt(BinaryMoleculeCache.MAGIC_NUMBER);
+        this.outputStream.writeInt(BinaryMoleculeCache.FORMAT_VERSION);
+        this.outputStream.writeInt(this.normalizerKeys.size());
+        for (String tmpKey : this.normalizerKeys) {
+            this.outputStream.writeUTF(tmpKey);
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Writes one record.
+     *
+     * @param aRecord the record the molecule was read from
+     * @param aNormalizedForms normalised forms of the molecule in the order of the normalisers given in the
+     *                         constructor; null entries for forms that could not be created
+     * @throws IllegalArgumentException if the number of forms does not match
+     * @throws IOException if the file cannot be written
+     */
+    public void write(MoleculeRecord aRecord, IAtomContainer[] aNormalizedForms) throws IllegalArgumentException, IOException {
+        if (aNormalizedForms.length != this.normalizerKeys.size()) {
+            throw new IllegalArgumentException("Number of given forms does not match the number of normalisers.");
+        }
+        //record marker, 0 marks the end of the file
+        this.outputStream.writeBoolean(true);
+        BinaryMoleculeCache.writeString(this.outputStream, aRecord.getID());
+        this.outputStream.writeBoolean(aRecord.isGivenAsSmilesCode());
+        if (aRecord.isGivenAsSmilesCode()) {
+            BinaryMoleculeCache.writeString(this.outputStream, aRecord.getSmilesCode());
+        }
+        this.outputStream.writeInt(aRecord.getNrOfStereoIsomers());
+        for (IAtomContainer tmpForm : aNormalizedForms) {
+            //forms that could not be created are marked as missing, the runner then fails on them again when reading
+            this.outputStream.writeBoolean(!Objects.isNull(tmpForm));
+            if (!Objects.isNull(tmpForm)) {
+                BinaryMoleculeCache.writeMolecule(this.outputStream, tmpForm);
+            }
+        }
+    }
+
+    /**
+     * Writes the end marker and closes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        this.outputStream.writeBoolean(false);
+        this.outputStream.close();
+    }
+    //</editor-fold>
+}
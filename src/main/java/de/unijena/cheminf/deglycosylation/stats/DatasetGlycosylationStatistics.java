@@ -0,0 +1,338 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Basic glycosylation statistics of one dataset, compiled from the {@link MoleculeGlycosylationResult}s of its
+ * molecules or from {@link SugarDetectionBatch}es: how many molecules contain (circular/linear, terminal/non-terminal) sugars, how many are basically
+ * sugars, and how many sugar moieties were detected. Partial statistics of parts of a dataset, e.g. computed in
+ * parallel, are combined via merge(); since all values are sums, the result does not depend on the order of merging.
+ * <br>Instances are not thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class DatasetGlycosylationStatistics {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Name of the dataset
+     */
+    private final String datasetName;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    //counters of the compiled statistics, see getStatistics()
+    private int moleculesCounter;
+
+    private int failedMoleculesCounter;
+
+    private int hasAnyTypeOfSugarsCounter;
+
+    private int hasNoSugarsCounter;
+
+    private int hasCircularSugarsCounter;
+
+    private int hasTerminalCircularSugarsCounter;
+
+    private int hasNonTerminalCircularSugarsCounter;
+
+    private int hasLinearSugarsCounter;
+
+    private int hasTerminalLinearSugarsCounter;
+
+    private int hasNonTerminalLinearSugarsCounter;
+
+    private int hasCircularAndLinearSugarsCounter;
+
+    private int basicallyASugarCounter;
+
+    private int circularSugarMoietiesCounter;
+
+    private int linearSugarMoietiesCounter;
+
+    private int totalNrOfStereoIsomersSRUPos;
+
+    private int totalNrOfStereoIsomersSRUNeg;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates empty statistics of the given dataset.
+     *
+     * @param aDatasetName name of the dataset
+     * @throws NullPointerException if the given name is null
+     */
+    public DatasetGlycosylationStatistics(String aDatasetName) throws NullPointerException {
+        Objects.requireNonNull(aDatasetName, "Given dataset name is 'null'.");
+        this.datasetName = aDatasetName;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds the result of one molecule.
+     *
+     * @param aResult result of the molecule
+     * @param aNrOfStereoIsomers number of stereo-isomers the molecule represents
+     * @throws NullPointerException if the given result is null
+     */
+    public void add(MoleculeGlycosylationResult aResult, int aNrOfStereoIsomers) throws NullPointerException {
+        Objects.requireNonNull(aResult, "Given result is 'null'.");
+        this.add(aResult.getCircularSugarCount(), aResult.getTerminalCircularSugarCount(),
+                aResult.getLinearSugarCount(), aResult.getTerminalLinearSugarCount(), aResult.isBasicallyASugar(),
+                aNrOfStereoIsomers);
+    }
+
+    /**
+     * Adds the result of one molecule of the given batch; molecules flagged as failed are counted as failures.
+     *
+     * @param aBatch batch of results
+     * @param anIndex index of the molecule in the batch
+     * @param aNrOfStereoIsomers number of stereo-isomers the molecule represents
+     * @throws NullPointerException if the given batch is null
+     */
+    public void add(SugarDetectionBatch aBatch, int anIndex, int aNrOfStereoIsomers) throws NullPointerException {
+        Objects.requireNonNull(aBatch, "Given batch is 'null'.");
+        if (aBatch.hasFlag(anIndex, SugarDetectionBatch.FAILED_FLAG)) {
+            this.addFailure();
+            return;
+        }
+        this.add(aBatch.getCircularSugarCount(anIndex), aBatch.getTerminalCircularSugarCount(anIndex),
+                aBatch.getLinearSugarCount(anIndex), aBatch.getTerminalLinearSugarCount(anIndex),
+                aBatch.hasFlag(anIndex, SugarDetectionBatch.BASICALLY_A_SUGAR_FLAG), aNrOfStereoIsomers);
+    }
+
+    /**
+     * Adds the result of the molecule in one row of the given result table; molecules flagged as failed are counted as
+     * failures.
+     *
+     * @param aTable result table
+     * @param aRow row index of the molecule
+     * @throws NullPointerException if the given table is null
+     */
+    public void add(MoleculeResultTable aTable, int aRow) throws NullPointerException {
+        Objects.requireNonNull(aTable, "Given table is 'null'.");
+        if (aTable.hasFlag(aRow, SugarDetectionBatch.FAILED_FLAG)) {
+            this.addFailure();
+            return;
+        }
+        this.add(aTable.getCircularSugarCount(aRow), aTable.getTerminalCircularSugarCount(aRow),
+                aTable.getLinearSugarCount(aRow), aTable.getTerminalLinearSugarCount(aRow),
+                aTable.hasFlag(aRow, SugarDetectionBatch.BASICALLY_A_SUGAR_FLAG), aTable.getNrOfStereoIsomers(aRow));
+    }
+
+    /**
+     * Adds a molecule that is known to contain no sugars, e.g. because it was rejected by a SugarPrescreen.
+     *
+     * @param aNrOfStereoIsomers number of stereo-isomers the molecule represents
+     */
+    public void addSugarFreeMolecule(int aNrOfStereoIsomers) {
+        this.add(0, 0, 0, 0, false, aNrOfStereoIsomers);
+    }
+
+    /**
+     * Counts a molecule that could not be read, parsed, or analysed.
+     */
+    public void addFailure() {
+        this.moleculesCounter++;
+        this.failedMoleculesCounter++;
+    }
+
+    /**
+     * Adds the statistics of another part of the dataset to these statistics. The given statistics are not altered.
+     *
+     * @param anOther statistics to add
+     * @throws NullPointerException if the given statistics are null
+     */
+    public void merge(DatasetGlycosylationStatistics anOther) throws NullPointerException {
+        Objects.requireNonNull(anOther, "Given statistics are 'null'.");
+        this.moleculesCounter += anOther.moleculesCounter;
+        this.failedMoleculesCounter += anOther.failedMoleculesCounter;
+        this.hasAnyTypeOfSugarsCounter += anOther.hasAnyTypeOfSugarsCounter;
+        this.hasNoSugarsCounter += anOther.hasNoSugarsCounter;
+        this.hasCircularSugarsCounter += anOther.hasCircularSugarsCounter;
+        this.hasTerminalCircularSugarsCounter += anOther.hasTerminalCircularSugarsCounter;
+        this.hasNonTerminalCircularSugarsCounter += anOther.hasNonTerminalCircularSugarsCounter;
+        this.hasLinearSugarsCounter += anOther.hasLinearSugarsCounter;
+        this.hasTerminalLinearSugarsCounter += anOther.hasTerminalLinearSugarsCounter;
+        this.hasNonTerminalLinearSugarsCounter += anOther.hasNonTerminalLinearSugarsCounter;
+        this.hasCircularAndLinearSugarsCounter += anOther.hasCircularAndLinearSugarsCounter;
+        this.basicallyASugarCounter += anOther.basicallyASugarCounter;
+        this.circularSugarMoietiesCounter += anOther.circularSugarMoietiesCounter;
+        this.linearSugarMoietiesCounter += anOther.linearSugarMoietiesCounter;
+        this.totalNrOfStereoIsomersSRUPos += anOther.totalNrOfStereoIsomersSRUPos;
+        this.totalNrOfStereoIsomersSRUNeg += anOther.totalNrOfStereoIsomersSRUNeg;
+    }
+
+    /**
+     * Returns all statistics by their names, in the order they are listed in output tables.
+     *
+     * @return map of statistic names to values
+     */
+    public Map<String, Integer> getStatistics() {
+        Map<String, Integer> tmpStatistics = new LinkedHashMap<>(24, 1.0f);
+        tmpStatistics.put("Molecules", this.moleculesCounter);
+        tmpStatistics.put("Failed molecules", this.failedMoleculesCounter);
+        tmpStatistics.putAll(this.getMoleculeCounts());
+        tmpStatistics.put("Detected circular sugar moieties", this.circularSugarMoietiesCounter);
+        tmpStatistics.put("Detected linear sugar moieties", this.linearSugarMoietiesCounter);
+        tmpStatistics.put("Stereo-isomers of sugar-containing molecules", this.totalNrOfStereoIsomersSRUPos);
+        tmpStatistics.put("Stereo-isomers of no sugar containing molecules", this.totalNrOfStereoIsomersSRUNeg);
+        return tmpStatistics;
+    }
+
+    /**
+     * Returns the statistics that count successfully analysed molecules, i.e. that can be given as fractions of them,
+     * by their names, in the order they are listed in output tables.
+     *
+     * @return map of statistic names to numbers of molecules
+     */
+    public Map<String, Integer> getMoleculeCounts() {
+        Map<String, Integer> tmpStatistics = new LinkedHashMap<>(16, 1.0f);
+        tmpStatistics.put("Sugar-containing molecules", this.hasAnyTypeOfSugarsCounter);
+        tmpStatistics.put("No sugar containing molecules", this.hasNoSugarsCounter);
+        tmpStatistics.put("Circular-sugar-containing molecules", this.hasCircularSugarsCounter);
+        tmpStatistics.put("Terminal circular sugars containing molecules", this.hasTerminalCircularSugarsCounter);
+        tmpStatistics.put("Non-terminal circular sugar containing molecules", this.hasNonTerminalCircularSugarsCounter);
+        tmpStatistics.put("Linear-sugar-containing molecules", this.hasLinearSugarsCounter);
+        tmpStatistics.put("Terminal linear sugars containing molecules", this.hasTerminalLinearSugarsCounter);
+        tmpStatistics.put("Non-terminal linear sugar containing molecules", this.hasNonTerminalLinearSugarsCounter);
+        tmpStatistics.put("Circular and linear sugar containing molecules", this.hasCircularAndLinearSugarsCounter);
+        tmpStatistics.put("Basically a sugar molecules", this.basicallyASugarCounter);
+        return tmpStatistics;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the name of the dataset.
+     *
+     * @return dataset name
+     */
+    public String getDatasetName() {
+        return this.datasetName;
+    }
+
+    /**
+     * Returns the number of molecules, including failed ones.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the number of molecules that could not be read, parsed, or analysed.
+     *
+     * @return failed molecules counter
+     */
+    public int getFailedMoleculesCounter() {
+        return this.failedMoleculesCounter;
+    }
+
+    /**
+     * Returns the number of molecules containing circular or linear sugars.
+     *
+     * @return sugar-containing molecules counter
+     */
+    public int getHasAnyTypeOfSugarsCounter() {
+        return this.hasAnyTypeOfSugarsCounter;
+    }
+
+    /**
+     * Returns the number of molecules containing circular sugars.
+     *
+     * @return circular-sugar-containing molecules counter
+     */
+    public int getHasCircularSugarsCounter() {
+        return this.hasCircularSugarsCounter;
+    }
+
+    /**
+     * Returns the number of molecules containing linear sugars.
+     *
+     * @return linear-sugar-containing molecules counter
+     */
+    public int getHasLinearSugarsCounter() {
+        return this.hasLinearSugarsCounter;
+    }
+
+    /**
+     * Returns the number of molecules that are empty after removal of all sugars.
+     *
+     * @return basically a sugar counter
+     */
+    public int getBasicallyASugarCounter() {
+        return this.basicallyASugarCounter;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Adds the result of one molecule, given by its sugar counts.
+     */
+    private void add(int aCircularSugarCount, int aTerminalCircularSugarCount, int aLinearSugarCount,
+                     int aTerminalLinearSugarCount, boolean anIsBasicallyASugar, int aNrOfStereoIsomers) {
+        this.moleculesCounter++;
+        if (aCircularSugarCount == 0 && aLinearSugarCount == 0) {
+            this.hasNoSugarsCounter++;
+            this.totalNrOfStereoIsomersSRUNeg += aNrOfStereoIsomers;
+            return;
+        }
+        this.hasAnyTypeOfSugarsCounter++;
+        this.totalNrOfStereoIsomersSRUPos += aNrOfStereoIsomers;
+        if (aCircularSugarCount > 0) {
+            this.hasCircularSugarsCounter++;
+            this.circularSugarMoietiesCounter += aCircularSugarCount;
+            if (aTerminalCircularSugarCount > 0) {
+                this.hasTerminalCircularSugarsCounter++;
+            }
+            if (aCircularSugarCount - aTerminalCircularSugarCount > 0) {
+                this.hasNonTerminalCircularSugarsCounter++;
+            }
+        }
+        if (aLinearSugarCount > 0) {
+            this.hasLinearSugarsCounter++;
+            this.linearSugarMoietiesCounter += aLinearSugarCount;
+            if (aTerminalLinearSugarCount > 0) {
+                this.hasTerminalLinearSugarsCounter++;
+            }
+            if (aLinearSugarCount - aTerminalLinearSugarCount > 0) {
+                this.hasNonTerminalLinearSugarsCounter++;
+            }
+        }
+        if (aCircularSugarCount > 0 && aLinearSugarCount > 0) {
+            this.hasCircularAndLinearSugarsCounter++;
+        }
+        if (anIsBasicallyASugar) {
+            this.basicallyASugarCounter++;
+        }
+    }
+    //</editor-fold>
+}
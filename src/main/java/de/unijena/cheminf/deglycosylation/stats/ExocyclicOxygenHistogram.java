@@ -0,0 +1,294 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Primitive frequency distributions of the exocyclic oxygen atoms attached to circular sugar candidates. Two
+ * distributions are compiled: the ratio of exocyclic oxygen atoms to atoms in the ring, binned into fixed-width
+ * buckets of one tenth (the ratio times ten, rounding down, which is correct here because the respective SRU setting
+ * is a threshold), and the absolute number of exocyclic oxygen atoms per ring size as a two-dimensional histogram.
+ * Both are plain int arrays that grow on demand, so adding a candidate neither formats nor boxes anything.
+ * <br>Instances are not thread-safe; parallel workers compile their own histograms and merge them afterwards.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class ExocyclicOxygenHistogram {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Number of ratio buckets per unit, i.e. the ratios are binned with one decimal
+     */
+    public static final int RATIO_BUCKETS_PER_UNIT = 10;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Frequencies of the ratio buckets, indexed by bucket
+     */
+    private int[] ratioFrequencies;
+
+    /**
+     * Frequencies of the exocyclic oxygen atom counts, indexed by ring size and oxygen atom count; rows of ring sizes
+     * that have not occurred yet are null
+     */
+    private int[][] oxygenCountFrequencies;
+
+    /**
+     * Number of candidates added in total
+     */
+    private int totalCount;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor that creates an empty histogram, sized for circular sugars with up to seven ring atoms.
+     */
+    public ExocyclicOxygenHistogram() {
+        this.ratioFrequencies = new int[2 * ExocyclicOxygenHistogram.RATIO_BUCKETS_PER_UNIT + 1];
+        this.oxygenCountFrequencies = new int[8][];
+        this.totalCount = 0;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Returns the ratio bucket of the given exocyclic oxygen atom count and ring size, i.e. their ratio times ten,
+     * rounding down. Integer arithmetic gives exactly the result of formatting the double ratio with one maximum
+     * fraction digit and rounding mode 'down'.
+     *
+     * @param anOxygenAtomCount number of exocyclic oxygen atoms
+     * @param aRingSize number of atoms in the ring
+     * @return ratio bucket
+     */
+    public static int getRatioBucket(int anOxygenAtomCount, int aRingSize) {
+        return (anOxygenAtomCount * ExocyclicOxygenHistogram.RATIO_BUCKETS_PER_UNIT) / aRingSize;
+    }
+
+    /**
+     * Returns the label of the given ratio bucket as written to the output files, e.g. "0", "0.5", or "1".
+     *
+     * @param aRatioBucket the ratio bucket
+     * @return ratio label
+     */
+    public static String getRatioLabel(int aRatioBucket) {
+        int tmpIntegerPart = aRatioBucket / ExocyclicOxygenHistogram.RATIO_BUCKETS_PER_UNIT;
+        int tmpFractionPart = aRatioBucket % ExocyclicOxygenHistogram.RATIO_BUCKETS_PER_UNIT;
+        if (tmpFractionPart == 0) {
+            return Integer.toString(tmpIntegerPart);
+        }
+        return tmpIntegerPart + "." + tmpFractionPart;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds one circular sugar candidate to both distributions.
+     *
+     * @param aRingSize number of atoms in the ring of the candidate
+     * @param anOxygenAtomCount number of exocyclic oxygen atoms attached to the ring
+     * @throws IllegalArgumentException if the ring size is not positive or the oxygen atom count is negative
+     */
+    public void add(int aRingSize, int anOxygenAtomCount) throws IllegalArgumentException {
+        if (aRingSize <= 0) {
+            throw new IllegalArgumentException("Given ring size is not positive.");
+        }
+        if (anOxygenAtomCount < 0) {
+            throw new IllegalArgumentException("Given oxygen atom count is negative.");
+        }
+        int tmpRatioBucket = ExocyclicOxygenHistogram.getRatioBucket(anOxygenAtomCount, aRingSize);
+        if (tmpRatioBucket >= this.ratioFrequencies.length) {
+            this.ratioFrequencies = Arrays.copyOf(this.ratioFrequencies, tmpRatioBucket + 1);
+        }
+        this.ratioFrequencies[tmpRatioBucket]++;
+        this.getOxygenCountRow(aRingSize, anOxygenAtomCount)[anOxygenAtomCount]++;
+        this.totalCount++;
+    }
+
+    /**
+     * Adds all frequencies of the given histogram to this one.
+     *
+     * @param aHistogram the histogram to merge into this one
+     * @throws NullPointerException if the given histogram is null
+     */
+    public void merge(ExocyclicOxygenHistogram aHistogram) throws NullPointerException {
+        Objects.requireNonNull(aHistogram, "Given histogram is 'null'.");
+        if (aHistogram.ratioFrequencies.length > this.ratioFrequencies.length) {
+            this.ratioFrequencies = Arrays.copyOf(this.ratioFrequencies, aHistogram.ratioFrequencies.length);
+        }
+        for (int i = 0; i < aHistogram.ratioFrequencies.length; i++) {
+            this.ratioFrequencies[i] += aHistogram.ratioFrequencies[i];
+        }
+        for (int tmpRingSize = 0; tmpRingSize < aHistogram.oxygenCountFrequencies.length; tmpRingSize++) {
+            int[] tmpOtherRow = aHistogram.oxygenCountFrequencies[tmpRingSize];
+            if (Objects.isNull(tmpOtherRow)) {
+                continue;
+            }
+            int[] tmpRow = this.getOxygenCountRow(tmpRingSize, tmpOtherRow.length - 1);
+            for (int i = 0; i < tmpOtherRow.length; i++) {
+                tmpRow[i] += tmpOtherRow[i];
+            }
+        }
+        this.totalCount += aHistogram.totalCount;
+    }
+
+    /**
+     * Removes all candidates, keeping the arrays for reuse.
+     */
+    public void clear() {
+        Arrays.fill(this.ratioFrequencies, 0);
+        for (int[] tmpRow : this.oxygenCountFrequencies) {
+            if (!Objects.isNull(tmpRow)) {
+                Arrays.fill(tmpRow, 0);
+            }
+        }
+        this.totalCount = 0;
+    }
+
+    /**
+     * Returns the frequency of the given ratio bucket.
+     *
+     * @param aRatioBucket the ratio bucket
+     * @return frequency, 0 for buckets that have not occurred
+     */
+    public int getRatioFrequency(int aRatioBucket) {
+        if (aRatioBucket < 0 || aRatioBucket >= this.ratioFrequencies.length) {
+            return 0;
+        }
+        return this.ratioFrequencies[aRatioBucket];
+    }
+
+    /**
+     * Returns the highest ratio bucket that has occurred.
+     *
+     * @return highest ratio bucket, -1 if the histogram is empty
+     */
+    public int getMaxRatioBucket() {
+        return ExocyclicOxygenHistogram.getLastNonZeroIndex(this.ratioFrequencies);
+    }
+
+    /**
+     * Returns how often the given number of exocyclic oxygen atoms occurred on rings of the given size.
+     *
+     * @param aRingSize number of atoms in the ring
+     * @param anOxygenAtomCount number of exocyclic oxygen atoms
+     * @return frequency, 0 for combinations that have not occurred
+     */
+    public int getOxygenCountFrequency(int aRingSize, int anOxygenAtomCount) {
+        if (aRingSize < 0 || aRingSize >= this.oxygenCountFrequencies.length) {
+            return 0;
+        }
+        int[] tmpRow = this.oxygenCountFrequencies[aRingSize];
+        if (Objects.isNull(tmpRow) || anOxygenAtomCount < 0 || anOxygenAtomCount >= tmpRow.length) {
+            return 0;
+        }
+        return tmpRow[anOxygenAtomCount];
+    }
+
+    /**
+     * Returns the highest number of exocyclic oxygen atoms that occurred on rings of the given size.
+     *
+     * @param aRingSize number of atoms in the ring
+     * @return highest oxygen atom count, -1 if no ring of this size was added
+     */
+    public int getMaxOxygenCount(int aRingSize) {
+        if (aRingSize < 0 || aRingSize >= this.oxygenCountFrequencies.length
+                || Objects.isNull(this.oxygenCountFrequencies[aRingSize])) {
+            return -1;
+        }
+        return ExocyclicOxygenHistogram.getLastNonZeroIndex(this.oxygenCountFrequencies[aRingSize]);
+    }
+
+    /**
+     * Returns the number of added candidates with the given ring size.
+     *
+     * @param aRingSize number of atoms in the ring
+     * @return number of candidates with this ring size
+     */
+    public int getRingSizeCount(int aRingSize) {
+        if (aRingSize < 0 || aRingSize >= this.oxygenCountFrequencies.length
+                || Objects.isNull(this.oxygenCountFrequencies[aRingSize])) {
+            return 0;
+        }
+        int tmpCount = 0;
+        for (int tmpFrequency : this.oxygenCountFrequencies[aRingSize]) {
+            tmpCount += tmpFrequency;
+        }
+        return tmpCount;
+    }
+
+    /**
+     * Returns the number of added candidates in total.
+     *
+     * @return total number of candidates
+     */
+    public int getTotalCount() {
+        return this.totalCount;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Returns the oxygen count row of the given ring size, creating or growing the row (and the array of rows) so that
+     * it can hold the given oxygen atom count.
+     *
+     * @param aRingSize number of atoms in the ring
+     * @param anOxygenAtomCount highest oxygen atom count the row must be able to hold
+     * @return the row
+     */
+    private int[] getOxygenCountRow(int aRingSize, int anOxygenAtomCount) {
+        if (aRingSize >= this.oxygenCountFrequencies.length) {
+            this.oxygenCountFrequencies = Arrays.copyOf(this.oxygenCountFrequencies, aRingSize + 1);
+        }
+        int[] tmpRow = this.oxygenCountFrequencies[aRingSize];
+        if (Objects.isNull(tmpRow)) {
+            tmpRow = new int[Math.max(aRingSize, anOxygenAtomCount) + 1];
+            this.oxygenCountFrequencies[aRingSize] = tmpRow;
+        } else if (anOxygenAtomCount >= tmpRow.length) {
+            tmpRow = Arrays.copyOf(tmpRow, anOxygenAtomCount + 1);
+            this.oxygenCountFrequencies[aRingSize] = tmpRow;
+        }
+        return tmpRow;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Returns the index of the last non-zero entry of the given array.
+     *
+     * @param anArray the array
+     * @return index of the last non-zero entry, -1 if all entries are zero
+     */
+    private static int getLastNonZeroIndex(int[] anArray) {
+        for (int i = anArray.length - 1; i >= 0; i--) {
+            if (anArray[i] != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    //</editor-fold>
+}
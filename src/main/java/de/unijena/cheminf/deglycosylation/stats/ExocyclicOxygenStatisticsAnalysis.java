@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Statistics of the exocyclic oxygen atoms attached to circular sugar candidates, as calculated for COCONUT in
+ * GlycosylationStatisticsTest: the frequency distribution of the exocyclic oxygen atoms to atoms in ring ratios and
+ * the frequency distributions of the exocyclic oxygen atom counts of 5-, 6-, and 7-membered candidates. The
+ * candidates are detected with all other SRU settings in default, and the counts are binned during detection by a
+ * {@link RecordingSugarRemovalUtility}. The distributions are printed to console and compiled in the "Output.txt" file
+ * and in CSV files.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class ExocyclicOxygenStatisticsAnalysis extends AbstractGlycosylationAnalysis {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this analysis on the command line
+     */
+    public static final String NAME = "exocyclic-oxygens";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Sugar Removal Utility instance of every thread running detect(), recording the exocyclic oxygen atom counts of
+     * the circular sugar candidates of the current molecule in its own histogram
+     */
+    private final ThreadLocal<RecordingSugarRemovalUtility> sugarRemovalUtil;
+
+    /**
+     * Histogram of the exocyclic oxygen atom counts of all circular sugar candidates
+     */
+    private final ExocyclicOxygenHistogram histogram;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of analysed molecules
+     */
+    private int moleculesCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Sole constructor of this class. The exocyclic oxygen atoms setting is enabled with a ratio threshold of zero, so
+     * that the counts are determined for every candidate but no candidate is discarded because of them, like with the
+     * setting disabled. All other SRU settings are in default.
+     */
+    public ExocyclicOxygenStatisticsAnalysis() {
+        this.sugarRemovalUtil = ThreadLocal.withInitial(() -> {
+            RecordingSugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(
+                    DefaultChemObjectBuilder.getInstance());
+            tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
+            tmpSugarRemovalUtil.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(true);
+            tmpSugarRemovalUtil.setExocyclicOxygenAtomsToAtomsInRingRatioThresholdSetting(0.0);
+            tmpSugarRemovalUtil.setExocyclicOxygenHistogram(new ExocyclicOxygenHistogram());
+            return tmpSugarRemovalUtil;
+        });
+        this.histogram = new ExocyclicOxygenHistogram();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return ExocyclicOxygenStatisticsAnalysis.NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void analyse(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        this.detect(aRecord, aMolecule).apply();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StatisticsUpdate detect(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = this.sugarRemovalUtil.get();
+        ExocyclicOxygenHistogram tmpThreadHistogram = tmpSugarRemovalUtil.getExocyclicOxygenHistogram();
+        //the candidates are recorded during detection, the returned list is not needed; they are only added to the
+        // statistics after the detection, see GlycosylationAnalysis.analyse()
+        tmpThreadHistogram.clear();
+        tmpSugarRemovalUtil.getCircularSugarCandidates(aMolecule.clone());
+        if (tmpThreadHistogram.getTotalCount() == 0) {
+            return () -> {
+                this.moleculesCounter++;
+            };
+        }
+        //the histogram of the thread is reused for the next molecule, so the update gets a copy
+        ExocyclicOxygenHistogram tmpMoleculeHistogram = new ExocyclicOxygenHistogram();
+        tmpMoleculeHistogram.merge(tmpThreadHistogram);
+        return () -> {
+            this.moleculesCounter++;
+            this.histogram.merge(tmpMoleculeHistogram);
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeResults() throws IOException {
+        this.printAndWrite("Molecules counter: " + this.moleculesCounter);
+        this.printAndWrite("");
+        this.printAndWrite("Frequency distribution of exocyclic oxygen atoms to atoms in ring ratios of circular sugars: ");
+        PrintWriter tmpRatioWriter = this.initializeOutputFile("ExoCycOxRatioFrequencies.csv");
+        tmpRatioWriter.println("Ratio" + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR + "Frequency");
+        for (int i = 0; i <= this.histogram.getMaxRatioBucket(); i++) {
+            String tmpLine = ExocyclicOxygenHistogram.getRatioLabel(i) + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR
+                    + this.histogram.getRatioFrequency(i);
+            this.printAndWrite(tmpLine);
+            tmpRatioWriter.println(tmpLine);
+        }
+        tmpRatioWriter.flush();
+        tmpRatioWriter.close();
+        this.printAndWrite("");
+        this.writeOxygenCountFrequencies(5, "ExoCycOxFuranosesFrequencies.csv");
+        this.writeOxygenCountFrequencies(6, "ExoCycOxPyranosesFrequencies.csv");
+        this.writeOxygenCountFrequencies(7, "ExoCycOxHeptosesFrequencies.csv");
+        int tmpUnexpectedRingSizeCounter = this.histogram.getTotalCount() - this.histogram.getRingSizeCount(5)
+                - this.histogram.getRingSizeCount(6) - this.histogram.getRingSizeCount(7);
+        this.printAndWrite("Number of circular sugar moieties that had an unexpected ring size (should be zero!): "
+                + tmpUnexpectedRingSizeCounter);
+        this.closeOutputFile();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of analysed molecules.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the histogram of the exocyclic oxygen atom counts of all circular sugar candidates detected so far.
+     *
+     * @return the histogram
+     */
+    public ExocyclicOxygenHistogram getHistogram() {
+        return this.histogram;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Prints and writes the frequency distribution of the exocyclic oxygen atom counts of candidates with the given ring
+     * size, also to a CSV file with the given name.
+     *
+     * @param aRingSize number of atoms in the ring
+     * @param aCSVFileName name of the CSV file
+     * @throws IOException if an output file cannot be created
+     */
+    private void writeOxygenCountFrequencies(int aRingSize, String aCSVFileName) throws IOException {
+        this.printAndWrite("Frequency distribution of exocyclic oxygen atom counts of " + aRingSize
+                + "-membered circular sugars: ");
+        PrintWriter tmpCSVWriter = this.initializeOutputFile(aCSVFileName);
+        tmpCSVWriter.println("NrOfOxygens" + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR + "Frequency");
+        for (int i = 0; i <= this.histogram.getMaxOxygenCount(aRingSize); i++) {
+            String tmpLine = i + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR
+                    + this.histogram.getOxygenCountFrequency(aRingSize, i);
+            this.printAndWrite(tmpLine);
+            tmpCSVWriter.println(tmpLine);
+        }
+        tmpCSVWriter.flush();
+        tmpCSVWriter.close();
+        this.printAndWrite("");
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+/**
+ * Indexed collection of fixed-width bit fingerprints that similarities can be computed on, e.g. for diversity picking
+ * or similarity search. Like in RDKit, the similarity of two empty fingerprints is zero. Implementations allow
+ * concurrent similarity computations as long as no fingerprints are added at the same time.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public interface FingerprintCollection {
+    /**
+     * Returns the number of fingerprints.
+     *
+     * @return size
+     */
+    int size();
+
+    /**
+     * Returns the number of bits of a fingerprint.
+     *
+     * @return number of bits, a multiple of 64
+     */
+    int getNumberOfBits();
+
+    /**
+     * Returns the word with the given index of the fingerprint with the given index. The indices are not checked.
+     *
+     * @param anIndex index of the fingerprint
+     * @param aWordIndex index of the 64-bit word, bit 0 of the fingerprint is the lowest bit of word 0
+     * @return the word
+     */
+    long getWord(int anIndex, int aWordIndex);
+
+    /**
+     * Returns the number of set bits of the fingerprint with the given index. The index is not checked.
+     *
+     * @param anIndex index of the fingerprint
+     * @return number of set bits
+     */
+    int getCardinality(int anIndex);
+
+    /**
+     * Returns the number of bits the two fingerprints have in common. The indices are not checked.
+     *
+     * @param anIndex index of the first fingerprint
+     * @param anotherIndex index of the second fingerprint
+     * @return number of common bits
+     */
+    default int getIntersectionCount(int anIndex, int anotherIndex) {
+        int tmpCount = 0;
+        for (int w = 0; w < this.getNumberOfBits() / Long.SIZE; w++) {
+            tmpCount += Long.bitCount(this.getWord(anIndex, w) & this.getWord(anotherIndex, w));
+        }
+        return tmpCount;
+    }
+
+    /**
+     * Returns the Dice similarity 2 * |A and B| / (|A| + |B|) of the two fingerprints. The indices are not checked.
+     *
+     * @param anIndex index of the first fingerprint
+     * @param anotherIndex index of the second fingerprint
+     * @return Dice similarity between 0 and 1
+     */
+    default double getDiceSimilarity(int anIndex, int anotherIndex) {
+        int tmpSum = this.getCardinality(anIndex) + this.getCardinality(anotherIndex);
+        if (tmpSum == 0) {
+            return 0.0;
+        }
+        return 2.0 * this.getIntersectionCount(anIndex, anotherIndex) / tmpSum;
+    }
+
+    /**
+     * Returns the Tanimoto similarity |A and B| / |A or B| of the two fingerprints. The indices are not checked.
+     *
+     * @param anIndex index of the first fingerprint
+     * @param anotherIndex index of the second fingerprint
+     * @return Tanimoto similarity between 0 and 1
+     */
+    default double getTanimotoSimilarity(int anIndex, int anotherIndex) {
+        int tmpIntersection = this.getIntersectionCount(anIndex, anotherIndex);
+        int tmpUnion = this.getCardinality(anIndex) + this.getCardinality(anotherIndex) - tmpIntersection;
+        if (tmpUnion == 0) {
+            return 0.0;
+        }
+        return (double) tmpIntersection / tmpUnion;
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Persistent store of fixed-width bit fingerprints with an ID index, e.g. of all molecules of a dataset or of their
+ * aglycones after deglycosylation. The fingerprints are kept in a binary file of fixed-size records that is
+ * memory-mapped for reading, so that screening, diversity picking, and similarity search run directly on the mapped
+ * pages without loading the fingerprints into the heap. The IDs are kept in a text file next to it, one per line in
+ * the order of the records; if an ID occurs more than once, the index refers to its first record.
+ * <br>The fingerprints file starts with a header of four ints (magic number, format version, number of bits, zero),
+ * followed by the records of number of bits / 64 little-endian longs each. Files larger than 1 GB are mapped in
+ * several segments. New fingerprints are appended through the file channel and mapped afterwards; appending is
+ * synchronized, but must not run concurrently with reading. See FingerprintStoreBuilder for building stores in
+ * parallel from a molecule source.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class FingerprintStore implements FingerprintCollection, Closeable {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Extension of the IDs file, appended to the path of the fingerprints file
+     */
+    public static final String IDS_FILE_EXTENSION = ".ids";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Magic number at the start of the fingerprints file, "GSFP"
+     */
+    private static final int MAGIC_NUMBER = 0x47534650;
+
+    /**
+     * Version of the file format
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Size of the header of the fingerprints file in bytes
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Maximum size of a mapped segment in bytes
+     */
+    private static final long DEFAULT_MAX_SEGMENT_SIZE = 1L << 30;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * File of the fingerprint records
+     */
+    private final File fingerprintsFile;
+
+    /**
+     * Channel of the fingerprints file
+     */
+    private final FileChannel channel;
+
+    /**
+     * Writer appending to the IDs file
+     */
+    private final BufferedWriter idsWriter;
+
+    /**
+     * Number of bits of a fingerprint
+     */
+    private final int numberOfBits;
+
+    /**
+     * Number of long words of a fingerprint
+     */
+    private final int wordsPerFingerprint;
+
+    /**
+     * Size of a record in bytes
+     */
+    private final int recordSize;
+
+    /**
+     * Number of records in a mapped segment
+     */
+    private final int recordsPerSegment;
+
+    /**
+     * IDs of the records
+     */
+    private final List<String> ids;
+
+    /**
+     * Index of the first record of every ID
+     */
+    private final Map<String, Integer> idIndex;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of set bits of every record
+     */
+    private int[] cardinalities;
+
+    /**
+     * Mapped segments of the records; all but the last one are full
+     */
+    private MappedByteBuffer[] segments;
+
+    /**
+     * Number of records
+     */
+    private int size;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Opens the store, reading the IDs and mapping the records.
+     */
+    private FingerprintStore(File aFingerprintsFile, FileChannel aChannel, int aNumberOfBits, long aMaxSegmentSize)
+            throws IOException {
+        this.fingerprintsFile = aFingerprintsFile;
+        this.channel = aChannel;
+        this.numberOfBits = aNumberOfBits;
+        this.wordsPerFingerprint = aNumberOfBits / Long.SIZE;
+        this.recordSize = this.wordsPerFingerprint * Long.BYTES;
+        this.recordsPerSegment = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, aMaxSegmentSize / this.recordSize));
+        long tmpRecordsSize = this.channel.size() - FingerprintStore.HEADER_SIZE;
+        if (tmpRecordsSize % this.recordSize != 0) {
+            throw new IOException("Fingerprints file " + aFingerprintsFile + " ends with an incomplete record.");
+        }
+        int tmpSize = Math.toIntExact(tmpRecordsSize / this.recordSize);
+        File tmpIDsFile = FingerprintStore.getIDsFile(aFingerprintsFile);
+        this.ids = new ArrayList<>(Math.max(16, tmpSize));
+        this.idIndex = new HashMap<>(Math.max(16, (int) (tmpSize * 1.5)), 1.0f);
+        if (tmpIDsFile.exists()) {
+            try (BufferedReader tmpReader = new BufferedReader(new InputStreamReader(new FileInputStream(tmpIDsFile),
+                    StandardCharsets.UTF_8))) {
+                String tmpLine;
+                while (!Objects.isNull(tmpLine = tmpReader.readLine())) {
+                    this.idIndex.putIfAbsent(tmpLine, this.ids.size());
+                    this.ids.add(tmpLine);
+                }
+            }
+        }
+        if (this.ids.size() != tmpSize) {
+            throw new IOException("IDs file " + tmpIDsFile + " contains " + this.ids.size() + " IDs for " + tmpSize
+                    + " fingerprints.");
+        }
+        this.idsWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpIDsFile, true),
+                StandardCharsets.UTF_8));
+        this.segments = new MappedByteBuffer[0];
+        this.size = tmpSize;
+        this.mapSegments();
+        this.cardinalities = new int[Math.max(16, tmpSize)];
+        for (int i = 0; i < tmpSize; i++) {
+            int tmpCardinality = 0;
+            for (int w = 0; w < this.wordsPerFingerprint; w++) {
+                tmpCardinality += Long.bitCount(this.getWord(i, w));
+            }
+            this.cardinalities[i] = tmpCardinality;
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Creates a new, empty store. Existing files at the given path and the respective IDs file are overwritten.
+     *
+     * @param aFingerprintsFile file of the fingerprint records; the IDs are written to the same path with the IDs file
+     *                          extension appended
+     * @param aNumberOfBits number of bits of a fingerprint, rounded up to a multiple of 64
+     * @return the opened store
+     * @throws NullPointerException if the given file is null
+     * @throws IllegalArgumentException if the number of bits is smaller than 1
+     * @throws IOException if the files cannot be written
+     */
+    public static FingerprintStore create(File aFingerprintsFile, int aNumberOfBits)
+            throws NullPointerException, IllegalArgumentException, IOException {
+        return FingerprintStore.create(aFingerprintsFile, aNumberOfBits, FingerprintStore.DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens an existing store for reading and appending.
+     *
+     * @param aFingerprintsFile file of the fingerprint records
+     * @return the opened store
+     * @throws NullPointerException if the given file is null
+     * @throws IOException if the files cannot be read, are no fingerprint store, or do not match
+     */
+    public static FingerprintStore open(File aFingerprintsFile) throws NullPointerException, IOException {
+        return FingerprintStore.open(aFingerprintsFile, FingerprintStore.DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * Returns the IDs file belonging to the given fingerprints file.
+     *
+     * @param aFingerprintsFile file of the fingerprint records
+     * @return IDs file
+     */
+    public static File getIDsFile(File aFingerprintsFile) {
+        return new File(aFingerprintsFile.getPath() + FingerprintStore.IDS_FILE_EXTENSION);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Package-private static methods">
+    /**
+     * Creates a new, empty store with the given maximum size of the mapped segments, e.g. to test segmentation on
+     * small files.
+     */
+    static FingerprintStore create(File aFingerprintsFile, int aNumberOfBits, long aMaxSegmentSize)
+            throws NullPointerException, IllegalArgumentException, IOException {
+        Objects.requireNonNull(aFingerprintsFile, "Given file is 'null'.");
+        if (aNumberOfBits < 1) {
+            throw new IllegalArgumentException("Given number of bits is smaller than 1.");
+        }
+        int tmpNumberOfBits = (aNumberOfBits + Long.SIZE - 1) / Long.SIZE * Long.SIZE;
+        FileChannel tmpChannel = FileChannel.open(aFingerprintsFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer tmpHeader = ByteBuffer.allocate(FingerprintStore.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            tmpHeader.putInt(FingerprintStore.MAGIC_NUMBER).putInt(FingerprintStore.FORMAT_VERSION)
+                    .putInt(tmpNumberOfBits).putInt(0).flip();
+            while (tmpHeader.hasRemaining()) {
+                tmpChannel.write(tmpHeader);
+            }
+            new FileOutputStream(FingerprintStore.getIDsFile(aFingerprintsFile)).close();
+            return new FingerprintStore(aFingerprintsFile, tmpChannel, tmpNumberOfBits, aMaxSegmentSize);
+        } catch (IOException | RuntimeException anException) {
+            tmpChannel.close();
+            throw anException;
+        }
+    }
+
+    /**
+     * Opens an existing store with the given maximum size of the mapped segments, e.g. to test segmentation on small
+     * files.
+     */
+    static FingerprintStore open(File aFingerprintsFile, long aMaxSegmentSize) throws NullPointerException, IOException {
+        Objects.requireNonNull(aFingerprintsFile, "Given file is 'null'.");
+        FileChannel tmpChannel = FileChannel.open(aFingerprintsFile.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer tmpHeader = ByteBuffer.allocate(FingerprintStore.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (tmpHeader.hasRemaining()) {
+                if (tmpChannel.read(tmpHeader, tmpHeader.position()) < 0) {
+                    throw new IOException("File " + aFingerprintsFile + " is too short for a fingerprint store.");
+                }
+            }
+            tmpHeader.flip();
+            if (tmpHeader.getInt() != FingerprintStore.MAGIC_NUMBER
+                    || tmpHeader.getInt() != FingerprintStore.FORMAT_VERSION) {
+                throw new IOException("File " + aFingerprintsFile + " is no fingerprint store of a supported version.");
+            }
+            int tmpNumberOfBits = tmpHeader.getInt();
+            if (tmpNumberOfBits < 1 || tmpNumberOfBits % Long.SIZE != 0) {
+                throw new IOException("File " + aFingerprintsFile + " has an invalid number of bits.");
+            }
+            return new FingerprintStore(aFingerprintsFile, tmpChannel, tmpNumberOfBits, aMaxSegmentSize);
+        } catch (IOException | RuntimeException anException) {
+            tmpChannel.close();
+            throw anException;
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Appends the given fingerprints with their IDs, writes them to disk, and maps them.
+     *
+     * @param anIDsList IDs of the fingerprints; they must not contain line breaks
+     * @param aFingerprintsList fingerprints, same order as the IDs
+     * @throws NullPointerException if a list, an ID, or a fingerprint is null
+     * @throws IllegalArgumentException if the lists differ in size, an ID contains a line break, or a fingerprint has
+     * bits set beyond the fingerprint width
+     * @throws IOException if the files cannot be written
+     */
+    public synchronized void append(List<String> anIDsList, List<BitSet> aFingerprintsList)
+            throws NullPointerException, IllegalArgumentException, IOException {
+        Objects.requireNonNull(anIDsList, "Given IDs list is 'null'.");
+        Objects.requireNonNull(aFingerprintsList, "Given fingerprints list is 'null'.");
+        if (anIDsList.size() != aFingerprintsList.size()) {
+            throw new IllegalArgumentException("Given lists differ in size.");
+        }
+        int tmpCount = anIDsList.size();
+        for (int i = 0; i < tmpCount; i++) {
+            String tmpID = Objects.requireNonNull(anIDsList.get(i), "An ID is 'null'.");
+            if (tmpID.indexOf('\n') >= 0 || tmpID.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("ID " + tmpID + " contains a line break.");
+            }
+            if (Objects.requireNonNull(aFingerprintsList.get(i), "A fingerprint is 'null'.").length() > this.numberOfBits) {
+                throw new IllegalArgumentException("Fingerprint of " + tmpID + " has set bits beyond "
+                        + this.numberOfBits + " bits.");
+            }
+        }
+        if (tmpCount == 0) {
+            return;
+        }
+        ByteBuffer tmpBuffer = ByteBuffer.allocate(Math.multiplyExact(tmpCount, this.recordSize))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int[] tmpCardinalities = new int[tmpCount];
+        for (int i = 0; i < tmpCount; i++) {
+            BitSet tmpFingerprint = aFingerprintsList.get(i);
+            long[] tmpWords = Arrays.copyOf(tmpFingerprint.toLongArray(), this.wordsPerFingerprint);
+            for (long tmpWord : tmpWords) {
+                tmpBuffer.putLong(tmpWord);
+            }
+            tmpCardinalities[i] = tmpFingerprint.cardinality();
+        }
+        tmpBuffer.flip();
+        long tmpPosition = FingerprintStore.HEADER_SIZE + (long) this.size * this.recordSize;
+        while (tmpBuffer.hasRemaining()) {
+            tmpPosition += this.channel.write(tmpBuffer, tmpPosition);
+        }
+        for (String tmpID : anIDsList) {
+            this.idsWriter.write(tmpID);
+            this.idsWriter.write('\n');
+        }
+        this.idsWriter.flush();
+        if (this.size + tmpCount > this.cardinalities.length) {
+            this.cardinalities = Arrays.copyOf(this.cardinalities, Math.max(this.size + tmpCount,
+                    this.cardinalities.length + (this.cardinalities.length >> 1)));
+        }
+        System.arraycopy(tmpCardinalities, 0, this.cardinalities, this.size, tmpCount);
+        for (String tmpID : anIDsList) {
+            this.idIndex.putIfAbsent(tmpID, this.ids.size());
+            this.ids.add(tmpID);
+        }
+        this.size += tmpCount;
+        this.mapSegments();
+    }
+
+    /**
+     * Returns the fingerprint at the given index as bit set.
+     *
+     * @param anIndex index of the fingerprint
+     * @return new bit set
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public BitSet get(int anIndex) throws IndexOutOfBoundsException {
+        Objects.checkIndex(anIndex, this.size);
+        long[] tmpWords = new long[this.wordsPerFingerprint];
+        for (int w = 0; w < this.wordsPerFingerprint; w++) {
+            tmpWords[w] = this.getWord(anIndex, w);
+        }
+        return BitSet.valueOf(tmpWords);
+    }
+
+    /**
+     * Returns the index of the first fingerprint with the given ID.
+     *
+     * @param anID the ID
+     * @return index or -1 if the ID is not in the store
+     */
+    public int indexOf(String anID) {
+        Integer tmpIndex = this.idIndex.get(anID);
+        return Objects.isNull(tmpIndex) ? -1 : tmpIndex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWord(int anIndex, int aWordIndex) {
+        return this.segments[anIndex / this.recordsPerSegment].getLong(
+                (anIndex % this.recordsPerSegment) * this.recordSize + aWordIndex * Long.BYTES);
+    }
+
+    /**
+     * Closes the files. The mapped segments are released when they are garbage collected.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            this.idsWriter.close();
+        } finally {
+            this.channel.close();
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumberOfBits() {
+        return this.numberOfBits;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCardinality(int anIndex) {
+        return this.cardinalities[anIndex];
+    }
+
+    /**
+     * Returns the ID of the fingerprint at the given index.
+     *
+     * @param anIndex index of the fingerprint
+     * @return ID
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String getID(int anIndex) throws IndexOutOfBoundsException {
+        return this.ids.get(anIndex);
+    }
+
+    /**
+     * Returns the file of the fingerprint records.
+     *
+     * @return fingerprints file
+     */
+    public File getFingerprintsFile() {
+        return this.fingerprintsFile;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Maps all records that are not in a full mapped segment yet; full segments are kept.
+     */
+    private void mapSegments() throws IOException {
+        int tmpNumberOfSegments = (this.size + this.recordsPerSegment - 1) / this.recordsPerSegment;
+        int tmpFirstSegmentToMap = Math.max(0, this.segments.length - 1);
+        MappedByteBuffer[] tmpSegments = Arrays.copyOf(this.segments, tmpNumberOfSegments);
+        for (int s = tmpFirstSegmentToMap; s < tmpNumberOfSegments; s++) {
+            long tmpFirstRecord = (long) s * this.recordsPerSegment;
+            long tmpRecordCount = Math.min(this.recordsPerSegment, this.size - tmpFirstRecord);
+            tmpSegments[s] = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                    FingerprintStore.HEADER_SIZE + tmpFirstRecord * this.recordSize, tmpRecordCount * this.recordSize);
+            tmpSegments[s].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.segments = tmpSegments;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,388 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.fingerprint.CircularFingerprinter;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fills a molecule and an aglycone fingerprint store from a molecule source, computing the fingerprints in parallel
+ * on a ForkJoinPool. For every molecule, the ECFP6 fingerprint of its biggest fragment is appended to the molecule
+ * store; the biggest fragment is then deglycosylated with an SRU in default settings (removal of circular and linear
+ * sugars), and the fingerprint of the remaining aglycone is appended to the aglycone store with the same ID, unless
+ * nothing remains. Molecules without sugars are their own aglycone. The source is read in batches, and the next batch
+ * is read while the previous one is processed; the fingerprints are appended in the order of the source.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class FingerprintStoreBuilder {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * File name suffix of molecule stores created by build()
+     */
+    public static final String MOLECULES_STORE_SUFFIX = "_molecules.fps";
+
+    /**
+     * File name suffix of aglycone stores created by build()
+     */
+    public static final String AGLYCONES_STORE_SUFFIX = "_aglycones.fps";
+
+    /**
+     * Default number of molecules read and appended in one batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(FingerprintStoreBuilder.class.getName());
+
+    /**
+     * Maximum number of molecules processed in one task
+     */
+    private static final int TASK_SIZE = 32;
+
+    /**
+     * SRU instance of every worker thread, in the settings of the SRU pool
+     */
+    private static final ThreadLocal<SugarRemovalUtility> SUGAR_REMOVAL_UTIL = ThreadLocal.withInitial(
+            SugarRemovalUtilityPool::createInstance);
+
+    /**
+     * SMILES parser of every worker thread
+     */
+    private static final ThreadLocal<SmilesParser> SMILES_PARSER = ThreadLocal.withInitial(
+            () -> new SmilesParser(DefaultChemObjectBuilder.getInstance()));
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Store the molecule fingerprints are appended to
+     */
+    private final FingerprintStore moleculeStore;
+
+    /**
+     * Store the aglycone fingerprints are appended to
+     */
+    private final FingerprintStore aglyconeStore;
+
+    /**
+     * Number of worker threads
+     */
+    private final int parallelism;
+
+    /**
+     * Number of molecules read and appended in one batch
+     */
+    private final int batchSize;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of molecules read from the sources
+     */
+    private int moleculesCounter;
+
+    /**
+     * Number of molecules that could not be read, parsed, or fingerprinted
+     */
+    private int failedMoleculesCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a builder appending to the given stores.
+     *
+     * @param aMoleculeStore store for the molecule fingerprints
+     * @param anAglyconeStore store for the aglycone fingerprints
+     * @param aParallelism number of worker threads
+     * @param aBatchSize number of molecules read and appended in one batch
+     * @throws NullPointerException if a store is null
+     * @throws IllegalArgumentException if the stores differ in their number of bits or the parallelism or batch size
+     * is smaller than 1
+     */
+    public FingerprintStoreBuilder(FingerprintStore aMoleculeStore, FingerprintStore anAglyconeStore, int aParallelism,
+                                   int aBatchSize) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aMoleculeStore, "Given molecule store is 'null'.");
+        Objects.requireNonNull(anAglyconeStore, "Given aglycone store is 'null'.");
+        if (aMoleculeStore.getNumberOfBits() != anAglyconeStore.getNumberOfBits()) {
+            throw new IllegalArgumentException("Given stores differ in their number of bits.");
+        }
+        if (aParallelism < 1 || aBatchSize < 1) {
+            throw new IllegalArgumentException("Parallelism and batch size must be at least 1.");
+        }
+        this.moleculeStore = aMoleculeStore;
+        this.aglyconeStore = anAglyconeStore;
+        this.parallelism = aParallelism;
+        this.batchSize = aBatchSize;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Creates a new molecule and aglycone store for the given source in the given folder, named after the source with
+     * the respective suffix, and fills them.
+     *
+     * @param aMoleculeSource source of the molecules; it is read but not closed
+     * @param anOutputFolder folder of the stores, created if it does not exist
+     * @param aNumberOfBits number of bits of the fingerprints
+     * @param aParallelism number of worker threads
+     * @return the builder after appending, e.g. to query its counters
+     * @throws NullPointerException if the source or folder is null
+     * @throws IllegalArgumentException if the number of bits or the parallelism is smaller than 1
+     * @throws IOException if the source cannot be read or the stores cannot be written
+     */
+    public static FingerprintStoreBuilder build(MoleculeSource aMoleculeSource, File anOutputFolder, int aNumberOfBits,
+                                                int aParallelism)
+            throws NullPointerException, IllegalArgumentException, IOException {
+        Objects.requireNonNull(aMoleculeSource, "Given molecule source is 'null'.");
+        Objects.requireNonNull(anOutputFolder, "Given output folder is 'null'.");
+        if (!anOutputFolder.exists()) {
+            anOutputFolder.mkdirs();
+        }
+        String tmpName = aMoleculeSource.getName();
+        int tmpExtensionIndex = tmpName.lastIndexOf('.');
+        if (tmpExtensionIndex > 0) {
+            tmpName = tmpName.substring(0, tmpExtensionIndex);
+        }
+        try (FingerprintStore tmpMoleculeStore = FingerprintStore.create(new File(anOutputFolder,
+                tmpName + FingerprintStoreBuilder.MOLECULES_STORE_SUFFIX), aNumberOfBits);
+             FingerprintStore tmpAglyconeStore = FingerprintStore.create(new File(anOutputFolder,
+                     tmpName + FingerprintStoreBuilder.AGLYCONES_STORE_SUFFIX), aNumberOfBits)) {
+            FingerprintStoreBuilder tmpBuilder = new FingerprintStoreBuilder(tmpMoleculeStore, tmpAglyconeStore,
+                    aParallelism, FingerprintStoreBuilder.DEFAULT_BATCH_SIZE);
+            tmpBuilder.append(aMoleculeSource);
+            return tmpBuilder;
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Appends the fingerprints of all molecules of the given source to the stores.
+     *
+     * @param aMoleculeSource source of the molecules; it is read but not closed
+     * @throws NullPointerException if the source is null
+     * @throws IOException if the source cannot be read or the stores cannot be written
+     */
+    public void append(MoleculeSource aMoleculeSource) throws NullPointerException, IOException {
+        Objects.requireNonNull(aMoleculeSource, "Given molecule source is 'null'.");
+        ForkJoinPool tmpPool = new ForkJoinPool(this.parallelism);
+        try {
+            ForkJoinTask<Void> tmpPendingTask = null;
+            BatchTask tmpPendingBatch = null;
+            while (true) {
+                List<MoleculeRecord> tmpRecords = new ArrayList<>(this.batchSize);
+                while (tmpRecords.size() < this.batchSize && aMoleculeSource.hasNext()) {
+                    this.moleculesCounter++;
+                    try {
+                        tmpRecords.add(aMoleculeSource.next());
+                    } catch (IllegalArgumentException anException) {
+                        FingerprintStoreBuilder.LOGGER.log(Level.WARNING, anException.toString());
+                        this.failedMoleculesCounter++;
+                    }
+                }
+                if (!Objects.isNull(tmpPendingTask)) {
+                    tmpPendingTask.join();
+                    this.appendBatch(tmpPendingBatch);
+                }
+                if (tmpRecords.isEmpty()) {
+                    break;
+                }
+                tmpPendingBatch = new BatchTask(tmpRecords, this.moleculeStore.getNumberOfBits(), 0, tmpRecords.size());
+                tmpPendingTask = tmpPool.submit(tmpPendingBatch);
+            }
+        } finally {
+            tmpPool.shutdown();
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of molecules read from the sources.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the number of molecules that could not be read, parsed, or fingerprinted.
+     *
+     * @return failed molecules counter
+     */
+    public int getFailedMoleculesCounter() {
+        return this.failedMoleculesCounter;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Appends the results of a processed batch to the stores, skipping failed molecules.
+     */
+    private void appendBatch(BatchTask aBatch) throws IOException {
+        int tmpSize = aBatch.records.size();
+        List<String> tmpMoleculeIDs = new ArrayList<>(tmpSize);
+        List<BitSet> tmpMoleculeFingerprints = new ArrayList<>(tmpSize);
+        List<String> tmpAglyconeIDs = new ArrayList<>(tmpSize);
+        List<BitSet> tmpAglyconeFingerprints = new ArrayList<>(tmpSize);
+        for (int i = 0; i < tmpSize; i++) {
+            if (Objects.isNull(aBatch.moleculeFingerprints[i])) {
+                this.failedMoleculesCounter++;
+                continue;
+            }
+            String tmpID = aBatch.records.get(i).getID();
+            tmpMoleculeIDs.add(tmpID);
+            tmpMoleculeFingerprints.add(aBatch.moleculeFingerprints[i]);
+            if (!Objects.isNull(aBatch.aglyconeFingerprints[i])) {
+                tmpAglyconeIDs.add(tmpID);
+                tmpAglyconeFingerprints.add(aBatch.aglyconeFingerprints[i]);
+            }
+        }
+        this.moleculeStore.append(tmpMoleculeIDs, tmpMoleculeFingerprints);
+        this.aglyconeStore.append(tmpAglyconeIDs, tmpAglyconeFingerprints);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private classes">
+    /**
+     * Task computing the molecule and aglycone fingerprints of a range of a batch of records. Failed molecules get no
+     * molecule fingerprint, molecules that are completely removed as sugar get no aglycone fingerprint.
+     */
+    private static class BatchTask extends RecursiveAction {
+        /**
+         * Records of the batch
+         */
+        private final List<MoleculeRecord> records;
+
+        /**
+         * Molecule fingerprints of the batch, shared by all subtasks
+         */
+        private final BitSet[] moleculeFingerprints;
+
+        /**
+         * Aglycone fingerprints of the batch, shared by all subtasks
+         */
+        private final BitSet[] aglyconeFingerprints;
+
+        /**
+         * Number of bits of the fingerprints
+         */
+        private final int numberOfBits;
+
+        /**
+         * First index of the range
+         */
+        private final int start;
+
+        /**
+         * End index of the range, exclusive
+         */
+        private final int end;
+
+        /**
+         * Creates the task of a whole batch.
+         */
+        BatchTask(List<MoleculeRecord> aRecordsList, int aNumberOfBits, int aStart, int anEnd) {
+            this(aRecordsList, new BitSet[aRecordsList.size()], new BitSet[aRecordsList.size()], aNumberOfBits,
+                    aStart, anEnd);
+        }
+
+        /**
+         * Creates the task of a range of a batch.
+         */
+        private BatchTask(List<MoleculeRecord> aRecordsList, BitSet[] aMoleculeFingerprints,
+                          BitSet[] anAglyconeFingerprints, int aNumberOfBits, int aStart, int anEnd) {
+            this.records = aRecordsList;
+            this.moleculeFingerprints = aMoleculeFingerprints;
+            this.aglyconeFingerprints = anAglyconeFingerprints;
+            this.numberOfBits = aNumberOfBits;
+            this.start = aStart;
+            this.end = anEnd;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            if (this.end - this.start > FingerprintStoreBuilder.TASK_SIZE) {
+                int tmpMiddle = (this.start + this.end) >>> 1;
+                ForkJoinTask.invokeAll(
+                        new BatchTask(this.records, this.moleculeFingerprints, this.aglyconeFingerprints,
+                                this.numberOfBits, this.start, tmpMiddle),
+                        new BatchTask(this.records, this.moleculeFingerprints, this.aglyconeFingerprints,
+                                this.numberOfBits, tmpMiddle, this.end));
+                return;
+            }
+            //the fingerprinter keeps state of the last molecule, so every task uses its own
+            CircularFingerprinter tmpFingerprinter = new CircularFingerprinter(CircularFingerprinter.CLASS_ECFP6,
+                    this.numberOfBits);
+            SugarRemovalUtility tmpSugarRemovalUtil = FingerprintStoreBuilder.SUGAR_REMOVAL_UTIL.get();
+            SmilesParser tmpSmiPar = FingerprintStoreBuilder.SMILES_PARSER.get();
+            for (int i = this.start; i < this.end; i++) {
+                MoleculeRecord tmpRecord = this.records.get(i);
+                try {
+                    IAtomContainer tmpMolecule = tmpRecord.isGivenAsSmilesCode()
+                            ? tmpSmiPar.parseSmiles(tmpRecord.getSmilesCode()) : tmpRecord.getAtomContainer();
+                    if (!ConnectivityChecker.isConnected(tmpMolecule)) {
+                        tmpMolecule = SugarRemovalUtility.selectBiggestUnconnectedFragment(tmpMolecule);
+                    }
+                    BitSet tmpMoleculeFingerprint = tmpFingerprinter.getBitFingerprint(tmpMolecule).asBitSet();
+                    IAtomContainer tmpAglycone = tmpSugarRemovalUtil.removeCircularAndLinearSugars(tmpMolecule, true);
+                    if (!tmpAglycone.isEmpty()) {
+                        this.aglyconeFingerprints[i] = tmpAglycone.getAtomCount() == tmpMolecule.getAtomCount()
+                                ? tmpMoleculeFingerprint : tmpFingerprinter.getBitFingerprint(tmpAglycone).asBitSet();
+                    }
+                    this.moleculeFingerprints[i] = tmpMoleculeFingerprint;
+                } catch (Exception anException) {
+                    FingerprintStoreBuilder.LOGGER.log(Level.WARNING, anException + " ID: " + tmpRecord.getID(),
+                            anException);
+                }
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+
+/**
+ * An analysis that is run on every molecule of a dataset by the {@link GlycosylationStatisticsRunner}. It corresponds
+ * to the body of the molecule loop of one of the test methods in GlycosylationStatisticsTest; the statistics are
+ * compiled in output files in the analysis-specific output folder after the whole dataset has been processed.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public interface GlycosylationAnalysis {
+    /**
+     * Returns the name of the analysis as it is given on the command line, e.g. "basics". It is also used as name of
+     * the analysis-specific output folder.
+     *
+     * @return name of the analysis
+     */
+    String getName();
+
+    /**
+     * Returns the normaliser that produces the form of the molecules this analysis expects in analyse(). The runner
+     * normalises every molecule once per distinct normaliser of all analyses. Per default, the parsed molecule is
+     * passed as it is.
+     *
+     * @return the required normaliser
+     */
+    default MoleculeNormalizer getRequiredNormalizer() {
+        return MoleculeNormalizer.NONE;
+    }
+
+    /**
+     * Sets up the analysis before the first molecule is processed, e.g. opens files that are written to per molecule.
+     *
+     * @param anOutputFolderPath path of the analysis-specific output folder, ending with a file separator
+     * @throws IOException if an output file cannot be created
+     */
+    void initialize(String anOutputFolderPath) throws IOException;
+
+    /**
+     * Analyses one molecule. Exceptions are caught, logged, and counted by the runner; the analysis continues with the
+     * next molecule afterwards. Implementations run all their sugar detections before they update any statistic, so
+     * that the runner can stop them at the deadline of a {@link MoleculeTimeBudget} and analyse the molecule again
+     * later without counting it twice. Implementations that override detect() simply apply its update here.
+     *
+     * @param aRecord the record the molecule was read from, supplying ID and further information
+     * @param aMolecule the parsed molecule in the form produced by the required normaliser; it may be shared with
+     *                  other analyses and must not be altered
+     * @throws Exception if anything goes wrong with this molecule
+     */
+    void analyse(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception;
+
+    /**
+     * Runs the sugar detections of analyse() on one molecule without updating any statistic and returns the update of
+     * the statistics with their results. The runner calls this method concurrently on its worker threads and applies
+     * the updates one after another in the order of the molecules, so the statistics are the same as with analyse().
+     * Implementations that override it keep a Sugar Removal Utility instance per thread and touch their statistics
+     * only in the returned update. Per default, the whole analysis is deferred to the update, i.e. it is run on the
+     * thread that applies the updates.
+     *
+     * @param aRecord the record the molecule was read from, supplying ID and further information
+     * @param aMolecule the parsed molecule in the form produced by the required normaliser; it may be shared with
+     *                  other analyses and must not be altered
+     * @return the update of the statistics with the results of this molecule
+     * @throws Exception if anything goes wrong with this molecule
+     */
+    default StatisticsUpdate detect(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        return () -> this.analyse(aRecord, aMolecule);
+    }
+
+    /**
+     * Reduces the memory retained by the analysis between molecules; called by the runner while the heap usage is
+     * above the thresholds of its HeapMemoryMonitor. Under high pressure, retained data like ID lists should be moved
+     * to disk; under critical pressure, it should be dropped, keeping only the counters. Per default, nothing is done.
+     *
+     * @param aPressure the current memory pressure, HIGH or CRITICAL
+     * @throws IOException if retained data cannot be written to disk
+     */
+    default void reduceMemoryFootprint(HeapMemoryMonitor.Pressure aPressure) throws IOException {
+        //nothing retained per default
+    }
+
+    /**
+     * Compiles the statistics after all molecules have been processed, writes them to console and output files, and
+     * closes all files opened by this analysis.
+     *
+     * @throws IOException if the output cannot be written
+     */
+    void writeResults() throws IOException;
+
+    /**
+     * Update of the statistics of an analysis with the results of the sugar detections on one molecule, see detect().
+     */
+    @FunctionalInterface
+    interface StatisticsUpdate {
+        /**
+         * Adds the results of the molecule to the statistics.
+         *
+         * @throws Exception if anything goes wrong with this molecule
+         */
+        void apply() throws Exception;
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP service that analyses molecules on demand, based only on the JDK HTTP server. Endpoints:
+ * <ul>
+ *     <li>POST /analyse: the request body is a batch of molecules, one per line, given as SMILES code and optionally
+ *     an ID, separated by a space (the SMILES file format of the curated datasets); the response is a JSON object
+ *     with one entry per molecule in the "results" array, see MoleculeGlycosylationResult</li>
+ *     <li>GET /analyse?smiles=...&amp;id=...: the same for a single molecule; the SMILES code needs to be
+ *     URL-encoded, especially "+" as %2B</li>
+ *     <li>GET /health: pool and queue state</li>
+ * </ul>
+ * Batches are split into chunks of a few molecules that are processed in parallel by a fixed number of worker
+ * threads, each holding a pre-warmed SRU instance from a SugarRemovalUtilityPool for the whole chunk. The work queue
+ * is bounded; if it is full, the request is rejected with status 503 and a Retry-After header instead of letting the
+ * latency of all requests grow (back-pressure). Batches with more molecules than the configured maximum are rejected
+ * with status 413.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class GlycosylationAnalysisServer {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default port the service listens on
+     */
+    public static final int DEFAULT_PORT = 8765;
+
+    /**
+     * Default number of molecules processed in one task by a worker thread
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16;
+
+    /**
+     * Default capacity of the work queue, in chunks
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    /**
+     * Default maximum number of molecules in one request
+     */
+    public static final int DEFAULT_MAX_MOLECULES_PER_REQUEST = 10000;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(GlycosylationAnalysisServer.class.getName());
+
+    /**
+     * Maximum time in seconds a request waits for its results
+     */
+    private static final long REQUEST_TIMEOUT_SECONDS = 60;
+
+    /**
+     * System property that makes the JDK HTTP server set TCP_NODELAY on its connections
+     */
+    private static final String NO_DELAY_PROPERTY_KEY = "sun.net.httpserver.nodelay";
+
+    /**
+     * SMILES parser of the current worker thread
+     */
+    private static final ThreadLocal<SmilesParser> SMILES_PARSER = ThreadLocal.withInitial(
+            () -> new SmilesParser(DefaultChemObjectBuilder.getInstance()));
+
+    /**
+     * SMILES generator of the current worker thread
+     */
+    private static final ThreadLocal<SmilesGenerator> SMILES_GENERATOR = ThreadLocal.withInitial(
+            () -> new SmilesGenerator(SmiFlavor.Unique));
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * The JDK HTTP server
+     */
+    private final HttpServer httpServer;
+
+    /**
+     * Threads handling the HTTP exchanges
+     */
+    private final ExecutorService requestExecutor;
+
+    /**
+     * Worker threads doing the analyses, with bounded queue
+     */
+    private final ThreadPoolExecutor workerExecutor;
+
+    /**
+     * Pre-warmed SRU instances, one per worker thread
+     */
+    private final SugarRemovalUtilityPool sugarRemovalUtilPool;
+
+    /**
+     * Number of molecules processed in one task
+     */
+    private final int chunkSize;
+
+    /**
+     * Maximum number of molecules in one request
+     */
+    private final int maxMoleculesPerRequest;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates the service and its pre-warmed SRU pool; it does not accept connections before start() is called.
+     *
+     * @param aPort port to listen on, 0 for any free port
+     * @param aNumberOfWorkers number of worker threads and pooled SRU instances
+     * @param aChunkSize number of molecules processed in one task
+     * @param aQueueCapacity capacity of the work queue, in chunks
+     * @param aMaxMoleculesPerRequest maximum number of molecules in one request
+     * @throws IllegalArgumentException if a number is not positive or the port is negative
+     * @throws IOException if the server socket cannot be bound
+     */
+    public GlycosylationAnalysisServer(int aPort, int aNumberOfWorkers, int aChunkSize, int aQueueCapacity,
+                                       int aMaxMoleculesPerRequest) throws IllegalArgumentException, IOException {
+        if (aPort < 0 || aNumberOfWorkers < 1 || aChunkSize < 1 || aQueueCapacity < 1 || aMaxMoleculesPerRequest < 1) {
+            throw new IllegalArgumentException("Port must not be negative and all other parameters must be positive.");
+        }
+        this.chunkSize = aChunkSize;
+        this.maxMoleculesPerRequest = aMaxMoleculesPerRequest;
+        this.sugarRemovalUtilPool = new SugarRemovalUtilityPool(aNumberOfWorkers);
+        this.workerExecutor = new ThreadPoolExecutor(aNumberOfWorkers, aNumberOfWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(aQueueCapacity), new ThreadPoolExecutor.AbortPolicy());
+        this.workerExecutor.prestartAllCoreThreads();
+        //handler threads mostly wait for the workers
+        this.requestExecutor = Executors.newFixedThreadPool(aNumberOfWorkers * 2);
+        //responses are small and written as header and body; without TCP_NODELAY, Nagle's algorithm and delayed ACKs
+        // add about 40 ms to every request. The JDK server reads this property once, before the first server is created
+        if (Objects.isNull(System.getProperty(GlycosylationAnalysisServer.NO_DELAY_PROPERTY_KEY))) {
+            System.setProperty(GlycosylationAnalysisServer.NO_DELAY_PROPERTY_KEY, "true");
+        }
+        this.httpServer = HttpServer.create(new InetSocketAddress(aPort), 0);
+        this.httpServer.setExecutor(this.requestExecutor);
+        this.httpServer.createContext("/analyse", this::handleAnalyse);
+        this.httpServer.createContext("/health", this::handleHealth);
+    }
+
+    /**
+     * Creates the service with default chunk size, queue capacity, and maximum request size.
+     *
+     * @param aPort port to listen on, 0 for any free port
+     * @param aNumberOfWorkers number of worker threads and pooled SRU instances
+     * @throws IllegalArgumentException if the number of workers is not positive or the port is negative
+     * @throws IOException if the server socket cannot be bound
+     */
+    public GlycosylationAnalysisServer(int aPort, int aNumberOfWorkers) throws IllegalArgumentException, IOException {
+        this(aPort, aNumberOfWorkers, GlycosylationAnalysisServer.DEFAULT_CHUNK_SIZE,
+                GlycosylationAnalysisServer.DEFAULT_QUEUE_CAPACITY,
+                GlycosylationAnalysisServer.DEFAULT_MAX_MOLECULES_PER_REQUEST);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        this.httpServer.start();
+        System.out.println("Glycosylation analysis service listening on port " + this.getPort() + ".");
+    }
+
+    /**
+     * Stops accepting connections, waits up to the given time for running exchanges, and shuts down all threads.
+     *
+     * @param aDelaySeconds maximum time to wait for running exchanges
+     */
+    public void stop(int aDelaySeconds) {
+        this.httpServer.stop(aDelaySeconds);
+        this.requestExecutor.shutdown();
+        this.workerExecutor.shutdown();
+    }
+
+    /**
+     * Returns the port the service listens on.
+     *
+     * @return port
+     */
+    public int getPort() {
+        return this.httpServer.getAddress().getPort();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Handles the /analyse endpoint.
+     */
+    private void handleAnalyse(HttpExchange anExchange) throws IOException {
+        try {
+            List<String[]> tmpMolecules;
+            if ("POST".equals(anExchange.getRequestMethod())) {
+                tmpMolecules = this.readBatch(anExchange);
+                if (Objects.isNull(tmpMolecules)) {
+                    this.sendJson(anExchange, 413, "{\"error\":\"More than " + this.maxMoleculesPerRequest
+                            + " molecules in request.\"}");
+                    return;
+                }
+            } else if ("GET".equals(anExchange.getRequestMethod())) {
+                tmpMolecules = new ArrayList<>(1);
+                String[] tmpSingleMolecule = GlycosylationAnalysisServer.readQuery(anExchange.getRequestURI().getRawQuery());
+                if (Objects.isNull(tmpSingleMolecule)) {
+                    this.sendJson(anExchange, 400, "{\"error\":\"Query parameter 'smiles' is missing.\"}");
+                    return;
+                }
+                tmpMolecules.add(tmpSingleMolecule);
+            } else {
+                anExchange.getResponseHeaders().add("Allow", "GET, POST");
+                this.sendJson(anExchange, 405, "{\"error\":\"Method not allowed.\"}");
+                return;
+            }
+            long tmpStartTime = System.nanoTime();
+            long tmpDeadline = tmpStartTime + TimeUnit.SECONDS.toNanos(GlycosylationAnalysisServer.REQUEST_TIMEOUT_SECONDS);
+            String[] tmpResultJsons = new String[tmpMolecules.size()];
+            List<Future<?>> tmpFutures = new ArrayList<>(tmpMolecules.size() / this.chunkSize + 1);
+            try {
+                for (int i = 0; i < tmpMolecules.size(); i += this.chunkSize) {
+                    int tmpFrom = i;
+                    int tmpTo = Math.min(i + this.chunkSize, tmpMolecules.size());
+                    tmpFutures.add(this.workerExecutor.submit(() -> this.analyseChunk(tmpMolecules, tmpFrom, tmpTo, tmpResultJsons,
+                            tmpDeadline)));
+                }
+            } catch (RejectedExecutionException anException) {
+                for (Future<?> tmpFuture : tmpFutures) {
+                    tmpFuture.cancel(false);
+                }
+                anExchange.getResponseHeaders().add("Retry-After", "1");
+                this.sendJson(anExchange, 503, "{\"error\":\"Service is at capacity, retry later.\"}");
+                return;
+            }
+            try {
+                for (Future<?> tmpFuture : tmpFutures) {
+                    tmpFuture.get(Math.max(0L, tmpDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } catch (TimeoutException | InterruptedException | ExecutionException anException) {
+                //nobody waits for the results anymore, so the workers are freed for other requests
+                for (Future<?> tmpFuture : tmpFutures) {
+                    tmpFuture.cancel(true);
+                }
+                throw anException;
+            }
+            StringBuilder tmpBuilder = new StringBuilder(tmpMolecules.size() * 400 + 64);
+            tmpBuilder.append("{\"results\":[");
+            for (int i = 0; i < tmpResultJsons.length; i++) {
+                if (i > 0) {
+                    tmpBuilder.append(',');
+                }
+                tmpBuilder.append(tmpResultJsons[i]);
+            }
+            tmpBuilder.append("],\"processingTimeMicroseconds\":")
+                    .append(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - tmpStartTime)).append('}');
+            this.sendJson(anExchange, 200, tmpBuilder.toString());
+        } catch (TimeoutException anException) {
+            this.sendJson(anExchange, 504, "{\"error\":\"Request timed out.\"}");
+        } catch (InterruptedException | ExecutionException anException) {
+            GlycosylationAnalysisServer.LOGGER.log(Level.SEVERE, anException.toString(), anException);
+            this.sendJson(anExchange, 500, "{\"error\":\"Internal error.\"}");
+        } finally {
+            anExchange.close();
+        }
+    }
+
+    /**
+     * Handles the /health endpoint.
+     */
+    private void handleHealth(HttpExchange anExchange) throws IOException {
+        try {
+            this.sendJson(anExchange, 200, "{\"status\":\"ok\",\"workers\":" + this.sugarRemovalUtilPool.getSize()
+                    + ",\"idleWorkers\":" + this.sugarRemovalUtilPool.getIdleCount()
+                    + ",\"queuedChunks\":" + this.workerExecutor.getQueue().size()
+                    + ",\"remainingQueueCapacity\":" + this.workerExecutor.getQueue().remainingCapacity() + "}");
+        } finally {
+            anExchange.close();
+        }
+    }
+
+    /**
+     * Analyses the molecules in the given range with a borrowed SRU instance and writes their JSON representations
+     * into the given array. Molecules that cannot be parsed or analysed get an error entry. Stops early if the chunk
+     * is cancelled or the given request deadline passes, also within the sugar detection of a molecule.
+     */
+    private void analyseChunk(List<String[]> aMoleculeList, int aFrom, int aTo, String[] aResultJsons,
+                              long aDeadlineNanos) {
+        SugarRemovalUtility tmpSugarRemovalUtil;
+        try {
+            tmpSugarRemovalUtil = this.sugarRemovalUtilPool.borrow();
+        } catch (InterruptedException anException) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        MoleculeTimeBudget.setDeadline(aDeadlineNanos);
+        try {
+            SmilesParser tmpSmiPar = GlycosylationAnalysisServer.SMILES_PARSER.get();
+            SmilesGenerator tmpSmiGen = GlycosylationAnalysisServer.SMILES_GENERATOR.get();
+            for (int i = aFrom; i < aTo; i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                String tmpSmilesCode = aMoleculeList.get(i)[0];
+                String tmpID = aMoleculeList.get(i)[1];
+                try {
+                    IAtomContainer tmpMolecule = tmpSmiPar.parseSmiles(tmpSmilesCode);
+                    tmpMolecule.setTitle(tmpID);
+                    aResultJsons[i] = MoleculeGlycosylationResult.compute(tmpID, tmpSmilesCode, tmpMolecule,
+                            tmpSugarRemovalUtil, tmpSmiGen).toJson();
+                } catch (MoleculeTimeBudget.BudgetExceededException anException) {
+                    //the request has timed out
+                    return;
+                } catch (Exception anException) {
+                    StringBuilder tmpBuilder = new StringBuilder(128);
+                    tmpBuilder.append("{\"id\":");
+                    MoleculeGlycosylationResult.appendJsonString(tmpBuilder, tmpID);
+                    tmpBuilder.append(",\"smiles\":");
+                    MoleculeGlycosylationResult.appendJsonString(tmpBuilder, tmpSmilesCode);
+                    tmpBuilder.append(",\"error\":");
+                    MoleculeGlycosylationResult.appendJsonString(tmpBuilder, anException.toString());
+                    tmpBuilder.append('}');
+                    aResultJsons[i] = tmpBuilder.toString();
+                }
+            }
+        } finally {
+            MoleculeTimeBudget.removeDeadline();
+            this.sugarRemovalUtilPool.release(tmpSugarRemovalUtil);
+        }
+    }
+
+    /**
+     * Reads the molecules of a POST request body as pairs of SMILES code and ID; molecules without ID are numbered.
+     * Returns null if the body contains more molecules than allowed.
+     */
+    private List<String[]> readBatch(HttpExchange anExchange) throws IOException {
+        List<String[]> tmpMolecules = new ArrayList<>(64);
+        try (BufferedReader tmpReader = new BufferedReader(new InputStreamReader(anExchange.getRequestBody(),
+                StandardCharsets.UTF_8))) {
+            String tmpLine;
+            while (!Objects.isNull(tmpLine = tmpReader.readLine())) {
+                String tmpTrimmedLine = tmpLine.trim();
+                if (tmpTrimmedLine.isEmpty()) {
+                    continue;
+                }
+                if (tmpMolecules.size() == this.maxMoleculesPerRequest) {
+                    return null;
+                }
+                String[] tmpSmilesCodeAndID = tmpTrimmedLine.split("\\s+", 3);
+                String tmpID = tmpSmilesCodeAndID.length > 1 ? tmpSmilesCodeAndID[1] : Integer.toString(tmpMolecules.size());
+                tmpMolecules.add(new String[]{tmpSmilesCodeAndID[0], tmpID});
+            }
+        }
+        return tmpMolecules;
+    }
+
+    /**
+     * Sends the given JSON string as response with the given status code.
+     */
+    private void sendJson(HttpExchange anExchange, int aStatusCode, String aJson) throws IOException {
+        byte[] tmpBytes = aJson.getBytes(StandardCharsets.UTF_8);
+        anExchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        anExchange.sendResponseHeaders(aStatusCode, tmpBytes.length);
+        try (OutputStream tmpOutputStream = anExchange.getResponseBody()) {
+            tmpOutputStream.write(tmpBytes);
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Reads the SMILES code and ID of a GET request from its raw query string; returns null if no SMILES code is
+     * given.
+     */
+    private static String[] readQuery(String aRawQuery) {
+        if (Objects.isNull(aRawQuery)) {
+            return null;
+        }
+        String tmpSmilesCode = null;
+        String tmpID = "0";
+        for (String tmpParameter : aRawQuery.split("&")) {
+            int tmpSeparatorIndex = tmpParameter.indexOf('=');
+            if (tmpSeparatorIndex < 0) {
+                continue;
+            }
+            String tmpName = tmpParameter.substring(0, tmpSeparatorIndex);
+            String tmpValue = URLDecoder.decode(tmpParameter.substring(tmpSeparatorIndex + 1), StandardCharsets.UTF_8);
+            if ("smiles".equals(tmpName)) {
+                tmpSmilesCode = tmpValue;
+            } else if ("id".equals(tmpName)) {
+                tmpID = tmpValue;
+            }
+        }
+        return Objects.isNull(tmpSmilesCode) ? null : new String[]{tmpSmilesCode, tmpID};
+    }
+    //</editor-fold>
+}
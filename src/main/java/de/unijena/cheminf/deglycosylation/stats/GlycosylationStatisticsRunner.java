@@ -0,0 +1,1136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import com.mongodb.MongoTimeoutException;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.FileHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Standalone command line runner for the glycosylation analyses. In contrast to the test methods in
+ * GlycosylationStatisticsTest, it does not need Maven Surefire or JUnit, takes the dataset from any path, and can run
+ * several analyses in one pass over the dataset. Usage:
+ * <pre>
+ * java -jar deglycosylation.stats-1.0.2.0.jar (--smiles FILE | --sdf FILE | --cache FILE
+ *      | --mongo [HOST:PORT/DATABASE/COLLECTION]) [--id-key KEY] [--smiles-key KEY] [--analyses NAME[,NAME...]]
+ *      [--output FOLDER] [--write-cache FILE] [--fingerprints FOLDER] [--sample N [--stratify]] [--workers N]
+ *      [--time-budget MILLISECONDS]
+ * java -jar deglycosylation.stats-1.0.2.0.jar --warm-up
+ * java -jar deglycosylation.stats-1.0.2.0.jar --serve [PORT] [--workers N]
+ * java -jar deglycosylation.stats-1.0.2.0.jar --compare FILE[,FILE...] [--id-key KEY] [--workers N] [--output FOLDER]
+ *      [--query-aglycones FILE] [--prescreen] [--result-tables]
+ * </pre>
+ * With --workers N (default: number of processors), the source is read on a dedicated thread and the molecules are
+ * parsed, normalised, and searched for sugars by the analyses on N - 1 threads, see MoleculePipeline, while the main
+ * thread merges the statistics updates of the analyses in the order of the source.
+ * With --write-cache, the normalised molecules are additionally written to a binary molecule cache that can be given
+ * as source with --cache in later runs on the same dataset with the same analyses, which skips parsing and
+ * normalisation. The --smiles-key option selects the SMILES code variant in MongoDB, e.g. "clean_smiles".
+ * With --fingerprints, no analyses are run; instead, persistent fingerprint stores of the molecules and their aglycones
+ * are built in the given folder, see FingerprintStoreBuilder.
+ * With --sample, no analyses are run either; instead, the basic statistics are estimated with confidence intervals from
+ * a random sample of N molecules, optionally stratified by heavy-atom count, see SamplingStatisticsJob.
+ * The serve mode starts a GlycosylationAnalysisServer that analyses molecules sent via HTTP until the process is
+ * terminated.
+ * The compare mode runs a MultiDatasetComparisonJob that compiles the basic statistics of all given SMILES files and
+ * SDFs (recognised by the extensions .sdf and .sd) concurrently and writes them to one comparison table. With
+ * --query-aglycones, an AglyconeSimilarityIndex of all compared datasets is built in the same pass and searched for
+ * the aglycones most similar to those of the molecules in the given SMILES file or SDF. With --prescreen, SMILES
+ * codes are pre-screened for sugar candidates by a SugarPrescreen before they are parsed. With --result-tables, the
+ * results of all molecules of every dataset are additionally written to a MoleculeResultTable and its ResultColumns
+ * in the output folder.
+ * The warm-up mode runs all analyses on a few built-in example molecules. It is meant as training run for creating a
+ * class-data-sharing (CDS) archive of the CDK and SRU classes, so that short runs on small inputs start fast:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=glycosylation-stats.jsa -jar deglycosylation.stats-1.0.2.0.jar --warm-up
+ * java -XX:SharedArchiveFile=glycosylation-stats.jsa -jar deglycosylation.stats-1.0.2.0.jar --smiles FILE ...
+ * </pre>
+ * The Maven profile "cds" creates the archive in the target directory when packaging.
+ * <br>With --time-budget, every molecule is analysed under a {@link MoleculeTimeBudget}: an analysis whose sugar
+ * detection exceeds the budget is stopped, and it and the remaining analyses are run on the molecule after all others
+ * or cancelled; all offenders are written to SlowMolecules.csv in the output folder.
+ * <br>While running, the heap usage is watched by a {@link HeapMemoryMonitor}; above its high threshold, the analyses
+ * spill their retained ID lists to their output folders, and above its critical threshold, they drop them and keep
+ * only their counters, instead of failing with an OutOfMemoryError late in a long run.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class GlycosylationStatisticsRunner {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default name of the output folder
+     */
+    public static final String DEFAULT_OUTPUT_FOLDER_NAME = "GlycosylationStatisticsRunner_Output";
+
+    /**
+     * Default SDF property / MongoDB document variable that contains the ID of a molecule
+     */
+    public static final String DEFAULT_ID_KEY = "coconut_id";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(GlycosylationStatisticsRunner.class.getName());
+
+    /**
+     * Available analyses by their names on the command line, in the order they are listed in the usage
+     */
+    private static final Map<String, Supplier<GlycosylationAnalysis>> ANALYSES;
+
+    /**
+     * Example molecules processed in warm-up mode, ID and SMILES code; they cover circular and linear, terminal and
+     * non-terminal sugars, and molecules without sugars
+     */
+    private static final String[][] WARM_UP_MOLECULES = {
+            //amygdalin, two terminal circular sugars
+            {"warm-up_1", "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"},
+            //non-terminal circular sugar between two aglycone parts
+            {"warm-up_2", "CCCCCCCCCCOC1OC(COc2ccccc2)C(O)C(O)C1O"},
+            //linear sugar (sorbitol) attached to an aromatic core
+            {"warm-up_3", "OCC(O)C(O)C(O)C(O)C(O)COc1ccc(cc1)C(=O)O"},
+            //glucose, basically a sugar
+            {"warm-up_4", "OCC1OC(O)C(O)C(O)C1O"},
+            //no sugar, two fragments
+            {"warm-up_5", "CC(=O)Oc1ccccc1C(=O)O.[Na+].[Cl-]"}
+    };
+
+    /**
+     * Number of processed molecules after which a progress message is printed
+     */
+    private static final int PROGRESS_INTERVAL = 10000;
+
+    /**
+     * Number of processed molecules after which the memory pressure is checked
+     */
+    private static final int MEMORY_CHECK_INTERVAL = 100;
+
+    /**
+     * Highest valid port number
+     */
+    private static final int MAXIMUM_PORT = 65535;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Static initializer">
+    static {
+        Map<String, Supplier<GlycosylationAnalysis>> tmpAnalyses = new LinkedHashMap<>(10, 1.0f);
+        tmpAnalyses.put(BasicGlycosylationStatisticsAnalysis.NAME, BasicGlycosylationStatisticsAnalysis::new);
+        tmpAnalyses.put(ExocyclicOxygenStatisticsAnalysis.NAME, ExocyclicOxygenStatisticsAnalysis::new);
+        tmpAnalyses.put(LinearSugarsInRingsAnalysis.NAME, LinearSugarsInRingsAnalysis::new);
+        tmpAnalyses.put(SugarMoleculesAnalysis.NAME, SugarMoleculesAnalysis::new);
+        tmpAnalyses.put(ParameterSweepAnalysis.NAME, ParameterSweepAnalysis::new);
+        tmpAnalyses.put(SugarMoietyFrequencyAnalysis.NAME, SugarMoietyFrequencyAnalysis::new);
+        tmpAnalyses.put(AglyconeFrequencyAnalysis.NAME, AglyconeFrequencyAnalysis::new);
+        tmpAnalyses.put(AglyconeFrequencyAnalysis.ESTIMATE_NAME,
+                () -> new AglyconeFrequencyAnalysis(AglyconeFrequencyCollector.Mode.HYPER_LOG_LOG,
+                        new GraphHashKeyGenerator()));
+        ANALYSES = Collections.unmodifiableMap(tmpAnalyses);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static variables">
+    /**
+     * Log file handler added to the root logger by the last call of initializeLogger()
+     */
+    private static FileHandler logFileHandler;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Source of the molecules to analyse
+     */
+    private final MoleculeSource moleculeSource;
+
+    /**
+     * Analyses to run on every molecule
+     */
+    private final List<GlycosylationAnalysis> analyses;
+
+    /**
+     * Path of the output folder, ending with a file separator
+     */
+    private final String outputFolderPath;
+
+    /**
+     * Exceptions counters of the analyses, same order as the analyses list
+     */
+    private final int[] analysisExceptionsCounters;
+
+    /**
+     * Distinct normalisers required by the analyses
+     */
+    private final List<MoleculeNormalizer> normalizers;
+
+    /**
+     * Index of the required normaliser in the normalisers list, same order as the analyses list
+     */
+    private final int[] normalizerIndicesOfAnalyses;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of molecules read from the source
+     */
+    private int moleculesCounter;
+
+    /**
+     * Accountant of the failed molecules, created when the run starts
+     */
+    private AnalysisErrorAccountant errorAccountant;
+
+    /**
+     * File the normalised molecules are cached in during the run, null if no cache is written
+     */
+    private File cacheFile;
+
+    /**
+     * Number of threads of a run; with more than one, the molecules are read and parsed by a MoleculePipeline
+     */
+    private int numberOfWorkers;
+
+    /**
+     * Monitor of the heap usage during the run
+     */
+    private HeapMemoryMonitor memoryMonitor;
+
+    /**
+     * Highest memory pressure encountered during the last run
+     */
+    private HeapMemoryMonitor.Pressure maxMemoryPressure;
+
+    /**
+     * Time budget of a molecule in milliseconds, 0 if molecules are analysed without budget
+     */
+    private long moleculeTimeBudgetMillis;
+
+    /**
+     * Time budget of the last run, null if it was run without budget
+     */
+    private MoleculeTimeBudget timeBudget;
+
+    /**
+     * Molecules that were stopped at the budget during the current run and are analysed further after all others
+     */
+    private List<SlowMolecule> slowLane;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a runner for the given source and analyses. The output folder is created if it does not exist.
+     *
+     * @param aMoleculeSource source of the molecules to analyse
+     * @param anAnalysesList analyses to run on every molecule
+     * @param anOutputFolderPath path of the output folder
+     * @throws NullPointerException if a parameter is null
+     * @throws IllegalArgumentException if no analysis is given
+     */
+    public GlycosylationStatisticsRunner(MoleculeSource aMoleculeSource, List<GlycosylationAnalysis> anAnalysesList,
+                                         String anOutputFolderPath) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aMoleculeSource, "Given molecule source is 'null'.");
+        Objects.requireNonNull(anAnalysesList, "Given analyses list is 'null'.");
+        Objects.requireNonNull(anOutputFolderPath, "Given output folder path is 'null'.");
+        if (anAnalysesList.isEmpty()) {
+            throw new IllegalArgumentException("No analysis given.");
+        }
+        this.moleculeSource = aMoleculeSource;
+        this.analyses = new ArrayList<>(anAnalysesList);
+        String tmpOutputFolderPath = new File(anOutputFolderPath).getAbsolutePath();
+        this.outputFolderPath = tmpOutputFolderPath.endsWith(File.separator) ? tmpOutputFolderPath
+                : tmpOutputFolderPath + File.separator;
+        this.analysisExceptionsCounters = new int[this.analyses.size()];
+        this.normalizers = new ArrayList<>(this.analyses.size());
+        this.normalizerIndicesOfAnalyses = new int[this.analyses.size()];
+        for (int i = 0; i < this.analyses.size(); i++) {
+            MoleculeNormalizer tmpNormalizer = this.analyses.get(i).getRequiredNormalizer();
+            int tmpIndex = this.normalizers.indexOf(tmpNormalizer);
+            if (tmpIndex < 0) {
+                tmpIndex = this.normalizers.size();
+                this.normalizers.add(tmpNormalizer);
+            }
+            this.normalizerIndicesOfAnalyses[i] = tmpIndex;
+        }
+        this.numberOfWorkers = 1;
+        this.memoryMonitor = new HeapMemoryMonitor();
+        this.maxMemoryPressure = HeapMemoryMonitor.Pressure.NORMAL;
+        this.moleculeTimeBudgetMillis = 0L;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Main entry point, see class documentation for the command line arguments. Exits with status 2 if the arguments
+     * are invalid and with status 1 if the run fails.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            int tmpStatus = GlycosylationStatisticsRunner.runFromCommandLine(args);
+            if (tmpStatus != 0) {
+                System.exit(tmpStatus);
+            }
+        } catch (Exception anException) {
+            GlycosylationStatisticsRunner.LOGGER.log(Level.SEVERE, anException.toString(), anException);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Parses the given command line arguments and runs the requested analyses.
+     *
+     * @param args command line arguments
+     * @return exit status, 0 if successful (or if the service was started) and 2 if the arguments are invalid
+     * @throws Exception if the run fails
+     */
+    public static int runFromCommandLine(String[] args) throws Exception {
+        String tmpSmilesFilePath = null;
+        String tmpSDFilePath = null;
+        String tmpCacheFilePath = null;
+        String tmpWriteCacheFilePath = null;
+        String tmpMongoLocation = null;
+        String tmpComparedFilePaths = null;
+        String tmpQueryFilePath = null;
+        int tmpSampleSize = 0;
+        boolean tmpIsStratified = false;
+        boolean tmpIsPrescreened = false;
+        boolean tmpAreResultTablesWritten = false;
+        String tmpFingerprintsFolderPath = null;
+        boolean tmpIsMongo = false;
+        boolean tmpIsWarmUp = false;
+        boolean tmpIsServe = false;
+        int tmpPort = GlycosylationAnalysisServer.DEFAULT_PORT;
+        int tmpNumberOfWorkers = Runtime.getRuntime().availableProcessors();
+        String tmpIDKey = GlycosylationStatisticsRunner.DEFAULT_ID_KEY;
+        String tmpSmilesCodeKey = MongoMoleculeSource.DEFAULT_SMILES_CODE_KEY;
+        String tmpAnalysisNames = BasicGlycosylationStatisticsAnalysis.NAME;
+        String tmpOutputFolderPath = GlycosylationStatisticsRunner.DEFAULT_OUTPUT_FOLDER_NAME;
+        long tmpTimeBudgetMillis = 0L;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String tmpArgument = args[i];
+                boolean tmpHasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+                switch (tmpArgument) {
+                    case "--smiles" -> tmpSmilesFilePath = tmpHasValue ? args[++i] : null;
+                    case "--sdf" -> tmpSDFilePath = tmpHasValue ? args[++i] : null;
+                    case "--cache" -> tmpCacheFilePath = tmpHasValue ? args[++i] : null;
+                    case "--write-cache" -> tmpWriteCacheFilePath = tmpHasValue ? args[++i] : null;
+                    case "--mongo" -> {
+                        tmpIsMongo = true;
+                        tmpMongoLocation = tmpHasValue ? args[++i] : null;
+                    }
+                    case "--id-key" -> tmpIDKey = tmpHasValue ? args[++i] : tmpIDKey;
+                    case "--smiles-key" -> tmpSmilesCodeKey = tmpHasValue ? args[++i] : tmpSmilesCodeKey;
+                    case "--analyses" -> tmpAnalysisNames = tmpHasValue ? args[++i] : tmpAnalysisNames;
+                    case "--output" -> tmpOutputFolderPath = tmpHasValue ? args[++i] : tmpOutputFolderPath;
+                    case "--warm-up" -> tmpIsWarmUp = true;
+                    case "--serve" -> {
+                        tmpIsServe = true;
+                        tmpPort = tmpHasValue ? (int) GlycosylationStatisticsRunner.parsePositiveNumber(tmpArgument,
+                                args[++i], GlycosylationStatisticsRunner.MAXIMUM_PORT) : tmpPort;
+                    }
+                    case "--fingerprints" -> tmpFingerprintsFolderPath = tmpHasValue ? args[++i] : null;
+                    case "--compare" -> tmpComparedFilePaths = tmpHasValue ? args[++i] : null;
+                    case "--sample" -> tmpSampleSize = tmpHasValue ? (int) GlycosylationStatisticsRunner.parsePositiveNumber(
+                            tmpArgument, args[++i], Integer.MAX_VALUE) : SamplingStatisticsJob.DEFAULT_SAMPLE_SIZE;
+                    case "--stratify" -> tmpIsStratified = true;
+                    case "--prescreen" -> tmpIsPrescreened = true;
+                    case "--result-tables" -> tmpAreResultTablesWritten = true;
+                    case "--query-aglycones" -> tmpQueryFilePath = tmpHasValue ? args[++i] : null;
+                    case "--workers" -> tmpNumberOfWorkers = tmpHasValue ? (int) GlycosylationStatisticsRunner.parsePositiveNumber(
+                            tmpArgument, args[++i], Integer.MAX_VALUE) : tmpNumberOfWorkers;
+                    case "--time-budget" -> tmpTimeBudgetMillis = tmpHasValue ? GlycosylationStatisticsRunner.parsePositiveNumber(
+                            tmpArgument, args[++i], Long.MAX_VALUE) : 0L;
+                    case "--help" -> {
+                        GlycosylationStatisticsRunner.printUsage();
+                        return 0;
+                    }
+                    default -> {
+                        System.err.println("Unknown argument: " + tmpArgument);
+                        GlycosylationStatisticsRunner.printUsage();
+                        return 2;
+                    }
+                }
+            }
+        } catch (NumberFormatException anException) {
+            System.err.println(anException.getMessage());
+            GlycosylationStatisticsRunner.printUsage();
+            return 2;
+        }
+        if (tmpIsWarmUp) {
+            GlycosylationStatisticsRunner.warmUp();
+            return 0;
+        }
+        if (tmpIsServe) {
+            GlycosylationAnalysisServer tmpServer = new GlycosylationAnalysisServer(tmpPort, tmpNumberOfWorkers);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> tmpServer.stop(1)));
+            tmpServer.start();
+            return 0;
+        }
+        if (!Objects.isNull(tmpComparedFilePaths)) {
+            return GlycosylationStatisticsRunner.compare(tmpComparedFilePaths, tmpQueryFilePath, tmpIDKey,
+                    tmpNumberOfWorkers, tmpOutputFolderPath, tmpIsPrescreened, tmpAreResultTablesWritten);
+        }
+        int tmpNumberOfSources = (Objects.isNull(tmpSmilesFilePath) ? 0 : 1) + (Objects.isNull(tmpSDFilePath) ? 0 : 1)
+                + (Objects.isNull(tmpCacheFilePath) ? 0 : 1) + (tmpIsMongo ? 1 : 0);
+        if (tmpNumberOfSources != 1) {
+            System.err.println("Exactly one of --smiles FILE, --sdf FILE, --cache FILE, or --mongo must be given.");
+            GlycosylationStatisticsRunner.printUsage();
+            return 2;
+        }
+        List<GlycosylationAnalysis> tmpAnalyses;
+        try {
+            tmpAnalyses = GlycosylationStatisticsRunner.createAnalyses(tmpAnalysisNames);
+        } catch (IllegalArgumentException anException) {
+            System.err.println(anException.getMessage());
+            GlycosylationStatisticsRunner.printUsage();
+            return 2;
+        }
+        MoleculeSource tmpSource;
+        if (!Objects.isNull(tmpSmilesFilePath)) {
+            tmpSource = new SmilesFileMoleculeSource(new File(tmpSmilesFilePath));
+        } else if (!Objects.isNull(tmpSDFilePath)) {
+            tmpSource = new SDFMoleculeSource(new File(tmpSDFilePath), tmpIDKey);
+        } else if (!Objects.isNull(tmpCacheFilePath)) {
+            tmpSource = new BinaryMoleculeCacheSource(new File(tmpCacheFilePath));
+        } else {
+            try {
+                tmpSource = GlycosylationStatisticsRunner.createMongoSource(tmpMongoLocation, tmpIDKey, tmpSmilesCodeKey);
+            } catch (NumberFormatException anException) {
+                System.err.println(anException.getMessage());
+                GlycosylationStatisticsRunner.printUsage();
+                return 2;
+            }
+        }
+        try {
+            if (!Objects.isNull(tmpFingerprintsFolderPath)) {
+                FingerprintStoreBuilder tmpBuilder = FingerprintStoreBuilder.build(tmpSource,
+                        new File(tmpFingerprintsFolderPath), PackedFingerprints.DEFAULT_NUMBER_OF_BITS,
+                        tmpNumberOfWorkers);
+                System.out.println(tmpBuilder.getMoleculesCounter() + " molecules were processed, "
+                        + tmpBuilder.getFailedMoleculesCounter() + " of them failed.");
+                return 0;
+            }
+            if (tmpSampleSize > 0) {
+                new SamplingStatisticsJob(tmpSource, tmpOutputFolderPath, tmpSampleSize, tmpIsStratified,
+                        SamplingStatisticsJob.DEFAULT_SEED, tmpNumberOfWorkers).run();
+                return 0;
+            }
+            GlycosylationStatisticsRunner tmpRunner = new GlycosylationStatisticsRunner(tmpSource, tmpAnalyses,
+                    tmpOutputFolderPath);
+            tmpRunner.initializeLogger();
+            tmpRunner.setNumberOfWorkers(tmpNumberOfWorkers);
+            tmpRunner.setMoleculeTimeBudget(tmpTimeBudgetMillis);
+            if (!Objects.isNull(tmpWriteCacheFilePath)) {
+                tmpRunner.setCacheFile(new File(tmpWriteCacheFilePath));
+            }
+            tmpRunner.run();
+        } finally {
+            tmpSource.close();
+        }
+        return 0;
+    }
+
+    /**
+     * Creates new instances of the analyses with the given names.
+     *
+     * @param aCommaSeparatedListOfNames analysis names, separated by commas
+     * @return list of new analysis instances
+     * @throws IllegalArgumentException if a name is unknown
+     */
+    public static List<GlycosylationAnalysis> createAnalyses(String aCommaSeparatedListOfNames) throws IllegalArgumentException {
+        Objects.requireNonNull(aCommaSeparatedListOfNames, "Given analysis names are 'null'.");
+        List<GlycosylationAnalysis> tmpAnalyses = new ArrayList<>(GlycosylationStatisticsRunner.ANALYSES.size());
+        for (String tmpName : aCommaSeparatedListOfNames.split(",")) {
+            Supplier<GlycosylationAnalysis> tmpSupplier = GlycosylationStatisticsRunner.ANALYSES.get(tmpName.trim());
+            if (Objects.isNull(tmpSupplier)) {
+                throw new IllegalArgumentException("Unknown analysis: " + tmpName);
+            }
+            tmpAnalyses.add(tmpSupplier.get());
+        }
+        return tmpAnalyses;
+    }
+
+    /**
+     * Returns the names of all available analyses.
+     *
+     * @return analysis names
+     */
+    public static List<String> getAnalysisNames() {
+        return new ArrayList<>(GlycosylationStatisticsRunner.ANALYSES.keySet());
+    }
+
+    /**
+     * Runs all available analyses on a few built-in example molecules, writing into a temporary folder that is deleted
+     * afterwards. This loads and initialises all classes used in a regular run and is therefore used as training run
+     * for creating a class-data-sharing archive.
+     *
+     * @throws IOException if the temporary folder cannot be created
+     */
+    public static void warmUp() throws IOException {
+        File tmpTempFolder = Files.createTempDirectory("glycosylation_stats_warm-up").toFile();
+        try {
+            List<GlycosylationAnalysis> tmpAnalyses = GlycosylationStatisticsRunner.createAnalyses(
+                    String.join(",", GlycosylationStatisticsRunner.ANALYSES.keySet()));
+            MoleculeSource tmpSource = new ArrayMoleculeSource("warm-up", GlycosylationStatisticsRunner.WARM_UP_MOLECULES);
+            GlycosylationStatisticsRunner tmpRunner = new GlycosylationStatisticsRunner(tmpSource, tmpAnalyses,
+                    tmpTempFolder.getAbsolutePath());
+            tmpRunner.run();
+        } finally {
+            GlycosylationStatisticsRunner.deleteRecursively(tmpTempFolder);
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Creates a log file in the output folder that will be written to by the root logger. A log file handler added by
+     * a previous call is removed from the root logger and closed, so that every record is written to one file only.
+     *
+     * @throws IOException if the log file cannot be created
+     */
+    public void initializeLogger() throws IOException {
+        File tmpOutputFolderFile = new File(this.outputFolderPath);
+        if (!tmpOutputFolderFile.exists()) {
+            tmpOutputFolderFile.mkdirs();
+        }
+        FileHandler tmpLogFileHandler = new FileHandler(this.outputFolderPath + "Log.txt");
+        tmpLogFileHandler.setLevel(Level.ALL);
+        tmpLogFileHandler.setFormatter(new SimpleFormatter());
+        synchronized (GlycosylationStatisticsRunner.class) {
+            if (!Objects.isNull(GlycosylationStatisticsRunner.logFileHandler)) {
+                Logger.getLogger("").removeHandler(GlycosylationStatisticsRunner.logFileHandler);
+                GlycosylationStatisticsRunner.logFileHandler.close();
+            }
+            GlycosylationStatisticsRunner.logFileHandler = tmpLogFileHandler;
+        }
+        Logger.getLogger("").addHandler(tmpLogFileHandler);
+        Logger.getLogger("").setLevel(Level.WARNING);
+    }
+
+    /**
+     * Iterates the molecule source, parses every molecule once, runs all analyses on it, and lets the analyses write
+     * their results to their output folders afterwards. Every molecule is normalised once per distinct normaliser
+     * required by the analyses; normalised forms carried by the records (binary molecule cache) are used as they are,
+     * and the SMILES code is only parsed if a form is missing. Failures are not logged one by one but recorded by an
+     * AnalysisErrorAccountant that writes the failed molecules to a reject file in the output folder. With more than
+     * one worker, reading and parsing overlap with the analyses, see setNumberOfWorkers(). The memory
+     * pressure is checked regularly, and the analyses reduce their memory footprint while it is high. With a time
+     * budget, molecules that exceed it are analysed after all others, see setMoleculeTimeBudget().
+     *
+     * @throws IOException if the source cannot be read or the output cannot be written
+     */
+    public void run() throws IOException {
+        System.out.println("Output directory: " + this.outputFolderPath);
+        File tmpOutputFolderFile = new File(this.outputFolderPath);
+        if (!tmpOutputFolderFile.exists()) {
+            tmpOutputFolderFile.mkdirs();
+        }
+        for (GlycosylationAnalysis tmpAnalysis : this.analyses) {
+            tmpAnalysis.initialize(this.outputFolderPath + tmpAnalysis.getName() + File.separator);
+        }
+        this.errorAccountant = new AnalysisErrorAccountant(this.outputFolderPath);
+        BinaryMoleculeCacheWriter tmpCacheWriter = Objects.isNull(this.cacheFile) ? null
+                : new BinaryMoleculeCacheWriter(this.cacheFile, this.normalizers);
+        this.maxMemoryPressure = HeapMemoryMonitor.Pressure.NORMAL;
+        this.timeBudget = this.moleculeTimeBudgetMillis > 0 ? new MoleculeTimeBudget(this.moleculeTimeBudgetMillis)
+                : null;
+        this.slowLane = new ArrayList<>();
+        long tmpStartTime = System.currentTimeMillis();
+        if (this.numberOfWorkers > 1) {
+            //the sugar detections run on the parsing threads, the statistics updates are applied here in reading order
+            try (MoleculePipeline tmpPipeline = new MoleculePipeline(this.moleculeSource, this.normalizers,
+                    this.numberOfWorkers - 1, MoleculePipeline.DEFAULT_BATCH_SIZE,
+                    (aRecord, aNormalizedFormsArray) -> this.detect(aRecord, aNormalizedFormsArray, 0, false))) {
+                MoleculePipeline.ParsedMolecule tmpParsedMolecule;
+                while (!Objects.isNull(tmpParsedMolecule = tmpPipeline.next())) {
+                    this.process(tmpParsedMolecule, tmpCacheWriter);
+                }
+            } catch (InterruptedException anInterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Run was interrupted.");
+            }
+        } else {
+            SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+            while (this.moleculeSource.hasNext()) {
+                MoleculePipeline.ParsedMolecule tmpParsedMolecule;
+                try {
+                    tmpParsedMolecule = MoleculePipeline.parse(this.moleculeSource.next(), this.normalizers, tmpSmiPar);
+                } catch (Exception anException) {
+                    tmpParsedMolecule = new MoleculePipeline.ParsedMolecule(null, null,
+                            AnalysisErrorAccountant.Stage.READ, anException);
+                }
+                this.process(tmpParsedMolecule, tmpCacheWriter);
+            }
+        }
+        if (!Objects.isNull(tmpCacheWriter)) {
+            tmpCacheWriter.close();
+        }
+        if (!Objects.isNull(this.timeBudget)) {
+            this.processSlowLane();
+        }
+        System.out.println();
+        System.out.println("Done.");
+        System.out.println("Source: " + this.moleculeSource.getName());
+        System.out.println("Molecules counter: " + this.moleculesCounter);
+        System.out.println("Read and parse exceptions counter: " + this.getReadAndParseExceptionsCounter());
+        System.out.println("Processing time: " + (System.currentTimeMillis() - tmpStartTime) + " ms");
+        if (this.maxMemoryPressure != HeapMemoryMonitor.Pressure.NORMAL) {
+            System.out.println("Highest memory pressure: " + this.maxMemoryPressure);
+        }
+        if (!Objects.isNull(this.timeBudget)) {
+            System.out.println("Molecules over time budget: " + this.timeBudget.getOffenders().size() + " ("
+                    + this.timeBudget.getOffenderCount(MoleculeTimeBudget.Lane.CANCELLED) + " cancelled)");
+        }
+        for (int i = 0; i < this.analyses.size(); i++) {
+            GlycosylationAnalysis tmpAnalysis = this.analyses.get(i);
+            System.out.println();
+            System.out.println("Analysis " + tmpAnalysis.getName() + ":");
+            System.out.println("Exceptions counter: " + this.analysisExceptionsCounters[i]);
+            try {
+                tmpAnalysis.writeResults();
+            } catch (IOException anIOException) {
+                this.errorAccountant.record(AnalysisErrorAccountant.Stage.WRITE, null, anIOException);
+            }
+        }
+        System.out.println();
+        this.errorAccountant.writeSummaryAndClose();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Sets a file that the normalised molecules are written to during the next run, as binary molecule cache to be
+     * read by BinaryMoleculeCacheSource in later runs. Null disables writing a cache.
+     *
+     * @param aCacheFile the cache file or null
+     */
+    public void setCacheFile(File aCacheFile) {
+        this.cacheFile = aCacheFile;
+    }
+
+    /**
+     * Sets the number of threads used in the next run. With one, the molecules are read, parsed, and analysed one
+     * after another; with more, a MoleculePipeline reads the source on a dedicated thread and parses and normalises
+     * the molecules on the remaining threads, which also run the sugar detections of the analyses, while the calling
+     * thread applies their statistics updates in reading order, so the results do not depend on the number of threads.
+     *
+     * @param aNumberOfWorkers number of threads
+     * @throws IllegalArgumentException if the given number is smaller than 1
+     */
+    public void setNumberOfWorkers(int aNumberOfWorkers) throws IllegalArgumentException {
+        if (aNumberOfWorkers < 1) {
+            throw new IllegalArgumentException("Number of workers must be at least 1.");
+        }
+        this.numberOfWorkers = aNumberOfWorkers;
+    }
+
+    /**
+     * Sets the time budget of a molecule in the next runs. With a budget, the sugar detections of the analyses check
+     * the deadline of a MoleculeTimeBudget; an analysis that exceeds it is stopped before it has counted the molecule,
+     * and it and the remaining analyses are run on the molecule after all other molecules with the slow lane budget.
+     * If it is exceeded again, the molecule is recorded as failed in the analysis stage of the stopped analysis and
+     * skipped by the remaining ones. Slow molecules therefore come last in the retained ID lists of the analyses that
+     * were stopped. All molecules that exceed the budget are written to the offenders file in the output folder. 0
+     * disables the budget (default).
+     *
+     * @param aMillis budget in milliseconds, 0 for no budget
+     * @throws IllegalArgumentException if the given budget is negative
+     */
+    public void setMoleculeTimeBudget(long aMillis) throws IllegalArgumentException {
+        if (aMillis < 0) {
+            throw new IllegalArgumentException("Time budget must not be negative.");
+        }
+        this.moleculeTimeBudgetMillis = aMillis;
+    }
+
+    /**
+     * Returns the time budget of the last run with its offenders, or null if the runner has not been run yet or was
+     * run without budget.
+     *
+     * @return time budget
+     */
+    public MoleculeTimeBudget getTimeBudget() {
+        return this.timeBudget;
+    }
+
+    /**
+     * Sets the monitor of the heap usage used during the next run, e.g. one with different thresholds.
+     *
+     * @param aMemoryMonitor the monitor
+     * @throws NullPointerException if the given monitor is null
+     */
+    public void setMemoryMonitor(HeapMemoryMonitor aMemoryMonitor) throws NullPointerException {
+        Objects.requireNonNull(aMemoryMonitor, "Given memory monitor is 'null'.");
+        this.memoryMonitor = aMemoryMonitor;
+    }
+
+    /**
+     * Returns the highest memory pressure encountered during the last run.
+     *
+     * @return highest memory pressure
+     */
+    public HeapMemoryMonitor.Pressure getMaxMemoryPressure() {
+        return this.maxMemoryPressure;
+    }
+
+    /**
+     * Returns the number of molecules read from the source, including those that could not be parsed.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the number of entries that could not be read from the source or parsed.
+     *
+     * @return read and parse exceptions counter
+     */
+    public int getReadAndParseExceptionsCounter() {
+        if (Objects.isNull(this.errorAccountant)) {
+            return 0;
+        }
+        return this.errorAccountant.getCount(AnalysisErrorAccountant.Stage.READ)
+                + this.errorAccountant.getCount(AnalysisErrorAccountant.Stage.PARSE);
+    }
+
+    /**
+     * Returns the accountant of the failed molecules of the last run or null if the runner has not been run yet.
+     *
+     * @return error accountant
+     */
+    public AnalysisErrorAccountant getErrorAccountant() {
+        return this.errorAccountant;
+    }
+
+    /**
+     * Returns the path of the output folder, ending with a file separator.
+     *
+     * @return output folder path
+     */
+    public String getOutputFolderPath() {
+        return this.outputFolderPath;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Lets all analyses reduce their memory footprint if the memory pressure is high or critical. An increase of the
+     * pressure is logged once per level.
+     */
+    private void reduceMemoryFootprintUnderPressure() {
+        HeapMemoryMonitor.Pressure tmpPressure = this.memoryMonitor.getPressure();
+        if (tmpPressure == HeapMemoryMonitor.Pressure.NORMAL) {
+            return;
+        }
+        if (tmpPressure.compareTo(this.maxMemoryPressure) > 0) {
+            this.maxMemoryPressure = tmpPressure;
+            String tmpMessage = String.format(Locale.US, "Memory pressure %s after %d molecules (heap usage %.0f %%), retained ID "
+                    + "lists are %s.", tmpPressure, this.moleculesCounter, this.memoryMonitor.getHeapUsage() * 100,
+                    tmpPressure == HeapMemoryMonitor.Pressure.CRITICAL ? "dropped" : "spilled to disk");
+            GlycosylationStatisticsRunner.LOGGER.log(Level.WARNING, tmpMessage);
+            System.out.println(tmpMessage);
+        }
+        for (GlycosylationAnalysis tmpAnalysis : this.analyses) {
+            try {
+                tmpAnalysis.reduceMemoryFootprint(tmpPressure);
+            } catch (IOException anIOException) {
+                this.errorAccountant.record(AnalysisErrorAccountant.Stage.WRITE, null, anIOException);
+            }
+        }
+    }
+
+    /**
+     * Counts the given parsed molecule, records its failure if there is one, writes it to the cache, and runs all
+     * analyses on it if all its normalised forms were created.
+     */
+    private void process(MoleculePipeline.ParsedMolecule aParsedMolecule, BinaryMoleculeCacheWriter aCacheWriter)
+            throws IOException {
+        this.moleculesCounter++;
+        MoleculeRecord tmpRecord = aParsedMolecule.getRecord();
+        if (Objects.isNull(tmpRecord)) {
+            this.errorAccountant.record(AnalysisErrorAccountant.Stage.READ, null, aParsedMolecule.getFailure());
+            return;
+        }
+        if ((this.moleculesCounter % GlycosylationStatisticsRunner.PROGRESS_INTERVAL) == 0) {
+            System.out.println(this.moleculesCounter + " molecules were processed already...");
+        }
+        if ((this.moleculesCounter % GlycosylationStatisticsRunner.MEMORY_CHECK_INTERVAL) == 0) {
+            this.reduceMemoryFootprintUnderPressure();
+        }
+        if (!aParsedMolecule.isComplete()) {
+            this.errorAccountant.record(aParsedMolecule.getFailureStage(), tmpRecord, aParsedMolecule.getFailure());
+        }
+        IAtomContainer[] tmpNormalizedForms = aParsedMolecule.getNormalizedForms();
+        if (!Objects.isNull(aCacheWriter)) {
+            aCacheWriter.write(tmpRecord, tmpNormalizedForms);
+        }
+        if (!aParsedMolecule.isComplete()) {
+            return;
+        }
+        //detected by the pipeline if it has a worker stage
+        DetectedMolecule tmpDetectedMolecule = Objects.isNull(aParsedMolecule.getWorkerStageResult())
+                ? this.detect(tmpRecord, tmpNormalizedForms, 0, false)
+                : (DetectedMolecule) aParsedMolecule.getWorkerStageResult();
+        long tmpStartTime = System.nanoTime();
+        int tmpStoppedAnalysisIndex = this.apply(tmpRecord, tmpDetectedMolecule, 0, false);
+        if (Objects.isNull(this.timeBudget)) {
+            return;
+        }
+        long tmpElapsedTime = tmpDetectedMolecule.nanos + System.nanoTime() - tmpStartTime;
+        if (tmpStoppedAnalysisIndex >= 0) {
+            this.slowLane.add(new SlowMolecule(aParsedMolecule, tmpStoppedAnalysisIndex, tmpElapsedTime));
+        } else if (this.timeBudget.isExceeded(tmpElapsedTime)) {
+            this.timeBudget.recordOffender(tmpRecord, MoleculeTimeBudget.Lane.MAIN, tmpElapsedTime);
+        }
+    }
+
+    /**
+     * Runs the sugar detections of the analyses from the given index on the given normalised forms of a molecule
+     * within the time budget, if there is one, and collects their statistics updates and exceptions. If an analysis
+     * is stopped at the deadline, the remaining analyses are not run. Touches no statistics, so it is called
+     * concurrently by the parsing threads of the pipeline.
+     *
+     * @return the detected molecule
+     */
+    private DetectedMolecule detect(MoleculeRecord aRecord, IAtomContainer[] aNormalizedForms, int aFirstAnalysisIndex,
+                                    boolean anIsSlowLane) {
+        DetectedMolecule tmpDetectedMolecule = new DetectedMolecule(this.analyses.size());
+        long tmpStartTime = System.nanoTime();
+        if (!Objects.isNull(this.timeBudget)) {
+            this.timeBudget.start(anIsSlowLane);
+        }
+        try {
+            for (int i = aFirstAnalysisIndex; i < this.analyses.size(); i++) {
+                try {
+                    tmpDetectedMolecule.updates[i] = this.analyses.get(i).detect(aRecord,
+                            aNormalizedForms[this.normalizerIndicesOfAnalyses[i]]);
+                } catch (MoleculeTimeBudget.BudgetExceededException anException) {
+                    tmpDetectedMolecule.stoppedAnalysisIndex = i;
+                    break;
+                } catch (Exception anException) {
+                    tmpDetectedMolecule.failures[i] = anException;
+                }
+            }
+        } finally {
+            if (!Objects.isNull(this.timeBudget)) {
+                this.timeBudget.stop();
+            }
+        }
+        tmpDetectedMolecule.nanos = System.nanoTime() - tmpStartTime;
+        return tmpDetectedMolecule;
+    }
+
+    /**
+     * Applies the statistics updates of the given detected molecule from the given index on, up to the analysis that
+     * was stopped at the deadline, within the time budget, if there is one, and counts the exceptions of the
+     * analyses. An update that is stopped at the deadline, e.g. one of an analysis that defers its whole work to the
+     * update, stops the remaining ones.
+     *
+     * @return index of the analysis that was stopped at the deadline, -1 if all analyses were run
+     */
+    private int apply(MoleculeRecord aRecord, DetectedMolecule aDetectedMolecule, int aFirstAnalysisIndex,
+                      boolean anIsSlowLane) {
+        int tmpEndIndex = aDetectedMolecule.stoppedAnalysisIndex >= 0 ? aDetectedMolecule.stoppedAnalysisIndex
+                : this.analyses.size();
+        if (!Objects.isNull(this.timeBudget)) {
+            this.timeBudget.start(anIsSlowLane);
+        }
+        try {
+            for (int i = aFirstAnalysisIndex; i < tmpEndIndex; i++) {
+                Exception tmpFailure = aDetectedMolecule.failures[i];
+                if (Objects.isNull(tmpFailure)) {
+                    try {
+                        aDetectedMolecule.updates[i].apply();
+                        continue;
+                    } catch (MoleculeTimeBudget.BudgetExceededException anException) {
+                        return i;
+                    } catch (Exception anException) {
+                        tmpFailure = anException;
+                    }
+                }
+                this.errorAccountant.record(AnalysisErrorAccountant.Stage.ANALYSE, aRecord, tmpFailure);
+                this.analysisExceptionsCounters[i]++;
+            }
+        } finally {
+            if (!Objects.isNull(this.timeBudget)) {
+                this.timeBudget.stop();
+            }
+        }
+        return aDetectedMolecule.stoppedAnalysisIndex;
+    }
+
+    /**
+     * Runs the stopped and the remaining analyses on the molecules of the slow lane within the slow lane budget. If
+     * an analysis is stopped again, the molecule is recorded as failed in it and cancelled for the remaining ones.
+     * Writes the offenders file afterwards.
+     */
+    private void processSlowLane() throws IOException {
+        try {
+            for (SlowMolecule tmpSlowMolecule : this.slowLane) {
+                MoleculeRecord tmpRecord = tmpSlowMolecule.parsedMolecule.getRecord();
+                IAtomContainer[] tmpNormalizedForms = tmpSlowMolecule.parsedMolecule.getNormalizedForms();
+                DetectedMolecule tmpDetectedMolecule = this.detect(tmpRecord, tmpNormalizedForms,
+                        tmpSlowMolecule.stoppedAnalysisIndex, true);
+                long tmpStartTime = System.nanoTime();
+                int tmpStoppedAnalysisIndex = this.apply(tmpRecord, tmpDetectedMolecule,
+                        tmpSlowMolecule.stoppedAnalysisIndex, true);
+                long tmpElapsedTime = tmpSlowMolecule.mainLaneNanos + tmpDetectedMolecule.nanos + System.nanoTime()
+                        - tmpStartTime;
+                if (tmpStoppedAnalysisIndex < 0) {
+                    this.timeBudget.recordOffender(tmpRecord, MoleculeTimeBudget.Lane.SLOW, tmpElapsedTime);
+                } else {
+                    this.timeBudget.recordOffender(tmpRecord, MoleculeTimeBudget.Lane.CANCELLED, tmpElapsedTime);
+                    this.errorAccountant.record(AnalysisErrorAccountant.Stage.ANALYSE, tmpRecord, new TimeoutException(
+                            "Slow lane time budget of " + this.timeBudget.getSlowLaneBudgetMillis() + " ms exceeded in "
+                                    + this.analyses.get(tmpStoppedAnalysisIndex).getName() + "."));
+                    this.analysisExceptionsCounters[tmpStoppedAnalysisIndex]++;
+                }
+            }
+        } finally {
+            this.slowLane.clear();
+        }
+        this.timeBudget.writeOffenders(this.outputFolderPath);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Prints the command line usage to console.
+     */
+    private static void printUsage() {
+        System.out.println("Usage: (--smiles FILE | --sdf FILE | --cache FILE | --mongo [HOST:PORT/DATABASE/COLLECTION])");
+        System.out.println("       [--id-key KEY] [--smiles-key KEY] [--analyses NAME[,NAME...]] [--output FOLDER]");
+        System.out.println("       [--write-cache FILE] [--fingerprints FOLDER] [--sample N [--stratify]] [--workers N]");
+        System.out.println("       [--time-budget MILLISECONDS]");
+        System.out.println("   or: --warm-up");
+        System.out.println("   or: --serve [PORT] [--workers N]");
+        System.out.println("   or: --compare FILE[,FILE...] [--id-key KEY] [--workers N] [--output FOLDER]");
+        System.out.println("       [--query-aglycones FILE] [--prescreen] [--result-tables]");
+        System.out.println("Available analyses: " + String.join(", ", GlycosylationStatisticsRunner.ANALYSES.keySet()));
+    }
+
+    /**
+     * Compares the basic statistics of the datasets in the given files in one MultiDatasetComparisonJob and, if a
+     * query file is given, searches the aglycones of all datasets for those most similar to the query aglycones.
+     */
+    private static int compare(String aCommaSeparatedListOfFilePaths, String aQueryFilePath, String anIDKey,
+                               int aNumberOfWorkers, String anOutputFolderPath, boolean anIsPrescreened,
+                               boolean anAreResultTablesWritten) throws IOException {
+        List<MoleculeSource> tmpSources = new ArrayList<>(4);
+        try {
+            for (String tmpFilePath : aCommaSeparatedListOfFilePaths.split(",")) {
+                tmpSources.add(GlycosylationStatisticsRunner.createFileSource(new File(tmpFilePath.trim()), anIDKey));
+            }
+            MultiDatasetComparisonJob tmpJob = new MultiDatasetComparisonJob(tmpSources, anOutputFolderPath,
+                    aNumberOfWorkers, MultiDatasetComparisonJob.DEFAULT_CHUNK_SIZE);
+            tmpJob.setAglyconeIndexBuilt(!Objects.isNull(aQueryFilePath));
+            tmpJob.setPrescreeningEnabled(anIsPrescreened);
+            tmpJob.setResultTableWritten(anAreResultTablesWritten);
+            tmpJob.run();
+            if (!Objects.isNull(aQueryFilePath)) {
+                try (MoleculeSource tmpQuerySource = GlycosylationStatisticsRunner.createFileSource(
+                        new File(aQueryFilePath), anIDKey)) {
+                    int tmpNumberOfQueries = tmpJob.writeAglyconeSearchResults(tmpQuerySource,
+                            AglyconeSimilarityIndex.DEFAULT_NUMBER_OF_HITS);
+                    System.out.println("Searched similar aglycones of " + tmpNumberOfQueries + " query molecules.");
+                }
+            }
+        } finally {
+            for (MoleculeSource tmpSource : tmpSources) {
+                tmpSource.close();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Creates a source for the given file; files with the extension .sdf or .sd are read as SDF, all others as SMILES
+     * files.
+     */
+    private static MoleculeSource createFileSource(File aFile, String anIDKey) throws IOException {
+        String tmpLowerCaseName = aFile.getName().toLowerCase();
+        if (tmpLowerCaseName.endsWith(".sdf") || tmpLowerCaseName.endsWith(".sd")) {
+            return new SDFMoleculeSource(aFile, anIDKey);
+        } else {
+            return new SmilesFileMoleculeSource(aFile);
+        }
+    }
+
+    /**
+     * Creates a MongoDB source from a location of the form HOST:PORT/DATABASE/COLLECTION. Missing parts are replaced
+     * by the default COCONUT credentials.
+     *
+     * @throws NumberFormatException if the port is not a valid port number
+     */
+    private static MoleculeSource createMongoSource(String aLocation, String anIDKey, String aSmilesCodeKey)
+            throws NumberFormatException, IllegalArgumentException, MongoTimeoutException {
+        String tmpHost = MongoMoleculeSource.DEFAULT_HOST;
+        int tmpPort = MongoMoleculeSource.DEFAULT_PORT;
+        String tmpDatabaseName = MongoMoleculeSource.DEFAULT_DATABASE_NAME;
+        String tmpCollectionName = MongoMoleculeSource.DEFAULT_COLLECTION_NAME;
+        if (!Objects.isNull(aLocation)) {
+            String[] tmpParts = aLocation.split("/");
+            String[] tmpHostAndPort = tmpParts[0].split(":");
+            tmpHost = tmpHostAndPort[0];
+            if (tmpHostAndPort.length > 1) {
+                tmpPort = (int) GlycosylationStatisticsRunner.parsePositiveNumber("--mongo", tmpHostAndPort[1],
+                        GlycosylationStatisticsRunner.MAXIMUM_PORT);
+            }
+            if (tmpParts.length > 1) {
+                tmpDatabaseName = tmpParts[1];
+            }
+            if (tmpParts.length > 2) {
+                tmpCollectionName = tmpParts[2];
+            }
+        }
+        return new MongoMoleculeSource(tmpHost, tmpPort, tmpDatabaseName, tmpCollectionName, anIDKey, aSmilesCodeKey);
+    }
+
+    /**
+     * Parses the given value of a command line option as a number between one and the given maximum.
+     *
+     * @throws NumberFormatException if the value is not a number in that range
+     */
+    private static long parsePositiveNumber(String anOption, String aValue, long aMaximum) throws NumberFormatException {
+        long tmpNumber;
+        try {
+            tmpNumber = Long.parseLong(aValue.trim());
+        } catch (NumberFormatException anException) {
+            tmpNumber = 0L;
+        }
+        if (tmpNumber < 1L || tmpNumber > aMaximum) {
+            throw new NumberFormatException("Value of " + anOption + " must be a number between 1 and " + aMaximum
+                    + ": " + aValue);
+        }
+        return tmpNumber;
+    }
+
+    /**
+     * Deletes the given file or folder including all its contents.
+     */
+    private static void deleteRecursively(File aFile) {
+        File[] tmpChildren = aFile.listFiles();
+        if (!Objects.isNull(tmpChildren)) {
+            for (File tmpChild : tmpChildren) {
+                GlycosylationStatisticsRunner.deleteRecursively(tmpChild);
+            }
+        }
+        if (!aFile.delete()) {
+            GlycosylationStatisticsRunner.LOGGER.log(Level.WARNING, "Could not delete " + aFile.getAbsolutePath());
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static inner class SlowMolecule">
+    /**
+     * Molecule of the slow lane with the analysis it was stopped in
+     */
+    private static final class SlowMolecule {
+        /**
+         * The parsed molecule with its normalised forms
+         */
+        private final MoleculePipeline.ParsedMolecule parsedMolecule;
+
+        /**
+         * Index of the analysis that was stopped at the deadline
+         */
+        private final int stoppedAnalysisIndex;
+
+        /**
+         * Time spent on the molecule in the main lane in nanoseconds
+         */
+        private final long mainLaneNanos;
+
+        /**
+         * Creates a molecule of the slow lane.
+         */
+        private SlowMolecule(MoleculePipeline.ParsedMolecule aParsedMolecule, int aStoppedAnalysisIndex,
+                             long aMainLaneNanos) {
+            this.parsedMolecule = aParsedMolecule;
+            this.stoppedAnalysisIndex = aStoppedAnalysisIndex;
+            this.mainLaneNanos = aMainLaneNanos;
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static inner class DetectedMolecule">
+    /**
+     * Statistics updates and exceptions of the analyses on a molecule, created by detect() and applied by apply()
+     */
+    private static final class DetectedMolecule {
+        /**
+         * Statistics updates in the order of the analyses, null for analyses that were not run or failed
+         */
+        private final GlycosylationAnalysis.StatisticsUpdate[] updates;
+
+        /**
+         * Exceptions in the order of the analyses, null for analyses that were not run or succeeded
+         */
+        private final Exception[] failures;
+
+        /**
+         * Index of the analysis that was stopped at the deadline, -1 if all analyses were run
+         */
+        private int stoppedAnalysisIndex;
+
+        /**
+         * Time spent on the detections in nanoseconds
+         */
+        private long nanos;
+
+        /**
+         * Creates a detected molecule for the given number of analyses.
+         */
+        private DetectedMolecule(int aNumberOfAnalyses) {
+            this.updates = new GlycosylationAnalysis.StatisticsUpdate[aNumberOfAnalyses];
+            this.failures = new Exception[aNumberOfAnalyses];
+            this.stoppedAnalysisIndex = -1;
+        }
+    }
+    //</editor-fold>
+}
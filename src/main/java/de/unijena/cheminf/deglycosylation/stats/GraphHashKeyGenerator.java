@@ -0,0 +1,273 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.aromaticity.Aromaticity;
+import org.openscience.cdk.aromaticity.ElectronDonation;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.Cycles;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Fast structure key strategy that hashes the molecular graph directly instead of generating a canonical SMILES code.
+ * Every atom starts with a hash of its element, formal charge, and implicit hydrogen count; in every round, the hash
+ * of an atom is combined with the hashes of its neighbours and the bond types to them (Weisfeiler-Lehman colour
+ * refinement). The rounds stop when the number of distinct atom hashes does not increase any more, and the key
+ * combines the final atom hashes, the atom and bond counts, and the number of fragments. All combinations are
+ * commutative, so the key does not depend on the atom order, and stereo elements and isotopes are ignored, like in
+ * unique SMILES codes. Aromaticity is perceived on every molecule (Daylight model) without changing it, and the
+ * aromatic bonds get one code regardless of their flags and Kekulé bond orders, so that aromatic and Kekulé input,
+ * e.g. "c1ccccc1O" and "C1=CC=CC=C1O", and different Kekulé structures of the same molecule get the same key.
+ * <br>Apart from the ring perception for the aromaticity, the refinement only works on primitive arrays and needs no
+ * canonical ordering. Like all colour refinement schemes, it cannot tell apart some highly symmetric non-isomorphic
+ * graphs, which is rare for real molecules; where this matters, the keys can be checked against unique SMILES codes
+ * with the {@link StructureKeyBenchmark}. Instances are stateless and thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class GraphHashKeyGenerator implements StructureKeyGenerator {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this strategy
+     */
+    public static final String NAME = "graph-hash";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Bond code of aromatic bonds
+     */
+    private static final int AROMATIC_BOND_CODE = 5;
+
+    /**
+     * Aromaticity model to perceive the aromatic bonds with, independent of the flags and Kekulé bond orders
+     */
+    private static final Aromaticity AROMATICITY = new Aromaticity(ElectronDonation.daylight(),
+            Cycles.or(Cycles.all(), Cycles.all(6)));
+
+    /**
+     * Odd multiplier of the atom hash in the refinement
+     */
+    private static final long ATOM_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Odd multiplier of the bond code in the refinement
+     */
+    private static final long BOND_MULTIPLIER = 0xc2b2ae3d27d4eb4fL;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return GraphHashKeyGenerator.NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long createKey(IAtomContainer aMolecule) {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        int tmpAtomCount = aMolecule.getAtomCount();
+        int tmpBondCount = aMolecule.getBondCount();
+        //adjacency in compressed form: the neighbours of atom i are at tmpOffsets[i] to tmpOffsets[i + 1] - 1
+        int[] tmpOffsets = new int[tmpAtomCount + 1];
+        int[] tmpBegins = new int[tmpBondCount];
+        int[] tmpEnds = new int[tmpBondCount];
+        int[] tmpBondCodes = new int[tmpBondCount];
+        Set<IBond> tmpAromaticBonds = GraphHashKeyGenerator.findAromaticBonds(aMolecule);
+        for (int i = 0; i < tmpBondCount; i++) {
+            IBond tmpBond = aMolecule.getBond(i);
+            tmpBegins[i] = aMolecule.indexOf(tmpBond.getBegin());
+            tmpEnds[i] = aMolecule.indexOf(tmpBond.getEnd());
+            tmpBondCodes[i] = GraphHashKeyGenerator.getBondCode(tmpBond, tmpAromaticBonds);
+            tmpOffsets[tmpBegins[i] + 1]++;
+            tmpOffsets[tmpEnds[i] + 1]++;
+        }
+        for (int i = 0; i < tmpAtomCount; i++) {
+            tmpOffsets[i + 1] += tmpOffsets[i];
+        }
+        int[] tmpNeighbours = new int[2 * tmpBondCount];
+        int[] tmpNeighbourBondCodes = new int[2 * tmpBondCount];
+        int[] tmpFillPositions = Arrays.copyOf(tmpOffsets, tmpAtomCount);
+        for (int i = 0; i < tmpBondCount; i++) {
+            tmpNeighbours[tmpFillPositions[tmpBegins[i]]] = tmpEnds[i];
+            tmpNeighbourBondCodes[tmpFillPositions[tmpBegins[i]]++] = tmpBondCodes[i];
+            tmpNeighbours[tmpFillPositions[tmpEnds[i]]] = tmpBegins[i];
+            tmpNeighbourBondCodes[tmpFillPositions[tmpEnds[i]]++] = tmpBondCodes[i];
+        }
+        long[] tmpHashes = new long[tmpAtomCount];
+        for (int i = 0; i < tmpAtomCount; i++) {
+            tmpHashes[i] = GraphHashKeyGenerator.getAtomInvariant(aMolecule.getAtom(i));
+        }
+        long[] tmpNewHashes = new long[tmpAtomCount];
+        int tmpDistinctCount = GraphHashKeyGenerator.countDistinct(tmpHashes);
+        for (int tmpRound = 0; tmpRound < tmpAtomCount; tmpRound++) {
+            for (int i = 0; i < tmpAtomCount; i++) {
+                long tmpNeighbourhood = 0L;
+                for (int j = tmpOffsets[i]; j < tmpOffsets[i + 1]; j++) {
+                    tmpNeighbourhood += GraphHashKeyGenerator.mix(tmpHashes[tmpNeighbours[j]]
+                            + tmpNeighbourBondCodes[j] * GraphHashKeyGenerator.BOND_MULTIPLIER);
+                }
+                tmpNewHashes[i] = GraphHashKeyGenerator.mix(tmpHashes[i] * GraphHashKeyGenerator.ATOM_MULTIPLIER
+                        + tmpNeighbourhood);
+            }
+            long[] tmpSwap = tmpHashes;
+            tmpHashes = tmpNewHashes;
+            tmpNewHashes = tmpSwap;
+            int tmpNewDistinctCount = GraphHashKeyGenerator.countDistinct(tmpHashes);
+            if (tmpNewDistinctCount <= tmpDistinctCount) {
+                break;
+            }
+            tmpDistinctCount = tmpNewDistinctCount;
+        }
+        long tmpKey = GraphHashKeyGenerator.mix(((long) tmpAtomCount << 32) | tmpBondCount);
+        for (long tmpHash : tmpHashes) {
+            tmpKey += GraphHashKeyGenerator.mix(tmpHash);
+        }
+        return GraphHashKeyGenerator.mix(tmpKey + GraphHashKeyGenerator.countFragments(tmpAtomCount, tmpBegins,
+                tmpEnds));
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Returns the initial hash of the given atom from its element, formal charge, and implicit hydrogen count.
+     */
+    private static long getAtomInvariant(IAtom anAtom) {
+        Integer tmpAtomicNumber = anAtom.getAtomicNumber();
+        Integer tmpFormalCharge = anAtom.getFormalCharge();
+        Integer tmpImplicitHydrogenCount = anAtom.getImplicitHydrogenCount();
+        long tmpInvariant = Objects.isNull(tmpAtomicNumber) || tmpAtomicNumber == 0
+                ? 1000L + Objects.hashCode(anAtom.getSymbol()) : tmpAtomicNumber;
+        tmpInvariant = tmpInvariant * 31L + (Objects.isNull(tmpFormalCharge) ? 0 : tmpFormalCharge);
+        tmpInvariant = tmpInvariant * 31L + (Objects.isNull(tmpImplicitHydrogenCount) ? 0 : tmpImplicitHydrogenCount);
+        return GraphHashKeyGenerator.mix(tmpInvariant);
+    }
+
+    /**
+     * Returns the bonds of the given molecule that are aromatic in the Daylight model, without setting any flags;
+     * if the perception fails, e.g. because the ring systems are too complex, the bonds flagged as aromatic are
+     * returned instead.
+     */
+    private static Set<IBond> findAromaticBonds(IAtomContainer aMolecule) {
+        try {
+            return GraphHashKeyGenerator.AROMATICITY.findBonds(aMolecule);
+        } catch (CDKException aCDKException) {
+            Set<IBond> tmpFlaggedBonds = new HashSet<>(aMolecule.getBondCount());
+            for (IBond tmpBond : aMolecule.bonds()) {
+                if (tmpBond.isAromatic()) {
+                    tmpFlaggedBonds.add(tmpBond);
+                }
+            }
+            return tmpFlaggedBonds;
+        }
+    }
+
+    /**
+     * Returns the code of the type of the given bond: the bond order, or a separate code for aromatic bonds.
+     */
+    private static int getBondCode(IBond aBond, Set<IBond> anAromaticBonds) {
+        if (anAromaticBonds.contains(aBond)) {
+            return GraphHashKeyGenerator.AROMATIC_BOND_CODE;
+        }
+        IBond.Order tmpOrder = aBond.getOrder();
+        return Objects.isNull(tmpOrder) ? 0 : tmpOrder.numeric();
+    }
+
+    /**
+     * Returns the number of distinct values in the given array.
+     */
+    private static int countDistinct(long[] aValues) {
+        if (aValues.length == 0) {
+            return 0;
+        }
+        long[] tmpSortedValues = aValues.clone();
+        Arrays.sort(tmpSortedValues);
+        int tmpCount = 1;
+        for (int i = 1; i < tmpSortedValues.length; i++) {
+            if (tmpSortedValues[i] != tmpSortedValues[i - 1]) {
+                tmpCount++;
+            }
+        }
+        return tmpCount;
+    }
+
+    /**
+     * Returns the number of unconnected fragments of the graph with the given bonds, via union-find.
+     */
+    private static int countFragments(int anAtomCount, int[] aBegins, int[] anEnds) {
+        int[] tmpParents = new int[anAtomCount];
+        for (int i = 0; i < anAtomCount; i++) {
+            tmpParents[i] = i;
+        }
+        int tmpFragmentsCount = anAtomCount;
+        for (int i = 0; i < aBegins.length; i++) {
+            int tmpFirstRoot = GraphHashKeyGenerator.findRoot(tmpParents, aBegins[i]);
+            int tmpSecondRoot = GraphHashKeyGenerator.findRoot(tmpParents, anEnds[i]);
+            if (tmpFirstRoot != tmpSecondRoot) {
+                tmpParents[tmpFirstRoot] = tmpSecondRoot;
+                tmpFragmentsCount--;
+            }
+        }
+        return tmpFragmentsCount;
+    }
+
+    /**
+     * Returns the root of the given element in the union-find forest, halving the path on the way.
+     */
+    private static int findRoot(int[] aParents, int anElement) {
+        int tmpElement = anElement;
+        while (aParents[tmpElement] != tmpElement) {
+            aParents[tmpElement] = aParents[aParents[tmpElement]];
+            tmpElement = aParents[tmpElement];
+        }
+        return tmpElement;
+    }
+
+    /**
+     * Returns the finalisation step of MurmurHash3 of the given value, which spreads every input bit over all bits.
+     */
+    private static long mix(long aValue) {
+        long tmpValue = aValue;
+        tmpValue ^= tmpValue >>> 33;
+        tmpValue *= 0xff51afd7ed558ccdL;
+        tmpValue ^= tmpValue >>> 33;
+        tmpValue *= 0xc4ceb9fe1a85ec53L;
+        tmpValue ^= tmpValue >>> 33;
+        return tmpValue;
+    }
+    //</editor-fold>
+}
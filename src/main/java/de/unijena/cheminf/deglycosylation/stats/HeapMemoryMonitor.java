@@ -0,0 +1,275 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the heap usage of the JVM through the {@link MemoryMXBean}, so that long runs can react before they fail
+ * with an OutOfMemoryError hours into the dataset. The usage is the used fraction of the maximum heap size; since it
+ * also includes garbage, a usage above the high threshold is confirmed by requesting a garbage collection (at most
+ * once per few seconds) and measuring again. The resulting {@link Pressure} is used by the GlycosylationStatisticsRunner
+ * to let the analyses spill or drop their retained ID lists and by the MultiDatasetComparisonJob to pause reading
+ * until the chunks in analysis are done. Also offers rough estimates of the heap size of molecule records, used to
+ * bound the number of records in flight. Instances are thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class HeapMemoryMonitor {
+    //<editor-fold desc="Enum Pressure">
+    /**
+     * Levels of memory pressure.
+     */
+    public enum Pressure {
+        /**
+         * Heap usage below the high threshold
+         */
+        NORMAL,
+
+        /**
+         * Heap usage above the high threshold; retained data should be moved to disk
+         */
+        HIGH,
+
+        /**
+         * Heap usage above the critical threshold even after garbage collection; retained data should be dropped
+         */
+        CRITICAL
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default heap usage above which the pressure is high
+     */
+    public static final double DEFAULT_HIGH_THRESHOLD = 0.75;
+
+    /**
+     * Default heap usage above which the pressure is critical
+     */
+    public static final double DEFAULT_CRITICAL_THRESHOLD = 0.9;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Minimum time between two garbage collections requested to confirm a high usage
+     */
+    private static final long MIN_COLLECTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Time slept between two measurements while waiting for relief
+     */
+    private static final long RELIEF_POLL_INTERVAL_MILLIS = 100L;
+
+    //rough heap sizes in bytes of the parts of molecule records, see estimateSize()
+    private static final long RECORD_OVERHEAD_SIZE = 96L;
+
+    private static final long ATOM_SIZE = 400L;
+
+    private static final long BOND_SIZE = 150L;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Memory bean of the JVM
+     */
+    private final MemoryMXBean memoryBean;
+
+    /**
+     * Heap usage above which the pressure is high
+     */
+    private final double highThreshold;
+
+    /**
+     * Heap usage above which the pressure is critical
+     */
+    private final double criticalThreshold;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Pressure measured after the last requested garbage collection
+     */
+    private Pressure confirmedPressure;
+
+    /**
+     * System.nanoTime() of the last requested garbage collection
+     */
+    private long lastCollectionTime;
+
+    /**
+     * True if a garbage collection has been requested yet
+     */
+    private boolean hasCollected;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a monitor with the default thresholds.
+     */
+    public HeapMemoryMonitor() {
+        this(HeapMemoryMonitor.DEFAULT_HIGH_THRESHOLD, HeapMemoryMonitor.DEFAULT_CRITICAL_THRESHOLD);
+    }
+
+    /**
+     * Creates a monitor with the given thresholds, given as fractions of the maximum heap size.
+     *
+     * @param aHighThreshold heap usage above which the pressure is high
+     * @param aCriticalThreshold heap usage above which the pressure is critical
+     * @throws IllegalArgumentException if a threshold is negative or the critical threshold is below the high one
+     */
+    public HeapMemoryMonitor(double aHighThreshold, double aCriticalThreshold) throws IllegalArgumentException {
+        if (aHighThreshold < 0.0 || aCriticalThreshold < aHighThreshold) {
+            throw new IllegalArgumentException("Thresholds must be non-negative and the critical threshold must not be "
+                    + "below the high one.");
+        }
+        this.memoryBean = ManagementFactory.getMemoryMXBean();
+        this.highThreshold = aHighThreshold;
+        this.criticalThreshold = aCriticalThreshold;
+        this.confirmedPressure = Pressure.NORMAL;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Returns a rough estimate of the heap size of the given record in bytes, including its molecule if the record
+     * carries a parsed one. Normalised forms carried by the record are not included.
+     *
+     * @param aRecord the record
+     * @return estimated size in bytes
+     * @throws NullPointerException if the given record is null
+     */
+    public static long estimateSize(MoleculeRecord aRecord) throws NullPointerException {
+        Objects.requireNonNull(aRecord, "Given record is 'null'.");
+        long tmpSize = HeapMemoryMonitor.RECORD_OVERHEAD_SIZE + 2L * aRecord.getID().length();
+        if (aRecord.isGivenAsSmilesCode()) {
+            return tmpSize + 2L * aRecord.getSmilesCode().length();
+        }
+        IAtomContainer tmpMolecule = aRecord.getAtomContainer();
+        if (!Objects.isNull(tmpMolecule)) {
+            tmpSize += HeapMemoryMonitor.ATOM_SIZE * tmpMolecule.getAtomCount()
+                    + HeapMemoryMonitor.BOND_SIZE * tmpMolecule.getBondCount();
+        }
+        return tmpSize;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns the current heap usage as fraction of the maximum heap size (of the committed heap size if no maximum is
+     * defined), including garbage that has not been collected yet.
+     *
+     * @return heap usage
+     */
+    public double getHeapUsage() {
+        MemoryUsage tmpUsage = this.memoryBean.getHeapMemoryUsage();
+        long tmpMax = tmpUsage.getMax() > 0 ? tmpUsage.getMax() : tmpUsage.getCommitted();
+        return (double) tmpUsage.getUsed() / Math.max(1L, tmpMax);
+    }
+
+    /**
+     * Returns the maximum heap size in bytes, or the committed heap size if no maximum is defined.
+     *
+     * @return maximum heap size
+     */
+    public long getMaxHeapSize() {
+        MemoryUsage tmpUsage = this.memoryBean.getHeapMemoryUsage();
+        return tmpUsage.getMax() > 0 ? tmpUsage.getMax() : tmpUsage.getCommitted();
+    }
+
+    /**
+     * Returns the current memory pressure. A usage below the high threshold is normal. Otherwise, a garbage collection
+     * is requested and the usage measured again, unless the last request is only a few seconds ago; then, the pressure
+     * measured after that one is returned.
+     *
+     * @return memory pressure
+     */
+    public synchronized Pressure getPressure() {
+        if (this.getHeapUsage() < this.highThreshold) {
+            return Pressure.NORMAL;
+        }
+        long tmpTime = System.nanoTime();
+        if (!this.hasCollected || tmpTime - this.lastCollectionTime >= HeapMemoryMonitor.MIN_COLLECTION_INTERVAL_NANOS) {
+            this.memoryBean.gc();
+            this.hasCollected = true;
+            this.lastCollectionTime = System.nanoTime();
+            double tmpUsage = this.getHeapUsage();
+            if (tmpUsage >= this.criticalThreshold) {
+                this.confirmedPressure = Pressure.CRITICAL;
+            } else if (tmpUsage >= this.highThreshold) {
+                this.confirmedPressure = Pressure.HIGH;
+            } else {
+                this.confirmedPressure = Pressure.NORMAL;
+            }
+        }
+        return this.confirmedPressure;
+    }
+
+    /**
+     * Waits until the memory pressure is normal again, e.g. because the chunks in analysis were finished, but not
+     * longer than the given time.
+     *
+     * @param aMaxWaitMillis maximum waiting time in milliseconds
+     * @return true if the pressure is normal
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitRelief(long aMaxWaitMillis) throws InterruptedException {
+        long tmpDeadline = System.currentTimeMillis() + aMaxWaitMillis;
+        while (this.getPressure() != Pressure.NORMAL) {
+            if (System.currentTimeMillis() >= tmpDeadline) {
+                return false;
+            }
+            Thread.sleep(HeapMemoryMonitor.RELIEF_POLL_INTERVAL_MILLIS);
+        }
+        return true;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the heap usage above which the pressure is high.
+     *
+     * @return high threshold
+     */
+    public double getHighThreshold() {
+        return this.highThreshold;
+    }
+
+    /**
+     * Returns the heap usage above which the pressure is critical.
+     *
+     * @return critical threshold
+     */
+    public double getCriticalThreshold() {
+        return this.criticalThreshold;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,275 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Statistics of linear sugar moieties that are ring substructures, as calculated for COCONUT in
+ * GlycosylationStatisticsTest: how many linear sugar moieties are only detected if cyclic atoms are included, how
+ * many of these get lost through the removal of circular sugars, and the size (carbon atom count) distribution of the
+ * linear sugars in rings. The depictions of the molecules created by the test are not created here.
+ * <br>The ring perception of every molecule is done once in a {@link MoleculeGraphContext} that is shared by the
+ * linear sugar detection of the {@link RecordingSugarRemovalUtility} and the in-ring check of the candidates. All
+ * statistics are printed to console and compiled in the "Output.txt" file and a CSV file.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class LinearSugarsInRingsAnalysis extends AbstractGlycosylationAnalysis {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this analysis on the command line
+     */
+    public static final String NAME = "linear-sugars-in-rings";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Sugar Removal Utility instance of every thread running detect(), reusing the graph context of the analysed
+     * molecule
+     */
+    private final ThreadLocal<RecordingSugarRemovalUtility> sugarRemovalUtil;
+
+    /**
+     * IDs of the molecules that lost a linear sugar in a ring after removal of circular sugars
+     */
+    private final SpillableIDList linSugInRingsLostInRemovalOfCircSugIDs;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Frequencies of the carbon atom counts of linear sugars in rings, indexed by carbon atom count
+     */
+    private int[] carbonAtomCountFrequencies;
+
+    //counters of the compiled statistics, see writeResults()
+    private int moleculesCounter;
+
+    private int linearSugarMoietiesInRingsCounter;
+
+    private int linSugInRingsLostInRemovalOfCircSugCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Sole constructor of this class. All SRU settings are in default; the settings for linear sugars in rings and
+     * for the removal of only terminal sugars are switched temporarily in detect().
+     */
+    public LinearSugarsInRingsAnalysis() {
+        this.sugarRemovalUtil = ThreadLocal.withInitial(() -> {
+            RecordingSugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(
+                    DefaultChemObjectBuilder.getInstance());
+            tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
+            return tmpSugarRemovalUtil;
+        });
+        this.linSugInRingsLostInRemovalOfCircSugIDs = this.createIDList("linSugInRingsLostInRemovalOfCircSugIDs");
+        this.carbonAtomCountFrequencies = new int[10];
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return LinearSugarsInRingsAnalysis.NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void analyse(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        this.detect(aRecord, aMolecule).apply();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StatisticsUpdate detect(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = this.sugarRemovalUtil.get();
+        //the SRU adds properties to the molecule and its atoms, so it works on a copy
+        IAtomContainer tmpMolecule = aMolecule.clone();
+        MoleculeGraphContext tmpGraphContext = new MoleculeGraphContext(tmpMolecule);
+        tmpSugarRemovalUtil.setGraphContext(tmpGraphContext);
+        //all detections run before any statistic is updated, see GlycosylationAnalysis.analyse()
+        List<IAtomContainer> tmpLinearCandidatesIncludingCycles;
+        int tmpNumberOfLinearSugarsInCycles;
+        int tmpLinSugInRingsLostInRemovalOfCircSug;
+        try {
+            tmpSugarRemovalUtil.setDetectLinearSugarsInRingsSetting(true);
+            //note: per default, those too small or too big, and acidic linear sugars are not counted!
+            if (!tmpSugarRemovalUtil.hasLinearSugars(tmpMolecule)) {
+                return () -> {
+                    this.moleculesCounter++;
+                };
+            }
+            tmpLinearCandidatesIncludingCycles = tmpSugarRemovalUtil.getLinearSugarCandidates(tmpMolecule);
+            tmpSugarRemovalUtil.setDetectLinearSugarsInRingsSetting(false);
+            tmpNumberOfLinearSugarsInCycles = tmpLinearCandidatesIncludingCycles.size()
+                    - tmpSugarRemovalUtil.getLinearSugarCandidates(tmpMolecule).size();
+            if (tmpNumberOfLinearSugarsInCycles < 0) {
+                throw new IllegalStateException("More linear sugars detected without than with cyclic atoms.");
+            }
+            tmpSugarRemovalUtil.setRemoveOnlyTerminalSugarsSetting(false);
+            IAtomContainer tmpNewClone = tmpMolecule.clone();
+            tmpSugarRemovalUtil.removeCircularSugars(tmpNewClone, false);
+            //the context of the new clone is used by the second of the following calls only, no gain in creating it
+            tmpSugarRemovalUtil.setDetectLinearSugarsInRingsSetting(true);
+            int tmpListSizeWithCandidatesInCycles = tmpSugarRemovalUtil.getLinearSugarCandidates(tmpNewClone).size();
+            tmpSugarRemovalUtil.setDetectLinearSugarsInRingsSetting(false);
+            int tmpListSizeWithoutCandidatesInCycles = tmpSugarRemovalUtil.getLinearSugarCandidates(tmpNewClone).size();
+            tmpLinSugInRingsLostInRemovalOfCircSug = tmpNumberOfLinearSugarsInCycles
+                    - (tmpListSizeWithCandidatesInCycles - tmpListSizeWithoutCandidatesInCycles);
+            if (tmpLinSugInRingsLostInRemovalOfCircSug < 0) {
+                throw new IllegalStateException("More linear sugars in rings detected after removal of circular sugars.");
+            }
+        } finally {
+            //back to default settings
+            tmpSugarRemovalUtil.setRemoveOnlyTerminalSugarsSetting(true);
+            tmpSugarRemovalUtil.setDetectLinearSugarsInRingsSetting(false);
+            tmpSugarRemovalUtil.setGraphContext(null);
+        }
+        return () -> {
+            this.moleculesCounter++;
+            if (tmpNumberOfLinearSugarsInCycles > 0) {
+                this.linearSugarMoietiesInRingsCounter += tmpNumberOfLinearSugarsInCycles;
+                for (IAtomContainer tmpCandidate : tmpLinearCandidatesIncludingCycles) {
+                    if (tmpGraphContext.containsCyclicAtom(tmpCandidate)) {
+                        this.addCarbonAtomCount(tmpCandidate);
+                    }
+                }
+            }
+            if (tmpLinSugInRingsLostInRemovalOfCircSug > 0) {
+                this.linSugInRingsLostInRemovalOfCircSugCounter += tmpLinSugInRingsLostInRemovalOfCircSug;
+                this.linSugInRingsLostInRemovalOfCircSugIDs.add(aRecord.getID());
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeResults() throws IOException {
+        this.printAndWrite("Molecules counter: " + this.moleculesCounter);
+        //Note: these are moieties that were not detected while excluding circular atoms, so i.e. they are 'mainly' in rings
+        // other linear moieties might include circular atoms but be big enough to be detected without them
+        this.printAndWrite("Detected linear sugar moieties that are part of rings counter: "
+                + this.linearSugarMoietiesInRingsCounter);
+        this.printAndWrite("Number of detected linear sugars in rings that got lost through the removal of circular "
+                + "sugars counter: " + this.linSugInRingsLostInRemovalOfCircSugCounter);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Molecules that lost a linear sugar in a ring after removal of circular sugars: ",
+                this.linSugInRingsLostInRemovalOfCircSugIDs);
+        this.printAndWrite("");
+        this.printAndWrite("Size (= carbon atom count) frequency distribution of linear sugars (note set min and max sizes): ");
+        PrintWriter tmpCSVWriter = this.initializeOutputFile("LinSugarsCarbonAtomCountFrequencies.csv");
+        tmpCSVWriter.println("CarbonAtomCount" + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR + "Frequency");
+        int tmpMaxCarbonAtomCount = this.getMaxCarbonAtomCount();
+        //starting at zero to see whether problems occurred
+        for (int i = 0; i <= tmpMaxCarbonAtomCount; i++) {
+            String tmpLine = i + AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR + this.carbonAtomCountFrequencies[i];
+            this.printAndWrite(tmpLine);
+            tmpCSVWriter.println(tmpLine);
+        }
+        tmpCSVWriter.flush();
+        tmpCSVWriter.close();
+        this.closeOutputFile();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of analysed molecules.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the number of linear sugar moieties that are only detected if cyclic atoms are included.
+     *
+     * @return linear sugar moieties in rings counter
+     */
+    public int getLinearSugarMoietiesInRingsCounter() {
+        return this.linearSugarMoietiesInRingsCounter;
+    }
+
+    /**
+     * Returns the number of linear sugars in rings that got lost through the removal of circular sugars.
+     *
+     * @return counter of lost linear sugars in rings
+     */
+    public int getLinSugInRingsLostInRemovalOfCircSugCounter() {
+        return this.linSugInRingsLostInRemovalOfCircSugCounter;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Counts the carbon atoms of the given linear sugar candidate and adds the count to the frequency distribution.
+     *
+     * @param aCandidate linear sugar candidate
+     */
+    private void addCarbonAtomCount(IAtomContainer aCandidate) {
+        int tmpCarbonCount = 0;
+        for (IAtom tmpAtom : aCandidate.atoms()) {
+            if (tmpAtom.getSymbol().equals("C")) {
+                tmpCarbonCount++;
+            }
+        }
+        if (tmpCarbonCount >= this.carbonAtomCountFrequencies.length) {
+            this.carbonAtomCountFrequencies = Arrays.copyOf(this.carbonAtomCountFrequencies, tmpCarbonCount + 1);
+        }
+        this.carbonAtomCountFrequencies[tmpCarbonCount]++;
+    }
+
+    /**
+     * Returns the highest carbon atom count of a linear sugar in a ring.
+     *
+     * @return highest carbon atom count, -1 if no linear sugar in a ring was detected
+     */
+    private int getMaxCarbonAtomCount() {
+        for (int i = this.carbonAtomCountFrequencies.length - 1; i >= 0; i--) {
+            if (this.carbonAtomCountFrequencies[i] != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    //</editor-fold>
+}
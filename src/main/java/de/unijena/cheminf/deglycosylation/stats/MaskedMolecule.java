@@ -0,0 +1,375 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * View of a molecule minus removed atoms, e.g. minus removed sugar moieties, that is represented as a bit set mask
+ * over the atom indices of the unaltered molecule. Emptiness, atom counts, and the fragments that remain can be
+ * queried on the mask without copying the molecule, using the adjacency list of its {@link MoleculeGraphContext}. An
+ * atom container of the remaining atoms is only created when it is needed, e.g. for SMILES generation or depiction,
+ * see toAtomContainer().
+ * <br>The molecule must not be altered while views on it are in use. Instances are not thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MaskedMolecule {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Graph context of the unaltered molecule
+     */
+    private final MoleculeGraphContext graphContext;
+
+    /**
+     * Indices of the removed atoms
+     */
+    private final BitSet removedAtoms;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of atoms that are not removed
+     */
+    private int atomCount;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor for a view of the given molecule with no atoms removed. The graph context of the molecule is
+     * created here.
+     *
+     * @param aMolecule the molecule
+     * @throws NullPointerException if the given molecule is null
+     */
+    public MaskedMolecule(IAtomContainer aMolecule) throws NullPointerException {
+        this(new MoleculeGraphContext(aMolecule));
+    }
+
+    /**
+     * Constructor for a view of the molecule of the given graph context with no atoms removed.
+     *
+     * @param aGraphContext graph context of the molecule
+     * @throws NullPointerException if the given graph context is null
+     * @throws IllegalArgumentException if the given graph context is not valid for its molecule anymore
+     */
+    public MaskedMolecule(MoleculeGraphContext aGraphContext) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aGraphContext, "Given graph context is 'null'.");
+        if (!aGraphContext.isValidFor(aGraphContext.getMolecule())) {
+            throw new IllegalArgumentException("Given graph context is not valid for its molecule anymore.");
+        }
+        this.graphContext = aGraphContext;
+        this.removedAtoms = new BitSet(aGraphContext.getAdjacencyList().length);
+        this.atomCount = aGraphContext.getAdjacencyList().length;
+    }
+
+    /**
+     * Copy constructor, sharing the graph context of the given view.
+     *
+     * @param aMaskedMolecule the view to copy
+     */
+    private MaskedMolecule(MaskedMolecule aMaskedMolecule) {
+        this.graphContext = aMaskedMolecule.graphContext;
+        this.removedAtoms = (BitSet) aMaskedMolecule.removedAtoms.clone();
+        this.atomCount = aMaskedMolecule.atomCount;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns a copy of this view with the same removed atoms. Only the mask is copied, not the molecule.
+     *
+     * @return copy of this view
+     */
+    public MaskedMolecule copy() {
+        return new MaskedMolecule(this);
+    }
+
+    /**
+     * Returns true if all atoms are removed.
+     *
+     * @return true if the view is empty
+     */
+    public boolean isEmpty() {
+        return this.atomCount == 0;
+    }
+
+    /**
+     * Returns true if the atom with the given index is removed.
+     *
+     * @param anAtomIndex index of the atom in the molecule
+     * @return true if the atom is removed
+     */
+    public boolean isRemoved(int anAtomIndex) {
+        return this.removedAtoms.get(anAtomIndex);
+    }
+
+    /**
+     * Returns true if the given atom is part of the molecule and not removed.
+     *
+     * @param anAtom the atom
+     * @return true if the atom is contained in this view
+     */
+    public boolean contains(IAtom anAtom) {
+        int tmpIndex = this.graphContext.getAtomIndex(anAtom);
+        return tmpIndex >= 0 && !this.removedAtoms.get(tmpIndex);
+    }
+
+    /**
+     * Returns true if all atoms of the given substructure are part of the molecule and not removed.
+     *
+     * @param aSubstructure atom container sharing its atoms with the molecule, e.g. a sugar candidate
+     * @return true if the substructure is contained in this view
+     */
+    public boolean containsAll(IAtomContainer aSubstructure) {
+        for (IAtom tmpAtom : aSubstructure.atoms()) {
+            if (!this.contains(tmpAtom)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the atom with the given index. Nothing happens if it is already removed.
+     *
+     * @param anAtomIndex index of the atom in the molecule
+     */
+    public void remove(int anAtomIndex) {
+        if (!this.removedAtoms.get(anAtomIndex)) {
+            this.removedAtoms.set(anAtomIndex);
+            this.atomCount--;
+        }
+    }
+
+    /**
+     * Removes all atoms of the given substructure. Atoms that are already removed are skipped.
+     *
+     * @param aSubstructure atom container sharing its atoms with the molecule, e.g. a sugar candidate
+     * @throws NullPointerException if the given substructure is null
+     * @throws IllegalArgumentException if an atom of the substructure is not part of the molecule
+     */
+    public void remove(IAtomContainer aSubstructure) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aSubstructure, "Given substructure is 'null'.");
+        for (IAtom tmpAtom : aSubstructure.atoms()) {
+            this.remove(this.getAtomIndexChecked(tmpAtom));
+        }
+    }
+
+    /**
+     * Returns the fragments, i.e. connected components, of the atoms that are not removed, each as a bit set of atom
+     * indices.
+     *
+     * @return list of fragments, empty if the view is empty
+     */
+    public List<BitSet> getFragments() {
+        int[][] tmpAdjacencyList = this.graphContext.getAdjacencyList();
+        List<BitSet> tmpFragments = new ArrayList<>(2);
+        BitSet tmpVisited = (BitSet) this.removedAtoms.clone();
+        int[] tmpQueue = new int[this.atomCount];
+        for (int tmpStart = tmpVisited.nextClearBit(0); tmpStart < tmpAdjacencyList.length;
+             tmpStart = tmpVisited.nextClearBit(tmpStart + 1)) {
+            BitSet tmpFragment = new BitSet(tmpAdjacencyList.length);
+            int tmpHead = 0;
+            int tmpTail = 0;
+            tmpQueue[tmpTail++] = tmpStart;
+            tmpVisited.set(tmpStart);
+            while (tmpHead < tmpTail) {
+                int tmpAtomIndex = tmpQueue[tmpHead++];
+                tmpFragment.set(tmpAtomIndex);
+                for (int tmpNeighbour : tmpAdjacencyList[tmpAtomIndex]) {
+                    if (!tmpVisited.get(tmpNeighbour)) {
+                        tmpVisited.set(tmpNeighbour);
+                        tmpQueue[tmpTail++] = tmpNeighbour;
+                    }
+                }
+            }
+            tmpFragments.add(tmpFragment);
+        }
+        return tmpFragments;
+    }
+
+    /**
+     * Returns the number of fragments, i.e. connected components, of the atoms that are not removed.
+     *
+     * @return number of fragments, 0 if the view is empty
+     */
+    public int getFragmentCount() {
+        return this.getFragments().size();
+    }
+
+    /**
+     * Returns true if the atoms that are not removed form a single fragment. Like
+     * ConnectivityChecker.isConnected(), true is also returned for an empty view.
+     *
+     * @return true if the view is connected
+     */
+    public boolean isConnected() {
+        return this.getFragmentCount() <= 1;
+    }
+
+    /**
+     * Returns the number of atoms that are not removed.
+     *
+     * @return atom count
+     */
+    public int getAtomCount() {
+        return this.atomCount;
+    }
+
+    /**
+     * Returns the number of heavy atoms, i.e. non-hydrogen atoms, that are not removed.
+     *
+     * @return heavy atom count
+     */
+    public int getHeavyAtomCount() {
+        BitSet tmpAtoms = new BitSet(this.graphContext.getAdjacencyList().length);
+        tmpAtoms.set(0, this.graphContext.getAdjacencyList().length);
+        tmpAtoms.andNot(this.removedAtoms);
+        return this.getHeavyAtomCount(tmpAtoms);
+    }
+
+    /**
+     * Returns the number of heavy atoms, i.e. non-hydrogen atoms, among the atoms with the given indices, e.g. of a
+     * fragment.
+     *
+     * @param anAtomIndexSet indices of atoms in the molecule
+     * @return heavy atom count
+     */
+    public int getHeavyAtomCount(BitSet anAtomIndexSet) {
+        IAtomContainer tmpMolecule = this.graphContext.getMolecule();
+        int tmpCount = 0;
+        for (int i = anAtomIndexSet.nextSetBit(0); i >= 0; i = anAtomIndexSet.nextSetBit(i + 1)) {
+            Integer tmpAtomicNumber = tmpMolecule.getAtom(i).getAtomicNumber();
+            if (Objects.isNull(tmpAtomicNumber) || tmpAtomicNumber != 1) {
+                tmpCount++;
+            }
+        }
+        return tmpCount;
+    }
+
+    /**
+     * Removes all fragments that have fewer heavy atoms than the given threshold, like the Sugar Removal Utility does
+     * with too small disconnected structures in the preservation mode based on heavy atom count.
+     *
+     * @param aHeavyAtomCountThreshold minimum heavy atom count of fragments to keep
+     * @return number of removed fragments
+     */
+    public int removeFragmentsWithFewerHeavyAtomsThan(int aHeavyAtomCountThreshold) {
+        int tmpRemovedFragments = 0;
+        for (BitSet tmpFragment : this.getFragments()) {
+            if (this.getHeavyAtomCount(tmpFragment) < aHeavyAtomCountThreshold) {
+                for (int i = tmpFragment.nextSetBit(0); i >= 0; i = tmpFragment.nextSetBit(i + 1)) {
+                    this.remove(i);
+                }
+                tmpRemovedFragments++;
+            }
+        }
+        return tmpRemovedFragments;
+    }
+
+    /**
+     * Creates an atom container of the atoms that are not removed and the bonds between them. Atoms and bonds are
+     * shared with the molecule, like in the sugar candidates of the Sugar Removal Utility, and the properties of the
+     * molecule are copied. To get an independent molecule, clone the returned container.
+     *
+     * @return atom container of the remaining atoms
+     */
+    public IAtomContainer toAtomContainer() {
+        BitSet tmpAtoms = new BitSet(this.graphContext.getAdjacencyList().length);
+        tmpAtoms.set(0, this.graphContext.getAdjacencyList().length);
+        tmpAtoms.andNot(this.removedAtoms);
+        IAtomContainer tmpContainer = this.toAtomContainer(tmpAtoms);
+        tmpContainer.addProperties(this.graphContext.getMolecule().getProperties());
+        return tmpContainer;
+    }
+
+    /**
+     * Creates an atom container of the atoms with the given indices, e.g. of a fragment, and the bonds between them.
+     * Atoms and bonds are shared with the molecule.
+     *
+     * @param anAtomIndexSet indices of atoms in the molecule
+     * @return atom container of the given atoms
+     */
+    public IAtomContainer toAtomContainer(BitSet anAtomIndexSet) {
+        IAtomContainer tmpMolecule = this.graphContext.getMolecule();
+        IAtomContainer tmpContainer = tmpMolecule.getBuilder().newAtomContainer();
+        for (int i = anAtomIndexSet.nextSetBit(0); i >= 0; i = anAtomIndexSet.nextSetBit(i + 1)) {
+            tmpContainer.addAtom(tmpMolecule.getAtom(i));
+        }
+        for (IBond tmpBond : tmpMolecule.bonds()) {
+            if (anAtomIndexSet.get(this.graphContext.getAtomIndex(tmpBond.getBegin()))
+                    && anAtomIndexSet.get(this.graphContext.getAtomIndex(tmpBond.getEnd()))) {
+                tmpContainer.addBond(tmpBond);
+            }
+        }
+        return tmpContainer;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the graph context of the unaltered molecule.
+     *
+     * @return graph context
+     */
+    public MoleculeGraphContext getGraphContext() {
+        return this.graphContext;
+    }
+
+    /**
+     * Returns the unaltered molecule. Removed atoms are still part of it.
+     *
+     * @return the molecule
+     */
+    public IAtomContainer getMolecule() {
+        return this.graphContext.getMolecule();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Returns the index of the given atom in the molecule.
+     *
+     * @param anAtom the atom
+     * @return index of the atom in the molecule
+     * @throws IllegalArgumentException if the atom is not part of the molecule
+     */
+    private int getAtomIndexChecked(IAtom anAtom) throws IllegalArgumentException {
+        int tmpIndex = this.graphContext.getAtomIndex(anAtom);
+        if (tmpIndex < 0) {
+            throw new IllegalArgumentException("Given atom is not part of the molecule.");
+        }
+        return tmpIndex;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,444 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.fingerprint.CircularFingerprinter;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * MaxMin diverse-subset picker on fingerprints held in memory or in a memory-mapped fingerprint store. The first
+ * molecule is picked at random, every further pick is the molecule with the greatest distance to its nearest already
+ * picked molecule. Like the lazy picker of RDKit that was used in ZINC_for-sale_curation.py, the distances to the
+ * picked molecules are only computed as far as needed: the minimum distance known for a molecule is an upper bound of
+ * its actual minimum distance, so molecules whose bound cannot beat the best candidate of the current iteration are
+ * not updated. The scan over all molecules in every iteration is split into ranges that are processed in parallel on
+ * a ForkJoinPool; ties are resolved in favour of the lower index, so the picks do not depend on the parallelism.
+ * <br>pickFromSmilesFile() picks a subset of a whole SMILES file in one pass, replacing the pooled picking of the
+ * Python script, with CDK ECFP6 fingerprints as counterpart of the RDKit Morgan fingerprints of radius 3.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MaxMinPicker {
+    //<editor-fold desc="Enum SimilarityMetric">
+    /**
+     * Similarity metrics of fingerprints, the distance is one minus the similarity
+     */
+    public enum SimilarityMetric {
+        /**
+         * Dice similarity, as used in ZINC_for-sale_curation.py
+         */
+        DICE,
+        /**
+         * Tanimoto similarity
+         */
+        TANIMOTO;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default seed for the random first pick, the one used in ZINC_for-sale_curation.py
+     */
+    public static final long DEFAULT_SEED = 23L;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(MaxMinPicker.class.getName());
+
+    /**
+     * Minimum number of molecules in a range that is scanned by one task
+     */
+    private static final int MIN_RANGE_SIZE = 1024;
+
+    /**
+     * Number of SMILES codes fingerprinted in one batch while reading a SMILES file
+     */
+    private static final int FINGERPRINT_BATCH_SIZE = 8192;
+
+    /**
+     * Maximum number of SMILES codes fingerprinted in one task
+     */
+    private static final int FINGERPRINT_TASK_SIZE = 64;
+
+    /**
+     * SMILES parser of every worker thread
+     */
+    private static final ThreadLocal<SmilesParser> SMILES_PARSER = ThreadLocal.withInitial(
+            () -> new SmilesParser(DefaultChemObjectBuilder.getInstance()));
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Fingerprints of the molecules to pick from
+     */
+    private final FingerprintCollection fingerprints;
+
+    /**
+     * Metric the distances are based on
+     */
+    private final SimilarityMetric metric;
+
+    /**
+     * Number of worker threads
+     */
+    private final int parallelism;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a picker for the given fingerprints.
+     *
+     * @param aFingerprints fingerprints of the molecules to pick from
+     * @param aMetric metric the distances are based on
+     * @param aParallelism number of worker threads
+     * @throws NullPointerException if a parameter is null
+     * @throws IllegalArgumentException if the parallelism is smaller than 1
+     */
+    public MaxMinPicker(FingerprintCollection aFingerprints, SimilarityMetric aMetric, int aParallelism)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aFingerprints, "Given fingerprints are 'null'.");
+        Objects.requireNonNull(aMetric, "Given metric is 'null'.");
+        if (aParallelism < 1) {
+            throw new IllegalArgumentException("Given parallelism is smaller than 1.");
+        }
+        this.fingerprints = aFingerprints;
+        this.metric = aMetric;
+        this.parallelism = aParallelism;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Picks a diverse subset of the molecules in the given SMILES file and writes it to the output file as SMILES
+     * codes with IDs, in the order of the input file. Molecules that cannot be read or parsed are skipped. The file is
+     * read twice: first to compute the ECFP6 fingerprints in parallel, then to write the picked molecules, so that the
+     * SMILES codes do not need to be held in memory.
+     *
+     * @param aSmilesFile SMILES file to pick from
+     * @param anOutputFile file to write the picked molecules to
+     * @param aNumberToPick number of molecules to pick
+     * @param aNumberOfBits number of bits of the fingerprints
+     * @param aSeed seed for the random first pick
+     * @param aParallelism number of worker threads
+     * @return number of picked molecules, smaller than the requested number if the file contains fewer molecules
+     * @throws NullPointerException if a file is null
+     * @throws IllegalArgumentException if the number to pick is negative or a number of bits or the parallelism is
+     * smaller than 1
+     * @throws IOException if a file cannot be read or written
+     */
+    public static int pickFromSmilesFile(File aSmilesFile, File anOutputFile, int aNumberToPick, int aNumberOfBits,
+                                         long aSeed, int aParallelism)
+            throws NullPointerException, IllegalArgumentException, IOException {
+        Objects.requireNonNull(aSmilesFile, "Given SMILES file is 'null'.");
+        Objects.requireNonNull(anOutputFile, "Given output file is 'null'.");
+        PackedFingerprints tmpFingerprints = new PackedFingerprints(aNumberOfBits, MaxMinPicker.FINGERPRINT_BATCH_SIZE);
+        //index of the record in the file for every fingerprint
+        int[] tmpRecordIndices = new int[MaxMinPicker.FINGERPRINT_BATCH_SIZE];
+        ForkJoinPool tmpPool = new ForkJoinPool(aParallelism);
+        int tmpRecordCounter = 0;
+        try (SmilesFileMoleculeSource tmpSource = new SmilesFileMoleculeSource(aSmilesFile)) {
+            //the next batch is read while the previous one is fingerprinted
+            ForkJoinTask<Void> tmpPendingBatch = null;
+            BitSet[] tmpPendingBatchFingerprints = null;
+            int tmpPendingBatchStart = 0;
+            while (true) {
+                List<String> tmpBatch = new ArrayList<>(MaxMinPicker.FINGERPRINT_BATCH_SIZE);
+                int tmpBatchStart = tmpRecordCounter;
+                while (tmpBatch.size() < MaxMinPicker.FINGERPRINT_BATCH_SIZE && tmpSource.hasNext()) {
+                    try {
+                        tmpBatch.add(tmpSource.next().getSmilesCode());
+                    } catch (IllegalArgumentException anException) {
+                        MaxMinPicker.LOGGER.log(Level.WARNING, anException.toString());
+                        tmpBatch.add(null);
+                    }
+                    tmpRecordCounter++;
+                }
+                if (!Objects.isNull(tmpPendingBatch)) {
+                    tmpPendingBatch.join();
+                    BitSet[] tmpBatchFingerprints = tmpPendingBatchFingerprints;
+                    for (int i = 0; i < tmpBatchFingerprints.length; i++) {
+                        if (Objects.isNull(tmpBatchFingerprints[i])) {
+                            continue;
+                        }
+                        int tmpIndex = tmpFingerprints.add(tmpBatchFingerprints[i]);
+                        if (tmpIndex == tmpRecordIndices.length) {
+                            tmpRecordIndices = Arrays.copyOf(tmpRecordIndices, tmpRecordIndices.length * 2);
+                        }
+                        tmpRecordIndices[tmpIndex] = tmpPendingBatchStart + i;
+                    }
+                }
+                if (tmpBatch.isEmpty()) {
+                    break;
+                }
+                tmpPendingBatchFingerprints = new BitSet[tmpBatch.size()];
+                tmpPendingBatch = tmpPool.submit(new FingerprintTask(tmpBatch, tmpPendingBatchFingerprints,
+                        aNumberOfBits, 0, tmpBatch.size()));
+                tmpPendingBatchStart = tmpBatchStart;
+            }
+        } finally {
+            tmpPool.shutdown();
+        }
+        System.out.println(tmpFingerprints.size() + " of " + tmpRecordCounter + " molecules were fingerprinted.");
+        int tmpNumberToPick = Math.min(aNumberToPick, tmpFingerprints.size());
+        MaxMinPicker tmpPicker = new MaxMinPicker(tmpFingerprints, SimilarityMetric.DICE, aParallelism);
+        int[] tmpPicks = tmpPicker.pick(tmpNumberToPick, aSeed);
+        int[] tmpPickedRecordIndices = new int[tmpPicks.length];
+        for (int i = 0; i < tmpPicks.length; i++) {
+            tmpPickedRecordIndices[i] = tmpRecordIndices[tmpPicks[i]];
+        }
+        Arrays.sort(tmpPickedRecordIndices);
+        try (SmilesFileMoleculeSource tmpSource = new SmilesFileMoleculeSource(aSmilesFile);
+             PrintWriter tmpWriter = new PrintWriter(new FileWriter(anOutputFile))) {
+            tmpWriter.println("SMILES Name");
+            int tmpRecordIndex = 0;
+            int tmpNextPick = 0;
+            while (tmpNextPick < tmpPickedRecordIndices.length && tmpSource.hasNext()) {
+                MoleculeRecord tmpRecord;
+                try {
+                    tmpRecord = tmpSource.next();
+                } catch (IllegalArgumentException anException) {
+                    tmpRecordIndex++;
+                    continue;
+                }
+                if (tmpRecordIndex == tmpPickedRecordIndices[tmpNextPick]) {
+                    tmpWriter.println(tmpRecord.getSmilesCode() + " " + tmpRecord.getID());
+                    tmpNextPick++;
+                }
+                tmpRecordIndex++;
+            }
+        }
+        return tmpPicks.length;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Picks the given number of fingerprints.
+     *
+     * @param aNumberToPick number of fingerprints to pick
+     * @param aSeed seed for the random first pick
+     * @return indices of the picked fingerprints, in the order they were picked
+     * @throws IllegalArgumentException if the number to pick is negative or greater than the number of fingerprints
+     */
+    public int[] pick(int aNumberToPick, long aSeed) throws IllegalArgumentException {
+        int tmpSize = this.fingerprints.size();
+        if (aNumberToPick < 0 || aNumberToPick > tmpSize) {
+            throw new IllegalArgumentException("Given number to pick is negative or greater than the number of fingerprints.");
+        }
+        int[] tmpPicks = new int[aNumberToPick];
+        if (aNumberToPick == 0) {
+            return tmpPicks;
+        }
+        //upper bound of the minimum distance to the picked molecules, -1 for picked molecules
+        double[] tmpMinDistanceBounds = new double[tmpSize];
+        Arrays.fill(tmpMinDistanceBounds, Double.MAX_VALUE);
+        //number of picks the bound of a molecule has been computed against
+        int[] tmpComparedPicksCounts = new int[tmpSize];
+        tmpPicks[0] = new Random(aSeed).nextInt(tmpSize);
+        tmpMinDistanceBounds[tmpPicks[0]] = -1.0;
+        int tmpRangeSize = Math.max(MaxMinPicker.MIN_RANGE_SIZE, tmpSize / (this.parallelism * 4) + 1);
+        ForkJoinPool tmpPool = new ForkJoinPool(this.parallelism);
+        try {
+            for (int p = 1; p < aNumberToPick; p++) {
+                int tmpNext = tmpPool.invoke(new ScanTask(tmpPicks, p, tmpMinDistanceBounds, tmpComparedPicksCounts,
+                        tmpRangeSize, 0, tmpSize));
+                tmpPicks[p] = tmpNext;
+                tmpMinDistanceBounds[tmpNext] = -1.0;
+            }
+        } finally {
+            tmpPool.shutdown();
+        }
+        return tmpPicks;
+    }
+
+    /**
+     * Returns the distance of the two fingerprints according to the metric of this picker.
+     *
+     * @param anIndex index of the first fingerprint
+     * @param anotherIndex index of the second fingerprint
+     * @return distance between 0 and 1
+     */
+    public double getDistance(int anIndex, int anotherIndex) {
+        return switch (this.metric) {
+            case DICE -> 1.0 - this.fingerprints.getDiceSimilarity(anIndex, anotherIndex);
+            case TANIMOTO -> 1.0 - this.fingerprints.getTanimotoSimilarity(anIndex, anotherIndex);
+        };
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private classes">
+    /**
+     * Task scanning a range of molecules for the next pick. The bounds of the molecules are updated only as far as
+     * they can still beat the best candidate found so far in the range; the task returns the index of the molecule
+     * with the greatest minimum distance, the lowest one in case of ties, or -1 if all molecules are picked.
+     */
+    private class ScanTask extends RecursiveTask<Integer> {
+        private final int[] picks;
+
+        private final int picksCount;
+
+        private final double[] minDistanceBounds;
+
+        private final int[] comparedPicksCounts;
+
+        private final int rangeSize;
+
+        private final int start;
+
+        private final int end;
+
+        ScanTask(int[] aPicks, int aPicksCount, double[] aMinDistanceBounds, int[] aComparedPicksCounts,
+                 int aRangeSize, int aStart, int anEnd) {
+            this.picks = aPicks;
+            this.picksCount = aPicksCount;
+            this.minDistanceBounds = aMinDistanceBounds;
+            this.comparedPicksCounts = aComparedPicksCounts;
+            this.rangeSize = aRangeSize;
+            this.start = aStart;
+            this.end = anEnd;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected Integer compute() {
+            if (this.end - this.start > this.rangeSize) {
+                int tmpMiddle = (this.start + this.end) >>> 1;
+                ScanTask tmpLeft = new ScanTask(this.picks, this.picksCount, this.minDistanceBounds,
+                        this.comparedPicksCounts, this.rangeSize, this.start, tmpMiddle);
+                ScanTask tmpRight = new ScanTask(this.picks, this.picksCount, this.minDistanceBounds,
+                        this.comparedPicksCounts, this.rangeSize, tmpMiddle, this.end);
+                tmpRight.fork();
+                int tmpLeftBest = tmpLeft.compute();
+                int tmpRightBest = tmpRight.join();
+                if (tmpLeftBest < 0) {
+                    return tmpRightBest;
+                }
+                if (tmpRightBest < 0 || this.minDistanceBounds[tmpLeftBest] >= this.minDistanceBounds[tmpRightBest]) {
+                    return tmpLeftBest;
+                }
+                return tmpRightBest;
+            }
+            int tmpBest = -1;
+            double tmpBestDistance = -1.0;
+            for (int i = this.start; i < this.end; i++) {
+                double tmpBound = this.minDistanceBounds[i];
+                //picked molecules have a negative bound; a later index cannot win a tie
+                if (tmpBound <= tmpBestDistance) {
+                    continue;
+                }
+                int j = this.comparedPicksCounts[i];
+                while (j < this.picksCount && tmpBound > tmpBestDistance) {
+                    tmpBound = Math.min(tmpBound, MaxMinPicker.this.getDistance(i, this.picks[j]));
+                    j++;
+                }
+                this.minDistanceBounds[i] = tmpBound;
+                this.comparedPicksCounts[i] = j;
+                if (tmpBound > tmpBestDistance) {
+                    tmpBest = i;
+                    tmpBestDistance = tmpBound;
+                }
+            }
+            return tmpBest;
+        }
+    }
+
+    /**
+     * Task parsing and fingerprinting a range of SMILES codes; codes that cannot be parsed get no fingerprint.
+     */
+    private static class FingerprintTask extends RecursiveAction {
+        private final List<String> smilesCodes;
+
+        private final BitSet[] results;
+
+        private final int numberOfBits;
+
+        private final int start;
+
+        private final int end;
+
+        FingerprintTask(List<String> aSmilesCodesList, BitSet[] aResults, int aNumberOfBits, int aStart, int anEnd) {
+            this.smilesCodes = aSmilesCodesList;
+            this.results = aResults;
+            this.numberOfBits = aNumberOfBits;
+            this.start = aStart;
+            this.end = anEnd;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            if (this.end - this.start > MaxMinPicker.FINGERPRINT_TASK_SIZE) {
+                int tmpMiddle = (this.start + this.end) >>> 1;
+                ForkJoinTask.invokeAll(
+                        new FingerprintTask(this.smilesCodes, this.results, this.numberOfBits, this.start, tmpMiddle),
+                        new FingerprintTask(this.smilesCodes, this.results, this.numberOfBits, tmpMiddle, this.end));
+                return;
+            }
+            //the fingerprinter keeps state of the last molecule, so every task uses its own
+            CircularFingerprinter tmpFingerprinter = new CircularFingerprinter(CircularFingerprinter.CLASS_ECFP6,
+                    this.numberOfBits);
+            SmilesParser tmpSmiPar = MaxMinPicker.SMILES_PARSER.get();
+            for (int i = this.start; i < this.end; i++) {
+                String tmpSmilesCode = this.smilesCodes.get(i);
+                if (Objects.isNull(tmpSmilesCode)) {
+                    continue;
+                }
+                try {
+                    IAtomContainer tmpMolecule = tmpSmiPar.parseSmiles(tmpSmilesCode);
+                    this.results[i] = tmpFingerprinter.getBitFingerprint(tmpMolecule).asBitSet();
+                } catch (Exception anException) {
+                    MaxMinPicker.LOGGER.log(Level.WARNING, anException + " SMILES code: " + tmpSmilesCode);
+                }
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,442 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded-memory frequency counter of sugar moieties (or any other items given as strings, e.g. unique SMILES codes)
+ * that replaces the map of all distinct moieties in the moiety frequency tests of GlycosylationStatisticsTest. It
+ * implements the Space-Saving algorithm (Metwally et al., 2005): at most 'capacity' items are monitored; a new item
+ * that arrives when all counters are in use takes over the counter with the smallest count and inherits this count as
+ * its possible overestimation.
+ * <br>Guarantees, with N being the total count of all added items and k the capacity: the count reported for an
+ * item is never smaller than its true frequency and overestimates it by at most its error, which is at most N / k;
+ * every item with a true frequency greater than N / k is monitored. Hence, the top-N list is exact as long as fewer
+ * than k distinct items occur, which is the case for the few hundred distinct moieties in COCONUT with the default
+ * capacity.
+ * <br>Sketches of parts of a dataset, e.g. of different threads or shards, are combined via merge() (Agarwal et al.,
+ * "Mergeable summaries", 2012) with the same guarantees for the combined stream. Instances are not thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MoietyFrequencySketch {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default number of monitored items
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Maximum number of monitored items
+     */
+    private final int capacity;
+
+    /**
+     * Counters of the monitored items by item
+     */
+    private final Map<String, Counter> counters;
+
+    /**
+     * Binary min-heap of the counters by count; every counter knows its heap index
+     */
+    private final Counter[] heap;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of counters in use
+     */
+    private int size;
+
+    /**
+     * Total count of all added items
+     */
+    private long totalCount;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates an empty sketch with the default capacity.
+     */
+    public MoietyFrequencySketch() {
+        this(MoietyFrequencySketch.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty sketch monitoring at most the given number of items.
+     *
+     * @param aCapacity maximum number of monitored items
+     * @throws IllegalArgumentException if the capacity is smaller than 1
+     */
+    public MoietyFrequencySketch(int aCapacity) throws IllegalArgumentException {
+        if (aCapacity < 1) {
+            throw new IllegalArgumentException("Given capacity must be positive.");
+        }
+        this.capacity = aCapacity;
+        this.counters = new HashMap<>((int) (aCapacity / 0.75f) + 1);
+        this.heap = new Counter[aCapacity];
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds one occurrence of the given item.
+     *
+     * @param anItem item, e.g. the unique SMILES code of a moiety
+     * @param anOrigin origin of the occurrence, e.g. the ID of the molecule, kept if the item is new; may be null
+     * @throws NullPointerException if the item is null
+     */
+    public void add(String anItem, String anOrigin) throws NullPointerException {
+        Objects.requireNonNull(anItem, "Given item is 'null'.");
+        this.totalCount++;
+        Counter tmpCounter = this.counters.get(anItem);
+        if (!Objects.isNull(tmpCounter)) {
+            tmpCounter.count++;
+            this.siftDown(tmpCounter.heapIndex);
+            return;
+        }
+        tmpCounter = new Counter(anItem, anOrigin);
+        tmpCounter.count = 1L;
+        if (this.size < this.capacity) {
+            tmpCounter.heapIndex = this.size;
+            this.heap[this.size++] = tmpCounter;
+            this.counters.put(anItem, tmpCounter);
+            this.siftUp(tmpCounter.heapIndex);
+            return;
+        }
+        //the new item takes over the counter with the smallest count
+        Counter tmpMinimumCounter = this.heap[0];
+        this.counters.remove(tmpMinimumCounter.item);
+        tmpCounter.count += tmpMinimumCounter.count;
+        tmpCounter.error = tmpMinimumCounter.count;
+        tmpCounter.heapIndex = 0;
+        this.heap[0] = tmpCounter;
+        this.counters.put(anItem, tmpCounter);
+        this.siftDown(0);
+    }
+
+    /**
+     * Adds the items of another sketch to this one. The given sketch is not altered; the capacity of this sketch is
+     * kept.
+     *
+     * @param anOther sketch to add
+     * @throws NullPointerException if the given sketch is null
+     */
+    public void merge(MoietyFrequencySketch anOther) throws NullPointerException {
+        Objects.requireNonNull(anOther, "Given sketch is 'null'.");
+        //items not monitored by one of the sketches may have occurred up to its minimum count there
+        long tmpThisMinimumCount = this.getMaximumError();
+        long tmpOtherMinimumCount = anOther.getMaximumError();
+        Map<String, Counter> tmpMerged = new HashMap<>((int) ((this.size + anOther.size) / 0.75f) + 1);
+        for (int i = 0; i < this.size; i++) {
+            Counter tmpCounter = this.heap[i];
+            Counter tmpOtherCounter = anOther.counters.get(tmpCounter.item);
+            Counter tmpMergedCounter = new Counter(tmpCounter.item, tmpCounter.origin);
+            tmpMergedCounter.count = tmpCounter.count
+                    + (Objects.isNull(tmpOtherCounter) ? tmpOtherMinimumCount : tmpOtherCounter.count);
+            tmpMergedCounter.error = tmpCounter.error
+                    + (Objects.isNull(tmpOtherCounter) ? tmpOtherMinimumCount : tmpOtherCounter.error);
+            tmpMerged.put(tmpCounter.item, tmpMergedCounter);
+        }
+        for (int i = 0; i < anOther.size; i++) {
+            Counter tmpOtherCounter = anOther.heap[i];
+            if (tmpMerged.containsKey(tmpOtherCounter.item)) {
+                continue;
+            }
+            Counter tmpMergedCounter = new Counter(tmpOtherCounter.item, tmpOtherCounter.origin);
+            tmpMergedCounter.count = tmpOtherCounter.count + tmpThisMinimumCount;
+            tmpMergedCounter.error = tmpOtherCounter.error + tmpThisMinimumCount;
+            tmpMerged.put(tmpOtherCounter.item, tmpMergedCounter);
+        }
+        List<Counter> tmpSortedCounters = new ArrayList<>(tmpMerged.values());
+        tmpSortedCounters.sort(MoietyFrequencySketch.getCounterComparator());
+        this.counters.clear();
+        this.size = 0;
+        this.totalCount += anOther.totalCount;
+        for (Counter tmpCounter : tmpSortedCounters.subList(0, Math.min(this.capacity, tmpSortedCounters.size()))) {
+            this.counters.put(tmpCounter.item, tmpCounter);
+            this.heap[this.size] = tmpCounter;
+            tmpCounter.heapIndex = this.size;
+            this.size++;
+            this.siftUp(tmpCounter.heapIndex);
+        }
+    }
+
+    /**
+     * Returns the most frequent items in descending order of their counts; items with equal counts are ordered by
+     * their guaranteed counts and finally alphabetically.
+     *
+     * @param aNumberOfItems maximum number of returned items
+     * @return list of item frequencies
+     */
+    public List<Frequency> getMostFrequent(int aNumberOfItems) {
+        List<Counter> tmpSortedCounters = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            tmpSortedCounters.add(this.heap[i]);
+        }
+        tmpSortedCounters.sort(MoietyFrequencySketch.getCounterComparator());
+        List<Frequency> tmpFrequencies = new ArrayList<>(Math.min(Math.max(aNumberOfItems, 0), this.size));
+        for (Counter tmpCounter : tmpSortedCounters.subList(0, Math.min(Math.max(aNumberOfItems, 0), this.size))) {
+            tmpFrequencies.add(new Frequency(tmpCounter.item, tmpCounter.count, tmpCounter.error, tmpCounter.origin));
+        }
+        return tmpFrequencies;
+    }
+
+    /**
+     * Returns the maximum overestimation of the count of any monitored item and the maximum count of any item that is
+     * not monitored, i.e. the smallest count if all counters are in use and 0 otherwise. It is at most the total count
+     * divided by the capacity.
+     *
+     * @return maximum error
+     */
+    public long getMaximumError() {
+        return this.size < this.capacity ? 0L : this.heap[0].count;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the maximum number of monitored items.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of monitored items.
+     *
+     * @return size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the total count of all added items.
+     *
+     * @return total count
+     */
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Returns the comparator ordering counters by descending count, descending guaranteed count, and item.
+     */
+    private static Comparator<Counter> getCounterComparator() {
+        return Comparator.comparingLong((Counter aCounter) -> aCounter.count).reversed()
+                .thenComparing(Comparator.comparingLong((Counter aCounter) -> aCounter.count - aCounter.error).reversed())
+                .thenComparing(aCounter -> aCounter.item);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Moves the counter at the given heap index up until its parent's count is not greater.
+     */
+    private void siftUp(int anIndex) {
+        int tmpIndex = anIndex;
+        Counter tmpCounter = this.heap[tmpIndex];
+        while (tmpIndex > 0) {
+            int tmpParentIndex = (tmpIndex - 1) >>> 1;
+            Counter tmpParent = this.heap[tmpParentIndex];
+            if (tmpParent.count <= tmpCounter.count) {
+                break;
+            }
+            this.heap[tmpIndex] = tmpParent;
+            tmpParent.heapIndex = tmpIndex;
+            tmpIndex = tmpParentIndex;
+        }
+        this.heap[tmpIndex] = tmpCounter;
+        tmpCounter.heapIndex = tmpIndex;
+    }
+
+    /**
+     * Moves the counter at the given heap index down until its children's counts are not smaller.
+     */
+    private void siftDown(int anIndex) {
+        int tmpIndex = anIndex;
+        Counter tmpCounter = this.heap[tmpIndex];
+        while (true) {
+            int tmpChildIndex = 2 * tmpIndex + 1;
+            if (tmpChildIndex >= this.size) {
+                break;
+            }
+            if (tmpChildIndex + 1 < this.size && this.heap[tmpChildIndex + 1].count < this.heap[tmpChildIndex].count) {
+                tmpChildIndex++;
+            }
+            Counter tmpChild = this.heap[tmpChildIndex];
+            if (tmpCounter.count <= tmpChild.count) {
+                break;
+            }
+            this.heap[tmpIndex] = tmpChild;
+            tmpChild.heapIndex = tmpIndex;
+            tmpIndex = tmpChildIndex;
+        }
+        this.heap[tmpIndex] = tmpCounter;
+        tmpCounter.heapIndex = tmpIndex;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static inner class Counter">
+    /**
+     * Counter of one monitored item
+     */
+    private static final class Counter {
+        /**
+         * Monitored item
+         */
+        private final String item;
+
+        /**
+         * Origin of the first counted occurrence
+         */
+        private final String origin;
+
+        /**
+         * Count, an upper bound of the true frequency
+         */
+        private long count;
+
+        /**
+         * Maximum overestimation of the count
+         */
+        private long error;
+
+        /**
+         * Index in the heap
+         */
+        private int heapIndex;
+
+        /**
+         * Creates a counter of the given item.
+         */
+        private Counter(String anItem, String anOrigin) {
+            this.item = anItem;
+            this.origin = anOrigin;
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner class Frequency">
+    /**
+     * Reported frequency of one item
+     */
+    public static final class Frequency {
+        /**
+         * The item
+         */
+        private final String item;
+
+        /**
+         * Count, an upper bound of the true frequency
+         */
+        private final long count;
+
+        /**
+         * Maximum overestimation of the count
+         */
+        private final long error;
+
+        /**
+         * Origin of the first counted occurrence
+         */
+        private final String origin;
+
+        /**
+         * Creates a frequency.
+         *
+         * @param anItem the item
+         * @param aCount count, an upper bound of the true frequency
+         * @param anError maximum overestimation of the count
+         * @param anOrigin origin of the first counted occurrence, may be null
+         */
+        public Frequency(String anItem, long aCount, long anError, String anOrigin) {
+            this.item = anItem;
+            this.count = aCount;
+            this.error = anError;
+            this.origin = anOrigin;
+        }
+
+        /**
+         * Returns the item.
+         *
+         * @return item
+         */
+        public String getItem() {
+            return this.item;
+        }
+
+        /**
+         * Returns the count, an upper bound of the true frequency.
+         *
+         * @return count
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Returns the maximum overestimation of the count.
+         *
+         * @return error
+         */
+        public long getError() {
+            return this.error;
+        }
+
+        /**
+         * Returns the guaranteed count, a lower bound of the true frequency.
+         *
+         * @return count minus error
+         */
+        public long getGuaranteedCount() {
+            return this.count - this.error;
+        }
+
+        /**
+         * Returns the origin of the first counted occurrence; if the item took over the counter of another one, this
+         * is the origin of the occurrence it was first counted with.
+         *
+         * @return origin or null
+         */
+        public String getOrigin() {
+            return this.origin;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,389 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Glycosylation characteristics of a single molecule, as counted per molecule in the COCONUT statistics of
+ * GlycosylationStatisticsTest: whether it contains (circular/linear) sugars, how many terminal and non-terminal
+ * moieties, how many circular moieties with an O-glycosidic bond, and the deglycosylated structure. Instances are
+ * immutable and can be serialised to JSON.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MoleculeGlycosylationResult {
+    //<editor-fold desc="Private final variables">
+    private final String id;
+
+    private final String smilesCode;
+
+    private final boolean containsCircularSugars;
+
+    private final boolean containsLinearSugars;
+
+    private final int circularSugarCount;
+
+    private final int terminalCircularSugarCount;
+
+    private final int linearSugarCount;
+
+    private final int terminalLinearSugarCount;
+
+    private final int circularSugarsWithGlycosidicBondCount;
+
+    private final boolean qualifiedForGlycosidicBondExemption;
+
+    private final boolean basicallyASugar;
+
+    private final String deglycosylatedSmilesCode;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a result from already computed values; see compute() for the usual way of obtaining a result.
+     *
+     * @param anID ID of the molecule
+     * @param aSmilesCode input SMILES code of the molecule, may be null
+     * @param aCircularSugarCount number of circular sugar moieties
+     * @param aTerminalCircularSugarCount number of terminal circular sugar moieties
+     * @param aLinearSugarCount number of linear sugar moieties
+     * @param aTerminalLinearSugarCount number of terminal linear sugar moieties
+     * @param aCircularSugarsWithGlycosidicBondCount number of circular sugar moieties with an O-glycosidic bond
+     * @param anIsQualifiedForGlycosidicBondExemption whether the molecule is a single circular sugar without glycosidic
+     *                                               bond that is detected nonetheless
+     * @param anIsBasicallyASugar whether the molecule is empty after removal of all sugars
+     * @param aDeglycosylatedSmilesCode SMILES code of the deglycosylated molecule, empty if it is basically a sugar
+     * @throws NullPointerException if the ID or deglycosylated SMILES code is null
+     */
+    public MoleculeGlycosylationResult(String anID, String aSmilesCode, int aCircularSugarCount,
+                                       int aTerminalCircularSugarCount, int aLinearSugarCount,
+                                       int aTerminalLinearSugarCount, int aCircularSugarsWithGlycosidicBondCount,
+                                       boolean anIsQualifiedForGlycosidicBondExemption, boolean anIsBasicallyASugar,
+                                       String aDeglycosylatedSmilesCode) throws NullPointerException {
+        Objects.requireNonNull(anID, "Given ID is 'null'.");
+        Objects.requireNonNull(aDeglycosylatedSmilesCode, "Given deglycosylated SMILES code is 'null'.");
+        this.id = anID;
+        this.smilesCode = aSmilesCode;
+        this.containsCircularSugars = aCircularSugarCount > 0;
+        this.containsLinearSugars = aLinearSugarCount > 0;
+        this.circularSugarCount = aCircularSugarCount;
+        this.terminalCircularSugarCount = aTerminalCircularSugarCount;
+        this.linearSugarCount = aLinearSugarCount;
+        this.terminalLinearSugarCount = aTerminalLinearSugarCount;
+        this.circularSugarsWithGlycosidicBondCount = aCircularSugarsWithGlycosidicBondCount;
+        this.qualifiedForGlycosidicBondExemption = anIsQualifiedForGlycosidicBondExemption;
+        this.basicallyASugar = anIsBasicallyASugar;
+        this.deglycosylatedSmilesCode = aDeglycosylatedSmilesCode;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Analyses the given molecule. If it consists of multiple unconnected fragments, only the biggest one is
+     * analysed, like in the basic statistics. The given Sugar Removal Utility instance needs to be in default settings
+     * (apart from the property setting) and is used exclusively during this call; its O-glycosidic bond setting is
+     * temporarily changed and reset afterwards. The given molecule is not altered apart from the atom index
+     * properties the SRU sets.
+     *
+     * @param anID ID of the molecule
+     * @param aSmilesCode input SMILES code of the molecule, may be null
+     * @param aMolecule the parsed molecule
+     * @param aSugarRemovalUtil SRU instance in default settings
+     * @param aSmiGen generator for the deglycosylated SMILES code
+     * @return the result
+     * @throws CloneNotSupportedException if the molecule cannot be cloned
+     * @throws CDKException if the deglycosylated SMILES code cannot be generated
+     */
+    public static MoleculeGlycosylationResult compute(String anID, String aSmilesCode, IAtomContainer aMolecule,
+                                                      SugarRemovalUtility aSugarRemovalUtil, SmilesGenerator aSmiGen)
+            throws CloneNotSupportedException, CDKException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        Objects.requireNonNull(aSugarRemovalUtil, "Given Sugar Removal Utility is 'null'.");
+        Objects.requireNonNull(aSmiGen, "Given SMILES generator is 'null'.");
+        IAtomContainer tmpMolecule = aMolecule;
+        if (!ConnectivityChecker.isConnected(tmpMolecule)) {
+            tmpMolecule = SugarRemovalUtility.selectBiggestUnconnectedFragment(tmpMolecule);
+        }
+        int tmpCircularSugarCount = aSugarRemovalUtil.getCircularSugarCandidates(tmpMolecule.clone()).size();
+        int tmpLinearSugarCount = aSugarRemovalUtil.getLinearSugarCandidates(tmpMolecule.clone()).size();
+        if (tmpCircularSugarCount == 0 && tmpLinearSugarCount == 0) {
+            return new MoleculeGlycosylationResult(anID, aSmilesCode, 0, 0, 0, 0, 0, false, false,
+                    aSmiGen.create(tmpMolecule));
+        }
+        int tmpTerminalCircularSugarCount = 0;
+        int tmpCircularSugarsWithGlycosidicBondCount = 0;
+        boolean tmpIsQualifiedForExemption = false;
+        if (tmpCircularSugarCount > 0) {
+            //note: circular moieties that become terminal after removal of a linear moiety are not counted here!
+            //-1 for the deglycosylated core at the beginning of the list
+            tmpTerminalCircularSugarCount = aSugarRemovalUtil.removeAndReturnCircularSugars(tmpMolecule, true).size() - 1;
+            //leaving default! Now, only circular sugars having glycosidic bonds are in the candidates
+            aSugarRemovalUtil.setDetectCircularSugarsOnlyWithOGlycosidicBondSetting(true);
+            try {
+                tmpIsQualifiedForExemption = aSugarRemovalUtil.isQualifiedForGlycosidicBondExemption(tmpMolecule.clone());
+                if (!tmpIsQualifiedForExemption) {
+                    tmpCircularSugarsWithGlycosidicBondCount = aSugarRemovalUtil.getCircularSugarCandidates(
+                            tmpMolecule.clone()).size();
+                }
+            } finally {
+                //back to default!
+                aSugarRemovalUtil.setDetectCircularSugarsOnlyWithOGlycosidicBondSetting(false);
+            }
+        }
+        int tmpTerminalLinearSugarCount = 0;
+        if (tmpLinearSugarCount > 0) {
+            //note: linear moieties that become terminal after removal of a circular moiety are not counted here!
+            List<IAtomContainer> tmpRemovedTerminalLinearMoieties = aSugarRemovalUtil.removeAndReturnLinearSugars(
+                    tmpMolecule, true);
+            tmpTerminalLinearSugarCount = tmpRemovedTerminalLinearMoieties.size() - 1;
+        }
+        IAtomContainer tmpDeglycosylatedClone = aSugarRemovalUtil.removeCircularAndLinearSugars(tmpMolecule, true);
+        boolean tmpIsBasicallyASugar = tmpDeglycosylatedClone.isEmpty();
+        String tmpDeglycosylatedSmilesCode = tmpIsBasicallyASugar ? "" : aSmiGen.create(tmpDeglycosylatedClone);
+        return new MoleculeGlycosylationResult(anID, aSmilesCode, tmpCircularSugarCount, tmpTerminalCircularSugarCount,
+                tmpLinearSugarCount, tmpTerminalLinearSugarCount, tmpCircularSugarsWithGlycosidicBondCount,
+                tmpIsQualifiedForExemption, tmpIsBasicallyASugar, tmpDeglycosylatedSmilesCode);
+    }
+
+    /**
+     * Appends the given string as JSON string literal, i.e. quoted and escaped, to the given builder. Null is appended
+     * as JSON null.
+     *
+     * @param aBuilder the builder to append to
+     * @param aString the string to append
+     */
+    public static void appendJsonString(StringBuilder aBuilder, String aString) {
+        if (Objects.isNull(aString)) {
+            aBuilder.append("null");
+            return;
+        }
+        aBuilder.append('"');
+        for (int i = 0; i < aString.length(); i++) {
+            char tmpChar = aString.charAt(i);
+            switch (tmpChar) {
+                case '"' -> aBuilder.append("\\\"");
+                case '\\' -> aBuilder.append("\\\\");
+                case '\n' -> aBuilder.append("\\n");
+                case '\r' -> aBuilder.append("\\r");
+                case '\t' -> aBuilder.append("\\t");
+                default -> {
+                    if (tmpChar < 0x20) {
+                        aBuilder.append(String.format("\\u%04x", (int) tmpChar));
+                    } else {
+                        aBuilder.append(tmpChar);
+                    }
+                }
+            }
+        }
+        aBuilder.append('"');
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Appends this result as JSON object to the given builder.
+     *
+     * @param aBuilder the builder to append to
+     */
+    public void appendJson(StringBuilder aBuilder) {
+        aBuilder.append("{\"id\":");
+        MoleculeGlycosylationResult.appendJsonString(aBuilder, this.id);
+        aBuilder.append(",\"smiles\":");
+        MoleculeGlycosylationResult.appendJsonString(aBuilder, this.smilesCode);
+        aBuilder.append(",\"containsSugars\":").append(this.containsSugars())
+                .append(",\"containsCircularSugars\":").append(this.containsCircularSugars)
+                .append(",\"containsLinearSugars\":").append(this.containsLinearSugars)
+                .append(",\"circularSugarCount\":").append(this.circularSugarCount)
+                .append(",\"terminalCircularSugarCount\":").append(this.terminalCircularSugarCount)
+                .append(",\"nonTerminalCircularSugarCount\":").append(this.getNonTerminalCircularSugarCount())
+                .append(",\"linearSugarCount\":").append(this.linearSugarCount)
+                .append(",\"terminalLinearSugarCount\":").append(this.terminalLinearSugarCount)
+                .append(",\"nonTerminalLinearSugarCount\":").append(this.getNonTerminalLinearSugarCount())
+                .append(",\"circularSugarsWithGlycosidicBondCount\":").append(this.circularSugarsWithGlycosidicBondCount)
+                .append(",\"glycosidicBondExemption\":").append(this.qualifiedForGlycosidicBondExemption)
+                .append(",\"basicallyASugar\":").append(this.basicallyASugar)
+                .append(",\"deglycosylatedSmiles\":");
+        MoleculeGlycosylationResult.appendJsonString(aBuilder, this.deglycosylatedSmilesCode);
+        aBuilder.append('}');
+    }
+
+    /**
+     * Returns this result as JSON object.
+     *
+     * @return JSON representation
+     */
+    public String toJson() {
+        StringBuilder tmpBuilder = new StringBuilder(256);
+        this.appendJson(tmpBuilder);
+        return tmpBuilder.toString();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the ID of the molecule.
+     *
+     * @return ID
+     */
+    public String getID() {
+        return this.id;
+    }
+
+    /**
+     * Returns the input SMILES code of the molecule, may be null.
+     *
+     * @return SMILES code
+     */
+    public String getSmilesCode() {
+        return this.smilesCode;
+    }
+
+    /**
+     * Returns whether the molecule contains circular or linear sugars.
+     *
+     * @return true if sugars were detected
+     */
+    public boolean containsSugars() {
+        return this.containsCircularSugars || this.containsLinearSugars;
+    }
+
+    /**
+     * Returns whether the molecule contains circular sugars.
+     *
+     * @return true if circular sugars were detected
+     */
+    public boolean containsCircularSugars() {
+        return this.containsCircularSugars;
+    }
+
+    /**
+     * Returns whether the molecule contains linear sugars.
+     *
+     * @return true if linear sugars were detected
+     */
+    public boolean containsLinearSugars() {
+        return this.containsLinearSugars;
+    }
+
+    /**
+     * Returns the number of circular sugar moieties.
+     *
+     * @return circular sugar count
+     */
+    public int getCircularSugarCount() {
+        return this.circularSugarCount;
+    }
+
+    /**
+     * Returns the number of terminal circular sugar moieties.
+     *
+     * @return terminal circular sugar count
+     */
+    public int getTerminalCircularSugarCount() {
+        return this.terminalCircularSugarCount;
+    }
+
+    /**
+     * Returns the number of non-terminal circular sugar moieties.
+     *
+     * @return non-terminal circular sugar count
+     */
+    public int getNonTerminalCircularSugarCount() {
+        return this.circularSugarCount - this.terminalCircularSugarCount;
+    }
+
+    /**
+     * Returns the number of linear sugar moieties.
+     *
+     * @return linear sugar count
+     */
+    public int getLinearSugarCount() {
+        return this.linearSugarCount;
+    }
+
+    /**
+     * Returns the number of terminal linear sugar moieties.
+     *
+     * @return terminal linear sugar count
+     */
+    public int getTerminalLinearSugarCount() {
+        return this.terminalLinearSugarCount;
+    }
+
+    /**
+     * Returns the number of non-terminal linear sugar moieties.
+     *
+     * @return non-terminal linear sugar count
+     */
+    public int getNonTerminalLinearSugarCount() {
+        return this.linearSugarCount - this.terminalLinearSugarCount;
+    }
+
+    /**
+     * Returns the number of circular sugar moieties with an O-glycosidic bond.
+     *
+     * @return count of circular sugars with glycosidic bond
+     */
+    public int getCircularSugarsWithGlycosidicBondCount() {
+        return this.circularSugarsWithGlycosidicBondCount;
+    }
+
+    /**
+     * Returns whether the molecule is a single circular sugar without glycosidic bond that is detected nonetheless.
+     *
+     * @return true if the exemption applies
+     */
+    public boolean isQualifiedForGlycosidicBondExemption() {
+        return this.qualifiedForGlycosidicBondExemption;
+    }
+
+    /**
+     * Returns whether the molecule is empty after removal of all sugars.
+     *
+     * @return true if nothing remains after deglycosylation
+     */
+    public boolean isBasicallyASugar() {
+        return this.basicallyASugar;
+    }
+
+    /**
+     * Returns the SMILES code of the deglycosylated molecule, empty if it is basically a sugar.
+     *
+     * @return deglycosylated SMILES code
+     */
+    public String getDeglycosylatedSmilesCode() {
+        return this.deglycosylatedSmilesCode;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.AtomRef;
+import org.openscience.cdk.graph.GraphUtil;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.ringsearch.RingSearch;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Graph information of one molecule that is computed once and reused by all checks on this molecule: the adjacency
+ * list, the ring membership of every atom, and the mapping of atoms to their indices in the molecule. Candidate atom
+ * containers share their atoms with the molecule, so the ring membership of a candidate atom can be looked up without
+ * another ring perception and without a linear search for the atom in the molecule.
+ * <br>A context becomes invalid when atoms or bonds are added to or removed from its molecule, see isValidFor().
+ * Instances are not thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MoleculeGraphContext {
+    //<editor-fold desc="Private final variables">
+    /**
+     * The molecule this context was created for
+     */
+    private final IAtomContainer molecule;
+
+    /**
+     * Number of atoms of the molecule at creation of this context
+     */
+    private final int atomCount;
+
+    /**
+     * Number of bonds of the molecule at creation of this context
+     */
+    private final int bondCount;
+
+    /**
+     * Adjacency list of the molecule
+     */
+    private final int[][] adjacencyList;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Ring search on the molecule, created on first use
+     */
+    private RingSearch ringSearch;
+
+    /**
+     * Indices of the (dereferenced) atoms of the molecule, created on first use
+     */
+    private Map<IAtom, Integer> atomIndexMap;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor that computes the adjacency list of the given molecule. Ring perception and the atom index mapping
+     * are done lazily when they are first needed.
+     *
+     * @param aMolecule the molecule
+     * @throws NullPointerException if the given molecule is null
+     */
+    public MoleculeGraphContext(IAtomContainer aMolecule) throws NullPointerException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        this.molecule = aMolecule;
+        this.atomCount = aMolecule.getAtomCount();
+        this.bondCount = aMolecule.getBondCount();
+        this.adjacencyList = GraphUtil.toAdjList(aMolecule);
+        this.ringSearch = null;
+        this.atomIndexMap = null;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns true if this context was created for the given molecule and the molecule has not changed in atom or bond
+     * count since then.
+     *
+     * @param aMolecule the molecule to check
+     * @return true if this context can be used for the given molecule
+     */
+    public boolean isValidFor(IAtomContainer aMolecule) {
+        return this.molecule == aMolecule
+                && aMolecule.getAtomCount() == this.atomCount
+                && aMolecule.getBondCount() == this.bondCount;
+    }
+
+    /**
+     * Returns the index of the given atom in the molecule. The atom may also be taken from a candidate or another
+     * atom container that shares its atoms with the molecule.
+     *
+     * @param anAtom the atom
+     * @return index of the atom in the molecule, -1 if it is not part of it
+     */
+    public int getAtomIndex(IAtom anAtom) {
+        if (Objects.isNull(this.atomIndexMap)) {
+            this.atomIndexMap = new IdentityHashMap<>(this.atomCount * 2);
+            for (int i = 0; i < this.atomCount; i++) {
+                this.atomIndexMap.put(AtomRef.deref(this.molecule.getAtom(i)), i);
+            }
+        }
+        Integer tmpIndex = this.atomIndexMap.get(AtomRef.deref(anAtom));
+        return Objects.isNull(tmpIndex) ? -1 : tmpIndex;
+    }
+
+    /**
+     * Returns true if the atom with the given index is part of a ring.
+     *
+     * @param anAtomIndex index of the atom in the molecule
+     * @return true if the atom is cyclic
+     */
+    public boolean isCyclic(int anAtomIndex) {
+        return this.getRingSearch().cyclic(anAtomIndex);
+    }
+
+    /**
+     * Returns true if the given atom is part of a ring in the molecule.
+     *
+     * @param anAtom the atom
+     * @return true if the atom is cyclic
+     * @throws IllegalArgumentException if the atom is not part of the molecule
+     */
+    public boolean isCyclic(IAtom anAtom) throws IllegalArgumentException {
+        int tmpIndex = this.getAtomIndex(anAtom);
+        if (tmpIndex < 0) {
+            throw new IllegalArgumentException("Given atom is not part of the molecule.");
+        }
+        return this.getRingSearch().cyclic(tmpIndex);
+    }
+
+    /**
+     * Returns true if any atom of the given substructure is part of a ring in the molecule.
+     *
+     * @param aSubstructure atom container sharing its atoms with the molecule, e.g. a sugar candidate
+     * @return true if the substructure contains a cyclic atom
+     * @throws IllegalArgumentException if an atom of the substructure is not part of the molecule
+     */
+    public boolean containsCyclicAtom(IAtomContainer aSubstructure) throws IllegalArgumentException {
+        if (!this.hasRings()) {
+            return false;
+        }
+        for (IAtom tmpAtom : aSubstructure.atoms()) {
+            if (this.isCyclic(tmpAtom)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the molecule contains at least one ring.
+     *
+     * @return true if the molecule is cyclic
+     */
+    public boolean hasRings() {
+        return this.getRingSearch().numRings() > 0;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the molecule this context was created for.
+     *
+     * @return the molecule
+     */
+    public IAtomContainer getMolecule() {
+        return this.molecule;
+    }
+
+    /**
+     * Returns the adjacency list of the molecule. The returned array must not be altered.
+     *
+     * @return adjacency list
+     */
+    public int[][] getAdjacencyList() {
+        return this.adjacencyList;
+    }
+
+    /**
+     * Returns the ring search on the molecule, performing the ring perception on first call.
+     *
+     * @return ring search
+     */
+    public RingSearch getRingSearch() {
+        if (Objects.isNull(this.ringSearch)) {
+            this.ringSearch = new RingSearch(this.molecule, this.adjacencyList);
+        }
+        return this.ringSearch;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,255 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IElement;
+import org.openscience.cdk.tools.CDKHydrogenAdder;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+import java.util.Objects;
+
+/**
+ * Configurable preparation of a parsed molecule before it is analysed, covering the different preparations done in
+ * the test methods of GlycosylationStatisticsTest: selection of one fragment (biggest or heaviest) of disconnected
+ * molecules, suppression of explicit hydrogen atoms, and perception of atom types with addition of implicit hydrogen
+ * atoms. Every analysis declares the normalised form it needs (see {@link GlycosylationAnalysis#getRequiredNormalizer()})
+ * and the runner computes every required form only once per molecule. Instances are immutable; two normalisers with
+ * the same configuration are equal and have the same key.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MoleculeNormalizer {
+    //<editor-fold desc="Enum FragmentSelectionOption">
+    /**
+     * Options for the treatment of molecules consisting of multiple unconnected fragments.
+     */
+    public enum FragmentSelectionOption {
+        /**
+         * All fragments are kept
+         */
+        NONE,
+
+        /**
+         * Only the fragment with the most heavy atoms is kept, see SugarRemovalUtility.selectBiggestUnconnectedFragment()
+         */
+        BIGGEST,
+
+        /**
+         * Only the fragment with the highest molecular weight is kept, see
+         * SugarRemovalUtility.selectHeaviestUnconnectedFragment()
+         */
+        HEAVIEST;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Normaliser that leaves the parsed molecule as it is
+     */
+    public static final MoleculeNormalizer NONE = new MoleculeNormalizer(FragmentSelectionOption.NONE, false, false);
+
+    /**
+     * Normaliser that selects the biggest fragment, as done in the basic statistics
+     */
+    public static final MoleculeNormalizer BIGGEST_FRAGMENT = new MoleculeNormalizer(FragmentSelectionOption.BIGGEST,
+            false, false);
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Treatment of disconnected molecules
+     */
+    private final FragmentSelectionOption fragmentSelection;
+
+    /**
+     * Whether explicit hydrogen atoms are removed
+     */
+    private final boolean suppressHydrogens;
+
+    /**
+     * Whether atom types are perceived and implicit hydrogen atoms added
+     */
+    private final boolean perceiveAtomTypes;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a normaliser with the given configuration. Atom types are perceived after fragment selection and
+     * hydrogen suppression.
+     *
+     * @param aFragmentSelection treatment of disconnected molecules
+     * @param aSuppressHydrogens whether explicit hydrogen atoms are removed
+     * @param aPerceiveAtomTypes whether atom types are perceived and implicit hydrogen atoms added
+     * @throws NullPointerException if the fragment selection option is null
+     */
+    public MoleculeNormalizer(FragmentSelectionOption aFragmentSelection, boolean aSuppressHydrogens,
+                              boolean aPerceiveAtomTypes) throws NullPointerException {
+        Objects.requireNonNull(aFragmentSelection, "Given fragment selection option is 'null'.");
+        this.fragmentSelection = aFragmentSelection;
+        this.suppressHydrogens = aSuppressHydrogens;
+        this.perceiveAtomTypes = aPerceiveAtomTypes;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns the normalised form of the given molecule. The given molecule is not altered; if the normalisation
+     * changes anything, a new atom container is returned, otherwise the given one. Note that a selected fragment
+     * shares its atom and bond objects with the given molecule, like in the test methods, so analyses must not alter
+     * them (SRU methods are used with cloning).
+     *
+     * @param aMolecule the parsed molecule
+     * @return the normalised molecule
+     * @throws CloneNotSupportedException if the molecule cannot be cloned
+     * @throws CDKException if atom types cannot be perceived or hydrogen atoms cannot be added
+     */
+    public IAtomContainer normalize(IAtomContainer aMolecule) throws CloneNotSupportedException, CDKException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        IAtomContainer tmpMolecule = aMolecule;
+        boolean tmpIsCopy = false;
+        if (this.fragmentSelection != FragmentSelectionOption.NONE && !ConnectivityChecker.isConnected(tmpMolecule)) {
+            tmpMolecule = switch (this.fragmentSelection) {
+                case BIGGEST -> SugarRemovalUtility.selectBiggestUnconnectedFragment(tmpMolecule);
+                case HEAVIEST -> SugarRemovalUtility.selectHeaviestUnconnectedFragment(tmpMolecule);
+                default -> tmpMolecule;
+            };
+        }
+        if (this.suppressHydrogens && MoleculeNormalizer.hasExplicitHydrogens(tmpMolecule)) {
+            //suppression is done in place
+            tmpMolecule = tmpMolecule.clone();
+            tmpIsCopy = true;
+            AtomContainerManipulator.suppressHydrogens(tmpMolecule);
+        }
+        if (this.perceiveAtomTypes) {
+            if (!tmpIsCopy) {
+                tmpMolecule = tmpMolecule.clone();
+            }
+            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(tmpMolecule);
+            CDKHydrogenAdder.getInstance(DefaultChemObjectBuilder.getInstance()).addImplicitHydrogens(tmpMolecule);
+        }
+        return tmpMolecule;
+    }
+
+    /**
+     * Returns a key that identifies the configuration of this normaliser, e.g. in binary molecule caches.
+     *
+     * @return configuration key
+     */
+    public String getKey() {
+        return "fragments=" + this.fragmentSelection + ",suppressHydrogens=" + this.suppressHydrogens
+                + ",atomTypes=" + this.perceiveAtomTypes;
+    }
+
+    /**
+     * Returns whether this normaliser leaves every molecule as it is.
+     *
+     * @return true if nothing is done
+     */
+    public boolean isIdentity() {
+        return this.fragmentSelection == FragmentSelectionOption.NONE && !this.suppressHydrogens && !this.perceiveAtomTypes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object anObject) {
+        if (this == anObject) {
+            return true;
+        }
+        if (!(anObject instanceof MoleculeNormalizer tmpOther)) {
+            return false;
+        }
+        return this.fragmentSelection == tmpOther.fragmentSelection && this.suppressHydrogens == tmpOther.suppressHydrogens
+                && this.perceiveAtomTypes == tmpOther.perceiveAtomTypes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.fragmentSelection, this.suppressHydrogens, this.perceiveAtomTypes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return this.getKey();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the treatment of disconnected molecules.
+     *
+     * @return fragment selection option
+     */
+    public FragmentSelectionOption getFragmentSelection() {
+        return this.fragmentSelection;
+    }
+
+    /**
+     * Returns whether explicit hydrogen atoms are removed.
+     *
+     * @return true if hydrogen atoms are suppressed
+     */
+    public boolean isSuppressHydrogens() {
+        return this.suppressHydrogens;
+    }
+
+    /**
+     * Returns whether atom types are perceived and implicit hydrogen atoms added.
+     *
+     * @return true if atom types are perceived
+     */
+    public boolean isPerceiveAtomTypes() {
+        return this.perceiveAtomTypes;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Returns true if the given molecule contains at least one explicit hydrogen atom.
+     */
+    private static boolean hasExplicitHydrogens(IAtomContainer aMolecule) {
+        for (IAtom tmpAtom : aMolecule.atoms()) {
+            if (!Objects.isNull(tmpAtom.getAtomicNumber()) && tmpAtom.getAtomicNumber() == IElement.H) {
+                return true;
+            }
+        }
+        return false;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,507 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Staged front end of the GlycosylationStatisticsRunner that overlaps reading, parsing, and analysing. A dedicated
+ * reader thread does the blocking reads from the molecule source, e.g. from MongoDB, and hands the records over in
+ * batches to a fixed pool of parsing threads that parse and normalise them. The batches are handed on in reading order
+ * through a bounded queue, from which the analysing thread takes the parsed molecules via next(); if the analysing
+ * thread falls behind, the full queue blocks the reader, so the number of molecules in flight stays bounded.
+ * Failures of single molecules are not thrown but carried by the parsed molecules, so that the analysing thread
+ * records them in reading order. An optional worker stage is run by the parsing threads on every completely parsed
+ * molecule, so that CPU-bound work like the sugar detection is spread over the pool, too; its result is carried by
+ * the parsed molecule.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MoleculePipeline implements Closeable {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default number of records handed over to a parsing thread at once
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Number of batches per parsing thread that may be waiting in the hand-off queue
+     */
+    private static final int QUEUED_BATCHES_PER_THREAD = 4;
+
+    /**
+     * Maximum time to wait for the reader thread to stop when the pipeline is closed, in milliseconds
+     */
+    private static final long READER_STOP_TIMEOUT_MILLIS = 10000L;
+
+    /**
+     * SMILES parser of every parsing thread
+     */
+    private static final ThreadLocal<SmilesParser> SMILES_PARSER = ThreadLocal.withInitial(
+            () -> new SmilesParser(DefaultChemObjectBuilder.getInstance()));
+
+    /**
+     * Marker of the end of the source in the hand-off queue
+     */
+    private static final Future<List<ParsedMolecule>> END_OF_SOURCE = CompletableFuture.completedFuture(null);
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Source of the molecules
+     */
+    private final MoleculeSource moleculeSource;
+
+    /**
+     * Normalisers whose forms are created for every molecule
+     */
+    private final List<MoleculeNormalizer> normalizers;
+
+    /**
+     * Number of records handed over to a parsing thread at once
+     */
+    private final int batchSize;
+
+    /**
+     * Pool of the parsing threads
+     */
+    private final ExecutorService parsingPool;
+
+    /**
+     * Parsed batches in reading order, followed by the end marker
+     */
+    private final BlockingQueue<Future<List<ParsedMolecule>>> handOffQueue;
+
+    /**
+     * Stage run by the parsing threads on every completely parsed molecule, null if there is none
+     */
+    private final WorkerStage workerStage;
+
+    /**
+     * Thread reading the source
+     */
+    private final Thread readerThread;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Batch the molecules are currently taken from
+     */
+    private List<ParsedMolecule> currentBatch;
+
+    /**
+     * Position of the next molecule in the current batch
+     */
+    private int currentBatchPosition;
+
+    /**
+     * True if the end marker was taken from the queue
+     */
+    private boolean isExhausted;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a pipeline for the given source and starts reading immediately.
+     *
+     * @param aMoleculeSource source of the molecules; it is read by the pipeline but not closed
+     * @param aNormalizersList normalisers whose forms are created for every molecule
+     * @param aNumberOfParsingThreads number of threads parsing and normalising the molecules
+     * @param aBatchSize number of records handed over to a parsing thread at once
+     * @throws NullPointerException if a parameter is null
+     * @throws IllegalArgumentException if the number of threads or the batch size is smaller than 1
+     */
+    public MoleculePipeline(MoleculeSource aMoleculeSource, List<MoleculeNormalizer> aNormalizersList,
+                            int aNumberOfParsingThreads, int aBatchSize)
+            throws NullPointerException, IllegalArgumentException {
+        this(aMoleculeSource, aNormalizersList, aNumberOfParsingThreads, aBatchSize, null);
+    }
+
+    /**
+     * Creates a pipeline for the given source whose parsing threads run the given worker stage on every completely
+     * parsed molecule, and starts reading immediately.
+     *
+     * @param aMoleculeSource source of the molecules; it is read by the pipeline but not closed
+     * @param aNormalizersList normalisers whose forms are created for every molecule
+     * @param aNumberOfParsingThreads number of threads parsing and normalising the molecules
+     * @param aBatchSize number of records handed over to a parsing thread at once
+     * @param aWorkerStage stage run on every completely parsed molecule, may be null
+     * @throws NullPointerException if the source or the normalisers list is null
+     * @throws IllegalArgumentException if the number of threads or the batch size is smaller than 1
+     */
+    public MoleculePipeline(MoleculeSource aMoleculeSource, List<MoleculeNormalizer> aNormalizersList,
+                            int aNumberOfParsingThreads, int aBatchSize, WorkerStage aWorkerStage)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aMoleculeSource, "Given molecule source is 'null'.");
+        Objects.requireNonNull(aNormalizersList, "Given normalisers list is 'null'.");
+        if (aNumberOfParsingThreads < 1 || aBatchSize < 1) {
+            throw new IllegalArgumentException("Number of parsing threads and batch size must be at least 1.");
+        }
+        this.moleculeSource = aMoleculeSource;
+        this.normalizers = new ArrayList<>(aNormalizersList);
+        this.batchSize = aBatchSize;
+        this.workerStage = aWorkerStage;
+        AtomicInteger tmpThreadCounter = new AtomicInteger();
+        this.parsingPool = Executors.newFixedThreadPool(aNumberOfParsingThreads, aRunnable -> {
+            Thread tmpThread = new Thread(aRunnable, "molecule-parser-" + tmpThreadCounter.incrementAndGet());
+            tmpThread.setDaemon(true);
+            return tmpThread;
+        });
+        this.handOffQueue = new ArrayBlockingQueue<>(aNumberOfParsingThreads * MoleculePipeline.QUEUED_BATCHES_PER_THREAD);
+        this.currentBatch = new ArrayList<>(0);
+        this.readerThread = new Thread(this::read, "molecule-reader");
+        this.readerThread.setDaemon(true);
+        this.readerThread.start();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Parses the molecule of the given record if needed and creates its normalised forms, in the order of the given
+     * normalisers. Normalised forms carried by the record (binary molecule cache) are used as they are, and the SMILES
+     * code is only parsed if a form is missing. If parsing or normalisation fails, the failure is returned with the
+     * forms created so far.
+     *
+     * @param aRecord the record
+     * @param aNormalizersList the normalisers
+     * @param aSmiPar parser of SMILES codes
+     * @return the parsed molecule
+     * @throws NullPointerException if a parameter is null
+     */
+    public static ParsedMolecule parse(MoleculeRecord aRecord, List<MoleculeNormalizer> aNormalizersList,
+                                       SmilesParser aSmiPar) throws NullPointerException {
+        Objects.requireNonNull(aRecord, "Given record is 'null'.");
+        Objects.requireNonNull(aNormalizersList, "Given normalisers list is 'null'.");
+        Objects.requireNonNull(aSmiPar, "Given SMILES parser is 'null'.");
+        IAtomContainer[] tmpNormalizedForms = new IAtomContainer[aNormalizersList.size()];
+        IAtomContainer tmpParsedMolecule = null;
+        for (int i = 0; i < aNormalizersList.size(); i++) {
+            MoleculeNormalizer tmpNormalizer = aNormalizersList.get(i);
+            tmpNormalizedForms[i] = aRecord.getNormalizedForm(tmpNormalizer.getKey());
+            if (!Objects.isNull(tmpNormalizedForms[i])) {
+                continue;
+            }
+            if (Objects.isNull(tmpParsedMolecule)) {
+                try {
+                    if (aRecord.isGivenAsSmilesCode()) {
+                        tmpParsedMolecule = aSmiPar.parseSmiles(aRecord.getSmilesCode());
+                    } else if (!Objects.isNull(aRecord.getAtomContainer())) {
+                        tmpParsedMolecule = aRecord.getAtomContainer();
+                    } else {
+                        throw new IllegalArgumentException("Record carries neither the required normalised form "
+                                + tmpNormalizer.getKey() + " nor a SMILES code.");
+                    }
+                    tmpParsedMolecule.setTitle(aRecord.getID());
+                } catch (Exception anException) {
+                    return new ParsedMolecule(aRecord, tmpNormalizedForms, AnalysisErrorAccountant.Stage.PARSE,
+                            anException);
+                }
+            }
+            try {
+                tmpNormalizedForms[i] = tmpNormalizer.normalize(tmpParsedMolecule);
+                tmpNormalizedForms[i].setTitle(aRecord.getID());
+            } catch (Exception anException) {
+                tmpNormalizedForms[i] = null;
+                return new ParsedMolecule(aRecord, tmpNormalizedForms, AnalysisErrorAccountant.Stage.NORMALISE,
+                        anException);
+            }
+        }
+        return new ParsedMolecule(aRecord, tmpNormalizedForms, null, null);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns the next parsed molecule in reading order, waiting until it is parsed, or null if the source is
+     * exhausted.
+     *
+     * @return next parsed molecule or null
+     * @throws IOException if the source could not be read
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public ParsedMolecule next() throws IOException, InterruptedException {
+        while (this.currentBatchPosition >= this.currentBatch.size()) {
+            if (this.isExhausted) {
+                return null;
+            }
+            Future<List<ParsedMolecule>> tmpFuture = this.handOffQueue.take();
+            try {
+                List<ParsedMolecule> tmpBatch = tmpFuture.get();
+                if (Objects.isNull(tmpBatch)) {
+                    this.isExhausted = true;
+                    return null;
+                }
+                this.currentBatch = tmpBatch;
+                this.currentBatchPosition = 0;
+            } catch (ExecutionException anExecutionException) {
+                this.isExhausted = true;
+                Throwable tmpCause = anExecutionException.getCause();
+                if (tmpCause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) tmpCause).getCause();
+                }
+                throw new IOException(tmpCause);
+            }
+        }
+        return this.currentBatch.get(this.currentBatchPosition++);
+    }
+
+    /**
+     * Stops the reader and the parsing threads. The source is not closed, but it is no longer read after this method
+     * returned, unless the reader thread was blocked in the source for longer than a few seconds.
+     */
+    @Override
+    public void close() {
+        this.readerThread.interrupt();
+        this.parsingPool.shutdownNow();
+        try {
+            this.readerThread.join(MoleculePipeline.READER_STOP_TIMEOUT_MILLIS);
+            this.parsingPool.awaitTermination(MoleculePipeline.READER_STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException anInterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Body of the reader thread: reads the source in batches, submits every batch for parsing, and queues the results
+     * in reading order, followed by the end marker or the failure of the source.
+     */
+    private void read() {
+        try {
+            List<Object> tmpBatch = new ArrayList<>(this.batchSize);
+            while (this.moleculeSource.hasNext()) {
+                try {
+                    tmpBatch.add(this.moleculeSource.next());
+                } catch (Exception anException) {
+                    //records that cannot be read are passed on as their exception
+                    tmpBatch.add(anException);
+                }
+                if (tmpBatch.size() == this.batchSize) {
+                    this.submit(tmpBatch);
+                    tmpBatch = new ArrayList<>(this.batchSize);
+                }
+            }
+            if (!tmpBatch.isEmpty()) {
+                this.submit(tmpBatch);
+            }
+            this.handOffQueue.put(MoleculePipeline.END_OF_SOURCE);
+        } catch (InterruptedException anInterruptedException) {
+            //the pipeline was closed
+        } catch (IOException anIOException) {
+            this.putFailure(new UncheckedIOException(anIOException));
+        } catch (RuntimeException aRuntimeException) {
+            this.putFailure(aRuntimeException);
+        }
+    }
+
+    /**
+     * Queues the given failure of the source, waiting while the queue is full, unless the pipeline is closed.
+     */
+    private void putFailure(RuntimeException aFailure) {
+        try {
+            this.handOffQueue.put(CompletableFuture.failedFuture(aFailure));
+        } catch (InterruptedException anInterruptedException) {
+            //the pipeline was closed
+        }
+    }
+
+    /**
+     * Submits the given batch of records and read exceptions for parsing and queues the result, waiting while the
+     * queue is full.
+     */
+    private void submit(List<Object> aBatch) throws InterruptedException {
+        this.handOffQueue.put(this.parsingPool.submit(() -> {
+            SmilesParser tmpSmiPar = MoleculePipeline.SMILES_PARSER.get();
+            List<ParsedMolecule> tmpParsedBatch = new ArrayList<>(aBatch.size());
+            for (Object tmpEntry : aBatch) {
+                if (tmpEntry instanceof MoleculeRecord) {
+                    ParsedMolecule tmpParsedMolecule = MoleculePipeline.parse((MoleculeRecord) tmpEntry,
+                            this.normalizers, tmpSmiPar);
+                    if (!Objects.isNull(this.workerStage) && tmpParsedMolecule.isComplete()) {
+                        //published to the analysing thread by the future of the batch
+                        tmpParsedMolecule.workerStageResult = this.workerStage.process(tmpParsedMolecule.getRecord(),
+                                tmpParsedMolecule.getNormalizedForms());
+                    }
+                    tmpParsedBatch.add(tmpParsedMolecule);
+                } else {
+                    tmpParsedBatch.add(new ParsedMolecule(null, null, AnalysisErrorAccountant.Stage.READ,
+                            (Exception) tmpEntry));
+                }
+            }
+            return tmpParsedBatch;
+        }));
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner interfaces">
+    /**
+     * Work done by the parsing threads on every completely parsed molecule. Implementations are called concurrently
+     * and must not throw; failures are returned as part of the result.
+     */
+    @FunctionalInterface
+    public interface WorkerStage {
+        /**
+         * Processes the given completely parsed molecule.
+         *
+         * @param aRecord the record
+         * @param aNormalizedFormsArray normalised forms in the order of the normalisers
+         * @return the result carried by the parsed molecule
+         */
+        Object process(MoleculeRecord aRecord, IAtomContainer[] aNormalizedFormsArray);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner classes">
+    /**
+     * A record with the normalised forms of its molecule, or with the failure that prevented their creation.
+     */
+    public static final class ParsedMolecule {
+        //<editor-fold desc="Private final variables">
+        /**
+         * The record, null if it could not be read
+         */
+        private final MoleculeRecord record;
+
+        /**
+         * Normalised forms in the order of the normalisers, null if the record could not be read
+         */
+        private final IAtomContainer[] normalizedForms;
+
+        /**
+         * Stage of the failure, null if all forms were created
+         */
+        private final AnalysisErrorAccountant.Stage failureStage;
+
+        /**
+         * The failure, null if all forms were created
+         */
+        private final Exception failure;
+        //</editor-fold>
+        //
+        //<editor-fold desc="Private variables">
+        /**
+         * Result of the worker stage, null if there is none or the molecule is not complete
+         */
+        private Object workerStageResult;
+        //</editor-fold>
+        //
+        //<editor-fold desc="Constructors">
+        /**
+         * Creates a parsed molecule.
+         *
+         * @param aRecord the record, null if it could not be read
+         * @param aNormalizedFormsArray normalised forms, null if the record could not be read
+         * @param aFailureStage stage of the failure, null if all forms were created
+         * @param aFailure the failure, null if all forms were created
+         */
+        ParsedMolecule(MoleculeRecord aRecord, IAtomContainer[] aNormalizedFormsArray,
+                               AnalysisErrorAccountant.Stage aFailureStage, Exception aFailure) {
+            this.record = aRecord;
+            this.normalizedForms = aNormalizedFormsArray;
+            this.failureStage = aFailureStage;
+            this.failure = aFailure;
+        }
+        //</editor-fold>
+        //
+        //<editor-fold desc="Public properties">
+        /**
+         * Returns the record, null if it could not be read.
+         *
+         * @return record
+         */
+        public MoleculeRecord getRecord() {
+            return this.record;
+        }
+
+        /**
+         * Returns the normalised forms in the order of the normalisers; entries after a failure are null.
+         *
+         * @return normalised forms, null if the record could not be read
+         */
+        public IAtomContainer[] getNormalizedForms() {
+            return this.normalizedForms;
+        }
+
+        /**
+         * Returns the stage of the failure, null if all forms were created.
+         *
+         * @return failure stage
+         */
+        public AnalysisErrorAccountant.Stage getFailureStage() {
+            return this.failureStage;
+        }
+
+        /**
+         * Returns the failure, null if all forms were created.
+         *
+         * @return failure
+         */
+        public Exception getFailure() {
+            return this.failure;
+        }
+
+        /**
+         * Returns true if all normalised forms were created.
+         *
+         * @return true if complete
+         */
+        public boolean isComplete() {
+            return Objects.isNull(this.failure);
+        }
+
+        /**
+         * Returns the result of the worker stage of the pipeline, null if there is none or the molecule is not
+         * complete.
+         *
+         * @return worker stage result
+         */
+        public Object getWorkerStageResult() {
+            return this.workerStageResult;
+        }
+        //</editor-fold>
+    }
+    //</editor-fold>
+}
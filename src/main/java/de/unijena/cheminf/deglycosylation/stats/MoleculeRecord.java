@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A single molecule as it is delivered by a {@link MoleculeSource}. Depending on the source, a record carries the
+ * SMILES code of the molecule (SMILES files, MongoDB) or an already parsed atom container (SDF). The number of
+ * stereo-isomers is only given by curated SMILES files that list it as third column, it is zero otherwise. Records read
+ * from a binary molecule cache additionally carry already normalised forms of the molecule.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MoleculeRecord {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Identifier of the molecule, e.g. a COCONUT, ZINC, ChEMBL, or DrugBank ID
+     */
+    private final String id;
+
+    /**
+     * SMILES code of the molecule, may be null if the molecule was given as atom container
+     */
+    private final String smilesCode;
+
+    /**
+     * Atom container of the molecule, may be null if the molecule was given as SMILES code
+     */
+    private final IAtomContainer atomContainer;
+
+    /**
+     * Number of stereo-isomers of this molecule in the original dataset, zero if unknown
+     */
+    private final int nrOfStereoIsomers;
+
+    /**
+     * Already normalised forms of the molecule by normaliser key, empty if none are given
+     */
+    private final Map<String, IAtomContainer> normalizedForms;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor for records given as SMILES code.
+     *
+     * @param anID identifier of the molecule
+     * @param aSmilesCode SMILES code of the molecule
+     * @param aNrOfStereoIsomers number of stereo-isomers in the original dataset, zero if unknown
+     * @throws NullPointerException if ID or SMILES code is null
+     */
+    public MoleculeRecord(String anID, String aSmilesCode, int aNrOfStereoIsomers) throws NullPointerException {
+        Objects.requireNonNull(anID, "Given ID is 'null'.");
+        Objects.requireNonNull(aSmilesCode, "Given SMILES code is 'null'.");
+        this.id = anID;
+        this.smilesCode = aSmilesCode;
+        this.atomContainer = null;
+        this.nrOfStereoIsomers = aNrOfStereoIsomers;
+        this.normalizedForms = Collections.emptyMap();
+    }
+
+    /**
+     * Constructor for records given as atom container, e.g. read from an SDF.
+     *
+     * @param anID identifier of the molecule
+     * @param anAtomContainer the molecule
+     * @throws NullPointerException if ID or atom container is null
+     */
+    public MoleculeRecord(String anID, IAtomContainer anAtomContainer) throws NullPointerException {
+        Objects.requireNonNull(anID, "Given ID is 'null'.");
+        Objects.requireNonNull(anAtomContainer, "Given atom container is 'null'.");
+        this.id = anID;
+        this.smilesCode = null;
+        this.atomContainer = anAtomContainer;
+        this.nrOfStereoIsomers = 0;
+        this.normalizedForms = Collections.emptyMap();
+    }
+
+    /**
+     * Constructor for records that carry already normalised forms of the molecule, e.g. read from a binary molecule
+     * cache. The SMILES code is kept for forms that are not given.
+     *
+     * @param anID identifier of the molecule
+     * @param aSmilesCode SMILES code of the molecule, may be null if the molecule was originally given as atom
+     *                    container
+     * @param aNrOfStereoIsomers number of stereo-isomers in the original dataset, zero if unknown
+     * @param aNormalizedFormsMap normalised forms of the molecule by normaliser key, see MoleculeNormalizer.getKey()
+     * @throws NullPointerException if ID or map is null
+     */
+    public MoleculeRecord(String anID, String aSmilesCode, int aNrOfStereoIsomers,
+                          Map<String, IAtomContainer> aNormalizedFormsMap) throws NullPointerException {
+        Objects.requireNonNull(anID, "Given ID is 'null'.");
+        Objects.requireNonNull(aNormalizedFormsMap, "Given map of normalised forms is 'null'.");
+        this.id = anID;
+        this.smilesCode = aSmilesCode;
+        this.atomContainer = null;
+        this.nrOfStereoIsomers = aNrOfStereoIsomers;
+        this.normalizedForms = aNormalizedFormsMap;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the identifier of the molecule.
+     *
+     * @return ID
+     */
+    public String getID() {
+        return this.id;
+    }
+
+    /**
+     * Returns the SMILES code of the molecule or null if the record was created from an atom container.
+     *
+     * @return SMILES code or null
+     */
+    public String getSmilesCode() {
+        return this.smilesCode;
+    }
+
+    /**
+     * Returns the atom container of the molecule or null if the record was created from a SMILES code.
+     *
+     * @return atom container or null
+     */
+    public IAtomContainer getAtomContainer() {
+        return this.atomContainer;
+    }
+
+    /**
+     * Returns the number of stereo-isomers of the molecule in the original dataset, zero if unknown.
+     *
+     * @return number of stereo-isomers
+     */
+    public int getNrOfStereoIsomers() {
+        return this.nrOfStereoIsomers;
+    }
+
+    /**
+     * Returns true if this record carries a SMILES code that needs to be parsed.
+     *
+     * @return true if the molecule is given as SMILES code
+     */
+    public boolean isGivenAsSmilesCode() {
+        return !Objects.isNull(this.smilesCode);
+    }
+
+    /**
+     * Returns the normalised form of the molecule for the given normaliser key or null if this record does not carry
+     * it.
+     *
+     * @param aNormalizerKey key of the normaliser, see MoleculeNormalizer.getKey()
+     * @return normalised molecule or null
+     */
+    public IAtomContainer getNormalizedForm(String aNormalizerKey) {
+        return this.normalizedForms.get(aNormalizerKey);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,762 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Persistent table of the sugar detection results of all molecules of a dataset, one fixed-width binary record per
+ * molecule, so that new aggregates can be computed from the table of an earlier run instead of analysing the dataset
+ * again. The table file is memory-mapped for reading and all queries run directly on the mapped pages; the IDs are
+ * kept in a text file next to it, one per line in the order of the records.
+ * <br>The table file starts with a header of four ints (magic number, format version, record size, zero), followed by
+ * the records of 28 bytes each, little-endian: the int index of the ID in the IDs file, a byte of flags (the molecule
+ * flags of {@link SugarDetectionBatch}), one unused byte, the circular, terminal circular, linear, terminal linear, and
+ * circular with O-glycosidic bond sugar counts as shorts, and the heavy atom count before and after removal of all
+ * sugars and the number of stereo-isomers as ints. Molecules that were not analysed because a SugarPrescreen rejected
+ * them have no flags, zero sugar counts, and unknown heavy atom counts. Files larger than 1 GB are mapped in several
+ * segments.
+ * <br>Rows are collected in {@link Rows} buffers, e.g. one per chunk of molecules analysed in parallel, and appended
+ * in the order of the dataset. Appending is synchronized, but must not run concurrently with reading.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MoleculeResultTable implements Closeable {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Extension of table files
+     */
+    public static final String FILE_EXTENSION = ".results";
+
+    /**
+     * Extension of the IDs file, appended to the path of the table file
+     */
+    public static final String IDS_FILE_EXTENSION = ".ids";
+
+    /**
+     * Heavy atom count of molecules that were not analysed
+     */
+    public static final int UNKNOWN_HEAVY_ATOM_COUNT = -1;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Magic number at the start of the table file, "GSRT"
+     */
+    private static final int MAGIC_NUMBER = 0x47535254;
+
+    /**
+     * Version of the file format
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Size of the header of the table file in bytes
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of a record in bytes
+     */
+    private static final int RECORD_SIZE = 28;
+
+    //offsets of the columns in a record
+    private static final int ID_INDEX_OFFSET = 0;
+
+    private static final int FLAGS_OFFSET = 4;
+
+    private static final int CIRCULAR_SUGAR_COUNT_OFFSET = 6;
+
+    private static final int TERMINAL_CIRCULAR_SUGAR_COUNT_OFFSET = 8;
+
+    private static final int LINEAR_SUGAR_COUNT_OFFSET = 10;
+
+    private static final int TERMINAL_LINEAR_SUGAR_COUNT_OFFSET = 12;
+
+    private static final int CIRCULAR_SUGARS_WITH_GLYCOSIDIC_BOND_COUNT_OFFSET = 14;
+
+    private static final int HEAVY_ATOM_COUNT_OFFSET = 16;
+
+    private static final int DEGLYCOSYLATED_HEAVY_ATOM_COUNT_OFFSET = 20;
+
+    private static final int NR_OF_STEREO_ISOMERS_OFFSET = 24;
+
+    /**
+     * Maximum size of a mapped segment in bytes
+     */
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * Number of records in a mapped segment
+     */
+    private static final int RECORDS_PER_SEGMENT = (int) (MoleculeResultTable.MAX_SEGMENT_SIZE
+            / MoleculeResultTable.RECORD_SIZE);
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * File of the records
+     */
+    private final File tableFile;
+
+    /**
+     * Channel of the table file
+     */
+    private final FileChannel channel;
+
+    /**
+     * Writer appending to the IDs file
+     */
+    private final BufferedWriter idsWriter;
+
+    /**
+     * IDs of the records
+     */
+    private final List<String> ids;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Mapped segments of the records; all but the last one are full
+     */
+    private MappedByteBuffer[] segments;
+
+    /**
+     * Number of records
+     */
+    private int size;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Opens the table, reading the IDs and mapping the records.
+     */
+    private MoleculeResultTable(File aTableFile, FileChannel aChannel) throws IOException {
+        this.tableFile = aTableFile;
+        this.channel = aChannel;
+        long tmpRecordsSize = this.channel.size() - MoleculeResultTable.HEADER_SIZE;
+        if (tmpRecordsSize % MoleculeResultTable.RECORD_SIZE != 0) {
+            throw new IOException("Table file " + aTableFile + " ends with an incomplete record.");
+        }
+        int tmpSize = Math.toIntExact(tmpRecordsSize / MoleculeResultTable.RECORD_SIZE);
+        File tmpIDsFile = MoleculeResultTable.getIDsFile(aTableFile);
+        this.ids = new ArrayList<>(Math.max(16, tmpSize));
+        if (tmpIDsFile.exists()) {
+            try (BufferedReader tmpReader = new BufferedReader(new InputStreamReader(new FileInputStream(tmpIDsFile),
+                    StandardCharsets.UTF_8))) {
+                String tmpLine;
+                while (!Objects.isNull(tmpLine = tmpReader.readLine())) {
+                    this.ids.add(tmpLine);
+                }
+            }
+        }
+        if (this.ids.size() != tmpSize) {
+            throw new IOException("IDs file " + tmpIDsFile + " contains " + this.ids.size() + " IDs for " + tmpSize
+                    + " records.");
+        }
+        this.idsWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpIDsFile, true),
+                StandardCharsets.UTF_8));
+        this.segments = new MappedByteBuffer[0];
+        this.size = tmpSize;
+        this.mapSegments();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Creates a new, empty table. Existing files at the given path and the respective IDs file are overwritten.
+     *
+     * @param aTableFile file of the records; the IDs are written to the same path with the IDs file extension appended
+     * @return the opened table
+     * @throws NullPointerException if the given file is null
+     * @throws IOException if the files cannot be written
+     */
+    public static MoleculeResultTable create(File aTableFile) throws NullPointerException, IOException {
+        Objects.requireNonNull(aTableFile, "Given file is 'null'.");
+        FileChannel tmpChannel = FileChannel.open(aTableFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer tmpHeader = ByteBuffer.allocate(MoleculeResultTable.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            tmpHeader.putInt(MoleculeResultTable.MAGIC_NUMBER).putInt(MoleculeResultTable.FORMAT_VERSION)
+                    .putInt(MoleculeResultTable.RECORD_SIZE).putInt(0).flip();
+            while (tmpHeader.hasRemaining()) {
+                tmpChannel.write(tmpHeader);
+            }
+            new FileOutputStream(MoleculeResultTable.getIDsFile(aTableFile)).close();
+            return new MoleculeResultTable(aTableFile, tmpChannel);
+        } catch (IOException | RuntimeException anException) {
+            tmpChannel.close();
+            throw anException;
+        }
+    }
+
+    /**
+     * Opens an existing table for reading and appending.
+     *
+     * @param aTableFile file of the records
+     * @return the opened table
+     * @throws NullPointerException if the given file is null
+     * @throws IOException if the files cannot be read, are no result table, or do not match
+     */
+    public static MoleculeResultTable open(File aTableFile) throws NullPointerException, IOException {
+        Objects.requireNonNull(aTableFile, "Given file is 'null'.");
+        FileChannel tmpChannel = FileChannel.open(aTableFile.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer tmpHeader = ByteBuffer.allocate(MoleculeResultTable.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (tmpHeader.hasRemaining()) {
+                if (tmpChannel.read(tmpHeader, tmpHeader.position()) < 0) {
+                    throw new IOException("File " + aTableFile + " is too short for a result table.");
+                }
+            }
+            tmpHeader.flip();
+            if (tmpHeader.getInt() != MoleculeResultTable.MAGIC_NUMBER
+                    || tmpHeader.getInt() != MoleculeResultTable.FORMAT_VERSION
+                    || tmpHeader.getInt() != MoleculeResultTable.RECORD_SIZE) {
+                throw new IOException("File " + aTableFile + " is no result table of a supported version.");
+            }
+            return new MoleculeResultTable(aTableFile, tmpChannel);
+        } catch (IOException | RuntimeException anException) {
+            tmpChannel.close();
+            throw anException;
+        }
+    }
+
+    /**
+     * Returns the IDs file belonging to the given table file.
+     *
+     * @param aTableFile file of the records
+     * @return IDs file
+     */
+    public static File getIDsFile(File aTableFile) {
+        return new File(aTableFile.getPath() + MoleculeResultTable.IDS_FILE_EXTENSION);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Appends the given rows, writes them to disk, and maps them. The rows buffer is not altered.
+     *
+     * @param aRows rows to append
+     * @throws NullPointerException if the given rows are null
+     * @throws IOException if the files cannot be written
+     */
+    public synchronized void append(Rows aRows) throws NullPointerException, IOException {
+        Objects.requireNonNull(aRows, "Given rows are 'null'.");
+        int tmpCount = aRows.size();
+        if (tmpCount == 0) {
+            return;
+        }
+        ByteBuffer tmpBuffer = ByteBuffer.wrap(Arrays.copyOf(aRows.records, tmpCount * MoleculeResultTable.RECORD_SIZE))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < tmpCount; i++) {
+            tmpBuffer.putInt(i * MoleculeResultTable.RECORD_SIZE + MoleculeResultTable.ID_INDEX_OFFSET, this.size + i);
+        }
+        long tmpPosition = MoleculeResultTable.HEADER_SIZE + (long) this.size * MoleculeResultTable.RECORD_SIZE;
+        while (tmpBuffer.hasRemaining()) {
+            tmpPosition += this.channel.write(tmpBuffer, tmpPosition);
+        }
+        for (String tmpID : aRows.ids) {
+            this.idsWriter.write(tmpID);
+            this.idsWriter.write('\n');
+        }
+        this.idsWriter.flush();
+        this.ids.addAll(aRows.ids);
+        this.size += tmpCount;
+        this.mapSegments();
+    }
+
+    /**
+     * Counts the rows that fulfil the given predicate on row indices, e.g.
+     * {@code tmpTable.count(i -> tmpTable.getNonTerminalCircularSugarCount(i) > 0)}.
+     *
+     * @param aFilter predicate on row indices
+     * @return number of rows fulfilling the predicate
+     * @throws NullPointerException if the predicate is null
+     */
+    public int count(IntPredicate aFilter) throws NullPointerException {
+        Objects.requireNonNull(aFilter, "Given filter is 'null'.");
+        int tmpCount = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (aFilter.test(i)) {
+                tmpCount++;
+            }
+        }
+        return tmpCount;
+    }
+
+    /**
+     * Sums the given column over the rows that fulfil the given predicate, e.g.
+     * {@code tmpTable.sum(tmpTable::getLinearSugarCount, tmpTable::containsSugars)}.
+     *
+     * @param aColumn function from row index to the summed value
+     * @param aFilter predicate on row indices
+     * @return sum
+     * @throws NullPointerException if a parameter is null
+     */
+    public long sum(IntUnaryOperator aColumn, IntPredicate aFilter) throws NullPointerException {
+        Objects.requireNonNull(aColumn, "Given column is 'null'.");
+        Objects.requireNonNull(aFilter, "Given filter is 'null'.");
+        long tmpSum = 0L;
+        for (int i = 0; i < this.size; i++) {
+            if (aFilter.test(i)) {
+                tmpSum += aColumn.applyAsInt(i);
+            }
+        }
+        return tmpSum;
+    }
+
+    /**
+     * Counts the rows that fulfil the given predicate per value of the given column, e.g. the sugar-containing
+     * molecules per circular sugar count.
+     *
+     * @param aColumn function from row index to the grouping value
+     * @param aFilter predicate on row indices
+     * @return map of the grouping values in ascending order to the number of rows
+     * @throws NullPointerException if a parameter is null
+     */
+    public SortedMap<Integer, Integer> countBy(IntUnaryOperator aColumn, IntPredicate aFilter)
+            throws NullPointerException {
+        Objects.requireNonNull(aColumn, "Given column is 'null'.");
+        Objects.requireNonNull(aFilter, "Given filter is 'null'.");
+        SortedMap<Integer, Integer> tmpCounts = new TreeMap<>();
+        for (int i = 0; i < this.size; i++) {
+            if (aFilter.test(i)) {
+                tmpCounts.merge(aColumn.applyAsInt(i), 1, Integer::sum);
+            }
+        }
+        return tmpCounts;
+    }
+
+    /**
+     * Compiles the basic glycosylation statistics of all rows, as the run that wrote the table did.
+     *
+     * @param aDatasetName name of the dataset
+     * @return statistics of the dataset
+     * @throws NullPointerException if the name is null
+     */
+    public DatasetGlycosylationStatistics computeStatistics(String aDatasetName) throws NullPointerException {
+        DatasetGlycosylationStatistics tmpStatistics = new DatasetGlycosylationStatistics(aDatasetName);
+        for (int i = 0; i < this.size; i++) {
+            tmpStatistics.add(this, i);
+        }
+        return tmpStatistics;
+    }
+
+    /**
+     * Closes the files. The mapped segments are released when they are garbage collected.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            this.idsWriter.close();
+        } finally {
+            this.channel.close();
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of rows.
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the ID of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return ID
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String getID(int aRow) throws IndexOutOfBoundsException {
+        return this.ids.get(this.getIDIndex(aRow));
+    }
+
+    /**
+     * Returns the index of the ID of the molecule in the given row in the IDs file.
+     *
+     * @param aRow row index
+     * @return ID index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getIDIndex(int aRow) throws IndexOutOfBoundsException {
+        return this.getInt(aRow, MoleculeResultTable.ID_INDEX_OFFSET);
+    }
+
+    /**
+     * Returns the flags of the molecule in the given row, see the molecule flags of SugarDetectionBatch.
+     *
+     * @param aRow row index
+     * @return flags
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public byte getFlags(int aRow) throws IndexOutOfBoundsException {
+        Objects.checkIndex(aRow, this.size);
+        return this.segments[aRow / MoleculeResultTable.RECORDS_PER_SEGMENT].get(
+                (aRow % MoleculeResultTable.RECORDS_PER_SEGMENT) * MoleculeResultTable.RECORD_SIZE
+                        + MoleculeResultTable.FLAGS_OFFSET);
+    }
+
+    /**
+     * Checks whether the molecule in the given row has the given flag.
+     *
+     * @param aRow row index
+     * @param aFlag one of the molecule flags of SugarDetectionBatch
+     * @return true if the flag is set
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public boolean hasFlag(int aRow, byte aFlag) throws IndexOutOfBoundsException {
+        return (this.getFlags(aRow) & aFlag) != 0;
+    }
+
+    /**
+     * Checks whether the molecule in the given row contains circular or linear sugars.
+     *
+     * @param aRow row index
+     * @return true if it contains sugars
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public boolean containsSugars(int aRow) throws IndexOutOfBoundsException {
+        return this.hasFlag(aRow, (byte) (SugarDetectionBatch.CONTAINS_CIRCULAR_SUGARS_FLAG
+                | SugarDetectionBatch.CONTAINS_LINEAR_SUGARS_FLAG));
+    }
+
+    /**
+     * Returns the number of circular sugars of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return circular sugar count
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getCircularSugarCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getShort(aRow, MoleculeResultTable.CIRCULAR_SUGAR_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns the number of terminal circular sugars of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return terminal circular sugar count
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getTerminalCircularSugarCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getShort(aRow, MoleculeResultTable.TERMINAL_CIRCULAR_SUGAR_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns the number of non-terminal circular sugars of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return non-terminal circular sugar count
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getNonTerminalCircularSugarCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getCircularSugarCount(aRow) - this.getTerminalCircularSugarCount(aRow);
+    }
+
+    /**
+     * Returns the number of linear sugars of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return linear sugar count
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getLinearSugarCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getShort(aRow, MoleculeResultTable.LINEAR_SUGAR_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns the number of terminal linear sugars of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return terminal linear sugar count
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getTerminalLinearSugarCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getShort(aRow, MoleculeResultTable.TERMINAL_LINEAR_SUGAR_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns the number of non-terminal linear sugars of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return non-terminal linear sugar count
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getNonTerminalLinearSugarCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getLinearSugarCount(aRow) - this.getTerminalLinearSugarCount(aRow);
+    }
+
+    /**
+     * Returns the number of circular sugars with O-glycosidic bond of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return circular sugars with glycosidic bond count
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getCircularSugarsWithGlycosidicBondCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getShort(aRow, MoleculeResultTable.CIRCULAR_SUGARS_WITH_GLYCOSIDIC_BOND_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns the heavy atom count of the analysed fragment of the molecule in the given row.
+     *
+     * @param aRow row index
+     * @return heavy atom count or UNKNOWN_HEAVY_ATOM_COUNT if the molecule was not analysed
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getHeavyAtomCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getInt(aRow, MoleculeResultTable.HEAVY_ATOM_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns the heavy atom count of the molecule in the given row after removal of all sugars.
+     *
+     * @param aRow row index
+     * @return deglycosylated heavy atom count or UNKNOWN_HEAVY_ATOM_COUNT if the molecule was not analysed
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getDeglycosylatedHeavyAtomCount(int aRow) throws IndexOutOfBoundsException {
+        return this.getInt(aRow, MoleculeResultTable.DEGLYCOSYLATED_HEAVY_ATOM_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns the number of stereo-isomers the molecule in the given row represents.
+     *
+     * @param aRow row index
+     * @return number of stereo-isomers
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getNrOfStereoIsomers(int aRow) throws IndexOutOfBoundsException {
+        return this.getInt(aRow, MoleculeResultTable.NR_OF_STEREO_ISOMERS_OFFSET);
+    }
+
+    /**
+     * Returns the file of the records.
+     *
+     * @return table file
+     */
+    public File getTableFile() {
+        return this.tableFile;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Returns the int at the given offset of the given record.
+     */
+    private int getInt(int aRow, int anOffset) {
+        Objects.checkIndex(aRow, this.size);
+        return this.segments[aRow / MoleculeResultTable.RECORDS_PER_SEGMENT].getInt(
+                (aRow % MoleculeResultTable.RECORDS_PER_SEGMENT) * MoleculeResultTable.RECORD_SIZE + anOffset);
+    }
+
+    /**
+     * Returns the short at the given offset of the given record.
+     */
+    private int getShort(int aRow, int anOffset) {
+        Objects.checkIndex(aRow, this.size);
+        return this.segments[aRow / MoleculeResultTable.RECORDS_PER_SEGMENT].getShort(
+                (aRow % MoleculeResultTable.RECORDS_PER_SEGMENT) * MoleculeResultTable.RECORD_SIZE + anOffset);
+    }
+
+    /**
+     * Maps all records that are not in a full mapped segment yet; full segments are kept.
+     */
+    private void mapSegments() throws IOException {
+        int tmpRecordsPerSegment = MoleculeResultTable.RECORDS_PER_SEGMENT;
+        int tmpNumberOfSegments = (this.size + tmpRecordsPerSegment - 1) / tmpRecordsPerSegment;
+        int tmpFirstSegmentToMap = Math.max(0, this.segments.length - 1);
+        MappedByteBuffer[] tmpSegments = Arrays.copyOf(this.segments, tmpNumberOfSegments);
+        for (int s = tmpFirstSegmentToMap; s < tmpNumberOfSegments; s++) {
+            long tmpFirstRecord = (long) s * tmpRecordsPerSegment;
+            long tmpRecordCount = Math.min(tmpRecordsPerSegment, this.size - tmpFirstRecord);
+            tmpSegments[s] = this.channel.map(FileChannel.MapMode.READ_ONLY, MoleculeResultTable.HEADER_SIZE
+                    + tmpFirstRecord * MoleculeResultTable.RECORD_SIZE, tmpRecordCount * MoleculeResultTable.RECORD_SIZE);
+            tmpSegments[s].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.segments = tmpSegments;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner classes">
+    /**
+     * Buffer of rows in memory, to be appended to a table. The ID index of every row is set when it is appended.
+     * <br>Instances are not thread-safe.
+     */
+    public static final class Rows {
+        /**
+         * IDs of the rows
+         */
+        private final List<String> ids;
+
+        /**
+         * Records of the rows
+         */
+        private byte[] records;
+
+        /**
+         * View of the records for writing little-endian values
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * Creates an empty buffer.
+         *
+         * @param anInitialCapacity initial number of rows
+         */
+        public Rows(int anInitialCapacity) {
+            int tmpCapacity = Math.max(16, anInitialCapacity);
+            this.records = new byte[tmpCapacity * MoleculeResultTable.RECORD_SIZE];
+            this.buffer = ByteBuffer.wrap(this.records).order(ByteOrder.LITTLE_ENDIAN);
+            this.ids = new ArrayList<>(tmpCapacity);
+        }
+
+        /**
+         * Adds the result of one molecule of the given batch.
+         *
+         * @param anID ID of the molecule; it must not contain line breaks
+         * @param aBatch batch of results
+         * @param anIndex index of the molecule in the batch
+         * @param aNrOfStereoIsomers number of stereo-isomers the molecule represents
+         * @throws NullPointerException if the ID or the batch is null
+         * @throws IllegalArgumentException if the ID contains a line break
+         */
+        public void add(String anID, SugarDetectionBatch aBatch, int anIndex, int aNrOfStereoIsomers)
+                throws NullPointerException, IllegalArgumentException {
+            Objects.requireNonNull(aBatch, "Given batch is 'null'.");
+            this.add(anID, aBatch.getFlags(anIndex), aBatch.getCircularSugarCount(anIndex),
+                    aBatch.getTerminalCircularSugarCount(anIndex), aBatch.getLinearSugarCount(anIndex),
+                    aBatch.getTerminalLinearSugarCount(anIndex), aBatch.getCircularSugarsWithGlycosidicBondCount(anIndex),
+                    aBatch.getHeavyAtomCount(anIndex), aBatch.getDeglycosylatedHeavyAtomCount(anIndex),
+                    aNrOfStereoIsomers);
+        }
+
+        /**
+         * Adds a molecule that is known to contain no sugars without being analysed, e.g. because it was rejected by a
+         * SugarPrescreen.
+         *
+         * @param anID ID of the molecule; it must not contain line breaks
+         * @param aNrOfStereoIsomers number of stereo-isomers the molecule represents
+         * @throws NullPointerException if the ID is null
+         * @throws IllegalArgumentException if the ID contains a line break
+         */
+        public void addSugarFreeMolecule(String anID, int aNrOfStereoIsomers)
+                throws NullPointerException, IllegalArgumentException {
+            this.add(anID, (byte) 0, 0, 0, 0, 0, 0, MoleculeResultTable.UNKNOWN_HEAVY_ATOM_COUNT,
+                    MoleculeResultTable.UNKNOWN_HEAVY_ATOM_COUNT, aNrOfStereoIsomers);
+        }
+
+        /**
+         * Adds a molecule that could not be read, parsed, or analysed.
+         *
+         * @param anID ID of the molecule, empty if unknown; it must not contain line breaks
+         * @throws NullPointerException if the ID is null
+         * @throws IllegalArgumentException if the ID contains a line break
+         */
+        public void addFailure(String anID) throws NullPointerException, IllegalArgumentException {
+            this.add(anID, SugarDetectionBatch.FAILED_FLAG, 0, 0, 0, 0, 0, 0, 0, 0);
+        }
+
+        /**
+         * Returns the number of rows.
+         *
+         * @return number of rows
+         */
+        public int size() {
+            return this.ids.size();
+        }
+
+        /**
+         * Adds a row with the given values; counts beyond the range of a short are capped.
+         */
+        private void add(String anID, byte aFlags, int aCircularSugarCount, int aTerminalCircularSugarCount,
+                         int aLinearSugarCount, int aTerminalLinearSugarCount, int aCircularSugarsWithGlycosidicBondCount,
+                         int aHeavyAtomCount, int aDeglycosylatedHeavyAtomCount, int aNrOfStereoIsomers) {
+            Objects.requireNonNull(anID, "Given ID is 'null'.");
+            if (anID.indexOf('\n') >= 0 || anID.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("ID " + anID + " contains a line break.");
+            }
+            int tmpOffset = this.ids.size() * MoleculeResultTable.RECORD_SIZE;
+            if (tmpOffset + MoleculeResultTable.RECORD_SIZE > this.records.length) {
+                this.records = Arrays.copyOf(this.records, this.records.length * 2);
+                this.buffer = ByteBuffer.wrap(this.records).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            this.buffer.put(tmpOffset + MoleculeResultTable.FLAGS_OFFSET, aFlags);
+            this.buffer.putShort(tmpOffset + MoleculeResultTable.CIRCULAR_SUGAR_COUNT_OFFSET,
+                    Rows.toShort(aCircularSugarCount));
+            this.buffer.putShort(tmpOffset + MoleculeResultTable.TERMINAL_CIRCULAR_SUGAR_COUNT_OFFSET,
+                    Rows.toShort(aTerminalCircularSugarCount));
+            this.buffer.putShort(tmpOffset + MoleculeResultTable.LINEAR_SUGAR_COUNT_OFFSET,
+                    Rows.toShort(aLinearSugarCount));
+            this.buffer.putShort(tmpOffset + MoleculeResultTable.TERMINAL_LINEAR_SUGAR_COUNT_OFFSET,
+                    Rows.toShort(aTerminalLinearSugarCount));
+            this.buffer.putShort(tmpOffset + MoleculeResultTable.CIRCULAR_SUGARS_WITH_GLYCOSIDIC_BOND_COUNT_OFFSET,
+                    Rows.toShort(aCircularSugarsWithGlycosidicBondCount));
+            this.buffer.putInt(tmpOffset + MoleculeResultTable.HEAVY_ATOM_COUNT_OFFSET, aHeavyAtomCount);
+            this.buffer.putInt(tmpOffset + MoleculeResultTable.DEGLYCOSYLATED_HEAVY_ATOM_COUNT_OFFSET,
+                    aDeglycosylatedHeavyAtomCount);
+            this.buffer.putInt(tmpOffset + MoleculeResultTable.NR_OF_STEREO_ISOMERS_OFFSET, aNrOfStereoIsomers);
+            this.ids.add(anID);
+        }
+
+        /**
+         * Caps the given count to the range of a short.
+         */
+        private static short toShort(int aCount) {
+            return (short) Math.min(aCount, Short.MAX_VALUE);
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of molecules to analyse, e.g. a SMILES file, an SDF, or the COCONUT MongoDB instance. Sources are iterated
+ * once, in the style of the MongoDB cursor and the CDK iterating readers. A malformed entry makes {@link #next()} throw
+ * an exception after the entry has been consumed, so iteration can simply continue with the next entry.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public interface MoleculeSource extends Closeable {
+    /**
+     * Returns a short name of the source, e.g. the file name, used in console and file output.
+     *
+     * @return name of the source
+     */
+    String getName();
+
+    /**
+     * Returns true if the source has more entries.
+     *
+     * @return true if {@link #next()} can be called
+     * @throws IOException if the underlying file or database cannot be read
+     */
+    boolean hasNext() throws IOException;
+
+    /**
+     * Returns the next molecule record. The entry is consumed even if an exception is thrown.
+     *
+     * @return next record
+     * @throws IOException if the underlying file or database cannot be read
+     * @throws IllegalArgumentException if the entry is malformed
+     */
+    MoleculeRecord next() throws IOException, IllegalArgumentException;
+}
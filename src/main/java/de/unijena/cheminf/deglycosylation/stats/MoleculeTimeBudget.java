@@ -0,0 +1,358 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-molecule time budget of a GlycosylationStatisticsRunner, so that a few pathological structures, e.g. large
+ * macrolides or highly fused polycycles on which ring perception and candidate enumeration blow up, cannot hold up a
+ * whole run. The budget is enforced cooperatively on the thread that runs the analyses: start() sets a deadline for
+ * the current thread, and the {@link RecordingSugarRemovalUtility} of every analysis calls checkDeadline() in its
+ * detection steps and removal rounds, which throws a {@link BudgetExceededException} once the deadline has passed.
+ * A single ring perception or pattern matching run of the SRU is not interrupted, so a molecule may overrun its
+ * budget by the duration of one such step. Every analysis runs all its SRU calls before it updates its statistics,
+ * so an analysis stopped this way has not counted the molecule. The runner then moves the molecule to the slow lane,
+ * i.e. the stopped and the remaining analyses are run on it after all other molecules with the larger slow lane
+ * budget, and it is cancelled for them if it exceeds that budget as well. All molecules that exceed the budget are
+ * recorded as offenders with their timings and written to a CSV file.
+ * <br>No extra thread is used and nothing is computed twice. The deadline is thread-confined, the recording methods
+ * are thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class MoleculeTimeBudget {
+    //<editor-fold desc="Enum Lane">
+    /**
+     * Where an offender was analysed
+     */
+    public enum Lane {
+        /**
+         * Was not stopped, but its analyses took longer than the budget in total
+         */
+        MAIN,
+        /**
+         * Was stopped at the budget and analysed by the remaining analyses after all other molecules
+         */
+        SLOW,
+        /**
+         * Was stopped at the slow lane budget as well and skipped by the remaining analyses
+         */
+        CANCELLED;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of the CSV file the offenders are written to
+     */
+    public static final String OFFENDERS_FILE_NAME = "SlowMolecules.csv";
+
+    /**
+     * Default factor of the budget that gives the slow lane budget
+     */
+    public static final int DEFAULT_SLOW_LANE_FACTOR = 20;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Deadline of the molecule currently analysed by the respective thread as System.nanoTime() value, null if none
+     * is set
+     */
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Budget of a molecule in nanoseconds
+     */
+    private final long budgetNanos;
+
+    /**
+     * Budget of a molecule in the slow lane in nanoseconds
+     */
+    private final long slowLaneBudgetNanos;
+
+    /**
+     * Offenders in the order they were recorded
+     */
+    private final List<Offender> offenders;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a time budget with the given budget per molecule and a slow lane budget of the given multiple of it.
+     *
+     * @param aBudgetMillis budget of a molecule in milliseconds
+     * @param aSlowLaneFactor factor of the budget that gives the budget of a molecule in the slow lane
+     * @throws IllegalArgumentException if the budget or factor is smaller than 1
+     */
+    public MoleculeTimeBudget(long aBudgetMillis, int aSlowLaneFactor) throws IllegalArgumentException {
+        if (aBudgetMillis < 1 || aSlowLaneFactor < 1) {
+            throw new IllegalArgumentException("Budget and slow lane factor must be at least 1.");
+        }
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(aBudgetMillis);
+        this.slowLaneBudgetNanos = this.budgetNanos * aSlowLaneFactor;
+        this.offenders = new ArrayList<>();
+    }
+
+    /**
+     * Creates a time budget with the given budget per molecule and the default slow lane factor.
+     *
+     * @param aBudgetMillis budget of a molecule in milliseconds
+     * @throws IllegalArgumentException if the budget is smaller than 1
+     */
+    public MoleculeTimeBudget(long aBudgetMillis) throws IllegalArgumentException {
+        this(aBudgetMillis, MoleculeTimeBudget.DEFAULT_SLOW_LANE_FACTOR);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Throws an exception if the deadline set for the current thread by start() has passed; does nothing if no
+     * deadline is set. Meant to be called regularly during the analysis of a molecule.
+     *
+     * @throws BudgetExceededException if the deadline has passed
+     */
+    public static void checkDeadline() throws BudgetExceededException {
+        Long tmpDeadline = MoleculeTimeBudget.DEADLINE.get();
+        if (!Objects.isNull(tmpDeadline) && System.nanoTime() - tmpDeadline > 0) {
+            throw new BudgetExceededException();
+        }
+    }
+
+    /**
+     * Sets the deadline of the current thread to the given point in time, e.g. the deadline of a whole request.
+     *
+     * @param aDeadlineNanos deadline as System.nanoTime() value
+     */
+    public static void setDeadline(long aDeadlineNanos) {
+        MoleculeTimeBudget.DEADLINE.set(aDeadlineNanos);
+    }
+
+    /**
+     * Removes the deadline of the current thread.
+     */
+    public static void removeDeadline() {
+        MoleculeTimeBudget.DEADLINE.remove();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Sets the deadline of the current thread to the budget or the slow lane budget from now on.
+     *
+     * @param anIsSlowLane true to use the slow lane budget
+     */
+    public void start(boolean anIsSlowLane) {
+        long tmpBudgetNanos = anIsSlowLane ? this.slowLaneBudgetNanos : this.budgetNanos;
+        MoleculeTimeBudget.setDeadline(System.nanoTime() + tmpBudgetNanos);
+    }
+
+    /**
+     * Removes the deadline of the current thread.
+     */
+    public void stop() {
+        MoleculeTimeBudget.removeDeadline();
+    }
+
+    /**
+     * Records the given molecule as offender.
+     *
+     * @param aRecord the molecule
+     * @param aLane where the molecule was analysed
+     * @param anElapsedNanos time spent on the molecule in nanoseconds
+     * @throws NullPointerException if the record or lane is null
+     */
+    public synchronized void recordOffender(MoleculeRecord aRecord, Lane aLane, long anElapsedNanos)
+            throws NullPointerException {
+        Objects.requireNonNull(aRecord, "Given record is 'null'.");
+        Objects.requireNonNull(aLane, "Given lane is 'null'.");
+        this.offenders.add(new Offender(aRecord.getID(), aLane, TimeUnit.NANOSECONDS.toMillis(anElapsedNanos)));
+    }
+
+    /**
+     * Returns true if the given time exceeds the budget.
+     *
+     * @param anElapsedNanos time spent on a molecule in nanoseconds
+     * @return true if the budget is exceeded
+     */
+    public boolean isExceeded(long anElapsedNanos) {
+        return anElapsedNanos > this.budgetNanos;
+    }
+
+    /**
+     * Writes the offenders to the offenders file in the given folder, one line per offender with its ID, lane, and
+     * time in milliseconds.
+     *
+     * @param anOutputFolderPath output folder path, ending with a file separator
+     * @throws NullPointerException if the given path is null
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void writeOffenders(String anOutputFolderPath) throws NullPointerException, IOException {
+        Objects.requireNonNull(anOutputFolderPath, "Given output folder path is 'null'.");
+        String tmpSeparator = AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR;
+        try (PrintWriter tmpWriter = new PrintWriter(new FileWriter(new File(anOutputFolderPath
+                + MoleculeTimeBudget.OFFENDERS_FILE_NAME)))) {
+            tmpWriter.println("ID" + tmpSeparator + "Lane" + tmpSeparator + "Milliseconds");
+            for (Offender tmpOffender : this.offenders) {
+                tmpWriter.println(tmpOffender.getID() + tmpSeparator + tmpOffender.getLane() + tmpSeparator
+                        + tmpOffender.getMillis());
+            }
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the budget of a molecule in milliseconds.
+     *
+     * @return budget
+     */
+    public long getBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.budgetNanos);
+    }
+
+    /**
+     * Returns the budget of a molecule in the slow lane in milliseconds.
+     *
+     * @return slow lane budget
+     */
+    public long getSlowLaneBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.slowLaneBudgetNanos);
+    }
+
+    /**
+     * Returns a copy of the offenders in the order they were recorded.
+     *
+     * @return offenders
+     */
+    public synchronized List<Offender> getOffenders() {
+        return new ArrayList<>(this.offenders);
+    }
+
+    /**
+     * Returns the number of offenders of the given lane.
+     *
+     * @param aLane the lane
+     * @return offender count
+     */
+    public synchronized int getOffenderCount(Lane aLane) {
+        int tmpCount = 0;
+        for (Offender tmpOffender : this.offenders) {
+            if (tmpOffender.getLane() == aLane) {
+                tmpCount++;
+            }
+        }
+        return tmpCount;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner classes">
+    /**
+     * A molecule that exceeded the budget.
+     */
+    public static final class Offender {
+        //<editor-fold desc="Private final variables">
+        /**
+         * ID of the molecule
+         */
+        private final String id;
+
+        /**
+         * Where the molecule was analysed
+         */
+        private final Lane lane;
+
+        /**
+         * Time spent on the molecule in milliseconds
+         */
+        private final long millis;
+        //</editor-fold>
+        //
+        //<editor-fold desc="Constructors">
+        /**
+         * Creates an offender.
+         */
+        private Offender(String anID, Lane aLane, long aMillis) {
+            this.id = anID;
+            this.lane = aLane;
+            this.millis = aMillis;
+        }
+        //</editor-fold>
+        //
+        //<editor-fold desc="Public properties">
+        /**
+         * Returns the ID of the molecule.
+         *
+         * @return ID
+         */
+        public String getID() {
+            return this.id;
+        }
+
+        /**
+         * Returns where the molecule was analysed.
+         *
+         * @return lane
+         */
+        public Lane getLane() {
+            return this.lane;
+        }
+
+        /**
+         * Returns the time spent on the molecule in milliseconds, in both lanes; for cancelled molecules, the time
+         * until it was stopped in the slow lane.
+         *
+         * @return time in milliseconds
+         */
+        public long getMillis() {
+            return this.millis;
+        }
+        //</editor-fold>
+    }
+
+    /**
+     * Thrown by checkDeadline() when the deadline of a molecule has passed.
+     */
+    public static final class BudgetExceededException extends RuntimeException {
+        //<editor-fold desc="Constructors">
+        /**
+         * Creates an exception with a fixed message.
+         */
+        public BudgetExceededException() {
+            super("Time budget of the molecule exceeded.");
+        }
+        //</editor-fold>
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Objects;
+
+/**
+ * Molecule source iterating a collection of a MongoDB instance, e.g. the COCONUT "uniqueNaturalProduct" collection.
+ * The ID and SMILES code of every molecule are read from the given document keys.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MongoMoleculeSource implements MoleculeSource {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default host of the MongoDB instance
+     */
+    public static final String DEFAULT_HOST = "localhost";
+
+    /**
+     * Default port where the MongoDB instance is running
+     */
+    public static final int DEFAULT_PORT = 27017;
+
+    /**
+     * Default database to access; this COCONUT version contains 401,624 unique natural products
+     */
+    public static final String DEFAULT_DATABASE_NAME = "COCONUT2020november03";
+
+    /**
+     * Default collection from the database to load
+     */
+    public static final String DEFAULT_COLLECTION_NAME = "uniqueNaturalProduct";
+
+    /**
+     * Default name of the document variable that contains the ID of a molecule
+     */
+    public static final String DEFAULT_ID_KEY = "coconut_id";
+
+    /**
+     * Default name of the document variable that contains the SMILES code of a molecule
+     */
+    public static final String DEFAULT_SMILES_CODE_KEY = "unique_smiles";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Client connected to the MongoDB instance
+     */
+    private final MongoClient mongoClient;
+
+    /**
+     * Collection that is iterated
+     */
+    private final MongoCollection<Document> collection;
+
+    /**
+     * Cursor iterating the collection
+     */
+    private final MongoCursor<Document> cursor;
+
+    /**
+     * Name of the document variable that contains the ID of a molecule
+     */
+    private final String idKey;
+
+    /**
+     * Name of the document variable that contains the SMILES code of a molecule
+     */
+    private final String smilesCodeKey;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Connects to the given MongoDB instance and opens a cursor for iterating the given collection. Throws
+     * MongoTimeoutException if no connection can be made.
+     *
+     * @param aHost host of the MongoDB instance
+     * @param aPort port of the MongoDB instance
+     * @param aDatabaseName name of the database
+     * @param aCollectionName name of the collection to iterate
+     * @param anIDKey name of the document variable that contains the ID of a molecule
+     * @param aSmilesCodeKey name of the document variable that contains the SMILES code of a molecule
+     * @throws NullPointerException if a parameter is null
+     * @throws MongoTimeoutException if no connection can be made
+     */
+    public MongoMoleculeSource(String aHost, int aPort, String aDatabaseName, String aCollectionName, String anIDKey,
+                               String aSmilesCodeKey) throws NullPointerException, MongoTimeoutException {
+        Objects.requireNonNull(aHost, "Given host is 'null'.");
+        Objects.requireNonNull(aDatabaseName, "Given database name is 'null'.");
+        Objects.requireNonNull(aCollectionName, "Given collection name is 'null'.");
+        Objects.requireNonNull(anIDKey, "Given ID key is 'null'.");
+        Objects.requireNonNull(aSmilesCodeKey, "Given SMILES code key is 'null'.");
+        MongoClientSettings.Builder tmpBuilder = MongoClientSettings.builder();
+        ServerAddress tmpAddress = new ServerAddress(aHost, aPort);
+        tmpBuilder.applyToClusterSettings(builder -> builder.hosts(Collections.singletonList(tmpAddress)));
+        this.mongoClient = MongoClients.create(tmpBuilder.build());
+        MongoDatabase tmpDatabase = this.mongoClient.getDatabase(aDatabaseName);
+        this.collection = tmpDatabase.getCollection(aCollectionName);
+        this.cursor = this.collection.find().iterator();
+        this.idKey = anIDKey;
+        this.smilesCodeKey = aSmilesCodeKey;
+        System.out.println("Connection to MongoDB successful.");
+        System.out.println("Collection " + aCollectionName + " in database " + aDatabaseName + " is loaded.");
+    }
+
+    /**
+     * Connects to the COCONUT MongoDB instance using the default credentials.
+     *
+     * @throws MongoTimeoutException if no connection can be made
+     */
+    public MongoMoleculeSource() throws MongoTimeoutException {
+        this(MongoMoleculeSource.DEFAULT_HOST, MongoMoleculeSource.DEFAULT_PORT, MongoMoleculeSource.DEFAULT_DATABASE_NAME,
+                MongoMoleculeSource.DEFAULT_COLLECTION_NAME, MongoMoleculeSource.DEFAULT_ID_KEY,
+                MongoMoleculeSource.DEFAULT_SMILES_CODE_KEY);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return this.collection.getNamespace().getFullName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() throws IOException {
+        return this.cursor.hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MoleculeRecord next() throws IOException, IllegalArgumentException {
+        Document tmpCurrentDoc = this.cursor.next();
+        String tmpID = tmpCurrentDoc.getString(this.idKey);
+        String tmpSmilesCode = tmpCurrentDoc.getString(this.smilesCodeKey);
+        if (Objects.isNull(tmpID) || Objects.isNull(tmpSmilesCode)) {
+            throw new IllegalArgumentException("Document does not contain the keys " + this.idKey + " and "
+                    + this.smilesCodeKey + ": " + tmpCurrentDoc.getObjectId("_id"));
+        }
+        return new MoleculeRecord(tmpID, tmpSmilesCode, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.cursor.close();
+        this.mongoClient.close();
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,697 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.fingerprint.CircularFingerprinter;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Job that compiles the basic glycosylation statistics of several datasets at once, e.g. the ZINC, ChEMBL, and
+ * DrugBank SMILES files that the basics test methods in GlycosylationStatisticsTest process one after another. All
+ * datasets are read concurrently and their molecules are analysed in chunks on one shared work-stealing
+ * {@link ForkJoinPool}, so that the chunks of small datasets fill idle worker threads while large ones are still
+ * running. Every dataset has its own {@link DatasetGlycosylationStatistics}; the chunk results are merged into them and
+ * finally written to a side-by-side comparison table.
+ * <br>The molecules of every chunk are analysed as one batch by a {@link BatchSugarRemovalUtility}, i.e. like in
+ * MoleculeGlycosylationResult.compute(), the biggest fragment of every molecule is analysed with an SRU in default
+ * settings. Every worker thread uses its own SRU and SMILES parser instances. Optionally, SMILES codes are screened
+ * by a {@link SugarPrescreen} first and only the molecules that may contain sugars are parsed and analysed. The number of chunks of a dataset that are waiting to be analysed is limited, both in count and
+ * by the estimated heap size of their records, so the memory consumption does not depend on the dataset size; under
+ * memory pressure reported by a {@link HeapMemoryMonitor}, reading pauses until all chunks in flight are done.
+ * <br>Optionally, an AglyconeSimilarityIndex of the aglycones of all datasets is built in the same pass, which can then
+ * be searched for the aglycones most similar to those of query molecules, and the results of all molecules of every
+ * dataset are written to a {@link MoleculeResultTable} in the output folder, from which further statistics can be
+ * compiled without another run, together with its {@link ResultColumns} for filter and group-by queries.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MultiDatasetComparisonJob {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of the CSV file the comparison table is written to
+     */
+    public static final String COMPARISON_FILE_NAME = "DatasetComparison.csv";
+
+    /**
+     * Name of the CSV file the results of aglycone similarity searches are written to
+     */
+    public static final String AGLYCONE_SEARCH_FILE_NAME = "AglyconeSimilaritySearch.csv";
+
+    /**
+     * Default number of molecules analysed in one task
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 128;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(MultiDatasetComparisonJob.class.getName());
+
+    /**
+     * Maximum number of chunks per worker thread that a dataset may have waiting or in analysis
+     */
+    private static final int MAX_CHUNKS_IN_FLIGHT_PER_WORKER = 4;
+
+    /**
+     * Maximum fraction of the heap that the records of all chunks waiting or in analysis may take, by estimated size
+     */
+    private static final double MAX_HEAP_FRACTION_IN_FLIGHT = 0.25;
+
+    /**
+     * Batch SRU instance of every worker thread, in the settings of the SRU pool
+     */
+    private static final ThreadLocal<BatchSugarRemovalUtility> SUGAR_REMOVAL_UTIL = ThreadLocal.withInitial(() -> {
+        BatchSugarRemovalUtility tmpSugarRemovalUtil = new BatchSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
+        return tmpSugarRemovalUtil;
+    });
+
+    /**
+     * SMILES parser of every worker thread
+     */
+    private static final ThreadLocal<SmilesParser> SMILES_PARSER = ThreadLocal.withInitial(
+            () -> new SmilesParser(DefaultChemObjectBuilder.getInstance()));
+
+    /**
+     * Aglycone fingerprinter of every worker thread
+     */
+    private static final ThreadLocal<CircularFingerprinter> FINGERPRINTER = ThreadLocal.withInitial(
+            () -> new CircularFingerprinter(CircularFingerprinter.CLASS_ECFP6, PackedFingerprints.DEFAULT_NUMBER_OF_BITS));
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Sources of the compared datasets
+     */
+    private final List<MoleculeSource> moleculeSources;
+
+    /**
+     * Path of the output folder, ending with a file separator
+     */
+    private final String outputFolderPath;
+
+    /**
+     * Number of worker threads of the shared pool
+     */
+    private final int parallelism;
+
+    /**
+     * Number of molecules analysed in one task
+     */
+    private final int chunkSize;
+
+    /**
+     * Monitor of the heap usage, pausing the reading of the datasets under memory pressure
+     */
+    private final HeapMemoryMonitor memoryMonitor;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * True if an aglycone similarity index is built during the run
+     */
+    private boolean isAglyconeIndexBuilt;
+
+    /**
+     * True if a result table is written for every dataset during the run
+     */
+    private boolean isResultTableWritten;
+
+    /**
+     * True if SMILES codes are pre-screened for sugar candidates
+     */
+    private boolean isPrescreeningEnabled;
+
+    /**
+     * Pre-screen of the SMILES codes during the run, null if no pre-screening is done
+     */
+    private SugarPrescreen prescreen;
+
+    /**
+     * Builder of the aglycone similarity index during the run, null if no index is built
+     */
+    private AglyconeSimilarityIndex.Builder aglyconeIndexBuilder;
+
+    /**
+     * Aglycone similarity index of the last run, null if none was built
+     */
+    private AglyconeSimilarityIndex aglyconeIndex;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a job comparing the given datasets.
+     *
+     * @param aMoleculeSourcesList sources of the datasets to compare; they are read by the job but not closed
+     * @param anOutputFolderPath path of the output folder, created if it does not exist
+     * @param aParallelism number of worker threads
+     * @param aChunkSize number of molecules analysed in one task
+     * @throws NullPointerException if a parameter or one of the sources is null
+     * @throws IllegalArgumentException if no source is given or the parallelism or chunk size is smaller than 1
+     */
+    public MultiDatasetComparisonJob(List<MoleculeSource> aMoleculeSourcesList, String anOutputFolderPath,
+                                     int aParallelism, int aChunkSize)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aMoleculeSourcesList, "Given sources list is 'null'.");
+        Objects.requireNonNull(anOutputFolderPath, "Given output folder path is 'null'.");
+        if (aMoleculeSourcesList.isEmpty()) {
+            throw new IllegalArgumentException("No molecule source given.");
+        }
+        if (aParallelism < 1 || aChunkSize < 1) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be at least 1.");
+        }
+        for (MoleculeSource tmpSource : aMoleculeSourcesList) {
+            Objects.requireNonNull(tmpSource, "A molecule source is 'null'.");
+        }
+        this.moleculeSources = new ArrayList<>(aMoleculeSourcesList);
+        String tmpOutputFolderPath = new File(anOutputFolderPath).getAbsolutePath();
+        this.outputFolderPath = tmpOutputFolderPath.endsWith(File.separator) ? tmpOutputFolderPath
+                : tmpOutputFolderPath + File.separator;
+        this.parallelism = aParallelism;
+        this.chunkSize = aChunkSize;
+        this.memoryMonitor = new HeapMemoryMonitor();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Analyses all datasets on a new pool with the configured number of worker threads, prints the comparison table to
+     * console, and writes it to the comparison CSV file in the output folder.
+     *
+     * @return statistics of every dataset, in the order of the sources
+     * @throws IOException if a source cannot be read or the table cannot be written
+     */
+    public List<DatasetGlycosylationStatistics> run() throws IOException {
+        long tmpStartTime = System.currentTimeMillis();
+        this.aglyconeIndexBuilder = this.isAglyconeIndexBuilt
+                ? new AglyconeSimilarityIndex.Builder(PackedFingerprints.DEFAULT_NUMBER_OF_BITS) : null;
+        this.aglyconeIndex = null;
+        //the pre-screen cannot be used for the aglycone index that also needs the sugar-free molecules
+        this.prescreen = this.isPrescreeningEnabled && !this.isAglyconeIndexBuilt
+                ? new SugarPrescreen(MultiDatasetComparisonJob.SUGAR_REMOVAL_UTIL.get()) : null;
+        if (this.isResultTableWritten) {
+            new File(this.outputFolderPath).mkdirs();
+        }
+        ForkJoinPool tmpPool = new ForkJoinPool(this.parallelism);
+        List<DatasetGlycosylationStatistics> tmpStatisticsList = new ArrayList<>(this.moleculeSources.size());
+        try {
+            List<ForkJoinTask<DatasetGlycosylationStatistics>> tmpDatasetTasks = new ArrayList<>(this.moleculeSources.size());
+            for (MoleculeSource tmpSource : this.moleculeSources) {
+                tmpDatasetTasks.add(tmpPool.submit(new DatasetTask(tmpSource)));
+            }
+            for (ForkJoinTask<DatasetGlycosylationStatistics> tmpDatasetTask : tmpDatasetTasks) {
+                tmpStatisticsList.add(tmpDatasetTask.join());
+            }
+        } catch (UncheckedIOException anUncheckedIOException) {
+            throw anUncheckedIOException.getCause();
+        } finally {
+            tmpPool.shutdownNow();
+        }
+        if (!Objects.isNull(this.aglyconeIndexBuilder)) {
+            this.aglyconeIndex = this.aglyconeIndexBuilder.build();
+            this.aglyconeIndexBuilder = null;
+            System.out.println(this.aglyconeIndex.size() + " aglycones were indexed.");
+        }
+        System.out.println("Processing time: " + (System.currentTimeMillis() - tmpStartTime) + " ms");
+        this.writeComparisonTable(tmpStatisticsList);
+        return tmpStatisticsList;
+    }
+
+    /**
+     * Searches the aglycone similarity index of the last run for the aglycones most similar to those of the given
+     * query molecules and writes the hits to the aglycone search CSV file in the output folder, one line per hit.
+     * Queries that cannot be read or parsed or that are completely removed as sugar get no hits.
+     *
+     * @param aQuerySource source of the query molecules; it is read but not closed
+     * @param aNumberOfHits maximum number of hits per query
+     * @return number of queries
+     * @throws NullPointerException if the source is null
+     * @throws IllegalStateException if no index was built in the last run
+     * @throws IOException if the source cannot be read or the file cannot be written
+     */
+    public int writeAglyconeSearchResults(MoleculeSource aQuerySource, int aNumberOfHits)
+            throws NullPointerException, IllegalStateException, IOException {
+        Objects.requireNonNull(aQuerySource, "Given query source is 'null'.");
+        if (Objects.isNull(this.aglyconeIndex)) {
+            throw new IllegalStateException("No aglycone similarity index was built in the last run.");
+        }
+        String tmpSeparator = AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR;
+        SugarRemovalUtility tmpSugarRemovalUtil = SugarRemovalUtilityPool.createInstance();
+        SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        CircularFingerprinter tmpFingerprinter = new CircularFingerprinter(CircularFingerprinter.CLASS_ECFP6,
+                this.aglyconeIndex.getNumberOfBits());
+        int tmpQueriesCounter = 0;
+        try (PrintWriter tmpWriter = new PrintWriter(new FileWriter(this.outputFolderPath
+                + MultiDatasetComparisonJob.AGLYCONE_SEARCH_FILE_NAME))) {
+            tmpWriter.println(String.join(tmpSeparator, "Query", "Rank", "Dataset", "ID", "Tanimoto similarity"));
+            while (aQuerySource.hasNext()) {
+                tmpQueriesCounter++;
+                try {
+                    MoleculeRecord tmpRecord = aQuerySource.next();
+                    IAtomContainer tmpMolecule = tmpRecord.isGivenAsSmilesCode()
+                            ? tmpSmiPar.parseSmiles(tmpRecord.getSmilesCode()) : tmpRecord.getAtomContainer();
+                    BitSet tmpFingerprint = AglyconeSimilarityIndex.computeAglyconeFingerprint(tmpMolecule,
+                            tmpSugarRemovalUtil, tmpFingerprinter);
+                    if (Objects.isNull(tmpFingerprint)) {
+                        continue;
+                    }
+                    int tmpRank = 1;
+                    for (AglyconeSimilarityIndex.Hit tmpHit : this.aglyconeIndex.search(tmpFingerprint, aNumberOfHits,
+                            null)) {
+                        tmpWriter.println(String.join(tmpSeparator, tmpRecord.getID(), Integer.toString(tmpRank++),
+                                tmpHit.getDatasetName(), tmpHit.getID(),
+                                String.format(Locale.US, "%.4f", tmpHit.getSimilarity())));
+                    }
+                } catch (Exception anException) {
+                    if (anException instanceof IOException) {
+                        throw (IOException) anException;
+                    }
+                    MultiDatasetComparisonJob.LOGGER.log(Level.WARNING, anException.toString(), anException);
+                }
+            }
+        }
+        return tmpQueriesCounter;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Sets whether an aglycone similarity index of all datasets is built during the next runs.
+     *
+     * @param aBoolean true to build the index
+     */
+    public void setAglyconeIndexBuilt(boolean aBoolean) {
+        this.isAglyconeIndexBuilt = aBoolean;
+    }
+
+    /**
+     * Sets whether the results of all molecules of every dataset are written to a result table in the output folder
+     * during the next runs, see getResultTableFile(), together with the result columns of every table.
+     *
+     * @param aBoolean true to write the result tables
+     */
+    public void setResultTableWritten(boolean aBoolean) {
+        this.isResultTableWritten = aBoolean;
+    }
+
+    /**
+     * Returns the result table file of the dataset with the given name in the output folder; characters of the name
+     * that are not letters, digits, dots, hyphens, or underscores are replaced by underscores.
+     *
+     * @param aDatasetName name of the dataset
+     * @return result table file
+     * @throws NullPointerException if the name is null
+     */
+    public File getResultTableFile(String aDatasetName) throws NullPointerException {
+        Objects.requireNonNull(aDatasetName, "Given dataset name is 'null'.");
+        return new File(this.outputFolderPath + aDatasetName.replaceAll("[^A-Za-z0-9._-]", "_")
+                + MoleculeResultTable.FILE_EXTENSION);
+    }
+
+    /**
+     * Sets whether the SMILES codes of the next runs are pre-screened for sugar candidates, so that molecules that
+     * certainly contain no sugars are counted as such without parsing and analysing them. Pre-screening is not done in
+     * runs that build an aglycone similarity index. Note that SMILES codes rejected by the pre-screen are not parsed,
+     * so they are not counted as failed even if they could not be parsed.
+     *
+     * @param aBoolean true to pre-screen the SMILES codes
+     */
+    public void setPrescreeningEnabled(boolean aBoolean) {
+        this.isPrescreeningEnabled = aBoolean;
+    }
+
+    /**
+     * Returns the aglycone similarity index built in the last run.
+     *
+     * @return index or null if none was built
+     */
+    public AglyconeSimilarityIndex getAglyconeIndex() {
+        return this.aglyconeIndex;
+    }
+
+    /**
+     * Returns the path of the output folder, ending with a file separator.
+     *
+     * @return output folder path
+     */
+    public String getOutputFolderPath() {
+        return this.outputFolderPath;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Prints the statistics of all datasets side by side to console and writes them to the comparison CSV file, one
+     * row per statistic and one column per dataset.
+     *
+     * @param aStatisticsList statistics of the datasets
+     * @throws IOException if the file cannot be written
+     */
+    private void writeComparisonTable(List<DatasetGlycosylationStatistics> aStatisticsList) throws IOException {
+        File tmpOutputFolderFile = new File(this.outputFolderPath);
+        if (!tmpOutputFolderFile.exists()) {
+            tmpOutputFolderFile.mkdirs();
+        }
+        String tmpSeparator = AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR;
+        List<Map<String, Integer>> tmpStatisticsMaps = new ArrayList<>(aStatisticsList.size());
+        StringBuilder tmpHeader = new StringBuilder("Statistic");
+        for (DatasetGlycosylationStatistics tmpStatistics : aStatisticsList) {
+            tmpStatisticsMaps.add(tmpStatistics.getStatistics());
+            tmpHeader.append(tmpSeparator).append(tmpStatistics.getDatasetName());
+        }
+        try (PrintWriter tmpWriter = new PrintWriter(new FileWriter(this.outputFolderPath
+                + MultiDatasetComparisonJob.COMPARISON_FILE_NAME))) {
+            tmpWriter.println(tmpHeader);
+            System.out.println(tmpHeader);
+            for (String tmpName : tmpStatisticsMaps.get(0).keySet()) {
+                StringBuilder tmpLine = new StringBuilder(tmpName);
+                for (Map<String, Integer> tmpStatisticsMap : tmpStatisticsMaps) {
+                    tmpLine.append(tmpSeparator).append(tmpStatisticsMap.get(tmpName));
+                }
+                tmpWriter.println(tmpLine);
+                System.out.println(tmpLine);
+            }
+            StringBuilder tmpPercentageLine = new StringBuilder("Sugar-containing molecules (%)");
+            for (DatasetGlycosylationStatistics tmpStatistics : aStatisticsList) {
+                tmpPercentageLine.append(tmpSeparator).append(AbstractGlycosylationAnalysis.getPercentage(
+                        tmpStatistics.getHasAnyTypeOfSugarsCounter(),
+                        tmpStatistics.getMoleculesCounter() - tmpStatistics.getFailedMoleculesCounter()));
+            }
+            tmpWriter.println(tmpPercentageLine);
+            System.out.println(tmpPercentageLine);
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private classes">
+    /**
+     * Task reading one dataset, forking its chunks, and merging the chunk results in reading order.
+     */
+    private class DatasetTask extends RecursiveTask<DatasetGlycosylationStatistics> {
+        /**
+         * Source of the dataset
+         */
+        private final MoleculeSource moleculeSource;
+
+        /**
+         * Result table of the dataset during the task, null if none is written
+         */
+        private MoleculeResultTable resultTable;
+
+        /**
+         * Creates a task for the given dataset.
+         *
+         * @param aMoleculeSource source of the dataset
+         */
+        DatasetTask(MoleculeSource aMoleculeSource) {
+            this.moleculeSource = aMoleculeSource;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected DatasetGlycosylationStatistics compute() {
+            String tmpName = this.moleculeSource.getName();
+            boolean tmpIsAglyconeIndexBuilt = !Objects.isNull(MultiDatasetComparisonJob.this.aglyconeIndexBuilder);
+            DatasetGlycosylationStatistics tmpStatistics = new DatasetGlycosylationStatistics(tmpName);
+            int tmpMaxChunksInFlight = MultiDatasetComparisonJob.this.parallelism
+                    * MultiDatasetComparisonJob.MAX_CHUNKS_IN_FLIGHT_PER_WORKER;
+            //the heap budget for records in flight is shared by all datasets
+            HeapMemoryMonitor tmpMemoryMonitor = MultiDatasetComparisonJob.this.memoryMonitor;
+            long tmpMaxBytesInFlight = (long) (tmpMemoryMonitor.getMaxHeapSize()
+                    * MultiDatasetComparisonJob.MAX_HEAP_FRACTION_IN_FLIGHT
+                    / MultiDatasetComparisonJob.this.moleculeSources.size());
+            Deque<ChunkTask> tmpChunksInFlight = new ArrayDeque<>(tmpMaxChunksInFlight + 1);
+            Deque<Long> tmpChunkSizesInFlight = new ArrayDeque<>(tmpMaxChunksInFlight + 1);
+            long tmpBytesInFlight = 0L;
+            long tmpChunkBytes = 0L;
+            List<MoleculeRecord> tmpChunk = new ArrayList<>(MultiDatasetComparisonJob.this.chunkSize);
+            try {
+                if (MultiDatasetComparisonJob.this.isResultTableWritten) {
+                    this.resultTable = MoleculeResultTable.create(
+                            MultiDatasetComparisonJob.this.getResultTableFile(tmpName));
+                }
+                while (this.moleculeSource.hasNext()) {
+                    try {
+                        MoleculeRecord tmpRecord = this.moleculeSource.next();
+                        tmpChunk.add(tmpRecord);
+                        tmpChunkBytes += HeapMemoryMonitor.estimateSize(tmpRecord);
+                    } catch (IllegalArgumentException anException) {
+                        MultiDatasetComparisonJob.LOGGER.log(Level.WARNING, anException + " Source: " + tmpName);
+                        //counted as failure by the chunk task, so that it keeps its place in the result table
+                        tmpChunk.add(null);
+                    }
+                    if (tmpChunk.size() == MultiDatasetComparisonJob.this.chunkSize) {
+                        ChunkTask tmpChunkTask = new ChunkTask(tmpName, tmpChunk, tmpIsAglyconeIndexBuilt,
+                                MultiDatasetComparisonJob.this.prescreen, !Objects.isNull(this.resultTable));
+                        tmpChunkTask.fork();
+                        tmpChunksInFlight.addLast(tmpChunkTask);
+                        tmpChunkSizesInFlight.addLast(tmpChunkBytes);
+                        tmpBytesInFlight += tmpChunkBytes;
+                        tmpChunk = new ArrayList<>(MultiDatasetComparisonJob.this.chunkSize);
+                        tmpChunkBytes = 0L;
+                        //under memory pressure, reading pauses until all chunks in flight are done
+                        boolean tmpIsUnderPressure = tmpMemoryMonitor.getPressure() != HeapMemoryMonitor.Pressure.NORMAL;
+                        //joining the oldest chunk lets this thread help with the analysis until it is done
+                        while (!tmpChunksInFlight.isEmpty() && (tmpIsUnderPressure
+                                || tmpChunksInFlight.size() > tmpMaxChunksInFlight
+                                || tmpBytesInFlight > tmpMaxBytesInFlight)) {
+                            this.merge(tmpStatistics, tmpChunksInFlight.pollFirst());
+                            tmpBytesInFlight -= tmpChunkSizesInFlight.pollFirst();
+                        }
+                    }
+                }
+                while (!tmpChunksInFlight.isEmpty()) {
+                    this.merge(tmpStatistics, tmpChunksInFlight.pollFirst());
+                }
+                if (!tmpChunk.isEmpty()) {
+                    ChunkTask tmpLastChunkTask = new ChunkTask(tmpName, tmpChunk, tmpIsAglyconeIndexBuilt,
+                            MultiDatasetComparisonJob.this.prescreen, !Objects.isNull(this.resultTable));
+                    tmpLastChunkTask.invoke();
+                    this.merge(tmpStatistics, tmpLastChunkTask);
+                }
+                if (!Objects.isNull(this.resultTable)) {
+                    ResultColumns.write(this.resultTable);
+                }
+            } catch (IOException anIOException) {
+                throw new UncheckedIOException(anIOException);
+            } finally {
+                if (!Objects.isNull(this.resultTable)) {
+                    try {
+                        //all rows are already written
+                        this.resultTable.close();
+                    } catch (IOException anIOException) {
+                        MultiDatasetComparisonJob.LOGGER.log(Level.WARNING, anIOException.toString(), anIOException);
+                    }
+                }
+            }
+            System.out.println("Done with " + tmpName + ": " + tmpStatistics.getMoleculesCounter() + " molecules.");
+            return tmpStatistics;
+        }
+
+        /**
+         * Joins the given chunk task and merges its statistics, aglycone fingerprints, and result rows; chunks are
+         * merged in reading order, so the order of the aglycones in the index and of the rows in the result table is
+         * reproducible.
+         */
+        private void merge(DatasetGlycosylationStatistics aStatistics, ChunkTask aChunkTask) throws IOException {
+            aStatistics.merge(aChunkTask.join());
+            if (!Objects.isNull(aChunkTask.resultRows)) {
+                this.resultTable.append(aChunkTask.resultRows);
+            }
+            if (!Objects.isNull(aChunkTask.aglyconeIDs)) {
+                MultiDatasetComparisonJob.this.aglyconeIndexBuilder.add(this.moleculeSource.getName(),
+                        aChunkTask.aglyconeIDs, aChunkTask.aglyconeFingerprints);
+            }
+        }
+    }
+
+    /**
+     * Task analysing one chunk of molecule records of a dataset, also used for the samples of a SamplingStatisticsJob.
+     */
+    static class ChunkTask extends RecursiveTask<DatasetGlycosylationStatistics> {
+        /**
+         * Name of the dataset
+         */
+        private final String datasetName;
+
+        /**
+         * Records to analyse
+         */
+        private final List<MoleculeRecord> records;
+
+        /**
+         * IDs of the molecules with aglycone fingerprints, null if no aglycone fingerprints are computed
+         */
+        private final List<String> aglyconeIDs;
+
+        /**
+         * Aglycone fingerprints, null if none are computed
+         */
+        private final List<BitSet> aglyconeFingerprints;
+
+        /**
+         * Pre-screen of the SMILES codes, null if all records are analysed
+         */
+        private final SugarPrescreen prescreen;
+
+        /**
+         * Result table rows of the records, null if none are collected
+         */
+        private final MoleculeResultTable.Rows resultRows;
+
+        /**
+         * Creates a task for the given records.
+         *
+         * @param aDatasetName name of the dataset
+         * @param aRecordsList records to analyse
+         * @param anAreAglyconeFingerprintsComputed true to compute the aglycone fingerprints
+         */
+        ChunkTask(String aDatasetName, List<MoleculeRecord> aRecordsList, boolean anAreAglyconeFingerprintsComputed) {
+            this(aDatasetName, aRecordsList, anAreAglyconeFingerprintsComputed, null, false);
+        }
+
+        /**
+         * Creates a task for the given records that optionally pre-screens their SMILES codes and collects their
+         * result table rows.
+         *
+         * @param aDatasetName name of the dataset
+         * @param aRecordsList records to analyse; null elements are records that could not be read
+         * @param anAreAglyconeFingerprintsComputed true to compute the aglycone fingerprints
+         * @param aPrescreen pre-screen of the SMILES codes, null to analyse all records; it must not be given if the
+         *                   aglycone fingerprints are computed
+         * @param anAreResultRowsCollected true to collect the result table rows
+         */
+        ChunkTask(String aDatasetName, List<MoleculeRecord> aRecordsList, boolean anAreAglyconeFingerprintsComputed,
+                  SugarPrescreen aPrescreen, boolean anAreResultRowsCollected) {
+            this.datasetName = aDatasetName;
+            this.records = aRecordsList;
+            this.aglyconeIDs = anAreAglyconeFingerprintsComputed ? new ArrayList<>(aRecordsList.size()) : null;
+            this.aglyconeFingerprints = anAreAglyconeFingerprintsComputed ? new ArrayList<>(aRecordsList.size()) : null;
+            this.prescreen = aPrescreen;
+            this.resultRows = anAreResultRowsCollected ? new MoleculeResultTable.Rows(aRecordsList.size()) : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected DatasetGlycosylationStatistics compute() {
+            DatasetGlycosylationStatistics tmpStatistics = new DatasetGlycosylationStatistics(this.datasetName);
+            BatchSugarRemovalUtility tmpSugarRemovalUtil = MultiDatasetComparisonJob.SUGAR_REMOVAL_UTIL.get();
+            SmilesParser tmpSmiPar = MultiDatasetComparisonJob.SMILES_PARSER.get();
+            //molecules that cannot be parsed stay null and are flagged as failed in the batch, just like the molecules
+            //rejected by the pre-screen that are then counted as sugar-free
+            IAtomContainer[] tmpMolecules = new IAtomContainer[this.records.size()];
+            boolean[] tmpIsRejected = new boolean[tmpMolecules.length];
+            for (int i = 0; i < tmpMolecules.length; i++) {
+                MoleculeRecord tmpRecord = this.records.get(i);
+                if (Objects.isNull(tmpRecord)) {
+                    continue;
+                }
+                if (!Objects.isNull(this.prescreen) && tmpRecord.isGivenAsSmilesCode()
+                        && !this.prescreen.mayContainSugars(tmpRecord.getSmilesCode())) {
+                    tmpIsRejected[i] = true;
+                    continue;
+                }
+                try {
+                    tmpMolecules[i] = tmpRecord.isGivenAsSmilesCode()
+                            ? tmpSmiPar.parseSmiles(tmpRecord.getSmilesCode()) : tmpRecord.getAtomContainer();
+                } catch (Exception anException) {
+                    MultiDatasetComparisonJob.LOGGER.log(Level.WARNING, anException + " ID: " + tmpRecord.getID(),
+                            anException);
+                }
+            }
+            SugarDetectionBatch tmpBatch = tmpSugarRemovalUtil.detect(tmpMolecules);
+            for (int i = 0; i < tmpMolecules.length; i++) {
+                MoleculeRecord tmpRecord = this.records.get(i);
+                if (tmpIsRejected[i]) {
+                    tmpStatistics.addSugarFreeMolecule(tmpRecord.getNrOfStereoIsomers());
+                    if (!Objects.isNull(this.resultRows)) {
+                        this.resultRows.addSugarFreeMolecule(tmpRecord.getID(), tmpRecord.getNrOfStereoIsomers());
+                    }
+                    continue;
+                }
+                if (tmpBatch.hasFlag(i, SugarDetectionBatch.FAILED_FLAG)) {
+                    tmpStatistics.addFailure();
+                    if (!Objects.isNull(this.resultRows)) {
+                        this.resultRows.addFailure(Objects.isNull(tmpRecord) ? "" : tmpRecord.getID());
+                    }
+                    continue;
+                }
+                try {
+                    BitSet tmpAglyconeFingerprint = null;
+                    if (!Objects.isNull(this.aglyconeIDs)
+                            && !tmpBatch.hasFlag(i, SugarDetectionBatch.BASICALLY_A_SUGAR_FLAG)) {
+                        tmpAglyconeFingerprint = AglyconeSimilarityIndex.computeAglyconeFingerprint(tmpMolecules[i],
+                                tmpSugarRemovalUtil, MultiDatasetComparisonJob.FINGERPRINTER.get());
+                    }
+                    tmpStatistics.add(tmpBatch, i, tmpRecord.getNrOfStereoIsomers());
+                    if (!Objects.isNull(this.resultRows)) {
+                        this.resultRows.add(tmpRecord.getID(), tmpBatch, i, tmpRecord.getNrOfStereoIsomers());
+                    }
+                    if (!Objects.isNull(tmpAglyconeFingerprint)) {
+                        this.aglyconeIDs.add(tmpRecord.getID());
+                        this.aglyconeFingerprints.add(tmpAglyconeFingerprint);
+                    }
+                } catch (Exception anException) {
+                    MultiDatasetComparisonJob.LOGGER.log(Level.WARNING, anException + " ID: " + tmpRecord.getID(),
+                            anException);
+                    tmpStatistics.addFailure();
+                    if (!Objects.isNull(this.resultRows)) {
+                        this.resultRows.addFailure(tmpRecord.getID());
+                    }
+                }
+            }
+            return tmpStatistics;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * List of fixed-width bit fingerprints packed into one long array, so that millions of fingerprints can be held in
+ * memory without an object per fingerprint. Similarities are computed word by word with Long.bitCount() on the packed
+ * arrays, using the bit counts of the single fingerprints that are determined once when they are added.
+ * <br>Adding fingerprints is not thread-safe, but similarities can be computed concurrently once all fingerprints
+ * have been added. See FingerprintStore for fingerprints persisted in memory-mapped files.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class PackedFingerprints implements FingerprintCollection {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Default number of bits of a fingerprint
+     */
+    public static final int DEFAULT_NUMBER_OF_BITS = 1024;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Number of bits of a fingerprint, a multiple of 64
+     */
+    private final int numberOfBits;
+
+    /**
+     * Number of long words of a fingerprint
+     */
+    private final int wordsPerFingerprint;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Packed fingerprints, fingerprint i occupies the words from i * wordsPerFingerprint on
+     */
+    private long[] words;
+
+    /**
+     * Number of set bits of every fingerprint
+     */
+    private int[] cardinalities;
+
+    /**
+     * Number of fingerprints
+     */
+    private int size;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates an empty list.
+     *
+     * @param aNumberOfBits number of bits of a fingerprint, rounded up to a multiple of 64
+     * @param anInitialCapacity number of fingerprints space is reserved for
+     * @throws IllegalArgumentException if the number of bits is smaller than 1 or the capacity is negative
+     */
+    public PackedFingerprints(int aNumberOfBits, int anInitialCapacity) throws IllegalArgumentException {
+        if (aNumberOfBits < 1) {
+            throw new IllegalArgumentException("Given number of bits is smaller than 1.");
+        }
+        if (anInitialCapacity < 0) {
+            throw new IllegalArgumentException("Given capacity is negative.");
+        }
+        this.wordsPerFingerprint = (aNumberOfBits + Long.SIZE - 1) / Long.SIZE;
+        this.numberOfBits = this.wordsPerFingerprint * Long.SIZE;
+        this.words = new long[Math.multiplyExact(anInitialCapacity, this.wordsPerFingerprint)];
+        this.cardinalities = new int[anInitialCapacity];
+        this.size = 0;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Appends the given fingerprint.
+     *
+     * @param aFingerprint the fingerprint
+     * @return index of the fingerprint
+     * @throws NullPointerException if the given fingerprint is null
+     * @throws IllegalArgumentException if a bit outside the fingerprint width is set
+     */
+    public int add(BitSet aFingerprint) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aFingerprint, "Given fingerprint is 'null'.");
+        if (aFingerprint.length() > this.numberOfBits) {
+            throw new IllegalArgumentException("Given fingerprint has set bits beyond " + this.numberOfBits + " bits.");
+        }
+        if (this.size == this.cardinalities.length) {
+            int tmpNewCapacity = Math.max(16, this.cardinalities.length + (this.cardinalities.length >> 1));
+            this.words = Arrays.copyOf(this.words, Math.multiplyExact(tmpNewCapacity, this.wordsPerFingerprint));
+            this.cardinalities = Arrays.copyOf(this.cardinalities, tmpNewCapacity);
+        }
+        long[] tmpWords = aFingerprint.toLongArray();
+        System.arraycopy(tmpWords, 0, this.words, this.size * this.wordsPerFingerprint, tmpWords.length);
+        this.cardinalities[this.size] = aFingerprint.cardinality();
+        return this.size++;
+    }
+
+    /**
+     * Returns the fingerprint at the given index as bit set.
+     *
+     * @param anIndex index of the fingerprint
+     * @return new bit set
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public BitSet get(int anIndex) throws IndexOutOfBoundsException {
+        Objects.checkIndex(anIndex, this.size);
+        int tmpOffset = anIndex * this.wordsPerFingerprint;
+        return BitSet.valueOf(Arrays.copyOfRange(this.words, tmpOffset, tmpOffset + this.wordsPerFingerprint));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIntersectionCount(int anIndex, int anotherIndex) {
+        int tmpOffset1 = anIndex * this.wordsPerFingerprint;
+        int tmpOffset2 = anotherIndex * this.wordsPerFingerprint;
+        int tmpCount = 0;
+        for (int w = 0; w < this.wordsPerFingerprint; w++) {
+            tmpCount += Long.bitCount(this.words[tmpOffset1 + w] & this.words[tmpOffset2 + w]);
+        }
+        return tmpCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getDiceSimilarity(int anIndex, int anotherIndex) {
+        int tmpSum = this.cardinalities[anIndex] + this.cardinalities[anotherIndex];
+        if (tmpSum == 0) {
+            return 0.0;
+        }
+        return 2.0 * this.getIntersectionCount(anIndex, anotherIndex) / tmpSum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTanimotoSimilarity(int anIndex, int anotherIndex) {
+        int tmpIntersection = this.getIntersectionCount(anIndex, anotherIndex);
+        int tmpUnion = this.cardinalities[anIndex] + this.cardinalities[anotherIndex] - tmpIntersection;
+        if (tmpUnion == 0) {
+            return 0.0;
+        }
+        return (double) tmpIntersection / tmpUnion;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getNumberOfBits() {
+        return this.numberOfBits;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCardinality(int anIndex) {
+        return this.cardinalities[anIndex];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWord(int anIndex, int aWordIndex) {
+        return this.words[anIndex * this.wordsPerFingerprint + aWordIndex];
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,371 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Sweep over a grid of Sugar Removal Utility settings in one pass over the dataset. Instead of one pass per setting,
+ * the circular and linear sugar candidates of every molecule are detected once with the most permissive settings of
+ * the grid, and every {@link SweepGridPoint} is evaluated as a filter on these candidates. This is possible because
+ * the swept settings, i.e. the exocyclic oxygen atoms ratio threshold, the O-glycosidic bond requirement, and the
+ * linear sugar size range, only decide on single candidates and do not influence the detection of other
+ * candidates. For every grid point, the numbers of sugar-containing molecules and of detected sugar moieties are
+ * printed to console and compiled in the "Output.txt" file and a CSV file with one row per grid point.
+ * <br>All other SRU settings are in default. The removal of sugars is not part of the sweep.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class ParameterSweepAnalysis extends AbstractGlycosylationAnalysis {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this analysis on the command line
+     */
+    public static final String NAME = "parameter-sweep";
+
+    /**
+     * Default grid of 20 points: the ratio thresholds 0 (i.e. no filter), 0.3, 0.4, 0.5 (default), and 0.6, with and
+     * without O-glycosidic bond requirement, and linear sugar sizes 4-7 (default) and 3-9
+     */
+    public static final List<SweepGridPoint> DEFAULT_GRID = Collections.unmodifiableList(SweepGridPoint.createGrid(
+            new double[] {0.0, 0.3, 0.4, 0.5, 0.6},
+            new boolean[] {false, true},
+            new int[][] {{4, 7}, {3, 9}}));
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Sugar Removal Utility instance of every thread running detect(), detecting the superset of candidates of all
+     * grid points
+     */
+    private final ThreadLocal<RecordingSugarRemovalUtility> sugarRemovalUtil;
+
+    /**
+     * The evaluated grid points
+     */
+    private final List<SweepGridPoint> grid;
+
+    /**
+     * True if any grid point requires an O-glycosidic bond, only then it is determined for the candidates
+     */
+    private final boolean isGlycosidicBondNeeded;
+
+    //counters of the compiled statistics per grid point, indexed like the grid, see writeResults()
+    private final int[] hasAnyTypeOfSugarsCounters;
+
+    private final int[] hasCircularSugarsCounters;
+
+    private final int[] hasLinearSugarsCounters;
+
+    private final int[] circularSugarMoietiesCounters;
+
+    private final int[] linearSugarMoietiesCounters;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of analysed molecules
+     */
+    private int moleculesCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor for a sweep over the default grid.
+     */
+    public ParameterSweepAnalysis() {
+        this(ParameterSweepAnalysis.DEFAULT_GRID);
+    }
+
+    /**
+     * Constructor for a sweep over the given grid.
+     *
+     * @param aGrid grid points to evaluate
+     * @throws NullPointerException if the given grid or one of its points is null
+     * @throws IllegalArgumentException if the given grid is empty
+     */
+    public ParameterSweepAnalysis(List<SweepGridPoint> aGrid) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aGrid, "Given grid is 'null'.");
+        if (aGrid.isEmpty()) {
+            throw new IllegalArgumentException("Given grid is empty.");
+        }
+        int tmpMinSize = Integer.MAX_VALUE;
+        int tmpMaxSize = 1;
+        boolean tmpIsGlycosidicBondNeeded = false;
+        for (SweepGridPoint tmpGridPoint : aGrid) {
+            Objects.requireNonNull(tmpGridPoint, "A grid point is 'null'.");
+            tmpMinSize = Math.min(tmpMinSize, tmpGridPoint.getLinearSugarCandidateMinSize());
+            tmpMaxSize = Math.max(tmpMaxSize, tmpGridPoint.getLinearSugarCandidateMaxSize());
+            tmpIsGlycosidicBondNeeded = tmpIsGlycosidicBondNeeded || tmpGridPoint.isOnlyCircularSugarsWithOGlycosidicBond();
+        }
+        this.grid = Collections.unmodifiableList(new ArrayList<>(aGrid));
+        this.isGlycosidicBondNeeded = tmpIsGlycosidicBondNeeded;
+        //most permissive settings, the filters are applied per grid point
+        int tmpLinearSugarCandidateMinSize = tmpMinSize;
+        int tmpLinearSugarCandidateMaxSize = tmpMaxSize;
+        this.sugarRemovalUtil = ThreadLocal.withInitial(() -> {
+            RecordingSugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(
+                    DefaultChemObjectBuilder.getInstance());
+            tmpSugarRemovalUtil.setDetectCircularSugarsOnlyWithOGlycosidicBondSetting(false);
+            tmpSugarRemovalUtil.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(false);
+            tmpSugarRemovalUtil.setLinearSugarCandidateMinSizeSetting(tmpLinearSugarCandidateMinSize);
+            tmpSugarRemovalUtil.setLinearSugarCandidateMaxSizeSetting(tmpLinearSugarCandidateMaxSize);
+            return tmpSugarRemovalUtil;
+        });
+        int tmpSize = this.grid.size();
+        this.hasAnyTypeOfSugarsCounters = new int[tmpSize];
+        this.hasCircularSugarsCounters = new int[tmpSize];
+        this.hasLinearSugarsCounters = new int[tmpSize];
+        this.circularSugarMoietiesCounters = new int[tmpSize];
+        this.linearSugarMoietiesCounters = new int[tmpSize];
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return ParameterSweepAnalysis.NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void analyse(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        this.detect(aRecord, aMolecule).apply();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StatisticsUpdate detect(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = this.sugarRemovalUtil.get();
+        //the SRU adds properties to the molecule and its atoms, so it works on a copy
+        IAtomContainer tmpMolecule = aMolecule.clone();
+        tmpSugarRemovalUtil.setGraphContext(new MoleculeGraphContext(tmpMolecule));
+        //all detections run before any statistic is updated, see GlycosylationAnalysis.analyse()
+        List<IAtomContainer> tmpCircularCandidates;
+        List<IAtomContainer> tmpLinearCandidates;
+        try {
+            tmpCircularCandidates = tmpSugarRemovalUtil.getCircularSugarCandidates(tmpMolecule);
+            tmpLinearCandidates = tmpSugarRemovalUtil.getLinearSugarCandidates(tmpMolecule);
+        } finally {
+            tmpSugarRemovalUtil.setGraphContext(null);
+        }
+        int tmpCircularCount = tmpCircularCandidates.size();
+        int[] tmpRingSizes = new int[tmpCircularCount];
+        int[] tmpExocyclicOxygenCounts = new int[tmpCircularCount];
+        boolean[] tmpHasGlycosidicBond = new boolean[tmpCircularCount];
+        for (int i = 0; i < tmpCircularCount; i++) {
+            IAtomContainer tmpCandidate = tmpCircularCandidates.get(i);
+            tmpRingSizes[i] = tmpCandidate.getAtomCount();
+            tmpExocyclicOxygenCounts[i] = tmpSugarRemovalUtil.getExocyclicOxygenAtomCount(tmpCandidate, tmpMolecule);
+            if (this.isGlycosidicBondNeeded) {
+                tmpHasGlycosidicBond[i] = ParameterSweepAnalysis.hasGlycosidicBondOrExemption(tmpSugarRemovalUtil,
+                        tmpCandidate, tmpMolecule, tmpCircularCount);
+            }
+        }
+        int[] tmpCarbonCounts = new int[tmpLinearCandidates.size()];
+        for (int i = 0; i < tmpCarbonCounts.length; i++) {
+            for (IAtom tmpAtom : tmpLinearCandidates.get(i).atoms()) {
+                if (tmpAtom.getSymbol().equals("C")) {
+                    tmpCarbonCounts[i]++;
+                }
+            }
+        }
+        return () -> {
+            this.moleculesCounter++;
+            for (int g = 0; g < this.grid.size(); g++) {
+                SweepGridPoint tmpGridPoint = this.grid.get(g);
+                int tmpCircularSugars = 0;
+                for (int i = 0; i < tmpCircularCount; i++) {
+                    if (tmpGridPoint.acceptsCircularSugar(tmpRingSizes[i], tmpExocyclicOxygenCounts[i], tmpHasGlycosidicBond[i])) {
+                        tmpCircularSugars++;
+                    }
+                }
+                int tmpLinearSugars = 0;
+                for (int tmpCarbonCount : tmpCarbonCounts) {
+                    if (tmpGridPoint.acceptsLinearSugar(tmpCarbonCount)) {
+                        tmpLinearSugars++;
+                    }
+                }
+                this.circularSugarMoietiesCounters[g] += tmpCircularSugars;
+                this.linearSugarMoietiesCounters[g] += tmpLinearSugars;
+                if (tmpCircularSugars > 0) {
+                    this.hasCircularSugarsCounters[g]++;
+                }
+                if (tmpLinearSugars > 0) {
+                    this.hasLinearSugarsCounters[g]++;
+                }
+                if (tmpCircularSugars > 0 || tmpLinearSugars > 0) {
+                    this.hasAnyTypeOfSugarsCounters[g]++;
+                }
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeResults() throws IOException {
+        this.printAndWrite("Molecules counter: " + this.moleculesCounter);
+        this.printAndWrite("Grid points counter: " + this.grid.size());
+        PrintWriter tmpCSVWriter = this.initializeOutputFile("ParameterSweepStatistics.csv");
+        String tmpSeparator = AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR;
+        tmpCSVWriter.println("ExoCycOxRatioThreshold" + tmpSeparator + "OnlyWithOGlycosidicBond" + tmpSeparator
+                + "LinSugarMinSize" + tmpSeparator + "LinSugarMaxSize" + tmpSeparator + "SugarContainingMolecules"
+                + tmpSeparator + "CircularSugarContainingMolecules" + tmpSeparator + "LinearSugarContainingMolecules"
+                + tmpSeparator + "CircularSugarMoieties" + tmpSeparator + "LinearSugarMoieties");
+        for (int g = 0; g < this.grid.size(); g++) {
+            SweepGridPoint tmpGridPoint = this.grid.get(g);
+            this.printAndWrite("");
+            this.printAndWrite("Grid point " + (g + 1) + ": " + tmpGridPoint);
+            this.printAndWrite("Sugar-containing molecules counter: " + this.hasAnyTypeOfSugarsCounters[g]);
+            this.printAndWrite(AbstractGlycosylationAnalysis.getPercentage(this.hasAnyTypeOfSugarsCounters[g], this.moleculesCounter)
+                    + " % of molecules contain sugars.");
+            this.printAndWrite("Circular-sugar-containing molecules counter: " + this.hasCircularSugarsCounters[g]);
+            this.printAndWrite("Linear-sugar-containing molecules counter: " + this.hasLinearSugarsCounters[g]);
+            this.printAndWrite("Detected circular sugar moieties counter: " + this.circularSugarMoietiesCounters[g]);
+            this.printAndWrite("Detected linear sugar moieties counter: " + this.linearSugarMoietiesCounters[g]);
+            tmpCSVWriter.println(tmpGridPoint.getExocyclicOxygenRatioThreshold() + tmpSeparator
+                    + tmpGridPoint.isOnlyCircularSugarsWithOGlycosidicBond() + tmpSeparator
+                    + tmpGridPoint.getLinearSugarCandidateMinSize() + tmpSeparator
+                    + tmpGridPoint.getLinearSugarCandidateMaxSize() + tmpSeparator
+                    + this.hasAnyTypeOfSugarsCounters[g] + tmpSeparator
+                    + this.hasCircularSugarsCounters[g] + tmpSeparator
+                    + this.hasLinearSugarsCounters[g] + tmpSeparator
+                    + this.circularSugarMoietiesCounters[g] + tmpSeparator
+                    + this.linearSugarMoietiesCounters[g]);
+        }
+        tmpCSVWriter.flush();
+        tmpCSVWriter.close();
+        this.closeOutputFile();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the evaluated grid points.
+     *
+     * @return unmodifiable list of grid points
+     */
+    public List<SweepGridPoint> getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Returns the number of analysed molecules.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the number of molecules containing circular sugars at the given grid point.
+     *
+     * @param aGridPointIndex index of the grid point
+     * @return circular-sugar-containing molecules counter
+     */
+    public int getHasCircularSugarsCounter(int aGridPointIndex) {
+        return this.hasCircularSugarsCounters[aGridPointIndex];
+    }
+
+    /**
+     * Returns the number of molecules containing linear sugars at the given grid point.
+     *
+     * @param aGridPointIndex index of the grid point
+     * @return linear-sugar-containing molecules counter
+     */
+    public int getHasLinearSugarsCounter(int aGridPointIndex) {
+        return this.hasLinearSugarsCounters[aGridPointIndex];
+    }
+
+    /**
+     * Returns the number of detected circular sugar moieties at the given grid point.
+     *
+     * @param aGridPointIndex index of the grid point
+     * @return circular sugar moieties counter
+     */
+    public int getCircularSugarMoietiesCounter(int aGridPointIndex) {
+        return this.circularSugarMoietiesCounters[aGridPointIndex];
+    }
+
+    /**
+     * Returns the number of detected linear sugar moieties at the given grid point.
+     *
+     * @param aGridPointIndex index of the grid point
+     * @return linear sugar moieties counter
+     */
+    public int getLinearSugarMoietiesCounter(int aGridPointIndex) {
+        return this.linearSugarMoietiesCounters[aGridPointIndex];
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Checks whether the given circular sugar candidate passes the O-glycosidic bond filter of the Sugar Removal
+     * Utility: it needs a glycosidic bond unless it is the only potential sugar cycle and nothing of the molecule
+     * remains after its removal.
+     *
+     * @param aSugarRemovalUtil the Sugar Removal Utility instance of the current thread
+     * @param aCandidate circular sugar candidate
+     * @param aMolecule the molecule the candidate was detected in
+     * @param aNumberOfCandidates number of circular sugar candidates detected with the permissive settings
+     * @return true if the candidate passes the filter
+     */
+    private static boolean hasGlycosidicBondOrExemption(RecordingSugarRemovalUtility aSugarRemovalUtil,
+                                                        IAtomContainer aCandidate, IAtomContainer aMolecule,
+                                                        int aNumberOfCandidates) {
+        if (aSugarRemovalUtil.hasGlycosidicBond(aCandidate, aMolecule)) {
+            return true;
+        }
+        if (aNumberOfCandidates != 1) {
+            return false;
+        }
+        try {
+            return aSugarRemovalUtil.isMoleculeEmptyAfterRemovalOfThisRing(aCandidate, aMolecule);
+        } catch (CloneNotSupportedException | IllegalArgumentException | NullPointerException anException) {
+            //the SRU discards the candidate in this case
+            return false;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,452 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.config.Elements;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Minimal molecular graph built directly from the tokens of a SMILES code, without creating CDK atom and bond
+ * objects: the atoms are stored as element codes (atomic numbers, 0 for unknown elements and wildcards) with an
+ * aromaticity flag, the bonds as adjacency lists in compressed sparse row (CSR) format, i.e. the neighbours of atom i
+ * are at the positions from getNeighboursOffset(i) (inclusive) to getNeighboursOffset(i + 1) (exclusive) of the
+ * neighbours array, and every atom is flagged if it is part of a ring. Bond orders, charges, hydrogen counts, and
+ * stereochemistry are read but not kept. The graph is meant for pre-screening large datasets, see
+ * {@link SugarPrescreen}; it does not check valences, so SMILES codes that CDK would reject for chemical reasons, e.g.
+ * because they cannot be kekulised, are accepted.
+ * <br>Instances are immutable.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class PrimitiveMoleculeGraph {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Atomic numbers of the atoms, 0 for unknown elements and wildcards
+     */
+    private final byte[] elements;
+
+    /**
+     * Aromaticity flags of the atoms, i.e. whether they were written in lower case
+     */
+    private final boolean[] aromaticFlags;
+
+    /**
+     * Index of the first neighbour of every atom in the neighbours array, plus the length of the array at the end
+     */
+    private final int[] neighboursOffsets;
+
+    /**
+     * Neighbours of all atoms, see neighboursOffsets
+     */
+    private final int[] neighbours;
+
+    /**
+     * Ring membership flags of the atoms
+     */
+    private final boolean[] ringFlags;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a graph from the given atoms and bonds and perceives the ring membership of the atoms.
+     *
+     * @param anElements atomic numbers of the atoms
+     * @param anAromaticFlags aromaticity flags of the atoms
+     * @param aBondAtoms indices of the two atoms of every bond, one bond after the other
+     * @param aBondCount number of bonds in the given array
+     */
+    private PrimitiveMoleculeGraph(byte[] anElements, boolean[] anAromaticFlags, int[] aBondAtoms, int aBondCount) {
+        int tmpAtomCount = anElements.length;
+        this.elements = anElements;
+        this.aromaticFlags = anAromaticFlags;
+        this.neighboursOffsets = new int[tmpAtomCount + 1];
+        for (int i = 0; i < aBondCount * 2; i++) {
+            this.neighboursOffsets[aBondAtoms[i] + 1]++;
+        }
+        for (int i = 0; i < tmpAtomCount; i++) {
+            this.neighboursOffsets[i + 1] += this.neighboursOffsets[i];
+        }
+        this.neighbours = new int[aBondCount * 2];
+        int[] tmpNextPositions = Arrays.copyOf(this.neighboursOffsets, tmpAtomCount);
+        for (int i = 0; i < aBondCount; i++) {
+            int tmpFirstAtom = aBondAtoms[2 * i];
+            int tmpSecondAtom = aBondAtoms[2 * i + 1];
+            this.neighbours[tmpNextPositions[tmpFirstAtom]++] = tmpSecondAtom;
+            this.neighbours[tmpNextPositions[tmpSecondAtom]++] = tmpFirstAtom;
+        }
+        this.ringFlags = this.perceiveRingAtoms();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Builds the graph of the given SMILES code. Explicit hydrogen atoms, e.g. [H], become atoms of the graph,
+     * implicit ones do not.
+     *
+     * @param aSmilesCode SMILES code
+     * @return graph of the molecule
+     * @throws NullPointerException if the SMILES code is null
+     * @throws IllegalArgumentException if the SMILES code is syntactically invalid, e.g. has unclosed rings or
+     * branches
+     */
+    public static PrimitiveMoleculeGraph parseSmiles(String aSmilesCode)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aSmilesCode, "Given SMILES code is 'null'.");
+        int tmpLength = aSmilesCode.length();
+        byte[] tmpElements = new byte[Math.max(4, tmpLength)];
+        boolean[] tmpAromaticFlags = new boolean[tmpElements.length];
+        int tmpAtomCount = 0;
+        int[] tmpBondAtoms = new int[Math.max(8, tmpLength * 2)];
+        int tmpBondCount = 0;
+        //open ring closures by their number, -1 if not open
+        int[] tmpRingClosureAtoms = new int[100];
+        Arrays.fill(tmpRingClosureAtoms, -1);
+        int tmpOpenRingClosuresCount = 0;
+        int[] tmpBranchStack = new int[16];
+        int tmpBranchDepth = 0;
+        int tmpPreviousAtom = -1;
+        boolean tmpIsBondPending = false;
+        int i = 0;
+        while (i < tmpLength) {
+            char tmpChar = aSmilesCode.charAt(i);
+            int tmpRingNumber = -1;
+            int tmpElement = -1;
+            boolean tmpIsAromatic = false;
+            switch (tmpChar) {
+                case '-', '=', '#', '$', ':', '/', '\\' -> {
+                    if (tmpPreviousAtom < 0 || tmpIsBondPending) {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i);
+                    }
+                    tmpIsBondPending = true;
+                    i++;
+                }
+                case '.' -> {
+                    if (tmpPreviousAtom < 0 || tmpIsBondPending) {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i);
+                    }
+                    tmpPreviousAtom = -1;
+                    i++;
+                }
+                case '(' -> {
+                    if (tmpPreviousAtom < 0 || tmpIsBondPending) {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i);
+                    }
+                    if (tmpBranchDepth == tmpBranchStack.length) {
+                        tmpBranchStack = Arrays.copyOf(tmpBranchStack, tmpBranchDepth * 2);
+                    }
+                    tmpBranchStack[tmpBranchDepth++] = tmpPreviousAtom;
+                    i++;
+                }
+                case ')' -> {
+                    if (tmpBranchDepth == 0 || tmpIsBondPending) {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i);
+                    }
+                    tmpPreviousAtom = tmpBranchStack[--tmpBranchDepth];
+                    i++;
+                }
+                case '%' -> {
+                    if (i + 2 < tmpLength && Character.isDigit(aSmilesCode.charAt(i + 1))
+                            && Character.isDigit(aSmilesCode.charAt(i + 2))) {
+                        tmpRingNumber = (aSmilesCode.charAt(i + 1) - '0') * 10 + aSmilesCode.charAt(i + 2) - '0';
+                        i += 3;
+                    } else {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i);
+                    }
+                }
+                case '[' -> {
+                    int tmpEnd = aSmilesCode.indexOf(']', i);
+                    if (tmpEnd < 0) {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i);
+                    }
+                    int j = i + 1;
+                    while (j < tmpEnd && Character.isDigit(aSmilesCode.charAt(j))) {
+                        j++;
+                    }
+                    if (j == tmpEnd) {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i);
+                    }
+                    char tmpFirstLetter = aSmilesCode.charAt(j);
+                    if (tmpFirstLetter == '*') {
+                        tmpElement = 0;
+                    } else if (Character.isLetter(tmpFirstLetter)) {
+                        tmpIsAromatic = Character.isLowerCase(tmpFirstLetter);
+                        String tmpSymbol = String.valueOf(Character.toUpperCase(tmpFirstLetter));
+                        if (j + 1 < tmpEnd && Character.isLowerCase(aSmilesCode.charAt(j + 1))) {
+                            String tmpTwoLetterSymbol = tmpSymbol + aSmilesCode.charAt(j + 1);
+                            if (Elements.ofString(tmpTwoLetterSymbol) != Elements.Unknown) {
+                                tmpSymbol = tmpTwoLetterSymbol;
+                            }
+                        }
+                        Elements tmpElementEnum = Elements.ofString(tmpSymbol);
+                        if (tmpElementEnum == Elements.Unknown) {
+                            throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, j);
+                        }
+                        tmpElement = tmpElementEnum.number();
+                    } else {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, j);
+                    }
+                    i = tmpEnd + 1;
+                }
+                case '*' -> {
+                    tmpElement = 0;
+                    i++;
+                }
+                case 'B' -> {
+                    boolean tmpIsBromine = i + 1 < tmpLength && aSmilesCode.charAt(i + 1) == 'r';
+                    tmpElement = tmpIsBromine ? 35 : 5;
+                    i += tmpIsBromine ? 2 : 1;
+                }
+                case 'C' -> {
+                    boolean tmpIsChlorine = i + 1 < tmpLength && aSmilesCode.charAt(i + 1) == 'l';
+                    tmpElement = tmpIsChlorine ? 17 : 6;
+                    i += tmpIsChlorine ? 2 : 1;
+                }
+                case 'N', 'O', 'P', 'S', 'F', 'I', 'b', 'c', 'n', 'o', 'p', 's' -> {
+                    tmpIsAromatic = Character.isLowerCase(tmpChar);
+                    tmpElement = switch (Character.toUpperCase(tmpChar)) {
+                        case 'B' -> 5;
+                        case 'C' -> 6;
+                        case 'N' -> 7;
+                        case 'O' -> 8;
+                        case 'F' -> 9;
+                        case 'P' -> 15;
+                        case 'S' -> 16;
+                        default -> 53;
+                    };
+                    i++;
+                }
+                default -> {
+                    if (!Character.isDigit(tmpChar)) {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i);
+                    }
+                    tmpRingNumber = tmpChar - '0';
+                    i++;
+                }
+            }
+            if (tmpRingNumber >= 0) {
+                if (tmpPreviousAtom < 0) {
+                    throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i - 1);
+                }
+                int tmpPartner = tmpRingClosureAtoms[tmpRingNumber];
+                if (tmpPartner < 0) {
+                    tmpRingClosureAtoms[tmpRingNumber] = tmpPreviousAtom;
+                    tmpOpenRingClosuresCount++;
+                } else {
+                    if (tmpPartner == tmpPreviousAtom) {
+                        throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i - 1);
+                    }
+                    if (2 * tmpBondCount + 2 > tmpBondAtoms.length) {
+                        tmpBondAtoms = Arrays.copyOf(tmpBondAtoms, tmpBondAtoms.length * 2);
+                    }
+                    tmpBondAtoms[2 * tmpBondCount] = tmpPartner;
+                    tmpBondAtoms[2 * tmpBondCount + 1] = tmpPreviousAtom;
+                    tmpBondCount++;
+                    tmpRingClosureAtoms[tmpRingNumber] = -1;
+                    tmpOpenRingClosuresCount--;
+                }
+                tmpIsBondPending = false;
+            }
+            if (tmpElement >= 0) {
+                if (tmpAtomCount == tmpElements.length) {
+                    tmpElements = Arrays.copyOf(tmpElements, tmpAtomCount * 2);
+                    tmpAromaticFlags = Arrays.copyOf(tmpAromaticFlags, tmpAtomCount * 2);
+                }
+                tmpElements[tmpAtomCount] = (byte) tmpElement;
+                tmpAromaticFlags[tmpAtomCount] = tmpIsAromatic;
+                if (tmpPreviousAtom >= 0) {
+                    if (2 * tmpBondCount + 2 > tmpBondAtoms.length) {
+                        tmpBondAtoms = Arrays.copyOf(tmpBondAtoms, tmpBondAtoms.length * 2);
+                    }
+                    tmpBondAtoms[2 * tmpBondCount] = tmpPreviousAtom;
+                    tmpBondAtoms[2 * tmpBondCount + 1] = tmpAtomCount;
+                    tmpBondCount++;
+                } else if (tmpIsBondPending) {
+                    throw PrimitiveMoleculeGraph.createSyntaxException(aSmilesCode, i - 1);
+                }
+                tmpPreviousAtom = tmpAtomCount;
+                tmpAtomCount++;
+                tmpIsBondPending = false;
+            }
+        }
+        if (tmpBranchDepth != 0 || tmpOpenRingClosuresCount != 0 || tmpIsBondPending) {
+            throw new IllegalArgumentException("Given SMILES code " + aSmilesCode
+                    + " has unclosed branches or rings or ends with a bond.");
+        }
+        return new PrimitiveMoleculeGraph(Arrays.copyOf(tmpElements, tmpAtomCount),
+                Arrays.copyOf(tmpAromaticFlags, tmpAtomCount), tmpBondAtoms, tmpBondCount);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of atoms.
+     *
+     * @return atom count
+     */
+    public int getAtomCount() {
+        return this.elements.length;
+    }
+
+    /**
+     * Returns the number of bonds.
+     *
+     * @return bond count
+     */
+    public int getBondCount() {
+        return this.neighbours.length / 2;
+    }
+
+    /**
+     * Returns the atomic number of the given atom.
+     *
+     * @param anAtomIndex index of the atom
+     * @return atomic number, 0 for unknown elements and wildcards
+     */
+    public int getElement(int anAtomIndex) {
+        return this.elements[anAtomIndex];
+    }
+
+    /**
+     * Checks whether the given atom was written as aromatic, i.e. in lower case.
+     *
+     * @param anAtomIndex index of the atom
+     * @return true if the atom is aromatic
+     */
+    public boolean isAromatic(int anAtomIndex) {
+        return this.aromaticFlags[anAtomIndex];
+    }
+
+    /**
+     * Checks whether the given atom is part of a ring.
+     *
+     * @param anAtomIndex index of the atom
+     * @return true if the atom is cyclic
+     */
+    public boolean isInRing(int anAtomIndex) {
+        return this.ringFlags[anAtomIndex];
+    }
+
+    /**
+     * Returns the position of the first neighbour of the given atom in the neighbours array; the atom count as index
+     * returns the length of the array.
+     *
+     * @param anAtomIndex index of the atom, or the atom count
+     * @return position in the neighbours array
+     */
+    public int getNeighboursOffset(int anAtomIndex) {
+        return this.neighboursOffsets[anAtomIndex];
+    }
+
+    /**
+     * Returns the neighbour at the given position of the neighbours array.
+     *
+     * @param aPosition position in the neighbours array
+     * @return atom index of the neighbour
+     */
+    public int getNeighbour(int aPosition) {
+        return this.neighbours[aPosition];
+    }
+
+    /**
+     * Returns the number of neighbours of the given atom.
+     *
+     * @param anAtomIndex index of the atom
+     * @return degree of the atom
+     */
+    public int getDegree(int anAtomIndex) {
+        return this.neighboursOffsets[anAtomIndex + 1] - this.neighboursOffsets[anAtomIndex];
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Flags every atom that has at least one bond that is not a bridge, i.e. that is part of a cycle. Bridges are found
+     * by an iterative depth-first search comparing the discovery times of the atoms with the lowest discovery time
+     * reachable via back edges.
+     */
+    private boolean[] perceiveRingAtoms() {
+        int tmpAtomCount = this.elements.length;
+        boolean[] tmpRingFlags = new boolean[tmpAtomCount];
+        int[] tmpDiscoveryTimes = new int[tmpAtomCount];
+        int[] tmpLowLinks = new int[tmpAtomCount];
+        int[] tmpParents = new int[tmpAtomCount];
+        //only one bond back to the parent is the tree edge, a second one between the same atoms closes a cycle
+        boolean[] tmpIsParentBondSkipped = new boolean[tmpAtomCount];
+        int[] tmpNextNeighbourPositions = new int[tmpAtomCount];
+        int[] tmpStack = new int[tmpAtomCount];
+        int tmpTime = 0;
+        for (int tmpRoot = 0; tmpRoot < tmpAtomCount; tmpRoot++) {
+            if (tmpDiscoveryTimes[tmpRoot] != 0) {
+                continue;
+            }
+            int tmpStackSize = 0;
+            tmpStack[tmpStackSize++] = tmpRoot;
+            tmpDiscoveryTimes[tmpRoot] = tmpLowLinks[tmpRoot] = ++tmpTime;
+            tmpParents[tmpRoot] = -1;
+            tmpNextNeighbourPositions[tmpRoot] = this.neighboursOffsets[tmpRoot];
+            while (tmpStackSize > 0) {
+                int tmpAtom = tmpStack[tmpStackSize - 1];
+                if (tmpNextNeighbourPositions[tmpAtom] < this.neighboursOffsets[tmpAtom + 1]) {
+                    int tmpNeighbour = this.neighbours[tmpNextNeighbourPositions[tmpAtom]++];
+                    if (tmpDiscoveryTimes[tmpNeighbour] == 0) {
+                        tmpDiscoveryTimes[tmpNeighbour] = tmpLowLinks[tmpNeighbour] = ++tmpTime;
+                        tmpParents[tmpNeighbour] = tmpAtom;
+                        tmpNextNeighbourPositions[tmpNeighbour] = this.neighboursOffsets[tmpNeighbour];
+                        tmpStack[tmpStackSize++] = tmpNeighbour;
+                    } else if (tmpNeighbour == tmpParents[tmpAtom] && !tmpIsParentBondSkipped[tmpAtom]) {
+                        tmpIsParentBondSkipped[tmpAtom] = true;
+                    } else {
+                        tmpLowLinks[tmpAtom] = Math.min(tmpLowLinks[tmpAtom], tmpDiscoveryTimes[tmpNeighbour]);
+                    }
+                } else {
+                    tmpStackSize--;
+                    int tmpParent = tmpParents[tmpAtom];
+                    if (tmpParent >= 0) {
+                        tmpLowLinks[tmpParent] = Math.min(tmpLowLinks[tmpParent], tmpLowLinks[tmpAtom]);
+                        if (tmpLowLinks[tmpAtom] <= tmpDiscoveryTimes[tmpParent]) {
+                            //the bond to the parent is not a bridge
+                            tmpRingFlags[tmpAtom] = true;
+                            tmpRingFlags[tmpParent] = true;
+                        }
+                    }
+                }
+            }
+        }
+        return tmpRingFlags;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Creates the exception thrown for a syntax error at the given position of the given SMILES code.
+     */
+    private static IllegalArgumentException createSyntaxException(String aSmilesCode, int aPosition) {
+        return new IllegalArgumentException("Given SMILES code " + aSmilesCode + " is invalid at position "
+                + aPosition + ".");
+    }
+    //</editor-fold>
+}
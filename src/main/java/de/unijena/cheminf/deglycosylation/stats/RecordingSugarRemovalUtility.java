@@ -0,0 +1,666 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.ringsearch.RingSearch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Sugar Removal Utility that records intermediate values of its circular sugar detection for the statistics, so that
+ * they do not have to be recomputed after the detection, and that reuses the ring perception of a
+ * {@link MoleculeGraphContext} in its circular and linear sugar detection.
+ * <br>If the exocyclic oxygen atoms setting is enabled, the detection counts the exocyclic oxygen atoms of every
+ * circular sugar candidate that passed the preceding filters anyway; if an {@link ExocyclicOxygenHistogram} is set,
+ * these counts are added to it together with the ring size. To record all candidates, as if the setting were disabled,
+ * use a ratio threshold of zero, which every candidate passes.
+ * <br>If a graph context is set and valid for the molecule that sugar candidates are detected in, the ring search of
+ * the context is reused instead of running a new one in every call: the potential sugar cycles are taken from its ring
+ * fragments, and cyclic atoms in linear sugar candidates are identified by looking them up in it. For all other
+ * molecules, the inherited behaviour applies.
+ * <br>Additionally, the removal of sugar candidates can be simulated on a {@link MaskedMolecule}, i.e. without
+ * copying or altering the molecule the candidates were detected in. The simulation follows the inherited removal,
+ * including the removal of only terminal moieties and of too small disconnected structures, but only supports the
+ * preservation modes ALL and HEAVY_ATOM_COUNT because the molecular weight of the remaining structures depends on
+ * the implicit hydrogen atoms that the inherited removal adds after every removed moiety.
+ * <br>Every detection step and removal round checks the deadline of the {@link MoleculeTimeBudget}, i.e. throws a
+ * MoleculeTimeBudget.BudgetExceededException if the deadline set for the current thread has passed. Without a
+ * deadline, the checks do nothing.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class RecordingSugarRemovalUtility extends SugarRemovalUtility {
+    //<editor-fold desc="Private variables">
+    /**
+     * Histogram the exocyclic oxygen atom counts are added to, null if they are not recorded
+     */
+    private ExocyclicOxygenHistogram exocyclicOxygenHistogram;
+
+    /**
+     * Graph context of the molecule currently analysed, null if none is given
+     */
+    private MoleculeGraphContext graphContext;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Sole constructor of this class. All settings are in default and nothing is recorded.
+     *
+     * @param aBuilder IChemObjectBuilder for i.a. parsing SMILES strings of sugar patterns into atom containers
+     * @throws NullPointerException if the given builder is null
+     */
+    public RecordingSugarRemovalUtility(IChemObjectBuilder aBuilder) throws NullPointerException {
+        super(aBuilder);
+        this.exocyclicOxygenHistogram = null;
+        this.graphContext = null;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the histogram the exocyclic oxygen atom counts of circular sugar candidates are added to.
+     *
+     * @return the histogram, null if nothing is recorded
+     */
+    public ExocyclicOxygenHistogram getExocyclicOxygenHistogram() {
+        return this.exocyclicOxygenHistogram;
+    }
+
+    /**
+     * Sets the histogram the exocyclic oxygen atom counts of circular sugar candidates are added to during detection.
+     * Note that the counts are only determined if the exocyclic oxygen atoms setting is enabled.
+     *
+     * @param aHistogram the histogram, null to stop recording
+     */
+    public void setExocyclicOxygenHistogram(ExocyclicOxygenHistogram aHistogram) {
+        this.exocyclicOxygenHistogram = aHistogram;
+    }
+
+    /**
+     * Returns the graph context that is reused for the molecule it was created for.
+     *
+     * @return the graph context, null if none is given
+     */
+    public MoleculeGraphContext getGraphContext() {
+        return this.graphContext;
+    }
+
+    /**
+     * Sets the graph context of the molecule that is analysed next. It is only used as long as it is valid for the
+     * molecule given to the detection methods.
+     *
+     * @param aGraphContext the graph context, null to always run a new ring search
+     */
+    public void setGraphContext(MoleculeGraphContext aGraphContext) {
+        this.graphContext = aGraphContext;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Simulates the removal of the given sugar candidates from the molecule of the given view, like
+     * removeSugarCandidates(IAtomContainer, List) does on the molecule itself. The removed atoms are marked in the
+     * view; neither the molecule nor its atoms are altered, i.e. spiro atoms shared by two candidates are tracked in
+     * the view only. If only terminal moieties are removed, the candidates are removed in the same order and in
+     * the same number of rounds as in the inherited method, so that the returned list is the same.
+     *
+     * @param aMolecule view of the molecule the candidates were detected in; the removed atoms are marked in it
+     * @param aCandidateList sugar candidates, sharing their atoms with the molecule
+     * @return list of the removed sugar candidates, empty if nothing was removed
+     * @throws NullPointerException if any parameter is null
+     * @throws IllegalArgumentException if a candidate is not part of the given view
+     * @throws UnsupportedOperationException if the preservation mode is MOLECULAR_WEIGHT
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    public List<IAtomContainer> removeSugarCandidates(MaskedMolecule aMolecule, List<IAtomContainer> aCandidateList)
+            throws NullPointerException, IllegalArgumentException, UnsupportedOperationException,
+            MoleculeTimeBudget.BudgetExceededException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        Objects.requireNonNull(aCandidateList, "Given list is 'null'.");
+        this.checkPreservationModeForMasks();
+        if (aCandidateList.isEmpty() || aMolecule.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        for (IAtomContainer tmpCandidate : aCandidateList) {
+            if (!Objects.isNull(tmpCandidate) && !aMolecule.containsAll(tmpCandidate)) {
+                throw new IllegalArgumentException("At least one of the possible sugar-like substructures is not "
+                        + "actually part of the given molecule.");
+            }
+        }
+        //spiro atoms are kept in the first removal of a candidate containing them, see inherited method
+        BitSet tmpKeptSpiroAtoms = new BitSet(aMolecule.getMolecule().getAtomCount());
+        List<IAtomContainer> tmpCandidates = new ArrayList<>(aCandidateList);
+        List<IAtomContainer> tmpRemovedCandidates = new ArrayList<>(aCandidateList.size());
+        if (this.areOnlyTerminalSugarsRemoved()) {
+            boolean tmpContainsNoTerminalSugar = false;
+            while (!tmpContainsNoTerminalSugar) {
+                boolean tmpCandidateWasRemoved = false;
+                for (int i = 0; i < tmpCandidates.size(); i++) {
+                    IAtomContainer tmpCandidate = tmpCandidates.get(i);
+                    if (Objects.isNull(tmpCandidate) || tmpCandidate.isEmpty()) {
+                        continue;
+                    }
+                    if (this.isTerminal(tmpCandidate, aMolecule, tmpCandidates)) {
+                        this.removeCandidateAtoms(aMolecule, tmpCandidate, tmpKeptSpiroAtoms);
+                        tmpRemovedCandidates.add(tmpCandidate);
+                        tmpCandidates.remove(i);
+                        i--;
+                        if (!aMolecule.isEmpty()) {
+                            this.removeTooSmallFragments(aMolecule);
+                        }
+                        tmpCandidateWasRemoved = true;
+                        if (aMolecule.isEmpty()) {
+                            break;
+                        }
+                    }
+                }
+                if (!tmpCandidateWasRemoved || aMolecule.isEmpty()) {
+                    tmpContainsNoTerminalSugar = true;
+                }
+            }
+        } else {
+            for (IAtomContainer tmpCandidate : tmpCandidates) {
+                if (Objects.isNull(tmpCandidate)) {
+                    continue;
+                }
+                this.removeCandidateAtoms(aMolecule, tmpCandidate, tmpKeptSpiroAtoms);
+                tmpRemovedCandidates.add(tmpCandidate);
+            }
+            if (!aMolecule.isEmpty()) {
+                this.removeTooSmallFragments(aMolecule);
+            }
+        }
+        return tmpRemovedCandidates;
+    }
+
+    /**
+     * Checks whether the given substructure is terminal in the molecule of the given view, like
+     * isTerminal(IAtomContainer, IAtomContainer, List) does for a molecule, but without cloning it. The substructure
+     * is terminal if the view stays connected after its removal, not counting disconnected structures that are too
+     * small to preserve and do not contain atoms of any of the given candidates.
+     *
+     * @param aSubstructure substructure to check, sharing its atoms with the molecule, e.g. a sugar candidate
+     * @param aParentMolecule view of the molecule the substructure is part of
+     * @param aCandidateList all sugar candidates that are not removed yet
+     * @return true if the substructure is terminal
+     * @throws NullPointerException if any parameter is null
+     * @throws IllegalArgumentException if the substructure is not part of the given view or the view is already
+     * unconnected
+     * @throws UnsupportedOperationException if the preservation mode is MOLECULAR_WEIGHT
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    public boolean isTerminal(IAtomContainer aSubstructure, MaskedMolecule aParentMolecule,
+                              List<IAtomContainer> aCandidateList)
+            throws NullPointerException, IllegalArgumentException, UnsupportedOperationException,
+            MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        Objects.requireNonNull(aSubstructure, "Given substructure is 'null'.");
+        Objects.requireNonNull(aParentMolecule, "Given parent molecule is 'null'.");
+        Objects.requireNonNull(aCandidateList, "Given list of candidates is 'null'.");
+        this.checkPreservationModeForMasks();
+        if (!aParentMolecule.containsAll(aSubstructure)) {
+            throw new IllegalArgumentException("Given substructure is not part of the given parent molecule.");
+        }
+        if (!aParentMolecule.isConnected()) {
+            throw new IllegalArgumentException("Parent molecule is already unconnected.");
+        }
+        MaskedMolecule tmpRemainder = aParentMolecule.copy();
+        tmpRemainder.remove(aSubstructure);
+        List<BitSet> tmpFragments = tmpRemainder.getFragments();
+        if (tmpFragments.size() <= 1) {
+            return true;
+        }
+        if (this.getPreservationModeSetting() == PreservationModeOption.ALL) {
+            return false;
+        }
+        MoleculeGraphContext tmpGraphContext = aParentMolecule.getGraphContext();
+        BitSet tmpCandidateAtoms = new BitSet(aParentMolecule.getMolecule().getAtomCount());
+        for (IAtomContainer tmpCandidate : aCandidateList) {
+            if (Objects.isNull(tmpCandidate)) {
+                continue;
+            }
+            for (IAtom tmpAtom : tmpCandidate.atoms()) {
+                int tmpIndex = tmpGraphContext.getAtomIndex(tmpAtom);
+                if (tmpIndex >= 0) {
+                    tmpCandidateAtoms.set(tmpIndex);
+                }
+            }
+        }
+        int tmpPreservedFragmentsCount = 0;
+        for (BitSet tmpFragment : tmpFragments) {
+            boolean tmpIsTooSmall = tmpRemainder.getHeavyAtomCount(tmpFragment) < this.getPreservationModeThresholdSetting();
+            if (!tmpIsTooSmall || tmpFragment.intersects(tmpCandidateAtoms)) {
+                tmpPreservedFragmentsCount++;
+            }
+        }
+        return tmpPreservedFragmentsCount <= 1;
+    }
+
+    /**
+     * Checks whether the given substructure is terminal like the inherited method, after checking the deadline.
+     *
+     * @param aSubstructure substructure to check, sharing its atoms with the given molecule
+     * @param aParentMolecule the molecule the substructure is part of
+     * @param aCandidateList all sugar candidates that are not removed yet
+     * @return true if the substructure is terminal
+     * @throws NullPointerException if any parameter is null
+     * @throws IllegalArgumentException if the substructure is not part of the given molecule or the molecule is
+     * already unconnected
+     * @throws CloneNotSupportedException if the molecule cannot be cloned
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    public boolean isTerminal(IAtomContainer aSubstructure, IAtomContainer aParentMolecule,
+                              List<IAtomContainer> aCandidateList)
+            throws NullPointerException, IllegalArgumentException, CloneNotSupportedException,
+            MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        return super.isTerminal(aSubstructure, aParentMolecule, aCandidateList);
+    }
+
+    /**
+     * Removes all too small disconnected structures from the given molecule like the inherited method, after checking
+     * the deadline.
+     *
+     * @param aMolecule the molecule to clean
+     * @throws NullPointerException if the given molecule is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    public void removeTooSmallDisconnectedStructures(IAtomContainer aMolecule)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        super.removeTooSmallDisconnectedStructures(aMolecule);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Protected methods">
+    /**
+     * Records the given ring size and exocyclic oxygen atom count before deciding on the candidate as usual.
+     *
+     * @param aNumberOfAtomsInRing number of atoms in the possible sugar cycle
+     * @param aNumberOfAttachedExocyclicOxygenAtoms number of attached exocyclic oxygen atoms of the ring under
+     *                                              investigation
+     * @return true, if the calculated ratio is equal to or greater than the preset threshold
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected boolean doesRingHaveEnoughExocyclicOxygenAtoms(int aNumberOfAtomsInRing,
+                                                             int aNumberOfAttachedExocyclicOxygenAtoms)
+            throws MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        if (!Objects.isNull(this.exocyclicOxygenHistogram) && aNumberOfAtomsInRing > 0) {
+            this.exocyclicOxygenHistogram.add(aNumberOfAtomsInRing, aNumberOfAttachedExocyclicOxygenAtoms);
+        }
+        return super.doesRingHaveEnoughExocyclicOxygenAtoms(aNumberOfAtomsInRing, aNumberOfAttachedExocyclicOxygenAtoms);
+    }
+
+    /**
+     * Counts the exocyclic oxygen atoms of the given ring like the inherited method. Overridden to make it accessible
+     * to the analyses in this package, see {@link ParameterSweepAnalysis}.
+     *
+     * @param aRingToTest the ring, sharing its atoms with the given molecule
+     * @param anOriginalMolecule the molecule the ring was detected in
+     * @return number of oxygen atoms attached to the ring by single bonds
+     * @throws NullPointerException if any parameter is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected int getExocyclicOxygenAtomCount(IAtomContainer aRingToTest, IAtomContainer anOriginalMolecule)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        return super.getExocyclicOxygenAtomCount(aRingToTest, anOriginalMolecule);
+    }
+
+    /**
+     * Checks whether the given ring is attached to the rest of the molecule via an O-glycosidic bond like the
+     * inherited method. Overridden to make it accessible to the analyses in this package, see
+     * {@link ParameterSweepAnalysis}.
+     *
+     * @param aRingToTest the ring, sharing its atoms with the given molecule
+     * @param anOriginalMolecule the molecule the ring was detected in
+     * @return true if the ring has a glycosidic bond
+     * @throws NullPointerException if any parameter is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected boolean hasGlycosidicBond(IAtomContainer aRingToTest, IAtomContainer anOriginalMolecule)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        return super.hasGlycosidicBond(aRingToTest, anOriginalMolecule);
+    }
+
+    /**
+     * Checks whether nothing remains of the given molecule after removal of the given ring like the inherited method.
+     * Overridden to make it accessible to the analyses in this package, see {@link ParameterSweepAnalysis}.
+     *
+     * @param aRing the ring, sharing its atoms with the given molecule
+     * @param aParentMolecule the molecule the ring was detected in
+     * @return true if the molecule would be empty after removal of the ring
+     * @throws NullPointerException if any parameter is null
+     * @throws IllegalArgumentException if the ring is not part of the given molecule
+     * @throws CloneNotSupportedException if the molecule cannot be cloned
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected boolean isMoleculeEmptyAfterRemovalOfThisRing(IAtomContainer aRing, IAtomContainer aParentMolecule)
+            throws NullPointerException, IllegalArgumentException, CloneNotSupportedException,
+            MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        return super.isMoleculeEmptyAfterRemovalOfThisRing(aRing, aParentMolecule);
+    }
+
+    /**
+     * Detects the potential sugar cycles of the given molecule like the inherited method, but takes the isolated and
+     * fused ring fragments from the ring search of the graph context if it is valid for the given molecule. The
+     * isolated rings are compared to the circular sugar patterns and their exocyclic bonds are checked as in the
+     * inherited method, and atoms shared with other rings are flagged as spiro atoms.
+     *
+     * @param aMolecule the molecule to detect potential sugar cycles in
+     * @param aShouldSpiroRingsBeDetected true, if rings sharing atoms with other rings should be detected
+     * @param aShouldKetoGroupsBeDetected true, if rings with keto groups should be detected
+     * @return list of isolated rings that match a circular sugar pattern, sharing their atoms with the given molecule
+     * @throws NullPointerException if the given molecule is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected List<IAtomContainer> detectPotentialSugarCycles(IAtomContainer aMolecule,
+                                                              boolean aShouldSpiroRingsBeDetected,
+                                                              boolean aShouldKetoGroupsBeDetected)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        if (aMolecule.isEmpty() || Objects.isNull(this.graphContext) || !this.graphContext.isValidFor(aMolecule)) {
+            return super.detectPotentialSugarCycles(aMolecule, aShouldSpiroRingsBeDetected, aShouldKetoGroupsBeDetected);
+        }
+        if (!this.checkUniqueIndicesOfAtoms(aMolecule)) {
+            this.addUniqueIndicesToAtoms(aMolecule);
+        }
+        RingSearch tmpRingSearch = this.graphContext.getRingSearch();
+        List<IAtomContainer> tmpIsolatedRings = tmpRingSearch.isolatedRingFragments();
+        if (tmpIsolatedRings.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        List<IAtomContainer> tmpAllRings = new ArrayList<>(tmpIsolatedRings);
+        tmpAllRings.addAll(tmpRingSearch.fusedRingFragments());
+        //key: ring identifier; value: true if the ring shares atoms with another ring
+        HashMap<String, Boolean> tmpIsSharingAtomsMap = new HashMap<>(tmpAllRings.size() * 2);
+        //key: atom index; value: identifiers of the rings containing the atom
+        HashMap<Integer, Set<String>> tmpRingsOfAtomMap = new HashMap<>(tmpAllRings.size() * 12);
+        for (IAtomContainer tmpRing : tmpAllRings) {
+            String tmpIdentifier = this.generateSubstructureIdentifier(tmpRing);
+            tmpIsSharingAtomsMap.put(tmpIdentifier, false);
+            for (IAtom tmpAtom : tmpRing.atoms()) {
+                int tmpAtomIndex = tmpAtom.getProperty(SugarRemovalUtility.INDEX_PROPERTY_KEY);
+                Set<String> tmpRingsOfAtom = tmpRingsOfAtomMap.get(tmpAtomIndex);
+                if (Objects.isNull(tmpRingsOfAtom)) {
+                    tmpRingsOfAtom = new HashSet<>(4);
+                    tmpRingsOfAtom.add(tmpIdentifier);
+                    tmpRingsOfAtomMap.put(tmpAtomIndex, tmpRingsOfAtom);
+                } else {
+                    tmpIsSharingAtomsMap.put(tmpIdentifier, true);
+                    for (String tmpOtherIdentifier : tmpRingsOfAtom) {
+                        tmpIsSharingAtomsMap.put(tmpOtherIdentifier, true);
+                    }
+                    tmpRingsOfAtom.add(tmpIdentifier);
+                }
+            }
+        }
+        List<IAtomContainer> tmpSugarCandidates = new ArrayList<>(tmpIsolatedRings.size());
+        for (IAtomContainer tmpIsolatedRing : tmpIsolatedRings) {
+            if (Objects.isNull(tmpIsolatedRing) || tmpIsolatedRing.isEmpty()) {
+                continue;
+            }
+            MoleculeTimeBudget.checkDeadline();
+            if (!aShouldSpiroRingsBeDetected
+                    && tmpIsSharingAtomsMap.get(this.generateSubstructureIdentifier(tmpIsolatedRing))) {
+                continue;
+            }
+            boolean tmpIsIsomorph;
+            try {
+                tmpIsIsomorph = this.hasCircularSugarInPatternsList(tmpIsolatedRing);
+            } catch (IllegalArgumentException anException) {
+                //the inherited method logs the failed isomorphism check and goes on with the next pattern
+                return super.detectPotentialSugarCycles(aMolecule, aShouldSpiroRingsBeDetected, aShouldKetoGroupsBeDetected);
+            }
+            if (!tmpIsIsomorph || !this.areAllExocyclicBondsSingle(tmpIsolatedRing, aMolecule, aShouldKetoGroupsBeDetected)) {
+                continue;
+            }
+            for (IAtom tmpAtom : tmpIsolatedRing.atoms()) {
+                int tmpAtomIndex = tmpAtom.getProperty(SugarRemovalUtility.INDEX_PROPERTY_KEY);
+                if (tmpRingsOfAtomMap.get(tmpAtomIndex).size() > 1) {
+                    tmpAtom.setProperty(SugarRemovalUtility.IS_SPIRO_ATOM_PROPERTY_KEY, true);
+                }
+            }
+            tmpSugarCandidates.add(tmpIsolatedRing);
+        }
+        return tmpSugarCandidates;
+    }
+
+    /**
+     * Removes all cyclic atoms from the given linear sugar candidates like the inherited method, but takes the ring
+     * membership of the atoms from the graph context if it is valid for the given molecule.
+     *
+     * @param aCandidateList list of linear sugar candidates, sharing their atoms with the given molecule
+     * @param anOriginalMolecule the molecule the candidates were detected in
+     * @throws NullPointerException if any parameter is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected void removeCyclicAtomsFromSugarCandidates(List<IAtomContainer> aCandidateList,
+                                                        IAtomContainer anOriginalMolecule)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        Objects.requireNonNull(aCandidateList, "Given list is 'null'.");
+        if (aCandidateList.isEmpty()) {
+            return;
+        }
+        Objects.requireNonNull(anOriginalMolecule, "Given molecule is 'null'.");
+        if (Objects.isNull(this.graphContext) || !this.graphContext.isValidFor(anOriginalMolecule)) {
+            super.removeCyclicAtomsFromSugarCandidates(aCandidateList, anOriginalMolecule);
+            return;
+        }
+        if (!this.graphContext.hasRings()) {
+            return;
+        }
+        for (int i = 0; i < aCandidateList.size(); i++) {
+            IAtomContainer tmpCandidate = aCandidateList.get(i);
+            if (Objects.isNull(tmpCandidate)) {
+                aCandidateList.remove(i);
+                i--;
+                continue;
+            }
+            for (int j = 0; j < tmpCandidate.getAtomCount(); j++) {
+                IAtom tmpAtom = tmpCandidate.getAtom(j);
+                if (this.graphContext.isCyclic(tmpAtom)) {
+                    tmpCandidate.removeAtom(tmpAtom);
+                    j--;
+                }
+            }
+            if (tmpCandidate.isEmpty()) {
+                aCandidateList.remove(i);
+                i--;
+                continue;
+            }
+            if (!ConnectivityChecker.isConnected(tmpCandidate)) {
+                IAtomContainerSet tmpComponents = ConnectivityChecker.partitionIntoMolecules(tmpCandidate);
+                for (IAtomContainer tmpComponent : tmpComponents.atomContainers()) {
+                    aCandidateList.add(tmpComponent);
+                }
+                aCandidateList.remove(i);
+                i--;
+            }
+        }
+    }
+
+    /**
+     * Checks whether all exocyclic bonds of the given ring are single bonds like the inherited method, after checking
+     * the deadline.
+     *
+     * @param aRingToTest the ring, sharing its atoms with the given molecule
+     * @param anOriginalMolecule the molecule the ring was detected in
+     * @param aShouldKetoGroupsBeDetected true, if keto groups are allowed on the ring
+     * @return true if all exocyclic bonds are single bonds, or keto groups if allowed
+     * @throws NullPointerException if any parameter is null
+     * @throws IllegalArgumentException if the ring is empty
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected boolean areAllExocyclicBondsSingle(IAtomContainer aRingToTest, IAtomContainer anOriginalMolecule,
+                                                 boolean aShouldKetoGroupsBeDetected)
+            throws NullPointerException, IllegalArgumentException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        return super.areAllExocyclicBondsSingle(aRingToTest, anOriginalMolecule, aShouldKetoGroupsBeDetected);
+    }
+
+    /**
+     * Combines overlapping linear sugar candidates like the inherited method, after checking the deadline.
+     *
+     * @param aCandidateList linear sugar candidates
+     * @return combined candidates
+     * @throws NullPointerException if the given list is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected List<IAtomContainer> combineOverlappingCandidates(List<IAtomContainer> aCandidateList)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        return super.combineOverlappingCandidates(aCandidateList);
+    }
+
+    /**
+     * Splits linear sugar candidates at ether, ester, and peroxide bonds like the inherited method, after checking
+     * the deadline.
+     *
+     * @param aCandidateList linear sugar candidates
+     * @return split candidates
+     * @throws NullPointerException if the given list is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected List<IAtomContainer> splitEtherEsterAndPeroxideBonds(List<IAtomContainer> aCandidateList)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        return super.splitEtherEsterAndPeroxideBonds(aCandidateList);
+    }
+
+    /**
+     * Removes the atoms of circular sugars from the given linear sugar candidates like the inherited method, after
+     * checking the deadline.
+     *
+     * @param aCandidateList linear sugar candidates, altered in place
+     * @param anOriginalMolecule the molecule the candidates were detected in
+     * @throws NullPointerException if any parameter is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected void removeAtomsOfCircularSugarsFromCandidates(List<IAtomContainer> aCandidateList,
+                                                             IAtomContainer anOriginalMolecule)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        super.removeAtomsOfCircularSugarsFromCandidates(aCandidateList, anOriginalMolecule);
+    }
+
+    /**
+     * Removes the linear sugar candidates that are too small or too large like the inherited method, after checking
+     * the deadline.
+     *
+     * @param aCandidateList linear sugar candidates
+     * @return remaining candidates
+     * @throws NullPointerException if the given list is null
+     * @throws MoleculeTimeBudget.BudgetExceededException if the deadline of the molecule has passed
+     */
+    @Override
+    protected List<IAtomContainer> removeTooSmallAndTooLargeCandidates(List<IAtomContainer> aCandidateList)
+            throws NullPointerException, MoleculeTimeBudget.BudgetExceededException {
+        MoleculeTimeBudget.checkDeadline();
+        return super.removeTooSmallAndTooLargeCandidates(aCandidateList);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Throws an exception if the preservation mode cannot be applied to a masked molecule.
+     *
+     * @throws UnsupportedOperationException if the preservation mode is MOLECULAR_WEIGHT
+     */
+    private void checkPreservationModeForMasks() throws UnsupportedOperationException {
+        PreservationModeOption tmpMode = this.getPreservationModeSetting();
+        if (tmpMode != PreservationModeOption.ALL && tmpMode != PreservationModeOption.HEAVY_ATOM_COUNT) {
+            throw new UnsupportedOperationException("Removal from a masked molecule is not supported for preservation "
+                    + "mode " + tmpMode.name() + ".");
+        }
+    }
+
+    /**
+     * Marks the atoms of the given candidate as removed in the given view. An atom that is flagged as spiro atom is
+     * kept the first time and noted in the given bit set, like in the inherited removal.
+     *
+     * @param aMolecule view of the molecule
+     * @param aCandidate candidate to remove
+     * @param aKeptSpiroAtoms indices of spiro atoms that were already kept once
+     */
+    private void removeCandidateAtoms(MaskedMolecule aMolecule, IAtomContainer aCandidate, BitSet aKeptSpiroAtoms) {
+        MoleculeGraphContext tmpGraphContext = aMolecule.getGraphContext();
+        for (IAtom tmpAtom : aCandidate.atoms()) {
+            int tmpIndex = tmpGraphContext.getAtomIndex(tmpAtom);
+            if (tmpIndex < 0 || aMolecule.isRemoved(tmpIndex)) {
+                continue;
+            }
+            Boolean tmpIsSpiro = tmpAtom.getProperty(SugarRemovalUtility.IS_SPIRO_ATOM_PROPERTY_KEY);
+            if (!Objects.isNull(tmpIsSpiro) && tmpIsSpiro && !aKeptSpiroAtoms.get(tmpIndex)) {
+                aKeptSpiroAtoms.set(tmpIndex);
+            } else {
+                aMolecule.remove(tmpIndex);
+            }
+        }
+    }
+
+    /**
+     * Removes all disconnected structures from the given view that are too small to preserve, like the inherited
+     * method does on a molecule.
+     *
+     * @param aMolecule view of the molecule
+     */
+    private void removeTooSmallFragments(MaskedMolecule aMolecule) {
+        if (this.getPreservationModeSetting() == PreservationModeOption.ALL) {
+            return;
+        }
+        aMolecule.removeFragmentsWithFewerHeavyAtomsThan(this.getPreservationModeThresholdSetting());
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,506 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Column-wise copy of a {@link MoleculeResultTable} for filter and group-by queries, see {@link ResultQuery}. Every
+ * flag of the table is stored as a bitset with one bit per row and every count as an int array with one value per
+ * row, so that a query only reads the columns it uses and evaluates predicates on 64 rows per long word. The columns
+ * are kept in one file each next to the table file, named after the table file and the column; the IDs of the rows
+ * are those in the IDs file of the table.
+ * <br>Every column file starts with a header of four ints (magic number, format version, number of rows, zero),
+ * followed by the little-endian long words of a flag or the ints of a count. All columns are read into the heap when
+ * opened, i.e. about 45 bytes per row. Instances are immutable and can be queried by multiple threads.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class ResultColumns {
+    //<editor-fold desc="Enum Flag">
+    /**
+     * Boolean columns, one bit per row
+     */
+    public enum Flag {
+        /**
+         * The molecule could not be read, parsed, or analysed
+         */
+        FAILED("Failed"),
+
+        /**
+         * The molecule was not analysed since a SugarPrescreen rejected it; it contains no sugars
+         */
+        PRESCREENED("Prescreened"),
+
+        /**
+         * The molecule contains circular or linear sugars
+         */
+        CONTAINS_SUGARS("ContainsSugars"),
+
+        /**
+         * The molecule contains circular sugars
+         */
+        CONTAINS_CIRCULAR_SUGARS("ContainsCircularSugars"),
+
+        /**
+         * The molecule contains linear sugars
+         */
+        CONTAINS_LINEAR_SUGARS("ContainsLinearSugars"),
+
+        /**
+         * The molecule is empty after removal of all sugars
+         */
+        BASICALLY_A_SUGAR("BasicallyASugar"),
+
+        /**
+         * The molecule is a single circular sugar without glycosidic bond that is detected nonetheless
+         */
+        QUALIFIED_FOR_GLYCOSIDIC_BOND_EXEMPTION("QualifiedForGlycosidicBondExemption"),
+
+        /**
+         * The molecule has a spiro atom
+         */
+        CONTAINS_SPIRO_ATOM("ContainsSpiroAtom");
+
+        /**
+         * Name of the column in file names and output tables
+         */
+        private final String columnName;
+
+        /**
+         * Creates the constant with the given column name.
+         *
+         * @param aColumnName name of the column
+         */
+        Flag(String aColumnName) {
+            this.columnName = aColumnName;
+        }
+
+        /**
+         * Returns the name of the column in file names and output tables.
+         *
+         * @return column name
+         */
+        public String getColumnName() {
+            return this.columnName;
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Enum Count">
+    /**
+     * Count columns, one int per row
+     */
+    public enum Count {
+        /**
+         * Number of circular sugars
+         */
+        CIRCULAR_SUGARS("CircularSugarCount"),
+
+        /**
+         * Number of terminal circular sugars
+         */
+        TERMINAL_CIRCULAR_SUGARS("TerminalCircularSugarCount"),
+
+        /**
+         * Number of non-terminal circular sugars
+         */
+        NON_TERMINAL_CIRCULAR_SUGARS("NonTerminalCircularSugarCount"),
+
+        /**
+         * Number of linear sugars
+         */
+        LINEAR_SUGARS("LinearSugarCount"),
+
+        /**
+         * Number of terminal linear sugars
+         */
+        TERMINAL_LINEAR_SUGARS("TerminalLinearSugarCount"),
+
+        /**
+         * Number of non-terminal linear sugars
+         */
+        NON_TERMINAL_LINEAR_SUGARS("NonTerminalLinearSugarCount"),
+
+        /**
+         * Number of circular sugars and linear sugars
+         */
+        SUGARS("SugarCount"),
+
+        /**
+         * Number of circular sugars with O-glycosidic bond
+         */
+        CIRCULAR_SUGARS_WITH_GLYCOSIDIC_BOND("CircularSugarsWithGlycosidicBondCount"),
+
+        /**
+         * Heavy atom count of the analysed fragment, MoleculeResultTable.UNKNOWN_HEAVY_ATOM_COUNT if not analysed
+         */
+        HEAVY_ATOMS("HeavyAtomCount"),
+
+        /**
+         * Heavy atom count after removal of all sugars, MoleculeResultTable.UNKNOWN_HEAVY_ATOM_COUNT if not analysed
+         */
+        DEGLYCOSYLATED_HEAVY_ATOMS("DeglycosylatedHeavyAtomCount"),
+
+        /**
+         * Number of stereo-isomers the molecule represents
+         */
+        STEREO_ISOMERS("StereoIsomerCount");
+
+        /**
+         * Name of the column in file names and output tables
+         */
+        private final String columnName;
+
+        /**
+         * Creates the constant with the given column name.
+         *
+         * @param aColumnName name of the column
+         */
+        Count(String aColumnName) {
+            this.columnName = aColumnName;
+        }
+
+        /**
+         * Returns the name of the column in file names and output tables.
+         *
+         * @return column name
+         */
+        public String getColumnName() {
+            return this.columnName;
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Extension of the column files, appended to the path of the table file and the column name
+     */
+    public static final String FILE_EXTENSION = ".col";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Magic number at the start of a column file, "GSCO"
+     */
+    private static final int MAGIC_NUMBER = 0x4753434F;
+
+    /**
+     * Version of the file format
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Size of the header of a column file in bytes
+     */
+    private static final int HEADER_SIZE = 16;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Number of rows
+     */
+    private final int size;
+
+    /**
+     * Long words of the flag columns
+     */
+    private final Map<Flag, long[]> flagColumns;
+
+    /**
+     * Values of the count columns
+     */
+    private final Map<Count, int[]> countColumns;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates an instance with the given columns.
+     */
+    private ResultColumns(int aSize, Map<Flag, long[]> aFlagColumnsMap, Map<Count, int[]> aCountColumnsMap) {
+        this.size = aSize;
+        this.flagColumns = aFlagColumnsMap;
+        this.countColumns = aCountColumnsMap;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Writes the columns of all rows of the given table next to its table file; existing column files are
+     * overwritten.
+     *
+     * @param aTable result table
+     * @return the written columns
+     * @throws NullPointerException if the table is null
+     * @throws IOException if a file cannot be written
+     */
+    public static ResultColumns write(MoleculeResultTable aTable) throws NullPointerException, IOException {
+        Objects.requireNonNull(aTable, "Given table is 'null'.");
+        int tmpSize = aTable.size();
+        int tmpWordCount = ResultColumns.getWordCount(tmpSize);
+        Map<Flag, long[]> tmpFlagColumns = new EnumMap<>(Flag.class);
+        for (Flag tmpFlag : Flag.values()) {
+            tmpFlagColumns.put(tmpFlag, new long[tmpWordCount]);
+        }
+        Map<Count, int[]> tmpCountColumns = new EnumMap<>(Count.class);
+        for (Count tmpCount : Count.values()) {
+            tmpCountColumns.put(tmpCount, new int[tmpSize]);
+        }
+        for (int i = 0; i < tmpSize; i++) {
+            long tmpBit = 1L << i;
+            int tmpWord = i >>> 6;
+            byte tmpFlags = aTable.getFlags(i);
+            ResultColumns.setIf(tmpFlagColumns.get(Flag.FAILED), tmpWord, tmpBit,
+                    (tmpFlags & SugarDetectionBatch.FAILED_FLAG) != 0);
+            ResultColumns.setIf(tmpFlagColumns.get(Flag.PRESCREENED), tmpWord, tmpBit,
+                    (tmpFlags & SugarDetectionBatch.FAILED_FLAG) == 0
+                            && aTable.getHeavyAtomCount(i) == MoleculeResultTable.UNKNOWN_HEAVY_ATOM_COUNT);
+            ResultColumns.setIf(tmpFlagColumns.get(Flag.CONTAINS_SUGARS), tmpWord, tmpBit, aTable.containsSugars(i));
+            ResultColumns.setIf(tmpFlagColumns.get(Flag.CONTAINS_CIRCULAR_SUGARS), tmpWord, tmpBit,
+                    (tmpFlags & SugarDetectionBatch.CONTAINS_CIRCULAR_SUGARS_FLAG) != 0);
+            ResultColumns.setIf(tmpFlagColumns.get(Flag.CONTAINS_LINEAR_SUGARS), tmpWord, tmpBit,
+                    (tmpFlags & SugarDetectionBatch.CONTAINS_LINEAR_SUGARS_FLAG) != 0);
+            ResultColumns.setIf(tmpFlagColumns.get(Flag.BASICALLY_A_SUGAR), tmpWord, tmpBit,
+                    (tmpFlags & SugarDetectionBatch.BASICALLY_A_SUGAR_FLAG) != 0);
+            ResultColumns.setIf(tmpFlagColumns.get(Flag.QUALIFIED_FOR_GLYCOSIDIC_BOND_EXEMPTION), tmpWord, tmpBit,
+                    (tmpFlags & SugarDetectionBatch.QUALIFIED_FOR_GLYCOSIDIC_BOND_EXEMPTION_FLAG) != 0);
+            ResultColumns.setIf(tmpFlagColumns.get(Flag.CONTAINS_SPIRO_ATOM), tmpWord, tmpBit,
+                    (tmpFlags & SugarDetectionBatch.CONTAINS_SPIRO_ATOM_FLAG) != 0);
+            tmpCountColumns.get(Count.CIRCULAR_SUGARS)[i] = aTable.getCircularSugarCount(i);
+            tmpCountColumns.get(Count.TERMINAL_CIRCULAR_SUGARS)[i] = aTable.getTerminalCircularSugarCount(i);
+            tmpCountColumns.get(Count.NON_TERMINAL_CIRCULAR_SUGARS)[i] = aTable.getNonTerminalCircularSugarCount(i);
+            tmpCountColumns.get(Count.LINEAR_SUGARS)[i] = aTable.getLinearSugarCount(i);
+            tmpCountColumns.get(Count.TERMINAL_LINEAR_SUGARS)[i] = aTable.getTerminalLinearSugarCount(i);
+            tmpCountColumns.get(Count.NON_TERMINAL_LINEAR_SUGARS)[i] = aTable.getNonTerminalLinearSugarCount(i);
+            tmpCountColumns.get(Count.SUGARS)[i] = aTable.getCircularSugarCount(i) + aTable.getLinearSugarCount(i);
+            tmpCountColumns.get(Count.CIRCULAR_SUGARS_WITH_GLYCOSIDIC_BOND)[i]
+                    = aTable.getCircularSugarsWithGlycosidicBondCount(i);
+            tmpCountColumns.get(Count.HEAVY_ATOMS)[i] = aTable.getHeavyAtomCount(i);
+            tmpCountColumns.get(Count.DEGLYCOSYLATED_HEAVY_ATOMS)[i] = aTable.getDeglycosylatedHeavyAtomCount(i);
+            tmpCountColumns.get(Count.STEREO_ISOMERS)[i] = aTable.getNrOfStereoIsomers(i);
+        }
+        File tmpTableFile = aTable.getTableFile();
+        for (Flag tmpFlag : Flag.values()) {
+            try (DataOutputStream tmpStream = ResultColumns.createColumnFile(ResultColumns.getColumnFile(tmpTableFile,
+                    tmpFlag.getColumnName()), tmpSize)) {
+                for (long tmpWord : tmpFlagColumns.get(tmpFlag)) {
+                    tmpStream.writeLong(Long.reverseBytes(tmpWord));
+                }
+            }
+        }
+        for (Count tmpCount : Count.values()) {
+            try (DataOutputStream tmpStream = ResultColumns.createColumnFile(ResultColumns.getColumnFile(tmpTableFile,
+                    tmpCount.getColumnName()), tmpSize)) {
+                for (int tmpValue : tmpCountColumns.get(tmpCount)) {
+                    tmpStream.writeInt(Integer.reverseBytes(tmpValue));
+                }
+            }
+        }
+        return new ResultColumns(tmpSize, tmpFlagColumns, tmpCountColumns);
+    }
+
+    /**
+     * Reads the columns written next to the given table file.
+     *
+     * @param aTableFile file of the result table
+     * @return the columns
+     * @throws NullPointerException if the file is null
+     * @throws IOException if a column file cannot be read, is no column file, or the columns differ in size
+     */
+    public static ResultColumns open(File aTableFile) throws NullPointerException, IOException {
+        Objects.requireNonNull(aTableFile, "Given file is 'null'.");
+        int tmpSize = -1;
+        Map<Flag, long[]> tmpFlagColumns = new EnumMap<>(Flag.class);
+        for (Flag tmpFlag : Flag.values()) {
+            ByteBuffer tmpData = ResultColumns.readColumnFile(ResultColumns.getColumnFile(aTableFile,
+                    tmpFlag.getColumnName()));
+            tmpSize = ResultColumns.checkSize(tmpSize, tmpData.getInt(8), tmpFlag.getColumnName());
+            long[] tmpWords = new long[ResultColumns.getWordCount(tmpSize)];
+            tmpData.position(ResultColumns.HEADER_SIZE);
+            if (tmpData.remaining() != tmpWords.length * Long.BYTES) {
+                throw new IOException("Column " + tmpFlag.getColumnName() + " has an invalid length.");
+            }
+            tmpData.asLongBuffer().get(tmpWords);
+            tmpFlagColumns.put(tmpFlag, tmpWords);
+        }
+        Map<Count, int[]> tmpCountColumns = new EnumMap<>(Count.class);
+        for (Count tmpCount : Count.values()) {
+            ByteBuffer tmpData = ResultColumns.readColumnFile(ResultColumns.getColumnFile(aTableFile,
+                    tmpCount.getColumnName()));
+            tmpSize = ResultColumns.checkSize(tmpSize, tmpData.getInt(8), tmpCount.getColumnName());
+            int[] tmpValues = new int[tmpSize];
+            tmpData.position(ResultColumns.HEADER_SIZE);
+            if (tmpData.remaining() != tmpValues.length * Integer.BYTES) {
+                throw new IOException("Column " + tmpCount.getColumnName() + " has an invalid length.");
+            }
+            tmpData.asIntBuffer().get(tmpValues);
+            tmpCountColumns.put(tmpCount, tmpValues);
+        }
+        return new ResultColumns(tmpSize, tmpFlagColumns, tmpCountColumns);
+    }
+
+    /**
+     * Returns the file of the column with the given name belonging to the given table file.
+     *
+     * @param aTableFile file of the result table
+     * @param aColumnName name of the column
+     * @return column file
+     */
+    public static File getColumnFile(File aTableFile, String aColumnName) {
+        return new File(aTableFile.getPath() + "." + aColumnName.toLowerCase(Locale.US) + ResultColumns.FILE_EXTENSION);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of rows.
+     *
+     * @return number of rows
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the value of the given flag in the given row.
+     *
+     * @param aFlag flag column
+     * @param aRow row index
+     * @return true if the flag is set
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public boolean get(Flag aFlag, int aRow) throws IndexOutOfBoundsException {
+        Objects.checkIndex(aRow, this.size);
+        return (this.flagColumns.get(aFlag)[aRow >>> 6] & (1L << aRow)) != 0;
+    }
+
+    /**
+     * Returns the value of the given count in the given row.
+     *
+     * @param aCount count column
+     * @param aRow row index
+     * @return count
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int get(Count aCount, int aRow) throws IndexOutOfBoundsException {
+        Objects.checkIndex(aRow, this.size);
+        return this.countColumns.get(aCount)[aRow];
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Package-private methods">
+    /**
+     * Returns the long words of the given flag column; the array must not be altered.
+     */
+    long[] getWords(Flag aFlag) {
+        return this.flagColumns.get(aFlag);
+    }
+
+    /**
+     * Returns the values of the given count column; the array must not be altered.
+     */
+    int[] getValues(Count aCount) {
+        return this.countColumns.get(aCount);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Package-private static methods">
+    /**
+     * Returns the number of long words of a bitset with one bit per row.
+     */
+    static int getWordCount(int aSize) {
+        return (aSize + Long.SIZE - 1) >>> 6;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Sets the given bit in the given word if the condition is true.
+     */
+    private static void setIf(long[] aWords, int aWord, long aBit, boolean aCondition) {
+        if (aCondition) {
+            aWords[aWord] |= aBit;
+        }
+    }
+
+    /**
+     * Creates the given column file and writes its header.
+     */
+    private static DataOutputStream createColumnFile(File aFile, int aSize) throws IOException {
+        DataOutputStream tmpStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(aFile)));
+        tmpStream.writeInt(Integer.reverseBytes(ResultColumns.MAGIC_NUMBER));
+        tmpStream.writeInt(Integer.reverseBytes(ResultColumns.FORMAT_VERSION));
+        tmpStream.writeInt(Integer.reverseBytes(aSize));
+        tmpStream.writeInt(0);
+        return tmpStream;
+    }
+
+    /**
+     * Reads the given column file into a little-endian buffer and checks its header.
+     */
+    private static ByteBuffer readColumnFile(File aFile) throws IOException {
+        try (FileChannel tmpChannel = FileChannel.open(aFile.toPath(), StandardOpenOption.READ)) {
+            long tmpFileSize = tmpChannel.size();
+            if (tmpFileSize < ResultColumns.HEADER_SIZE || tmpFileSize > Integer.MAX_VALUE) {
+                throw new IOException("File " + aFile + " has an invalid size for a column.");
+            }
+            ByteBuffer tmpData = ByteBuffer.allocate((int) tmpFileSize).order(ByteOrder.LITTLE_ENDIAN);
+            while (tmpData.hasRemaining()) {
+                if (tmpChannel.read(tmpData) < 0) {
+                    throw new IOException("File " + aFile + " ended unexpectedly.");
+                }
+            }
+            tmpData.flip();
+            if (tmpData.getInt(0) != ResultColumns.MAGIC_NUMBER
+                    || tmpData.getInt(4) != ResultColumns.FORMAT_VERSION) {
+                throw new IOException("File " + aFile + " is no column of a supported version.");
+            }
+            return tmpData;
+        }
+    }
+
+    /**
+     * Checks that the given column has the size of the columns read before.
+     */
+    private static int checkSize(int aSize, int aColumnSize, String aColumnName) throws IOException {
+        if (aColumnSize < 0 || (aSize >= 0 && aColumnSize != aSize)) {
+            throw new IOException("Column " + aColumnName + " has " + aColumnSize + " rows instead of " + aSize + ".");
+        }
+        return aColumnSize;
+    }
+    //</editor-fold>
+}
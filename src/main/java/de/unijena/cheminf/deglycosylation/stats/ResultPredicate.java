@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.util.Objects;
+
+/**
+ * Filter on the rows of {@link ResultColumns}, evaluated for all rows at once to a bitset with one bit per row, so
+ * that combinations of predicates are evaluated on 64 rows per long word. Predicates on flags copy the stored
+ * bitset, predicates on counts compare every value without branching.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+@FunctionalInterface
+public interface ResultPredicate {
+    /**
+     * Evaluates the predicate for all rows of the given columns.
+     *
+     * @param aColumns columns to evaluate on
+     * @return new bitset with ResultColumns.size() bits in little-endian long words, bit i is set if row i matches;
+     * bits beyond the last row are not set
+     */
+    long[] evaluate(ResultColumns aColumns);
+
+    /**
+     * Returns a predicate matching rows that match this and the given predicate.
+     *
+     * @param anOther other predicate
+     * @return conjunction
+     * @throws NullPointerException if the given predicate is null
+     */
+    default ResultPredicate and(ResultPredicate anOther) throws NullPointerException {
+        Objects.requireNonNull(anOther, "Given predicate is 'null'.");
+        return aColumns -> {
+            long[] tmpWords = this.evaluate(aColumns);
+            long[] tmpOtherWords = anOther.evaluate(aColumns);
+            for (int w = 0; w < tmpWords.length; w++) {
+                tmpWords[w] &= tmpOtherWords[w];
+            }
+            return tmpWords;
+        };
+    }
+
+    /**
+     * Returns a predicate matching rows that match this or the given predicate.
+     *
+     * @param anOther other predicate
+     * @return disjunction
+     * @throws NullPointerException if the given predicate is null
+     */
+    default ResultPredicate or(ResultPredicate anOther) throws NullPointerException {
+        Objects.requireNonNull(anOther, "Given predicate is 'null'.");
+        return aColumns -> {
+            long[] tmpWords = this.evaluate(aColumns);
+            long[] tmpOtherWords = anOther.evaluate(aColumns);
+            for (int w = 0; w < tmpWords.length; w++) {
+                tmpWords[w] |= tmpOtherWords[w];
+            }
+            return tmpWords;
+        };
+    }
+
+    /**
+     * Returns a predicate matching rows that do not match this predicate.
+     *
+     * @return negation
+     */
+    default ResultPredicate negate() {
+        return aColumns -> {
+            long[] tmpWords = this.evaluate(aColumns);
+            for (int w = 0; w < tmpWords.length; w++) {
+                tmpWords[w] = ~tmpWords[w];
+            }
+            int tmpRemainder = aColumns.size() & (Long.SIZE - 1);
+            if (tmpRemainder != 0) {
+                tmpWords[tmpWords.length - 1] &= (1L << tmpRemainder) - 1;
+            }
+            return tmpWords;
+        };
+    }
+
+    /**
+     * Returns a predicate matching all rows.
+     *
+     * @return predicate
+     */
+    static ResultPredicate all() {
+        ResultPredicate tmpNone = aColumns -> new long[ResultColumns.getWordCount(aColumns.size())];
+        return tmpNone.negate();
+    }
+
+    /**
+     * Returns a predicate matching rows where the given flag is set.
+     *
+     * @param aFlag flag column
+     * @return predicate
+     * @throws NullPointerException if the given flag is null
+     */
+    static ResultPredicate isTrue(ResultColumns.Flag aFlag) throws NullPointerException {
+        Objects.requireNonNull(aFlag, "Given flag is 'null'.");
+        return aColumns -> aColumns.getWords(aFlag).clone();
+    }
+
+    /**
+     * Returns a predicate matching rows where the given flag is not set.
+     *
+     * @param aFlag flag column
+     * @return predicate
+     * @throws NullPointerException if the given flag is null
+     */
+    static ResultPredicate isFalse(ResultColumns.Flag aFlag) throws NullPointerException {
+        return ResultPredicate.isTrue(aFlag).negate();
+    }
+
+    /**
+     * Returns a predicate matching rows where the given count is between the given bounds, both inclusive.
+     *
+     * @param aCount count column
+     * @param aMin lower bound
+     * @param aMax upper bound, no row matches if it is lower than the lower bound
+     * @return predicate
+     * @throws NullPointerException if the given count is null
+     */
+    static ResultPredicate between(ResultColumns.Count aCount, int aMin, int aMax) throws NullPointerException {
+        Objects.requireNonNull(aCount, "Given count is 'null'.");
+        return aColumns -> {
+            int[] tmpValues = aColumns.getValues(aCount);
+            long[] tmpWords = new long[ResultColumns.getWordCount(tmpValues.length)];
+            if (aMin > aMax) {
+                return tmpWords;
+            }
+            long tmpRange = (long) aMax - aMin;
+            for (int w = 0; w < tmpWords.length; w++) {
+                int tmpOffset = w << 6;
+                int tmpEnd = Math.min(tmpOffset + Long.SIZE, tmpValues.length);
+                long tmpWord = 0L;
+                for (int i = tmpOffset; i < tmpEnd; i++) {
+                    //the sign bit of the first operand is set if the value is not above the upper bound, the one of
+                    // the second if it is not below the lower bound
+                    long tmpDelta = (long) tmpValues[i] - aMin;
+                    tmpWord |= (((tmpDelta - tmpRange - 1) & ~tmpDelta) >>> 63) << (i - tmpOffset);
+                }
+                tmpWords[w] = tmpWord;
+            }
+            return tmpWords;
+        };
+    }
+
+    /**
+     * Returns a predicate matching rows where the given count equals the given value.
+     *
+     * @param aCount count column
+     * @param aValue value
+     * @return predicate
+     * @throws NullPointerException if the given count is null
+     */
+    static ResultPredicate equalTo(ResultColumns.Count aCount, int aValue) throws NullPointerException {
+        return ResultPredicate.between(aCount, aValue, aValue);
+    }
+
+    /**
+     * Returns a predicate matching rows where the given count is at least the given value.
+     *
+     * @param aCount count column
+     * @param aMin lower bound, inclusive
+     * @return predicate
+     * @throws NullPointerException if the given count is null
+     */
+    static ResultPredicate atLeast(ResultColumns.Count aCount, int aMin) throws NullPointerException {
+        return ResultPredicate.between(aCount, aMin, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a predicate matching rows where the given count is at most the given value.
+     *
+     * @param aCount count column
+     * @param aMax upper bound, inclusive
+     * @return predicate
+     * @throws NullPointerException if the given count is null
+     */
+    static ResultPredicate atMost(ResultColumns.Count aCount, int aMax) throws NullPointerException {
+        return ResultPredicate.between(aCount, Integer.MIN_VALUE, aMax);
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Filter and group-by query on {@link ResultColumns}, e.g. "sugar-containing molecules with at least two circular
+ * sugars, grouped by their number of linear sugars". The filter is evaluated to a bitset first, then only the matching
+ * rows of the group-by and summed columns are visited. The result has the layout of the CSV files of the analyses,
+ * one line per group with its value, frequency, sums, and percentage of all matching rows.
+ * <br>Instances are not thread-safe, but the columns can be queried by multiple instances at the same time.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class ResultQuery {
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Maximum range of the group-by values that is counted in arrays, larger ranges are counted in a map
+     */
+    private static final int MAX_ARRAY_GROUP_RANGE = 1 << 16;
+
+    /**
+     * Name of the group column if no group-by column is given
+     */
+    private static final String NO_GROUP_NAME = "Group";
+
+    /**
+     * Value of the group column if no group-by column is given
+     */
+    private static final String NO_GROUP_VALUE = "All";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Queried columns
+     */
+    private final ResultColumns columns;
+
+    /**
+     * Columns summed up per group
+     */
+    private final List<ResultColumns.Count> summedColumns;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Filter of the rows
+     */
+    private ResultPredicate filter;
+
+    /**
+     * Column whose values define the groups, null if all matching rows form one group
+     */
+    private ResultColumns.Count groupByColumn;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a query matching all rows of the given columns, without grouping.
+     *
+     * @param aColumns columns to query
+     * @throws NullPointerException if the given columns are null
+     */
+    public ResultQuery(ResultColumns aColumns) throws NullPointerException {
+        Objects.requireNonNull(aColumns, "Given columns are 'null'.");
+        this.columns = aColumns;
+        this.summedColumns = new ArrayList<>(4);
+        this.filter = ResultPredicate.all();
+        this.groupByColumn = null;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Restricts the query to rows matching the given predicate, in addition to the predicates given before.
+     *
+     * @param aPredicate filter
+     * @return this query
+     * @throws NullPointerException if the given predicate is null
+     */
+    public ResultQuery where(ResultPredicate aPredicate) throws NullPointerException {
+        Objects.requireNonNull(aPredicate, "Given predicate is 'null'.");
+        this.filter = this.filter.and(aPredicate);
+        return this;
+    }
+
+    /**
+     * Groups the matching rows by their values of the given count column, replacing a group-by column given before.
+     *
+     * @param aCount group-by column
+     * @return this query
+     * @throws NullPointerException if the given count is null
+     */
+    public ResultQuery groupBy(ResultColumns.Count aCount) throws NullPointerException {
+        Objects.requireNonNull(aCount, "Given count is 'null'.");
+        this.groupByColumn = aCount;
+        return this;
+    }
+
+    /**
+     * Adds the sum of the given count column per group to the result.
+     *
+     * @param aCount summed column
+     * @return this query
+     * @throws NullPointerException if the given count is null
+     */
+    public ResultQuery sum(ResultColumns.Count aCount) throws NullPointerException {
+        Objects.requireNonNull(aCount, "Given count is 'null'.");
+        this.summedColumns.add(aCount);
+        return this;
+    }
+
+    /**
+     * Returns the number of rows matching the filter.
+     *
+     * @return count
+     */
+    public int count() {
+        return ResultQuery.cardinality(this.filter.evaluate(this.columns));
+    }
+
+    /**
+     * Evaluates the filter and aggregates the matching rows per group.
+     *
+     * @return result, its groups in ascending order of their values
+     */
+    public Result execute() {
+        long[] tmpMatches = this.filter.evaluate(this.columns);
+        int tmpSumCount = this.summedColumns.size();
+        int[][] tmpSummedValues = new int[tmpSumCount][];
+        for (int s = 0; s < tmpSumCount; s++) {
+            tmpSummedValues[s] = this.columns.getValues(this.summedColumns.get(s));
+        }
+        if (Objects.isNull(this.groupByColumn)) {
+            int[] tmpFrequency = new int[1];
+            long[][] tmpSums = new long[1][tmpSumCount];
+            ResultQuery.forEachMatch(tmpMatches, aRow -> {
+                tmpFrequency[0]++;
+                for (int s = 0; s < tmpSumCount; s++) {
+                    tmpSums[0][s] += tmpSummedValues[s][aRow];
+                }
+            });
+            return new Result(null, new int[] {0}, tmpFrequency, tmpSums, this.summedColumns);
+        }
+        int[] tmpGroupValues = this.columns.getValues(this.groupByColumn);
+        int[] tmpMinMax = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        ResultQuery.forEachMatch(tmpMatches, aRow -> {
+            tmpMinMax[0] = Math.min(tmpMinMax[0], tmpGroupValues[aRow]);
+            tmpMinMax[1] = Math.max(tmpMinMax[1], tmpGroupValues[aRow]);
+        });
+        if (tmpMinMax[0] > tmpMinMax[1]) {
+            return new Result(this.groupByColumn, new int[0], new int[0], new long[0][], this.summedColumns);
+        }
+        if ((long) tmpMinMax[1] - tmpMinMax[0] < ResultQuery.MAX_ARRAY_GROUP_RANGE) {
+            int tmpMin = tmpMinMax[0];
+            int tmpRange = tmpMinMax[1] - tmpMin + 1;
+            int[] tmpFrequencies = new int[tmpRange];
+            long[][] tmpSums = new long[tmpRange][tmpSumCount];
+            ResultQuery.forEachMatch(tmpMatches, aRow -> {
+                int tmpGroup = tmpGroupValues[aRow] - tmpMin;
+                tmpFrequencies[tmpGroup]++;
+                for (int s = 0; s < tmpSumCount; s++) {
+                    tmpSums[tmpGroup][s] += tmpSummedValues[s][aRow];
+                }
+            });
+            int tmpGroupCount = 0;
+            for (int tmpFrequency : tmpFrequencies) {
+                if (tmpFrequency > 0) {
+                    tmpGroupCount++;
+                }
+            }
+            int[] tmpKeys = new int[tmpGroupCount];
+            int[] tmpGroupFrequencies = new int[tmpGroupCount];
+            long[][] tmpGroupSums = new long[tmpGroupCount][];
+            int tmpGroupIndex = 0;
+            for (int g = 0; g < tmpRange; g++) {
+                if (tmpFrequencies[g] > 0) {
+                    tmpKeys[tmpGroupIndex] = g + tmpMin;
+                    tmpGroupFrequencies[tmpGroupIndex] = tmpFrequencies[g];
+                    tmpGroupSums[tmpGroupIndex] = tmpSums[g];
+                    tmpGroupIndex++;
+                }
+            }
+            return new Result(this.groupByColumn, tmpKeys, tmpGroupFrequencies, tmpGroupSums, this.summedColumns);
+        }
+        //first entry of the array is the frequency, the others the sums
+        TreeMap<Integer, long[]> tmpGroups = new TreeMap<>();
+        ResultQuery.forEachMatch(tmpMatches, aRow -> {
+            long[] tmpAggregates = tmpGroups.computeIfAbsent(tmpGroupValues[aRow], aKey -> new long[tmpSumCount + 1]);
+            tmpAggregates[0]++;
+            for (int s = 0; s < tmpSumCount; s++) {
+                tmpAggregates[s + 1] += tmpSummedValues[s][aRow];
+            }
+        });
+        int[] tmpKeys = new int[tmpGroups.size()];
+        int[] tmpFrequencies = new int[tmpGroups.size()];
+        long[][] tmpSums = new long[tmpGroups.size()][];
+        int tmpGroupIndex = 0;
+        for (Map.Entry<Integer, long[]> tmpEntry : tmpGroups.entrySet()) {
+            tmpKeys[tmpGroupIndex] = tmpEntry.getKey();
+            tmpFrequencies[tmpGroupIndex] = (int) tmpEntry.getValue()[0];
+            tmpSums[tmpGroupIndex] = Arrays.copyOfRange(tmpEntry.getValue(), 1, tmpSumCount + 1);
+            tmpGroupIndex++;
+        }
+        return new Result(this.groupByColumn, tmpKeys, tmpFrequencies, tmpSums, this.summedColumns);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Returns the number of set bits of the given bitset.
+     */
+    private static int cardinality(long[] aWords) {
+        int tmpCount = 0;
+        for (long tmpWord : aWords) {
+            tmpCount += Long.bitCount(tmpWord);
+        }
+        return tmpCount;
+    }
+
+    /**
+     * Passes the indices of the set bits of the given bitset to the given consumer in ascending order.
+     */
+    private static void forEachMatch(long[] aWords, IntConsumer aConsumer) {
+        for (int w = 0; w < aWords.length; w++) {
+            long tmpWord = aWords[w];
+            while (tmpWord != 0L) {
+                aConsumer.accept((w << 6) + Long.numberOfTrailingZeros(tmpWord));
+                tmpWord &= tmpWord - 1;
+            }
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner classes">
+    /**
+     * Groups of a query with their frequencies and sums.
+     */
+    public static final class Result {
+        //<editor-fold desc="Private final variables">
+        /**
+         * Group-by column, null if all matching rows form one group
+         */
+        private final ResultColumns.Count groupByColumn;
+
+        /**
+         * Values of the groups, ascending
+         */
+        private final int[] keys;
+
+        /**
+         * Number of matching rows per group
+         */
+        private final int[] frequencies;
+
+        /**
+         * Sums of the summed columns per group
+         */
+        private final long[][] sums;
+
+        /**
+         * Summed columns
+         */
+        private final List<ResultColumns.Count> summedColumns;
+
+        /**
+         * Number of all matching rows
+         */
+        private final int totalFrequency;
+        //</editor-fold>
+        //
+        //<editor-fold desc="Constructors">
+        /**
+         * Creates a result with the given groups.
+         */
+        private Result(ResultColumns.Count aGroupByColumn, int[] aKeysArray, int[] aFrequenciesArray,
+                       long[][] aSumsArray, List<ResultColumns.Count> aSummedColumnsList) {
+            this.groupByColumn = aGroupByColumn;
+            this.keys = aKeysArray;
+            this.frequencies = aFrequenciesArray;
+            this.sums = aSumsArray;
+            this.summedColumns = List.copyOf(aSummedColumnsList);
+            int tmpTotal = 0;
+            for (int tmpFrequency : aFrequenciesArray) {
+                tmpTotal += tmpFrequency;
+            }
+            this.totalFrequency = tmpTotal;
+        }
+        //</editor-fold>
+        //
+        //<editor-fold desc="Public methods">
+        /**
+         * Returns the lines of the result in CSV format, starting with the header, e.g. "CircularSugarCount;Frequency;
+         * HeavyAtomCountSum;Percentage". The percentage is the one of the group among all matching rows.
+         *
+         * @return lines without line separators
+         */
+        public List<String> toCsvLines() {
+            String tmpSeparator = AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR;
+            List<String> tmpLines = new ArrayList<>(this.keys.length + 1);
+            StringBuilder tmpHeader = new StringBuilder(Objects.isNull(this.groupByColumn)
+                    ? ResultQuery.NO_GROUP_NAME : this.groupByColumn.getColumnName());
+            tmpHeader.append(tmpSeparator).append("Frequency");
+            for (ResultColumns.Count tmpCount : this.summedColumns) {
+                tmpHeader.append(tmpSeparator).append(tmpCount.getColumnName()).append("Sum");
+            }
+            tmpHeader.append(tmpSeparator).append("Percentage");
+            tmpLines.add(tmpHeader.toString());
+            for (int g = 0; g < this.keys.length; g++) {
+                StringBuilder tmpLine = new StringBuilder(Objects.isNull(this.groupByColumn)
+                        ? ResultQuery.NO_GROUP_VALUE : Integer.toString(this.keys[g]));
+                tmpLine.append(tmpSeparator).append(this.frequencies[g]);
+                for (long tmpSum : this.sums[g]) {
+                    tmpLine.append(tmpSeparator).append(tmpSum);
+                }
+                tmpLine.append(tmpSeparator).append(this.getPercentage(g));
+                tmpLines.add(tmpLine.toString());
+            }
+            return tmpLines;
+        }
+
+        /**
+         * Writes the lines of toCsvLines() to the given file.
+         *
+         * @param aFile output file, overwritten if it exists
+         * @throws NullPointerException if the given file is null
+         * @throws IOException if the file cannot be written
+         */
+        public void writeCsv(File aFile) throws NullPointerException, IOException {
+            Objects.requireNonNull(aFile, "Given file is 'null'.");
+            try (PrintWriter tmpWriter = new PrintWriter(new FileWriter(aFile))) {
+                for (String tmpLine : this.toCsvLines()) {
+                    tmpWriter.println(tmpLine);
+                }
+            }
+        }
+        //</editor-fold>
+        //
+        //<editor-fold desc="Public properties">
+        /**
+         * Returns the number of groups; without group-by column, this is one even if no row matches.
+         *
+         * @return number of groups
+         */
+        public int getGroupCount() {
+            return this.keys.length;
+        }
+
+        /**
+         * Returns the value of the group-by column of the given group, zero without group-by column.
+         *
+         * @param aGroup group index
+         * @return group value
+         */
+        public int getKey(int aGroup) {
+            return this.keys[aGroup];
+        }
+
+        /**
+         * Returns the number of matching rows of the given group.
+         *
+         * @param aGroup group index
+         * @return frequency
+         */
+        public int getFrequency(int aGroup) {
+            return this.frequencies[aGroup];
+        }
+
+        /**
+         * Returns the sum of the given summed column over the given group.
+         *
+         * @param aGroup group index
+         * @param aCount summed column
+         * @return sum
+         * @throws IllegalArgumentException if the column was not summed in the query
+         */
+        public long getSum(int aGroup, ResultColumns.Count aCount) throws IllegalArgumentException {
+            int tmpIndex = this.summedColumns.indexOf(aCount);
+            if (tmpIndex < 0) {
+                throw new IllegalArgumentException("Column " + aCount + " was not summed in the query.");
+            }
+            return this.sums[aGroup][tmpIndex];
+        }
+
+        /**
+         * Returns the percentage of the given group among all matching rows.
+         *
+         * @param aGroup group index
+         * @return percentage
+         */
+        public double getPercentage(int aGroup) {
+            return AbstractGlycosylationAnalysis.getPercentage(this.frequencies[aGroup], this.totalFrequency);
+        }
+
+        /**
+         * Returns the number of all matching rows.
+         *
+         * @return total frequency
+         */
+        public int getTotalFrequency() {
+            return this.totalFrequency;
+        }
+        //</editor-fold>
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.iterator.IteratingSDFReader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Molecule source reading an SDF, e.g. the COCONUT, ChEMBL, or DrugBank SD files. The ID of every molecule is taken
+ * from the given SDF property ("coconut_id", "chembl_id", "DATABASE_ID", ...); if it is not set, the title of the
+ * molecule or its running number is used instead.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SDFMoleculeSource implements MoleculeSource {
+    //<editor-fold desc="Private final variables">
+    /**
+     * The SD file
+     */
+    private final File sdFile;
+
+    /**
+     * Name of the SDF property holding the ID of a molecule
+     */
+    private final String idPropertyName;
+
+    /**
+     * Reader of the file
+     */
+    private final BufferedReader fileReader;
+
+    /**
+     * CDK reader iterating the SD file
+     */
+    private final IteratingSDFReader sdfReader;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of molecules returned so far
+     */
+    private int moleculesCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Opens the given SDF for iteration. Erroneous entries are skipped by the CDK reader.
+     *
+     * @param anSDFile the SD file
+     * @param anIDPropertyName name of the SDF property holding the ID of a molecule
+     * @throws NullPointerException if a parameter is null
+     * @throws IOException if the file cannot be opened
+     */
+    public SDFMoleculeSource(File anSDFile, String anIDPropertyName) throws NullPointerException, IOException {
+        Objects.requireNonNull(anSDFile, "Given file is 'null'.");
+        Objects.requireNonNull(anIDPropertyName, "Given ID property name is 'null'.");
+        this.sdFile = anSDFile;
+        this.idPropertyName = anIDPropertyName;
+        this.fileReader = new BufferedReader(new FileReader(anSDFile));
+        this.sdfReader = new IteratingSDFReader(this.fileReader, DefaultChemObjectBuilder.getInstance(), true);
+        this.moleculesCounter = 0;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return this.sdFile.getName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() throws IOException {
+        return this.sdfReader.hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MoleculeRecord next() throws IOException, IllegalArgumentException {
+        IAtomContainer tmpMolecule = this.sdfReader.next();
+        this.moleculesCounter++;
+        if (Objects.isNull(tmpMolecule)) {
+            throw new IllegalArgumentException("SDF entry number " + this.moleculesCounter + " could not be read.");
+        }
+        String tmpID = tmpMolecule.getProperty(this.idPropertyName);
+        if (Objects.isNull(tmpID)) {
+            tmpID = tmpMolecule.getTitle();
+        }
+        if (Objects.isNull(tmpID) || tmpID.isBlank()) {
+            tmpID = Integer.toString(this.moleculesCounter);
+        }
+        return new MoleculeRecord(tmpID, tmpMolecule);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.sdfReader.close();
+        this.fileReader.close();
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,549 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.interfaces.IAtom;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Job that estimates the basic glycosylation statistics of a dataset from a random sample instead of analysing all of
+ * its molecules, for quick exploratory questions like "what percentage of this dataset contains circular sugars". The
+ * records of any {@link MoleculeSource} are read once and a fixed-size sample is drawn via reservoir sampling, so the
+ * dataset size does not need to be known beforehand and only the sampled records are kept. Only the sampled molecules
+ * are parsed and analysed, in chunks on a {@link ForkJoinPool} as in the MultiDatasetComparisonJob, so the runtime is
+ * dominated by reading the dataset.
+ * <br>The sample is either a simple random sample or stratified by heavy-atom count: larger molecules are much more
+ * often glycosylated, so estimating every heavy-atom count bucket separately and weighting the buckets by their sizes
+ * in the dataset gives narrower intervals for the same sample size. The sample size is split evenly among the buckets.
+ * For SMILES records, the heavy atoms are counted in the SMILES code without parsing it.
+ * <br>Every statistic counting molecules is reported as percentage of the successfully analysed molecules with a 95%
+ * confidence interval: the Wilson score interval of the (stratified) estimate, using the effective sample size and a
+ * finite population correction, which stays sensible for percentages close to 0 or 100.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SamplingStatisticsJob {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of the CSV file the estimates are written to
+     */
+    public static final String ESTIMATES_FILE_NAME = "SampledStatistics.csv";
+
+    /**
+     * Default number of sampled molecules
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 2000;
+
+    /**
+     * Default seed of the random sampling
+     */
+    public static final long DEFAULT_SEED = 23L;
+
+    /**
+     * Exclusive upper heavy-atom count bounds of all but the last stratum of a stratified sample
+     */
+    public static final int[] HEAVY_ATOM_COUNT_BOUNDS = {20, 40, 60, 80};
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Standard normal quantile of the 95% confidence intervals
+     */
+    private static final double Z_95 = 1.959964;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Source of the sampled dataset
+     */
+    private final MoleculeSource moleculeSource;
+
+    /**
+     * Path of the output folder, ending with a file separator
+     */
+    private final String outputFolderPath;
+
+    /**
+     * Number of sampled molecules
+     */
+    private final int sampleSize;
+
+    /**
+     * True if the sample is stratified by heavy-atom count
+     */
+    private final boolean isStratified;
+
+    /**
+     * Random number generator of the sampling
+     */
+    private final Random random;
+
+    /**
+     * Number of worker threads
+     */
+    private final int parallelism;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of records read in the last run
+     */
+    private long populationCounter;
+
+    /**
+     * Number of sampled molecules that could not be parsed or analysed in the last run
+     */
+    private int failedMoleculesCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a job sampling the given dataset.
+     *
+     * @param aMoleculeSource source of the dataset; it is read by the job but not closed
+     * @param anOutputFolderPath path of the output folder, created if it does not exist
+     * @param aSampleSize number of sampled molecules
+     * @param anIsStratified true to stratify the sample by heavy-atom count
+     * @param aSeed seed of the random sampling
+     * @param aParallelism number of worker threads
+     * @throws NullPointerException if the source or path is null
+     * @throws IllegalArgumentException if the sample size is smaller than the number of strata or the parallelism is
+     * smaller than 1
+     */
+    public SamplingStatisticsJob(MoleculeSource aMoleculeSource, String anOutputFolderPath, int aSampleSize,
+                                 boolean anIsStratified, long aSeed, int aParallelism)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aMoleculeSource, "Given molecule source is 'null'.");
+        Objects.requireNonNull(anOutputFolderPath, "Given output folder path is 'null'.");
+        int tmpNumberOfStrata = anIsStratified ? SamplingStatisticsJob.HEAVY_ATOM_COUNT_BOUNDS.length + 1 : 1;
+        if (aSampleSize < tmpNumberOfStrata) {
+            throw new IllegalArgumentException("Given sample size must be at least " + tmpNumberOfStrata + ".");
+        }
+        if (aParallelism < 1) {
+            throw new IllegalArgumentException("Given parallelism must be positive.");
+        }
+        this.moleculeSource = aMoleculeSource;
+        this.outputFolderPath = anOutputFolderPath.endsWith(File.separator) ? anOutputFolderPath
+                : anOutputFolderPath + File.separator;
+        this.sampleSize = aSampleSize;
+        this.isStratified = anIsStratified;
+        this.random = new Random(aSeed);
+        this.parallelism = aParallelism;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Returns the number of heavy atoms of the molecule of the given record. SMILES codes are not parsed; the atoms are
+     * counted lexically, i.e. every organic-subset and aromatic atom symbol and every bracket atom apart from hydrogen
+     * counts as one heavy atom.
+     *
+     * @param aRecord molecule record
+     * @return heavy-atom count
+     * @throws NullPointerException if the given record is null
+     */
+    public static int getHeavyAtomCount(MoleculeRecord aRecord) throws NullPointerException {
+        Objects.requireNonNull(aRecord, "Given record is 'null'.");
+        if (!aRecord.isGivenAsSmilesCode()) {
+            int tmpCount = 0;
+            for (IAtom tmpAtom : aRecord.getAtomContainer().atoms()) {
+                if (Objects.isNull(tmpAtom.getAtomicNumber()) || tmpAtom.getAtomicNumber() != 1) {
+                    tmpCount++;
+                }
+            }
+            return tmpCount;
+        }
+        String tmpSmilesCode = aRecord.getSmilesCode();
+        int tmpCount = 0;
+        for (int i = 0; i < tmpSmilesCode.length(); i++) {
+            char tmpChar = tmpSmilesCode.charAt(i);
+            if (tmpChar == '[') {
+                int j = i + 1;
+                while (j < tmpSmilesCode.length() && Character.isDigit(tmpSmilesCode.charAt(j))) {
+                    j++;
+                }
+                boolean tmpIsHydrogen = j < tmpSmilesCode.length() && tmpSmilesCode.charAt(j) == 'H'
+                        && (j + 1 >= tmpSmilesCode.length() || !Character.isLowerCase(tmpSmilesCode.charAt(j + 1)));
+                if (!tmpIsHydrogen) {
+                    tmpCount++;
+                }
+                int tmpClosingIndex = tmpSmilesCode.indexOf(']', j);
+                i = tmpClosingIndex < 0 ? tmpSmilesCode.length() : tmpClosingIndex;
+            } else if ("BCNOPSFI".indexOf(tmpChar) >= 0 || "bcnops".indexOf(tmpChar) >= 0) {
+                //the second letters of Cl and Br are skipped
+                if (i + 1 < tmpSmilesCode.length() && ((tmpChar == 'C' && tmpSmilesCode.charAt(i + 1) == 'l')
+                        || (tmpChar == 'B' && tmpSmilesCode.charAt(i + 1) == 'r'))) {
+                    i++;
+                }
+                tmpCount++;
+            }
+        }
+        return tmpCount;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Draws the sample, analyses it, and writes the estimates to console and the estimates CSV file in the output
+     * folder.
+     *
+     * @return estimates by statistic name, in the order of the basic statistics
+     * @throws IOException if the source cannot be read or the output cannot be written
+     */
+    public Map<String, Estimate> run() throws IOException {
+        long tmpStartTime = System.currentTimeMillis();
+        int tmpNumberOfStrata = this.isStratified ? SamplingStatisticsJob.HEAVY_ATOM_COUNT_BOUNDS.length + 1 : 1;
+        List<List<MoleculeRecord>> tmpReservoirs = new ArrayList<>(tmpNumberOfStrata);
+        int[] tmpReservoirSizes = new int[tmpNumberOfStrata];
+        for (int i = 0; i < tmpNumberOfStrata; i++) {
+            //the remainder of the sample size is given to the first strata
+            tmpReservoirSizes[i] = this.sampleSize / tmpNumberOfStrata + (i < this.sampleSize % tmpNumberOfStrata ? 1 : 0);
+            tmpReservoirs.add(new ArrayList<>(tmpReservoirSizes[i]));
+        }
+        long[] tmpStratumSizes = new long[tmpNumberOfStrata];
+        while (this.moleculeSource.hasNext()) {
+            MoleculeRecord tmpRecord = this.moleculeSource.next();
+            int tmpStratum = this.isStratified ? this.getStratum(SamplingStatisticsJob.getHeavyAtomCount(tmpRecord)) : 0;
+            long tmpIndex = tmpStratumSizes[tmpStratum]++;
+            //reservoir sampling, algorithm R
+            if (tmpIndex < tmpReservoirSizes[tmpStratum]) {
+                tmpReservoirs.get(tmpStratum).add(tmpRecord);
+            } else {
+                long tmpSlot = (long) (this.random.nextDouble() * (tmpIndex + 1));
+                if (tmpSlot < tmpReservoirSizes[tmpStratum]) {
+                    tmpReservoirs.get(tmpStratum).set((int) tmpSlot, tmpRecord);
+                }
+            }
+        }
+        this.populationCounter = 0;
+        for (long tmpStratumSize : tmpStratumSizes) {
+            this.populationCounter += tmpStratumSize;
+        }
+        List<DatasetGlycosylationStatistics> tmpStratumStatistics = this.analyse(tmpReservoirs);
+        this.failedMoleculesCounter = 0;
+        for (DatasetGlycosylationStatistics tmpStatistics : tmpStratumStatistics) {
+            this.failedMoleculesCounter += tmpStatistics.getFailedMoleculesCounter();
+        }
+        Map<String, Estimate> tmpEstimates = new LinkedHashMap<>(16, 1.0f);
+        for (String tmpName : tmpStratumStatistics.get(0).getMoleculeCounts().keySet()) {
+            tmpEstimates.put(tmpName, this.estimate(tmpName, tmpStratumStatistics, tmpStratumSizes));
+        }
+        System.out.println("Sampled " + (this.sampleSize < this.populationCounter ? this.sampleSize
+                : this.populationCounter) + " of " + this.populationCounter + " molecules in "
+                + (System.currentTimeMillis() - tmpStartTime) + " ms, " + this.failedMoleculesCounter + " failed.");
+        this.writeEstimates(tmpEstimates);
+        return tmpEstimates;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of records read in the last run.
+     *
+     * @return population counter
+     */
+    public long getPopulationCounter() {
+        return this.populationCounter;
+    }
+
+    /**
+     * Returns the number of sampled molecules that could not be parsed or analysed in the last run.
+     *
+     * @return failed molecules counter
+     */
+    public int getFailedMoleculesCounter() {
+        return this.failedMoleculesCounter;
+    }
+
+    /**
+     * Returns the path of the output folder, ending with a file separator.
+     *
+     * @return output folder path
+     */
+    public String getOutputFolderPath() {
+        return this.outputFolderPath;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Returns the stratum of the given heavy-atom count.
+     */
+    private int getStratum(int aHeavyAtomCount) {
+        int tmpStratum = 0;
+        while (tmpStratum < SamplingStatisticsJob.HEAVY_ATOM_COUNT_BOUNDS.length
+                && aHeavyAtomCount >= SamplingStatisticsJob.HEAVY_ATOM_COUNT_BOUNDS[tmpStratum]) {
+            tmpStratum++;
+        }
+        return tmpStratum;
+    }
+
+    /**
+     * Analyses the sampled records of all strata in chunks on a ForkJoinPool and returns the statistics per stratum.
+     */
+    private List<DatasetGlycosylationStatistics> analyse(List<List<MoleculeRecord>> aReservoirsList) {
+        String tmpName = this.moleculeSource.getName();
+        ForkJoinPool tmpPool = new ForkJoinPool(this.parallelism);
+        try {
+            List<List<ForkJoinTask<DatasetGlycosylationStatistics>>> tmpTasks = new ArrayList<>(aReservoirsList.size());
+            for (List<MoleculeRecord> tmpReservoir : aReservoirsList) {
+                List<ForkJoinTask<DatasetGlycosylationStatistics>> tmpStratumTasks = new ArrayList<>();
+                for (int i = 0; i < tmpReservoir.size(); i += MultiDatasetComparisonJob.DEFAULT_CHUNK_SIZE) {
+                    tmpStratumTasks.add(tmpPool.submit(new MultiDatasetComparisonJob.ChunkTask(tmpName,
+                            tmpReservoir.subList(i, Math.min(i + MultiDatasetComparisonJob.DEFAULT_CHUNK_SIZE,
+                                    tmpReservoir.size())), false)));
+                }
+                tmpTasks.add(tmpStratumTasks);
+            }
+            List<DatasetGlycosylationStatistics> tmpStratumStatistics = new ArrayList<>(aReservoirsList.size());
+            for (List<ForkJoinTask<DatasetGlycosylationStatistics>> tmpStratumTasks : tmpTasks) {
+                DatasetGlycosylationStatistics tmpStatistics = new DatasetGlycosylationStatistics(tmpName);
+                for (ForkJoinTask<DatasetGlycosylationStatistics> tmpTask : tmpStratumTasks) {
+                    tmpStatistics.merge(tmpTask.join());
+                }
+                tmpStratumStatistics.add(tmpStatistics);
+            }
+            return tmpStratumStatistics;
+        } finally {
+            tmpPool.shutdown();
+        }
+    }
+
+    /**
+     * Estimates the fraction of the successfully analysed molecules counted by the statistic with the given name from
+     * the stratum samples.
+     */
+    private Estimate estimate(String aName, List<DatasetGlycosylationStatistics> aStratumStatisticsList,
+                              long[] aStratumSizes) {
+        double tmpFraction = 0.0;
+        double tmpVariance = 0.0;
+        int tmpCount = 0;
+        int tmpAnalysedCount = 0;
+        long tmpPopulationSize = 0;
+        //the strata are weighted by their estimated numbers of molecules that can be analysed
+        double[] tmpWeights = new double[aStratumSizes.length];
+        double tmpWeightsSum = 0.0;
+        for (int i = 0; i < aStratumSizes.length; i++) {
+            tmpPopulationSize += aStratumSizes[i];
+            DatasetGlycosylationStatistics tmpStatistics = aStratumStatisticsList.get(i);
+            if (tmpStatistics.getMoleculesCounter() > 0) {
+                tmpWeights[i] = (double) aStratumSizes[i] * (tmpStatistics.getMoleculesCounter()
+                        - tmpStatistics.getFailedMoleculesCounter()) / tmpStatistics.getMoleculesCounter();
+                tmpWeightsSum += tmpWeights[i];
+            }
+        }
+        for (int i = 0; i < aStratumStatisticsList.size(); i++) {
+            DatasetGlycosylationStatistics tmpStatistics = aStratumStatisticsList.get(i);
+            int tmpStratumCount = tmpStatistics.getMoleculeCounts().get(aName);
+            int tmpStratumAnalysedCount = tmpStatistics.getMoleculesCounter() - tmpStatistics.getFailedMoleculesCounter();
+            tmpCount += tmpStratumCount;
+            tmpAnalysedCount += tmpStratumAnalysedCount;
+            if (tmpStratumAnalysedCount == 0) {
+                continue;
+            }
+            double tmpWeight = tmpWeights[i] / tmpWeightsSum;
+            double tmpStratumFraction = (double) tmpStratumCount / tmpStratumAnalysedCount;
+            tmpFraction += tmpWeight * tmpStratumFraction;
+            if (tmpStratumAnalysedCount > 1) {
+                double tmpFinitePopulationCorrection = 1.0 - (double) tmpStatistics.getMoleculesCounter() / aStratumSizes[i];
+                tmpVariance += tmpWeight * tmpWeight * tmpFinitePopulationCorrection * tmpStratumFraction
+                        * (1.0 - tmpStratumFraction) / (tmpStratumAnalysedCount - 1);
+            }
+        }
+        if (tmpAnalysedCount == 0) {
+            return new Estimate(aName, 0, 0, Double.NaN, 0.0, 1.0);
+        }
+        //the Wilson interval of a simple random sample with the same variance, i.e. of the effective sample size
+        double tmpEffectiveSampleSize = tmpVariance > 0.0 ? tmpFraction * (1.0 - tmpFraction) / tmpVariance
+                : tmpAnalysedCount;
+        if (tmpVariance == 0.0 && tmpAnalysedCount >= tmpPopulationSize - this.failedMoleculesCounter) {
+            //the whole dataset was analysed
+            return new Estimate(aName, tmpCount, tmpAnalysedCount, tmpFraction, tmpFraction, tmpFraction);
+        }
+        double tmpZSquared = SamplingStatisticsJob.Z_95 * SamplingStatisticsJob.Z_95;
+        double tmpDenominator = 1.0 + tmpZSquared / tmpEffectiveSampleSize;
+        double tmpCenter = (tmpFraction + tmpZSquared / (2.0 * tmpEffectiveSampleSize)) / tmpDenominator;
+        double tmpHalfWidth = SamplingStatisticsJob.Z_95 * Math.sqrt(tmpFraction * (1.0 - tmpFraction)
+                / tmpEffectiveSampleSize + tmpZSquared / (4.0 * tmpEffectiveSampleSize * tmpEffectiveSampleSize))
+                / tmpDenominator;
+        //the interval always contains the estimate, but rounding may shift its bounds slightly for fractions of 0 or 1
+        return new Estimate(aName, tmpCount, tmpAnalysedCount, tmpFraction,
+                Math.min(tmpFraction, Math.max(0.0, tmpCenter - tmpHalfWidth)),
+                Math.max(tmpFraction, Math.min(1.0, tmpCenter + tmpHalfWidth)));
+    }
+
+    /**
+     * Writes the given estimates to console and the estimates CSV file.
+     */
+    private void writeEstimates(Map<String, Estimate> anEstimatesMap) throws IOException {
+        File tmpOutputFolderFile = new File(this.outputFolderPath);
+        if (!tmpOutputFolderFile.exists()) {
+            tmpOutputFolderFile.mkdirs();
+        }
+        String tmpSeparator = AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR;
+        try (PrintWriter tmpWriter = new PrintWriter(new FileWriter(this.outputFolderPath
+                + SamplingStatisticsJob.ESTIMATES_FILE_NAME))) {
+            String tmpHeader = String.join(tmpSeparator, "Statistic", "Sample count", "Analysed sample molecules",
+                    "Estimate (%)", "95% CI lower bound (%)", "95% CI upper bound (%)");
+            tmpWriter.println(tmpHeader);
+            System.out.println(tmpHeader);
+            for (Estimate tmpEstimate : anEstimatesMap.values()) {
+                String tmpLine = String.join(tmpSeparator, tmpEstimate.getName(),
+                        Integer.toString(tmpEstimate.getSampleCount()),
+                        Integer.toString(tmpEstimate.getAnalysedSampleSize()),
+                        String.format(Locale.US, "%.2f", tmpEstimate.getFraction() * 100),
+                        String.format(Locale.US, "%.2f", tmpEstimate.getLowerBound() * 100),
+                        String.format(Locale.US, "%.2f", tmpEstimate.getUpperBound() * 100));
+                tmpWriter.println(tmpLine);
+                System.out.println(tmpLine);
+            }
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner class Estimate">
+    /**
+     * Estimated fraction of the molecules of a dataset counted by one statistic, with its 95% confidence interval
+     */
+    public static final class Estimate {
+        /**
+         * Name of the statistic
+         */
+        private final String name;
+
+        /**
+         * Number of sampled molecules counted by the statistic
+         */
+        private final int sampleCount;
+
+        /**
+         * Number of successfully analysed sampled molecules
+         */
+        private final int analysedSampleSize;
+
+        /**
+         * Estimated fraction
+         */
+        private final double fraction;
+
+        /**
+         * Lower bound of the confidence interval
+         */
+        private final double lowerBound;
+
+        /**
+         * Upper bound of the confidence interval
+         */
+        private final double upperBound;
+
+        /**
+         * Creates an estimate.
+         *
+         * @param aName name of the statistic
+         * @param aSampleCount number of sampled molecules counted by the statistic
+         * @param anAnalysedSampleSize number of successfully analysed sampled molecules
+         * @param aFraction estimated fraction
+         * @param aLowerBound lower bound of the confidence interval
+         * @param anUpperBound upper bound of the confidence interval
+         */
+        public Estimate(String aName, int aSampleCount, int anAnalysedSampleSize, double aFraction, double aLowerBound,
+                        double anUpperBound) {
+            this.name = aName;
+            this.sampleCount = aSampleCount;
+            this.analysedSampleSize = anAnalysedSampleSize;
+            this.fraction = aFraction;
+            this.lowerBound = aLowerBound;
+            this.upperBound = anUpperBound;
+        }
+
+        /**
+         * Returns the name of the statistic.
+         *
+         * @return name
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Returns the number of sampled molecules counted by the statistic.
+         *
+         * @return sample count
+         */
+        public int getSampleCount() {
+            return this.sampleCount;
+        }
+
+        /**
+         * Returns the number of successfully analysed sampled molecules.
+         *
+         * @return analysed sample size
+         */
+        public int getAnalysedSampleSize() {
+            return this.analysedSampleSize;
+        }
+
+        /**
+         * Returns the estimated fraction of the molecules of the dataset.
+         *
+         * @return fraction between 0 and 1, NaN if no sampled molecule could be analysed
+         */
+        public double getFraction() {
+            return this.fraction;
+        }
+
+        /**
+         * Returns the lower bound of the 95% confidence interval of the fraction.
+         *
+         * @return lower bound
+         */
+        public double getLowerBound() {
+            return this.lowerBound;
+        }
+
+        /**
+         * Returns the upper bound of the 95% confidence interval of the fraction.
+         *
+         * @return upper bound
+         */
+        public double getUpperBound() {
+            return this.upperBound;
+        }
+    }
+    //</editor-fold>
+}
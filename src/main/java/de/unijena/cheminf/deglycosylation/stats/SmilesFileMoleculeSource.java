@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Molecule source reading SMILES files in the format used for the curated ZINC, ChEMBL, and DrugBank datasets, i.e.
+ * one molecule per line with SMILES code, ID, and optionally the number of stereo-isomers, separated by spaces.
+ * Header lines (containing "SMILES") are skipped.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SmilesFileMoleculeSource implements MoleculeSource {
+    //<editor-fold desc="Private final variables">
+    /**
+     * The SMILES file
+     */
+    private final File smilesFile;
+
+    /**
+     * Reader of the SMILES file
+     */
+    private final BufferedReader reader;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Next line to return, read ahead to answer hasNext()
+     */
+    private String nextLine;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Opens the given SMILES file for iteration.
+     *
+     * @param aSmilesFile the SMILES file
+     * @throws NullPointerException if the file is null
+     * @throws IOException if the file cannot be opened
+     */
+    public SmilesFileMoleculeSource(File aSmilesFile) throws NullPointerException, IOException {
+        Objects.requireNonNull(aSmilesFile, "Given file is 'null'.");
+        this.smilesFile = aSmilesFile;
+        this.reader = new BufferedReader(new FileReader(aSmilesFile));
+        this.nextLine = null;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return this.smilesFile.getName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() throws IOException {
+        while (Objects.isNull(this.nextLine)) {
+            String tmpLine = this.reader.readLine();
+            if (Objects.isNull(tmpLine)) {
+                return false;
+            }
+            if (tmpLine.isBlank() || tmpLine.contains("SMILES")) {
+                continue;
+            }
+            this.nextLine = tmpLine;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MoleculeRecord next() throws IOException, IllegalArgumentException {
+        if (!this.hasNext()) {
+            throw new IllegalStateException("No more lines in " + this.getName());
+        }
+        String tmpLine = this.nextLine;
+        this.nextLine = null;
+        return SmilesFileMoleculeSource.parseLine(tmpLine);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Parses a line of a SMILES file into a molecule record. The SMILES code is not parsed into a molecule here.
+     *
+     * @param aLine line consisting of SMILES code, ID, and optionally the number of stereo-isomers
+     * @return record of the line
+     * @throws IllegalArgumentException if the line does not contain SMILES code and ID
+     */
+    public static MoleculeRecord parseLine(String aLine) throws IllegalArgumentException {
+        String[] tmpSmilesCodeAndId = aLine.split(" ");
+        if (tmpSmilesCodeAndId.length < 2) {
+            throw new IllegalArgumentException("Line does not contain SMILES code and ID: " + aLine);
+        }
+        //use this value if the frequency is not given in the file
+        int tmpNrOfStereoIsomers = 0;
+        if (tmpSmilesCodeAndId.length == 3) {
+            tmpNrOfStereoIsomers = Integer.parseInt(tmpSmilesCodeAndId[2]);
+        }
+        return new MoleculeRecord(tmpSmilesCodeAndId[1], tmpSmilesCodeAndId[0], tmpNrOfStereoIsomers);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * List of molecule IDs retained by an analysis for its output, e.g. the IDs of all sugar-containing molecules, that
+ * can give up its memory under memory pressure. Spilling appends the IDs held in memory to a temporary file in a given
+ * folder, so that the list is still written completely; dropping discards all IDs and only counts those added
+ * afterwards. The list is written in the format of List.toString(), i.e. "[ID1, ID2, ...]", or, if it was dropped,
+ * as note with the number of IDs. Instances are not thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class SpillableIDList {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Name of the list, used as prefix of the spill file name
+     */
+    private final String name;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * IDs held in memory, added after the last spill
+     */
+    private List<String> ids;
+
+    /**
+     * File the spilled IDs are appended to, one per line, null if nothing was spilled yet
+     */
+    private File spillFile;
+
+    /**
+     * Number of added IDs, including spilled and dropped ones
+     */
+    private int size;
+
+    /**
+     * True if the IDs were dropped and no more IDs are retained
+     */
+    private boolean isDropped;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates an empty list.
+     *
+     * @param aName name of the list, used as prefix of the spill file name
+     * @throws NullPointerException if the given name is null
+     */
+    public SpillableIDList(String aName) throws NullPointerException {
+        Objects.requireNonNull(aName, "Given name is 'null'.");
+        this.name = aName;
+        this.ids = new ArrayList<>();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds the given ID; it is only counted if the list was dropped.
+     *
+     * @param anID the ID
+     */
+    public void add(String anID) {
+        this.size++;
+        if (!this.isDropped) {
+            this.ids.add(anID);
+        }
+    }
+
+    /**
+     * Appends the IDs held in memory to the spill file of this list in the given folder and releases them. The spill
+     * file is created on the first call and deleted when the JVM exits.
+     *
+     * @param aFolder folder of the spill file, e.g. the output folder of the analysis
+     * @throws IOException if the spill file cannot be written
+     */
+    public void spill(File aFolder) throws IOException {
+        if (this.isDropped || this.ids.isEmpty()) {
+            return;
+        }
+        if (Objects.isNull(this.spillFile)) {
+            this.spillFile = File.createTempFile(this.name + "_", ".ids", aFolder);
+            this.spillFile.deleteOnExit();
+        }
+        try (BufferedWriter tmpWriter = new BufferedWriter(new FileWriter(this.spillFile, true))) {
+            for (String tmpID : this.ids) {
+                tmpWriter.write(String.valueOf(tmpID));
+                tmpWriter.newLine();
+            }
+        }
+        this.ids = new ArrayList<>();
+    }
+
+    /**
+     * Discards all IDs, including spilled ones; IDs added afterwards are only counted.
+     */
+    public void drop() {
+        this.isDropped = true;
+        this.ids = new ArrayList<>(0);
+        if (!Objects.isNull(this.spillFile)) {
+            this.spillFile.delete();
+            this.spillFile = null;
+        }
+    }
+
+    /**
+     * Writes the list to the given writer in the format of List.toString(), reading the spilled IDs back from disk, or
+     * a note with the number of IDs if the list was dropped. No line break is written.
+     *
+     * @param aWriter the writer
+     * @throws IOException if the spill file cannot be read
+     */
+    public void print(PrintWriter aWriter) throws IOException {
+        if (this.isDropped) {
+            aWriter.print("[" + this.size + " IDs, dropped under memory pressure]");
+            return;
+        }
+        aWriter.print('[');
+        boolean tmpIsFirst = true;
+        if (!Objects.isNull(this.spillFile)) {
+            try (BufferedReader tmpReader = new BufferedReader(new FileReader(this.spillFile))) {
+                String tmpID;
+                while (!Objects.isNull(tmpID = tmpReader.readLine())) {
+                    aWriter.print(tmpIsFirst ? tmpID : ", " + tmpID);
+                    tmpIsFirst = false;
+                }
+            }
+        }
+        for (String tmpID : this.ids) {
+            aWriter.print(tmpIsFirst ? tmpID : ", " + tmpID);
+            tmpIsFirst = false;
+        }
+        aWriter.print(']');
+    }
+
+    /**
+     * Returns all retained IDs in the order they were added, reading the spilled IDs back from disk; empty if the list
+     * was dropped.
+     *
+     * @return list of IDs
+     * @throws IOException if the spill file cannot be read
+     */
+    public List<String> toList() throws IOException {
+        List<String> tmpIDs = new ArrayList<>(this.isDropped ? 0 : this.size);
+        if (this.isDropped) {
+            return tmpIDs;
+        }
+        if (!Objects.isNull(this.spillFile)) {
+            try (BufferedReader tmpReader = new BufferedReader(new FileReader(this.spillFile))) {
+                String tmpID;
+                while (!Objects.isNull(tmpID = tmpReader.readLine())) {
+                    tmpIDs.add(tmpID);
+                }
+            }
+        }
+        tmpIDs.addAll(this.ids);
+        return tmpIDs;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the name of the list.
+     *
+     * @return name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the number of added IDs, including spilled and dropped ones.
+     *
+     * @return number of IDs
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of IDs currently held in memory.
+     *
+     * @return number of IDs in memory
+     */
+    public int getInMemoryCount() {
+        return this.ids.size();
+    }
+
+    /**
+     * Returns true if the IDs were dropped under memory pressure.
+     *
+     * @return true if dropped
+     */
+    public boolean isDropped() {
+        return this.isDropped;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,314 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compares a {@link StructureKeyGenerator} with the unique SMILES codes of the molecules of a dataset, for speed and
+ * collision rate. Every molecule is keyed by the candidate strategy and by the {@link UniqueSmilesKeyGenerator}, and
+ * the time spent in each is summed up. Taking the unique SMILES codes as the ground truth, a collision is a distinct
+ * SMILES code that gets the same candidate key as another one, and a split is a SMILES code whose molecules get
+ * different candidate keys; for the unique SMILES strategy itself, collisions of the 64-bit hashes of the SMILES codes
+ * are counted. All distinct SMILES codes are kept in memory, so this class is meant for benchmarks, not for the
+ * analyses.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class StructureKeyBenchmark {
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(StructureKeyBenchmark.class.getName());
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Benchmarked strategy
+     */
+    private final StructureKeyGenerator candidate;
+
+    /**
+     * Unique SMILES strategy the candidate is compared with
+     */
+    private final UniqueSmilesKeyGenerator reference;
+
+    /**
+     * Parser of molecules given as SMILES codes
+     */
+    private final SmilesParser smiPar;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a benchmark of the given strategy.
+     *
+     * @param aCandidate benchmarked strategy
+     * @throws NullPointerException if the given strategy is null
+     */
+    public StructureKeyBenchmark(StructureKeyGenerator aCandidate) throws NullPointerException {
+        Objects.requireNonNull(aCandidate, "Given key generator is 'null'.");
+        this.candidate = aCandidate;
+        this.reference = new UniqueSmilesKeyGenerator();
+        this.smiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Keys all molecules of the given source with both strategies. Molecules that cannot be parsed or keyed are
+     * logged and counted as failed. The source is read but not closed.
+     *
+     * @param aMoleculeSource source of the dataset
+     * @return benchmark result
+     * @throws NullPointerException if the given source is null
+     * @throws IOException if the source cannot be read
+     */
+    public Result run(MoleculeSource aMoleculeSource) throws NullPointerException, IOException {
+        Objects.requireNonNull(aMoleculeSource, "Given molecule source is 'null'.");
+        Result tmpResult = new Result(this.candidate.getName());
+        Map<String, Long> tmpCandidateKeyBySmiles = new HashMap<>(1000, 0.75f);
+        Map<Long, String> tmpSmilesByCandidateKey = new HashMap<>(1000, 0.75f);
+        Map<Long, String> tmpSmilesBySmilesHash = new HashMap<>(1000, 0.75f);
+        Set<String> tmpCollidingSmiles = new HashSet<>(16, 0.75f);
+        Set<String> tmpSplitSmiles = new HashSet<>(16, 0.75f);
+        Set<String> tmpHashCollidingSmiles = new HashSet<>(16, 0.75f);
+        while (aMoleculeSource.hasNext()) {
+            MoleculeRecord tmpRecord = aMoleculeSource.next();
+            tmpResult.moleculesCounter++;
+            long tmpCandidateKey;
+            String tmpSmilesCode;
+            long tmpSmilesHash;
+            try {
+                IAtomContainer tmpMolecule = tmpRecord.isGivenAsSmilesCode()
+                        ? this.smiPar.parseSmiles(tmpRecord.getSmilesCode()) : tmpRecord.getAtomContainer();
+                long tmpStartTime = System.nanoTime();
+                tmpCandidateKey = this.candidate.createKey(tmpMolecule);
+                long tmpCandidateEndTime = System.nanoTime();
+                tmpSmilesCode = this.reference.createUniqueSmilesCode(tmpMolecule);
+                tmpSmilesHash = AglyconeFrequencyCollector.computeStructureHash(tmpSmilesCode);
+                tmpResult.candidateNanoTime += tmpCandidateEndTime - tmpStartTime;
+                tmpResult.referenceNanoTime += System.nanoTime() - tmpCandidateEndTime;
+            } catch (Exception anException) {
+                StructureKeyBenchmark.LOGGER.log(Level.WARNING, anException.toString() + " ID: "
+                        + tmpRecord.getID(), anException);
+                tmpResult.failedMoleculesCounter++;
+                continue;
+            }
+            Long tmpKnownCandidateKey = tmpCandidateKeyBySmiles.putIfAbsent(tmpSmilesCode, tmpCandidateKey);
+            if (Objects.isNull(tmpKnownCandidateKey)) {
+                String tmpKnownSmiles = tmpSmilesByCandidateKey.putIfAbsent(tmpCandidateKey, tmpSmilesCode);
+                if (!Objects.isNull(tmpKnownSmiles)) {
+                    tmpCollidingSmiles.add(tmpSmilesCode);
+                }
+                String tmpKnownHashSmiles = tmpSmilesBySmilesHash.putIfAbsent(tmpSmilesHash, tmpSmilesCode);
+                if (!Objects.isNull(tmpKnownHashSmiles)) {
+                    tmpHashCollidingSmiles.add(tmpSmilesCode);
+                }
+            } else if (tmpKnownCandidateKey != tmpCandidateKey) {
+                tmpSplitSmiles.add(tmpSmilesCode);
+                tmpSmilesByCandidateKey.putIfAbsent(tmpCandidateKey, tmpSmilesCode);
+            }
+        }
+        tmpResult.distinctSmilesCounter = tmpCandidateKeyBySmiles.size();
+        tmpResult.distinctCandidateKeysCounter = tmpSmilesByCandidateKey.size();
+        tmpResult.collisionsCounter = tmpCollidingSmiles.size();
+        tmpResult.splitsCounter = tmpSplitSmiles.size();
+        tmpResult.smilesHashCollisionsCounter = tmpHashCollidingSmiles.size();
+        return tmpResult;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner classes">
+    /**
+     * Result of a benchmark run.
+     */
+    public static final class Result {
+        //<editor-fold desc="Private final variables">
+        /**
+         * Name of the benchmarked strategy
+         */
+        private final String candidateName;
+        //</editor-fold>
+        //
+        //<editor-fold desc="Private variables">
+        //counters and timings, see getters
+        private int moleculesCounter;
+
+        private int failedMoleculesCounter;
+
+        private int distinctSmilesCounter;
+
+        private int distinctCandidateKeysCounter;
+
+        private int collisionsCounter;
+
+        private int splitsCounter;
+
+        private int smilesHashCollisionsCounter;
+
+        private long candidateNanoTime;
+
+        private long referenceNanoTime;
+        //</editor-fold>
+        //
+        //<editor-fold desc="Constructors">
+        /**
+         * Creates an empty result.
+         *
+         * @param aCandidateName name of the benchmarked strategy
+         */
+        private Result(String aCandidateName) {
+            this.candidateName = aCandidateName;
+        }
+        //</editor-fold>
+        //
+        //<editor-fold desc="Public properties">
+        /**
+         * Returns the number of read molecules, including failed ones.
+         *
+         * @return molecules counter
+         */
+        public int getMoleculesCounter() {
+            return this.moleculesCounter;
+        }
+
+        /**
+         * Returns the number of molecules that could not be parsed or keyed.
+         *
+         * @return failed molecules counter
+         */
+        public int getFailedMoleculesCounter() {
+            return this.failedMoleculesCounter;
+        }
+
+        /**
+         * Returns the number of distinct unique SMILES codes.
+         *
+         * @return distinct SMILES codes counter
+         */
+        public int getDistinctSmilesCounter() {
+            return this.distinctSmilesCounter;
+        }
+
+        /**
+         * Returns the number of distinct keys of the benchmarked strategy.
+         *
+         * @return distinct candidate keys counter
+         */
+        public int getDistinctCandidateKeysCounter() {
+            return this.distinctCandidateKeysCounter;
+        }
+
+        /**
+         * Returns the number of distinct SMILES codes that got the same candidate key as another SMILES code.
+         *
+         * @return collisions counter
+         */
+        public int getCollisionsCounter() {
+            return this.collisionsCounter;
+        }
+
+        /**
+         * Returns the number of SMILES codes whose molecules got different candidate keys.
+         *
+         * @return splits counter
+         */
+        public int getSplitsCounter() {
+            return this.splitsCounter;
+        }
+
+        /**
+         * Returns the number of distinct SMILES codes whose 64-bit hash equals that of another SMILES code.
+         *
+         * @return SMILES hash collisions counter
+         */
+        public int getSmilesHashCollisionsCounter() {
+            return this.smilesHashCollisionsCounter;
+        }
+
+        /**
+         * Returns the total time spent in the benchmarked strategy, in nanoseconds.
+         *
+         * @return candidate time
+         */
+        public long getCandidateNanoTime() {
+            return this.candidateNanoTime;
+        }
+
+        /**
+         * Returns the total time spent in generating and hashing the unique SMILES codes, in nanoseconds.
+         *
+         * @return unique SMILES time
+         */
+        public long getReferenceNanoTime() {
+            return this.referenceNanoTime;
+        }
+
+        /**
+         * Returns the ratio of the unique SMILES time to the time of the benchmarked strategy.
+         *
+         * @return speed-up of the benchmarked strategy
+         */
+        public double getSpeedUp() {
+            return (double) this.referenceNanoTime / Math.max(1L, this.candidateNanoTime);
+        }
+
+        /**
+         * Returns the summary of the result in several lines.
+         *
+         * @return summary
+         */
+        @Override
+        public String toString() {
+            int tmpKeyedMoleculesCount = Math.max(1, this.moleculesCounter - this.failedMoleculesCounter);
+            return String.format(Locale.US, "Molecules: %d (failed: %d)%n"
+                            + "Distinct unique SMILES codes: %d, 64-bit hash collisions: %d%n"
+                            + "Distinct %s keys: %d, collisions: %d (%.4f%%), splits: %d%n"
+                            + "Unique SMILES: %.2f us per molecule, %s: %.2f us per molecule, speed-up: %.1f",
+                    this.moleculesCounter, this.failedMoleculesCounter,
+                    this.distinctSmilesCounter, this.smilesHashCollisionsCounter,
+                    this.candidateName, this.distinctCandidateKeysCounter, this.collisionsCounter,
+                    this.collisionsCounter * 100.0 / Math.max(1, this.distinctSmilesCounter), this.splitsCounter,
+                    this.referenceNanoTime / 1000.0 / tmpKeyedMoleculesCount, this.candidateName,
+                    this.candidateNanoTime / 1000.0 / tmpKeyedMoleculesCount, this.getSpeedUp());
+        }
+        //</editor-fold>
+    }
+    //</editor-fold>
+}
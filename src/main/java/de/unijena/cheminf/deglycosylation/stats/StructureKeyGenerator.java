@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * Strategy creating a 64-bit key of the stereo-free structure of a molecule, so that molecules can be grouped, e.g.
+ * stereo-isomers in dataset curation or identical aglycones and sugar moieties, without keeping a canonical string
+ * per molecule. Two molecules with the same structure get the same key; different structures get different keys
+ * apart from rare collisions, see the implementations. The strategies can be compared on a dataset with the
+ * {@link StructureKeyBenchmark}.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public interface StructureKeyGenerator {
+    /**
+     * Returns a short name of the strategy, e.g. for benchmark output.
+     *
+     * @return name of the strategy
+     */
+    String getName();
+
+    /**
+     * Returns the 64-bit key of the stereo-free structure of the given molecule. The molecule is not altered.
+     *
+     * @param aMolecule the molecule
+     * @return structure key
+     * @throws CDKException if the key cannot be created
+     */
+    long createKey(IAtomContainer aMolecule) throws CDKException;
+}
@@ -0,0 +1,309 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Index of stereo-free structures for curating datasets, e.g. retaining only one molecule of every stereo-isomer
+ * group or filtering out molecules contained in a reference dataset. Molecules are looked up by the key of a
+ * {@link StructureKeyGenerator}, the {@link GraphHashKeyGenerator} by default, and their unique SMILES code is only
+ * generated on a key hit, to rule out a key collision; molecules with the same key but different unique SMILES codes
+ * are kept in separate groups. Every group keeps the SMILES code of its first molecule as it was given or, for
+ * molecules that were not parsed from SMILES codes, a stereo-free SMILES code that is not canonical and hence cheap to
+ * generate. The unique SMILES code of a group is only generated from it when it is needed for a collision check, so
+ * the unique SMILES codes of most molecules are never generated.
+ * <br>The default keys do not depend on whether the molecules were given in aromatic or Kekulé form, see
+ * {@link GraphHashKeyGenerator}; if the same structure gets different keys, it ends up in more than one group,
+ * which the {@link StructureKeyBenchmark} reports as split. Instances are not thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class StructureKeyIndex {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Generator of the keys the groups are looked up by
+     */
+    private final StructureKeyGenerator keyGenerator;
+
+    /**
+     * Generator of the unique SMILES codes for the collision checks
+     */
+    private final UniqueSmilesKeyGenerator smilesGenerator;
+
+    /**
+     * Generator of the stereo-free, non-canonical SMILES codes of molecules without a given SMILES code
+     */
+    private final SmilesGenerator genericSmiGen;
+
+    /**
+     * Parser of the given SMILES codes of the groups, to generate their unique SMILES codes
+     */
+    private final SmilesParser smiPar;
+
+    /**
+     * First group with the respective key; groups with colliding keys are chained to it
+     */
+    private final HashMap<Long, Group> groupsByKey;
+
+    /**
+     * All groups in the order of their first molecule
+     */
+    private final List<Group> groups;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    /**
+     * Number of groups whose key collided with the key of a different structure
+     */
+    private int collisionsCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor that looks up the molecules by their graph hash.
+     *
+     * @param anInitialCapacity expected number of groups
+     */
+    public StructureKeyIndex(int anInitialCapacity) {
+        this(new GraphHashKeyGenerator(), anInitialCapacity);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param aKeyGenerator generator of the keys the molecules are looked up by
+     * @param anInitialCapacity expected number of groups
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public StructureKeyIndex(StructureKeyGenerator aKeyGenerator, int anInitialCapacity) throws IllegalArgumentException {
+        Objects.requireNonNull(aKeyGenerator, "Given key generator is 'null'.");
+        if (anInitialCapacity < 0) {
+            throw new IllegalArgumentException("Given initial capacity is negative.");
+        }
+        this.keyGenerator = aKeyGenerator;
+        this.smilesGenerator = new UniqueSmilesKeyGenerator();
+        this.genericSmiGen = new SmilesGenerator(SmiFlavor.Generic);
+        this.smiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        this.groupsByKey = new HashMap<>((int) (anInitialCapacity * 1.1), 1.0f);
+        this.groups = new ArrayList<>(anInitialCapacity);
+        this.collisionsCounter = 0;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Adds the given molecule to the group of its structure and returns the group; if there is none yet, a new group
+     * is created with the given SMILES code and ID. Otherwise, only the frequency of the group is increased.
+     *
+     * @param aMolecule the molecule
+     * @param aSmilesCode SMILES code the molecule was parsed from; if it is 'null', e.g. for molecules read from an
+     *                    SD file, a stereo-free SMILES code is generated for a new group
+     * @param anID ID of the molecule, may be 'null'
+     * @return the group of the molecule
+     * @throws CDKException if the key or a unique SMILES code cannot be generated
+     */
+    public Group add(IAtomContainer aMolecule, String aSmilesCode, String anID) throws CDKException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        long tmpKey = this.keyGenerator.createKey(aMolecule);
+        Group tmpFirstGroup = this.groupsByKey.get(tmpKey);
+        if (Objects.isNull(tmpFirstGroup)) {
+            Group tmpNewGroup = new Group(Objects.isNull(aSmilesCode)
+                    ? this.genericSmiGen.create(aMolecule) : aSmilesCode, null, anID);
+            this.groupsByKey.put(tmpKey, tmpNewGroup);
+            this.groups.add(tmpNewGroup);
+            return tmpNewGroup;
+        }
+        String tmpUniqueSmilesCode = this.smilesGenerator.createUniqueSmilesCode(aMolecule);
+        Group tmpLastGroup = null;
+        for (Group tmpGroup = tmpFirstGroup; !Objects.isNull(tmpGroup); tmpGroup = tmpGroup.next) {
+            if (this.getUniqueSmilesCode(tmpGroup).equals(tmpUniqueSmilesCode)) {
+                tmpGroup.frequency++;
+                return tmpGroup;
+            }
+            tmpLastGroup = tmpGroup;
+        }
+        Group tmpNewGroup = new Group(Objects.isNull(aSmilesCode) ? tmpUniqueSmilesCode : aSmilesCode,
+                tmpUniqueSmilesCode, anID);
+        tmpLastGroup.next = tmpNewGroup;
+        this.groups.add(tmpNewGroup);
+        this.collisionsCounter++;
+        return tmpNewGroup;
+    }
+
+    /**
+     * Returns the group of the structure of the given molecule without adding it.
+     *
+     * @param aMolecule the molecule
+     * @return the group of the molecule or 'null' if its structure is not in this index
+     * @throws CDKException if the key or a unique SMILES code cannot be generated
+     */
+    public Group find(IAtomContainer aMolecule) throws CDKException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        Group tmpFirstGroup = this.groupsByKey.get(this.keyGenerator.createKey(aMolecule));
+        if (Objects.isNull(tmpFirstGroup)) {
+            return null;
+        }
+        String tmpUniqueSmilesCode = this.smilesGenerator.createUniqueSmilesCode(aMolecule);
+        for (Group tmpGroup = tmpFirstGroup; !Objects.isNull(tmpGroup); tmpGroup = tmpGroup.next) {
+            if (this.getUniqueSmilesCode(tmpGroup).equals(tmpUniqueSmilesCode)) {
+                return tmpGroup;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the unique SMILES code of the given group, generated from its SMILES code on the first call.
+     *
+     * @param aGroup a group of this index
+     * @return unique (stereo-free) SMILES code of the group
+     * @throws CDKException if the SMILES code of the group cannot be parsed or the unique SMILES code cannot be
+     * generated
+     */
+    public String getUniqueSmilesCode(Group aGroup) throws CDKException {
+        Objects.requireNonNull(aGroup, "Given group is 'null'.");
+        if (Objects.isNull(aGroup.uniqueSmilesCode)) {
+            aGroup.uniqueSmilesCode = this.smilesGenerator.createUniqueSmilesCode(
+                    this.smiPar.parseSmiles(aGroup.smilesCode));
+        }
+        return aGroup.uniqueSmilesCode;
+    }
+
+    /**
+     * Returns all groups in the order of their first molecule.
+     *
+     * @return unmodifiable list of the groups
+     */
+    public List<Group> getGroups() {
+        return Collections.unmodifiableList(this.groups);
+    }
+
+    /**
+     * Returns the number of groups, i.e. of distinct structures.
+     *
+     * @return number of groups
+     */
+    public int size() {
+        return this.groups.size();
+    }
+
+    /**
+     * Returns the number of groups whose key collided with the key of a different structure.
+     *
+     * @return number of key collisions
+     */
+    public int getCollisionsCounter() {
+        return this.collisionsCounter;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static inner class Group">
+    /**
+     * Group of molecules with the same stereo-free structure.
+     */
+    public static final class Group {
+        /**
+         * SMILES code of the first molecule
+         */
+        private final String smilesCode;
+
+        /**
+         * ID of the first molecule, may be 'null'
+         */
+        private final String id;
+
+        /**
+         * Unique SMILES code, generated lazily
+         */
+        private String uniqueSmilesCode;
+
+        /**
+         * Number of molecules in this group
+         */
+        private int frequency;
+
+        /**
+         * Next group with the same key
+         */
+        private Group next;
+
+        /**
+         * Constructor.
+         *
+         * @param aSmilesCode SMILES code of the first molecule
+         * @param aUniqueSmilesCode unique SMILES code if it is already known, 'null' otherwise
+         * @param anID ID of the first molecule
+         */
+        private Group(String aSmilesCode, String aUniqueSmilesCode, String anID) {
+            this.smilesCode = aSmilesCode;
+            this.uniqueSmilesCode = aUniqueSmilesCode;
+            this.id = anID;
+            this.frequency = 1;
+            this.next = null;
+        }
+
+        /**
+         * Returns the SMILES code of the first molecule as it was given or, if none was given, a stereo-free SMILES
+         * code of it. The given code may encode stereochemistry; for the canonical stereo-free SMILES code of the
+         * group, see {@link StructureKeyIndex#getUniqueSmilesCode(Group)}.
+         *
+         * @return SMILES code of the first molecule
+         */
+        public String getSmilesCode() {
+            return this.smilesCode;
+        }
+
+        /**
+         * Returns the ID of the first molecule of this group.
+         *
+         * @return ID, may be 'null'
+         */
+        public String getID() {
+            return this.id;
+        }
+
+        /**
+         * Returns the number of molecules added to this group.
+         *
+         * @return frequency
+         */
+        public int getFrequency() {
+            return this.frequency;
+        }
+    }
+    //</editor-fold>
+}
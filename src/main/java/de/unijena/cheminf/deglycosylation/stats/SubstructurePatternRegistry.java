@@ -0,0 +1,287 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.iterator.IteratingSDFReader;
+import org.openscience.cdk.isomorphism.DfPattern;
+import org.openscience.cdk.isomorphism.Pattern;
+import org.openscience.cdk.smarts.SmartsPattern;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Global registry of compiled substructure pattern sets, e.g. the linear sugar patterns of the SRU, the sugar moieties
+ * of the review SDF, or custom SMARTS codes. Every set is compiled once per JVM and cached by the SHA-256 hash of its
+ * content, i.e. of the SMILES or SMARTS codes or of the SDF file and its ID property name, so that any number of
+ * threads and runs share the same {@link SubstructurePatternSet}; if multiple threads request a set that is not
+ * cached yet, one of them compiles it while the others wait. Since a changed SDF has a different hash, it is compiled
+ * anew, but the outdated set stays cached until clear() is called.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class SubstructurePatternRegistry {
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(SubstructurePatternRegistry.class.getName());
+
+    /**
+     * Compiled pattern sets by their keys
+     */
+    private static final Map<String, SubstructurePatternSet> PATTERN_SETS = new ConcurrentHashMap<>(16);
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Private constructor, the registry is only accessed statically.
+     */
+    private SubstructurePatternRegistry() {
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Returns the compiled substructure patterns of the given SMILES codes, matched like DfPattern.findSubstructure()
+     * of the parsed molecules.
+     *
+     * @param aSmilesCodes SMILES codes of the patterns
+     * @return compiled pattern set, in the order of the given list
+     * @throws NullPointerException if the list or any of its elements is null
+     * @throws IllegalArgumentException if a SMILES code cannot be parsed
+     */
+    public static SubstructurePatternSet getSmilesPatterns(List<String> aSmilesCodes)
+            throws NullPointerException, IllegalArgumentException {
+        String tmpKey = "smiles:" + SubstructurePatternRegistry.computeContentHash(aSmilesCodes);
+        return SubstructurePatternRegistry.PATTERN_SETS.computeIfAbsent(tmpKey,
+                aKey -> SubstructurePatternRegistry.compileSmilesPatterns(aKey, aSmilesCodes));
+    }
+
+    /**
+     * Returns the compiled patterns of the linear sugar patterns list of the given SRU in its current settings, e.g.
+     * including the linear acidic sugars if they are detected.
+     *
+     * @param aSugarRemovalUtil the SRU
+     * @return compiled pattern set, in the order of the patterns list
+     * @throws NullPointerException if the SRU is null
+     */
+    public static SubstructurePatternSet getLinearSugarPatterns(SugarRemovalUtility aSugarRemovalUtil)
+            throws NullPointerException {
+        Objects.requireNonNull(aSugarRemovalUtil, "Given Sugar Removal Utility is 'null'.");
+        return SubstructurePatternRegistry.getSmilesPatterns(aSugarRemovalUtil.getLinearSugarPatternsList());
+    }
+
+    /**
+     * Returns the compiled patterns of the given SMARTS codes.
+     *
+     * @param aSmartsCodes SMARTS codes of the patterns
+     * @return compiled pattern set, in the order of the given list
+     * @throws NullPointerException if the list or any of its elements is null
+     * @throws IllegalArgumentException if a SMARTS code cannot be parsed
+     */
+    public static SubstructurePatternSet getSmartsPatterns(List<String> aSmartsCodes)
+            throws NullPointerException, IllegalArgumentException {
+        String tmpKey = "smarts:" + SubstructurePatternRegistry.computeContentHash(aSmartsCodes);
+        return SubstructurePatternRegistry.PATTERN_SETS.computeIfAbsent(tmpKey,
+                aKey -> SubstructurePatternRegistry.compileSmartsPatterns(aKey, aSmartsCodes));
+    }
+
+    /**
+     * Returns the compiled substructure patterns of the molecules in the given SDF, with their IDs taken from the given
+     * property. Erroneous entries and entries whose unique SMILES code cannot be generated are skipped.
+     *
+     * @param anSDFile the SDF
+     * @param anIDPropertyName name of the property holding the ID of an entry
+     * @return compiled pattern set, in the order of the file
+     * @throws NullPointerException if any parameter is null
+     * @throws IOException if the file cannot be read
+     */
+    public static SubstructurePatternSet getSDFPatterns(File anSDFile, String anIDPropertyName)
+            throws NullPointerException, IOException {
+        Objects.requireNonNull(anSDFile, "Given SD file is 'null'.");
+        Objects.requireNonNull(anIDPropertyName, "Given ID property name is 'null'.");
+        String tmpKey = "sdf:" + SubstructurePatternRegistry.computeContentHash(anSDFile, anIDPropertyName);
+        try {
+            return SubstructurePatternRegistry.PATTERN_SETS.computeIfAbsent(tmpKey,
+                    aKey -> SubstructurePatternRegistry.compileSDFPatterns(aKey, anSDFile, anIDPropertyName));
+        } catch (UncheckedIOException anException) {
+            throw anException.getCause();
+        }
+    }
+
+    /**
+     * Returns the number of cached pattern sets.
+     *
+     * @return number of pattern sets
+     */
+    public static int size() {
+        return SubstructurePatternRegistry.PATTERN_SETS.size();
+    }
+
+    /**
+     * Removes all cached pattern sets; sets already handed out stay usable.
+     */
+    public static void clear() {
+        SubstructurePatternRegistry.PATTERN_SETS.clear();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Compiles the given SMILES codes into a pattern set.
+     */
+    private static SubstructurePatternSet compileSmilesPatterns(String aKey, List<String> aSmilesCodes)
+            throws IllegalArgumentException {
+        SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        int tmpSize = aSmilesCodes.size();
+        IAtomContainer[] tmpMolecules = new IAtomContainer[tmpSize];
+        Pattern[] tmpPatterns = new Pattern[tmpSize];
+        for (int i = 0; i < tmpSize; i++) {
+            try {
+                tmpMolecules[i] = tmpSmiPar.parseSmiles(aSmilesCodes.get(i));
+            } catch (CDKException anException) {
+                throw new IllegalArgumentException("Given SMILES code " + aSmilesCodes.get(i) + " cannot be parsed.",
+                        anException);
+            }
+            tmpPatterns[i] = DfPattern.findSubstructure(tmpMolecules[i]);
+        }
+        String[] tmpCodes = aSmilesCodes.toArray(new String[0]);
+        return new SubstructurePatternSet(aKey, tmpCodes, tmpCodes, tmpMolecules, tmpPatterns, 0);
+    }
+
+    /**
+     * Compiles the given SMARTS codes into a pattern set.
+     */
+    private static SubstructurePatternSet compileSmartsPatterns(String aKey, List<String> aSmartsCodes)
+            throws IllegalArgumentException {
+        int tmpSize = aSmartsCodes.size();
+        Pattern[] tmpPatterns = new Pattern[tmpSize];
+        for (int i = 0; i < tmpSize; i++) {
+            tmpPatterns[i] = SmartsPattern.create(aSmartsCodes.get(i), DefaultChemObjectBuilder.getInstance());
+        }
+        String[] tmpCodes = aSmartsCodes.toArray(new String[0]);
+        return new SubstructurePatternSet(aKey, tmpCodes, tmpCodes, new IAtomContainer[tmpSize], tmpPatterns, 0);
+    }
+
+    /**
+     * Reads and compiles the molecules of the given SDF into a pattern set.
+     */
+    private static SubstructurePatternSet compileSDFPatterns(String aKey, File anSDFile, String anIDPropertyName)
+            throws UncheckedIOException {
+        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
+        List<String> tmpIDs = new ArrayList<>(400);
+        List<String> tmpSmilesCodes = new ArrayList<>(400);
+        List<IAtomContainer> tmpMolecules = new ArrayList<>(400);
+        List<Pattern> tmpPatterns = new ArrayList<>(400);
+        int tmpSkippedEntriesCount = 0;
+        try (IteratingSDFReader tmpReader = new IteratingSDFReader(new FileInputStream(anSDFile),
+                DefaultChemObjectBuilder.getInstance(), true)) {
+            while (tmpReader.hasNext()) {
+                IAtomContainer tmpMolecule = tmpReader.next();
+                String tmpID = tmpMolecule.getProperty(anIDPropertyName);
+                try {
+                    tmpSmilesCodes.add(tmpSmiGen.create(tmpMolecule));
+                } catch (CDKException anException) {
+                    SubstructurePatternRegistry.LOGGER.log(Level.WARNING, anException + " ID: " + tmpID, anException);
+                    tmpSkippedEntriesCount++;
+                    continue;
+                }
+                tmpIDs.add(tmpID);
+                tmpMolecules.add(tmpMolecule);
+                tmpPatterns.add(DfPattern.findSubstructure(tmpMolecule));
+            }
+        } catch (IOException anException) {
+            throw new UncheckedIOException(anException);
+        }
+        return new SubstructurePatternSet(aKey, tmpIDs.toArray(new String[0]), tmpSmilesCodes.toArray(new String[0]),
+                tmpMolecules.toArray(new IAtomContainer[0]), tmpPatterns.toArray(new Pattern[0]),
+                tmpSkippedEntriesCount);
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given codes, separated by line breaks, as hexadecimal string.
+     */
+    private static String computeContentHash(List<String> aCodes) throws NullPointerException {
+        Objects.requireNonNull(aCodes, "Given list is 'null'.");
+        MessageDigest tmpDigest = SubstructurePatternRegistry.createDigest();
+        for (String tmpCode : aCodes) {
+            Objects.requireNonNull(tmpCode, "Given list contains 'null'.");
+            tmpDigest.update(tmpCode.getBytes(StandardCharsets.UTF_8));
+            tmpDigest.update((byte) '\n');
+        }
+        return HexFormat.of().formatHex(tmpDigest.digest());
+    }
+
+    /**
+     * Computes the SHA-256 hash of the content of the given file and the given property name as hexadecimal string.
+     */
+    private static String computeContentHash(File aFile, String aPropertyName) throws IOException {
+        MessageDigest tmpDigest = SubstructurePatternRegistry.createDigest();
+        byte[] tmpBuffer = new byte[1 << 16];
+        try (InputStream tmpInputStream = new FileInputStream(aFile)) {
+            int tmpLength;
+            while ((tmpLength = tmpInputStream.read(tmpBuffer)) != -1) {
+                tmpDigest.update(tmpBuffer, 0, tmpLength);
+            }
+        }
+        tmpDigest.update((byte) '\n');
+        tmpDigest.update(aPropertyName.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(tmpDigest.digest());
+    }
+
+    /**
+     * Creates a SHA-256 message digest, which every Java platform is required to support.
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException anException) {
+            throw new IllegalStateException("SHA-256 is not supported.", anException);
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,217 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.isomorphism.Pattern;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Set of compiled substructure patterns, e.g. the linear sugar patterns of the SRU or the sugar moieties of the review
+ * SDF, as handed out by the {@link SubstructurePatternRegistry}. Every pattern has an ID, the SMILES or SMARTS code it
+ * was compiled from, and, unless it was given as SMARTS, the molecule it represents.
+ * <br>Instances are immutable and can be shared by any number of threads: the compiled patterns are only read while
+ * matching, every match uses its own search state, and the molecules are only handed out as copies. SMARTS patterns
+ * perceive rings and aromaticity in the target molecule before matching, i.e. they set properties of the target, so
+ * a target must not be matched by multiple threads at the same time.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class SubstructurePatternSet {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Key of this set in the registry, i.e. the type of the source and the hash of its content
+     */
+    private final String key;
+
+    /**
+     * IDs of the patterns
+     */
+    private final String[] ids;
+
+    /**
+     * SMILES or SMARTS codes the patterns were compiled from
+     */
+    private final String[] sourceCodes;
+
+    /**
+     * Molecules the patterns represent, null elements for SMARTS patterns
+     */
+    private final IAtomContainer[] molecules;
+
+    /**
+     * Compiled patterns
+     */
+    private final Pattern[] patterns;
+
+    /**
+     * Number of entries of the source that could not be compiled into a pattern
+     */
+    private final int skippedEntriesCount;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a set from the given arrays, which are taken over without copying and must have the same length.
+     *
+     * @param aKey key of the set in the registry
+     * @param anIDs IDs of the patterns
+     * @param aSourceCodes SMILES or SMARTS codes the patterns were compiled from
+     * @param aMolecules molecules the patterns represent, null elements for SMARTS patterns
+     * @param aPatterns compiled patterns
+     * @param aSkippedEntriesCount number of entries of the source that could not be compiled
+     * @throws NullPointerException if any parameter is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    SubstructurePatternSet(String aKey, String[] anIDs, String[] aSourceCodes, IAtomContainer[] aMolecules,
+                           Pattern[] aPatterns, int aSkippedEntriesCount)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aKey, "Given key is 'null'.");
+        Objects.requireNonNull(anIDs, "Given IDs are 'null'.");
+        Objects.requireNonNull(aSourceCodes, "Given source codes are 'null'.");
+        Objects.requireNonNull(aMolecules, "Given molecules are 'null'.");
+        Objects.requireNonNull(aPatterns, "Given patterns are 'null'.");
+        if (anIDs.length != aPatterns.length || aSourceCodes.length != aPatterns.length
+                || aMolecules.length != aPatterns.length) {
+            throw new IllegalArgumentException("Given arrays differ in length.");
+        }
+        this.key = aKey;
+        this.ids = anIDs;
+        this.sourceCodes = aSourceCodes;
+        this.molecules = aMolecules;
+        this.patterns = aPatterns;
+        this.skippedEntriesCount = aSkippedEntriesCount;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Checks whether the given pattern matches the given molecule.
+     *
+     * @param anIndex index of the pattern in the set
+     * @param aMolecule target molecule
+     * @return true if the pattern is a substructure of the molecule
+     * @throws NullPointerException if the molecule is null
+     */
+    public boolean matches(int anIndex, IAtomContainer aMolecule) throws NullPointerException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        return this.patterns[anIndex].matches(aMolecule);
+    }
+
+    /**
+     * Matches all patterns of the set against the given molecule.
+     *
+     * @param aMolecule target molecule
+     * @return indices of the patterns that are substructures of the molecule
+     * @throws NullPointerException if the molecule is null
+     */
+    public BitSet matchAll(IAtomContainer aMolecule) throws NullPointerException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        BitSet tmpMatches = new BitSet(this.patterns.length);
+        for (int i = 0; i < this.patterns.length; i++) {
+            if (this.patterns[i].matches(aMolecule)) {
+                tmpMatches.set(i);
+            }
+        }
+        return tmpMatches;
+    }
+
+    /**
+     * Returns a copy of the molecule the given pattern represents, which the caller may alter, e.g. by passing it to
+     * the SRU.
+     *
+     * @param anIndex index of the pattern in the set
+     * @return copy of the molecule, null if the pattern was given as SMARTS
+     * @throws CloneNotSupportedException if the molecule cannot be cloned
+     */
+    public IAtomContainer getMoleculeCopy(int anIndex) throws CloneNotSupportedException {
+        IAtomContainer tmpMolecule = this.molecules[anIndex];
+        return Objects.isNull(tmpMolecule) ? null : tmpMolecule.clone();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the key of this set in the registry.
+     *
+     * @return key
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Returns the number of patterns in the set.
+     *
+     * @return number of patterns
+     */
+    public int size() {
+        return this.patterns.length;
+    }
+
+    /**
+     * Returns the ID of the given pattern, i.e. the value of the ID property for SDF entries and the SMILES or SMARTS
+     * code otherwise.
+     *
+     * @param anIndex index of the pattern in the set
+     * @return ID
+     */
+    public String getID(int anIndex) {
+        return this.ids[anIndex];
+    }
+
+    /**
+     * Returns the SMILES or SMARTS code the given pattern was compiled from; for SDF entries, this is their unique
+     * SMILES code.
+     *
+     * @param anIndex index of the pattern in the set
+     * @return SMILES or SMARTS code
+     */
+    public String getSourceCode(int anIndex) {
+        return this.sourceCodes[anIndex];
+    }
+
+    /**
+     * Returns the compiled pattern. Patterns are immutable and can be matched by multiple threads.
+     *
+     * @param anIndex index of the pattern in the set
+     * @return pattern
+     */
+    public Pattern getPattern(int anIndex) {
+        return this.patterns[anIndex];
+    }
+
+    /**
+     * Returns the number of entries of the source that could not be compiled into a pattern and were skipped.
+     *
+     * @return number of skipped entries
+     */
+    public int getSkippedEntriesCount() {
+        return this.skippedEntriesCount;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,346 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import java.util.Objects;
+
+/**
+ * Results of the sugar detection in a batch of molecules, see {@link BatchSugarRemovalUtility}, stored as arrays
+ * with one entry per molecule instead of one object per molecule: a byte of flags, the circular and linear sugar
+ * counts as in {@link MoleculeGlycosylationResult}, and the heavy atom counts before and after removal of all sugars.
+ * The circular and linear sugar candidates of all molecules are annotated in further arrays with one entry per
+ * candidate; the candidates of molecule i are those from getCandidatesOffset(i) (inclusive) to
+ * getCandidatesOffset(i + 1) (exclusive), circular ones first.
+ * <br>Instances are immutable and can be read by multiple threads.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class SugarDetectionBatch {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Molecule flag: the molecule contains circular sugars
+     */
+    public static final byte CONTAINS_CIRCULAR_SUGARS_FLAG = 1;
+
+    /**
+     * Molecule flag: the molecule contains linear sugars
+     */
+    public static final byte CONTAINS_LINEAR_SUGARS_FLAG = 1 << 1;
+
+    /**
+     * Molecule flag: the molecule is empty after removal of all sugars
+     */
+    public static final byte BASICALLY_A_SUGAR_FLAG = 1 << 2;
+
+    /**
+     * Molecule flag: the molecule is a single circular sugar without glycosidic bond that is detected nonetheless
+     */
+    public static final byte QUALIFIED_FOR_GLYCOSIDIC_BOND_EXEMPTION_FLAG = 1 << 3;
+
+    /**
+     * Molecule flag: the molecule was null or could not be analysed; all its counts are zero, and its candidates are
+     * only listed if it failed after their detection
+     */
+    public static final byte FAILED_FLAG = 1 << 4;
+
+    /**
+     * Molecule flag: the molecule has a spiro atom, i.e. an atom shared by two ring systems, which is how the SRU
+     * identifies spiro atoms of circular sugar candidates
+     */
+    public static final byte CONTAINS_SPIRO_ATOM_FLAG = 1 << 5;
+
+    /**
+     * Candidate flag: the candidate is a circular sugar candidate, otherwise a linear one
+     */
+    public static final byte CIRCULAR_CANDIDATE_FLAG = 1;
+
+    /**
+     * Candidate flag: the circular candidate is attached to the rest of the molecule via an O-glycosidic bond
+     */
+    public static final byte GLYCOSIDIC_BOND_CANDIDATE_FLAG = 1 << 1;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    //per-molecule columns, see the respective getters
+    private final byte[] flags;
+
+    private final int[] circularSugarCounts;
+
+    private final int[] terminalCircularSugarCounts;
+
+    private final int[] linearSugarCounts;
+
+    private final int[] terminalLinearSugarCounts;
+
+    private final int[] circularSugarsWithGlycosidicBondCounts;
+
+    private final int[] heavyAtomCounts;
+
+    private final int[] deglycosylatedHeavyAtomCounts;
+
+    /**
+     * Index of the first candidate of every molecule, plus the total number of candidates at the end
+     */
+    private final int[] candidatesOffsets;
+
+    //per-candidate columns, see the respective getters
+    private final byte[] candidateFlags;
+
+    private final int[] candidateAtomCounts;
+
+    private final int[] candidateExocyclicOxygenCounts;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a batch from the given columns, which are taken over without copying. All per-molecule columns must
+     * have the same length, the offsets one more, and all per-candidate columns the length given by the last offset.
+     *
+     * @param aFlags molecule flags
+     * @param aCircularSugarCounts numbers of circular sugar moieties
+     * @param aTerminalCircularSugarCounts numbers of terminal circular sugar moieties
+     * @param aLinearSugarCounts numbers of linear sugar moieties
+     * @param aTerminalLinearSugarCounts numbers of terminal linear sugar moieties
+     * @param aCircularSugarsWithGlycosidicBondCounts numbers of circular sugar moieties with an O-glycosidic bond
+     * @param aHeavyAtomCounts heavy atom counts of the analysed molecules
+     * @param aDeglycosylatedHeavyAtomCounts heavy atom counts after removal of all sugars
+     * @param aCandidatesOffsets index of the first candidate of every molecule plus the number of candidates
+     * @param aCandidateFlags candidate flags
+     * @param aCandidateAtomCounts atom counts of the candidates
+     * @param aCandidateExocyclicOxygenCounts exocyclic oxygen atom counts of the candidates, -1 for linear ones
+     * @throws NullPointerException if any column is null
+     * @throws IllegalArgumentException if the column lengths do not match
+     */
+    SugarDetectionBatch(byte[] aFlags, int[] aCircularSugarCounts, int[] aTerminalCircularSugarCounts,
+                        int[] aLinearSugarCounts, int[] aTerminalLinearSugarCounts,
+                        int[] aCircularSugarsWithGlycosidicBondCounts, int[] aHeavyAtomCounts,
+                        int[] aDeglycosylatedHeavyAtomCounts, int[] aCandidatesOffsets, byte[] aCandidateFlags,
+                        int[] aCandidateAtomCounts, int[] aCandidateExocyclicOxygenCounts)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(aFlags, "Given flags are 'null'.");
+        Objects.requireNonNull(aCandidatesOffsets, "Given candidates offsets are 'null'.");
+        Objects.requireNonNull(aCandidateFlags, "Given candidate flags are 'null'.");
+        int tmpSize = aFlags.length;
+        for (int[] tmpColumn : new int[][] {aCircularSugarCounts, aTerminalCircularSugarCounts, aLinearSugarCounts,
+                aTerminalLinearSugarCounts, aCircularSugarsWithGlycosidicBondCounts, aHeavyAtomCounts,
+                aDeglycosylatedHeavyAtomCounts}) {
+            Objects.requireNonNull(tmpColumn, "Given column is 'null'.");
+            if (tmpColumn.length != tmpSize) {
+                throw new IllegalArgumentException("Given per-molecule columns differ in length.");
+            }
+        }
+        if (aCandidatesOffsets.length != tmpSize + 1) {
+            throw new IllegalArgumentException("Given candidates offsets do not match the number of molecules.");
+        }
+        int tmpCandidatesCount = aCandidatesOffsets[tmpSize];
+        for (int[] tmpColumn : new int[][] {aCandidateAtomCounts, aCandidateExocyclicOxygenCounts}) {
+            Objects.requireNonNull(tmpColumn, "Given column is 'null'.");
+            if (tmpColumn.length != tmpCandidatesCount) {
+                throw new IllegalArgumentException("Given per-candidate columns do not match the number of candidates.");
+            }
+        }
+        if (aCandidateFlags.length != tmpCandidatesCount) {
+            throw new IllegalArgumentException("Given per-candidate columns do not match the number of candidates.");
+        }
+        this.flags = aFlags;
+        this.circularSugarCounts = aCircularSugarCounts;
+        this.terminalCircularSugarCounts = aTerminalCircularSugarCounts;
+        this.linearSugarCounts = aLinearSugarCounts;
+        this.terminalLinearSugarCounts = aTerminalLinearSugarCounts;
+        this.circularSugarsWithGlycosidicBondCounts = aCircularSugarsWithGlycosidicBondCounts;
+        this.heavyAtomCounts = aHeavyAtomCounts;
+        this.deglycosylatedHeavyAtomCounts = aDeglycosylatedHeavyAtomCounts;
+        this.candidatesOffsets = aCandidatesOffsets;
+        this.candidateFlags = aCandidateFlags;
+        this.candidateAtomCounts = aCandidateAtomCounts;
+        this.candidateExocyclicOxygenCounts = aCandidateExocyclicOxygenCounts;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns the number of molecules in the batch.
+     *
+     * @return batch size
+     */
+    public int size() {
+        return this.flags.length;
+    }
+
+    /**
+     * Returns the flags of the given molecule, see the *_FLAG constants.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return flags
+     */
+    public byte getFlags(int anIndex) {
+        return this.flags[anIndex];
+    }
+
+    /**
+     * Checks whether the given flag is set for the given molecule.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @param aFlag one of the molecule flag constants
+     * @return true if the flag is set
+     */
+    public boolean hasFlag(int anIndex, byte aFlag) {
+        return (this.flags[anIndex] & aFlag) != 0;
+    }
+
+    /**
+     * Checks whether the given molecule contains circular or linear sugars.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return true if the molecule contains sugars
+     */
+    public boolean containsSugars(int anIndex) {
+        return (this.flags[anIndex] & (SugarDetectionBatch.CONTAINS_CIRCULAR_SUGARS_FLAG
+                | SugarDetectionBatch.CONTAINS_LINEAR_SUGARS_FLAG)) != 0;
+    }
+
+    /**
+     * Returns the number of circular sugar moieties of the given molecule.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return circular sugar count
+     */
+    public int getCircularSugarCount(int anIndex) {
+        return this.circularSugarCounts[anIndex];
+    }
+
+    /**
+     * Returns the number of terminal circular sugar moieties of the given molecule.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return terminal circular sugar count
+     */
+    public int getTerminalCircularSugarCount(int anIndex) {
+        return this.terminalCircularSugarCounts[anIndex];
+    }
+
+    /**
+     * Returns the number of linear sugar moieties of the given molecule.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return linear sugar count
+     */
+    public int getLinearSugarCount(int anIndex) {
+        return this.linearSugarCounts[anIndex];
+    }
+
+    /**
+     * Returns the number of terminal linear sugar moieties of the given molecule.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return terminal linear sugar count
+     */
+    public int getTerminalLinearSugarCount(int anIndex) {
+        return this.terminalLinearSugarCounts[anIndex];
+    }
+
+    /**
+     * Returns the number of circular sugar moieties of the given molecule that are detected if only those with an
+     * O-glycosidic bond are detected, zero if the molecule qualifies for the glycosidic bond exemption.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return count of circular sugars with glycosidic bond
+     */
+    public int getCircularSugarsWithGlycosidicBondCount(int anIndex) {
+        return this.circularSugarsWithGlycosidicBondCounts[anIndex];
+    }
+
+    /**
+     * Returns the heavy atom count of the analysed molecule, i.e. of its biggest fragment.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return heavy atom count
+     */
+    public int getHeavyAtomCount(int anIndex) {
+        return this.heavyAtomCounts[anIndex];
+    }
+
+    /**
+     * Returns the heavy atom count of the analysed molecule after removal of all circular and linear sugars.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return heavy atom count of the deglycosylated molecule
+     */
+    public int getDeglycosylatedHeavyAtomCount(int anIndex) {
+        return this.deglycosylatedHeavyAtomCounts[anIndex];
+    }
+
+    /**
+     * Returns the index of the first candidate of the given molecule; an index equal to the batch size returns the
+     * total number of candidates.
+     *
+     * @param anIndex index of the molecule in the batch, or the batch size
+     * @return candidate index
+     */
+    public int getCandidatesOffset(int anIndex) {
+        return this.candidatesOffsets[anIndex];
+    }
+
+    /**
+     * Returns the number of circular and linear sugar candidates of the given molecule.
+     *
+     * @param anIndex index of the molecule in the batch
+     * @return number of candidates
+     */
+    public int getCandidatesCount(int anIndex) {
+        return this.candidatesOffsets[anIndex + 1] - this.candidatesOffsets[anIndex];
+    }
+
+    /**
+     * Returns the flags of the given candidate, see the *_CANDIDATE_FLAG constants.
+     *
+     * @param aCandidateIndex index of the candidate in the batch
+     * @return candidate flags
+     */
+    public byte getCandidateFlags(int aCandidateIndex) {
+        return this.candidateFlags[aCandidateIndex];
+    }
+
+    /**
+     * Returns the number of atoms of the given candidate.
+     *
+     * @param aCandidateIndex index of the candidate in the batch
+     * @return atom count
+     */
+    public int getCandidateAtomCount(int aCandidateIndex) {
+        return this.candidateAtomCounts[aCandidateIndex];
+    }
+
+    /**
+     * Returns the number of exocyclic oxygen atoms of the given circular candidate.
+     *
+     * @param aCandidateIndex index of the candidate in the batch
+     * @return exocyclic oxygen atom count, -1 for linear candidates
+     */
+    public int getCandidateExocyclicOxygenCount(int aCandidateIndex) {
+        return this.candidateExocyclicOxygenCounts[aCandidateIndex];
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,244 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.tools.CDKHydrogenAdder;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Frequencies of the removed circular and linear sugar moieties, as compiled for COCONUT in
+ * coconutStatsRemovedCircularMoietyFrequenciesTest and coconutStatsRemovedLinearMoietyFrequenciesTest of
+ * GlycosylationStatisticsTest, but with bounded memory: instead of keeping every distinct moiety SMILES code, the
+ * moieties are counted in two {@link MoietyFrequencySketch}es, so the memory consumption does not grow with the
+ * diversity of the dataset. Like in the tests, terminal circular and linear moieties are removed separately with all
+ * SRU settings in default, and the unique SMILES codes of the removed moieties with implicit hydrogens are counted.
+ * The monitored moieties are written to "CircSugMoietyFrequencies.csv" and "LinSugMoietyFrequencies.csv" in descending
+ * order of their frequencies, each with the maximum overestimation of its frequency; all statistics are printed to
+ * console and compiled in the "Output.txt" file.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SugarMoietyFrequencyAnalysis extends AbstractGlycosylationAnalysis {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this analysis on the command line
+     */
+    public static final String NAME = "moiety-frequencies";
+
+    /**
+     * Number of most frequent moieties printed to console
+     */
+    public static final int NUMBER_OF_PRINTED_MOIETIES = 10;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Sugar Removal Utility instance of every thread running detect(), with all settings in default
+     */
+    private final ThreadLocal<RecordingSugarRemovalUtility> sugarRemovalUtil;
+
+    /**
+     * Generator of the unique SMILES codes of the moieties, stateless
+     */
+    private final SmilesGenerator smiGen;
+
+    /**
+     * Frequencies of the removed circular sugar moieties
+     */
+    private final MoietyFrequencySketch circularMoietiesSketch;
+
+    /**
+     * Frequencies of the removed linear sugar moieties
+     */
+    private final MoietyFrequencySketch linearMoietiesSketch;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    //counters of the compiled statistics, see writeResults()
+    private int moleculesCounter;
+
+    private int hasCircularSugarsCounter;
+
+    private int hasLinearSugarsCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates an analysis monitoring the default number of moieties of each type.
+     */
+    public SugarMoietyFrequencyAnalysis() {
+        this(MoietyFrequencySketch.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an analysis monitoring the given number of moieties of each type. All SRU settings are in default.
+     *
+     * @param aCapacity maximum number of monitored circular and linear moieties each
+     * @throws IllegalArgumentException if the capacity is smaller than 1
+     */
+    public SugarMoietyFrequencyAnalysis(int aCapacity) throws IllegalArgumentException {
+        this.circularMoietiesSketch = new MoietyFrequencySketch(aCapacity);
+        this.linearMoietiesSketch = new MoietyFrequencySketch(aCapacity);
+        this.sugarRemovalUtil = ThreadLocal.withInitial(
+                () -> new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance()));
+        this.smiGen = new SmilesGenerator(SmiFlavor.Unique);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return SugarMoietyFrequencyAnalysis.NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void analyse(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        this.detect(aRecord, aMolecule).apply();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StatisticsUpdate detect(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = this.sugarRemovalUtil.get();
+        //the SRU adds properties to the molecule, so it works on a copy
+        IAtomContainer tmpMolecule = aMolecule.clone();
+        //all detections run before any statistic is updated, see GlycosylationAnalysis.analyse()
+        //note: per default, circular sugars having too few exocyclic oxygen atoms attached are not counted!
+        List<String> tmpCircularMoieties = tmpSugarRemovalUtil.hasCircularSugars(tmpMolecule)
+                ? this.createMoietySmiles(tmpSugarRemovalUtil.removeAndReturnCircularSugars(tmpMolecule, true)) : null;
+        //note: per default, linear sugars in rings, those too small or too big, and acidic linear sugars are not counted!
+        List<String> tmpLinearMoieties = tmpSugarRemovalUtil.hasLinearSugars(tmpMolecule)
+                ? this.createMoietySmiles(tmpSugarRemovalUtil.removeAndReturnLinearSugars(tmpMolecule, true)) : null;
+        return () -> {
+            this.moleculesCounter++;
+            if (!Objects.isNull(tmpCircularMoieties)) {
+                this.hasCircularSugarsCounter++;
+                for (String tmpMoiety : tmpCircularMoieties) {
+                    this.circularMoietiesSketch.add(tmpMoiety, aRecord.getID());
+                }
+            }
+            if (!Objects.isNull(tmpLinearMoieties)) {
+                this.hasLinearSugarsCounter++;
+                for (String tmpMoiety : tmpLinearMoieties) {
+                    this.linearMoietiesSketch.add(tmpMoiety, aRecord.getID());
+                }
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeResults() throws IOException {
+        this.printAndWrite("Molecules counter: " + this.moleculesCounter);
+        this.printAndWrite("Circular sugar containing molecules counter: " + this.hasCircularSugarsCounter);
+        this.printAndWrite("Linear sugar containing molecules counter: " + this.hasLinearSugarsCounter);
+        this.writeFrequencies("circular", this.circularMoietiesSketch, "CircSugMoietyFrequencies.csv");
+        this.writeFrequencies("linear", this.linearMoietiesSketch, "LinSugMoietyFrequencies.csv");
+        this.closeOutputFile();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the frequencies of the removed circular sugar moieties.
+     *
+     * @return circular moieties sketch
+     */
+    public MoietyFrequencySketch getCircularMoietiesSketch() {
+        return this.circularMoietiesSketch;
+    }
+
+    /**
+     * Returns the frequencies of the removed linear sugar moieties.
+     *
+     * @return linear moieties sketch
+     */
+    public MoietyFrequencySketch getLinearMoietiesSketch() {
+        return this.linearMoietiesSketch;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Returns the unique SMILES codes of the removed moieties of the given list, starting at index 1 after the
+     * deglycosylated core.
+     */
+    private List<String> createMoietySmiles(List<IAtomContainer> aRemovedMoietiesList) throws CDKException {
+        List<String> tmpMoietySmiles = new ArrayList<>(aRemovedMoietiesList.size());
+        for (IAtomContainer tmpMoiety : aRemovedMoietiesList.subList(Math.min(1, aRemovedMoietiesList.size()),
+                aRemovedMoietiesList.size())) {
+            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(tmpMoiety);
+            CDKHydrogenAdder.getInstance(DefaultChemObjectBuilder.getInstance()).addImplicitHydrogens(tmpMoiety);
+            tmpMoietySmiles.add(this.smiGen.create(tmpMoiety));
+        }
+        return tmpMoietySmiles;
+    }
+
+    /**
+     * Writes the monitored moieties of the given sketch to the CSV file with the given name and the most frequent ones
+     * to console and the "Output.txt" file.
+     */
+    private void writeFrequencies(String aType, MoietyFrequencySketch aSketch, String aFileName) throws IOException {
+        String tmpSeparator = AbstractGlycosylationAnalysis.OUTPUT_FILE_SEPARATOR;
+        List<MoietyFrequencySketch.Frequency> tmpFrequencies = aSketch.getMostFrequent(aSketch.getCapacity());
+        this.printAndWrite("Removed " + aType + " sugar moieties counter: " + aSketch.getTotalCount());
+        this.printAndWrite("Monitored different " + aType + " sugar moieties counter: " + tmpFrequencies.size()
+                + " (maximum frequency overestimation: " + aSketch.getMaximumError() + ")");
+        this.printAndWrite("Most frequent " + aType + " sugar moieties:");
+        for (int i = 0; i < Math.min(SugarMoietyFrequencyAnalysis.NUMBER_OF_PRINTED_MOIETIES, tmpFrequencies.size()); i++) {
+            this.printAndWrite(tmpFrequencies.get(i).getCount() + " " + tmpFrequencies.get(i).getItem());
+        }
+        PrintWriter tmpWriter = this.initializeOutputFile(aFileName);
+        tmpWriter.println(String.join(tmpSeparator, "SMILES", "frequency", "maxOverestimation", "firstOrigin"));
+        for (MoietyFrequencySketch.Frequency tmpFrequency : tmpFrequencies) {
+            tmpWriter.println(String.join(tmpSeparator, tmpFrequency.getItem(), Long.toString(tmpFrequency.getCount()),
+                    Long.toString(tmpFrequency.getError()), tmpFrequency.getOrigin()));
+        }
+        tmpWriter.flush();
+        tmpWriter.close();
+    }
+    //</editor-fold>
+}
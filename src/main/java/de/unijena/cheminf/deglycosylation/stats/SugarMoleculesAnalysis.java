@@ -0,0 +1,299 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Statistics of molecules that are basically sugars, i.e. that consist only of sugar moieties, as calculated for
+ * COCONUT in GlycosylationStatisticsTest: how many molecules are emptied by the removal of circular and linear sugars,
+ * of circular sugars only, or of linear sugars only, and how many of these consist of a single sugar unit. Only
+ * terminal sugar moieties are removed, all other SRU settings are in default.
+ * <br>Instead of removing the sugar candidates from three clones of every molecule, the removals of only circular and
+ * of only linear sugars are simulated on {@link MaskedMolecule} views of one copy of the molecule that the candidates
+ * are detected in. Only the combined removal is done on the copy itself because the linear sugars are detected again
+ * after the removal of the circular ones, so it comes last. All statistics are printed to console and compiled in the
+ * "Output.txt" file.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SugarMoleculesAnalysis extends AbstractGlycosylationAnalysis {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this analysis on the command line
+     */
+    public static final String NAME = "sugar-molecules";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Sugar Removal Utility instance of every thread running detect(), reusing the graph context of the analysed
+     * molecule and simulating removals on masks
+     */
+    private final ThreadLocal<RecordingSugarRemovalUtility> sugarRemovalUtil;
+
+    //IDs of the molecules that are basically sugars, circular or linear, polymer or single unit
+    private final SpillableIDList basicallyASugarIDs;
+
+    private final SpillableIDList basicallyASingleSugarUnitIDs;
+
+    private final SpillableIDList basicallyACircularSugarIDs;
+
+    private final SpillableIDList basicallyASingleCircularSugarIDs;
+
+    private final SpillableIDList basicallyALinearSugarIDs;
+
+    private final SpillableIDList basicallyASingleLinearSugarIDs;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private variables">
+    //counters of the compiled statistics, see writeResults()
+    private int moleculesCounter;
+
+    private int basicallyASugarCounter;
+
+    private int basicallyASingleSugarUnitCounter;
+
+    private int basicallyACircularSugarCounter;
+
+    private int basicallyASingleCircularSugarCounter;
+
+    private int basicallyALinearSugarCounter;
+
+    private int basicallyASingleLinearSugarCounter;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Sole constructor of this class. All SRU settings are in default.
+     */
+    public SugarMoleculesAnalysis() {
+        this.sugarRemovalUtil = ThreadLocal.withInitial(() -> {
+            RecordingSugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(
+                    DefaultChemObjectBuilder.getInstance());
+            tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
+            return tmpSugarRemovalUtil;
+        });
+        this.basicallyASugarIDs = this.createIDList("basicallyASugarIDs");
+        this.basicallyASingleSugarUnitIDs = this.createIDList("basicallyASingleSugarUnitIDs");
+        this.basicallyACircularSugarIDs = this.createIDList("basicallyACircularSugarIDs");
+        this.basicallyASingleCircularSugarIDs = this.createIDList("basicallyASingleCircularSugarIDs");
+        this.basicallyALinearSugarIDs = this.createIDList("basicallyALinearSugarIDs");
+        this.basicallyASingleLinearSugarIDs = this.createIDList("basicallyASingleLinearSugarIDs");
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return SugarMoleculesAnalysis.NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void analyse(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        this.detect(aRecord, aMolecule).apply();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StatisticsUpdate detect(MoleculeRecord aRecord, IAtomContainer aMolecule) throws Exception {
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = this.sugarRemovalUtil.get();
+        //the SRU adds properties to the molecule and its atoms and the combined removal alters it, so it works on a copy
+        IAtomContainer tmpMolecule = aMolecule.clone();
+        MoleculeGraphContext tmpGraphContext = new MoleculeGraphContext(tmpMolecule);
+        tmpSugarRemovalUtil.setGraphContext(tmpGraphContext);
+        //all detections run before any statistic is updated, see GlycosylationAnalysis.analyse()
+        List<IAtomContainer> tmpCircularCandidates;
+        List<IAtomContainer> tmpLinearCandidates;
+        boolean tmpIsBasicallyACircularSugar;
+        boolean tmpIsBasicallyALinearSugar;
+        List<IAtomContainer> tmpDeglycosylatedMoleculeAndRemovedSugarMoietiesList;
+        try {
+            MaskedMolecule tmpCircularDeglycosylated = new MaskedMolecule(tmpGraphContext);
+            if (!tmpCircularDeglycosylated.isConnected()) {
+                throw new IllegalArgumentException("Only terminal sugar moieties should be removed but the given "
+                        + "atomcontainer already contains multiple unconnected structures.");
+            }
+            MaskedMolecule tmpLinearDeglycosylated = tmpCircularDeglycosylated.copy();
+            tmpCircularCandidates = tmpSugarRemovalUtil.getCircularSugarCandidates(tmpMolecule);
+            tmpLinearCandidates = tmpSugarRemovalUtil.getLinearSugarCandidates(tmpMolecule);
+            tmpSugarRemovalUtil.removeSugarCandidates(tmpCircularDeglycosylated, tmpCircularCandidates);
+            tmpIsBasicallyACircularSugar = tmpCircularDeglycosylated.isEmpty();
+            tmpSugarRemovalUtil.removeSugarCandidates(tmpLinearDeglycosylated, tmpLinearCandidates);
+            tmpIsBasicallyALinearSugar = tmpLinearDeglycosylated.isEmpty();
+            //removes only terminal moieties but that is correct here
+            tmpDeglycosylatedMoleculeAndRemovedSugarMoietiesList =
+                    tmpSugarRemovalUtil.removeAndReturnCircularAndLinearSugars(tmpMolecule, false);
+        } finally {
+            tmpSugarRemovalUtil.setGraphContext(null);
+        }
+        return () -> {
+            this.moleculesCounter++;
+            if (tmpIsBasicallyACircularSugar) {
+                this.basicallyACircularSugarCounter++;
+                this.basicallyACircularSugarIDs.add(aRecord.getID());
+                //note: here, it is ok to only count the detected moieties because there is only one round of detection in the removal
+                if (tmpCircularCandidates.size() == 1) {
+                    this.basicallyASingleCircularSugarCounter++;
+                    this.basicallyASingleCircularSugarIDs.add(aRecord.getID());
+                }
+            }
+            if (tmpIsBasicallyALinearSugar) {
+                this.basicallyALinearSugarCounter++;
+                this.basicallyALinearSugarIDs.add(aRecord.getID());
+                if (tmpLinearCandidates.size() == 1) {
+                    this.basicallyASingleLinearSugarCounter++;
+                    this.basicallyASingleLinearSugarIDs.add(aRecord.getID());
+                }
+            }
+            if (tmpDeglycosylatedMoleculeAndRemovedSugarMoietiesList.get(0).isEmpty()) {
+                this.basicallyASugarCounter++;
+                this.basicallyASugarIDs.add(aRecord.getID());
+                //note: it is important to count the actually removed moieties here, not the detected ones!
+                // Because there are multiple rounds of detection in the removal if only terminal moieties are removed
+                if (tmpDeglycosylatedMoleculeAndRemovedSugarMoietiesList.size() - 1 == 1) {
+                    this.basicallyASingleSugarUnitCounter++;
+                    this.basicallyASingleSugarUnitIDs.add(aRecord.getID());
+                }
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeResults() throws IOException {
+        this.printAndWrite("Molecules counter: " + this.moleculesCounter);
+        this.printAndWrite("Basically a sugar counter: " + this.basicallyASugarCounter);
+        this.printAndWrite("Basically a single sugar unit counter: " + this.basicallyASingleSugarUnitCounter);
+        this.printAndWrite("Basically a circular sugar counter: " + this.basicallyACircularSugarCounter);
+        this.printAndWrite("Basically a single circular sugar counter: " + this.basicallyASingleCircularSugarCounter);
+        this.printAndWrite("Basically a linear sugar counter: " + this.basicallyALinearSugarCounter);
+        this.printAndWrite("Basically a single linear sugar counter: " + this.basicallyASingleLinearSugarCounter);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Basically a sugar: ", this.basicallyASugarIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Basically a single sugar unit: ", this.basicallyASingleSugarUnitIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Basically a circular sugar: ", this.basicallyACircularSugarIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Basically a single circular sugar: ", this.basicallyASingleCircularSugarIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Basically a linear sugar: ", this.basicallyALinearSugarIDs);
+        this.writeToOutputFile("");
+        this.writeToOutputFile("Basically a single linear sugar: ", this.basicallyASingleLinearSugarIDs);
+        this.closeOutputFile();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the number of analysed molecules.
+     *
+     * @return molecules counter
+     */
+    public int getMoleculesCounter() {
+        return this.moleculesCounter;
+    }
+
+    /**
+     * Returns the number of molecules that are emptied by the removal of circular and linear sugars.
+     *
+     * @return basically a sugar counter
+     */
+    public int getBasicallyASugarCounter() {
+        return this.basicallyASugarCounter;
+    }
+
+    /**
+     * Returns the number of molecules that are emptied by the removal of a single circular or linear sugar moiety.
+     *
+     * @return basically a single sugar unit counter
+     */
+    public int getBasicallyASingleSugarUnitCounter() {
+        return this.basicallyASingleSugarUnitCounter;
+    }
+
+    /**
+     * Returns the number of molecules that are emptied by the removal of circular sugars.
+     *
+     * @return basically a circular sugar counter
+     */
+    public int getBasicallyACircularSugarCounter() {
+        return this.basicallyACircularSugarCounter;
+    }
+
+    /**
+     * Returns the number of molecules that are emptied by the removal of a single circular sugar moiety.
+     *
+     * @return basically a single circular sugar counter
+     */
+    public int getBasicallyASingleCircularSugarCounter() {
+        return this.basicallyASingleCircularSugarCounter;
+    }
+
+    /**
+     * Returns the number of molecules that are emptied by the removal of linear sugars.
+     *
+     * @return basically a linear sugar counter
+     */
+    public int getBasicallyALinearSugarCounter() {
+        return this.basicallyALinearSugarCounter;
+    }
+
+    /**
+     * Returns the number of molecules that are emptied by the removal of a single linear sugar moiety.
+     *
+     * @return basically a single linear sugar counter
+     */
+    public int getBasicallyASingleLinearSugarCounter() {
+        return this.basicallyASingleLinearSugarCounter;
+    }
+
+    /**
+     * Returns the IDs of the molecules that are emptied by the removal of circular and linear sugars, read back from
+     * disk if they were spilled; empty if they were dropped under memory pressure.
+     *
+     * @return list of IDs
+     * @throws IOException if the spilled IDs cannot be read
+     */
+    public List<String> getBasicallyASugarIDs() throws IOException {
+        return this.basicallyASugarIDs.toList();
+    }
+    //</editor-fold>
+}
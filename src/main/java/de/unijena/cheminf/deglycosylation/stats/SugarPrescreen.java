@@ -0,0 +1,346 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+
+import java.util.Objects;
+
+/**
+ * Fast pre-screen of SMILES codes for sugar moieties on a {@link PrimitiveMoleculeGraph}, so that the parsing into
+ * CDK atom containers and the Sugar Removal Utility only need to run for molecules that may contain sugars. A molecule
+ * passes the screen if it has
+ * <ul>
+ *     <li>a cycle of five to seven atoms consisting of carbon atoms and one oxygen atom whose ratio of exocyclic oxygen
+ *     atoms to ring atoms reaches the threshold of the SRU, if the SRU checks it, or</li>
+ *     <li>a polyol chain of three bonded carbon atoms that each have an oxygen neighbour.</li>
+ * </ul>
+ * The screen has no false negatives for the SRU it was created for: every circular sugar candidate of the SRU is such
+ * a cycle, since the screen counts all oxygen neighbours regardless of the bond order and does not check whether the
+ * cycle is isolated, and every linear sugar pattern of the SRU contains such a chain. If the SRU detects linear acidic
+ * sugars or its patterns lists differ from the default ones, the respective part of the screen lets every molecule
+ * pass. SMILES codes that cannot be read into a graph also pass, so that they fail in the regular parsing.
+ * <br>Before a SMILES code is read into a graph, its oxygen atom symbols are counted. Molecules with fewer oxygen atoms
+ * than the smallest sugar moiety detected in the settings of the SRU are rejected right away; these are three in
+ * default settings, for the linear sugar patterns and for circular sugars with enough exocyclic oxygen atoms alike.
+ * <br>Note that the SRU analyses only the molecules that pass the screen, so molecules that are rejected by the
+ * screen but that CDK could not parse for chemical reasons, e.g. because they cannot be kekulised, are not noticed.
+ * <br>Instances are immutable and can be used by multiple threads.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class SugarPrescreen {
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Atomic number of carbon
+     */
+    private static final int CARBON = 6;
+
+    /**
+     * Atomic number of oxygen
+     */
+    private static final int OXYGEN = 8;
+
+    /**
+     * Minimum size of a potential sugar cycle
+     */
+    private static final int MIN_RING_SIZE = 5;
+
+    /**
+     * Maximum size of a potential sugar cycle
+     */
+    private static final int MAX_RING_SIZE = 7;
+
+    /**
+     * Minimum number of oxygen atoms of a linear sugar, i.e. the hydroxy groups of the shortest linear sugar patterns
+     */
+    private static final int MIN_LINEAR_SUGAR_OXYGEN_COUNT = 3;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Whether every molecule passes the circular part of the screen
+     */
+    private final boolean isCircularScreenDisabled;
+
+    /**
+     * Whether every molecule passes the linear part of the screen
+     */
+    private final boolean isLinearScreenDisabled;
+
+    /**
+     * Minimum ratio of exocyclic oxygen atoms to ring atoms, 0 if not checked by the SRU
+     */
+    private final double exocyclicOxygenRatioThreshold;
+
+    /**
+     * Minimum number of oxygen atoms of a molecule that may contain sugars, 0 if every molecule passes
+     */
+    private final int minOxygenAtomCount;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates a screen for the current settings of the given SRU. Later changes of its settings are not taken into
+     * account.
+     *
+     * @param aSugarRemovalUtil the SRU the screen is created for
+     * @throws NullPointerException if the SRU is null
+     */
+    public SugarPrescreen(SugarRemovalUtility aSugarRemovalUtil) throws NullPointerException {
+        Objects.requireNonNull(aSugarRemovalUtil, "Given Sugar Removal Utility is 'null'.");
+        SugarRemovalUtility tmpDefaultSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        this.isCircularScreenDisabled = !tmpDefaultSugarRemovalUtil.getCircularSugarPatternsList().containsAll(
+                aSugarRemovalUtil.getCircularSugarPatternsList());
+        this.isLinearScreenDisabled = aSugarRemovalUtil.areLinearAcidicSugarsDetected()
+                || !tmpDefaultSugarRemovalUtil.getLinearSugarPatternsList().containsAll(
+                        aSugarRemovalUtil.getLinearSugarPatternsList());
+        this.exocyclicOxygenRatioThreshold = aSugarRemovalUtil.areOnlyCircularSugarsWithEnoughExocyclicOxygenAtomsDetected()
+                ? aSugarRemovalUtil.getExocyclicOxygenAtomsToAtomsInRingRatioThresholdSetting() : 0.0;
+        if (this.isCircularScreenDisabled || this.isLinearScreenDisabled) {
+            this.minOxygenAtomCount = 0;
+        } else {
+            //the ring oxygen atom and the exocyclic ones of the smallest ring, where one exocyclic oxygen atom may be
+            //bonded to two ring atoms
+            int tmpMinCircularSugarOxygenCount = 1 + (int) Math.ceil(Math.ceil(SugarPrescreen.MIN_RING_SIZE
+                    * this.exocyclicOxygenRatioThreshold) / 2.0);
+            this.minOxygenAtomCount = Math.min(tmpMinCircularSugarOxygenCount,
+                    SugarPrescreen.MIN_LINEAR_SUGAR_OXYGEN_COUNT);
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Screens the given SMILES code.
+     *
+     * @param aSmilesCode SMILES code of the molecule
+     * @return false if the molecule certainly contains no sugars detected by the SRU, true if it may contain some or
+     * the SMILES code cannot be read
+     * @throws NullPointerException if the SMILES code is null
+     */
+    public boolean mayContainSugars(String aSmilesCode) throws NullPointerException {
+        Objects.requireNonNull(aSmilesCode, "Given SMILES code is 'null'.");
+        if (SugarPrescreen.countOxygenAtoms(aSmilesCode) < this.minOxygenAtomCount) {
+            return false;
+        }
+        PrimitiveMoleculeGraph tmpGraph;
+        try {
+            tmpGraph = PrimitiveMoleculeGraph.parseSmiles(aSmilesCode);
+        } catch (IllegalArgumentException anException) {
+            return true;
+        }
+        return this.mayContainSugars(tmpGraph);
+    }
+
+    /**
+     * Screens the given molecular graph.
+     *
+     * @param aGraph graph of the molecule
+     * @return false if the molecule certainly contains no sugars detected by the SRU, true if it may contain some
+     * @throws NullPointerException if the graph is null
+     */
+    public boolean mayContainSugars(PrimitiveMoleculeGraph aGraph) throws NullPointerException {
+        Objects.requireNonNull(aGraph, "Given graph is 'null'.");
+        if (this.isCircularScreenDisabled || this.isLinearScreenDisabled) {
+            return true;
+        }
+        return this.hasPolyolChain(aGraph) || this.hasPotentialSugarCycle(aGraph);
+    }
+
+    /**
+     * Returns the minimum number of oxygen atoms of a molecule that may contain sugars, as counted by
+     * countOxygenAtoms().
+     *
+     * @return minimum oxygen atom count, 0 if every molecule passes the screen
+     */
+    public int getMinOxygenAtomCount() {
+        return this.minOxygenAtomCount;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Counts the oxygen atom symbols in the given SMILES code without parsing it. The count is never smaller than the
+     * number of oxygen atoms of the molecule, but may be larger, e.g. for cobalt in brackets or for a SMILES code
+     * followed by a title.
+     *
+     * @param aSmilesCode SMILES code
+     * @return number of oxygen atom symbols
+     * @throws NullPointerException if the SMILES code is null
+     */
+    public static int countOxygenAtoms(String aSmilesCode) throws NullPointerException {
+        Objects.requireNonNull(aSmilesCode, "Given SMILES code is 'null'.");
+        int tmpCount = 0;
+        boolean tmpIsInBracket = false;
+        for (int i = 0; i < aSmilesCode.length(); i++) {
+            switch (aSmilesCode.charAt(i)) {
+                case '[' -> tmpIsInBracket = true;
+                case ']' -> tmpIsInBracket = false;
+                //osmium can only be given in brackets
+                case 'O' -> {
+                    if (!tmpIsInBracket || i + 1 == aSmilesCode.length() || aSmilesCode.charAt(i + 1) != 's') {
+                        tmpCount++;
+                    }
+                }
+                case 'o' -> tmpCount++;
+            }
+        }
+        return tmpCount;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private methods">
+    /**
+     * Checks whether a carbon atom with an oxygen neighbour has at least two carbon neighbours that also have an
+     * oxygen neighbour.
+     */
+    private boolean hasPolyolChain(PrimitiveMoleculeGraph aGraph) {
+        int tmpAtomCount = aGraph.getAtomCount();
+        boolean[] tmpIsOxygenated = new boolean[tmpAtomCount];
+        for (int i = 0; i < tmpAtomCount; i++) {
+            tmpIsOxygenated[i] = aGraph.getElement(i) == SugarPrescreen.CARBON
+                    && SugarPrescreen.countOxygenNeighbours(aGraph, i) > 0;
+        }
+        for (int i = 0; i < tmpAtomCount; i++) {
+            if (!tmpIsOxygenated[i]) {
+                continue;
+            }
+            int tmpOxygenatedNeighboursCount = 0;
+            for (int j = aGraph.getNeighboursOffset(i); j < aGraph.getNeighboursOffset(i + 1); j++) {
+                if (tmpIsOxygenated[aGraph.getNeighbour(j)] && ++tmpOxygenatedNeighboursCount == 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a cyclic oxygen atom closes a cycle of five to seven atoms with cyclic carbon atoms that has
+     * enough exocyclic oxygen atoms.
+     */
+    private boolean hasPotentialSugarCycle(PrimitiveMoleculeGraph aGraph) {
+        int tmpAtomCount = aGraph.getAtomCount();
+        int[] tmpPath = new int[SugarPrescreen.MAX_RING_SIZE];
+        boolean[] tmpIsOnPath = new boolean[tmpAtomCount];
+        for (int i = 0; i < tmpAtomCount; i++) {
+            if (aGraph.getElement(i) != SugarPrescreen.OXYGEN || !aGraph.isInRing(i)) {
+                continue;
+            }
+            tmpPath[0] = i;
+            tmpIsOnPath[i] = true;
+            for (int j = aGraph.getNeighboursOffset(i); j < aGraph.getNeighboursOffset(i + 1); j++) {
+                int tmpStart = aGraph.getNeighbour(j);
+                if (!this.isPotentialSugarRingCarbon(aGraph, tmpStart)) {
+                    continue;
+                }
+                tmpPath[1] = tmpStart;
+                tmpIsOnPath[tmpStart] = true;
+                boolean tmpIsFound = this.extendPath(aGraph, tmpPath, 2, tmpIsOnPath);
+                tmpIsOnPath[tmpStart] = false;
+                if (tmpIsFound) {
+                    return true;
+                }
+            }
+            tmpIsOnPath[i] = false;
+        }
+        return false;
+    }
+
+    /**
+     * Extends the given path of a ring oxygen atom and carbon atoms by further carbon atoms and checks every cycle
+     * closed back to the oxygen atom.
+     */
+    private boolean extendPath(PrimitiveMoleculeGraph aGraph, int[] aPath, int aLength, boolean[] anIsOnPath) {
+        int tmpLast = aPath[aLength - 1];
+        for (int j = aGraph.getNeighboursOffset(tmpLast); j < aGraph.getNeighboursOffset(tmpLast + 1); j++) {
+            int tmpNeighbour = aGraph.getNeighbour(j);
+            if (tmpNeighbour == aPath[0] && aLength >= SugarPrescreen.MIN_RING_SIZE
+                    && this.hasEnoughExocyclicOxygenAtoms(aGraph, aPath, aLength, anIsOnPath)) {
+                return true;
+            }
+            if (aLength == SugarPrescreen.MAX_RING_SIZE || anIsOnPath[tmpNeighbour]
+                    || !this.isPotentialSugarRingCarbon(aGraph, tmpNeighbour)) {
+                continue;
+            }
+            aPath[aLength] = tmpNeighbour;
+            anIsOnPath[tmpNeighbour] = true;
+            boolean tmpIsFound = this.extendPath(aGraph, aPath, aLength + 1, anIsOnPath);
+            anIsOnPath[tmpNeighbour] = false;
+            if (tmpIsFound) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the ratio of oxygen atoms bonded to the given cycle from outside to its size reaches the
+     * threshold.
+     */
+    private boolean hasEnoughExocyclicOxygenAtoms(PrimitiveMoleculeGraph aGraph, int[] aCycle, int aSize,
+                                                  boolean[] anIsOnCycle) {
+        if (this.exocyclicOxygenRatioThreshold <= 0.0) {
+            return true;
+        }
+        int tmpExocyclicOxygenCount = 0;
+        for (int i = 0; i < aSize; i++) {
+            int tmpAtom = aCycle[i];
+            for (int j = aGraph.getNeighboursOffset(tmpAtom); j < aGraph.getNeighboursOffset(tmpAtom + 1); j++) {
+                int tmpNeighbour = aGraph.getNeighbour(j);
+                if (!anIsOnCycle[tmpNeighbour] && aGraph.getElement(tmpNeighbour) == SugarPrescreen.OXYGEN) {
+                    tmpExocyclicOxygenCount++;
+                }
+            }
+        }
+        //same calculation as in the SRU
+        return ((double) tmpExocyclicOxygenCount / (double) aSize) >= this.exocyclicOxygenRatioThreshold;
+    }
+
+    /**
+     * Checks whether the given atom is a cyclic carbon atom.
+     */
+    private boolean isPotentialSugarRingCarbon(PrimitiveMoleculeGraph aGraph, int anAtom) {
+        return aGraph.getElement(anAtom) == SugarPrescreen.CARBON && aGraph.isInRing(anAtom);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Counts the oxygen neighbours of the given atom.
+     */
+    private static int countOxygenNeighbours(PrimitiveMoleculeGraph aGraph, int anAtom) {
+        int tmpCount = 0;
+        for (int j = aGraph.getNeighboursOffset(anAtom); j < aGraph.getNeighboursOffset(anAtom + 1); j++) {
+            if (aGraph.getElement(aGraph.getNeighbour(j)) == SugarPrescreen.OXYGEN) {
+                tmpCount++;
+            }
+        }
+        return tmpCount;
+    }
+    //</editor-fold>
+}
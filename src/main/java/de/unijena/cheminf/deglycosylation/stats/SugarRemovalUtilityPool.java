@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fixed-size pool of Sugar Removal Utility instances in default settings (plus the property setting), for concurrent
+ * use by request-handling threads. SRU instances are not thread-safe, and creating one compiles all sugar patterns,
+ * so the instances are created once and warmed up on a few example glycosides before the pool is used; a thread
+ * borrows an instance exclusively and gives it back afterwards. The instances are RecordingSugarRemovalUtility
+ * instances, so their detection can be stopped at a deadline of the {@link MoleculeTimeBudget}.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SugarRemovalUtilityPool {
+    //<editor-fold desc="Private static final constants">
+    /**
+     * Logger of this class
+     */
+    private static final Logger LOGGER = Logger.getLogger(SugarRemovalUtilityPool.class.getName());
+
+    /**
+     * SMILES codes of the molecules every pooled instance is warmed up with
+     */
+    private static final String[] WARM_UP_SMILES_CODES = {
+            "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO",
+            "CCCCCCCCCCOC1OC(COc2ccccc2)C(O)C(O)C1O",
+            "OCC(O)C(O)C(O)C(O)C(O)COc1ccc(cc1)C(=O)O",
+            "OCC1OC(O)C(O)C(O)C1O"
+    };
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Instances that are currently not borrowed
+     */
+    private final BlockingQueue<SugarRemovalUtility> idleInstances;
+
+    /**
+     * Number of instances in the pool
+     */
+    private final int size;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Creates the given number of SRU instances and warms each of them up.
+     *
+     * @param aSize number of instances
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public SugarRemovalUtilityPool(int aSize) throws IllegalArgumentException {
+        if (aSize < 1) {
+            throw new IllegalArgumentException("Given pool size must be positive.");
+        }
+        this.size = aSize;
+        this.idleInstances = new ArrayBlockingQueue<>(aSize);
+        SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
+        for (int i = 0; i < aSize; i++) {
+            SugarRemovalUtility tmpSugarRemovalUtil = SugarRemovalUtilityPool.createInstance();
+            SugarRemovalUtilityPool.warmUp(tmpSugarRemovalUtil, tmpSmiPar, tmpSmiGen);
+            this.idleInstances.add(tmpSugarRemovalUtil);
+        }
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Creates an SRU instance in the settings used by the pool, i.e. default settings and properties added to
+     * sugar-containing molecules.
+     *
+     * @return new SRU instance
+     */
+    public static SugarRemovalUtility createInstance() {
+        SugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
+        return tmpSugarRemovalUtil;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Borrows an instance, waiting until one is available. The instance must be given back via release().
+     *
+     * @return an SRU instance for exclusive use
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public SugarRemovalUtility borrow() throws InterruptedException {
+        return this.idleInstances.take();
+    }
+
+    /**
+     * Gives a borrowed instance back to the pool.
+     *
+     * @param aSugarRemovalUtil the borrowed instance
+     * @throws IllegalStateException if more instances are given back than the pool holds
+     */
+    public void release(SugarRemovalUtility aSugarRemovalUtil) throws IllegalStateException {
+        if (!this.idleInstances.offer(aSugarRemovalUtil)) {
+            throw new IllegalStateException("More instances released than borrowed.");
+        }
+    }
+
+    /**
+     * Returns the number of instances in the pool.
+     *
+     * @return pool size
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of instances that are currently not borrowed.
+     *
+     * @return number of idle instances
+     */
+    public int getIdleCount() {
+        return this.idleInstances.size();
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private static methods">
+    /**
+     * Runs the per-molecule analysis on the warm-up molecules, so that lazily initialised parts of SRU and CDK and the
+     * JIT compiler do not slow down the first requests.
+     */
+    private static void warmUp(SugarRemovalUtility aSugarRemovalUtil, SmilesParser aSmiPar, SmilesGenerator aSmiGen) {
+        for (String tmpSmilesCode : SugarRemovalUtilityPool.WARM_UP_SMILES_CODES) {
+            try {
+                IAtomContainer tmpMolecule = aSmiPar.parseSmiles(tmpSmilesCode);
+                MoleculeGlycosylationResult.compute("warm-up", tmpSmilesCode, tmpMolecule, aSugarRemovalUtil, aSmiGen);
+            } catch (CDKException | CloneNotSupportedException anException) {
+                SugarRemovalUtilityPool.LOGGER.log(Level.WARNING, "Warm-up failed: " + anException);
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,240 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * One combination of Sugar Removal Utility settings evaluated by the {@link ParameterSweepAnalysis}. Only settings
+ * that act as filters on single sugar candidates are part of a grid point, so that all grid points can be evaluated
+ * on the candidates detected once with the most permissive settings: the exocyclic oxygen atoms to atoms in ring
+ * ratio threshold and the O-glycosidic bond requirement for circular sugars, and the minimum and maximum size of
+ * linear sugars. A ratio threshold of zero is equivalent to the exocyclic oxygen atoms setting being disabled.
+ * <br>Instances are immutable.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class SweepGridPoint {
+    //<editor-fold desc="Private final variables">
+    /**
+     * Minimum ratio of exocyclic oxygen atoms to atoms in the ring of circular sugars, zero to not filter
+     */
+    private final double exocyclicOxygenRatioThreshold;
+
+    /**
+     * True if circular sugars need an O-glycosidic bond
+     */
+    private final boolean onlyCircularSugarsWithOGlycosidicBond;
+
+    /**
+     * Minimum carbon atom count of linear sugars
+     */
+    private final int linearSugarCandidateMinSize;
+
+    /**
+     * Maximum carbon atom count of linear sugars
+     */
+    private final int linearSugarCandidateMaxSize;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Constructor. The values are checked like in the respective setters of the Sugar Removal Utility.
+     *
+     * @param anExocyclicOxygenRatioThreshold minimum ratio of exocyclic oxygen atoms to atoms in the ring of circular
+     *                                        sugars, zero to not filter
+     * @param anOnlyCircularSugarsWithOGlycosidicBond true if circular sugars need an O-glycosidic bond
+     * @param aLinearSugarCandidateMinSize minimum carbon atom count of linear sugars
+     * @param aLinearSugarCandidateMaxSize maximum carbon atom count of linear sugars
+     * @throws IllegalArgumentException if the threshold is NaN, infinite, or negative, if a size is smaller than 1,
+     * or if the minimum size is greater than the maximum size
+     */
+    public SweepGridPoint(double anExocyclicOxygenRatioThreshold, boolean anOnlyCircularSugarsWithOGlycosidicBond,
+                          int aLinearSugarCandidateMinSize, int aLinearSugarCandidateMaxSize)
+            throws IllegalArgumentException {
+        if (Double.isNaN(anExocyclicOxygenRatioThreshold) || Double.isInfinite(anExocyclicOxygenRatioThreshold)
+                || anExocyclicOxygenRatioThreshold < 0.0) {
+            throw new IllegalArgumentException("Given double is NaN, infinite or negative.");
+        }
+        if (aLinearSugarCandidateMinSize < 1) {
+            throw new IllegalArgumentException("Given minimum size is smaller than 1.");
+        }
+        if (aLinearSugarCandidateMaxSize < aLinearSugarCandidateMinSize) {
+            throw new IllegalArgumentException("Given maximum size is smaller than the minimum size.");
+        }
+        this.exocyclicOxygenRatioThreshold = anExocyclicOxygenRatioThreshold;
+        this.onlyCircularSugarsWithOGlycosidicBond = anOnlyCircularSugarsWithOGlycosidicBond;
+        this.linearSugarCandidateMinSize = aLinearSugarCandidateMinSize;
+        this.linearSugarCandidateMaxSize = aLinearSugarCandidateMaxSize;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public static methods">
+    /**
+     * Creates the grid of all combinations of the given values, varying the linear sugar size range fastest and the
+     * ratio threshold slowest.
+     *
+     * @param anExocyclicOxygenRatioThresholds ratio thresholds
+     * @param anOGlycosidicBondOptions O-glycosidic bond requirements
+     * @param aLinearSugarSizeRanges linear sugar size ranges, each given as minimum and maximum size
+     * @return list of grid points
+     * @throws NullPointerException if any parameter is null
+     * @throws IllegalArgumentException if a size range does not consist of two values or any value is invalid
+     */
+    public static List<SweepGridPoint> createGrid(double[] anExocyclicOxygenRatioThresholds,
+                                                  boolean[] anOGlycosidicBondOptions,
+                                                  int[][] aLinearSugarSizeRanges)
+            throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(anExocyclicOxygenRatioThresholds, "Given thresholds are 'null'.");
+        Objects.requireNonNull(anOGlycosidicBondOptions, "Given options are 'null'.");
+        Objects.requireNonNull(aLinearSugarSizeRanges, "Given size ranges are 'null'.");
+        List<SweepGridPoint> tmpGrid = new ArrayList<>(anExocyclicOxygenRatioThresholds.length
+                * anOGlycosidicBondOptions.length * aLinearSugarSizeRanges.length);
+        for (double tmpThreshold : anExocyclicOxygenRatioThresholds) {
+            for (boolean tmpOGlycosidicBond : anOGlycosidicBondOptions) {
+                for (int[] tmpSizeRange : aLinearSugarSizeRanges) {
+                    if (Objects.isNull(tmpSizeRange) || tmpSizeRange.length != 2) {
+                        throw new IllegalArgumentException("A linear sugar size range must consist of a minimum and a maximum size.");
+                    }
+                    tmpGrid.add(new SweepGridPoint(tmpThreshold, tmpOGlycosidicBond, tmpSizeRange[0], tmpSizeRange[1]));
+                }
+            }
+        }
+        return tmpGrid;
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * Returns true if a circular sugar candidate with the given properties passes the filters of this grid point.
+     * The ratio is calculated like in the Sugar Removal Utility.
+     *
+     * @param aNumberOfAtomsInRing number of atoms in the ring of the candidate
+     * @param aNumberOfExocyclicOxygenAtoms number of exocyclic oxygen atoms attached to the ring
+     * @param aHasOGlycosidicBond true if the candidate has an O-glycosidic bond or is exempt from this requirement
+     * @return true if the candidate is a circular sugar at this grid point
+     */
+    public boolean acceptsCircularSugar(int aNumberOfAtomsInRing, int aNumberOfExocyclicOxygenAtoms,
+                                        boolean aHasOGlycosidicBond) {
+        if (this.onlyCircularSugarsWithOGlycosidicBond && !aHasOGlycosidicBond) {
+            return false;
+        }
+        if (this.exocyclicOxygenRatioThreshold == 0.0) {
+            return true;
+        }
+        if (aNumberOfAtomsInRing == 0) {
+            return false;
+        }
+        double tmpRatio = (double) aNumberOfExocyclicOxygenAtoms / (double) aNumberOfAtomsInRing;
+        return tmpRatio >= this.exocyclicOxygenRatioThreshold;
+    }
+
+    /**
+     * Returns true if a linear sugar candidate with the given carbon atom count passes the size filter of this grid
+     * point.
+     *
+     * @param aCarbonAtomCount number of carbon atoms of the candidate
+     * @return true if the candidate is a linear sugar at this grid point
+     */
+    public boolean acceptsLinearSugar(int aCarbonAtomCount) {
+        return aCarbonAtomCount >= this.linearSugarCandidateMinSize
+                && aCarbonAtomCount <= this.linearSugarCandidateMaxSize;
+    }
+
+    /**
+     * Applies the settings of this grid point to the given Sugar Removal Utility, e.g. to reproduce the results for
+     * one grid point in a regular run.
+     *
+     * @param aSugarRemovalUtil the Sugar Removal Utility to configure
+     * @throws NullPointerException if the given Sugar Removal Utility is null
+     */
+    public void applyTo(SugarRemovalUtility aSugarRemovalUtil) throws NullPointerException {
+        Objects.requireNonNull(aSugarRemovalUtil, "Given Sugar Removal Utility is 'null'.");
+        boolean tmpFilterByExocyclicOxygens = this.exocyclicOxygenRatioThreshold != 0.0;
+        //the threshold can only be set to nonzero while the setting is enabled
+        aSugarRemovalUtil.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(true);
+        aSugarRemovalUtil.setExocyclicOxygenAtomsToAtomsInRingRatioThresholdSetting(this.exocyclicOxygenRatioThreshold);
+        aSugarRemovalUtil.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(tmpFilterByExocyclicOxygens);
+        aSugarRemovalUtil.setDetectCircularSugarsOnlyWithOGlycosidicBondSetting(this.onlyCircularSugarsWithOGlycosidicBond);
+        aSugarRemovalUtil.setLinearSugarCandidateMinSizeSetting(this.linearSugarCandidateMinSize);
+        aSugarRemovalUtil.setLinearSugarCandidateMaxSizeSetting(this.linearSugarCandidateMaxSize);
+    }
+
+    /**
+     * Returns a label of the settings of this grid point, e.g. for output files.
+     *
+     * @return label of this grid point
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "ExoCycOxRatio=%.2f, OGlycosidicBond=%b, LinSugarSize=%d-%d",
+                this.exocyclicOxygenRatioThreshold, this.onlyCircularSugarsWithOGlycosidicBond,
+                this.linearSugarCandidateMinSize, this.linearSugarCandidateMaxSize);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public properties">
+    /**
+     * Returns the minimum ratio of exocyclic oxygen atoms to atoms in the ring of circular sugars.
+     *
+     * @return ratio threshold, zero if not filtered
+     */
+    public double getExocyclicOxygenRatioThreshold() {
+        return this.exocyclicOxygenRatioThreshold;
+    }
+
+    /**
+     * Returns true if circular sugars need an O-glycosidic bond.
+     *
+     * @return O-glycosidic bond requirement
+     */
+    public boolean isOnlyCircularSugarsWithOGlycosidicBond() {
+        return this.onlyCircularSugarsWithOGlycosidicBond;
+    }
+
+    /**
+     * Returns the minimum carbon atom count of linear sugars.
+     *
+     * @return minimum size
+     */
+    public int getLinearSugarCandidateMinSize() {
+        return this.linearSugarCandidateMinSize;
+    }
+
+    /**
+     * Returns the maximum carbon atom count of linear sugars.
+     *
+     * @return maximum size
+     */
+    public int getLinearSugarCandidateMaxSize() {
+        return this.linearSugarCandidateMaxSize;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+import java.util.Objects;
+
+/**
+ * Structure key strategy used in the test methods so far: the unique (canonical, stereo-free) SMILES code of the
+ * molecule is generated and hashed to 64 bits, see AglyconeFrequencyCollector.computeStructureHash(). Different
+ * structures only get the same key if their SMILES codes have the same hash, which is negligible. Generating the
+ * canonical SMILES code is comparably expensive; see {@link GraphHashKeyGenerator} for a faster strategy.
+ * Instances are not thread-safe.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public final class UniqueSmilesKeyGenerator implements StructureKeyGenerator {
+    //<editor-fold desc="Public static final constants">
+    /**
+     * Name of this strategy
+     */
+    public static final String NAME = "unique-smiles";
+    //</editor-fold>
+    //
+    //<editor-fold desc="Private final variables">
+    /**
+     * Generator of the unique SMILES codes
+     */
+    private final SmilesGenerator smiGen;
+    //</editor-fold>
+    //
+    //<editor-fold desc="Constructors">
+    /**
+     * Sole constructor of this class.
+     */
+    public UniqueSmilesKeyGenerator() {
+        this.smiGen = new SmilesGenerator(SmiFlavor.Unique);
+    }
+    //</editor-fold>
+    //
+    //<editor-fold desc="Public methods">
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return UniqueSmilesKeyGenerator.NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long createKey(IAtomContainer aMolecule) throws CDKException {
+        return AglyconeFrequencyCollector.computeStructureHash(this.createUniqueSmilesCode(aMolecule));
+    }
+
+    /**
+     * Returns the unique SMILES code the key of the given molecule is the hash of.
+     *
+     * @param aMolecule the molecule
+     * @return unique SMILES code
+     * @throws CDKException if the SMILES code cannot be generated
+     */
+    public String createUniqueSmilesCode(IAtomContainer aMolecule) throws CDKException {
+        Objects.requireNonNull(aMolecule, "Given molecule is 'null'.");
+        return this.smiGen.create(aMolecule);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests the exact and estimated counting of distinct aglycones.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class AglyconeFrequencyCollectorTest {
+    /**
+     * Counts random strings exactly in two merged collectors and compares the counts with those of a map of the
+     * strings.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void exactCountingTest() throws Exception {
+        Random tmpRandom = new Random(7L);
+        Map<String, Integer> tmpExpectedCounts = new HashMap<>(8000);
+        AglyconeFrequencyCollector tmpFirstCollector = new AglyconeFrequencyCollector(AglyconeFrequencyCollector.Mode.EXACT);
+        AglyconeFrequencyCollector tmpSecondCollector = new AglyconeFrequencyCollector(AglyconeFrequencyCollector.Mode.EXACT);
+        for (int i = 0; i < 20000; i++) {
+            String tmpSmilesCode = "C" + tmpRandom.nextInt(5000) + (tmpRandom.nextBoolean() ? "O" : "N");
+            tmpExpectedCounts.merge(tmpSmilesCode, 1, Integer::sum);
+            (i % 3 == 0 ? tmpFirstCollector : tmpSecondCollector).add(tmpSmilesCode);
+        }
+        tmpFirstCollector.merge(tmpSecondCollector);
+        Assert.assertEquals(20000L, tmpFirstCollector.getTotalCount());
+        Assert.assertEquals(tmpExpectedCounts.size(), tmpFirstCollector.getDistinctCount());
+        for (Map.Entry<String, Integer> tmpEntry : tmpExpectedCounts.entrySet()) {
+            Assert.assertEquals((int) tmpEntry.getValue(), tmpFirstCollector.getCount(
+                    AglyconeFrequencyCollector.computeStructureHash(tmpEntry.getKey())));
+        }
+        Assert.assertEquals(0, tmpFirstCollector.getCount(AglyconeFrequencyCollector.computeStructureHash("c1ccccc1")));
+        List<AglyconeFrequencyCollector.Frequency> tmpMostFrequent = tmpFirstCollector.getMostFrequent(10);
+        Assert.assertEquals(10, tmpMostFrequent.size());
+        int tmpMaximumCount = tmpExpectedCounts.values().stream().mapToInt(Integer::intValue).max().getAsInt();
+        Assert.assertEquals(tmpMaximumCount, tmpMostFrequent.get(0).getCount());
+        Assert.assertEquals(tmpMaximumCount, (int) tmpExpectedCounts.get(tmpMostFrequent.get(0).getSmilesCode()));
+        for (int i = 1; i < tmpMostFrequent.size(); i++) {
+            Assert.assertTrue(tmpMostFrequent.get(i - 1).getCount() >= tmpMostFrequent.get(i).getCount());
+        }
+    }
+
+    /**
+     * Estimates the number of distinct strings of small and large sets via HyperLogLog, also merged, and checks that
+     * the estimates are within four standard errors.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void hyperLogLogTest() throws Exception {
+        for (int tmpDistinctCount : new int[] {100, 1000, 200000}) {
+            AglyconeFrequencyCollector tmpFirstCollector = new AglyconeFrequencyCollector(
+                    AglyconeFrequencyCollector.Mode.HYPER_LOG_LOG);
+            AglyconeFrequencyCollector tmpSecondCollector = new AglyconeFrequencyCollector(
+                    AglyconeFrequencyCollector.Mode.HYPER_LOG_LOG);
+            for (int i = 0; i < tmpDistinctCount; i++) {
+                //every string is added twice, to both collectors
+                tmpFirstCollector.add("CCO" + i);
+                tmpSecondCollector.add("CCO" + (tmpDistinctCount - 1 - i));
+            }
+            tmpFirstCollector.merge(tmpSecondCollector);
+            Assert.assertEquals(2L * tmpDistinctCount, tmpFirstCollector.getTotalCount());
+            double tmpTolerance = 4 * tmpFirstCollector.getRelativeStandardError() * tmpDistinctCount;
+            Assert.assertEquals(tmpDistinctCount, tmpFirstCollector.getDistinctCount(), tmpTolerance);
+        }
+        AglyconeFrequencyCollector tmpCollector = new AglyconeFrequencyCollector(
+                AglyconeFrequencyCollector.Mode.HYPER_LOG_LOG);
+        Assert.assertEquals(0L, tmpCollector.getDistinctCount());
+        Assert.assertThrows(IllegalStateException.class, () -> tmpCollector.getMostFrequent(1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tmpCollector.merge(
+                new AglyconeFrequencyCollector(AglyconeFrequencyCollector.Mode.EXACT)));
+    }
+
+    /**
+     * Analyses glycosides sharing aglycones in both modes.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void analysisTest() throws Exception {
+        String[] tmpSmilesCodes = {
+                //salicin and its isomer written differently share the aglycone
+                "OCc1ccccc1OC1OC(CO)C(O)C(O)C1O",
+                "OC1C(O)C(CO)OC(Oc2ccccc2CO)C1O",
+                //amygdalin
+                "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO",
+                //glucose
+                "OCC1OC(O)C(O)C(O)C1O",
+                //aspirin
+                "CC(=O)Oc1ccccc1C(=O)O"
+        };
+        SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        for (AglyconeFrequencyCollector.Mode tmpMode : AglyconeFrequencyCollector.Mode.values()) {
+            AglyconeFrequencyAnalysis tmpAnalysis = new AglyconeFrequencyAnalysis(tmpMode);
+            tmpAnalysis.initialize(Files.createTempDirectory("aglycone_frequency_test").toString() + "/");
+            for (int i = 0; i < tmpSmilesCodes.length; i++) {
+                tmpAnalysis.analyse(new MoleculeRecord(Integer.toString(i), tmpSmilesCodes[i], 1),
+                        tmpSmiPar.parseSmiles(tmpSmilesCodes[i]));
+            }
+            tmpAnalysis.writeResults();
+            Assert.assertEquals(5, tmpAnalysis.getMoleculesCounter());
+            Assert.assertEquals(4, tmpAnalysis.getGlycosidesCounter());
+            Assert.assertEquals(3L, tmpAnalysis.getCollector().getTotalCount());
+            Assert.assertEquals(2L, tmpAnalysis.getCollector().getDistinctCount());
+        }
+    }
+}
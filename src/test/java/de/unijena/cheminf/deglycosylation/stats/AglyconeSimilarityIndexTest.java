@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.fingerprint.CircularFingerprinter;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the aglycone similarity search against a brute-force search and its construction in a comparison job.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class AglyconeSimilarityIndexTest {
+    /**
+     * Searches random fingerprints of two datasets, including duplicates and an empty fingerprint, and compares the
+     * hits with those of a brute-force search, with and without an excluded dataset.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void bruteForceComparisonTest() throws Exception {
+        int tmpNumberOfBits = 256;
+        Random tmpRandom = new Random(42L);
+        AglyconeSimilarityIndex.Builder tmpBuilder = new AglyconeSimilarityIndex.Builder(tmpNumberOfBits);
+        List<String> tmpAllDatasetNames = new ArrayList<>(1000);
+        List<String> tmpAllIDs = new ArrayList<>(1000);
+        List<BitSet> tmpAllFingerprints = new ArrayList<>(1000);
+        for (String tmpDatasetName : new String[] {"a", "b"}) {
+            List<String> tmpIDs = new ArrayList<>(500);
+            List<BitSet> tmpFingerprints = new ArrayList<>(500);
+            for (int i = 0; i < 500; i++) {
+                BitSet tmpFingerprint;
+                if (i == 0) {
+                    tmpFingerprint = new BitSet(tmpNumberOfBits);
+                } else if (i % 50 == 0) {
+                    tmpFingerprint = (BitSet) tmpFingerprints.get(i - 1).clone();
+                } else {
+                    tmpFingerprint = AglyconeSimilarityIndexTest.randomFingerprint(tmpRandom, tmpNumberOfBits);
+                }
+                tmpIDs.add(tmpDatasetName + i);
+                tmpFingerprints.add(tmpFingerprint);
+            }
+            tmpBuilder.add(tmpDatasetName, tmpIDs, tmpFingerprints);
+            for (int i = 0; i < tmpIDs.size(); i++) {
+                tmpAllDatasetNames.add(tmpDatasetName);
+            }
+            tmpAllIDs.addAll(tmpIDs);
+            tmpAllFingerprints.addAll(tmpFingerprints);
+        }
+        AglyconeSimilarityIndex tmpIndex = tmpBuilder.build();
+        Assert.assertEquals(1000, tmpIndex.size());
+        Assert.assertEquals(Arrays.asList("a", "b"), tmpIndex.getDatasetNames());
+        for (int q = 0; q < 50; q++) {
+            BitSet tmpQuery = q % 5 == 0 ? tmpAllFingerprints.get(tmpRandom.nextInt(1000))
+                    : AglyconeSimilarityIndexTest.randomFingerprint(tmpRandom, tmpNumberOfBits);
+            for (String tmpExcludedDatasetName : new String[] {null, "a"}) {
+                List<AglyconeSimilarityIndex.Hit> tmpHits = tmpIndex.search(tmpQuery, 7, tmpExcludedDatasetName);
+                List<Integer> tmpExpected = new ArrayList<>(1000);
+                double[] tmpSimilarities = new double[1000];
+                for (int i = 0; i < 1000; i++) {
+                    BitSet tmpIntersection = (BitSet) tmpQuery.clone();
+                    tmpIntersection.and(tmpAllFingerprints.get(i));
+                    int tmpUnion = tmpQuery.cardinality() + tmpAllFingerprints.get(i).cardinality()
+                            - tmpIntersection.cardinality();
+                    tmpSimilarities[i] = tmpUnion == 0 ? 0.0 : (double) tmpIntersection.cardinality() / tmpUnion;
+                    if (!tmpAllDatasetNames.get(i).equals(tmpExcludedDatasetName)) {
+                        tmpExpected.add(i);
+                    }
+                }
+                //stable sort, so ties keep the insertion order
+                tmpExpected.sort(Comparator.comparingDouble(i -> -tmpSimilarities[i]));
+                Assert.assertEquals(7, tmpHits.size());
+                for (int i = 0; i < 7; i++) {
+                    int tmpExpectedIndex = tmpExpected.get(i);
+                    Assert.assertEquals(tmpAllIDs.get(tmpExpectedIndex), tmpHits.get(i).getID());
+                    Assert.assertEquals(tmpAllDatasetNames.get(tmpExpectedIndex), tmpHits.get(i).getDatasetName());
+                    Assert.assertEquals(tmpSimilarities[tmpExpectedIndex], tmpHits.get(i).getSimilarity(), 1.0e-9);
+                }
+            }
+        }
+        Assert.assertTrue(tmpIndex.search(new BitSet(tmpNumberOfBits), 7, null).isEmpty());
+    }
+
+    /**
+     * Builds the index of the review molecules and a few in-memory molecules in a comparison job and searches it for
+     * the aglycones of query molecules.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void comparisonJobTest() throws Exception {
+        String[][] tmpMolecules = {
+                {"amygdalin", "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"},
+                {"glucose", "OCC1OC(O)C(O)C(O)C1O"},
+                {"aspirin", "CC(=O)Oc1ccccc1C(=O)O"},
+                {"invalid", "C1CC(C"}
+        };
+        String[][] tmpQueries = {
+                {"aspirin_glucoside", "CC(=O)Oc1ccccc1C(=O)OC1OC(CO)C(O)C(O)C1O"},
+                {"mandelonitrile", "N#CC(O)c1ccccc1"}
+        };
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        File tmpOutputFolder = Files.createTempDirectory("aglycone_index_test").toFile();
+        try (SDFMoleculeSource tmpSDFSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            MultiDatasetComparisonJob tmpJob = new MultiDatasetComparisonJob(Arrays.asList(tmpSDFSource,
+                    new ArrayMoleculeSource("test", tmpMolecules)), tmpOutputFolder.getAbsolutePath(), 3, 16);
+            tmpJob.setAglyconeIndexBuilt(true);
+            tmpJob.run();
+            AglyconeSimilarityIndex tmpIndex = tmpJob.getAglyconeIndex();
+            Assert.assertNotNull(tmpIndex);
+            //glucose is basically a sugar and the invalid molecule fails, so two aglycones of the test dataset remain
+            Assert.assertTrue(tmpIndex.size() > 2 && tmpIndex.size() <= 344 + 2);
+            BitSet tmpAspirinFingerprint = AglyconeSimilarityIndex.computeAglyconeFingerprint(
+                    new SmilesParser(DefaultChemObjectBuilder.getInstance()).parseSmiles("CC(=O)Oc1ccccc1C(=O)O"),
+                    SugarRemovalUtilityPool.createInstance(), new CircularFingerprinter(CircularFingerprinter.CLASS_ECFP6,
+                            tmpIndex.getNumberOfBits()));
+            List<AglyconeSimilarityIndex.Hit> tmpHits = tmpIndex.search(tmpAspirinFingerprint, 1,
+                    tmpSDFSource.getName());
+            Assert.assertEquals("aspirin", tmpHits.get(0).getID());
+            Assert.assertEquals(1.0, tmpHits.get(0).getSimilarity(), 1.0e-9);
+            Assert.assertEquals(2, tmpJob.writeAglyconeSearchResults(new ArrayMoleculeSource("queries", tmpQueries),
+                    AglyconeSimilarityIndex.DEFAULT_NUMBER_OF_HITS));
+            List<String> tmpLines = Files.readAllLines(new File(tmpJob.getOutputFolderPath()
+                    + MultiDatasetComparisonJob.AGLYCONE_SEARCH_FILE_NAME).toPath());
+            Assert.assertEquals("Query;Rank;Dataset;ID;Tanimoto similarity", tmpLines.get(0));
+            Assert.assertEquals(1 + 2 * AglyconeSimilarityIndex.DEFAULT_NUMBER_OF_HITS, tmpLines.size());
+            Assert.assertEquals("aspirin_glucoside;1;test;aspirin;1.0000", tmpLines.get(1));
+            Assert.assertEquals("mandelonitrile;1;test;amygdalin;1.0000", tmpLines.get(6));
+        }
+    }
+
+    /**
+     * Returns a random fingerprint with a random density of up to one quarter of the bits.
+     */
+    private static BitSet randomFingerprint(Random aRandom, int aNumberOfBits) {
+        BitSet tmpFingerprint = new BitSet(aNumberOfBits);
+        int tmpNumberOfSetBits = 1 + aRandom.nextInt(aNumberOfBits / 4);
+        for (int i = 0; i < tmpNumberOfSetBits; i++) {
+            tmpFingerprint.set(aRandom.nextInt(aNumberOfBits));
+        }
+        return tmpFingerprint;
+    }
+}
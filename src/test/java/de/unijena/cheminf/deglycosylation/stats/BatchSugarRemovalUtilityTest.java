@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the batch sugar detection against the per-molecule analysis of MoleculeGlycosylationResult.compute() on the
+ * molecules of the review of bacterial glycosylated natural products that is supplied in the resources folder.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class BatchSugarRemovalUtilityTest {
+    /**
+     * Analyses all review molecules plus a glycoside and a null element as one batch and in two ranges and compares every molecule
+     * to its per-molecule result.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void batchDetectionTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        List<IAtomContainer> tmpMoleculeList = new ArrayList<>(350);
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                tmpMoleculeList.add(tmpSource.next().getAtomContainer());
+            }
+        }
+        //the SDF molecules have no circular sugars with O-glycosidic bond according to the SRU, so a glycoside is added
+        tmpMoleculeList.add(new SmilesParser(DefaultChemObjectBuilder.getInstance()).parseSmiles(
+                "CCCCCCCCCCOC1OC(CO)C(O)C(O)C1O"));
+        tmpMoleculeList.add(null);
+        IAtomContainer[] tmpMolecules = tmpMoleculeList.toArray(new IAtomContainer[0]);
+        BatchSugarRemovalUtility tmpBatchSugarRemovalUtil = new BatchSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        SugarDetectionBatch tmpBatch = tmpBatchSugarRemovalUtil.detect(tmpMolecules);
+        int tmpSplitIndex = tmpMolecules.length / 2;
+        SugarDetectionBatch tmpFirstRange = tmpBatchSugarRemovalUtil.detect(tmpMolecules, 0, tmpSplitIndex);
+        SugarDetectionBatch tmpSecondRange = tmpBatchSugarRemovalUtil.detect(tmpMolecules, tmpSplitIndex, tmpMolecules.length);
+        //the O-glycosidic bond setting is back to default
+        Assert.assertFalse(tmpBatchSugarRemovalUtil.areOnlyCircularSugarsWithOGlycosidicBondDetected());
+        Assert.assertEquals(tmpMolecules.length, tmpBatch.size());
+        Assert.assertEquals(tmpBatch.getCandidatesOffset(tmpBatch.size()),
+                tmpFirstRange.getCandidatesOffset(tmpFirstRange.size()) + tmpSecondRange.getCandidatesOffset(tmpSecondRange.size()));
+        Assert.assertTrue(tmpBatch.hasFlag(tmpMolecules.length - 1, SugarDetectionBatch.FAILED_FLAG));
+        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
+        int tmpSugarContainingCounter = 0;
+        int tmpGlycosidicBondCandidatesCounter = 0;
+        for (int i = 0; i < tmpMolecules.length - 1; i++) {
+            MoleculeGlycosylationResult tmpExpected = MoleculeGlycosylationResult.compute(Integer.toString(i), null,
+                    tmpMolecules[i], tmpSugarRemovalUtil, tmpSmiGen);
+            SugarDetectionBatch tmpRange = i < tmpSplitIndex ? tmpFirstRange : tmpSecondRange;
+            int tmpRangeIndex = i < tmpSplitIndex ? i : i - tmpSplitIndex;
+            for (int[] tmpBatchAndIndex : new int[][] {{0, i}, {1, tmpRangeIndex}}) {
+                SugarDetectionBatch tmpResults = tmpBatchAndIndex[0] == 0 ? tmpBatch : tmpRange;
+                int tmpIndex = tmpBatchAndIndex[1];
+                Assert.assertFalse(tmpResults.hasFlag(tmpIndex, SugarDetectionBatch.FAILED_FLAG));
+                Assert.assertEquals(tmpExpected.containsSugars(), tmpResults.containsSugars(tmpIndex));
+                Assert.assertEquals(tmpExpected.getCircularSugarCount(), tmpResults.getCircularSugarCount(tmpIndex));
+                Assert.assertEquals(tmpExpected.getTerminalCircularSugarCount(), tmpResults.getTerminalCircularSugarCount(tmpIndex));
+                Assert.assertEquals(tmpExpected.getLinearSugarCount(), tmpResults.getLinearSugarCount(tmpIndex));
+                Assert.assertEquals(tmpExpected.getTerminalLinearSugarCount(), tmpResults.getTerminalLinearSugarCount(tmpIndex));
+                Assert.assertEquals(tmpExpected.getCircularSugarsWithGlycosidicBondCount(),
+                        tmpResults.getCircularSugarsWithGlycosidicBondCount(tmpIndex));
+                Assert.assertEquals(tmpExpected.isQualifiedForGlycosidicBondExemption(),
+                        tmpResults.hasFlag(tmpIndex, SugarDetectionBatch.QUALIFIED_FOR_GLYCOSIDIC_BOND_EXEMPTION_FLAG));
+                Assert.assertEquals(tmpExpected.isBasicallyASugar(),
+                        tmpResults.hasFlag(tmpIndex, SugarDetectionBatch.BASICALLY_A_SUGAR_FLAG));
+                Assert.assertEquals(tmpExpected.getCircularSugarCount() + tmpExpected.getLinearSugarCount(),
+                        tmpResults.getCandidatesCount(tmpIndex));
+                Assert.assertEquals(tmpBatch.getHeavyAtomCount(i), tmpResults.getHeavyAtomCount(tmpIndex));
+                Assert.assertEquals(tmpBatch.getDeglycosylatedHeavyAtomCount(i), tmpResults.getDeglycosylatedHeavyAtomCount(tmpIndex));
+            }
+            if (tmpExpected.isBasicallyASugar()) {
+                Assert.assertEquals(0, tmpBatch.getDeglycosylatedHeavyAtomCount(i));
+            } else if (!tmpExpected.containsSugars()) {
+                Assert.assertEquals(tmpBatch.getHeavyAtomCount(i), tmpBatch.getDeglycosylatedHeavyAtomCount(i));
+            } else {
+                Assert.assertTrue(tmpBatch.getDeglycosylatedHeavyAtomCount(i) < tmpBatch.getHeavyAtomCount(i));
+                tmpSugarContainingCounter++;
+            }
+            Assert.assertTrue(tmpBatch.getHeavyAtomCount(i) <= AtomContainerManipulator.getHeavyAtoms(tmpMolecules[i]).size());
+            for (int j = tmpBatch.getCandidatesOffset(i); j < tmpBatch.getCandidatesOffset(i + 1); j++) {
+                boolean tmpIsCircular = j - tmpBatch.getCandidatesOffset(i) < tmpExpected.getCircularSugarCount();
+                byte tmpCandidateFlags = tmpBatch.getCandidateFlags(j);
+                Assert.assertEquals(tmpIsCircular, (tmpCandidateFlags & SugarDetectionBatch.CIRCULAR_CANDIDATE_FLAG) != 0);
+                Assert.assertTrue(tmpBatch.getCandidateAtomCount(j) > 0);
+                if (tmpIsCircular) {
+                    Assert.assertTrue(tmpBatch.getCandidateExocyclicOxygenCount(j) >= 0);
+                    if ((tmpCandidateFlags & SugarDetectionBatch.GLYCOSIDIC_BOND_CANDIDATE_FLAG) != 0) {
+                        tmpGlycosidicBondCandidatesCounter++;
+                    }
+                } else {
+                    Assert.assertEquals(-1, tmpBatch.getCandidateExocyclicOxygenCount(j));
+                }
+            }
+        }
+        Assert.assertTrue(tmpSugarContainingCounter > 0);
+        Assert.assertTrue(tmpGlycosidicBondCandidatesCounter > 0);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the normalisation stage and the binary molecule cache on the molecules of the review of bacterial
+ * glycosylated natural products that is supplied in the resources folder.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class BinaryMoleculeCacheTest {
+    /**
+     * Writes all review molecules in two normalised forms to a cache, reads them back, and compares the unique SMILES
+     * codes of the original and restored forms.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void roundTripTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        List<MoleculeNormalizer> tmpNormalizers = Arrays.asList(MoleculeNormalizer.BIGGEST_FRAGMENT,
+                new MoleculeNormalizer(MoleculeNormalizer.FragmentSelectionOption.NONE, true, true));
+        File tmpCacheFile = Files.createTempFile("molecule_cache", ".bin").toFile();
+        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
+        List<String> tmpExpectedSmilesCodes = new ArrayList<>(700);
+        int tmpRecordsCounter = 0;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name");
+             BinaryMoleculeCacheWriter tmpWriter = new BinaryMoleculeCacheWriter(tmpCacheFile, tmpNormalizers)) {
+            while (tmpSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSource.next();
+                IAtomContainer[] tmpForms = new IAtomContainer[tmpNormalizers.size()];
+                for (int i = 0; i < tmpForms.length; i++) {
+                    tmpForms[i] = tmpNormalizers.get(i).normalize(tmpRecord.getAtomContainer());
+                    tmpExpectedSmilesCodes.add(tmpSmiGen.create(tmpForms[i]));
+                }
+                tmpWriter.write(tmpRecord, tmpForms);
+                tmpRecordsCounter++;
+            }
+        }
+        Assert.assertEquals(344, tmpRecordsCounter);
+        int tmpIndex = 0;
+        try (BinaryMoleculeCacheSource tmpCacheSource = new BinaryMoleculeCacheSource(tmpCacheFile)) {
+            Assert.assertEquals(Arrays.asList(tmpNormalizers.get(0).getKey(), tmpNormalizers.get(1).getKey()),
+                    tmpCacheSource.getNormalizerKeys());
+            while (tmpCacheSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpCacheSource.next();
+                for (MoleculeNormalizer tmpNormalizer : tmpNormalizers) {
+                    IAtomContainer tmpRestoredForm = tmpRecord.getNormalizedForm(tmpNormalizer.getKey());
+                    Assert.assertEquals(tmpExpectedSmilesCodes.get(tmpIndex++), tmpSmiGen.create(tmpRestoredForm));
+                }
+            }
+        }
+        Assert.assertEquals(tmpExpectedSmilesCodes.size(), tmpIndex);
+        tmpCacheFile.delete();
+    }
+
+    /**
+     * Tests that the normalisers do not alter the given molecule and produce the expected forms.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void normalizerTest() throws Exception {
+        SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
+        IAtomContainer tmpMolecule = tmpSmiPar.parseSmiles("[H]OCC1OC(O)C(O)C(O)C1O.[Na+].[Cl-]");
+        String tmpOriginalSmilesCode = tmpSmiGen.create(tmpMolecule);
+        Assert.assertSame(tmpMolecule, MoleculeNormalizer.NONE.normalize(tmpMolecule));
+        IAtomContainer tmpBiggestFragment = MoleculeNormalizer.BIGGEST_FRAGMENT.normalize(tmpMolecule);
+        Assert.assertEquals(13, tmpBiggestFragment.getAtomCount());
+        IAtomContainer tmpSuppressed = new MoleculeNormalizer(MoleculeNormalizer.FragmentSelectionOption.HEAVIEST,
+                true, true).normalize(tmpMolecule);
+        Assert.assertEquals(12, tmpSuppressed.getAtomCount());
+        Assert.assertEquals("OCC1OC(O)C(O)C(O)C1O", tmpSmiGen.create(tmpSuppressed));
+        Assert.assertNotNull(tmpSuppressed.getAtom(0).getAtomTypeName());
+        Assert.assertEquals(tmpOriginalSmilesCode, tmpSmiGen.create(tmpMolecule));
+        Assert.assertEquals(MoleculeNormalizer.BIGGEST_FRAGMENT,
+                new MoleculeNormalizer(MoleculeNormalizer.FragmentSelectionOption.BIGGEST, false, false));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.File;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tests the exocyclic oxygen histogram against the formerly used computation: counting the exocyclic oxygen atoms of
+ * every detected candidate afterwards and formatting the ratios with a NumberFormat. This class extends the Sugar
+ * Removal Utility to have access to the protected exocyclic oxygen atom count method.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class ExocyclicOxygenHistogramTest extends SugarRemovalUtility {
+    /**
+     * Constructor that calls the super constructor.
+     */
+    public ExocyclicOxygenHistogramTest() {
+        super(DefaultChemObjectBuilder.getInstance());
+    }
+
+    /**
+     * Tests that the integer ratio buckets and their labels are identical to the ratios formatted with one maximum
+     * fraction digit and rounding mode 'down'.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void ratioLabelTest() throws Exception {
+        NumberFormat tmpRatioOutputFormat = NumberFormat.getInstance(Locale.US);
+        tmpRatioOutputFormat.setMaximumFractionDigits(1);
+        tmpRatioOutputFormat.setRoundingMode(RoundingMode.DOWN);
+        for (int tmpRingSize = 1; tmpRingSize <= 10; tmpRingSize++) {
+            for (int tmpOxygenAtomCount = 0; tmpOxygenAtomCount <= 2 * tmpRingSize; tmpOxygenAtomCount++) {
+                String tmpExpected = tmpRatioOutputFormat.format((double) tmpOxygenAtomCount / (double) tmpRingSize);
+                int tmpBucket = ExocyclicOxygenHistogram.getRatioBucket(tmpOxygenAtomCount, tmpRingSize);
+                Assert.assertEquals(tmpExpected, ExocyclicOxygenHistogram.getRatioLabel(tmpBucket));
+            }
+        }
+    }
+
+    /**
+     * Analyses the review molecules supplied in the resources folder with the exocyclic oxygens analysis and compares
+     * the histogram recorded during detection to one compiled by counting the exocyclic oxygen atoms of the candidates
+     * afterwards, with the exocyclic oxygen atoms setting disabled. Also tests merging of two partial histograms.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void reviewMoleculesTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        this.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(false);
+        ExocyclicOxygenStatisticsAnalysis tmpAnalysis = new ExocyclicOxygenStatisticsAnalysis();
+        ExocyclicOxygenHistogram tmpExpectedHistogram = new ExocyclicOxygenHistogram();
+        ExocyclicOxygenHistogram tmpFirstHalfHistogram = new ExocyclicOxygenHistogram();
+        ExocyclicOxygenHistogram tmpSecondHalfHistogram = new ExocyclicOxygenHistogram();
+        int tmpMoleculesCounter = 0;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSource.next();
+                IAtomContainer tmpMolecule = tmpRecord.getAtomContainer();
+                tmpAnalysis.analyse(tmpRecord, tmpMolecule);
+                IAtomContainer tmpMoleculeClone = tmpMolecule.clone();
+                List<IAtomContainer> tmpCandidates = this.getCircularSugarCandidates(tmpMoleculeClone);
+                ExocyclicOxygenHistogram tmpHalfHistogram = tmpMoleculesCounter % 2 == 0 ? tmpFirstHalfHistogram
+                        : tmpSecondHalfHistogram;
+                for (IAtomContainer tmpCandidate : tmpCandidates) {
+                    int tmpOxygenAtomCount = this.getExocyclicOxygenAtomCount(tmpCandidate, tmpMoleculeClone);
+                    tmpExpectedHistogram.add(tmpCandidate.getAtomCount(), tmpOxygenAtomCount);
+                    tmpHalfHistogram.add(tmpCandidate.getAtomCount(), tmpOxygenAtomCount);
+                }
+                tmpMoleculesCounter++;
+            }
+        }
+        Assert.assertEquals(344, tmpAnalysis.getMoleculesCounter());
+        ExocyclicOxygenHistogram tmpHistogram = tmpAnalysis.getHistogram();
+        Assert.assertTrue(tmpExpectedHistogram.getTotalCount() > 0);
+        tmpFirstHalfHistogram.merge(tmpSecondHalfHistogram);
+        for (ExocyclicOxygenHistogram tmpActualHistogram : new ExocyclicOxygenHistogram[] {tmpHistogram, tmpFirstHalfHistogram}) {
+            Assert.assertEquals(tmpExpectedHistogram.getTotalCount(), tmpActualHistogram.getTotalCount());
+            Assert.assertEquals(tmpExpectedHistogram.getMaxRatioBucket(), tmpActualHistogram.getMaxRatioBucket());
+            for (int i = 0; i <= tmpExpectedHistogram.getMaxRatioBucket(); i++) {
+                Assert.assertEquals(tmpExpectedHistogram.getRatioFrequency(i), tmpActualHistogram.getRatioFrequency(i));
+            }
+            for (int tmpRingSize = 5; tmpRingSize <= 7; tmpRingSize++) {
+                Assert.assertEquals(tmpExpectedHistogram.getRingSizeCount(tmpRingSize),
+                        tmpActualHistogram.getRingSizeCount(tmpRingSize));
+                Assert.assertEquals(tmpExpectedHistogram.getMaxOxygenCount(tmpRingSize),
+                        tmpActualHistogram.getMaxOxygenCount(tmpRingSize));
+                for (int i = 0; i <= tmpExpectedHistogram.getMaxOxygenCount(tmpRingSize); i++) {
+                    Assert.assertEquals(tmpExpectedHistogram.getOxygenCountFrequency(tmpRingSize, i),
+                            tmpActualHistogram.getOxygenCountFrequency(tmpRingSize, i));
+                }
+            }
+        }
+        File tmpOutputFolder = Files.createTempDirectory("exocyclic_oxygens").toFile();
+        tmpAnalysis.initialize(tmpOutputFolder.getPath() + File.separator);
+        tmpAnalysis.writeResults();
+        List<String> tmpRatioLines = Files.readAllLines(new File(tmpOutputFolder, "ExoCycOxRatioFrequencies.csv").toPath());
+        Assert.assertEquals("Ratio;Frequency", tmpRatioLines.get(0));
+        Assert.assertEquals(tmpExpectedHistogram.getMaxRatioBucket() + 2, tmpRatioLines.size());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.fingerprint.CircularFingerprinter;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tests building, reopening, and appending to fingerprint stores, and picking directly from a mapped store.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class FingerprintStoreTest {
+    /**
+     * Builds the molecule and aglycone stores of the review molecules in parallel, with small mapped segments, and
+     * compares them to sequentially computed fingerprints; then reopens the stores, appends two molecules, and checks
+     * that the IDs and fingerprints persist.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void buildAndAppendTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        File tmpFolder = Files.createTempDirectory("fingerprint_store_test").toFile();
+        File tmpMoleculesFile = new File(tmpFolder, "review" + FingerprintStoreBuilder.MOLECULES_STORE_SUFFIX);
+        File tmpAglyconesFile = new File(tmpFolder, "review" + FingerprintStoreBuilder.AGLYCONES_STORE_SUFFIX);
+        //a segment holds seven fingerprints of 1024 bits
+        long tmpSegmentSize = 1000L;
+        try (FingerprintStore tmpMoleculeStore = FingerprintStore.create(tmpMoleculesFile, 1024, tmpSegmentSize);
+             FingerprintStore tmpAglyconeStore = FingerprintStore.create(tmpAglyconesFile, 1024, tmpSegmentSize);
+             SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            FingerprintStoreBuilder tmpBuilder = new FingerprintStoreBuilder(tmpMoleculeStore, tmpAglyconeStore, 3, 50);
+            tmpBuilder.append(tmpSource);
+            Assert.assertEquals(344, tmpBuilder.getMoleculesCounter());
+            Assert.assertEquals(344 - tmpBuilder.getFailedMoleculesCounter(), tmpMoleculeStore.size());
+        }
+        List<String> tmpIDs = new ArrayList<>(344);
+        List<BitSet> tmpMoleculeFingerprints = new ArrayList<>(344);
+        List<String> tmpAglyconeIDs = new ArrayList<>(344);
+        List<BitSet> tmpAglyconeFingerprints = new ArrayList<>(344);
+        CircularFingerprinter tmpFingerprinter = new CircularFingerprinter(CircularFingerprinter.CLASS_ECFP6, 1024);
+        SugarRemovalUtility tmpSugarRemovalUtil = SugarRemovalUtilityPool.createInstance();
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSource.next();
+                IAtomContainer tmpMolecule = tmpRecord.getAtomContainer();
+                if (!ConnectivityChecker.isConnected(tmpMolecule)) {
+                    tmpMolecule = SugarRemovalUtility.selectBiggestUnconnectedFragment(tmpMolecule);
+                }
+                tmpIDs.add(tmpRecord.getID());
+                tmpMoleculeFingerprints.add(tmpFingerprinter.getBitFingerprint(tmpMolecule).asBitSet());
+                IAtomContainer tmpAglycone = tmpSugarRemovalUtil.removeCircularAndLinearSugars(tmpMolecule, true);
+                if (!tmpAglycone.isEmpty()) {
+                    tmpAglyconeIDs.add(tmpRecord.getID());
+                    tmpAglyconeFingerprints.add(tmpFingerprinter.getBitFingerprint(tmpAglycone).asBitSet());
+                }
+            }
+        }
+        Assert.assertTrue(tmpAglyconeIDs.size() < tmpIDs.size());
+        try (FingerprintStore tmpMoleculeStore = FingerprintStore.open(tmpMoleculesFile, tmpSegmentSize);
+             FingerprintStore tmpAglyconeStore = FingerprintStore.open(tmpAglyconesFile)) {
+            this.assertStoreContains(tmpMoleculeStore, tmpIDs, tmpMoleculeFingerprints);
+            this.assertStoreContains(tmpAglyconeStore, tmpAglyconeIDs, tmpAglyconeFingerprints);
+            Assert.assertEquals(0, tmpMoleculeStore.indexOf(tmpIDs.get(0)));
+            Assert.assertEquals(-1, tmpMoleculeStore.indexOf("unknown"));
+            PackedFingerprints tmpPackedFingerprints = new PackedFingerprints(1024, tmpIDs.size());
+            for (BitSet tmpFingerprint : tmpMoleculeFingerprints) {
+                tmpPackedFingerprints.add(tmpFingerprint);
+            }
+            Assert.assertArrayEquals(
+                    new MaxMinPicker(tmpPackedFingerprints, MaxMinPicker.SimilarityMetric.TANIMOTO, 1).pick(20, 1L),
+                    new MaxMinPicker(tmpMoleculeStore, MaxMinPicker.SimilarityMetric.TANIMOTO, 2).pick(20, 1L));
+            String[][] tmpMolecules = {
+                    {"glucose", "OCC1OC(O)C(O)C(O)C1O"},
+                    {"aspirin", "CC(=O)Oc1ccccc1C(=O)O"}
+            };
+            FingerprintStoreBuilder tmpBuilder = new FingerprintStoreBuilder(tmpMoleculeStore, tmpAglyconeStore, 2,
+                    FingerprintStoreBuilder.DEFAULT_BATCH_SIZE);
+            tmpBuilder.append(new ArrayMoleculeSource("test", tmpMolecules));
+            Assert.assertEquals(tmpIDs.size() + 2, tmpMoleculeStore.size());
+            //glucose is completely removed as sugar
+            Assert.assertEquals(tmpAglyconeIDs.size() + 1, tmpAglyconeStore.size());
+        }
+        try (FingerprintStore tmpMoleculeStore = FingerprintStore.open(tmpMoleculesFile)) {
+            Assert.assertEquals(tmpIDs.size() + 2, tmpMoleculeStore.size());
+            Assert.assertEquals(tmpIDs.size() + 1, tmpMoleculeStore.indexOf("aspirin"));
+            this.assertStoreContains(tmpMoleculeStore, tmpIDs, tmpMoleculeFingerprints);
+        }
+    }
+
+    /**
+     * Asserts that the store starts with the given IDs and fingerprints.
+     */
+    private void assertStoreContains(FingerprintStore aStore, List<String> anIDsList, List<BitSet> aFingerprintsList) {
+        for (int i = 0; i < anIDsList.size(); i++) {
+            Assert.assertEquals(anIDsList.get(i), aStore.getID(i));
+            Assert.assertEquals(anIDsList.get(i), aFingerprintsList.get(i), aStore.get(i));
+            Assert.assertEquals(aFingerprintsList.get(i).cardinality(), aStore.getCardinality(i));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Tests the embedded glycosylation analysis service on a local port.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class GlycosylationAnalysisServerTest {
+    /**
+     * Sends a batch and a single molecule to the service and checks the returned JSON, then exceeds the maximum request
+     * size. Also prints the median and maximum latency of a few single-molecule requests.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void analyseEndpointTest() throws Exception {
+        GlycosylationAnalysisServer tmpServer = new GlycosylationAnalysisServer(0, 2, 2, 16, 3);
+        tmpServer.start();
+        try {
+            String tmpBaseURL = "http://localhost:" + tmpServer.getPort();
+            String tmpBatch = "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO amygdalin\n"
+                    + "CC(=O)Oc1ccccc1C(=O)O aspirin\n"
+                    + "C1CC(C invalid\n";
+            String[] tmpResponse = GlycosylationAnalysisServerTest.request(tmpBaseURL + "/analyse", "POST", tmpBatch);
+            Assert.assertEquals("200", tmpResponse[0]);
+            String tmpJson = tmpResponse[1];
+            Assert.assertTrue(tmpJson.startsWith("{\"results\":[{\"id\":\"amygdalin\""));
+            Assert.assertTrue(tmpJson.contains("\"circularSugarCount\":2,\"terminalCircularSugarCount\":2,"
+                    + "\"nonTerminalCircularSugarCount\":0"));
+            Assert.assertTrue(tmpJson.contains("\"circularSugarsWithGlycosidicBondCount\":2"));
+            Assert.assertTrue(tmpJson.contains("\"deglycosylatedSmiles\":\"N#CC(O)C=1C=CC=CC1\""));
+            Assert.assertTrue(tmpJson.contains("{\"id\":\"aspirin\",\"smiles\":\"CC(=O)Oc1ccccc1C(=O)O\",\"containsSugars\":false"));
+            Assert.assertTrue(tmpJson.contains("{\"id\":\"invalid\",\"smiles\":\"C1CC(C\",\"error\":"));
+            tmpResponse = GlycosylationAnalysisServerTest.request(tmpBaseURL + "/analyse", "POST", tmpBatch + "C c\n");
+            Assert.assertEquals("413", tmpResponse[0]);
+            String tmpQueryURL = tmpBaseURL + "/analyse?id=glc&smiles="
+                    + URLEncoder.encode("OCC1OC(O)C(O)C(O)C1O", StandardCharsets.UTF_8);
+            long[] tmpLatencies = new long[21];
+            for (int i = 0; i < tmpLatencies.length; i++) {
+                long tmpStartTime = System.nanoTime();
+                tmpResponse = GlycosylationAnalysisServerTest.request(tmpQueryURL, "GET", null);
+                tmpLatencies[i] = System.nanoTime() - tmpStartTime;
+                Assert.assertEquals("200", tmpResponse[0]);
+                Assert.assertTrue(tmpResponse[1].contains("\"basicallyASugar\":true"));
+                Assert.assertTrue(tmpResponse[1].contains("\"glycosidicBondExemption\":true"));
+            }
+            Arrays.sort(tmpLatencies);
+            System.out.println("Median latency: " + tmpLatencies[tmpLatencies.length / 2] / 1000 + " microseconds, maximum: "
+                    + tmpLatencies[tmpLatencies.length - 1] / 1000 + " microseconds");
+            tmpResponse = GlycosylationAnalysisServerTest.request(tmpBaseURL + "/health", "GET", null);
+            Assert.assertEquals("200", tmpResponse[0]);
+            Assert.assertTrue(tmpResponse[1].contains("\"workers\":2"));
+        } finally {
+            tmpServer.stop(0);
+        }
+    }
+
+    /**
+     * Sends a request and returns status code and body.
+     */
+    private static String[] request(String aURL, String aMethod, String aBody) throws Exception {
+        HttpURLConnection tmpConnection = (HttpURLConnection) new URL(aURL).openConnection();
+        tmpConnection.setRequestMethod(aMethod);
+        if (!Objects.isNull(aBody)) {
+            tmpConnection.setDoOutput(true);
+            try (OutputStream tmpOutputStream = tmpConnection.getOutputStream()) {
+                tmpOutputStream.write(aBody.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int tmpStatusCode = tmpConnection.getResponseCode();
+        InputStream tmpInputStream = tmpStatusCode < 400 ? tmpConnection.getInputStream() : tmpConnection.getErrorStream();
+        String tmpResponseBody;
+        try (InputStream tmpStream = tmpInputStream) {
+            tmpResponseBody = new String(tmpStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        tmpConnection.disconnect();
+        return new String[]{Integer.toString(tmpStatusCode), tmpResponseBody};
+    }
+}
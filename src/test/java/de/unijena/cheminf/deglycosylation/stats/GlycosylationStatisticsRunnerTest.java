@@ -0,0 +1,314 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests the standalone runner on a few small in-memory molecule sets.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class GlycosylationStatisticsRunnerTest {
+    /**
+     * Runs the basic statistics on five molecules, one of them not parseable, and checks the counters and the output
+     * files.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void basicsOnArraySourceTest() throws Exception {
+        String[][] tmpMolecules = {
+                {"amygdalin", "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"},
+                {"glucose", "OCC1OC(O)C(O)C(O)C1O"},
+                {"sorbitol_ester", "OCC(O)C(O)C(O)C(O)C(O)COc1ccc(cc1)C(=O)O"},
+                {"aspirin", "CC(=O)Oc1ccccc1C(=O)O"},
+                {"invalid", "C1CC(C"}
+        };
+        File tmpOutputFolder = Files.createTempDirectory("runner_test").toFile();
+        List<GlycosylationAnalysis> tmpAnalyses = GlycosylationStatisticsRunner.createAnalyses(
+                BasicGlycosylationStatisticsAnalysis.NAME);
+        GlycosylationStatisticsRunner tmpRunner = new GlycosylationStatisticsRunner(
+                new ArrayMoleculeSource("test", tmpMolecules), tmpAnalyses, tmpOutputFolder.getAbsolutePath());
+        tmpRunner.run();
+        Assert.assertEquals(5, tmpRunner.getMoleculesCounter());
+        Assert.assertEquals(1, tmpRunner.getReadAndParseExceptionsCounter());
+        BasicGlycosylationStatisticsAnalysis tmpBasics = (BasicGlycosylationStatisticsAnalysis) tmpAnalyses.get(0);
+        Assert.assertEquals(4, tmpBasics.getMoleculesCounter());
+        Assert.assertEquals(3, tmpBasics.getHasAnyTypeOfSugarsCounter());
+        Assert.assertEquals(1, tmpBasics.getHasNoSugarsCounter());
+        Assert.assertEquals(2, tmpBasics.getHasCircularSugarsCounter());
+        Assert.assertEquals(1, tmpBasics.getHasLinearSugarsCounter());
+        Assert.assertEquals(1, tmpBasics.getBasicallyASugarCounter());
+        AnalysisErrorAccountant tmpAccountant = tmpRunner.getErrorAccountant();
+        Assert.assertEquals(1, tmpAccountant.getCount(AnalysisErrorAccountant.Stage.PARSE));
+        Assert.assertEquals(0, tmpAccountant.getCount(AnalysisErrorAccountant.Stage.ANALYSE));
+        Assert.assertEquals(1, tmpAccountant.getSampledTraces().size());
+        List<String> tmpRejectLines = Files.readAllLines(new File(tmpRunner.getOutputFolderPath()
+                + AnalysisErrorAccountant.REJECT_FILE_NAME).toPath());
+        Assert.assertEquals(2, tmpRejectLines.size());
+        Assert.assertTrue(tmpRejectLines.get(1).startsWith("C1CC(C invalid PARSE"));
+        File tmpBasicsFolder = new File(tmpRunner.getOutputFolderPath() + BasicGlycosylationStatisticsAnalysis.NAME);
+        Assert.assertTrue(new File(tmpBasicsFolder, AbstractGlycosylationAnalysis.OUTPUT_FILE_NAME).isFile());
+    }
+
+    /**
+     * Runs the basic statistics on the review molecules, writing a binary molecule cache, and again on the cache, and
+     * compares the counters of both runs.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void cacheRunTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        File tmpOutputFolder = Files.createTempDirectory("runner_cache_test").toFile();
+        File tmpCacheFile = new File(tmpOutputFolder, "review.cache");
+        List<GlycosylationAnalysis> tmpAnalyses = GlycosylationStatisticsRunner.createAnalyses(
+                BasicGlycosylationStatisticsAnalysis.NAME);
+        GlycosylationStatisticsRunner tmpRunner;
+        try (MoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            tmpRunner = new GlycosylationStatisticsRunner(tmpSource, tmpAnalyses, tmpOutputFolder.getAbsolutePath());
+            tmpRunner.setCacheFile(tmpCacheFile);
+            tmpRunner.run();
+        }
+        BasicGlycosylationStatisticsAnalysis tmpBasics = (BasicGlycosylationStatisticsAnalysis) tmpAnalyses.get(0);
+        List<GlycosylationAnalysis> tmpCachedAnalyses = GlycosylationStatisticsRunner.createAnalyses(
+                BasicGlycosylationStatisticsAnalysis.NAME);
+        GlycosylationStatisticsRunner tmpCachedRunner;
+        try (MoleculeSource tmpSource = new BinaryMoleculeCacheSource(tmpCacheFile)) {
+            tmpCachedRunner = new GlycosylationStatisticsRunner(tmpSource, tmpCachedAnalyses,
+                    tmpOutputFolder.getAbsolutePath() + File.separator + "cached");
+            tmpCachedRunner.run();
+        }
+        BasicGlycosylationStatisticsAnalysis tmpCachedBasics = (BasicGlycosylationStatisticsAnalysis) tmpCachedAnalyses.get(0);
+        Assert.assertEquals(344, tmpCachedRunner.getMoleculesCounter());
+        Assert.assertEquals(tmpRunner.getMoleculesCounter(), tmpCachedRunner.getMoleculesCounter());
+        Assert.assertEquals(tmpBasics.getHasAnyTypeOfSugarsCounter(), tmpCachedBasics.getHasAnyTypeOfSugarsCounter());
+        Assert.assertEquals(tmpBasics.getHasCircularSugarsCounter(), tmpCachedBasics.getHasCircularSugarsCounter());
+        Assert.assertEquals(tmpBasics.getHasLinearSugarsCounter(), tmpCachedBasics.getHasLinearSugarsCounter());
+        Assert.assertEquals(tmpBasics.getBasicallyASugarCounter(), tmpCachedBasics.getBasicallyASugarCounter());
+    }
+
+    /**
+     * Runs the basic statistics on the review molecules under normal, (simulated) high, and critical memory pressure;
+     * under high pressure, the spilled ID lists must be written exactly like without pressure, and under critical
+     * pressure, the ID lists are dropped but the counters remain.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void memoryPressureTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        File tmpOutputFolder = Files.createTempDirectory("runner_memory_test").toFile();
+        double[][] tmpThresholds = {{2.0, 2.0}, {0.0, 2.0}, {0.0, 0.0}};
+        HeapMemoryMonitor.Pressure[] tmpExpectedPressures = {HeapMemoryMonitor.Pressure.NORMAL,
+                HeapMemoryMonitor.Pressure.HIGH, HeapMemoryMonitor.Pressure.CRITICAL};
+        List<List<String>> tmpOutputLines = new ArrayList<>(tmpThresholds.length);
+        int[] tmpSugarContainingCounters = new int[tmpThresholds.length];
+        for (int i = 0; i < tmpThresholds.length; i++) {
+            List<GlycosylationAnalysis> tmpAnalyses = GlycosylationStatisticsRunner.createAnalyses(
+                    BasicGlycosylationStatisticsAnalysis.NAME);
+            GlycosylationStatisticsRunner tmpRunner;
+            try (MoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+                tmpRunner = new GlycosylationStatisticsRunner(tmpSource, tmpAnalyses,
+                        tmpOutputFolder.getAbsolutePath() + File.separator + i);
+                tmpRunner.setMemoryMonitor(new HeapMemoryMonitor(tmpThresholds[i][0], tmpThresholds[i][1]));
+                tmpRunner.run();
+            }
+            Assert.assertEquals(tmpExpectedPressures[i], tmpRunner.getMaxMemoryPressure());
+            tmpSugarContainingCounters[i] = ((BasicGlycosylationStatisticsAnalysis) tmpAnalyses.get(0))
+                    .getHasAnyTypeOfSugarsCounter();
+            tmpOutputLines.add(Files.readAllLines(new File(tmpRunner.getOutputFolderPath()
+                    + BasicGlycosylationStatisticsAnalysis.NAME, AbstractGlycosylationAnalysis.OUTPUT_FILE_NAME).toPath()));
+        }
+        Assert.assertEquals(tmpOutputLines.get(0), tmpOutputLines.get(1));
+        Assert.assertTrue(tmpOutputLines.get(0).stream().anyMatch(tmpLine -> tmpLine.startsWith("Sugar-containing molecules: [")
+                && tmpLine.contains(",")));
+        Assert.assertEquals(tmpSugarContainingCounters[0], tmpSugarContainingCounters[2]);
+        Assert.assertTrue(tmpOutputLines.get(2).contains("Sugar-containing molecules: [" + tmpSugarContainingCounters[0]
+                + " IDs, dropped under memory pressure]"));
+    }
+
+    /**
+     * Runs all analyses on the review molecules and on a small set with an unparseable molecule, once sequentially and
+     * once with the staged pipeline that runs the sugar detections on its worker threads, and checks that all output
+     * files and reject files are identical.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void stagedPipelineTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        String[][] tmpMolecules = {
+                {"glucose", "OCC1OC(O)C(O)C(O)C1O"},
+                {"invalid", "C1CC(C"},
+                {"amygdalin", "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"}
+        };
+        File tmpOutputFolder = Files.createTempDirectory("runner_pipeline_test").toFile();
+        String tmpAnalysisNames = String.join(",", GlycosylationStatisticsRunner.getAnalysisNames());
+        for (int tmpSet = 0; tmpSet < 2; tmpSet++) {
+            List<List<String>> tmpFileContents = new ArrayList<>(2);
+            for (int tmpNumberOfWorkers : new int[] {1, 4}) {
+                String tmpRunFolderPath = tmpOutputFolder.getAbsolutePath() + File.separator + tmpSet + "_"
+                        + tmpNumberOfWorkers;
+                GlycosylationStatisticsRunner tmpRunner;
+                try (MoleculeSource tmpSource = tmpSet == 0 ? new SDFMoleculeSource(tmpSDFile, "Name")
+                        : new ArrayMoleculeSource("test", tmpMolecules)) {
+                    tmpRunner = new GlycosylationStatisticsRunner(tmpSource,
+                            GlycosylationStatisticsRunner.createAnalyses(tmpAnalysisNames), tmpRunFolderPath);
+                    tmpRunner.setNumberOfWorkers(tmpNumberOfWorkers);
+                    tmpRunner.run();
+                }
+                Assert.assertEquals(tmpSet == 0 ? 344 : 3, tmpRunner.getMoleculesCounter());
+                Assert.assertEquals(tmpSet == 0 ? 0 : 1, tmpRunner.getReadAndParseExceptionsCounter());
+                Path tmpRunFolder = new File(tmpRunner.getOutputFolderPath()).toPath();
+                List<Path> tmpFiles;
+                try (Stream<Path> tmpPaths = Files.walk(tmpRunFolder)) {
+                    //the sampled stack traces of the error summary depend on the threads
+                    tmpFiles = tmpPaths.filter(Files::isRegularFile).filter(aPath -> !aPath.getFileName().toString()
+                            .equals(AnalysisErrorAccountant.SUMMARY_FILE_NAME)).sorted().collect(Collectors.toList());
+                }
+                List<String> tmpLines = new ArrayList<>(10000);
+                for (Path tmpFile : tmpFiles) {
+                    tmpLines.add(tmpRunFolder.relativize(tmpFile).toString());
+                    tmpLines.addAll(Files.readAllLines(tmpFile));
+                }
+                tmpFileContents.add(tmpLines);
+            }
+            Assert.assertFalse(tmpFileContents.get(0).isEmpty());
+            Assert.assertEquals(tmpFileContents.get(0), tmpFileContents.get(1));
+        }
+    }
+
+    /**
+     * Tests that unknown analysis names and invalid numbers are rejected and that the warm-up run completes.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void commandLineTest() throws Exception {
+        Assert.assertEquals(2, GlycosylationStatisticsRunner.runFromCommandLine(new String[]{"--smiles", "x.txt",
+                "--analyses", "unknown"}));
+        Assert.assertEquals(2, GlycosylationStatisticsRunner.runFromCommandLine(new String[]{"--analyses", "basics"}));
+        String[][] tmpInvalidNumbers = new String[][] {{"--serve", "port"}, {"--serve", "70000"}, {"--sample", "0"},
+                {"--workers", "-2"}, {"--workers", "many"}, {"--time-budget", "0"}, {"--time-budget", "1.5"}};
+        for (String[] tmpArguments : tmpInvalidNumbers) {
+            Assert.assertEquals(tmpArguments[0] + " " + tmpArguments[1], 2, GlycosylationStatisticsRunner.runFromCommandLine(
+                    new String[]{"--smiles", "x.txt", tmpArguments[0], tmpArguments[1]}));
+        }
+        Assert.assertEquals(2, GlycosylationStatisticsRunner.runFromCommandLine(new String[]{"--mongo",
+                "localhost:port/COCONUT/uniqueNaturalProduct"}));
+        Assert.assertEquals(0, GlycosylationStatisticsRunner.runFromCommandLine(new String[]{"--warm-up"}));
+    }
+
+    /**
+     * Stops the analysis of a large polysaccharide at a passed deadline, and runs the basic statistics under a generous
+     * and a tiny budget, checking that molecules over budget are analysed in the slow lane or cancelled and recorded.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void timeBudgetTest() throws Exception {
+        //linear chain of 40 glucose units, each unit with its own ring closure label
+        StringBuilder tmpPolysaccharide = new StringBuilder("O");
+        for (int i = 10; i < 50; i++) {
+            tmpPolysaccharide.append("C%").append(i).append("C(CO)OC(O");
+        }
+        tmpPolysaccharide.append(")C(O)C%49O");
+        for (int i = 48; i >= 10; i--) {
+            tmpPolysaccharide.append(")C(O)C%").append(i).append("O");
+        }
+        IAtomContainer tmpMolecule = new SmilesParser(DefaultChemObjectBuilder.getInstance()).parseSmiles(
+                tmpPolysaccharide.toString());
+        MoleculeRecord tmpRecord = new MoleculeRecord("polysaccharide", tmpPolysaccharide.toString(), 1);
+        BasicGlycosylationStatisticsAnalysis tmpStoppedBasics = new BasicGlycosylationStatisticsAnalysis();
+        MoleculeTimeBudget tmpDeadline = new MoleculeTimeBudget(1L, 600000);
+        tmpDeadline.start(false);
+        try {
+            Thread.sleep(5L);
+            Assert.assertThrows(MoleculeTimeBudget.BudgetExceededException.class,
+                    () -> tmpStoppedBasics.analyse(tmpRecord, tmpMolecule));
+            Assert.assertEquals(0, tmpStoppedBasics.getMoleculesCounter());
+            tmpDeadline.start(true);
+            MoleculeTimeBudget.checkDeadline();
+        } finally {
+            tmpDeadline.stop();
+        }
+        MoleculeTimeBudget.checkDeadline();
+        String[][] tmpMolecules = {
+                {"amygdalin", "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"},
+                {"glucose", "OCC1OC(O)C(O)C(O)C1O"},
+                {"sorbitol_ester", "OCC(O)C(O)C(O)C(O)C(O)COc1ccc(cc1)C(=O)O"},
+                {"aspirin", "CC(=O)Oc1ccccc1C(=O)O"},
+                {"polysaccharide", tmpPolysaccharide.toString()}
+        };
+        File tmpOutputFolder = Files.createTempDirectory("runner_time_budget_test").toFile();
+        List<GlycosylationAnalysis> tmpAnalyses = GlycosylationStatisticsRunner.createAnalyses(
+                BasicGlycosylationStatisticsAnalysis.NAME);
+        GlycosylationStatisticsRunner tmpRunner = new GlycosylationStatisticsRunner(
+                new ArrayMoleculeSource("test", tmpMolecules), tmpAnalyses, tmpOutputFolder.getAbsolutePath());
+        tmpRunner.setMoleculeTimeBudget(600000L);
+        tmpRunner.run();
+        BasicGlycosylationStatisticsAnalysis tmpBasics = (BasicGlycosylationStatisticsAnalysis) tmpAnalyses.get(0);
+        Assert.assertEquals(5, tmpBasics.getMoleculesCounter());
+        Assert.assertEquals(4, tmpBasics.getHasAnyTypeOfSugarsCounter());
+        Assert.assertTrue(tmpRunner.getTimeBudget().getOffenders().isEmpty());
+        File tmpOffendersFile = new File(tmpRunner.getOutputFolderPath() + MoleculeTimeBudget.OFFENDERS_FILE_NAME);
+        Assert.assertEquals(1, Files.readAllLines(tmpOffendersFile.toPath()).size());
+        tmpAnalyses = GlycosylationStatisticsRunner.createAnalyses(BasicGlycosylationStatisticsAnalysis.NAME);
+        tmpRunner = new GlycosylationStatisticsRunner(new ArrayMoleculeSource("test", tmpMolecules), tmpAnalyses,
+                tmpOutputFolder.getAbsolutePath() + File.separator + "tiny");
+        tmpRunner.setMoleculeTimeBudget(1L);
+        tmpRunner.run();
+        tmpBasics = (BasicGlycosylationStatisticsAnalysis) tmpAnalyses.get(0);
+        MoleculeTimeBudget tmpBudget = tmpRunner.getTimeBudget();
+        int tmpCancelledCount = tmpBudget.getOffenderCount(MoleculeTimeBudget.Lane.CANCELLED);
+        Assert.assertEquals(5, tmpRunner.getMoleculesCounter());
+        Assert.assertEquals(5 - tmpCancelledCount, tmpBasics.getMoleculesCounter());
+        Assert.assertEquals(tmpCancelledCount, tmpRunner.getErrorAccountant().getCount(
+                AnalysisErrorAccountant.Stage.ANALYSE, TimeoutException.class));
+        List<MoleculeTimeBudget.Offender> tmpOffenders = tmpBudget.getOffenders();
+        Assert.assertTrue(tmpOffenders.stream().anyMatch(anOffender -> anOffender.getID().equals("polysaccharide")
+                && anOffender.getLane() != MoleculeTimeBudget.Lane.MAIN));
+        tmpOffendersFile = new File(tmpRunner.getOutputFolderPath() + MoleculeTimeBudget.OFFENDERS_FILE_NAME);
+        List<String> tmpLines = Files.readAllLines(tmpOffendersFile.toPath());
+        Assert.assertEquals(tmpOffenders.size() + 1, tmpLines.size());
+        Assert.assertEquals("ID;Lane;Milliseconds", tmpLines.get(0));
+    }
+}
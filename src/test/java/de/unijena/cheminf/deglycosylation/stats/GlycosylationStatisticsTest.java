@@ -42,12 +42,10 @@ import org.openscience.cdk.DefaultChemObjectBuilder;
 import org.openscience.cdk.depict.DepictionGenerator;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.graph.ConnectivityChecker;
-import org.openscience.cdk.graph.GraphUtil;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.io.iterator.IteratingSDFReader;
-import org.openscience.cdk.isomorphism.DfPattern;
-import org.openscience.cdk.ringsearch.RingSearch;
+import org.openscience.cdk.isomorphism.Pattern;
 import org.openscience.cdk.smiles.SmiFlavor;
 import org.openscience.cdk.smiles.SmilesGenerator;
 import org.openscience.cdk.smiles.SmilesParser;
@@ -62,8 +60,6 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.math.RoundingMode;
-import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -71,7 +67,6 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Objects;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
@@ -150,6 +145,11 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
      */
     private static final Logger LOGGER = Logger.getLogger(GlycosylationStatisticsTest.class.getName());
 
+    /**
+     * Log file handler added to the root logger by the last call of initializeOutputFolderAndLogger()
+     */
+    private static FileHandler logFileHandler;
+
     /**
      * Sole constructor of this class. All settings are set to their default values (see public static constants or
      * enquire via get/is methods). To change these settings, use the respective 'setXY()' methods.
@@ -1178,8 +1178,8 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         String tmpOutputFolderPath = this.initializeOutputFolderAndLogger(tmpSpecificOutputFolderName);
         PrintWriter tmpOutputWriter = this.initializeOutputFile(tmpOutputFolderPath, "Output.txt");
         PrintWriter tmpCSVWriter = this.initializeOutputFile(tmpOutputFolderPath, "LinSugarsCarbonAtomCountFrequencies.csv");
-        //All settings in default
-        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        //All settings in default; ring perception is reused from the graph context of each molecule
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
         tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
         DepictionGenerator tmpDepictionGenerator = new DepictionGenerator();
@@ -1202,6 +1202,8 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpSmilesCode = tmpCurrentDoc.getString(GlycosylationStatisticsTest.SMILES_CODE_KEY);
                 tmpMolecule = tmpSmiPar.parseSmiles(tmpSmilesCode);
                 tmpMolecule.setTitle(tmpID);
+                MoleculeGraphContext tmpGraphContext = new MoleculeGraphContext(tmpMolecule);
+                tmpSugarRemovalUtil.setGraphContext(tmpGraphContext);
                 //leaving default SRU settings
                 tmpSugarRemovalUtil.setDetectLinearSugarsInRingsSetting(true);
                 //note: per default, those too small or too big, and acidic linear sugars are not counted!
@@ -1218,11 +1220,9 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                         tmpLinearSugarMoietiesInRingsCounter += tmpNumberOfLinearSugarsInCycles;
                         //this will be the list of candidates that only get detected if cyclic atoms are included
                         List<IAtomContainer> tmpLinearCandidatesActuallyInRings = new ArrayList<>(tmpNumberOfLinearSugarsInCycles * 2);
-                        int[][] tmpAdjList = GraphUtil.toAdjList(tmpMolecule);
-                        RingSearch tmpRingSearch = new RingSearch(tmpMolecule, tmpAdjList);
                         for (IAtomContainer tmpCandidate : tmpLinearCandidatesIncludingCycles) {
                             for (IAtom tmpAtom : tmpCandidate.atoms()) {
-                                if (tmpRingSearch.cyclic(tmpAtom)) {
+                                if (tmpGraphContext.isCyclic(tmpAtom)) {
                                     int tmpCarbonCount = 0;
                                     for (IAtom tmpAtom2 : tmpCandidate.atoms()) {
                                         String tmpSymbol = tmpAtom2.getSymbol();
@@ -1342,7 +1342,7 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         String tmpOutputFolderPath = this.initializeOutputFolderAndLogger(tmpSpecificOutputFolderName);
         PrintWriter tmpOutputWriter = this.initializeOutputFile(tmpOutputFolderPath, "Output.txt");
         //All settings in default
-        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
         tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
         Document tmpCurrentDoc;
@@ -1373,43 +1373,53 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpSmilesCode = tmpCurrentDoc.getString(GlycosylationStatisticsTest.SMILES_CODE_KEY);
                 tmpMolecule = tmpSmiPar.parseSmiles(tmpSmilesCode);
                 tmpMolecule.setTitle(tmpID);
-                //removes only terminal moieties but that is correct here
-                List<IAtomContainer> tmpDeglycosylatedCloneAndRemovedSugarMoietiesList =
-                        tmpSugarRemovalUtil.removeAndReturnCircularAndLinearSugars(tmpMolecule, true);
-                IAtomContainer tmpDeglycosylatedClone = tmpDeglycosylatedCloneAndRemovedSugarMoietiesList.get(0);
-                if (tmpDeglycosylatedClone.isEmpty()) {
-                    tmpBasicallyASugarCounter++;
-                    tmpBasicallyASugarCNPs.add(tmpID);
-                    //note: it is important to count the actually removed moieties here, not the detected ones!
-                    // Because there are multiple rounds of detection in the removal if only terminal moieties are removed
-                    int tmpNumberOfMoieties = tmpDeglycosylatedCloneAndRemovedSugarMoietiesList.size() - 1;
-                    if (tmpNumberOfMoieties == 1) {
-                        tmpBasicallyASingleSugarUnitCounter++;
-                        tmpBasicallyASingleSugarUnitCNPs.add(tmpID);
-                    }
+                //the removals of only circular or only linear sugars are simulated on masks of the molecule, the
+                // combined removal alters it and therefore comes last
+                MoleculeGraphContext tmpGraphContext = new MoleculeGraphContext(tmpMolecule);
+                tmpSugarRemovalUtil.setGraphContext(tmpGraphContext);
+                MaskedMolecule tmpCircularDeglycosylatedMask = new MaskedMolecule(tmpGraphContext);
+                if (!tmpCircularDeglycosylatedMask.isConnected()) {
+                    throw new IllegalArgumentException("Only terminal sugar moieties should be removed but the given "
+                            + "atomcontainer already contains multiple unconnected structures.");
                 }
-                IAtomContainer tmpCircularDeglycosylatedClone = tmpSugarRemovalUtil.removeCircularSugars(tmpMolecule, true);
-                if (tmpCircularDeglycosylatedClone.isEmpty()) {
+                MaskedMolecule tmpLinearDeglycosylatedMask = tmpCircularDeglycosylatedMask.copy();
+                List<IAtomContainer> tmpCircularCandidates = tmpSugarRemovalUtil.getCircularSugarCandidates(tmpMolecule);
+                List<IAtomContainer> tmpLinearCandidates = tmpSugarRemovalUtil.getLinearSugarCandidates(tmpMolecule);
+                tmpSugarRemovalUtil.removeSugarCandidates(tmpCircularDeglycosylatedMask, tmpCircularCandidates);
+                if (tmpCircularDeglycosylatedMask.isEmpty()) {
                     tmpBasicallyACircularSugarCounter++;
                     tmpBasicallyACircularSugarCNPs.add(tmpID);
                     //note: here, it is ok to only count the detected moieties because there is only one round of detection in the removal
-                    int tmpNumberOfMoieties = tmpSugarRemovalUtil.getNumberOfCircularSugars(tmpMolecule.clone());
-                    if (tmpNumberOfMoieties == 1) {
+                    if (tmpCircularCandidates.size() == 1) {
                         tmpBasicallyASingleCircularSugarCounter++;
                         tmpBasicallyASingleCircularSugarCNPs.add(tmpID);
                     }
                 }
-                IAtomContainer tmpLinearDeglycosylatedClone = tmpSugarRemovalUtil.removeLinearSugars(tmpMolecule, true);
-                if (tmpLinearDeglycosylatedClone.isEmpty()) {
+                tmpSugarRemovalUtil.removeSugarCandidates(tmpLinearDeglycosylatedMask, tmpLinearCandidates);
+                if (tmpLinearDeglycosylatedMask.isEmpty()) {
                     tmpBasicallyALinearSugarCounter++;
                     tmpBasicallyALinearSugarCNPs.add(tmpID);
                     //note: here, it is ok to only count the detected moieties because there is only one round of detection in the removal
-                    int tmpNumberOfMoieties = tmpSugarRemovalUtil.getNumberOfLinearSugars(tmpMolecule);
-                    if (tmpNumberOfMoieties == 1) {
+                    if (tmpLinearCandidates.size() == 1) {
                         tmpBasicallyASingleLinearSugarCounter++;
                         tmpBasicallyASingleLinearSugarCNPs.add(tmpID);
                     }
                 }
+                //removes only terminal moieties but that is correct here
+                List<IAtomContainer> tmpDeglycosylatedMoleculeAndRemovedSugarMoietiesList =
+                        tmpSugarRemovalUtil.removeAndReturnCircularAndLinearSugars(tmpMolecule, false);
+                tmpSugarRemovalUtil.setGraphContext(null);
+                if (tmpDeglycosylatedMoleculeAndRemovedSugarMoietiesList.get(0).isEmpty()) {
+                    tmpBasicallyASugarCounter++;
+                    tmpBasicallyASugarCNPs.add(tmpID);
+                    //note: it is important to count the actually removed moieties here, not the detected ones!
+                    // Because there are multiple rounds of detection in the removal if only terminal moieties are removed
+                    int tmpNumberOfMoieties = tmpDeglycosylatedMoleculeAndRemovedSugarMoietiesList.size() - 1;
+                    if (tmpNumberOfMoieties == 1) {
+                        tmpBasicallyASingleSugarUnitCounter++;
+                        tmpBasicallyASingleSugarUnitCNPs.add(tmpID);
+                    }
+                }
             } catch (Exception anException) {
                 GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpID, anException);
                 tmpExceptionsCounter++;
@@ -1703,28 +1713,24 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 "ExoCycOxHeptosesFrequencies.csv");
         PrintWriter tmpCSVExoCycOxRatioFreqWriter = this.initializeOutputFile(tmpOutputFolderPath,
                 "ExoCycOxRatioFrequencies.csv");
-        //All settings in default
-        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        //All settings in default, except for the exocyclic oxygen atoms setting, see below
+        RecordingSugarRemovalUtility tmpSugarRemovalUtil = new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
         tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
+        //the exocyclic oxygen atoms are counted during detection only if the setting is enabled; with a threshold of
+        // zero, no candidate is discarded, like with the setting disabled
+        tmpSugarRemovalUtil.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(true);
+        tmpSugarRemovalUtil.setExocyclicOxygenAtomsToAtomsInRingRatioThresholdSetting(0.0);
+        //note: the ratios are not rounded, the remaining decimals are neglected (rounding mode 'down'),
+        // which is correct here because the respective setting is a threshold
+        ExocyclicOxygenHistogram tmpHistogram = new ExocyclicOxygenHistogram();
+        tmpSugarRemovalUtil.setExocyclicOxygenHistogram(tmpHistogram);
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
-        NumberFormat tmpRatioOutputFormat = NumberFormat.getInstance(Locale.US);
-        tmpRatioOutputFormat.setMaximumFractionDigits(1);
-        tmpRatioOutputFormat.setRoundingMode(RoundingMode.DOWN);
         Document tmpCurrentDoc;
         String tmpID;
         String tmpSmilesCode;
         IAtomContainer tmpMolecule;
         int tmpMoleculesCounter = 0;
         int tmpExceptionsCounter = 0;
-        HashMap<Integer, Integer> tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn5MemberedRingsMap
-                = new HashMap<>(10, 0.9f);
-        HashMap<Integer, Integer> tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn6MemberedRingsMap
-                = new HashMap<>(10, 0.9f);
-        HashMap<Integer, Integer> tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn7MemberedRingsMap
-                = new HashMap<>(10, 0.9f);
-        HashMap<String, Integer> tmpFrequenciesOfAttachedExocyclicOxygenAtomsRatiosMap
-                = new HashMap<>(10, 0.9f);
-        int tmpUnexpectedRingSizeCounter = 0;
         while (tmpCursor.hasNext()) {
             tmpID = "[unidentified]";
             try {
@@ -1734,58 +1740,8 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpSmilesCode = tmpCurrentDoc.getString(GlycosylationStatisticsTest.SMILES_CODE_KEY);
                 tmpMolecule = tmpSmiPar.parseSmiles(tmpSmilesCode);
                 tmpMolecule.setTitle(tmpID);
-                //leaving default settings!
-                tmpSugarRemovalUtil.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(false);
-                IAtomContainer tmpMoleculeClone = tmpMolecule.clone();
-                List<IAtomContainer> tmpCircularSugarsList = tmpSugarRemovalUtil.getCircularSugarCandidates(tmpMoleculeClone);
-                if (tmpCircularSugarsList.size() > 0) {
-                    for (IAtomContainer tmpCandidate : tmpCircularSugarsList) {
-                        int tmpRingSize = tmpCandidate.getAtomCount();
-                        int tmpExocyclicOxygenAtomsCount = this.getExocyclicOxygenAtomCount(tmpCandidate, tmpMoleculeClone);
-                        double tmpAttachedOxygensToAtomsInRingRatio =
-                                ((double) tmpExocyclicOxygenAtomsCount / (double) tmpRingSize);
-                        //note: the ratios are not rounded, the remaining decimals are neglected (rounding mode 'down'),
-                        // which is correct here because the respective setting is a threshold
-                        String tmpRoundedRatio = tmpRatioOutputFormat.format(tmpAttachedOxygensToAtomsInRingRatio);
-                        if (!tmpFrequenciesOfAttachedExocyclicOxygenAtomsRatiosMap.containsKey(tmpRoundedRatio)) {
-                            tmpFrequenciesOfAttachedExocyclicOxygenAtomsRatiosMap.put(tmpRoundedRatio, 1);
-                        } else {
-                            Integer tmpCurrentCount = tmpFrequenciesOfAttachedExocyclicOxygenAtomsRatiosMap.get(tmpRoundedRatio);
-                            tmpFrequenciesOfAttachedExocyclicOxygenAtomsRatiosMap.put(tmpRoundedRatio, tmpCurrentCount + 1);
-                        }
-                        switch (tmpRingSize) {
-                            case 5:
-                                if (!tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn5MemberedRingsMap.containsKey(tmpExocyclicOxygenAtomsCount)) {
-                                    tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn5MemberedRingsMap.put(tmpExocyclicOxygenAtomsCount, 1);
-                                } else {
-                                    Integer tmpCurrentCount = tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn5MemberedRingsMap.get(tmpExocyclicOxygenAtomsCount);
-                                    tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn5MemberedRingsMap.put(tmpExocyclicOxygenAtomsCount, tmpCurrentCount + 1);
-                                }
-                                break;
-                            case 6:
-                                if (!tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn6MemberedRingsMap.containsKey(tmpExocyclicOxygenAtomsCount)) {
-                                    tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn6MemberedRingsMap.put(tmpExocyclicOxygenAtomsCount, 1);
-                                } else {
-                                    Integer tmpCurrentCount = tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn6MemberedRingsMap.get(tmpExocyclicOxygenAtomsCount);
-                                    tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn6MemberedRingsMap.put(tmpExocyclicOxygenAtomsCount, tmpCurrentCount + 1);
-                                }
-                                break;
-                            case 7:
-                                if (!tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn7MemberedRingsMap.containsKey(tmpExocyclicOxygenAtomsCount)) {
-                                    tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn7MemberedRingsMap.put(tmpExocyclicOxygenAtomsCount, 1);
-                                } else {
-                                    Integer tmpCurrentCount = tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn7MemberedRingsMap.get(tmpExocyclicOxygenAtomsCount);
-                                    tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn7MemberedRingsMap.put(tmpExocyclicOxygenAtomsCount, tmpCurrentCount + 1);
-                                }
-                                break;
-                            default:
-                                tmpUnexpectedRingSizeCounter++;
-                                break;
-                        }
-                    }
-                }
-                //back to default settings!
-                tmpSugarRemovalUtil.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(true);
+                //the candidates are recorded in the histogram during detection
+                tmpSugarRemovalUtil.getCircularSugarCandidates(tmpMolecule.clone());
             } catch (Exception anException) {
                 GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpID, anException);
                 tmpExceptionsCounter++;
@@ -1802,15 +1758,9 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         System.out.println("Frequency distribution of exocyclic oxygen atoms to atoms in ring ratios of circular sugars: ");
         tmpOutputWriter.println("Frequency distribution of exocyclic oxygen atoms to atoms in ring ratios of circular sugars: ");
         tmpCSVExoCycOxRatioFreqWriter.println("Ratio" + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + "Frequency");
-        //iterating using int and creating double in the loop is necessary because of pitfalls in double arithmetic
-        double tmpMaxRatio = Double.parseDouble(Collections.max(tmpFrequenciesOfAttachedExocyclicOxygenAtomsRatiosMap.keySet()));
-        int tmpMaxForLoop = Double.valueOf(tmpMaxRatio * 10).intValue();
-        for (int i = 0; i <= tmpMaxForLoop; i++) {
-            Integer tmpFrequency = tmpFrequenciesOfAttachedExocyclicOxygenAtomsRatiosMap.get(tmpRatioOutputFormat.format((double)i/10));
-            if (Objects.isNull(tmpFrequency)) {
-                tmpFrequency = 0;
-            }
-            String tmpRatio = tmpRatioOutputFormat.format((double) i / 10);
+        for (int i = 0; i <= tmpHistogram.getMaxRatioBucket(); i++) {
+            String tmpRatio = ExocyclicOxygenHistogram.getRatioLabel(i);
+            int tmpFrequency = tmpHistogram.getRatioFrequency(i);
             System.out.println(tmpRatio + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
             tmpOutputWriter.println(tmpRatio + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
             tmpCSVExoCycOxRatioFreqWriter.println(tmpRatio + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
@@ -1820,12 +1770,8 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         System.out.println("Frequency distribution of exocyclic oxygen atom counts of 5-membered circular sugars: ");
         tmpOutputWriter.println("Frequency distribution of exocyclic oxygen atom counts of 5-membered circular sugars: ");
         tmpCSVExoCycOxFuranosesFreqWriter.println("NrOfOxygens" + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + "Frequency");
-        int tmpMaxNrOfOxygens = Collections.max(tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn5MemberedRingsMap.keySet());
-        for (int i = 0; i <= tmpMaxNrOfOxygens; i++) {
-            Integer tmpFrequency = tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn5MemberedRingsMap.get(i);
-            if (Objects.isNull(tmpFrequency)) {
-                tmpFrequency = 0;
-            }
+        for (int i = 0; i <= tmpHistogram.getMaxOxygenCount(5); i++) {
+            int tmpFrequency = tmpHistogram.getOxygenCountFrequency(5, i);
             System.out.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
             tmpOutputWriter.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
             tmpCSVExoCycOxFuranosesFreqWriter.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
@@ -1835,12 +1781,8 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         System.out.println("Frequency distribution of exocyclic oxygen atom counts of 6-membered circular sugars: ");
         tmpOutputWriter.println("Frequency distribution of exocyclic oxygen atom counts of 6-membered circular sugars: ");
         tmpCSVExoCycOxPyranosesFreqWriter.println("NrOfOxygens" + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + "Frequency");
-        tmpMaxNrOfOxygens = Collections.max(tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn6MemberedRingsMap.keySet());
-        for (int i = 0; i <= tmpMaxNrOfOxygens; i++) {
-            Integer tmpFrequency = tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn6MemberedRingsMap.get(i);
-            if (Objects.isNull(tmpFrequency)) {
-                tmpFrequency = 0;
-            }
+        for (int i = 0; i <= tmpHistogram.getMaxOxygenCount(6); i++) {
+            int tmpFrequency = tmpHistogram.getOxygenCountFrequency(6, i);
             System.out.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
             tmpOutputWriter.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
             tmpCSVExoCycOxPyranosesFreqWriter.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
@@ -1850,18 +1792,16 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         System.out.println("Frequency distribution of exocyclic oxygen atom counts of 7-membered circular sugars: ");
         tmpOutputWriter.println("Frequency distribution of exocyclic oxygen atom counts of 7-membered circular sugars: ");
         tmpCSVExoCycOxHeptosesFreqWriter.println("NrOfOxygens" + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + "Frequency");
-        tmpMaxNrOfOxygens = Collections.max(tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn7MemberedRingsMap.keySet());
-        for (int i = 0; i <= tmpMaxNrOfOxygens; i++) {
-            Integer tmpFrequency = tmpFrequenciesOfNumbersOfAttachedExocyclicOxygenAtomsOn7MemberedRingsMap.get(i);
-            if (Objects.isNull(tmpFrequency)) {
-                tmpFrequency = 0;
-            }
+        for (int i = 0; i <= tmpHistogram.getMaxOxygenCount(7); i++) {
+            int tmpFrequency = tmpHistogram.getOxygenCountFrequency(7, i);
             System.out.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
             tmpOutputWriter.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
             tmpCSVExoCycOxHeptosesFreqWriter.println(i + GlycosylationStatisticsTest.OUTPUT_FILE_SEPARATOR + tmpFrequency);
         }
         System.out.println();
         tmpOutputWriter.println();
+        int tmpUnexpectedRingSizeCounter = tmpHistogram.getTotalCount() - tmpHistogram.getRingSizeCount(5)
+                - tmpHistogram.getRingSizeCount(6) - tmpHistogram.getRingSizeCount(7);
         System.out.println("Number of circular sugar moieties that had an unexpected ring size (should be zero!): " + tmpUnexpectedRingSizeCounter);
         tmpOutputWriter.println("Number of circular sugar moieties that had an unexpected ring size (should be zero!): " + tmpUnexpectedRingSizeCounter);
         tmpOutputWriter.flush();
@@ -2042,13 +1982,14 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         //to also test their appearance
         tmpSugarRemovalUtil.setDetectLinearAcidicSugarsSetting(true);
         //Note: Here, additional molecules could be added to the list to also test them
-        List<String> tmpLinearSugarsList = tmpSugarRemovalUtil.getLinearSugarPatternsList();
-        List<List<Object>> tmpLinearSugarPatterns = new ArrayList<>(tmpLinearSugarsList.size());
+        //compiled once per JVM and shared with all other tests using the same patterns
+        SubstructurePatternSet tmpLinearSugarPatternSet = SubstructurePatternRegistry.getLinearSugarPatterns(tmpSugarRemovalUtil);
+        List<List<Object>> tmpLinearSugarPatterns = new ArrayList<>(tmpLinearSugarPatternSet.size());
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
-        for (String tmpLinearSugarString : tmpLinearSugarsList) {
+        for (int i = 0; i < tmpLinearSugarPatternSet.size(); i++) {
             List<Object> tmpList = new ArrayList<>(4);
-            tmpList.add(0, tmpLinearSugarString);
-            tmpList.add(1, DfPattern.findSubstructure(tmpSmiPar.parseSmiles(tmpLinearSugarString)));
+            tmpList.add(0, tmpLinearSugarPatternSet.getSourceCode(i));
+            tmpList.add(1, tmpLinearSugarPatternSet.getPattern(i));
             tmpList.add(2, 0);
             tmpLinearSugarPatterns.add(tmpList);
         }
@@ -2070,7 +2011,7 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpMolecule.setTitle(tmpID);
                 boolean tmpMolHasAMatch = false;
                 for (List<Object> tmpEntry : tmpLinearSugarPatterns) {
-                    DfPattern tmpPattern = (DfPattern) tmpEntry.get(1);
+                    Pattern tmpPattern = (Pattern) tmpEntry.get(1);
                     if (tmpPattern.matches(tmpMolecule)) {
                         tmpEntry.set(2, (int)tmpEntry.get(2) + 1);
                         tmpMolHasAMatch = true;
@@ -2153,6 +2094,8 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
         tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        //the moieties stay keyed by their unique SMILES codes instead of a StructureKeyIndex because the per-molecule
+        // output lists the unique SMILES code of every moiety anyway, so a graph hash would only be computed on top
         SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
         DepictionGenerator tmpDepictionGenerator = new DepictionGenerator();
         Document tmpCurrentDoc;
@@ -2307,6 +2250,8 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
         tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        //the moieties stay keyed by their unique SMILES codes instead of a StructureKeyIndex because the per-molecule
+        // output lists the unique SMILES code of every moiety anyway, so a graph hash would only be computed on top
         SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
         DepictionGenerator tmpDepictionGenerator = new DepictionGenerator();
         Document tmpCurrentDoc;
@@ -2468,34 +2413,26 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
         tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
-        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
         DepictionGenerator tmpDepictionGenerator = new DepictionGenerator();
-        IteratingSDFReader tmpReader = new IteratingSDFReader(new FileInputStream(tmpSDFile), DefaultChemObjectBuilder.getInstance(), true);
+        //compiled once per JVM and shared with all other tests using the same SDF
+        SubstructurePatternSet tmpReviewSugarPatternSet = SubstructurePatternRegistry.getSDFPatterns(tmpSDFile, "Name");
         HashMap<String, HashMap<String, Object>> tmpSRUPositiveSugarPatterns = new HashMap<>(344, 1);
         HashMap<String, HashMap<String, Object>> tmpSRUNegativeSugarPatterns = new HashMap<>(344, 1);
         String tmpReviewSugarID;
-        int tmpReviewSugarsCounter = 0;
-        int tmpReviewDataExceptionsCounter = 0;
-        while (tmpReader.hasNext()) {
+        int tmpReviewSugarsCounter = tmpReviewSugarPatternSet.getSkippedEntriesCount();
+        int tmpReviewDataExceptionsCounter = tmpReviewSugarPatternSet.getSkippedEntriesCount();
+        for (int i = 0; i < tmpReviewSugarPatternSet.size(); i++) {
             tmpReviewSugarID = "[unidentified]";
             try {
-                IAtomContainer tmpReviewSugar = tmpReader.next();
                 tmpReviewSugarsCounter++;
-                tmpReviewSugarID = tmpReviewSugar.getProperty("Name");
+                tmpReviewSugarID = tmpReviewSugarPatternSet.getID(i);
                 HashMap<String, Object> tmpMap = new HashMap<>(4, 1);
-                tmpMap.put("PATTERN", DfPattern.findSubstructure(tmpReviewSugar));
+                tmpMap.put("PATTERN", tmpReviewSugarPatternSet.getPattern(i));
                 tmpMap.put("ID", tmpReviewSugarID);
                 tmpMap.put("FREQUENCY", 0);
-                String tmpSmilesCode = "[generation_failed]";
-                try {
-                    tmpSmilesCode = tmpSmiGen.create(tmpReviewSugar);
-                } catch (CDKException anException) {
-                    GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpReviewSugarID, anException);
-                    tmpReviewDataExceptionsCounter++;
-                    continue;
-                }
+                String tmpSmilesCode = tmpReviewSugarPatternSet.getSourceCode(i);
                 tmpMap.put("SMILES", tmpSmilesCode);
-                boolean tmpHasSugars = tmpSugarRemovalUtil.hasCircularSugars(tmpReviewSugar);
+                boolean tmpHasSugars = tmpSugarRemovalUtil.hasCircularSugars(tmpReviewSugarPatternSet.getMoleculeCopy(i));
                 if (tmpHasSugars) {
                     if (tmpSRUPositiveSugarPatterns.containsKey(tmpSmilesCode)) {
                         HashMap<String, Object> tmpInnerMap = tmpSRUPositiveSugarPatterns.get(tmpSmilesCode);
@@ -2533,13 +2470,13 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpMolecule = tmpSmiPar.parseSmiles(tmpSmilesCode);
                 tmpMolecule.setTitle(tmpID);
                 for (HashMap<String, Object> tmpReviewSugarMap : tmpSRUPositiveSugarPatterns.values()) {
-                    DfPattern tmpPattern = (DfPattern) tmpReviewSugarMap.get("PATTERN");
+                    Pattern tmpPattern = (Pattern) tmpReviewSugarMap.get("PATTERN");
                     if (tmpPattern.matches(tmpMolecule)) {
                         tmpReviewSugarMap.put("FREQUENCY", ((int)tmpReviewSugarMap.get("FREQUENCY") + 1));
                     }
                 }
                 for (HashMap<String, Object> tmpReviewSugarMap : tmpSRUNegativeSugarPatterns.values()) {
-                    DfPattern tmpPattern = (DfPattern) tmpReviewSugarMap.get("PATTERN");
+                    Pattern tmpPattern = (Pattern) tmpReviewSugarMap.get("PATTERN");
                     if (tmpPattern.matches(tmpMolecule)) {
                         tmpReviewSugarMap.put("FREQUENCY", ((int)tmpReviewSugarMap.get("FREQUENCY") + 1));
                     }
@@ -2619,7 +2556,6 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         tmpOutputWriter.flush();
         tmpCSVSRUPositiveWriter.flush();
         tmpCSVSRUNegativeWriter.flush();
-        tmpReader.close();
         tmpOutputWriter.close();
         tmpCSVSRUPositiveWriter.close();
         tmpCSVSRUNegativeWriter.close();
@@ -2682,34 +2618,26 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 + tmpSugarRemovalUtil.getExocyclicOxygenAtomsToAtomsInRingRatioThresholdSetting());
         tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
-        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
         DepictionGenerator tmpDepictionGenerator = new DepictionGenerator();
-        IteratingSDFReader tmpReader = new IteratingSDFReader(new FileInputStream(tmpSDFile), DefaultChemObjectBuilder.getInstance(), true);
+        //compiled once per JVM and shared with all other tests using the same SDF
+        SubstructurePatternSet tmpReviewSugarPatternSet = SubstructurePatternRegistry.getSDFPatterns(tmpSDFile, "Name");
         HashMap<String, HashMap<String, Object>> tmpSRUPositiveSugarPatterns = new HashMap<>(344, 1);
         HashMap<String, HashMap<String, Object>> tmpSRUNegativeSugarPatterns = new HashMap<>(344, 1);
         String tmpReviewSugarID;
-        int tmpReviewSugarsCounter = 0;
-        int tmpReviewDataExceptionsCounter = 0;
-        while (tmpReader.hasNext()) {
+        int tmpReviewSugarsCounter = tmpReviewSugarPatternSet.getSkippedEntriesCount();
+        int tmpReviewDataExceptionsCounter = tmpReviewSugarPatternSet.getSkippedEntriesCount();
+        for (int i = 0; i < tmpReviewSugarPatternSet.size(); i++) {
             tmpReviewSugarID = "[unidentified]";
             try {
-                IAtomContainer tmpReviewSugar = tmpReader.next();
                 tmpReviewSugarsCounter++;
-                tmpReviewSugarID = tmpReviewSugar.getProperty("Name");
+                tmpReviewSugarID = tmpReviewSugarPatternSet.getID(i);
                 HashMap<String, Object> tmpMap = new HashMap<>(4, 1);
-                tmpMap.put("PATTERN", DfPattern.findSubstructure(tmpReviewSugar));
+                tmpMap.put("PATTERN", tmpReviewSugarPatternSet.getPattern(i));
                 tmpMap.put("ID", tmpReviewSugarID);
                 tmpMap.put("FREQUENCY", 0);
-                String tmpSmilesCode = "[generation_failed]";
-                try {
-                    tmpSmilesCode = tmpSmiGen.create(tmpReviewSugar);
-                } catch (CDKException anException) {
-                    GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpReviewSugarID, anException);
-                    tmpReviewDataExceptionsCounter++;
-                    continue;
-                }
+                String tmpSmilesCode = tmpReviewSugarPatternSet.getSourceCode(i);
                 tmpMap.put("SMILES", tmpSmilesCode);
-                boolean tmpHasSugars = tmpSugarRemovalUtil.hasCircularSugars(tmpReviewSugar);
+                boolean tmpHasSugars = tmpSugarRemovalUtil.hasCircularSugars(tmpReviewSugarPatternSet.getMoleculeCopy(i));
                 if (tmpHasSugars) {
                     if (tmpSRUPositiveSugarPatterns.containsKey(tmpSmilesCode)) {
                         HashMap<String, Object> tmpInnerMap = tmpSRUPositiveSugarPatterns.get(tmpSmilesCode);
@@ -2747,13 +2675,13 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpMolecule = tmpSmiPar.parseSmiles(tmpSmilesCode);
                 tmpMolecule.setTitle(tmpID);
                 for (HashMap<String, Object> tmpReviewSugarMap : tmpSRUPositiveSugarPatterns.values()) {
-                    DfPattern tmpPattern = (DfPattern) tmpReviewSugarMap.get("PATTERN");
+                    Pattern tmpPattern = (Pattern) tmpReviewSugarMap.get("PATTERN");
                     if (tmpPattern.matches(tmpMolecule)) {
                         tmpReviewSugarMap.put("FREQUENCY", ((int)tmpReviewSugarMap.get("FREQUENCY") + 1));
                     }
                 }
                 for (HashMap<String, Object> tmpReviewSugarMap : tmpSRUNegativeSugarPatterns.values()) {
-                    DfPattern tmpPattern = (DfPattern) tmpReviewSugarMap.get("PATTERN");
+                    Pattern tmpPattern = (Pattern) tmpReviewSugarMap.get("PATTERN");
                     if (tmpPattern.matches(tmpMolecule)) {
                         tmpReviewSugarMap.put("FREQUENCY", ((int)tmpReviewSugarMap.get("FREQUENCY") + 1));
                     }
@@ -2833,7 +2761,6 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         tmpOutputWriter.flush();
         tmpCSVSRUPositiveWriter.flush();
         tmpCSVSRUNegativeWriter.flush();
-        tmpReader.close();
         tmpOutputWriter.close();
         tmpCSVSRUPositiveWriter.close();
         tmpCSVSRUNegativeWriter.close();
@@ -3102,6 +3029,37 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 "zinc_in-vitro_complete_stats_basics_test");
     }
 
+    /**
+     * Picks a diverse subset of 500,000 molecules from the complete ZINC "for-sale" subset (22,252,431 molecules) with
+     * a global MaxMin on ECFP6 fingerprints and Dice distances, using all available processors. This replaces the
+     * pooled picking in ZINC_for-sale_curation.py. The picked subset is written to file as SMILES codes in
+     * the specified output folder ./GlycosylationStatisticsTest_Output/zinc_for-sale_picking_test; it is the input of
+     * zincForSaleDatasetCurationTest() and needs to be put into the test resource directory for it.
+     * Test is ignored, if specified dataset cannot be found.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void zincForSaleDiverseSubsetPickingTest() throws Exception {
+        File tmpZincForSaleSmilesFile = null;
+        try {
+            tmpZincForSaleSmilesFile = new File(this.getClass().getClassLoader().getResource(
+                    "ZINC_for-sale_subset_2020_Okt_19.txt").getFile());
+        } catch (NullPointerException aNullPointerException) {
+            GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, aNullPointerException.toString(), aNullPointerException);
+            System.out.println("Dataset file could not be found. Test is ignored.");
+            Assume.assumeTrue(false);
+        }
+        String tmpOutputFolderPath = this.initializeOutputFolderAndLogger("zinc_for-sale_picking_test");
+        long tmpStartTime = System.currentTimeMillis();
+        int tmpPickedCounter = MaxMinPicker.pickFromSmilesFile(tmpZincForSaleSmilesFile,
+                new File(tmpOutputFolderPath + "ZINC_for-sale_picked_subset_2020_Okt_19.txt"), 500000,
+                PackedFingerprints.DEFAULT_NUMBER_OF_BITS, MaxMinPicker.DEFAULT_SEED,
+                Runtime.getRuntime().availableProcessors());
+        System.out.println(tmpPickedCounter + " molecules were picked in "
+                + (System.currentTimeMillis() - tmpStartTime) + " ms.");
+    }
+
     /**
      * Curation test method for ZINC "synthetics for-sale" dataset. The structures in the given SMILES file are iterated
      * and matched to all COCONUT and ZINC "biogenic" subset molecules based on unique SMILES codes. All matching
@@ -3184,10 +3142,10 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         FileReader tmpOriginalDataSetSmilesFileReader = new FileReader(tmpOriginalDataSetSmilesFile);
         BufferedReader tmpOriginalDataSetSmilesBufferedReader = new BufferedReader(tmpOriginalDataSetSmilesFileReader);
         IteratingSDFReader tmpSDFReader = new IteratingSDFReader(tmpOriginalDataSetSmilesBufferedReader, DefaultChemObjectBuilder.getInstance(), true);
-        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique); //Unique does not encode stereochemistry! Absolute would do
-        //key: unique SMILES string (does not encode stereochemistry!)
-        //object: HashMap of ID of the first stereo isomer encountered and number of stereo-isomers encountered
-        HashMap<String, HashMap<String, Object>> tmpSmilesMap = new HashMap<>((int)(2066376*1.1), 1.0f);
+        //groups the molecules by graph hash, unique SMILES codes (that do not encode stereochemistry!) are only
+        // generated on key hits and once per group for the output; every group keeps the ID of the first
+        // stereo-isomer encountered and the number of stereo-isomers encountered
+        StructureKeyIndex tmpStructureIndex = new StructureKeyIndex(2066376);
         String tmpID = "";
         int tmpMoleculesCounter = 0;
         int tmpExceptionsCounter = 0;
@@ -3202,19 +3160,7 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                     System.out.println(tmpMoleculesCounter + " molecules were processed already...");
                 }
                 tmpID = tmpMoleculeFromFile.getProperty("chembl_id");
-                String tmpCDKSMILESCode = tmpSmiGen.create(tmpMoleculeFromFile);
-                if (tmpSmilesMap.containsKey(tmpCDKSMILESCode)) {
-                    HashMap<String, Object> tmpInnerMap = tmpSmilesMap.get(tmpCDKSMILESCode);
-                    int tmpStereoIsomerNumber = (int) tmpInnerMap.get("FREQUENCY");
-                    tmpInnerMap.put("FREQUENCY", (tmpStereoIsomerNumber + 1));
-                    continue;
-                } else {
-                    HashMap<String, Object> tmpInnerMap = new HashMap<>(3, 1.0f);
-                    tmpInnerMap.put("ID", tmpID);
-                    tmpInnerMap.put("FREQUENCY", 1);
-                    tmpSmilesMap.put(tmpCDKSMILESCode, tmpInnerMap);
-                    continue;
-                }
+                tmpStructureIndex.add(tmpMoleculeFromFile, null, tmpID);
             } catch (Exception anException) {
                 GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpID, anException);
                 tmpExceptionsCounter++;
@@ -3228,21 +3174,18 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         tmpOutputWriter.println(tmpMoleculesCounter + " molecules were processed.");
         System.out.println(tmpExceptionsCounter + " exceptions occurred.");
         tmpOutputWriter.println(tmpExceptionsCounter + " exceptions occurred.");
-        System.out.println(tmpSmilesMap.size() + " SMILES codes have been put into memory.");
-        tmpOutputWriter.println(tmpSmilesMap.size() + " SMILES codes have been put into memory.");
+        System.out.println(tmpStructureIndex.size() + " SMILES codes have been put into memory.");
+        tmpOutputWriter.println(tmpStructureIndex.size() + " SMILES codes have been put into memory.");
         //Writing to file
         System.out.println("Writing the curated data set to file now...");
         PrintWriter tmpMoleculesWriter = this.initializeOutputFile(tmpOutputFolderPath, "chembl_28_curated.txt");
         int tmpCounter = 0;
         tmpID = "";
-        for (String tmpSmilesCode : tmpSmilesMap.keySet()) {
+        for (StructureKeyIndex.Group tmpGroup : tmpStructureIndex.getGroups()) {
             if ((tmpCounter % 10000) == 0) {
                 System.out.println(tmpCounter + " lines were processed already...");
             }
-            HashMap<String, Object> tmpInnerMap = tmpSmilesMap.get(tmpSmilesCode);
-            int tmpStereoIsomerNumber = (int) tmpInnerMap.get("FREQUENCY");
-            tmpID = (String) tmpInnerMap.get("ID");
-            tmpMoleculesWriter.println(tmpSmilesCode + " " + tmpID + " " + tmpStereoIsomerNumber);
+            tmpMoleculesWriter.println(tmpStructureIndex.getUniqueSmilesCode(tmpGroup) + " " + tmpGroup.getID() + " " + tmpGroup.getFrequency());
             tmpCounter++;
         }
         System.out.println("Done, shutting down.");
@@ -3266,6 +3209,41 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
     public void chemblStatisticsTest() throws Exception {
         this.doBasicGlycoStatsOnSMILESfile("chembl_28_curated.txt", "chembl_stats_test");
     }
+
+    /**
+     * Benchmarks the structure keys used for grouping stereo-isomers in chemblCurationTest() on the ChEMBL dataset:
+     * the fast graph hash is compared with hashed unique SMILES codes for speed and collision rate. The results are
+     * printed to console and also written to an output file in the directory
+     * ./GlycosylationStatisticsTest_Output/chembl_structure_key_benchmark_test.
+     * Test is ignored, if specified dataset cannot be found.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void chemblStructureKeyBenchmarkTest() throws Exception {
+        ClassLoader tmpClassLoader = this.getClass().getClassLoader();
+        //Prints output folder to console
+        String tmpOutputFolderPath = this.initializeOutputFolderAndLogger("chembl_structure_key_benchmark_test");
+        PrintWriter tmpOutputWriter = this.initializeOutputFile(tmpOutputFolderPath, "Output.txt");
+        File tmpOriginalDataSetFile = null;
+        try {
+            tmpOriginalDataSetFile = new File(tmpClassLoader.getResource("chembl_28.sdf").getFile());
+        } catch (NullPointerException aNullPointerException) {
+            GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, aNullPointerException.toString(), aNullPointerException);
+            System.out.println("Original data set file could not be found. Test is ignored.");
+            Assume.assumeTrue(false);
+        }
+        System.out.println("Data set found at: " + tmpOriginalDataSetFile.getAbsolutePath());
+        System.out.println("Loading and processing the given dataset now...");
+        StructureKeyBenchmark.Result tmpResult;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpOriginalDataSetFile, "chembl_id")) {
+            tmpResult = new StructureKeyBenchmark(new GraphHashKeyGenerator()).run(tmpSource);
+        }
+        System.out.println(tmpResult);
+        tmpOutputWriter.println(tmpResult);
+        tmpOutputWriter.flush();
+        tmpOutputWriter.close();
+    }
     //</editor-fold>
     //
     //<editor-fold desc="DrugBank">
@@ -3298,10 +3276,10 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         FileReader tmpOriginalDataSetSmilesFileReader = new FileReader(tmpOriginalDataSetSmilesFile);
         BufferedReader tmpOriginalDataSetSmilesBufferedReader = new BufferedReader(tmpOriginalDataSetSmilesFileReader);
         IteratingSDFReader tmpSDFReader = new IteratingSDFReader(tmpOriginalDataSetSmilesBufferedReader, DefaultChemObjectBuilder.getInstance(), true);
-        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique); //Unique does not encode stereochemistry! Absolute would do
-        //key: unique SMILES string (does not encode stereochemistry!)
-        //object: HashMap of ID of the first stereo isomer encountered and number of stereo-isomers encountered
-        HashMap<String, HashMap<String, Object>> tmpSmilesMap = new HashMap<>((int)(11172*1.1), 1.0f);
+        //groups the molecules by graph hash, unique SMILES codes (that do not encode stereochemistry!) are only
+        // generated on key hits and once per group for the output; every group keeps the ID of the first
+        // stereo-isomer encountered and the number of stereo-isomers encountered
+        StructureKeyIndex tmpStructureIndex = new StructureKeyIndex(11172);
         String tmpID = "";
         int tmpMoleculesCounter = 0;
         int tmpExceptionsCounter = 0;
@@ -3316,19 +3294,7 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                     System.out.println(tmpMoleculesCounter + " molecules were processed already...");
                 }
                 tmpID = tmpMoleculeFromFile.getProperty("DATABASE_ID");
-                String tmpCDKSMILESCode = tmpSmiGen.create(tmpMoleculeFromFile);
-                if (tmpSmilesMap.containsKey(tmpCDKSMILESCode)) {
-                    HashMap<String, Object> tmpInnerMap = tmpSmilesMap.get(tmpCDKSMILESCode);
-                    int tmpStereoIsomerNumber = (int) tmpInnerMap.get("FREQUENCY");
-                    tmpInnerMap.put("FREQUENCY", (tmpStereoIsomerNumber + 1));
-                    continue;
-                } else {
-                    HashMap<String, Object> tmpInnerMap = new HashMap<>(3, 1.0f);
-                    tmpInnerMap.put("ID", tmpID);
-                    tmpInnerMap.put("FREQUENCY", 1);
-                    tmpSmilesMap.put(tmpCDKSMILESCode, tmpInnerMap);
-                    continue;
-                }
+                tmpStructureIndex.add(tmpMoleculeFromFile, null, tmpID);
             } catch (Exception anException) {
                 GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpID, anException);
                 tmpExceptionsCounter++;
@@ -3342,21 +3308,18 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         tmpOutputWriter.println(tmpMoleculesCounter + " molecules were processed.");
         System.out.println(tmpExceptionsCounter + " exceptions occurred.");
         tmpOutputWriter.println(tmpExceptionsCounter + " exceptions occurred.");
-        System.out.println(tmpSmilesMap.size() + " SMILES codes have been put into memory.");
-        tmpOutputWriter.println(tmpSmilesMap.size() + " SMILES codes have been put into memory.");
+        System.out.println(tmpStructureIndex.size() + " SMILES codes have been put into memory.");
+        tmpOutputWriter.println(tmpStructureIndex.size() + " SMILES codes have been put into memory.");
         //Writing to file
         System.out.println("Writing the curated data set to file now...");
         PrintWriter tmpMoleculesWriter = this.initializeOutputFile(tmpOutputFolderPath, "drugbank_curated.txt");
         int tmpCounter = 0;
         tmpID = "";
-        for (String tmpSmilesCode : tmpSmilesMap.keySet()) {
+        for (StructureKeyIndex.Group tmpGroup : tmpStructureIndex.getGroups()) {
             if ((tmpCounter % 10000) == 0) {
                 System.out.println(tmpCounter + " lines were processed already...");
             }
-            HashMap<String, Object> tmpInnerMap = tmpSmilesMap.get(tmpSmilesCode);
-            int tmpStereoIsomerNumber = (int) tmpInnerMap.get("FREQUENCY");
-            tmpID = (String) tmpInnerMap.get("ID");
-            tmpMoleculesWriter.println(tmpSmilesCode + " " + tmpID + " " + tmpStereoIsomerNumber);
+            tmpMoleculesWriter.println(tmpStructureIndex.getUniqueSmilesCode(tmpGroup) + " " + tmpGroup.getID() + " " + tmpGroup.getFrequency());
             tmpCounter++;
         }
         System.out.println("Done, shutting down.");
@@ -3454,7 +3417,9 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
     }
 
     /**
-     * Creates a folder with the given name and a log file that will be written to by the root logger.
+     * Creates a folder with the given name and a log file that will be written to by the root logger. The log file
+     * handler added by a previous call is removed from the root logger and closed, so that every record is written to
+     * the log file of the current test only.
      */
     private String initializeOutputFolderAndLogger(String anOutputFolderName) throws NullPointerException {
         String tmpOutputFolderPath = (new File(GlycosylationStatisticsTest.OUTPUT_FOLDER_NAME)).getAbsolutePath() + File.separator
@@ -3471,10 +3436,19 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
             GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anIOException.toString(), anIOException);
             System.out.println("An exception occurred while setting up the log file. Logging will be done in default configuration.");
         }
+        if (!Objects.isNull(GlycosylationStatisticsTest.logFileHandler)) {
+            Logger.getLogger("").removeHandler(GlycosylationStatisticsTest.logFileHandler);
+            GlycosylationStatisticsTest.logFileHandler.close();
+            GlycosylationStatisticsTest.logFileHandler = null;
+        }
+        if (Objects.isNull(tmpLogFileHandler)) {
+            return tmpOutputFolderPath;
+        }
         tmpLogFileHandler.setLevel(Level.ALL);
         tmpLogFileHandler.setFormatter(new SimpleFormatter());
         Logger.getLogger("").addHandler(tmpLogFileHandler);
         Logger.getLogger("").setLevel(Level.WARNING);
+        GlycosylationStatisticsTest.logFileHandler = tmpLogFileHandler;
         return tmpOutputFolderPath;
     }
 
@@ -3492,14 +3466,15 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
      * Curation method for datasets of "synthetics". The structures in the given SMILES file are iterated and matched to
      * all COCONUT and ZINC "biogenic" subset molecules based on unique SMILES codes. All matching molecules are
      * filtered to obtain a dataset of "synthetic" molecules. Additionally, only one structure of every stereo-isomer group
-     * in the original dataset is retained. The curated set is written to file as SMILES codes in the specified output folder.
+     * in the original dataset is retained. The curated set is written to file as unique (stereo-free) SMILES codes in the
+     * specified output folder.
      */
     private void filterZINCBiogenicAndCOCONUTMoleculesAndGroupStereoIsomersOfSMILESfile(
             String anOriginalDataSetFileName,
             int anOriginalDataSetSize,
             String aCuratedDataSetFileName,
             String anOutputFolderName)
-            throws IllegalArgumentException, IOException {
+            throws IllegalArgumentException, IOException, CDKException {
         ClassLoader tmpClassLoader = this.getClass().getClassLoader();
         //Loading ZINC biogenic subset
         File tmpZincBiogenicSmilesFile = null;
@@ -3516,10 +3491,10 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         PrintWriter tmpOutputWriter = this.initializeOutputFile(tmpOutputFolderPath, "Output.txt");
         FileReader tmpZincBiogenicSmilesFileReader = new FileReader(tmpZincBiogenicSmilesFile);
         BufferedReader tmpZincBiogenicSmilesBufferedReader = new BufferedReader(tmpZincBiogenicSmilesFileReader);
-        //key: unique SMILES string (does not encode stereochemistry!); object: ZINC id of the first stereo isomer encountered
-        HashMap<String, String> tmpBiogenicSmilesMap = new HashMap<>((int)(308035*1.1), 1.0f); //308,035 molecules are in the dataset
+        //groups by graph hash with a unique SMILES code (does not encode stereochemistry!) check on key hits; every
+        // group keeps the ZINC id of the first stereo isomer encountered
+        StructureKeyIndex tmpBiogenicIndex = new StructureKeyIndex(308035); //308,035 molecules are in the dataset
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
-        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique); //Unique does not encode stereochemistry! Absolute would do
         String tmpZincBiogenicFileNextLine = "";
         String tmpZincBiogenicFileSmilesCode = "";
         String tmpID = "";
@@ -3543,10 +3518,7 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpZincBiogenicFileSmilesCode = tmpSmilesCodeAndId[0];
                 tmpID = tmpSmilesCodeAndId[1];
                 IAtomContainer tmpBiogenicMolecule = tmpSmiPar.parseSmiles(tmpZincBiogenicFileSmilesCode);
-                String tmpCDKSmilesCode = tmpSmiGen.create(tmpBiogenicMolecule);
-                if (!tmpBiogenicSmilesMap.containsKey(tmpCDKSmilesCode)) {
-                    tmpBiogenicSmilesMap.put(tmpCDKSmilesCode, tmpID);
-                }
+                tmpBiogenicIndex.add(tmpBiogenicMolecule, tmpZincBiogenicFileSmilesCode, tmpID);
             } catch (Exception anException) {
                 GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpID, anException);
                 tmpExceptionsCounter++;
@@ -3560,10 +3532,10 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         tmpOutputWriter.println(tmpZincBiogenicMoleculesCounter + " molecules were processed.");
         System.out.println(tmpExceptionsCounter + " exceptions occurred.");
         tmpOutputWriter.println(tmpExceptionsCounter + " exceptions occurred.");
-        System.out.println(tmpBiogenicSmilesMap.size() + " SMILES codes have been put into memory.");
-        tmpOutputWriter.println(tmpBiogenicSmilesMap.size() + " SMILES codes have been put into memory.");
-        System.out.println((tmpZincBiogenicMoleculesCounter - tmpBiogenicSmilesMap.size()) + " molecules were filtered because they are stereo-isomers of others.");
-        tmpOutputWriter.println((tmpZincBiogenicMoleculesCounter - tmpBiogenicSmilesMap.size()) + " molecules were filtered because they are stereo-isomers of others.");
+        System.out.println(tmpBiogenicIndex.size() + " SMILES codes have been put into memory.");
+        tmpOutputWriter.println(tmpBiogenicIndex.size() + " SMILES codes have been put into memory.");
+        System.out.println((tmpZincBiogenicMoleculesCounter - tmpBiogenicIndex.size()) + " molecules were filtered because they are stereo-isomers of others.");
+        tmpOutputWriter.println((tmpZincBiogenicMoleculesCounter - tmpBiogenicIndex.size()) + " molecules were filtered because they are stereo-isomers of others.");
         //Loading COCONUT
         System.out.println("Loading and processing COCONUT now...");
         tmpOutputWriter.println("Loading and processing COCONUT now...");
@@ -3576,8 +3548,9 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
             System.out.println("Timed out while trying to connect to MongoDB. Test is ignored.");
             Assume.assumeTrue(false);
         }
-        //key: unique SMILES string (does not encode stereochemistry!); object: COCONUT id of the first stereo isomer encountered
-        HashMap<String, String> tmpCoconutSmilesMap = new HashMap<>((int)(401624*1.1), 1.0f); //401,624 molecules are in the dataset
+        //groups by graph hash with a unique SMILES code (does not encode stereochemistry!) check on key hits; every
+        // group keeps the COCONUT id of the first stereo isomer encountered
+        StructureKeyIndex tmpCoconutIndex = new StructureKeyIndex(401624); //401,624 molecules are in the dataset
         Document tmpCurrentDoc;
         String tmpCoconutID = "";
         String tmpCoconutSmilesCode = "";
@@ -3597,10 +3570,7 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpCoconutID = tmpCurrentDoc.getString(GlycosylationStatisticsTest.ID_KEY);
                 tmpCoconutSmilesCode = tmpCurrentDoc.getString(GlycosylationStatisticsTest.SMILES_CODE_KEY);
                 IAtomContainer tmpCoconutMolecule = tmpSmiPar.parseSmiles(tmpCoconutSmilesCode);
-                String tmpCDKSmilesCode = tmpSmiGen.create(tmpCoconutMolecule);
-                if (!tmpCoconutSmilesMap.containsKey(tmpCDKSmilesCode)) {
-                    tmpCoconutSmilesMap.put(tmpCDKSmilesCode, tmpCoconutID);
-                }
+                tmpCoconutIndex.add(tmpCoconutMolecule, tmpCoconutSmilesCode, tmpCoconutID);
             } catch (Exception anException) {
                 GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpCoconutID, anException);
                 tmpExceptionsCounter++;
@@ -3613,10 +3583,10 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         tmpOutputWriter.println(tmpCoconutMoleculesCounter + " molecules were processed.");
         System.out.println(tmpExceptionsCounter + " exceptions occurred.");
         tmpOutputWriter.println(tmpExceptionsCounter + " exceptions occurred.");
-        System.out.println(tmpCoconutSmilesMap.size() + " SMILES codes have been put into memory.");
-        tmpOutputWriter.println(tmpCoconutSmilesMap.size() + " SMILES codes have been put into memory.");
-        System.out.println((tmpCoconutMoleculesCounter - tmpCoconutSmilesMap.size()) + " molecules were filtered because they are stereo-isomers of others.");
-        tmpOutputWriter.println((tmpCoconutMoleculesCounter - tmpCoconutSmilesMap.size()) + " molecules were filtered because they are stereo-isomers of others.");
+        System.out.println(tmpCoconutIndex.size() + " SMILES codes have been put into memory.");
+        tmpOutputWriter.println(tmpCoconutIndex.size() + " SMILES codes have been put into memory.");
+        System.out.println((tmpCoconutMoleculesCounter - tmpCoconutIndex.size()) + " molecules were filtered because they are stereo-isomers of others.");
+        tmpOutputWriter.println((tmpCoconutMoleculesCounter - tmpCoconutIndex.size()) + " molecules were filtered because they are stereo-isomers of others.");
         //Loading analysed dataset
         System.out.println("Loading and processing the given dataset now...");
         tmpOutputWriter.println("Loading and processing the given dataset now...");
@@ -3631,9 +3601,10 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         System.out.println("Dataset found at: " + tmpRawSmilesFile.getAbsolutePath());
         FileReader tmpRawSmilesFileReader = new FileReader(tmpRawSmilesFile);
         BufferedReader tmpRawSmilesBufferedReader = new BufferedReader(tmpRawSmilesFileReader);
-        //key: unique SMILES string (does not encode stereochemistry!)
-        // object: HashMap of id of the first stereo isomer encountered and number of stereo-isomers encountered
-        HashMap<String, HashMap<String, Object>> tmpSmilesMap = new HashMap<>((int)(anOriginalDataSetSize*1.1), 1.0f);
+        //groups by graph hash with a unique SMILES code (does not encode stereochemistry!) check on key hits; every
+        // group keeps the id of the first stereo isomer encountered and the number of stereo-isomers encountered, and
+        // its unique SMILES code is written to the curated file
+        StructureKeyIndex tmpStructureIndex = new StructureKeyIndex(anOriginalDataSetSize);
         String tmpRawFileNextLine = "";
         String tmpRawSmilesCode = "";
         tmpID = "";
@@ -3657,22 +3628,10 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpRawSmilesCode = tmpSmilesCodeAndId[0].trim();
                 tmpID = tmpSmilesCodeAndId[1].trim();
                 IAtomContainer tmpRawMoleculeFromSmiles = tmpSmiPar.parseSmiles(tmpRawSmilesCode);
-                String tmpCDKSMILESCode = tmpSmiGen.create(tmpRawMoleculeFromSmiles);
-                boolean tmpIsInBiogenic = tmpBiogenicSmilesMap.containsKey(tmpCDKSMILESCode);
-                boolean tmpIsInCOCONUT = tmpCoconutSmilesMap.containsKey(tmpCDKSMILESCode);
+                boolean tmpIsInBiogenic = !Objects.isNull(tmpBiogenicIndex.find(tmpRawMoleculeFromSmiles));
+                boolean tmpIsInCOCONUT = !tmpIsInBiogenic && !Objects.isNull(tmpCoconutIndex.find(tmpRawMoleculeFromSmiles));
                 if (!(tmpIsInBiogenic || tmpIsInCOCONUT)) {
-                    if (tmpSmilesMap.containsKey(tmpCDKSMILESCode)) {
-                        HashMap<String, Object> tmpInnerMap = tmpSmilesMap.get(tmpCDKSMILESCode);
-                        int tmpStereoIsomerNumber = (int) tmpInnerMap.get("FREQUENCY");
-                        tmpInnerMap.put("FREQUENCY", (tmpStereoIsomerNumber + 1));
-                        continue;
-                    } else {
-                        HashMap<String, Object> tmpInnerMap = new HashMap<>(3, 1.0f);
-                        tmpInnerMap.put("ID", tmpID);
-                        tmpInnerMap.put("FREQUENCY", 1);
-                        tmpSmilesMap.put(tmpCDKSMILESCode, tmpInnerMap);
-                        continue;
-                    }
+                    tmpStructureIndex.add(tmpRawMoleculeFromSmiles, tmpRawSmilesCode, tmpID);
                 } else {
                     tmpMatchedBiogenicOrCOCONUTCounter++;
                 }
@@ -3689,26 +3648,23 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         tmpOutputWriter.println(tmpRawMoleculesCounter + " molecules were processed.");
         System.out.println(tmpExceptionsCounter + " exceptions occurred.");
         tmpOutputWriter.println(tmpExceptionsCounter + " exceptions occurred.");
-        System.out.println(tmpSmilesMap.size() + " SMILES codes have been put into memory.");
-        tmpOutputWriter.println(tmpSmilesMap.size() + " SMILES codes have been put into memory.");
+        System.out.println(tmpStructureIndex.size() + " SMILES codes have been put into memory.");
+        tmpOutputWriter.println(tmpStructureIndex.size() + " SMILES codes have been put into memory.");
         System.out.println(tmpMatchedBiogenicOrCOCONUTCounter + " molecules were filtered because they matched in biogenic or COCONUT.");
         tmpOutputWriter.println(tmpMatchedBiogenicOrCOCONUTCounter + " molecules were filtered because they matched in biogenic or COCONUT.");
-        System.out.println((tmpRawMoleculesCounter - tmpMatchedBiogenicOrCOCONUTCounter - tmpSmilesMap.size())
+        System.out.println((tmpRawMoleculesCounter - tmpMatchedBiogenicOrCOCONUTCounter - tmpStructureIndex.size())
                 + " molecules were filtered because they were stereo isomers of already processed molecules.");
-        tmpOutputWriter.println((tmpRawMoleculesCounter - tmpMatchedBiogenicOrCOCONUTCounter - tmpSmilesMap.size())
+        tmpOutputWriter.println((tmpRawMoleculesCounter - tmpMatchedBiogenicOrCOCONUTCounter - tmpStructureIndex.size())
                 + " molecules were filtered because they were stereo isomers of already processed molecules.");
         //Writing to file
         System.out.println("Writing the curated data set to file now...");
         PrintWriter tmpMoleculesWriter = this.initializeOutputFile(tmpOutputFolderPath, aCuratedDataSetFileName);
         int tmpCounter = 0;
-        for (String tmpSmilesCode : tmpSmilesMap.keySet()) {
+        for (StructureKeyIndex.Group tmpGroup : tmpStructureIndex.getGroups()) {
             if ((tmpCounter % 10000) == 0) {
                 System.out.println(tmpCounter + " lines were processed already...");
             }
-            HashMap<String, Object> tmpInnerMap = tmpSmilesMap.get(tmpSmilesCode);
-            int tmpStereoIsomerNumber = (int) tmpInnerMap.get("FREQUENCY");
-            tmpID = (String) tmpInnerMap.get("ID");
-            tmpMoleculesWriter.println(tmpSmilesCode + " " + tmpID + " " + tmpStereoIsomerNumber);
+            tmpMoleculesWriter.println(tmpStructureIndex.getUniqueSmilesCode(tmpGroup) + " " + tmpGroup.getID() + " " + tmpGroup.getFrequency());
             tmpCounter++;
         }
         System.out.println("Done, shutting down.");
@@ -3721,15 +3677,15 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
     /**
      * Curation method for datasets that should only be "flattened", i.e. stereo-isomers grouped. The structures in the
      * given SMILES file are iterated and only one structure of every stereo-isomer group
-     * in the original dataset is written to the curated dataset. The curated set is written to file as SMILES codes in
-     * the specified output folder.
+     * in the original dataset is written to the curated dataset. The curated set is written to file as unique
+     * (stereo-free) SMILES codes in the specified output folder.
      */
     private void groupStereoisomersOfSMILESfile(
             String anOriginalDataSetFileName,
             int anOriginalDataSetSize,
             String aCuratedDataSetFileName,
             String anOutputFolderName
-    ) throws IllegalArgumentException, IOException {
+    ) throws IllegalArgumentException, IOException, CDKException {
         ClassLoader tmpClassLoader = this.getClass().getClassLoader();
         //Prints output folder to console
         String tmpOutputFolderPath = this.initializeOutputFolderAndLogger(anOutputFolderName);
@@ -3749,10 +3705,10 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         FileReader tmpOriginalDataSetSmilesFileReader = new FileReader(tmpOriginalDataSetSmilesFile);
         BufferedReader tmpOriginalDataSetSmilesBufferedReader = new BufferedReader(tmpOriginalDataSetSmilesFileReader);
         SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
-        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique); //Unique does not encode stereochemistry! Absolute would do
-        //key: unique SMILES string (does not encode stereochemistry!)
-        //object: HashMap of ID of the first stereo isomer encountered and number of stereo-isomers encountered
-        HashMap<String, HashMap<String, Object>> tmpSmilesMap = new HashMap<>((int)(anOriginalDataSetSize*1.1), 1.0f);
+        //groups by graph hash with a unique SMILES code (does not encode stereochemistry!) check on key hits; every
+        // group keeps the ID of the first stereo isomer encountered and the number of stereo-isomers encountered, and
+        // its unique SMILES code is written to the curated file
+        StructureKeyIndex tmpStructureIndex = new StructureKeyIndex(anOriginalDataSetSize);
         String tmpOriginalDataSetFileNextLine = "";
         String tmpOriginalDataSetSmilesCode = "";
         String tmpID = "";
@@ -3775,19 +3731,7 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
                 tmpOriginalDataSetSmilesCode = tmpSmilesCodeAndId[0].trim();
                 tmpID = tmpSmilesCodeAndId[1].trim();
                 IAtomContainer tmpMoleculeFromSmiles = tmpSmiPar.parseSmiles(tmpOriginalDataSetSmilesCode);
-                String tmpCDKSMILESCode = tmpSmiGen.create(tmpMoleculeFromSmiles);
-                if (tmpSmilesMap.containsKey(tmpCDKSMILESCode)) {
-                    HashMap<String, Object> tmpInnerMap = tmpSmilesMap.get(tmpCDKSMILESCode);
-                    int tmpStereoIsomerNumber = (int) tmpInnerMap.get("FREQUENCY");
-                    tmpInnerMap.put("FREQUENCY", (tmpStereoIsomerNumber + 1));
-                    continue;
-                } else {
-                    HashMap<String, Object> tmpInnerMap = new HashMap<>(3, 1.0f);
-                    tmpInnerMap.put("ID", tmpID);
-                    tmpInnerMap.put("FREQUENCY", 1);
-                    tmpSmilesMap.put(tmpCDKSMILESCode, tmpInnerMap);
-                    continue;
-                }
+                tmpStructureIndex.add(tmpMoleculeFromSmiles, tmpOriginalDataSetSmilesCode, tmpID);
             } catch (Exception anException) {
                 GlycosylationStatisticsTest.LOGGER.log(Level.SEVERE, anException.toString() + " ID: " + tmpID, anException);
                 tmpExceptionsCounter++;
@@ -3801,21 +3745,18 @@ public class GlycosylationStatisticsTest extends SugarRemovalUtility {
         tmpOutputWriter.println(tmpMoleculesCounter + " molecules were processed.");
         System.out.println(tmpExceptionsCounter + " exceptions occurred.");
         tmpOutputWriter.println(tmpExceptionsCounter + " exceptions occurred.");
-        System.out.println(tmpSmilesMap.size() + " SMILES codes have been put into memory.");
-        tmpOutputWriter.println(tmpSmilesMap.size() + " SMILES codes have been put into memory.");
+        System.out.println(tmpStructureIndex.size() + " SMILES codes have been put into memory.");
+        tmpOutputWriter.println(tmpStructureIndex.size() + " SMILES codes have been put into memory.");
         //Writing to file
         System.out.println("Writing the curated data set to file now...");
         PrintWriter tmpMoleculesWriter = this.initializeOutputFile(tmpOutputFolderPath, aCuratedDataSetFileName);
         int tmpCounter = 0;
         tmpID = "";
-        for (String tmpSmilesCode : tmpSmilesMap.keySet()) {
+        for (StructureKeyIndex.Group tmpGroup : tmpStructureIndex.getGroups()) {
             if ((tmpCounter % 10000) == 0) {
                 System.out.println(tmpCounter + " lines were processed already...");
             }
-            HashMap<String, Object> tmpInnerMap = tmpSmilesMap.get(tmpSmilesCode);
-            int tmpStereoIsomerNumber = (int) tmpInnerMap.get("FREQUENCY");
-            tmpID = (String) tmpInnerMap.get("ID");
-            tmpMoleculesWriter.println(tmpSmilesCode + " " + tmpID + " " + tmpStereoIsomerNumber);
+            tmpMoleculesWriter.println(tmpStructureIndex.getUniqueSmilesCode(tmpGroup) + " " + tmpGroup.getID() + " " + tmpGroup.getFrequency());
             tmpCounter++;
         }
         System.out.println("Done, shutting down.");
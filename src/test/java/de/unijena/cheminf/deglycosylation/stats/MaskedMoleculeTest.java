@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.graph.ConnectivityChecker;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Tests the removal of sugar moieties simulated on masked molecules against the removal from clones on the molecules
+ * of the review of bacterial glycosylated natural products that is supplied in the resources folder.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MaskedMoleculeTest {
+    /**
+     * Compares the results of the circular and linear sugar removal simulated on masked molecules to those of an SRU
+     * removing the sugars from clones, with and without removal of only terminal moieties and in both supported
+     * preservation modes.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void removalTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        RecordingSugarRemovalUtility tmpRecordingSugarRemovalUtil = new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        int tmpEmptiedCounter = 0;
+        int tmpRemovedMoietiesCounter = 0;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                IAtomContainer tmpMolecule = tmpSource.next().getAtomContainer();
+                boolean tmpIsConnected = ConnectivityChecker.isConnected(tmpMolecule);
+                for (boolean tmpRemoveOnlyTerminal : new boolean[] {true, false}) {
+                    if (tmpRemoveOnlyTerminal && !tmpIsConnected) {
+                        continue;
+                    }
+                    for (SugarRemovalUtility.PreservationModeOption tmpMode : new SugarRemovalUtility.PreservationModeOption[] {
+                            SugarRemovalUtility.PreservationModeOption.HEAVY_ATOM_COUNT, SugarRemovalUtility.PreservationModeOption.ALL}) {
+                        for (SugarRemovalUtility tmpSRU : new SugarRemovalUtility[] {tmpSugarRemovalUtil, tmpRecordingSugarRemovalUtil}) {
+                            tmpSRU.setRemoveOnlyTerminalSugarsSetting(tmpRemoveOnlyTerminal);
+                            tmpSRU.setPreservationModeSetting(tmpMode);
+                        }
+                        for (boolean tmpCircular : new boolean[] {true, false}) {
+                            List<IAtomContainer> tmpExpected = tmpCircular
+                                    ? tmpSugarRemovalUtil.removeAndReturnCircularSugars(tmpMolecule, true)
+                                    : tmpSugarRemovalUtil.removeAndReturnLinearSugars(tmpMolecule, true);
+                            IAtomContainer tmpClone = tmpMolecule.clone();
+                            MaskedMolecule tmpMaskedMolecule = new MaskedMolecule(tmpClone);
+                            List<IAtomContainer> tmpCandidates = tmpCircular
+                                    ? tmpRecordingSugarRemovalUtil.getCircularSugarCandidates(tmpClone)
+                                    : tmpRecordingSugarRemovalUtil.getLinearSugarCandidates(tmpClone);
+                            List<IAtomContainer> tmpRemoved = tmpRecordingSugarRemovalUtil.removeSugarCandidates(tmpMaskedMolecule, tmpCandidates);
+                            IAtomContainer tmpExpectedDeglycosylated = tmpExpected.get(0);
+                            Assert.assertEquals(tmpExpected.size() - 1, tmpRemoved.size());
+                            Assert.assertEquals(tmpExpectedDeglycosylated.isEmpty(), tmpMaskedMolecule.isEmpty());
+                            Assert.assertEquals(AtomContainerManipulator.getHeavyAtoms(tmpExpectedDeglycosylated).size(),
+                                    tmpMaskedMolecule.getHeavyAtomCount());
+                            Assert.assertEquals(ConnectivityChecker.partitionIntoMolecules(tmpExpectedDeglycosylated).getAtomContainerCount(),
+                                    tmpMaskedMolecule.getFragmentCount());
+                            IAtomContainer tmpMaterialized = tmpMaskedMolecule.toAtomContainer();
+                            Assert.assertEquals(tmpMaskedMolecule.getAtomCount(), tmpMaterialized.getAtomCount());
+                            Assert.assertEquals(tmpExpectedDeglycosylated.getBondCount(), tmpMaterialized.getBondCount());
+                            //the molecule itself is not altered
+                            Assert.assertEquals(tmpMolecule.getAtomCount(), tmpClone.getAtomCount());
+                            if (tmpMaskedMolecule.isEmpty()) {
+                                tmpEmptiedCounter++;
+                            }
+                            tmpRemovedMoietiesCounter += tmpRemoved.size();
+                        }
+                    }
+                }
+            }
+        }
+        Assert.assertTrue(tmpEmptiedCounter > 0);
+        Assert.assertTrue(tmpRemovedMoietiesCounter > 0);
+    }
+
+    /**
+     * Runs the sugar molecules analysis on the review molecules and compares its counters to those calculated like
+     * in GlycosylationStatisticsTest, i.e. by removing the sugars from clones of the molecules.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void sugarMoleculesAnalysisTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        tmpSugarRemovalUtil.setAddPropertyToSugarContainingMoleculesSetting(true);
+        SugarMoleculesAnalysis tmpAnalysis = new SugarMoleculesAnalysis();
+        int tmpExceptionsCounter = 0;
+        int tmpAnalysisExceptionsCounter = 0;
+        int tmpBasicallyASugarCounter = 0;
+        int tmpBasicallyASingleSugarUnitCounter = 0;
+        int tmpBasicallyACircularSugarCounter = 0;
+        int tmpBasicallyASingleCircularSugarCounter = 0;
+        int tmpBasicallyALinearSugarCounter = 0;
+        int tmpBasicallyASingleLinearSugarCounter = 0;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSource.next();
+                IAtomContainer tmpMolecule = tmpRecord.getAtomContainer();
+                try {
+                    List<IAtomContainer> tmpDeglycosylatedCloneAndRemovedSugarMoietiesList =
+                            tmpSugarRemovalUtil.removeAndReturnCircularAndLinearSugars(tmpMolecule, true);
+                    if (tmpDeglycosylatedCloneAndRemovedSugarMoietiesList.get(0).isEmpty()) {
+                        tmpBasicallyASugarCounter++;
+                        if (tmpDeglycosylatedCloneAndRemovedSugarMoietiesList.size() - 1 == 1) {
+                            tmpBasicallyASingleSugarUnitCounter++;
+                        }
+                    }
+                    if (tmpSugarRemovalUtil.removeCircularSugars(tmpMolecule, true).isEmpty()) {
+                        tmpBasicallyACircularSugarCounter++;
+                        if (tmpSugarRemovalUtil.getNumberOfCircularSugars(tmpMolecule.clone()) == 1) {
+                            tmpBasicallyASingleCircularSugarCounter++;
+                        }
+                    }
+                    if (tmpSugarRemovalUtil.removeLinearSugars(tmpMolecule, true).isEmpty()) {
+                        tmpBasicallyALinearSugarCounter++;
+                        if (tmpSugarRemovalUtil.getNumberOfLinearSugars(tmpMolecule) == 1) {
+                            tmpBasicallyASingleLinearSugarCounter++;
+                        }
+                    }
+                } catch (IllegalArgumentException anException) {
+                    tmpExceptionsCounter++;
+                }
+                try {
+                    tmpAnalysis.analyse(tmpRecord, tmpMolecule);
+                } catch (IllegalArgumentException anException) {
+                    tmpAnalysisExceptionsCounter++;
+                }
+            }
+        }
+        Assert.assertEquals(344, tmpAnalysis.getMoleculesCounter());
+        Assert.assertEquals(tmpExceptionsCounter, tmpAnalysisExceptionsCounter);
+        Assert.assertTrue(tmpAnalysis.getBasicallyASugarCounter() > 0);
+        Assert.assertEquals(tmpBasicallyASugarCounter, tmpAnalysis.getBasicallyASugarCounter());
+        Assert.assertEquals(tmpBasicallyASingleSugarUnitCounter, tmpAnalysis.getBasicallyASingleSugarUnitCounter());
+        Assert.assertEquals(tmpBasicallyACircularSugarCounter, tmpAnalysis.getBasicallyACircularSugarCounter());
+        Assert.assertEquals(tmpBasicallyASingleCircularSugarCounter, tmpAnalysis.getBasicallyASingleCircularSugarCounter());
+        Assert.assertEquals(tmpBasicallyALinearSugarCounter, tmpAnalysis.getBasicallyALinearSugarCounter());
+        Assert.assertEquals(tmpBasicallyASingleLinearSugarCounter, tmpAnalysis.getBasicallyASingleLinearSugarCounter());
+        Assert.assertEquals(tmpAnalysis.getBasicallyASingleSugarUnitCounter(),
+                tmpAnalysis.getBasicallyASingleCircularSugarCounter() + tmpAnalysis.getBasicallyASingleLinearSugarCounter());
+    }
+}
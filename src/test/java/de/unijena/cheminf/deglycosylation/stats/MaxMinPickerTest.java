@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the parallel lazy MaxMin picker against a straightforward MaxMin implementation.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MaxMinPickerTest {
+    /**
+     * Picks from random fingerprints, enough to be scanned in several parallel ranges, with both metrics and compares
+     * the picks to those of a sequential non-lazy MaxMin.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void randomFingerprintsTest() throws Exception {
+        Random tmpRandom = new Random(42L);
+        PackedFingerprints tmpFingerprints = new PackedFingerprints(256, 0);
+        for (int i = 0; i < 5000; i++) {
+            BitSet tmpFingerprint = new BitSet(256);
+            int tmpNumberOfBits = 5 + tmpRandom.nextInt(40);
+            for (int b = 0; b < tmpNumberOfBits; b++) {
+                tmpFingerprint.set(tmpRandom.nextInt(256));
+            }
+            Assert.assertEquals(i, tmpFingerprints.add(tmpFingerprint));
+        }
+        tmpFingerprints.add(new BitSet());
+        Assert.assertEquals(5001, tmpFingerprints.size());
+        Assert.assertEquals(0.0, tmpFingerprints.getDiceSimilarity(5000, 5000), 0.0);
+        Assert.assertEquals(1.0, tmpFingerprints.getTanimotoSimilarity(7, 7), 0.0);
+        for (MaxMinPicker.SimilarityMetric tmpMetric : MaxMinPicker.SimilarityMetric.values()) {
+            MaxMinPicker tmpPicker = new MaxMinPicker(tmpFingerprints, tmpMetric, 4);
+            int[] tmpPicks = tmpPicker.pick(50, MaxMinPicker.DEFAULT_SEED);
+            Assert.assertArrayEquals(tmpMetric.toString(), this.pickNaively(tmpPicker, tmpFingerprints.size(), 50,
+                    MaxMinPicker.DEFAULT_SEED), tmpPicks);
+            Assert.assertArrayEquals(tmpPicks, new MaxMinPicker(tmpFingerprints, tmpMetric, 1).pick(50,
+                    MaxMinPicker.DEFAULT_SEED));
+        }
+    }
+
+    /**
+     * Picks three molecules from a small SMILES file with one invalid line and checks the output file.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void smilesFileTest() throws Exception {
+        File tmpFolder = Files.createTempDirectory("maxmin_test").toFile();
+        File tmpSmilesFile = new File(tmpFolder, "molecules.txt");
+        try (PrintWriter tmpWriter = new PrintWriter(new FileWriter(tmpSmilesFile))) {
+            tmpWriter.println("SMILES Name");
+            tmpWriter.println("OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO amygdalin");
+            tmpWriter.println("OCC1OC(O)C(O)C(O)C1O glucose");
+            tmpWriter.println("C1CC(C invalid");
+            tmpWriter.println("OCC(O)C(O)C(O)C(O)C(O)COc1ccc(cc1)C(=O)O sorbitol_ester");
+            tmpWriter.println("CC(=O)Oc1ccccc1C(=O)O aspirin");
+            tmpWriter.println("CCCCCCCCCC decane");
+        }
+        File tmpOutputFile = new File(tmpFolder, "picked.txt");
+        int tmpPicked = MaxMinPicker.pickFromSmilesFile(tmpSmilesFile, tmpOutputFile, 3,
+                PackedFingerprints.DEFAULT_NUMBER_OF_BITS, MaxMinPicker.DEFAULT_SEED, 2);
+        Assert.assertEquals(3, tmpPicked);
+        List<String> tmpLines = Files.readAllLines(tmpOutputFile.toPath());
+        Assert.assertEquals(4, tmpLines.size());
+        Assert.assertEquals("SMILES Name", tmpLines.get(0));
+        for (String tmpLine : tmpLines.subList(1, 4)) {
+            Assert.assertFalse(tmpLine.endsWith("invalid"));
+        }
+        Assert.assertEquals(5, MaxMinPicker.pickFromSmilesFile(tmpSmilesFile, tmpOutputFile, 10,
+                PackedFingerprints.DEFAULT_NUMBER_OF_BITS, MaxMinPicker.DEFAULT_SEED, 2));
+    }
+
+    /**
+     * Plain MaxMin computing the distances of all molecules to every new pick.
+     */
+    private int[] pickNaively(MaxMinPicker aPicker, int aSize, int aNumberToPick, long aSeed) {
+        int[] tmpPicks = new int[aNumberToPick];
+        double[] tmpMinDistances = new double[aSize];
+        Arrays.fill(tmpMinDistances, Double.MAX_VALUE);
+        tmpPicks[0] = new Random(aSeed).nextInt(aSize);
+        boolean[] tmpIsPicked = new boolean[aSize];
+        tmpIsPicked[tmpPicks[0]] = true;
+        for (int p = 1; p < aNumberToPick; p++) {
+            int tmpBest = -1;
+            for (int i = 0; i < aSize; i++) {
+                if (tmpIsPicked[i]) {
+                    continue;
+                }
+                tmpMinDistances[i] = Math.min(tmpMinDistances[i], aPicker.getDistance(i, tmpPicks[p - 1]));
+                if (tmpBest < 0 || tmpMinDistances[i] > tmpMinDistances[tmpBest]) {
+                    tmpBest = i;
+                }
+            }
+            tmpPicks[p] = tmpBest;
+            tmpIsPicked[tmpBest] = true;
+        }
+        return tmpPicks;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests the error guarantees of the bounded-memory moiety frequency counting.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MoietyFrequencySketchTest {
+    /**
+     * Counts a skewed random stream of far more distinct items than the capacity in one sketch and in four merged
+     * shard sketches and checks the Space-Saving guarantees against the exact counts.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void guaranteesTest() throws Exception {
+        int tmpCapacity = 50;
+        Random tmpRandom = new Random(11L);
+        Map<String, Long> tmpExactCounts = new HashMap<>(4000);
+        MoietyFrequencySketch tmpSketch = new MoietyFrequencySketch(tmpCapacity);
+        MoietyFrequencySketch[] tmpShardSketches = new MoietyFrequencySketch[4];
+        for (int i = 0; i < tmpShardSketches.length; i++) {
+            tmpShardSketches[i] = new MoietyFrequencySketch(tmpCapacity);
+        }
+        int tmpStreamLength = 100000;
+        for (int i = 0; i < tmpStreamLength; i++) {
+            //roughly Zipf-distributed items
+            String tmpItem = "item" + (int) Math.floor(Math.pow(3000.0, tmpRandom.nextDouble()));
+            tmpExactCounts.merge(tmpItem, 1L, Long::sum);
+            tmpSketch.add(tmpItem, Integer.toString(i));
+            tmpShardSketches[i % tmpShardSketches.length].add(tmpItem, Integer.toString(i));
+        }
+        MoietyFrequencySketch tmpMergedSketch = tmpShardSketches[0];
+        for (int i = 1; i < tmpShardSketches.length; i++) {
+            tmpMergedSketch.merge(tmpShardSketches[i]);
+        }
+        for (MoietyFrequencySketch tmpTestedSketch : new MoietyFrequencySketch[] {tmpSketch, tmpMergedSketch}) {
+            Assert.assertEquals(tmpStreamLength, tmpTestedSketch.getTotalCount());
+            Assert.assertEquals(tmpCapacity, tmpTestedSketch.size());
+            Assert.assertTrue(tmpTestedSketch.getMaximumError() <= tmpStreamLength / tmpCapacity);
+            List<MoietyFrequencySketch.Frequency> tmpFrequencies = tmpTestedSketch.getMostFrequent(tmpCapacity);
+            Map<String, MoietyFrequencySketch.Frequency> tmpMonitored = new HashMap<>(2 * tmpCapacity);
+            for (int i = 0; i < tmpFrequencies.size(); i++) {
+                MoietyFrequencySketch.Frequency tmpFrequency = tmpFrequencies.get(i);
+                long tmpTrueCount = tmpExactCounts.get(tmpFrequency.getItem());
+                Assert.assertTrue(tmpFrequency.getCount() >= tmpTrueCount);
+                Assert.assertTrue(tmpFrequency.getGuaranteedCount() <= tmpTrueCount);
+                Assert.assertTrue(tmpFrequency.getError() <= tmpTestedSketch.getMaximumError());
+                if (i > 0) {
+                    Assert.assertTrue(tmpFrequencies.get(i - 1).getCount() >= tmpFrequency.getCount());
+                }
+                tmpMonitored.put(tmpFrequency.getItem(), tmpFrequency);
+            }
+            for (Map.Entry<String, Long> tmpEntry : tmpExactCounts.entrySet()) {
+                if (tmpEntry.getValue() > tmpStreamLength / tmpCapacity) {
+                    Assert.assertTrue(tmpEntry.getKey(), tmpMonitored.containsKey(tmpEntry.getKey()));
+                }
+            }
+        }
+        //with enough capacity, the counts are exact
+        MoietyFrequencySketch tmpExactSketch = new MoietyFrequencySketch(5000);
+        for (Map.Entry<String, Long> tmpEntry : tmpExactCounts.entrySet()) {
+            for (long i = 0; i < tmpEntry.getValue(); i++) {
+                tmpExactSketch.add(tmpEntry.getKey(), null);
+            }
+        }
+        Assert.assertEquals(0L, tmpExactSketch.getMaximumError());
+        for (MoietyFrequencySketch.Frequency tmpFrequency : tmpExactSketch.getMostFrequent(5000)) {
+            Assert.assertEquals((long) tmpExactCounts.get(tmpFrequency.getItem()), tmpFrequency.getCount());
+        }
+    }
+
+    /**
+     * Counts the removed moieties of the review molecules with a small capacity and checks that the top moieties and
+     * the totals agree with counts of a large capacity, which are exact.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void reviewDatasetAnalysisTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        SugarMoietyFrequencyAnalysis tmpBoundedAnalysis = new SugarMoietyFrequencyAnalysis(8);
+        SugarMoietyFrequencyAnalysis tmpExactAnalysis = new SugarMoietyFrequencyAnalysis();
+        tmpBoundedAnalysis.initialize(Files.createTempDirectory("moiety_frequencies_test").toString() + File.separator);
+        tmpExactAnalysis.initialize(Files.createTempDirectory("moiety_frequencies_test").toString() + File.separator);
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSource.next();
+                IAtomContainer tmpMolecule = tmpRecord.getAtomContainer();
+                tmpBoundedAnalysis.analyse(tmpRecord, tmpMolecule);
+                tmpExactAnalysis.analyse(tmpRecord, tmpMolecule);
+            }
+        }
+        tmpBoundedAnalysis.writeResults();
+        tmpExactAnalysis.writeResults();
+        MoietyFrequencySketch tmpExactSketch = tmpExactAnalysis.getCircularMoietiesSketch();
+        MoietyFrequencySketch tmpBoundedSketch = tmpBoundedAnalysis.getCircularMoietiesSketch();
+        Assert.assertEquals(0L, tmpExactSketch.getMaximumError());
+        Assert.assertTrue(tmpExactSketch.getTotalCount() > 0);
+        Assert.assertEquals(tmpExactSketch.getTotalCount(), tmpBoundedSketch.getTotalCount());
+        MoietyFrequencySketch.Frequency tmpExactTop = tmpExactSketch.getMostFrequent(1).get(0);
+        //the most frequent moiety is far more frequent than the maximum error, so it is monitored
+        Assert.assertTrue(tmpExactTop.getCount() > tmpBoundedSketch.getMaximumError());
+        MoietyFrequencySketch.Frequency tmpBoundedTop = tmpBoundedSketch.getMostFrequent(1).get(0);
+        Assert.assertEquals(tmpExactTop.getItem(), tmpBoundedTop.getItem());
+        Assert.assertTrue(tmpBoundedTop.getGuaranteedCount() <= tmpExactTop.getCount()
+                && tmpExactTop.getCount() <= tmpBoundedTop.getCount());
+        Assert.assertEquals(tmpExactAnalysis.getLinearMoietiesSketch().getTotalCount(),
+                tmpBoundedAnalysis.getLinearMoietiesSketch().getTotalCount());
+    }
+}
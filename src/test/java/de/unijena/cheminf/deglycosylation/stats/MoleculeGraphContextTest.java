@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.graph.GraphUtil;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.ringsearch.RingSearch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tests the graph context and its reuse in the linear sugar detection on the molecules of the review of bacterial
+ * glycosylated natural products that is supplied in the resources folder.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MoleculeGraphContextTest {
+    /**
+     * Compares the linear sugar candidates detected with a graph context to those detected by an SRU running its own
+     * ring searches, both with and without linear sugars in rings, and compares the ring membership of all candidate
+     * atoms to a new ring search.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void linearSugarCandidatesTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        RecordingSugarRemovalUtility tmpRecordingSugarRemovalUtil = new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        int tmpCyclicCandidatesCounter = 0;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                IAtomContainer tmpMolecule = tmpSource.next().getAtomContainer();
+                IAtomContainer tmpClone = tmpMolecule.clone();
+                MoleculeGraphContext tmpGraphContext = new MoleculeGraphContext(tmpClone);
+                Assert.assertTrue(tmpGraphContext.isValidFor(tmpClone));
+                Assert.assertFalse(tmpGraphContext.isValidFor(tmpMolecule));
+                tmpRecordingSugarRemovalUtil.setGraphContext(tmpGraphContext);
+                for (boolean tmpDetectInRings : new boolean[] {true, false}) {
+                    tmpSugarRemovalUtil.setDetectLinearSugarsInRingsSetting(tmpDetectInRings);
+                    tmpRecordingSugarRemovalUtil.setDetectLinearSugarsInRingsSetting(tmpDetectInRings);
+                    List<IAtomContainer> tmpExpected = tmpSugarRemovalUtil.getLinearSugarCandidates(tmpMolecule.clone());
+                    List<IAtomContainer> tmpActual = tmpRecordingSugarRemovalUtil.getLinearSugarCandidates(tmpClone);
+                    Assert.assertEquals(tmpExpected.size(), tmpActual.size());
+                    for (int i = 0; i < tmpExpected.size(); i++) {
+                        Assert.assertEquals(tmpExpected.get(i).getAtomCount(), tmpActual.get(i).getAtomCount());
+                    }
+                    RingSearch tmpRingSearch = new RingSearch(tmpClone, GraphUtil.toAdjList(tmpClone));
+                    for (IAtomContainer tmpCandidate : tmpActual) {
+                        boolean tmpHasCyclicAtom = false;
+                        for (IAtom tmpAtom : tmpCandidate.atoms()) {
+                            Assert.assertEquals(tmpRingSearch.cyclic(tmpAtom), tmpGraphContext.isCyclic(tmpAtom));
+                            tmpHasCyclicAtom = tmpHasCyclicAtom || tmpRingSearch.cyclic(tmpAtom);
+                        }
+                        Assert.assertEquals(tmpHasCyclicAtom, tmpGraphContext.containsCyclicAtom(tmpCandidate));
+                        if (tmpHasCyclicAtom) {
+                            tmpCyclicCandidatesCounter++;
+                        }
+                    }
+                    List<IAtomContainer> tmpFiltered = new ArrayList<>(tmpActual);
+                    tmpRecordingSugarRemovalUtil.removeCyclicAtomsFromSugarCandidates(tmpFiltered, tmpClone);
+                    for (IAtomContainer tmpCandidate : tmpFiltered) {
+                        Assert.assertFalse(tmpGraphContext.containsCyclicAtom(tmpCandidate));
+                    }
+                }
+                Assert.assertTrue(tmpGraphContext.isValidFor(tmpClone));
+            }
+        }
+        Assert.assertTrue(tmpCyclicCandidatesCounter > 0);
+    }
+
+    /**
+     * Compares the circular sugar candidates detected with a graph context to those detected by an SRU running its
+     * own ring search, with and without spiro rings and rings with keto groups, including the flagged spiro atoms.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void circularSugarCandidatesTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        RecordingSugarRemovalUtility tmpRecordingSugarRemovalUtil = new RecordingSugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        int tmpCandidatesCounter = 0;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                IAtomContainer tmpMolecule = tmpSource.next().getAtomContainer();
+                IAtomContainer tmpClone = tmpMolecule.clone();
+                MoleculeGraphContext tmpGraphContext = new MoleculeGraphContext(tmpClone);
+                tmpRecordingSugarRemovalUtil.setGraphContext(tmpGraphContext);
+                for (boolean tmpDetectSpiroRings : new boolean[] {true, false}) {
+                    for (boolean tmpDetectKetoGroups : new boolean[] {true, false}) {
+                        tmpSugarRemovalUtil.setDetectSpiroRingsAsCircularSugarsSetting(tmpDetectSpiroRings);
+                        tmpSugarRemovalUtil.setDetectCircularSugarsWithKetoGroupsSetting(tmpDetectKetoGroups);
+                        tmpRecordingSugarRemovalUtil.setDetectSpiroRingsAsCircularSugarsSetting(tmpDetectSpiroRings);
+                        tmpRecordingSugarRemovalUtil.setDetectCircularSugarsWithKetoGroupsSetting(tmpDetectKetoGroups);
+                        IAtomContainer tmpExpectedMolecule = tmpMolecule.clone();
+                        List<IAtomContainer> tmpExpected = tmpSugarRemovalUtil.getCircularSugarCandidates(tmpExpectedMolecule);
+                        List<IAtomContainer> tmpActual = tmpRecordingSugarRemovalUtil.getCircularSugarCandidates(tmpClone);
+                        Assert.assertEquals(tmpExpected.size(), tmpActual.size());
+                        //the atom order in a ring may differ, so the atom indices are compared as sets
+                        for (int i = 0; i < tmpExpected.size(); i++) {
+                            BitSet tmpExpectedAtoms = new BitSet(tmpClone.getAtomCount());
+                            for (IAtom tmpAtom : tmpExpected.get(i).atoms()) {
+                                tmpExpectedAtoms.set(tmpExpectedMolecule.indexOf(tmpAtom));
+                            }
+                            BitSet tmpActualAtoms = new BitSet(tmpClone.getAtomCount());
+                            for (IAtom tmpAtom : tmpActual.get(i).atoms()) {
+                                tmpActualAtoms.set(tmpClone.indexOf(tmpAtom));
+                            }
+                            Assert.assertEquals(tmpExpectedAtoms, tmpActualAtoms);
+                        }
+                        tmpCandidatesCounter += tmpActual.size();
+                        for (int i = 0; i < tmpClone.getAtomCount(); i++) {
+                            Boolean tmpExpectedIsSpiro = tmpExpectedMolecule.getAtom(i).getProperty(SugarRemovalUtility.IS_SPIRO_ATOM_PROPERTY_KEY);
+                            Boolean tmpActualIsSpiro = tmpClone.getAtom(i).getProperty(SugarRemovalUtility.IS_SPIRO_ATOM_PROPERTY_KEY);
+                            Assert.assertEquals(tmpExpectedIsSpiro, tmpActualIsSpiro);
+                        }
+                    }
+                }
+                Assert.assertTrue(tmpGraphContext.isValidFor(tmpClone));
+            }
+        }
+        Assert.assertTrue(tmpCandidatesCounter > 0);
+    }
+
+    /**
+     * Runs the linear sugars in rings analysis on the review molecules.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void linearSugarsInRingsAnalysisTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        LinearSugarsInRingsAnalysis tmpAnalysis = new LinearSugarsInRingsAnalysis();
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSource.next();
+                tmpAnalysis.analyse(tmpRecord, tmpRecord.getAtomContainer());
+            }
+        }
+        Assert.assertEquals(344, tmpAnalysis.getMoleculesCounter());
+        Assert.assertTrue(tmpAnalysis.getLinearSugarMoietiesInRingsCounter() > 0);
+        Assert.assertTrue(tmpAnalysis.getLinearSugarMoietiesInRingsCounter() >= tmpAnalysis.getLinSugInRingsLostInRemovalOfCircSugCounter());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Tests writing, reopening, and querying result tables, also as written by a MultiDatasetComparisonJob.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MoleculeResultTableTest {
+    /**
+     * Appends rows of a batch to a new table, reopens it, appends more rows, and checks all columns.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void appendAndReopenTest() throws Exception {
+        SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer[] tmpMolecules = {
+                tmpSmiPar.parseSmiles("OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"),
+                tmpSmiPar.parseSmiles("OCC1OC(O)C(O)C(O)C1O"),
+                tmpSmiPar.parseSmiles("C1CCC2(CC1)CCCO2"),
+                null
+        };
+        SugarDetectionBatch tmpBatch = new BatchSugarRemovalUtility(DefaultChemObjectBuilder.getInstance())
+                .detect(tmpMolecules);
+        Assert.assertTrue(tmpBatch.hasFlag(2, SugarDetectionBatch.CONTAINS_SPIRO_ATOM_FLAG));
+        Assert.assertFalse(tmpBatch.hasFlag(0, SugarDetectionBatch.CONTAINS_SPIRO_ATOM_FLAG));
+        MoleculeResultTable.Rows tmpRows = new MoleculeResultTable.Rows(2);
+        for (int i = 0; i < tmpMolecules.length; i++) {
+            tmpRows.add("mol" + i, tmpBatch, i, i + 1);
+        }
+        File tmpTableFile = new File(Files.createTempDirectory("result_table_test").toFile(),
+                "test" + MoleculeResultTable.FILE_EXTENSION);
+        try (MoleculeResultTable tmpTable = MoleculeResultTable.create(tmpTableFile)) {
+            tmpTable.append(tmpRows);
+            Assert.assertEquals(4, tmpTable.size());
+        }
+        tmpRows = new MoleculeResultTable.Rows(2);
+        tmpRows.addSugarFreeMolecule("aspirin", 1);
+        tmpRows.addFailure("");
+        try (MoleculeResultTable tmpTable = MoleculeResultTable.open(tmpTableFile)) {
+            Assert.assertEquals(4, tmpTable.size());
+            tmpTable.append(tmpRows);
+            Assert.assertEquals(6, tmpTable.size());
+            for (int i = 0; i < tmpMolecules.length; i++) {
+                Assert.assertEquals(i, tmpTable.getIDIndex(i));
+                Assert.assertEquals("mol" + i, tmpTable.getID(i));
+                Assert.assertEquals(tmpBatch.getFlags(i), tmpTable.getFlags(i));
+                Assert.assertEquals(tmpBatch.getCircularSugarCount(i), tmpTable.getCircularSugarCount(i));
+                Assert.assertEquals(tmpBatch.getTerminalCircularSugarCount(i), tmpTable.getTerminalCircularSugarCount(i));
+                Assert.assertEquals(tmpBatch.getLinearSugarCount(i), tmpTable.getLinearSugarCount(i));
+                Assert.assertEquals(tmpBatch.getTerminalLinearSugarCount(i), tmpTable.getTerminalLinearSugarCount(i));
+                Assert.assertEquals(tmpBatch.getCircularSugarsWithGlycosidicBondCount(i),
+                        tmpTable.getCircularSugarsWithGlycosidicBondCount(i));
+                Assert.assertEquals(tmpBatch.getHeavyAtomCount(i), tmpTable.getHeavyAtomCount(i));
+                Assert.assertEquals(tmpBatch.getDeglycosylatedHeavyAtomCount(i),
+                        tmpTable.getDeglycosylatedHeavyAtomCount(i));
+                Assert.assertEquals(i + 1, tmpTable.getNrOfStereoIsomers(i));
+            }
+            //amygdalin: two circular sugars that are removed one after the other as terminal sugars
+            Assert.assertEquals(2, tmpTable.getCircularSugarCount(0));
+            Assert.assertEquals(0, tmpTable.getNonTerminalCircularSugarCount(0));
+            Assert.assertEquals("aspirin", tmpTable.getID(4));
+            Assert.assertEquals(MoleculeResultTable.UNKNOWN_HEAVY_ATOM_COUNT, tmpTable.getHeavyAtomCount(4));
+            Assert.assertFalse(tmpTable.containsSugars(4));
+            Assert.assertTrue(tmpTable.hasFlag(5, SugarDetectionBatch.FAILED_FLAG));
+            Assert.assertEquals(2, tmpTable.count(tmpTable::containsSugars));
+            Assert.assertEquals(3L, tmpTable.sum(tmpTable::getCircularSugarCount, i -> true));
+            DatasetGlycosylationStatistics tmpStatistics = tmpTable.computeStatistics("test");
+            Assert.assertEquals(6, tmpStatistics.getMoleculesCounter());
+            Assert.assertEquals(2, tmpStatistics.getFailedMoleculesCounter());
+            Assert.assertEquals(1, tmpStatistics.getBasicallyASugarCounter());
+        }
+        Assert.assertEquals(6, Files.readAllLines(MoleculeResultTable.getIDsFile(tmpTableFile).toPath()).size());
+    }
+
+    /**
+     * Writes the result tables of the review molecules and a few in-memory molecules in a comparison job with
+     * pre-screening and checks that the statistics compiled from the tables are the same as those of the job.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void comparisonJobTest() throws Exception {
+        String[][] tmpMolecules = {
+                {"amygdalin", "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"},
+                {"sorbitol_ester", "OCC(O)C(O)C(O)C(O)C(O)COc1ccc(cc1)C(=O)O"},
+                {"aspirin", "CC(=O)Oc1ccccc1C(=O)O"},
+                {"invalid", "OC1CC(O)C(O"}
+        };
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        File tmpOutputFolder = Files.createTempDirectory("result_table_test").toFile();
+        List<DatasetGlycosylationStatistics> tmpStatisticsList;
+        MultiDatasetComparisonJob tmpJob;
+        try (SDFMoleculeSource tmpSDFSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            tmpJob = new MultiDatasetComparisonJob(Arrays.asList(tmpSDFSource, new ArrayMoleculeSource("test",
+                    tmpMolecules)), tmpOutputFolder.getAbsolutePath(), 3, 16);
+            tmpJob.setPrescreeningEnabled(true);
+            tmpJob.setResultTableWritten(true);
+            tmpStatisticsList = tmpJob.run();
+        }
+        for (DatasetGlycosylationStatistics tmpStatistics : tmpStatisticsList) {
+            File tmpTableFile = tmpJob.getResultTableFile(tmpStatistics.getDatasetName());
+            try (MoleculeResultTable tmpTable = MoleculeResultTable.open(tmpTableFile)) {
+                Assert.assertEquals(tmpStatistics.getMoleculesCounter(), tmpTable.size());
+                Map<String, Integer> tmpTableStatistics = tmpTable.computeStatistics(
+                        tmpStatistics.getDatasetName()).getStatistics();
+                Assert.assertEquals(tmpStatistics.getStatistics(), tmpTableStatistics);
+                Assert.assertEquals(tmpStatistics.getHasAnyTypeOfSugarsCounter(), tmpTable.count(tmpTable::containsSugars));
+                Assert.assertEquals((long) tmpTableStatistics.get("Detected linear sugar moieties"),
+                        tmpTable.sum(tmpTable::getLinearSugarCount, i -> true));
+                SortedMap<Integer, Integer> tmpCircularSugarCounts = tmpTable.countBy(tmpTable::getCircularSugarCount,
+                        i -> tmpTable.hasFlag(i, SugarDetectionBatch.CONTAINS_CIRCULAR_SUGARS_FLAG));
+                Assert.assertEquals(tmpStatistics.getHasCircularSugarsCounter(),
+                        tmpCircularSugarCounts.values().stream().mapToInt(Integer::intValue).sum());
+                Assert.assertTrue(tmpCircularSugarCounts.isEmpty() || tmpCircularSugarCounts.firstKey() > 0);
+            }
+        }
+        try (MoleculeResultTable tmpTable = MoleculeResultTable.open(tmpJob.getResultTableFile("test"))) {
+            Assert.assertEquals("amygdalin", tmpTable.getID(0));
+            Assert.assertEquals(2, tmpTable.getCircularSugarCount(0));
+            Assert.assertEquals("aspirin", tmpTable.getID(2));
+            Assert.assertEquals(MoleculeResultTable.UNKNOWN_HEAVY_ATOM_COUNT, tmpTable.getHeavyAtomCount(2));
+            Assert.assertTrue(tmpTable.hasFlag(3, SugarDetectionBatch.FAILED_FLAG));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the concurrent comparison of several datasets against a sequential analysis of each of them.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class MultiDatasetComparisonJobTest {
+    /**
+     * Compares the review molecules and five in-memory molecules, one of them not parseable, on three worker threads
+     * with small chunks, and checks the statistics of both datasets and the comparison table.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void twoDatasetsTest() throws Exception {
+        String[][] tmpMolecules = {
+                {"amygdalin", "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"},
+                {"glucose", "OCC1OC(O)C(O)C(O)C1O"},
+                {"sorbitol_ester", "OCC(O)C(O)C(O)C(O)C(O)COc1ccc(cc1)C(=O)O"},
+                {"aspirin", "CC(=O)Oc1ccccc1C(=O)O"},
+                {"invalid", "C1CC(C"}
+        };
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        File tmpOutputFolder = Files.createTempDirectory("comparison_test").toFile();
+        List<DatasetGlycosylationStatistics> tmpStatisticsList;
+        try (SDFMoleculeSource tmpSDFSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            MultiDatasetComparisonJob tmpJob = new MultiDatasetComparisonJob(Arrays.asList(tmpSDFSource,
+                    new ArrayMoleculeSource("test", tmpMolecules)), tmpOutputFolder.getAbsolutePath(), 3, 16);
+            tmpStatisticsList = tmpJob.run();
+            Assert.assertTrue(new File(tmpJob.getOutputFolderPath() + MultiDatasetComparisonJob.COMPARISON_FILE_NAME).isFile());
+        }
+        Assert.assertEquals(2, tmpStatisticsList.size());
+        DatasetGlycosylationStatistics tmpTestStatistics = tmpStatisticsList.get(1);
+        Assert.assertEquals("test", tmpTestStatistics.getDatasetName());
+        Assert.assertEquals(5, tmpTestStatistics.getMoleculesCounter());
+        Assert.assertEquals(1, tmpTestStatistics.getFailedMoleculesCounter());
+        Assert.assertEquals(3, tmpTestStatistics.getHasAnyTypeOfSugarsCounter());
+        Assert.assertEquals(2, tmpTestStatistics.getHasCircularSugarsCounter());
+        Assert.assertEquals(1, tmpTestStatistics.getHasLinearSugarsCounter());
+        Assert.assertEquals(1, tmpTestStatistics.getBasicallyASugarCounter());
+        DatasetGlycosylationStatistics tmpSequentialStatistics = new DatasetGlycosylationStatistics("sequential");
+        SugarRemovalUtility tmpSugarRemovalUtil = SugarRemovalUtilityPool.createInstance();
+        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique);
+        try (SDFMoleculeSource tmpSDFSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSDFSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSDFSource.next();
+                tmpSequentialStatistics.add(MoleculeGlycosylationResult.compute(tmpRecord.getID(), null,
+                        tmpRecord.getAtomContainer(), tmpSugarRemovalUtil, tmpSmiGen), tmpRecord.getNrOfStereoIsomers());
+            }
+        }
+        Assert.assertEquals(344, tmpStatisticsList.get(0).getMoleculesCounter());
+        Assert.assertEquals(tmpSequentialStatistics.getStatistics(), tmpStatisticsList.get(0).getStatistics());
+    }
+
+    /**
+     * Checks that pre-screening the SMILES codes does not change the statistics.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void prescreeningTest() throws Exception {
+        String[][] tmpMolecules = {
+                {"amygdalin", "OC1C(O)C(O)C(OC1OCC1OC(OC(C#N)c2ccccc2)C(O)C(O)C1O)CO"},
+                {"glucose", "OCC1OC(O)C(O)C(O)C1O"},
+                {"sorbitol_ester", "OCC(O)C(O)C(O)C(O)C(O)COc1ccc(cc1)C(=O)O"},
+                {"aspirin", "CC(=O)Oc1ccccc1C(=O)O"},
+                {"caffeine", "Cn1cnc2c1c(=O)n(C)c(=O)n2C"},
+                {"tetrahydrofuran", "C1CCOC1"},
+                {"invalid", "OC1CC(O)C(O"}
+        };
+        File tmpOutputFolder = Files.createTempDirectory("comparison_test").toFile();
+        MultiDatasetComparisonJob tmpJob = new MultiDatasetComparisonJob(List.of(new ArrayMoleculeSource("test",
+                tmpMolecules)), tmpOutputFolder.getAbsolutePath(), 2, 2);
+        DatasetGlycosylationStatistics tmpStatistics = tmpJob.run().get(0);
+        tmpJob = new MultiDatasetComparisonJob(List.of(new ArrayMoleculeSource("test", tmpMolecules)),
+                tmpOutputFolder.getAbsolutePath(), 2, 2);
+        tmpJob.setPrescreeningEnabled(true);
+        DatasetGlycosylationStatistics tmpPrescreenedStatistics = tmpJob.run().get(0);
+        Assert.assertEquals(7, tmpPrescreenedStatistics.getMoleculesCounter());
+        Assert.assertEquals(1, tmpPrescreenedStatistics.getFailedMoleculesCounter());
+        Assert.assertEquals(tmpStatistics.getStatistics(), tmpPrescreenedStatistics.getStatistics());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the parameter sweep against separate runs of Sugar Removal Utilities configured with the settings of the
+ * single grid points, on the molecules of the review of bacterial glycosylated natural products that is supplied in
+ * the resources folder.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class ParameterSweepAnalysisTest {
+    /**
+     * Runs the sweep over the default grid and compares the counters of every grid point to those of a Sugar Removal
+     * Utility with the respective settings.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void defaultGridTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        ParameterSweepAnalysis tmpAnalysis = new ParameterSweepAnalysis();
+        List<SweepGridPoint> tmpGrid = tmpAnalysis.getGrid();
+        Assert.assertEquals(20, tmpGrid.size());
+        List<SugarRemovalUtility> tmpSugarRemovalUtils = new ArrayList<>(tmpGrid.size());
+        for (SweepGridPoint tmpGridPoint : tmpGrid) {
+            SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+            tmpGridPoint.applyTo(tmpSugarRemovalUtil);
+            tmpSugarRemovalUtils.add(tmpSugarRemovalUtil);
+        }
+        int[] tmpCircularMoieties = new int[tmpGrid.size()];
+        int[] tmpLinearMoieties = new int[tmpGrid.size()];
+        int[] tmpHasCircularSugars = new int[tmpGrid.size()];
+        int[] tmpHasLinearSugars = new int[tmpGrid.size()];
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSource.next();
+                IAtomContainer tmpMolecule = tmpRecord.getAtomContainer();
+                tmpAnalysis.analyse(tmpRecord, tmpMolecule);
+                for (int g = 0; g < tmpGrid.size(); g++) {
+                    int tmpCircular = tmpSugarRemovalUtils.get(g).getNumberOfCircularSugars(tmpMolecule.clone());
+                    int tmpLinear = tmpSugarRemovalUtils.get(g).getNumberOfLinearSugars(tmpMolecule.clone());
+                    tmpCircularMoieties[g] += tmpCircular;
+                    tmpLinearMoieties[g] += tmpLinear;
+                    tmpHasCircularSugars[g] += tmpCircular > 0 ? 1 : 0;
+                    tmpHasLinearSugars[g] += tmpLinear > 0 ? 1 : 0;
+                }
+            }
+        }
+        Assert.assertEquals(344, tmpAnalysis.getMoleculesCounter());
+        for (int g = 0; g < tmpGrid.size(); g++) {
+            String tmpMessage = tmpGrid.get(g).toString();
+            Assert.assertEquals(tmpMessage, tmpCircularMoieties[g], tmpAnalysis.getCircularSugarMoietiesCounter(g));
+            Assert.assertEquals(tmpMessage, tmpLinearMoieties[g], tmpAnalysis.getLinearSugarMoietiesCounter(g));
+            Assert.assertEquals(tmpMessage, tmpHasCircularSugars[g], tmpAnalysis.getHasCircularSugarsCounter(g));
+            Assert.assertEquals(tmpMessage, tmpHasLinearSugars[g], tmpAnalysis.getHasLinearSugarsCounter(g));
+        }
+        //stricter thresholds detect fewer circular sugars
+        Assert.assertTrue(tmpAnalysis.getCircularSugarMoietiesCounter(0) > tmpAnalysis.getCircularSugarMoietiesCounter(tmpGrid.size() - 1));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Tests writing and reading result columns and querying them, compared to the same queries on the result tables.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class ResultQueryTest {
+    /**
+     * Writes the columns of a table spanning several long words, reopens them, and checks predicates and
+     * group-by queries, including a group-by column with a large range of values.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void predicateAndGroupByTest() throws Exception {
+        MoleculeResultTable.Rows tmpRows = new MoleculeResultTable.Rows(200);
+        for (int i = 0; i < 200; i++) {
+            if (i % 10 == 3) {
+                tmpRows.addFailure("mol" + i);
+            } else {
+                tmpRows.addSugarFreeMolecule("mol" + i, i % 7 == 0 ? 1_000_000 + i : i % 4 + 1);
+            }
+        }
+        File tmpTableFile = new File(Files.createTempDirectory("result_query_test").toFile(),
+                "test" + MoleculeResultTable.FILE_EXTENSION);
+        try (MoleculeResultTable tmpTable = MoleculeResultTable.create(tmpTableFile)) {
+            tmpTable.append(tmpRows);
+            ResultColumns.write(tmpTable);
+            ResultColumns tmpColumns = ResultColumns.open(tmpTableFile);
+            Assert.assertEquals(200, tmpColumns.size());
+            int tmpFailedCount = tmpTable.count(i -> tmpTable.hasFlag(i, SugarDetectionBatch.FAILED_FLAG));
+            Assert.assertEquals(20, tmpFailedCount);
+            Assert.assertEquals(200, new ResultQuery(tmpColumns).count());
+            Assert.assertEquals(tmpFailedCount, new ResultQuery(tmpColumns)
+                    .where(ResultPredicate.isTrue(ResultColumns.Flag.FAILED)).count());
+            Assert.assertEquals(200 - tmpFailedCount, new ResultQuery(tmpColumns)
+                    .where(ResultPredicate.isFalse(ResultColumns.Flag.FAILED)).count());
+            Assert.assertEquals(200 - tmpFailedCount, new ResultQuery(tmpColumns)
+                    .where(ResultPredicate.isTrue(ResultColumns.Flag.PRESCREENED)).count());
+            Assert.assertEquals(0, new ResultQuery(tmpColumns)
+                    .where(ResultPredicate.isTrue(ResultColumns.Flag.CONTAINS_SUGARS)).count());
+            Assert.assertEquals(200, new ResultQuery(tmpColumns)
+                    .where(ResultPredicate.atLeast(ResultColumns.Count.HEAVY_ATOMS, Integer.MIN_VALUE)).count());
+            Assert.assertEquals(0, new ResultQuery(tmpColumns)
+                    .where(ResultPredicate.between(ResultColumns.Count.STEREO_ISOMERS, 3, 2)).count());
+            ResultPredicate tmpFewStereoIsomers = ResultPredicate.between(ResultColumns.Count.STEREO_ISOMERS, 2, 3);
+            Assert.assertEquals(tmpTable.count(i -> tmpTable.getNrOfStereoIsomers(i) >= 2
+                            && tmpTable.getNrOfStereoIsomers(i) <= 3),
+                    new ResultQuery(tmpColumns).where(tmpFewStereoIsomers).count());
+            Assert.assertEquals(tmpTable.count(i -> tmpTable.getNrOfStereoIsomers(i) < 2
+                            || tmpTable.getNrOfStereoIsomers(i) > 3 || tmpTable.getNrOfStereoIsomers(i) == 0),
+                    new ResultQuery(tmpColumns).where(tmpFewStereoIsomers.negate()).count());
+            Assert.assertEquals(tmpTable.count(i -> tmpTable.getNrOfStereoIsomers(i) == 4
+                            || tmpTable.hasFlag(i, SugarDetectionBatch.FAILED_FLAG)),
+                    new ResultQuery(tmpColumns).where(ResultPredicate.equalTo(ResultColumns.Count.STEREO_ISOMERS, 4)
+                            .or(ResultPredicate.isTrue(ResultColumns.Flag.FAILED))).count());
+            ResultQuery.Result tmpResult = new ResultQuery(tmpColumns)
+                    .where(ResultPredicate.isFalse(ResultColumns.Flag.FAILED))
+                    .groupBy(ResultColumns.Count.STEREO_ISOMERS)
+                    .sum(ResultColumns.Count.STEREO_ISOMERS)
+                    .execute();
+            SortedMap<Integer, Integer> tmpExpected = tmpTable.countBy(tmpTable::getNrOfStereoIsomers,
+                    i -> !tmpTable.hasFlag(i, SugarDetectionBatch.FAILED_FLAG));
+            Assert.assertEquals(tmpExpected.size(), tmpResult.getGroupCount());
+            int tmpGroup = 0;
+            for (Integer tmpKey : tmpExpected.keySet()) {
+                Assert.assertEquals((int) tmpKey, tmpResult.getKey(tmpGroup));
+                Assert.assertEquals((int) tmpExpected.get(tmpKey), tmpResult.getFrequency(tmpGroup));
+                Assert.assertEquals((long) tmpKey * tmpExpected.get(tmpKey),
+                        tmpResult.getSum(tmpGroup, ResultColumns.Count.STEREO_ISOMERS));
+                tmpGroup++;
+            }
+            Assert.assertEquals(200 - tmpFailedCount, tmpResult.getTotalFrequency());
+            Assert.assertEquals(tmpExpected.size() + 1, tmpResult.toCsvLines().size());
+            Assert.assertEquals("StereoIsomerCount;Frequency;StereoIsomerCountSum;Percentage",
+                    tmpResult.toCsvLines().get(0));
+        }
+    }
+
+    /**
+     * Queries the result columns written in a comparison job of the review molecules and checks them against the
+     * statistics of the job.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void comparisonJobTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        File tmpOutputFolder = Files.createTempDirectory("result_query_test").toFile();
+        List<DatasetGlycosylationStatistics> tmpStatisticsList;
+        MultiDatasetComparisonJob tmpJob;
+        try (SDFMoleculeSource tmpSDFSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            tmpJob = new MultiDatasetComparisonJob(Arrays.asList(tmpSDFSource), tmpOutputFolder.getAbsolutePath(),
+                    2, 16);
+            tmpJob.setResultTableWritten(true);
+            tmpStatisticsList = tmpJob.run();
+        }
+        DatasetGlycosylationStatistics tmpStatistics = tmpStatisticsList.get(0);
+        ResultColumns tmpColumns = ResultColumns.open(tmpJob.getResultTableFile(tmpStatistics.getDatasetName()));
+        Assert.assertEquals(tmpStatistics.getMoleculesCounter(), tmpColumns.size());
+        Assert.assertEquals(tmpStatistics.getHasAnyTypeOfSugarsCounter(), new ResultQuery(tmpColumns)
+                .where(ResultPredicate.isTrue(ResultColumns.Flag.CONTAINS_SUGARS)).count());
+        Assert.assertEquals(tmpStatistics.getHasAnyTypeOfSugarsCounter(), new ResultQuery(tmpColumns)
+                .where(ResultPredicate.atLeast(ResultColumns.Count.SUGARS, 1)).count());
+        Assert.assertEquals(tmpStatistics.getBasicallyASugarCounter(), new ResultQuery(tmpColumns)
+                .where(ResultPredicate.isTrue(ResultColumns.Flag.BASICALLY_A_SUGAR)).count());
+        ResultQuery.Result tmpResult = new ResultQuery(tmpColumns)
+                .where(ResultPredicate.isTrue(ResultColumns.Flag.CONTAINS_CIRCULAR_SUGARS))
+                .groupBy(ResultColumns.Count.CIRCULAR_SUGARS)
+                .sum(ResultColumns.Count.CIRCULAR_SUGARS)
+                .sum(ResultColumns.Count.LINEAR_SUGARS)
+                .execute();
+        Assert.assertEquals(tmpStatistics.getHasCircularSugarsCounter(), tmpResult.getTotalFrequency());
+        Assert.assertTrue(tmpResult.getKey(0) > 0);
+        long tmpCircularSugarSum = 0L;
+        double tmpPercentageSum = 0.0;
+        for (int g = 0; g < tmpResult.getGroupCount(); g++) {
+            tmpCircularSugarSum += tmpResult.getSum(g, ResultColumns.Count.CIRCULAR_SUGARS);
+            tmpPercentageSum += tmpResult.getPercentage(g);
+        }
+        Assert.assertEquals((long) tmpStatistics.getStatistics().get("Detected circular sugar moieties"),
+                tmpCircularSugarSum);
+        Assert.assertEquals(100.0, tmpPercentageSum, 1e-9);
+        File tmpCsvFile = new File(tmpOutputFolder, "CircularSugarCounts.csv");
+        tmpResult.writeCsv(tmpCsvFile);
+        List<String> tmpLines = Files.readAllLines(tmpCsvFile.toPath());
+        Assert.assertEquals(tmpResult.getGroupCount() + 1, tmpLines.size());
+        Assert.assertEquals("CircularSugarCount;Frequency;CircularSugarCountSum;LinearSugarCountSum;Percentage",
+                tmpLines.get(0));
+        ResultQuery.Result tmpTotal = new ResultQuery(tmpColumns).sum(ResultColumns.Count.LINEAR_SUGARS).execute();
+        Assert.assertEquals(1, tmpTotal.getGroupCount());
+        Assert.assertEquals(tmpStatistics.getMoleculesCounter(), tmpTotal.getFrequency(0));
+        Assert.assertEquals((long) tmpStatistics.getStatistics().get("Detected linear sugar moieties"),
+                tmpTotal.getSum(0, ResultColumns.Count.LINEAR_SUGARS));
+        Assert.assertTrue(tmpTotal.toCsvLines().get(1).startsWith("All;"));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Tests the estimation of the basic statistics from samples against the statistics of the whole dataset.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SamplingStatisticsJobTest {
+    /**
+     * Estimates the statistics of the review molecules from simple and stratified samples and checks that the
+     * confidence intervals contain the fractions of the whole dataset; a sample covering the whole dataset must give
+     * the exact fractions.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void reviewDatasetTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        File tmpOutputFolder = Files.createTempDirectory("sampling_test").toFile();
+        DatasetGlycosylationStatistics tmpFullStatistics;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            tmpFullStatistics = new MultiDatasetComparisonJob(Arrays.asList(tmpSource),
+                    tmpOutputFolder.getAbsolutePath(), 2, 64).run().get(0);
+        }
+        int tmpAnalysedCount = tmpFullStatistics.getMoleculesCounter() - tmpFullStatistics.getFailedMoleculesCounter();
+        for (boolean tmpIsStratified : new boolean[] {false, true}) {
+            for (int tmpSampleSize : new int[] {150, 2000}) {
+                Map<String, SamplingStatisticsJob.Estimate> tmpEstimates;
+                SamplingStatisticsJob tmpJob;
+                try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+                    tmpJob = new SamplingStatisticsJob(tmpSource, tmpOutputFolder.getAbsolutePath(), tmpSampleSize,
+                            tmpIsStratified, SamplingStatisticsJob.DEFAULT_SEED, 2);
+                    tmpEstimates = tmpJob.run();
+                }
+                Assert.assertEquals(tmpFullStatistics.getMoleculesCounter(), tmpJob.getPopulationCounter());
+                Assert.assertTrue(new File(tmpJob.getOutputFolderPath() + SamplingStatisticsJob.ESTIMATES_FILE_NAME).isFile());
+                for (Map.Entry<String, Integer> tmpEntry : tmpFullStatistics.getMoleculeCounts().entrySet()) {
+                    SamplingStatisticsJob.Estimate tmpEstimate = tmpEstimates.get(tmpEntry.getKey());
+                    double tmpTrueFraction = (double) tmpEntry.getValue() / tmpAnalysedCount;
+                    Assert.assertTrue(tmpEstimate.getLowerBound() <= tmpEstimate.getFraction()
+                            && tmpEstimate.getFraction() <= tmpEstimate.getUpperBound());
+                    if (tmpSampleSize >= tmpFullStatistics.getMoleculesCounter()) {
+                        Assert.assertEquals(tmpTrueFraction, tmpEstimate.getFraction(), 1.0e-9);
+                        Assert.assertEquals(tmpEstimate.getFraction(), tmpEstimate.getLowerBound(), 1.0e-9);
+                        Assert.assertEquals(tmpEstimate.getFraction(), tmpEstimate.getUpperBound(), 1.0e-9);
+                    } else {
+                        Assert.assertTrue(tmpEntry.getKey(), tmpEstimate.getLowerBound() <= tmpTrueFraction
+                                && tmpTrueFraction <= tmpEstimate.getUpperBound());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the lexical heavy-atom count of SMILES codes.
+     */
+    @Test
+    public void heavyAtomCountTest() {
+        Assert.assertEquals(13, SamplingStatisticsJob.getHeavyAtomCount(new MoleculeRecord("aspirin",
+                "CC(=O)Oc1ccccc1C(=O)O", 1)));
+        Assert.assertEquals(4, SamplingStatisticsJob.getHeavyAtomCount(new MoleculeRecord("halides",
+                "ClC(Br)[2H].[Na+]", 1)));
+        Assert.assertEquals(2, SamplingStatisticsJob.getHeavyAtomCount(new MoleculeRecord("hydrogen",
+                "[H][C@@H]([H])[Hg]", 1)));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+
+/**
+ * Tests the structure key strategies and their benchmark.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class StructureKeyGeneratorTest {
+    /**
+     * Checks that the graph hash does not depend on the atom order or stereo configuration and distinguishes
+     * constitutional isomers, charges, bond orders, and fragments.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void graphHashInvarianceTest() throws Exception {
+        SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        GraphHashKeyGenerator tmpGenerator = new GraphHashKeyGenerator();
+        //glucose with different atom orders and stereo configurations
+        long tmpKey = tmpGenerator.createKey(tmpSmiPar.parseSmiles("OC[C@H]1O[C@H](O)[C@H](O)[C@@H](O)[C@@H]1O"));
+        Assert.assertEquals(tmpKey, tmpGenerator.createKey(tmpSmiPar.parseSmiles("O[C@@H]1[C@@H](O)[C@H](O)[C@@H](CO)O[C@H]1O")));
+        Assert.assertEquals(tmpKey, tmpGenerator.createKey(tmpSmiPar.parseSmiles("OCC1OC(O)C(O)C(O)C1O")));
+        Assert.assertEquals(tmpGenerator.createKey(tmpSmiPar.parseSmiles("c1ccccc1O")),
+                tmpGenerator.createKey(tmpSmiPar.parseSmiles("Oc1ccccc1")));
+        //aromatic and Kekulé input, and different Kekulé structures of the same molecule
+        Assert.assertEquals(tmpGenerator.createKey(tmpSmiPar.parseSmiles("c1ccccc1O")),
+                tmpGenerator.createKey(tmpSmiPar.parseSmiles("C1=CC=CC=C1O")));
+        Assert.assertEquals(tmpGenerator.createKey(tmpSmiPar.parseSmiles("CC1=CC2=CC=CC=C2C=C1")),
+                tmpGenerator.createKey(tmpSmiPar.parseSmiles("CC1=CC=C2C=CC=CC2=C1")));
+        Assert.assertEquals(tmpGenerator.createKey(tmpSmiPar.parseSmiles("CC1=CC2=CC=CC=C2C=C1")),
+                tmpGenerator.createKey(tmpSmiPar.parseSmiles("Cc1ccc2ccccc2c1")));
+        String[] tmpDifferentStructures = new String[] {"CCO", "COC", "CC=O", "CC[O-]", "C1CCCCC1.C1CCCCC1",
+                "C1CCCCCCCCCCC1", "CC(C)CO", "CCCCO", "OC1CCCCC1", "OC1CCCCC1C"};
+        for (int i = 0; i < tmpDifferentStructures.length; i++) {
+            for (int j = i + 1; j < tmpDifferentStructures.length; j++) {
+                Assert.assertNotEquals(tmpDifferentStructures[i] + " " + tmpDifferentStructures[j],
+                        tmpGenerator.createKey(tmpSmiPar.parseSmiles(tmpDifferentStructures[i])),
+                        tmpGenerator.createKey(tmpSmiPar.parseSmiles(tmpDifferentStructures[j])));
+            }
+        }
+        IAtomContainer tmpMolecule = tmpSmiPar.parseSmiles("C[C@H](N)C(=O)O");
+        String tmpSmilesCode = new UniqueSmilesKeyGenerator().createUniqueSmilesCode(tmpMolecule);
+        Assert.assertEquals(AglyconeFrequencyCollector.computeStructureHash(tmpSmilesCode),
+                new UniqueSmilesKeyGenerator().createKey(tmpMolecule));
+    }
+
+    /**
+     * Checks that the structure key index groups stereo-isomers and aromatic and Kekulé input, keeps the SMILES code
+     * and ID of the first one, and separates different structures whose keys collide.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void structureKeyIndexTest() throws Exception {
+        SmilesParser tmpSmiPar = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        StructureKeyIndex tmpIndex = new StructureKeyIndex(10);
+        String[] tmpSmilesCodes = new String[] {"OC[C@H]1O[C@H](O)[C@H](O)[C@@H](O)[C@@H]1O",
+                "O[C@@H]1[C@@H](O)[C@H](O)[C@@H](CO)O[C@H]1O", "OCC1OC(O)C(O)C(O)C1O", "CCO"};
+        for (int i = 0; i < tmpSmilesCodes.length; i++) {
+            tmpIndex.add(tmpSmiPar.parseSmiles(tmpSmilesCodes[i]), tmpSmilesCodes[i], "ID" + i);
+        }
+        Assert.assertEquals(2, tmpIndex.size());
+        StructureKeyIndex.Group tmpGlucose = tmpIndex.getGroups().get(0);
+        Assert.assertEquals(tmpSmilesCodes[0], tmpGlucose.getSmilesCode());
+        Assert.assertEquals("ID0", tmpGlucose.getID());
+        Assert.assertEquals(3, tmpGlucose.getFrequency());
+        Assert.assertEquals(new UniqueSmilesKeyGenerator().createUniqueSmilesCode(
+                tmpSmiPar.parseSmiles(tmpSmilesCodes[2])), tmpIndex.getUniqueSmilesCode(tmpGlucose));
+        Assert.assertSame(tmpGlucose, tmpIndex.find(tmpSmiPar.parseSmiles("OCC1OC(O)C(O)C(O)C1O")));
+        Assert.assertNull(tmpIndex.find(tmpSmiPar.parseSmiles("OCC1OC(O)C(O)C(O)C1")));
+        //molecules without a given SMILES code get a stereo-free one
+        IAtomContainer tmpAlanine = tmpSmiPar.parseSmiles("C[C@H](N)C(=O)O");
+        Assert.assertFalse(tmpIndex.add(tmpAlanine, null, "ID4").getSmilesCode().contains("@"));
+        Assert.assertEquals(0, tmpIndex.getCollisionsCounter());
+        //aromatic and Kekulé input of the same structure end up in one group
+        StructureKeyIndex tmpAromaticityIndex = new StructureKeyIndex(10);
+        StructureKeyIndex.Group tmpPhenol = tmpAromaticityIndex.add(tmpSmiPar.parseSmiles("c1ccccc1O"), null, "ID0");
+        Assert.assertSame(tmpPhenol, tmpAromaticityIndex.add(tmpSmiPar.parseSmiles("C1=CC=CC=C1O"), null, "ID1"));
+        Assert.assertNotNull(tmpAromaticityIndex.find(tmpSmiPar.parseSmiles("OC1=CC=CC=C1")));
+        tmpAromaticityIndex.add(tmpSmiPar.parseSmiles("CC1=CC2=CC=CC=C2C=C1"), null, "ID2");
+        tmpAromaticityIndex.add(tmpSmiPar.parseSmiles("CC1=CC=C2C=CC=CC2=C1"), null, "ID3");
+        Assert.assertEquals(2, tmpAromaticityIndex.size());
+        Assert.assertEquals(0, tmpAromaticityIndex.getCollisionsCounter());
+        //a key generator that maps every molecule to the same key forces collisions
+        StructureKeyGenerator tmpConstantGenerator = new StructureKeyGenerator() {
+            @Override
+            public String getName() {
+                return "constant";
+            }
+            @Override
+            public long createKey(IAtomContainer aMolecule) {
+                return 42L;
+            }
+        };
+        StructureKeyIndex tmpCollidingIndex = new StructureKeyIndex(tmpConstantGenerator, 10);
+        for (int i = 0; i < tmpSmilesCodes.length; i++) {
+            tmpCollidingIndex.add(tmpSmiPar.parseSmiles(tmpSmilesCodes[i]), tmpSmilesCodes[i], "ID" + i);
+        }
+        Assert.assertEquals(2, tmpCollidingIndex.size());
+        Assert.assertEquals(1, tmpCollidingIndex.getCollisionsCounter());
+        Assert.assertEquals(3, tmpCollidingIndex.getGroups().get(0).getFrequency());
+        Assert.assertEquals("CCO", tmpCollidingIndex.getGroups().get(1).getSmilesCode());
+        Assert.assertNotNull(tmpCollidingIndex.find(tmpSmiPar.parseSmiles("OCC")));
+        Assert.assertNull(tmpCollidingIndex.find(tmpSmiPar.parseSmiles("CCC")));
+    }
+
+    /**
+     * Benchmarks the graph hash against unique SMILES codes on the review dataset; the graph hash must group the
+     * molecules exactly like the unique SMILES codes.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void reviewDatasetBenchmarkTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        StructureKeyBenchmark.Result tmpResult;
+        try (SDFMoleculeSource tmpSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            tmpResult = new StructureKeyBenchmark(new GraphHashKeyGenerator()).run(tmpSource);
+        }
+        System.out.println(tmpResult);
+        Assert.assertEquals(344, tmpResult.getMoleculesCounter());
+        Assert.assertEquals(0, tmpResult.getFailedMoleculesCounter());
+        Assert.assertEquals(0, tmpResult.getCollisionsCounter());
+        Assert.assertEquals(0, tmpResult.getSplitsCounter());
+        Assert.assertEquals(0, tmpResult.getSmilesHashCollisionsCounter());
+        Assert.assertEquals(tmpResult.getDistinctSmilesCounter(), tmpResult.getDistinctCandidateKeysCounter());
+    }
+}
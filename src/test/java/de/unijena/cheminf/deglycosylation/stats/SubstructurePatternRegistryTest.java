@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests the compilation and caching of substructure pattern sets in the registry and the concurrent matching of the
+ * review sugar patterns.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SubstructurePatternRegistryTest {
+    /**
+     * Checks that pattern sets of the same content are compiled only once, also if requested by multiple threads at
+     * the same time, and that sets of different content are kept apart.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void cachingTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        ExecutorService tmpExecutor = Executors.newFixedThreadPool(4);
+        List<Future<SubstructurePatternSet>> tmpFutures = new ArrayList<>(8);
+        try {
+            for (int i = 0; i < 8; i++) {
+                tmpFutures.add(tmpExecutor.submit(() -> SubstructurePatternRegistry.getSDFPatterns(tmpSDFile, "Name")));
+            }
+            SubstructurePatternSet tmpReviewSugarPatternSet = tmpFutures.get(0).get();
+            for (Future<SubstructurePatternSet> tmpFuture : tmpFutures) {
+                Assert.assertSame(tmpReviewSugarPatternSet, tmpFuture.get());
+            }
+            Assert.assertEquals(344, tmpReviewSugarPatternSet.size() + tmpReviewSugarPatternSet.getSkippedEntriesCount());
+            Assert.assertNotSame(tmpReviewSugarPatternSet, SubstructurePatternRegistry.getSDFPatterns(tmpSDFile, "ID"));
+        } finally {
+            tmpExecutor.shutdownNow();
+        }
+        SugarRemovalUtility tmpSugarRemovalUtil = new SugarRemovalUtility(DefaultChemObjectBuilder.getInstance());
+        SubstructurePatternSet tmpLinearSugarPatternSet = SubstructurePatternRegistry.getLinearSugarPatterns(tmpSugarRemovalUtil);
+        Assert.assertSame(tmpLinearSugarPatternSet, SubstructurePatternRegistry.getSmilesPatterns(
+                new ArrayList<>(tmpSugarRemovalUtil.getLinearSugarPatternsList())));
+        Assert.assertEquals(tmpSugarRemovalUtil.getLinearSugarPatternsList().size(), tmpLinearSugarPatternSet.size());
+        tmpSugarRemovalUtil.setDetectLinearAcidicSugarsSetting(true);
+        SubstructurePatternSet tmpAcidicLinearSugarPatternSet = SubstructurePatternRegistry.getLinearSugarPatterns(tmpSugarRemovalUtil);
+        Assert.assertNotSame(tmpLinearSugarPatternSet, tmpAcidicLinearSugarPatternSet);
+        Assert.assertTrue(tmpAcidicLinearSugarPatternSet.size() > tmpLinearSugarPatternSet.size());
+        SubstructurePatternSet tmpSmartsPatternSet = SubstructurePatternRegistry.getSmartsPatterns(
+                Arrays.asList("[OX2H][CX4][CX4][OX2H]", "[#7]", "[r6;#8]"));
+        Assert.assertNull(tmpSmartsPatternSet.getMoleculeCopy(0));
+        IAtomContainer tmpMolecule = new SmilesParser(DefaultChemObjectBuilder.getInstance()).parseSmiles(
+                "OCC1OC(O)C(O)C(O)C1O");
+        BitSet tmpMatches = tmpSmartsPatternSet.matchAll(tmpMolecule);
+        Assert.assertTrue(tmpMatches.get(0));
+        Assert.assertFalse(tmpMatches.get(1));
+        Assert.assertTrue(tmpMatches.get(2));
+        Assert.assertSame(tmpSmartsPatternSet, SubstructurePatternRegistry.getSmartsPatterns(
+                List.of("[OX2H][CX4][CX4][OX2H]", "[#7]", "[r6;#8]")));
+    }
+
+    /**
+     * Matches the review sugar patterns against the review molecules in multiple threads and compares the matches to
+     * those of a single thread.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void concurrentMatchingTest() throws Exception {
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        SubstructurePatternSet tmpPatternSet = SubstructurePatternRegistry.getSDFPatterns(tmpSDFile, "Name");
+        int[] tmpExpectedFrequencies = new int[tmpPatternSet.size()];
+        for (int i = 0; i < tmpPatternSet.size(); i++) {
+            BitSet tmpMatches = tmpPatternSet.matchAll(tmpPatternSet.getMoleculeCopy(i));
+            //every pattern matches the molecule it was compiled from
+            Assert.assertTrue(tmpMatches.get(i));
+            for (int j = tmpMatches.nextSetBit(0); j >= 0; j = tmpMatches.nextSetBit(j + 1)) {
+                tmpExpectedFrequencies[j]++;
+            }
+        }
+        ExecutorService tmpExecutor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> tmpFutures = new ArrayList<>(4);
+            for (int t = 0; t < 4; t++) {
+                final int tmpOffset = t;
+                tmpFutures.add(tmpExecutor.submit(() -> {
+                    int[] tmpFrequencies = new int[tmpPatternSet.size()];
+                    for (int i = tmpOffset; i < tmpPatternSet.size(); i += 4) {
+                        BitSet tmpMatches = tmpPatternSet.matchAll(tmpPatternSet.getMoleculeCopy(i));
+                        for (int j = tmpMatches.nextSetBit(0); j >= 0; j = tmpMatches.nextSetBit(j + 1)) {
+                            tmpFrequencies[j]++;
+                        }
+                    }
+                    return tmpFrequencies;
+                }));
+            }
+            int[] tmpFrequencies = new int[tmpPatternSet.size()];
+            for (Future<int[]> tmpFuture : tmpFutures) {
+                int[] tmpPartialFrequencies = tmpFuture.get();
+                for (int i = 0; i < tmpFrequencies.length; i++) {
+                    tmpFrequencies[i] += tmpPartialFrequencies[i];
+                }
+            }
+            Assert.assertArrayEquals(tmpExpectedFrequencies, tmpFrequencies);
+        } finally {
+            tmpExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Jonas Schaub, Achim Zielesny, Christoph Steinbeck, Maria Sorokina
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.unijena.cheminf.deglycosylation.stats;
+
+import de.unijena.cheminf.deglycosylation.SugarRemovalUtility;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+
+import java.io.File;
+
+/**
+ * Tests the primitive molecular graph and the sugar pre-screen built on it.
+ *
+ * @author Jonas Schaub
+ * @version 1.0.2.0
+ */
+public class SugarPrescreenTest {
+    /**
+     * Checks the atoms, bonds, and ring atoms of a few parsed SMILES codes and that invalid SMILES codes are rejected.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void parseSmilesTest() throws Exception {
+        //methyl glucoside with a charged bracket atom and a counter ion
+        PrimitiveMoleculeGraph tmpGraph = PrimitiveMoleculeGraph.parseSmiles("[O-]C1OC(CO)C(O)C(O)C1OC.[Na+]");
+        Assert.assertEquals(14, tmpGraph.getAtomCount());
+        Assert.assertEquals(13, tmpGraph.getBondCount());
+        Assert.assertEquals(8, tmpGraph.getElement(0));
+        Assert.assertEquals(11, tmpGraph.getElement(13));
+        Assert.assertFalse(tmpGraph.isInRing(0));
+        Assert.assertTrue(tmpGraph.isInRing(1));
+        Assert.assertTrue(tmpGraph.isInRing(2));
+        Assert.assertFalse(tmpGraph.isInRing(4));
+        Assert.assertEquals(3, tmpGraph.getDegree(1));
+        Assert.assertEquals(0, tmpGraph.getDegree(13));
+        //aromatic atoms, two-letter elements, and a spiro atom
+        tmpGraph = PrimitiveMoleculeGraph.parseSmiles("Clc1ccc(Br)cc1.C1%10(CC1)CCO%10");
+        Assert.assertEquals(17, tmpGraph.getElement(0));
+        Assert.assertTrue(tmpGraph.isAromatic(1));
+        Assert.assertEquals(35, tmpGraph.getElement(5));
+        Assert.assertFalse(tmpGraph.isInRing(0));
+        Assert.assertEquals(4, tmpGraph.getDegree(8));
+        for (int i = 0; i < tmpGraph.getAtomCount(); i++) {
+            if (i != 5 && i != 0) {
+                Assert.assertTrue(tmpGraph.isInRing(i));
+            }
+        }
+        for (String tmpInvalidSmiles : new String[] {"C1CC(C", "C1CC", "CC=", "C[Xx]C", "C)C", "C%1C"}) {
+            try {
+                PrimitiveMoleculeGraph.parseSmiles(tmpInvalidSmiles);
+                Assert.fail(tmpInvalidSmiles + " was parsed.");
+            } catch (IllegalArgumentException anException) {
+                //expected
+            }
+        }
+    }
+
+    /**
+     * Checks that the pre-screen lets all review molecules pass that contain sugars according to the SRU and rejects
+     * a few molecules without sugars.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void noFalseNegativesTest() throws Exception {
+        SugarRemovalUtility tmpSugarRemovalUtil = SugarRemovalUtilityPool.createInstance();
+        SugarPrescreen tmpPrescreen = new SugarPrescreen(tmpSugarRemovalUtil);
+        SmilesGenerator tmpSmiGen = new SmilesGenerator(SmiFlavor.Unique | SmiFlavor.UseAromaticSymbols);
+        File tmpSDFile = new File(this.getClass().getResource("/review_glycosylated_NPs_bacteria_data.sdf").getFile());
+        int tmpSugarContainingMoleculesCounter = 0;
+        int tmpRejectedMoleculesCounter = 0;
+        try (SDFMoleculeSource tmpSDFSource = new SDFMoleculeSource(tmpSDFile, "Name")) {
+            while (tmpSDFSource.hasNext()) {
+                MoleculeRecord tmpRecord = tmpSDFSource.next();
+                MoleculeGlycosylationResult tmpResult = MoleculeGlycosylationResult.compute(tmpRecord.getID(), null,
+                        tmpRecord.getAtomContainer(), tmpSugarRemovalUtil, tmpSmiGen);
+                boolean tmpMayContainSugars = tmpPrescreen.mayContainSugars(
+                        tmpSmiGen.create(tmpRecord.getAtomContainer()));
+                if (tmpResult.containsSugars()) {
+                    tmpSugarContainingMoleculesCounter++;
+                    Assert.assertTrue(tmpRecord.getID(), tmpMayContainSugars);
+                } else if (!tmpMayContainSugars) {
+                    tmpRejectedMoleculesCounter++;
+                }
+            }
+        }
+        System.out.println(tmpSugarContainingMoleculesCounter + " sugar-containing molecules passed, "
+                + tmpRejectedMoleculesCounter + " molecules without sugars were rejected.");
+        Assert.assertTrue(tmpSugarContainingMoleculesCounter > 0);
+        for (String tmpSmiles : new String[] {"CC(=O)Oc1ccccc1C(=O)O", "c1ccccc1", "Cn1cnc2c1c(=O)n(C)c(=O)n2C",
+                "OCCO", "C1CCOC1"}) {
+            Assert.assertFalse(tmpSmiles, tmpPrescreen.mayContainSugars(tmpSmiles));
+        }
+        for (String tmpSmiles : new String[] {"OCC1OC(O)C(O)C(O)C1O", "OCC(O)C(O)CO", "CCCCCCCCCCOC1OC(CO)C(O)C(O)C1O",
+                "OC1CC(O)C(O"}) {
+            Assert.assertTrue(tmpSmiles, tmpPrescreen.mayContainSugars(tmpSmiles));
+        }
+        tmpSugarRemovalUtil.setDetectLinearAcidicSugarsSetting(true);
+        Assert.assertTrue(new SugarPrescreen(tmpSugarRemovalUtil).mayContainSugars("c1ccccc1"));
+    }
+
+    /**
+     * Checks the lexical count of oxygen atoms and the minimum oxygen atom count derived from the SRU settings.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void oxygenAtomCountTest() throws Exception {
+        Assert.assertEquals(0, SugarPrescreen.countOxygenAtoms("c1ccsc1"));
+        Assert.assertEquals(2, SugarPrescreen.countOxygenAtoms("Coc1ccoc1"));
+        Assert.assertEquals(3, SugarPrescreen.countOxygenAtoms("[18OH-].[O-]C(=O)CC"));
+        Assert.assertEquals(1, SugarPrescreen.countOxygenAtoms("[Os]O"));
+        Assert.assertEquals(2, SugarPrescreen.countOxygenAtoms("COs1cccc1O"));
+        SugarRemovalUtility tmpSugarRemovalUtil = SugarRemovalUtilityPool.createInstance();
+        SugarPrescreen tmpPrescreen = new SugarPrescreen(tmpSugarRemovalUtil);
+        Assert.assertEquals(3, tmpPrescreen.getMinOxygenAtomCount());
+        //rejected before the ring is searched
+        Assert.assertFalse(tmpPrescreen.mayContainSugars("OC1CCOCC1"));
+        tmpSugarRemovalUtil.setDetectCircularSugarsOnlyWithEnoughExocyclicOxygenAtomsSetting(false);
+        tmpPrescreen = new SugarPrescreen(tmpSugarRemovalUtil);
+        Assert.assertEquals(1, tmpPrescreen.getMinOxygenAtomCount());
+        Assert.assertTrue(tmpPrescreen.mayContainSugars("C1CCOC1"));
+        tmpSugarRemovalUtil.setDetectLinearAcidicSugarsSetting(true);
+        Assert.assertEquals(0, new SugarPrescreen(tmpSugarRemovalUtil).getMinOxygenAtomCount());
+    }
+}